@@ -44,6 +44,7 @@ import java.util.Map;
 import java.util.Optional;
 
 import static com.facebook.presto.cli.Help.getHelpText;
+import static com.facebook.presto.client.ClientSession.withPreparedStatements;
 import static com.facebook.presto.client.ClientSession.withProperties;
 import static com.facebook.presto.sql.parser.StatementSplitter.Statement;
 import static com.facebook.presto.sql.parser.StatementSplitter.isEmptyStatement;
@@ -247,6 +248,14 @@ public class Console
                 sessionProperties.keySet().removeAll(query.getResetSessionProperties());
                 queryRunner.setSession(withProperties(queryRunner.getSession(), sessionProperties));
             }
+
+            // update prepared statements if present
+            if (!query.getAddedPreparedStatements().isEmpty() || !query.getDeallocatedPreparedStatements().isEmpty()) {
+                Map<String, String> preparedStatements = new HashMap<>(queryRunner.getSession().getPreparedStatements());
+                preparedStatements.putAll(query.getAddedPreparedStatements());
+                preparedStatements.keySet().removeAll(query.getDeallocatedPreparedStatements());
+                queryRunner.setSession(withPreparedStatements(queryRunner.getSession(), preparedStatements));
+            }
         }
         catch (RuntimeException e) {
             System.out.println("Error running command: " + e.getMessage());
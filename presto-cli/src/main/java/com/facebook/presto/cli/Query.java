@@ -69,6 +69,16 @@ public class Query
         return client.getResetSessionProperties();
     }
 
+    public Map<String, String> getAddedPreparedStatements()
+    {
+        return client.getAddedPreparedStatements();
+    }
+
+    public Set<String> getDeallocatedPreparedStatements()
+    {
+        return client.getDeallocatedPreparedStatements();
+    }
+
     public void renderOutput(PrintStream out, OutputFormat outputFormat, boolean interactive)
     {
         SignalHandler oldHandler = Signal.handle(SIGINT, new SignalHandler()
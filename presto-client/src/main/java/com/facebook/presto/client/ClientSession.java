@@ -37,6 +37,7 @@ public class ClientSession
     private final String timeZoneId;
     private final Locale locale;
     private final Map<String, String> properties;
+    private final Map<String, String> preparedStatements;
     private final boolean debug;
 
     public static ClientSession withCatalogAndSchema(ClientSession session, String catalog, String schema)
@@ -50,6 +51,7 @@ public class ClientSession
                 session.getTimeZoneId(),
                 session.getLocale(),
                 session.getProperties(),
+                session.getPreparedStatements(),
                 session.isDebug());
     }
 
@@ -67,6 +69,7 @@ public class ClientSession
                 session.getTimeZoneId(),
                 session.getLocale(),
                 properties,
+                session.getPreparedStatements(),
                 session.isDebug());
     }
 
@@ -81,10 +84,31 @@ public class ClientSession
                 session.getTimeZoneId(),
                 session.getLocale(),
                 properties,
+                session.getPreparedStatements(),
+                session.isDebug());
+    }
+
+    public static ClientSession withPreparedStatements(ClientSession session, Map<String, String> preparedStatements)
+    {
+        return new ClientSession(
+                session.getServer(),
+                session.getUser(),
+                session.getSource(),
+                session.getCatalog(),
+                session.getSchema(),
+                session.getTimeZoneId(),
+                session.getLocale(),
+                session.getProperties(),
+                preparedStatements,
                 session.isDebug());
     }
 
     public ClientSession(URI server, String user, String source, String catalog, String schema, String timeZoneId, Locale locale, Map<String, String> properties, boolean debug)
+    {
+        this(server, user, source, catalog, schema, timeZoneId, locale, properties, ImmutableMap.of(), debug);
+    }
+
+    public ClientSession(URI server, String user, String source, String catalog, String schema, String timeZoneId, Locale locale, Map<String, String> properties, Map<String, String> preparedStatements, boolean debug)
     {
         this.server = checkNotNull(server, "server is null");
         this.user = user;
@@ -95,6 +119,7 @@ public class ClientSession
         this.timeZoneId = checkNotNull(timeZoneId, "timeZoneId is null");
         this.debug = debug;
         this.properties = ImmutableMap.copyOf(checkNotNull(properties, "properties is null"));
+        this.preparedStatements = ImmutableMap.copyOf(checkNotNull(preparedStatements, "preparedStatements is null"));
 
         // verify the properties are valid
         CharsetEncoder charsetEncoder = US_ASCII.newEncoder();
@@ -146,6 +171,11 @@ public class ClientSession
         return properties;
     }
 
+    public Map<String, String> getPreparedStatements()
+    {
+        return preparedStatements;
+    }
+
     public boolean isDebug()
     {
         return debug;
@@ -162,6 +192,7 @@ public class ClientSession
                 .add("timeZone", timeZoneId)
                 .add("locale", locale)
                 .add("properties", properties)
+                .add("preparedStatements", preparedStatements)
                 .add("debug", debug)
                 .toString();
     }
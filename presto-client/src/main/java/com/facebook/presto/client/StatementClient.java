@@ -26,7 +26,10 @@ import io.airlift.json.JsonCodec;
 import javax.annotation.concurrent.ThreadSafe;
 
 import java.io.Closeable;
+import java.io.UnsupportedEncodingException;
 import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -35,7 +38,10 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_ADDED_PREPARE;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_CLEAR_SESSION;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_DEALLOCATED_PREPARE;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_PREPARED_STATEMENT;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_SET_SESSION;
 import static com.google.common.base.MoreObjects.firstNonNull;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -74,6 +80,8 @@ public class StatementClient
     private final AtomicReference<QueryResults> currentResults = new AtomicReference<>();
     private final Map<String, String> setSessionProperties = new ConcurrentHashMap<>();
     private final Set<String> resetSessionProperties = Sets.newConcurrentHashSet();
+    private final Map<String, String> addedPreparedStatements = new ConcurrentHashMap<>();
+    private final Set<String> deallocatedPreparedStatements = Sets.newConcurrentHashSet();
     private final AtomicBoolean closed = new AtomicBoolean();
     private final AtomicBoolean gone = new AtomicBoolean();
     private final AtomicBoolean valid = new AtomicBoolean(true);
@@ -129,6 +137,11 @@ public class StatementClient
             builder.addHeader(PrestoHeaders.PRESTO_SESSION, entry.getKey() + "=" + entry.getValue());
         }
 
+        // the statement text may contain any character, so it is sent url encoded
+        for (Entry<String, String> entry : session.getPreparedStatements().entrySet()) {
+            builder.addHeader(PRESTO_PREPARED_STATEMENT, entry.getKey() + "=" + urlEncode(entry.getValue()));
+        }
+
         return builder.build();
     }
 
@@ -184,6 +197,16 @@ public class StatementClient
         return ImmutableSet.copyOf(resetSessionProperties);
     }
 
+    public Map<String, String> getAddedPreparedStatements()
+    {
+        return ImmutableMap.copyOf(addedPreparedStatements);
+    }
+
+    public Set<String> getDeallocatedPreparedStatements()
+    {
+        return ImmutableSet.copyOf(deallocatedPreparedStatements);
+    }
+
     public boolean isValid()
     {
         return valid.get() && (!isGone()) && (!isClosed());
@@ -248,9 +271,39 @@ public class StatementClient
         for (String clearSession : response.getHeaders().get(PRESTO_CLEAR_SESSION)) {
             resetSessionProperties.add(clearSession);
         }
+        for (String addedPrepare : response.getHeaders().get(PRESTO_ADDED_PREPARE)) {
+            List<String> keyValue = SESSION_HEADER_SPLITTER.splitToList(addedPrepare);
+            if (keyValue.size() != 2) {
+                continue;
+            }
+            addedPreparedStatements.put(keyValue.get(0), urlDecode(keyValue.get(1)));
+        }
+        for (String deallocatedPrepare : response.getHeaders().get(PRESTO_DEALLOCATED_PREPARE)) {
+            deallocatedPreparedStatements.add(deallocatedPrepare);
+        }
         currentResults.set(response.getValue());
     }
 
+    private static String urlEncode(String value)
+    {
+        try {
+            return URLEncoder.encode(value, UTF_8.name());
+        }
+        catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static String urlDecode(String value)
+    {
+        try {
+            return URLDecoder.decode(value, UTF_8.name());
+        }
+        catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
     private RuntimeException requestFailedException(String task, Request request, JsonResponse<QueryResults> response)
     {
         gone.set(true);
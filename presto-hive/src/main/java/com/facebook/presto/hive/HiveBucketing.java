@@ -65,6 +65,12 @@ final class HiveBucketing
 
     private HiveBucketing() {}
 
+    public static boolean isBucketed(Table table)
+    {
+        return table.getSd().isSetBucketCols() && !table.getSd().getBucketCols().isEmpty() &&
+                table.getSd().isSetNumBuckets() && (table.getSd().getNumBuckets() > 0);
+    }
+
     public static Optional<HiveBucket> getHiveBucket(Table table, Map<ConnectorColumnHandle, ?> bindings)
     {
         if (!table.getSd().isSetBucketCols() || table.getSd().getBucketCols().isEmpty() ||
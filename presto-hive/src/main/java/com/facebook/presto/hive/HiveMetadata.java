@@ -19,7 +19,9 @@ import com.facebook.presto.spi.ConnectorColumnHandle;
 import com.facebook.presto.spi.ConnectorInsertTableHandle;
 import com.facebook.presto.spi.ConnectorMetadata;
 import com.facebook.presto.spi.ConnectorOutputTableHandle;
+import com.facebook.presto.spi.ConnectorPartition;
 import com.facebook.presto.spi.ConnectorSession;
+import com.facebook.presto.spi.ConnectorTableBucketing;
 import com.facebook.presto.spi.ConnectorTableHandle;
 import com.facebook.presto.spi.ConnectorTableMetadata;
 import com.facebook.presto.spi.PrestoException;
@@ -27,6 +29,7 @@ import com.facebook.presto.spi.SchemaNotFoundException;
 import com.facebook.presto.spi.SchemaTableName;
 import com.facebook.presto.spi.SchemaTablePrefix;
 import com.facebook.presto.spi.TableNotFoundException;
+import com.facebook.presto.spi.TableStatistics;
 import com.facebook.presto.spi.ViewNotFoundException;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.spi.type.TypeManager;
@@ -35,6 +38,11 @@ import com.google.common.base.StandardSystemProperty;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import io.airlift.log.Logger;
 import io.airlift.slice.Slice;
 import org.apache.hadoop.fs.Path;
@@ -42,6 +50,7 @@ import org.apache.hadoop.hive.metastore.TableType;
 import org.apache.hadoop.hive.metastore.api.Database;
 import org.apache.hadoop.hive.metastore.api.FieldSchema;
 import org.apache.hadoop.hive.metastore.api.NoSuchObjectException;
+import org.apache.hadoop.hive.metastore.api.Partition;
 import org.apache.hadoop.hive.metastore.api.SerDeInfo;
 import org.apache.hadoop.hive.metastore.api.StorageDescriptor;
 import org.apache.hadoop.hive.metastore.api.Table;
@@ -55,6 +64,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 
+import static com.facebook.presto.hive.HiveBucketing.isBucketed;
 import static com.facebook.presto.hive.HiveColumnHandle.SAMPLE_WEIGHT_COLUMN_NAME;
 import static com.facebook.presto.hive.HiveErrorCode.HIVE_TIMEZONE_MISMATCH;
 import static com.facebook.presto.hive.HiveSessionProperties.getHiveStorageFormat;
@@ -74,6 +84,7 @@ import static com.google.common.base.Strings.isNullOrEmpty;
 import static com.google.common.collect.Iterables.concat;
 import static com.google.common.collect.Iterables.transform;
 import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.UUID.randomUUID;
 import static org.apache.hadoop.hive.serde.serdeConstants.STRING_TYPE_NAME;
 
@@ -81,6 +92,7 @@ public class HiveMetadata
         implements ConnectorMetadata
 {
     private static final Logger log = Logger.get(HiveMetadata.class);
+    private static final String LAST_DDL_TIME = "transient_lastDdlTime";
 
     private final String connectorId;
     private final boolean allowDropTable;
@@ -259,6 +271,93 @@ public class HiveMetadata
         }
     }
 
+    @Override
+    public TableStatistics getTableStatistics(ConnectorSession session, ConnectorTableHandle tableHandle, List<ConnectorPartition> partitions)
+    {
+        SchemaTableName tableName = schemaTableName(tableHandle);
+        checkNotNull(partitions, "partitions is null");
+        try {
+            Table table = metastore.getTable(tableName.getSchemaName(), tableName.getTableName());
+            List<HiveColumnHandle> columns = hiveColumnHandles(typeManager, connectorId, table, false);
+            List<HivePartition> hivePartitions = ImmutableList.copyOf(transform(partitions, partition -> checkType(partition, HivePartition.class, "partition")));
+            return HiveTableStatistics.getTableStatistics(metastore, typeManager, table, columns, hivePartitions);
+        }
+        catch (NoSuchObjectException e) {
+            throw new TableNotFoundException(tableName);
+        }
+    }
+
+    @Override
+    public ConnectorTableBucketing getTableBucketing(ConnectorSession session, ConnectorTableHandle tableHandle)
+    {
+        SchemaTableName tableName = schemaTableName(tableHandle);
+        try {
+            Table table = metastore.getTable(tableName.getSchemaName(), tableName.getTableName());
+            if (!isBucketed(table)) {
+                return null;
+            }
+            Map<String, HiveColumnHandle> columns = Maps.uniqueIndex(hiveColumnHandles(typeManager, connectorId, table, false), HiveColumnHandle::getName);
+            ImmutableList.Builder<ConnectorColumnHandle> bucketColumns = ImmutableList.builder();
+            // rows only hash to the same bucket when the bucket count and the column types match
+            StringBuilder bucketFunction = new StringBuilder("hive:").append(table.getSd().getNumBuckets());
+            for (String columnName : table.getSd().getBucketCols()) {
+                HiveColumnHandle column = columns.get(columnName);
+                if (column == null) {
+                    return null;
+                }
+                bucketColumns.add(column);
+                bucketFunction.append(':').append(column.getHiveType().getHiveTypeName());
+            }
+            return new ConnectorTableBucketing(bucketFunction.toString(), bucketColumns.build());
+        }
+        catch (NoSuchObjectException e) {
+            throw new TableNotFoundException(tableName);
+        }
+    }
+
+    @Override
+    public String getTableDataVersion(ConnectorSession session, ConnectorTableHandle tableHandle, List<ConnectorPartition> partitions)
+    {
+        SchemaTableName tableName = schemaTableName(tableHandle);
+        checkNotNull(partitions, "partitions is null");
+        try {
+            // Hive updates the last DDL time of a table or partition whenever it writes to it
+            Table table = metastore.getTable(tableName.getSchemaName(), tableName.getTableName());
+            String tableDdlTime = table.getParameters().get(LAST_DDL_TIME);
+            if (tableDdlTime == null) {
+                return null;
+            }
+            if (table.getPartitionKeys().isEmpty()) {
+                return tableDdlTime;
+            }
+
+            // adding or dropping a partition changes which partitions a query reads, so the names of all of
+            // them are part of the version, but only the partitions that are read are loaded from the metastore
+            Hasher version = Hashing.sha256().newHasher().putString(tableDdlTime, UTF_8);
+            for (String partitionName : Ordering.natural().sortedCopy(metastore.getPartitionNames(tableName.getSchemaName(), tableName.getTableName()))) {
+                version.putInt(partitionName.length()).putString(partitionName, UTF_8);
+            }
+
+            List<String> readPartitionNames = ImmutableSortedSet.copyOf(transform(partitions, partition -> checkType(partition, HivePartition.class, "partition").getPartitionId())).asList();
+            if (readPartitionNames.isEmpty()) {
+                return version.hash().toString();
+            }
+            Map<String, Partition> readPartitions = metastore.getPartitionsByNames(tableName.getSchemaName(), tableName.getTableName(), readPartitionNames);
+            for (String partitionName : readPartitionNames) {
+                Partition partition = readPartitions.get(partitionName);
+                String partitionDdlTime = (partition == null) ? null : partition.getParameters().get(LAST_DDL_TIME);
+                if (partitionDdlTime == null) {
+                    return null;
+                }
+                version.putInt(partitionName.length()).putString(partitionName, UTF_8).putString(partitionDdlTime, UTF_8);
+            }
+            return version.hash().toString();
+        }
+        catch (NoSuchObjectException e) {
+            throw new TableNotFoundException(tableName);
+        }
+    }
+
     @Override
     public Map<SchemaTableName, List<ColumnMetadata>> listTableColumns(ConnectorSession session, SchemaTablePrefix prefix)
     {
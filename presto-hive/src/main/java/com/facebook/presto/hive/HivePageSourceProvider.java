@@ -18,7 +18,10 @@ import com.facebook.presto.spi.ConnectorPageSource;
 import com.facebook.presto.spi.ConnectorPageSourceProvider;
 import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.ConnectorSplit;
+import com.facebook.presto.spi.Domain;
+import com.facebook.presto.spi.FixedPageSource;
 import com.facebook.presto.spi.RecordPageSource;
+import com.facebook.presto.spi.SerializableNativeValue;
 import com.facebook.presto.spi.TupleDomain;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.spi.type.TypeManager;
@@ -31,10 +34,12 @@ import org.joda.time.DateTimeZone;
 import javax.inject.Inject;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
 
+import static com.facebook.presto.hive.HiveUtil.parsePartitionValue;
 import static com.facebook.presto.hive.util.Types.checkType;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.collect.Iterables.transform;
@@ -69,7 +74,37 @@ public class HivePageSourceProvider
     public ConnectorPageSource createPageSource(ConnectorSplit split, List<ConnectorColumnHandle> columns)
     {
         HiveSplit hiveSplit = checkType(split, HiveSplit.class, "split");
+        return createPageSource(hiveSplit, columns, hiveSplit.getEffectivePredicate());
+    }
 
+    @Override
+    public ConnectorPageSource createPageSource(ConnectorSplit split, List<ConnectorColumnHandle> columns, TupleDomain<ConnectorColumnHandle> dynamicFilter)
+    {
+        HiveSplit hiveSplit = checkType(split, HiveSplit.class, "split");
+        TupleDomain<HiveColumnHandle> hiveDynamicFilter = dynamicFilter.transform(HiveColumnHandle::toHiveColumnHandle);
+
+        // skip the split when the value of a partition key is not in the dynamic filter
+        if (!hiveDynamicFilter.isNone()) {
+            for (HivePartitionKey partitionKey : hiveSplit.getPartitionKeys()) {
+                for (Map.Entry<HiveColumnHandle, Domain> entry : hiveDynamicFilter.getDomains().entrySet()) {
+                    if (!entry.getKey().isPartitionKey() || !entry.getKey().getName().equals(partitionKey.getName())) {
+                        continue;
+                    }
+                    SerializableNativeValue value = parsePartitionValue(hiveSplit.getPartitionName(), partitionKey.getValue(), partitionKey.getHiveType(), hiveStorageTimeZone);
+                    Domain domain = entry.getValue();
+                    if (value.getValue() == null ? !domain.isNullAllowed() : !domain.includesValue(value.getValue())) {
+                        return new FixedPageSource(ImmutableList.of());
+                    }
+                }
+            }
+        }
+
+        // the dynamic filter is added to the effective predicate, so readers can skip stripes and row groups
+        return createPageSource(hiveSplit, columns, hiveSplit.getEffectivePredicate().intersect(hiveDynamicFilter));
+    }
+
+    private ConnectorPageSource createPageSource(HiveSplit hiveSplit, List<ConnectorColumnHandle> columns, TupleDomain<HiveColumnHandle> effectivePredicate)
+    {
         String clientId = hiveSplit.getClientId();
         ConnectorSession session = hiveSplit.getSession();
 
@@ -79,8 +114,6 @@ public class HivePageSourceProvider
 
         Configuration configuration = hdfsEnvironment.getConfiguration(path);
 
-        TupleDomain<HiveColumnHandle> effectivePredicate = hiveSplit.getEffectivePredicate();
-
         Properties schema = hiveSplit.getSchema();
 
         List<HivePartitionKey> partitionKeys = hiveSplit.getPartitionKeys();
@@ -36,6 +36,7 @@ public class HiveSplit
     private final String path;
     private final long start;
     private final long length;
+    private final long fileModifiedTime;
     private final Properties schema;
     private final List<HivePartitionKey> partitionKeys;
     private final List<HostAddress> addresses;
@@ -45,6 +46,7 @@ public class HiveSplit
     private final ConnectorSession session;
     private final TupleDomain<HiveColumnHandle> effectivePredicate;
     private final boolean forceLocalScheduling;
+    private final int bucket;
 
     @JsonCreator
     public HiveSplit(
@@ -55,12 +57,14 @@ public class HiveSplit
             @JsonProperty("path") String path,
             @JsonProperty("start") long start,
             @JsonProperty("length") long length,
+            @JsonProperty("fileModifiedTime") long fileModifiedTime,
             @JsonProperty("schema") Properties schema,
             @JsonProperty("partitionKeys") List<HivePartitionKey> partitionKeys,
             @JsonProperty("addresses") List<HostAddress> addresses,
             @JsonProperty("forceLocalScheduling") boolean forceLocalScheduling,
             @JsonProperty("session") ConnectorSession session,
-            @JsonProperty("effectivePredicate") TupleDomain<HiveColumnHandle> effectivePredicate)
+            @JsonProperty("effectivePredicate") TupleDomain<HiveColumnHandle> effectivePredicate,
+            @JsonProperty("bucket") int bucket)
     {
         checkNotNull(clientId, "clientId is null");
         checkArgument(start >= 0, "start must be positive");
@@ -73,6 +77,7 @@ public class HiveSplit
         checkNotNull(partitionKeys, "partitionKeys is null");
         checkNotNull(addresses, "addresses is null");
         checkNotNull(effectivePredicate, "tupleDomain is null");
+        checkArgument(bucket >= -1, "bucket is negative");
 
         this.clientId = clientId;
         this.database = database;
@@ -81,12 +86,14 @@ public class HiveSplit
         this.path = path;
         this.start = start;
         this.length = length;
+        this.fileModifiedTime = fileModifiedTime;
         this.schema = schema;
         this.partitionKeys = ImmutableList.copyOf(partitionKeys);
         this.addresses = ImmutableList.copyOf(addresses);
         this.forceLocalScheduling = forceLocalScheduling;
         this.session = session;
         this.effectivePredicate = effectivePredicate;
+        this.bucket = bucket;
     }
 
     @JsonProperty
@@ -131,6 +138,12 @@ public class HiveSplit
         return length;
     }
 
+    @JsonProperty
+    public long getFileModifiedTime()
+    {
+        return fileModifiedTime;
+    }
+
     @JsonProperty
     public Properties getSchema()
     {
@@ -168,6 +181,20 @@ public class HiveSplit
         return forceLocalScheduling;
     }
 
+    @JsonProperty
+    @Override
+    public int getBucket()
+    {
+        return bucket;
+    }
+
+    @Override
+    public String getDataIdentifier()
+    {
+        // files are replaced rather than modified in place, which changes their modification time
+        return path + ":" + fileModifiedTime + ":" + start + ":" + length;
+    }
+
     @Override
     public boolean isRemotelyAccessible()
     {
@@ -187,6 +214,7 @@ public class HiveSplit
                 .put("forceLocalScheduling", forceLocalScheduling)
                 .put("partitionName", partitionName)
                 .put("effectivePredicate", effectivePredicate)
+                .put("bucket", bucket)
                 .build();
     }
 
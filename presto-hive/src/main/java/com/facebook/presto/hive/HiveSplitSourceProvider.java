@@ -70,6 +70,7 @@ import java.util.concurrent.atomic.AtomicReference;
 
 import static com.facebook.presto.hadoop.HadoopFileStatus.isFile;
 import static com.facebook.presto.hive.HiveBucketing.HiveBucket;
+import static com.facebook.presto.hive.HiveBucketing.isBucketed;
 import static com.facebook.presto.hive.HiveErrorCode.HIVE_FILE_NOT_FOUND;
 import static com.facebook.presto.hive.HiveErrorCode.HIVE_UNKNOWN_ERROR;
 import static com.facebook.presto.hive.HiveType.getSupportedHiveType;
@@ -222,7 +223,8 @@ class HiveSplitSourceProvider
                                 partitionKeys,
                                 false,
                                 session,
-                                effectivePredicate));
+                                effectivePredicate,
+                                -1));
                     }
                     continue;
                 }
@@ -246,7 +248,34 @@ class HiveSplitSourceProvider
                                 partitionKeys,
                                 splittable,
                                 session,
-                                effectivePredicate));
+                                effectivePredicate,
+                                bucket.get().getBucketNumber()));
+
+                        continue;
+                    }
+                }
+                else if (isBucketed(table)) {
+                    // tag the splits with their bucket so the engine can co-locate joins on the bucket columns
+                    Optional<List<FileStatus>> bucketFiles = getBucketFiles(table.getSd().getNumBuckets(), fs, path);
+                    if (bucketFiles.isPresent()) {
+                        for (int bucketNumber = 0; bucketNumber < bucketFiles.get().size(); bucketNumber++) {
+                            FileStatus file = bucketFiles.get().get(bucketNumber);
+                            BlockLocation[] blockLocations = fs.getFileBlockLocations(file, 0, file.getLen());
+                            boolean splittable = isSplittable(inputFormat, fs, file.getPath());
+
+                            hiveSplitSource.addToQueue(createHiveSplits(
+                                    partitionName,
+                                    file,
+                                    blockLocations,
+                                    0,
+                                    file.getLen(),
+                                    schema,
+                                    partitionKeys,
+                                    splittable,
+                                    session,
+                                    effectivePredicate,
+                                    bucketNumber));
+                        }
 
                         continue;
                     }
@@ -281,7 +310,8 @@ class HiveSplitSourceProvider
                                     partitionKeys,
                                     splittable,
                                     session,
-                                    effectivePredicate));
+                                    effectivePredicate,
+                                    -1));
                         }
                         catch (IOException e) {
                             hiveSplitSource.fail(e);
@@ -336,10 +366,24 @@ class HiveSplitSourceProvider
     }
 
     private static Optional<FileStatus> getBucketFile(HiveBucket bucket, FileSystem fs, Path path)
+    {
+        Optional<List<FileStatus>> bucketFiles = getBucketFiles(bucket.getBucketCount(), fs, path);
+        if (!bucketFiles.isPresent()) {
+            return Optional.empty();
+        }
+        return Optional.of(bucketFiles.get().get(bucket.getBucketNumber()));
+    }
+
+    /**
+     * Returns the files of the partition ordered by bucket number, or empty
+     * if the partition does not contain exactly one file per bucket.
+     */
+    @VisibleForTesting
+    static Optional<List<FileStatus>> getBucketFiles(int bucketCount, FileSystem fs, Path path)
     {
         FileStatus[] statuses = listStatus(fs, path);
 
-        if (statuses.length != bucket.getBucketCount()) {
+        if (statuses.length != bucketCount) {
             return Optional.empty();
         }
 
@@ -357,8 +401,11 @@ class HiveSplitSourceProvider
         // Hive sorts the paths as strings lexicographically
         Collections.sort(paths);
 
-        String pathString = paths.get(bucket.getBucketNumber());
-        return Optional.of(map.get(pathString));
+        ImmutableList.Builder<FileStatus> files = ImmutableList.builder();
+        for (String pathString : paths) {
+            files.add(map.get(pathString));
+        }
+        return Optional.of(files.build());
     }
 
     private static FileStatus[] listStatus(FileSystem fs, Path path)
@@ -381,7 +428,8 @@ class HiveSplitSourceProvider
             List<HivePartitionKey> partitionKeys,
             boolean splittable,
             ConnectorSession session,
-            TupleDomain<HiveColumnHandle> effectivePredicate)
+            TupleDomain<HiveColumnHandle> effectivePredicate,
+            int bucket)
             throws IOException
     {
         ImmutableList.Builder<HiveSplit> builder = ImmutableList.builder();
@@ -416,12 +464,14 @@ class HiveSplitSourceProvider
                             file.getPath().toString(),
                             blockLocation.getOffset() + chunkOffset,
                             chunkLength,
+                            file.getModificationTime(),
                             schema,
                             partitionKeys,
                             addresses,
                             forceLocalScheduling,
                             session,
-                            effectivePredicate));
+                            effectivePredicate,
+                            bucket));
 
                     chunkOffset += chunkLength;
                     remainingInitialSplits--;
@@ -443,12 +493,14 @@ class HiveSplitSourceProvider
                     file.getPath().toString(),
                     start,
                     length,
+                    file.getModificationTime(),
                     schema,
                     partitionKeys,
                     addresses,
                     forceLocalScheduling,
                     session,
-                    effectivePredicate));
+                    effectivePredicate,
+                    bucket));
         }
         return builder.build();
     }
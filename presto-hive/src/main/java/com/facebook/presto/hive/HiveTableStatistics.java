@@ -0,0 +1,271 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.hive;
+
+import com.facebook.presto.hive.metastore.HiveMetastore;
+import com.facebook.presto.spi.ColumnStatistics;
+import com.facebook.presto.spi.ConnectorColumnHandle;
+import com.facebook.presto.spi.SchemaTableName;
+import com.facebook.presto.spi.SerializableNativeValue;
+import com.facebook.presto.spi.TableNotFoundException;
+import com.facebook.presto.spi.TableStatistics;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spi.type.TypeManager;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.apache.hadoop.hive.metastore.api.BooleanColumnStatsData;
+import org.apache.hadoop.hive.metastore.api.ColumnStatisticsData;
+import org.apache.hadoop.hive.metastore.api.ColumnStatisticsObj;
+import org.apache.hadoop.hive.metastore.api.DoubleColumnStatsData;
+import org.apache.hadoop.hive.metastore.api.LongColumnStatsData;
+import org.apache.hadoop.hive.metastore.api.NoSuchObjectException;
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.hadoop.hive.metastore.api.StringColumnStatsData;
+import org.apache.hadoop.hive.metastore.api.Table;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.facebook.presto.hive.HivePartition.UNPARTITIONED_ID;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
+
+/**
+ * Computes table statistics from the statistics Hive keeps in the metastore:
+ * the row count of tables and partitions, and the column statistics gathered by
+ * ANALYZE TABLE ... COMPUTE STATISTICS FOR COLUMNS.
+ */
+final class HiveTableStatistics
+{
+    private static final String NUM_ROWS = "numRows";
+
+    // column statistics are fetched one column at a time, so only look at a sample of the partitions;
+    // the sample is good enough for the number of distinct values and nulls, but not for the range
+    private static final int MAX_SAMPLED_PARTITIONS = 8;
+
+    private HiveTableStatistics() {}
+
+    public static TableStatistics getTableStatistics(HiveMetastore metastore, TypeManager typeManager, Table table, List<HiveColumnHandle> columns, List<HivePartition> partitions)
+    {
+        if (partitions.isEmpty()) {
+            return new TableStatistics(0, ImmutableMap.of());
+        }
+
+        String databaseName = table.getDbName();
+        String tableName = table.getTableName();
+
+        if (partitions.size() == 1 && partitions.get(0).getPartitionId().equals(UNPARTITIONED_ID)) {
+            double rowCount = getRowCount(table.getParameters());
+            ImmutableMap.Builder<ConnectorColumnHandle, ColumnStatistics> columnStatistics = ImmutableMap.builder();
+            for (HiveColumnHandle column : columns) {
+                ColumnStatisticsBuilder builder = new ColumnStatisticsBuilder(typeManager.getType(column.getTypeSignature()), false);
+                builder.add(metastore.getTableColumnStatistics(databaseName, tableName, column.getName()), rowCount);
+                columnStatistics.put(column, builder.build());
+            }
+            return new TableStatistics(rowCount, columnStatistics.build());
+        }
+
+        List<String> partitionNames = ImmutableList.copyOf(partitions.stream().map(HivePartition::getPartitionId).iterator());
+        Map<String, Partition> metastorePartitions;
+        try {
+            metastorePartitions = metastore.getPartitionsByNames(databaseName, tableName, partitionNames);
+        }
+        catch (NoSuchObjectException e) {
+            throw new TableNotFoundException(new SchemaTableName(databaseName, tableName));
+        }
+
+        // extrapolate the row count of the partitions without statistics from the ones with statistics
+        double knownRowCount = 0;
+        int knownPartitions = 0;
+        for (Partition partition : metastorePartitions.values()) {
+            double partitionRowCount = getRowCount(partition.getParameters());
+            if (!Double.isNaN(partitionRowCount)) {
+                knownRowCount += partitionRowCount;
+                knownPartitions++;
+            }
+        }
+        double rowCount = knownPartitions == 0 ? Double.NaN : knownRowCount * partitions.size() / knownPartitions;
+
+        ImmutableMap.Builder<ConnectorColumnHandle, ColumnStatistics> columnStatistics = ImmutableMap.builder();
+        for (HiveColumnHandle column : columns) {
+            if (column.isPartitionKey()) {
+                columnStatistics.put(column, getPartitionKeyStatistics(column, partitions));
+                continue;
+            }
+
+            int sampleSize = Math.min(partitionNames.size(), MAX_SAMPLED_PARTITIONS);
+            ColumnStatisticsBuilder builder = new ColumnStatisticsBuilder(typeManager.getType(column.getTypeSignature()), sampleSize < partitionNames.size());
+            for (int i = 0; i < sampleSize; i++) {
+                String partitionName = partitionNames.get(i * partitionNames.size() / sampleSize);
+                Partition partition = metastorePartitions.get(partitionName);
+                double partitionRowCount = partition == null ? Double.NaN : getRowCount(partition.getParameters());
+                builder.add(metastore.getPartitionColumnStatistics(databaseName, tableName, partitionName, column.getName()), partitionRowCount);
+            }
+            columnStatistics.put(column, builder.build());
+        }
+        return new TableStatistics(rowCount, columnStatistics.build());
+    }
+
+    private static ColumnStatistics getPartitionKeyStatistics(HiveColumnHandle column, List<HivePartition> partitions)
+    {
+        Set<Object> values = new HashSet<>();
+        int nulls = 0;
+        Comparable<?> min = null;
+        Comparable<?> max = null;
+        for (HivePartition partition : partitions) {
+            SerializableNativeValue key = partition.getKeys().get(column);
+            Comparable<?> value = key == null ? null : key.getValue();
+            if (value == null) {
+                nulls++;
+                continue;
+            }
+            values.add(value);
+            if (min == null || compare(value, min) < 0) {
+                min = value;
+            }
+            if (max == null || compare(value, max) > 0) {
+                max = value;
+            }
+        }
+        return new ColumnStatistics(values.size(), ((double) nulls) / partitions.size(), min, max);
+    }
+
+    private static double getRowCount(Map<String, String> parameters)
+    {
+        if (parameters == null || parameters.get(NUM_ROWS) == null) {
+            return Double.NaN;
+        }
+        try {
+            long rowCount = Long.parseLong(parameters.get(NUM_ROWS));
+            // Hive uses -1 for tables that have not been analyzed
+            return rowCount < 0 ? Double.NaN : rowCount;
+        }
+        catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compare(Comparable<?> left, Comparable<?> right)
+    {
+        return ((Comparable<Object>) left).compareTo(right);
+    }
+
+    /**
+     * Merges the column statistics of a sample of partitions: the number of distinct values
+     * is the largest of the sample and the fraction of nulls is weighted by row count. The
+     * range is only known if every partition is part of the sample and has a range.
+     */
+    private static class ColumnStatisticsBuilder
+    {
+        private final Type type;
+        private double distinctValuesCount = Double.NaN;
+        private double nulls;
+        private double rows;
+        private boolean nullsKnown = true;
+        private boolean rangeKnown;
+        private Comparable<?> min;
+        private Comparable<?> max;
+
+        public ColumnStatisticsBuilder(Type type, boolean sampled)
+        {
+            this.type = type;
+            this.rangeKnown = !sampled && (type.equals(BIGINT) || type.equals(DOUBLE));
+        }
+
+        public void add(Optional<ColumnStatisticsObj> statistics, double rowCount)
+        {
+            if (!statistics.isPresent() || statistics.get().getStatsData() == null) {
+                nullsKnown = false;
+                rangeKnown = false;
+                return;
+            }
+
+            ColumnStatisticsData data = statistics.get().getStatsData();
+            long distinct;
+            long numNulls;
+            if (data.isSetLongStats()) {
+                LongColumnStatsData longStats = data.getLongStats();
+                distinct = longStats.getNumDVs();
+                numNulls = longStats.getNumNulls();
+                if (type.equals(BIGINT) && longStats.isSetLowValue() && longStats.isSetHighValue()) {
+                    addRange(longStats.getLowValue(), longStats.getHighValue());
+                }
+                else {
+                    rangeKnown = false;
+                }
+            }
+            else if (data.isSetDoubleStats()) {
+                DoubleColumnStatsData doubleStats = data.getDoubleStats();
+                distinct = doubleStats.getNumDVs();
+                numNulls = doubleStats.getNumNulls();
+                if (type.equals(DOUBLE) && doubleStats.isSetLowValue() && doubleStats.isSetHighValue()) {
+                    addRange(doubleStats.getLowValue(), doubleStats.getHighValue());
+                }
+                else {
+                    rangeKnown = false;
+                }
+            }
+            else if (data.isSetStringStats()) {
+                StringColumnStatsData stringStats = data.getStringStats();
+                distinct = stringStats.getNumDVs();
+                numNulls = stringStats.getNumNulls();
+            }
+            else if (data.isSetBooleanStats()) {
+                BooleanColumnStatsData booleanStats = data.getBooleanStats();
+                distinct = (booleanStats.getNumTrues() > 0 ? 1 : 0) + (booleanStats.getNumFalses() > 0 ? 1 : 0);
+                numNulls = booleanStats.getNumNulls();
+            }
+            else {
+                nullsKnown = false;
+                rangeKnown = false;
+                return;
+            }
+
+            distinctValuesCount = Double.isNaN(distinctValuesCount) ? distinct : Math.max(distinctValuesCount, distinct);
+            if (Double.isNaN(rowCount)) {
+                nullsKnown = false;
+            }
+            else {
+                nulls += numNulls;
+                rows += rowCount;
+            }
+        }
+
+        private void addRange(Comparable<?> low, Comparable<?> high)
+        {
+            if (min == null || compare(low, min) < 0) {
+                min = low;
+            }
+            if (max == null || compare(high, max) > 0) {
+                max = high;
+            }
+        }
+
+        public ColumnStatistics build()
+        {
+            double nullsFraction = Double.NaN;
+            if (nullsKnown && rows > 0) {
+                nullsFraction = Math.min(nulls / rows, 1);
+            }
+            if (!rangeKnown) {
+                return new ColumnStatistics(distinctValuesCount, nullsFraction, null, null);
+            }
+            return new ColumnStatistics(distinctValuesCount, nullsFraction, min, max);
+        }
+    }
+}
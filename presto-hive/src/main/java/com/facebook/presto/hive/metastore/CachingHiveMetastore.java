@@ -35,7 +35,10 @@ import org.apache.hadoop.hive.common.FileUtils;
 import org.apache.hadoop.hive.metastore.TableType;
 import org.apache.hadoop.hive.metastore.Warehouse;
 import org.apache.hadoop.hive.metastore.api.AlreadyExistsException;
+import org.apache.hadoop.hive.metastore.api.ColumnStatistics;
+import org.apache.hadoop.hive.metastore.api.ColumnStatisticsObj;
 import org.apache.hadoop.hive.metastore.api.Database;
+import org.apache.hadoop.hive.metastore.api.InvalidInputException;
 import org.apache.hadoop.hive.metastore.api.InvalidObjectException;
 import org.apache.hadoop.hive.metastore.api.InvalidOperationException;
 import org.apache.hadoop.hive.metastore.api.MetaException;
@@ -55,6 +58,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -88,6 +92,7 @@ public class CachingHiveMetastore
     private final LoadingCache<HiveTableName, Table> tableCache;
     private final LoadingCache<HivePartitionName, Partition> partitionCache;
     private final LoadingCache<PartitionFilter, List<String>> partitionFilterCache;
+    private final LoadingCache<HiveColumnName, Optional<ColumnStatisticsObj>> columnStatisticsCache;
 
     @Inject
     public CachingHiveMetastore(HiveCluster hiveCluster, @ForHiveMetastore ExecutorService executor, HiveClientConfig hiveClientConfig)
@@ -215,6 +220,19 @@ public class CachingHiveMetastore
                         return loadPartitionsByNames(partitionNames);
                     }
                 }, executor));
+
+        columnStatisticsCache = CacheBuilder.newBuilder()
+                .expireAfterWrite(expiresAfterWriteMillis, MILLISECONDS)
+                .refreshAfterWrite(refreshMills, MILLISECONDS)
+                .build(asyncReloading(new CacheLoader<HiveColumnName, Optional<ColumnStatisticsObj>>()
+                {
+                    @Override
+                    public Optional<ColumnStatisticsObj> load(HiveColumnName columnName)
+                            throws Exception
+                    {
+                        return loadColumnStatistics(columnName);
+                    }
+                }, executor));
     }
 
     @Managed
@@ -236,6 +254,7 @@ public class CachingHiveMetastore
         tableCache.invalidateAll();
         partitionCache.invalidateAll();
         partitionFilterCache.invalidateAll();
+        columnStatisticsCache.invalidateAll();
     }
 
     private static <K, V, E extends Exception> V get(LoadingCache<K, V> cache, K key, Class<E> exceptionClass)
@@ -657,6 +676,53 @@ public class CachingHiveMetastore
         }
     }
 
+    @Override
+    public Optional<ColumnStatisticsObj> getTableColumnStatistics(String databaseName, String tableName, String columnName)
+    {
+        return get(columnStatisticsCache, HiveColumnName.tableColumn(databaseName, tableName, columnName), RuntimeException.class);
+    }
+
+    @Override
+    public Optional<ColumnStatisticsObj> getPartitionColumnStatistics(String databaseName, String tableName, String partitionName, String columnName)
+    {
+        return get(columnStatisticsCache, HiveColumnName.partitionColumn(databaseName, tableName, partitionName, columnName), RuntimeException.class);
+    }
+
+    private Optional<ColumnStatisticsObj> loadColumnStatistics(final HiveColumnName columnName)
+            throws Exception
+    {
+        final HiveTableName hiveTableName = columnName.getHiveTableName();
+        try {
+            boolean partition = columnName.getPartitionName().isPresent();
+            HiveMetastoreApiStats apiStats = partition ? stats.getGetPartitionColumnStatistics() : stats.getGetTableColumnStatistics();
+            ColumnStatistics statistics = retry()
+                    .stopOn(NoSuchObjectException.class, InvalidInputException.class)
+                    .stopOnIllegalExceptions()
+                    .run(partition ? "getPartitionColumnStatistics" : "getTableColumnStatistics", apiStats.wrap(() -> {
+                        try (HiveMetastoreClient client = clientProvider.createMetastoreClient()) {
+                            if (columnName.getPartitionName().isPresent()) {
+                                return client.get_partition_column_statistics(hiveTableName.getDatabaseName(),
+                                        hiveTableName.getTableName(),
+                                        columnName.getPartitionName().get(),
+                                        columnName.getColumnName());
+                            }
+                            return client.get_table_column_statistics(hiveTableName.getDatabaseName(), hiveTableName.getTableName(), columnName.getColumnName());
+                        }
+                    }));
+            if (statistics == null || statistics.getStatsObjSize() == 0) {
+                return Optional.empty();
+            }
+            return Optional.of(statistics.getStatsObj().get(0));
+        }
+        catch (NoSuchObjectException | InvalidInputException e) {
+            // statistics have not been computed for the column
+            return Optional.empty();
+        }
+        catch (TException e) {
+            throw new PrestoException(HIVE_METASTORE_ERROR, e);
+        }
+    }
+
     private static class HiveTableName
     {
         private final String databaseName;
@@ -827,4 +893,75 @@ public class CachingHiveMetastore
             return Objects.hash(hiveTableName, parts);
         }
     }
+
+    private static class HiveColumnName
+    {
+        private final HiveTableName hiveTableName;
+        private final Optional<String> partitionName;
+        private final String columnName;
+
+        private HiveColumnName(HiveTableName hiveTableName, Optional<String> partitionName, String columnName)
+        {
+            this.hiveTableName = hiveTableName;
+            this.partitionName = partitionName;
+            this.columnName = columnName;
+        }
+
+        public static HiveColumnName tableColumn(String databaseName, String tableName, String columnName)
+        {
+            return new HiveColumnName(HiveTableName.table(databaseName, tableName), Optional.empty(), columnName);
+        }
+
+        public static HiveColumnName partitionColumn(String databaseName, String tableName, String partitionName, String columnName)
+        {
+            return new HiveColumnName(HiveTableName.table(databaseName, tableName), Optional.of(partitionName), columnName);
+        }
+
+        public HiveTableName getHiveTableName()
+        {
+            return hiveTableName;
+        }
+
+        public Optional<String> getPartitionName()
+        {
+            return partitionName;
+        }
+
+        public String getColumnName()
+        {
+            return columnName;
+        }
+
+        @Override
+        public String toString()
+        {
+            return toStringHelper(this)
+                    .add("hiveTableName", hiveTableName)
+                    .add("partitionName", partitionName)
+                    .add("columnName", columnName)
+                    .toString();
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+
+            HiveColumnName other = (HiveColumnName) o;
+            return Objects.equals(hiveTableName, other.hiveTableName) &&
+                    Objects.equals(partitionName, other.partitionName) &&
+                    Objects.equals(columnName, other.columnName);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(hiveTableName, partitionName, columnName);
+        }
+    }
 }
@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.hive.metastore;
 
+import org.apache.hadoop.hive.metastore.api.ColumnStatisticsObj;
 import org.apache.hadoop.hive.metastore.api.Database;
 import org.apache.hadoop.hive.metastore.api.NoSuchObjectException;
 import org.apache.hadoop.hive.metastore.api.Partition;
@@ -21,6 +22,7 @@ import org.weakref.jmx.Managed;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 public interface HiveMetastore
 {
@@ -55,4 +57,14 @@ public interface HiveMetastore
 
     Table getTable(String databaseName, String tableName)
             throws NoSuchObjectException;
+
+    /**
+     * Returns the statistics of a column of an unpartitioned table, if they have been computed.
+     */
+    Optional<ColumnStatisticsObj> getTableColumnStatistics(String databaseName, String tableName, String columnName);
+
+    /**
+     * Returns the statistics of a column of a partition, if they have been computed.
+     */
+    Optional<ColumnStatisticsObj> getPartitionColumnStatistics(String databaseName, String tableName, String partitionName, String columnName);
 }
@@ -18,6 +18,7 @@ import com.facebook.presto.spi.SchemaTableName;
 import com.facebook.presto.spi.TableNotFoundException;
 import com.google.common.collect.ImmutableList;
 import org.apache.hadoop.hive.metastore.TableType;
+import org.apache.hadoop.hive.metastore.api.ColumnStatisticsObj;
 import org.apache.hadoop.hive.metastore.api.Database;
 import org.apache.hadoop.hive.metastore.api.NoSuchObjectException;
 import org.apache.hadoop.hive.metastore.api.Partition;
@@ -28,6 +29,7 @@ import java.io.File;
 import java.net.URI;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -172,6 +174,18 @@ public class InMemoryHiveMetastore
         return table;
     }
 
+    @Override
+    public Optional<ColumnStatisticsObj> getTableColumnStatistics(String databaseName, String tableName, String columnName)
+    {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<ColumnStatisticsObj> getPartitionColumnStatistics(String databaseName, String tableName, String partitionName, String columnName)
+    {
+        return Optional.empty();
+    }
+
     @Override
     public void flushCache()
     {
@@ -32,6 +32,7 @@ import com.facebook.presto.spi.block.BlockBuilderStatus;
 import com.facebook.presto.spi.block.LazyBlockLoader;
 import com.facebook.presto.spi.block.LazyFixedWidthBlock;
 import com.facebook.presto.spi.block.LazySliceArrayBlock;
+import com.facebook.presto.spi.block.RunLengthEncodedBlock;
 import com.facebook.presto.spi.type.FixedWidthType;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.spi.type.TypeManager;
@@ -141,65 +142,49 @@ public class OrcPageSource
 
                 BlockBuilder blockBuilder;
                 if (type instanceof FixedWidthType) {
-                    blockBuilder = type.createBlockBuilder(new BlockBuilderStatus(), MAX_VECTOR_LENGTH);
+                    blockBuilder = type.createBlockBuilder(new BlockBuilderStatus(), 1);
                 }
                 else {
-                    blockBuilder = type.createBlockBuilder(new BlockBuilderStatus(), MAX_VECTOR_LENGTH, bytes.length);
+                    blockBuilder = type.createBlockBuilder(new BlockBuilderStatus(), 1, bytes.length);
                 }
 
                 if (HiveUtil.isHiveNull(bytes)) {
-                    for (int i = 0; i < MAX_VECTOR_LENGTH; i++) {
-                        blockBuilder.appendNull();
-                    }
+                    blockBuilder.appendNull();
                 }
                 else if (type.equals(BOOLEAN)) {
                     boolean value = booleanPartitionKey(partitionKey.getValue(), name);
-                    for (int i = 0; i < MAX_VECTOR_LENGTH; i++) {
-                        BOOLEAN.writeBoolean(blockBuilder, value);
-                    }
+                    BOOLEAN.writeBoolean(blockBuilder, value);
                 }
                 else if (type.equals(BIGINT)) {
                     long value = bigintPartitionKey(partitionKey.getValue(), name);
-                    for (int i = 0; i < MAX_VECTOR_LENGTH; i++) {
-                        BIGINT.writeLong(blockBuilder, value);
-                    }
+                    BIGINT.writeLong(blockBuilder, value);
                 }
                 else if (type.equals(DOUBLE)) {
                     double value = doublePartitionKey(partitionKey.getValue(), name);
-                    for (int i = 0; i < MAX_VECTOR_LENGTH; i++) {
-                        DOUBLE.writeDouble(blockBuilder, value);
-                    }
+                    DOUBLE.writeDouble(blockBuilder, value);
                 }
                 else if (type.equals(VARCHAR)) {
                     Slice value = Slices.wrappedBuffer(bytes);
-                    for (int i = 0; i < MAX_VECTOR_LENGTH; i++) {
-                        VARCHAR.writeSlice(blockBuilder, value);
-                    }
+                    VARCHAR.writeSlice(blockBuilder, value);
                 }
                 else if (type.equals(DATE)) {
                     long value = datePartitionKey(partitionKey.getValue(), name);
-                    for (int i = 0; i < MAX_VECTOR_LENGTH; i++) {
-                        DATE.writeLong(blockBuilder, value);
-                    }
+                    DATE.writeLong(blockBuilder, value);
                 }
                 else if (type.equals(TIMESTAMP)) {
                     long value = timestampPartitionKey(partitionKey.getValue(), hiveStorageTimeZone, name);
-                    for (int i = 0; i < MAX_VECTOR_LENGTH; i++) {
-                        TIMESTAMP.writeLong(blockBuilder, value);
-                    }
+                    TIMESTAMP.writeLong(blockBuilder, value);
                 }
                 else {
                     throw new PrestoException(NOT_SUPPORTED, format("Unsupported column type %s for partition key: %s", type.getDisplayName(), name));
                 }
 
-                constantBlocks[columnIndex] = blockBuilder.build();
+                constantBlocks[columnIndex] = new RunLengthEncodedBlock(blockBuilder.build(), MAX_VECTOR_LENGTH);
             }
             else if (!recordReader.isColumnPresent(column.getHiveColumnIndex())) {
-                BlockBuilder blockBuilder = type.createBlockBuilder(new BlockBuilderStatus(), MAX_VECTOR_LENGTH, NULL_ENTRY_SIZE);
-                for (int i = 0; i < MAX_VECTOR_LENGTH; i++) {
-                    blockBuilder.appendNull();
-                }
-                constantBlocks[columnIndex] = blockBuilder.build();
+                BlockBuilder blockBuilder = type.createBlockBuilder(new BlockBuilderStatus(), 1, NULL_ENTRY_SIZE);
+                blockBuilder.appendNull();
+                constantBlocks[columnIndex] = new RunLengthEncodedBlock(blockBuilder.build(), MAX_VECTOR_LENGTH);
             }
         }
         types = typesBuilder.build();
@@ -241,6 +226,8 @@ public class OrcPageSource
                 return null;
             }
 
+            // the ORC stream readers decode complete vectors, so these loaders load the whole batch
+            // even when only the positions that pass the filter are read
             Block[] blocks = new Block[hiveColumnIndexes.length];
             for (int fieldId = 0; fieldId < blocks.length; fieldId++) {
                 Type type = types.get(fieldId);
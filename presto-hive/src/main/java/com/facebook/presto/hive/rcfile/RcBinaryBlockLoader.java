@@ -18,6 +18,7 @@ import com.facebook.presto.hive.rcfile.RcFilePageSource.RcFileColumnsBatch;
 import com.facebook.presto.spi.block.LazyBlockLoader;
 import com.facebook.presto.spi.block.LazyFixedWidthBlock;
 import com.facebook.presto.spi.block.LazySliceArrayBlock;
+import com.facebook.presto.spi.block.SelectiveLazyBlockLoader;
 import com.google.common.base.Throwables;
 import io.airlift.slice.ByteArrays;
 import io.airlift.slice.Slice;
@@ -46,6 +47,7 @@ import static com.facebook.presto.hive.HiveType.HIVE_SHORT;
 import static com.facebook.presto.hive.HiveType.HIVE_STRING;
 import static com.facebook.presto.hive.HiveType.HIVE_TIMESTAMP;
 import static com.facebook.presto.hive.HiveUtil.isStructuralType;
+import static com.facebook.presto.hive.rcfile.RcFileBlockLoader.allPositions;
 import static com.facebook.presto.hive.util.SerDeUtils.getBlockSlice;
 import static com.google.common.base.Preconditions.checkState;
 import static io.airlift.slice.SizeOf.SIZE_OF_INT;
@@ -106,11 +108,13 @@ public class RcBinaryBlockLoader
     }
 
     private static final class LazyBooleanBlockLoader
-            implements LazyBlockLoader<LazyFixedWidthBlock>
+            implements SelectiveLazyBlockLoader<LazyFixedWidthBlock>
     {
         private final RcFileColumnsBatch batch;
         private final int fieldId;
         private boolean loaded;
+        private boolean[] isNull;
+        private boolean[] vector;
 
         public LazyBooleanBlockLoader(RcFileColumnsBatch batch, int fieldId)
         {
@@ -124,16 +128,25 @@ public class RcBinaryBlockLoader
             if (loaded) {
                 return;
             }
+            load(block, allPositions(block.getPositionCount()), block.getPositionCount());
+            loaded = true;
+        }
 
+        @Override
+        public void load(LazyFixedWidthBlock block, int[] positions, int positionCount)
+        {
             try {
                 BytesRefArrayWritable columnBatch = batch.getColumn(fieldId);
                 int positionInBatch = batch.getPositionInBatch();
 
-                int positionCount = block.getPositionCount();
-                boolean[] isNull = new boolean[positionCount];
-                boolean[] vector = new boolean[positionCount];
+                int batchSize = block.getPositionCount();
+                if (vector == null) {
+                    isNull = new boolean[batchSize];
+                    vector = new boolean[batchSize];
+                }
 
-                for (int i = 0; i < positionCount; i++) {
+                for (int index = 0; index < positionCount; index++) {
+                    int i = positions[index];
                     BytesRefWritable writable = columnBatch.unCheckedGet(i + positionInBatch);
 
                     int length = writable.getLength();
@@ -148,9 +161,7 @@ public class RcBinaryBlockLoader
                 }
 
                 block.setNullVector(isNull);
-                block.setRawSlice(wrappedBooleanArray(vector, 0, positionCount));
-
-                loaded = true;
+                block.setRawSlice(wrappedBooleanArray(vector, 0, batchSize));
             }
             catch (IOException e) {
                 throw Throwables.propagate(e);
@@ -159,11 +170,13 @@ public class RcBinaryBlockLoader
     }
 
     private static final class LazyByteBlockLoader
-            implements LazyBlockLoader<LazyFixedWidthBlock>
+            implements SelectiveLazyBlockLoader<LazyFixedWidthBlock>
     {
         private final RcFileColumnsBatch batch;
         private final int fieldId;
         private boolean loaded;
+        private boolean[] isNull;
+        private long[] vector;
 
         private LazyByteBlockLoader(RcFileColumnsBatch batch, int fieldId)
         {
@@ -177,16 +190,25 @@ public class RcBinaryBlockLoader
             if (loaded) {
                 return;
             }
+            load(block, allPositions(block.getPositionCount()), block.getPositionCount());
+            loaded = true;
+        }
 
+        @Override
+        public void load(LazyFixedWidthBlock block, int[] positions, int positionCount)
+        {
             try {
                 BytesRefArrayWritable columnBatch = batch.getColumn(fieldId);
                 int positionInBatch = batch.getPositionInBatch();
 
                 int batchSize = block.getPositionCount();
-                boolean[] isNull = new boolean[batchSize];
-                long[] vector = new long[batchSize];
+                if (vector == null) {
+                    isNull = new boolean[batchSize];
+                    vector = new long[batchSize];
+                }
 
-                for (int i = 0; i < batchSize; i++) {
+                for (int index = 0; index < positionCount; index++) {
+                    int i = positions[index];
                     BytesRefWritable writable = columnBatch.unCheckedGet(i + positionInBatch);
 
                     int length = writable.getLength();
@@ -202,8 +224,6 @@ public class RcBinaryBlockLoader
 
                 block.setNullVector(isNull);
                 block.setRawSlice(wrappedLongArray(vector));
-
-                loaded = true;
             }
             catch (IOException e) {
                 throw Throwables.propagate(e);
@@ -212,11 +232,13 @@ public class RcBinaryBlockLoader
     }
 
     private static final class LazyShortBlockLoader
-            implements LazyBlockLoader<LazyFixedWidthBlock>
+            implements SelectiveLazyBlockLoader<LazyFixedWidthBlock>
     {
         private final RcFileColumnsBatch batch;
         private final int fieldId;
         private boolean loaded;
+        private boolean[] isNull;
+        private long[] vector;
 
         private LazyShortBlockLoader(RcFileColumnsBatch batch, int fieldId)
         {
@@ -230,16 +252,25 @@ public class RcBinaryBlockLoader
             if (loaded) {
                 return;
             }
+            load(block, allPositions(block.getPositionCount()), block.getPositionCount());
+            loaded = true;
+        }
 
+        @Override
+        public void load(LazyFixedWidthBlock block, int[] positions, int positionCount)
+        {
             try {
                 BytesRefArrayWritable columnBatch = batch.getColumn(fieldId);
                 int positionInBatch = batch.getPositionInBatch();
 
                 int batchSize = block.getPositionCount();
-                boolean[] isNull = new boolean[batchSize];
-                long[] vector = new long[batchSize];
+                if (vector == null) {
+                    isNull = new boolean[batchSize];
+                    vector = new long[batchSize];
+                }
 
-                for (int i = 0; i < batchSize; i++) {
+                for (int index = 0; index < positionCount; index++) {
+                    int i = positions[index];
                     BytesRefWritable writable = columnBatch.unCheckedGet(i + positionInBatch);
 
                     int length = writable.getLength();
@@ -258,8 +289,6 @@ public class RcBinaryBlockLoader
 
                 block.setNullVector(isNull);
                 block.setRawSlice(wrappedLongArray(vector));
-
-                loaded = true;
             }
             catch (IOException e) {
                 throw Throwables.propagate(e);
@@ -268,11 +297,13 @@ public class RcBinaryBlockLoader
     }
 
     private static final class LazyIntBlockLoader
-            implements LazyBlockLoader<LazyFixedWidthBlock>
+            implements SelectiveLazyBlockLoader<LazyFixedWidthBlock>
     {
         private final RcFileColumnsBatch batch;
         private final int fieldId;
         private boolean loaded;
+        private boolean[] isNull;
+        private long[] vector;
 
         private LazyIntBlockLoader(RcFileColumnsBatch batch, int fieldId)
         {
@@ -286,16 +317,25 @@ public class RcBinaryBlockLoader
             if (loaded) {
                 return;
             }
+            load(block, allPositions(block.getPositionCount()), block.getPositionCount());
+            loaded = true;
+        }
 
+        @Override
+        public void load(LazyFixedWidthBlock block, int[] positions, int positionCount)
+        {
             try {
                 BytesRefArrayWritable columnBatch = batch.getColumn(fieldId);
                 int positionInBatch = batch.getPositionInBatch();
 
                 int batchSize = block.getPositionCount();
-                boolean[] isNull = new boolean[batchSize];
-                long[] vector = new long[batchSize];
+                if (vector == null) {
+                    isNull = new boolean[batchSize];
+                    vector = new long[batchSize];
+                }
 
-                for (int i = 0; i < batchSize; i++) {
+                for (int index = 0; index < positionCount; index++) {
+                    int i = positions[index];
                     BytesRefWritable writable = columnBatch.unCheckedGet(i + positionInBatch);
 
                     byte[] bytes = writable.getData();
@@ -314,8 +354,6 @@ public class RcBinaryBlockLoader
 
                 block.setNullVector(isNull);
                 block.setRawSlice(wrappedLongArray(vector));
-
-                loaded = true;
             }
             catch (IOException e) {
                 throw Throwables.propagate(e);
@@ -324,11 +362,13 @@ public class RcBinaryBlockLoader
     }
 
     private static final class LazyLongBlockLoader
-            implements LazyBlockLoader<LazyFixedWidthBlock>
+            implements SelectiveLazyBlockLoader<LazyFixedWidthBlock>
     {
         private final RcFileColumnsBatch batch;
         private final int fieldId;
         private boolean loaded;
+        private boolean[] isNull;
+        private long[] vector;
 
         private LazyLongBlockLoader(RcFileColumnsBatch batch, int fieldId)
         {
@@ -342,16 +382,25 @@ public class RcBinaryBlockLoader
             if (loaded) {
                 return;
             }
+            load(block, allPositions(block.getPositionCount()), block.getPositionCount());
+            loaded = true;
+        }
 
+        @Override
+        public void load(LazyFixedWidthBlock block, int[] positions, int positionCount)
+        {
             try {
                 BytesRefArrayWritable columnBatch = batch.getColumn(fieldId);
                 int positionInBatch = batch.getPositionInBatch();
 
                 int batchSize = block.getPositionCount();
-                boolean[] isNull = new boolean[batchSize];
-                long[] vector = new long[batchSize];
+                if (vector == null) {
+                    isNull = new boolean[batchSize];
+                    vector = new long[batchSize];
+                }
 
-                for (int i = 0; i < batchSize; i++) {
+                for (int index = 0; index < positionCount; index++) {
+                    int i = positions[index];
                     BytesRefWritable writable = columnBatch.unCheckedGet(i + positionInBatch);
 
                     byte[] bytes = writable.getData();
@@ -370,8 +419,6 @@ public class RcBinaryBlockLoader
 
                 block.setNullVector(isNull);
                 block.setRawSlice(wrappedLongArray(vector));
-
-                loaded = true;
             }
             catch (IOException e) {
                 throw Throwables.propagate(e);
@@ -381,11 +428,13 @@ public class RcBinaryBlockLoader
     }
 
     private static final class LazyDateBlockLoader
-            implements LazyBlockLoader<LazyFixedWidthBlock>
+            implements SelectiveLazyBlockLoader<LazyFixedWidthBlock>
     {
         private final RcFileColumnsBatch batch;
         private final int fieldId;
         private boolean loaded;
+        private boolean[] isNull;
+        private long[] vector;
 
         private LazyDateBlockLoader(RcFileColumnsBatch batch, int fieldId)
         {
@@ -399,16 +448,25 @@ public class RcBinaryBlockLoader
             if (loaded) {
                 return;
             }
+            load(block, allPositions(block.getPositionCount()), block.getPositionCount());
+            loaded = true;
+        }
 
+        @Override
+        public void load(LazyFixedWidthBlock block, int[] positions, int positionCount)
+        {
             try {
                 BytesRefArrayWritable columnBatch = batch.getColumn(fieldId);
                 int positionInBatch = batch.getPositionInBatch();
 
-                int positionCount = block.getPositionCount();
-                boolean[] isNull = new boolean[positionCount];
-                long[] vector = new long[positionCount];
+                int batchSize = block.getPositionCount();
+                if (vector == null) {
+                    isNull = new boolean[batchSize];
+                    vector = new long[batchSize];
+                }
 
-                for (int i = 0; i < positionCount; i++) {
+                for (int index = 0; index < positionCount; index++) {
+                    int i = positions[index];
                     BytesRefWritable writable = columnBatch.unCheckedGet(i + positionInBatch);
 
                     int length = writable.getLength();
@@ -425,8 +483,6 @@ public class RcBinaryBlockLoader
 
                 block.setNullVector(isNull);
                 block.setRawSlice(wrappedLongArray(vector));
-
-                loaded = true;
             }
             catch (IOException e) {
                 throw Throwables.propagate(e);
@@ -436,11 +492,13 @@ public class RcBinaryBlockLoader
     }
 
     private static final class LazyTimestampBlockLoader
-            implements LazyBlockLoader<LazyFixedWidthBlock>
+            implements SelectiveLazyBlockLoader<LazyFixedWidthBlock>
     {
         private final RcFileColumnsBatch batch;
         private final int fieldId;
         private boolean loaded;
+        private boolean[] isNull;
+        private long[] vector;
 
         private LazyTimestampBlockLoader(RcFileColumnsBatch batch, int fieldId)
         {
@@ -454,16 +512,25 @@ public class RcBinaryBlockLoader
             if (loaded) {
                 return;
             }
+            load(block, allPositions(block.getPositionCount()), block.getPositionCount());
+            loaded = true;
+        }
 
+        @Override
+        public void load(LazyFixedWidthBlock block, int[] positions, int positionCount)
+        {
             try {
                 BytesRefArrayWritable columnBatch = batch.getColumn(fieldId);
                 int positionInBatch = batch.getPositionInBatch();
 
                 int batchSize = block.getPositionCount();
-                boolean[] isNull = new boolean[batchSize];
-                long[] vector = new long[batchSize];
+                if (vector == null) {
+                    isNull = new boolean[batchSize];
+                    vector = new long[batchSize];
+                }
 
-                for (int i = 0; i < batchSize; i++) {
+                for (int index = 0; index < positionCount; index++) {
+                    int i = positions[index];
                     BytesRefWritable writable = columnBatch.unCheckedGet(i + positionInBatch);
 
                     int length = writable.getLength();
@@ -482,8 +549,6 @@ public class RcBinaryBlockLoader
 
                 block.setNullVector(isNull);
                 block.setRawSlice(wrappedLongArray(vector));
-
-                loaded = true;
             }
             catch (IOException e) {
                 throw Throwables.propagate(e);
@@ -492,11 +557,13 @@ public class RcBinaryBlockLoader
     }
 
     private static final class LazyFloatBlockLoader
-            implements LazyBlockLoader<LazyFixedWidthBlock>
+            implements SelectiveLazyBlockLoader<LazyFixedWidthBlock>
     {
         private final RcFileColumnsBatch batch;
         private final int fieldId;
         private boolean loaded;
+        private boolean[] isNull;
+        private double[] vector;
 
         private LazyFloatBlockLoader(RcFileColumnsBatch batch, int fieldId)
         {
@@ -510,16 +577,25 @@ public class RcBinaryBlockLoader
             if (loaded) {
                 return;
             }
+            load(block, allPositions(block.getPositionCount()), block.getPositionCount());
+            loaded = true;
+        }
 
+        @Override
+        public void load(LazyFixedWidthBlock block, int[] positions, int positionCount)
+        {
             try {
                 BytesRefArrayWritable columnBatch = batch.getColumn(fieldId);
                 int positionInBatch = batch.getPositionInBatch();
 
                 int batchSize = block.getPositionCount();
-                boolean[] isNull = new boolean[batchSize];
-                double[] vector = new double[batchSize];
+                if (vector == null) {
+                    isNull = new boolean[batchSize];
+                    vector = new double[batchSize];
+                }
 
-                for (int i = 0; i < batchSize; i++) {
+                for (int index = 0; index < positionCount; index++) {
+                    int i = positions[index];
                     BytesRefWritable writable = columnBatch.unCheckedGet(i + positionInBatch);
 
                     int length = writable.getLength();
@@ -540,8 +616,6 @@ public class RcBinaryBlockLoader
 
                 block.setNullVector(isNull);
                 block.setRawSlice(wrappedDoubleArray(vector));
-
-                loaded = true;
             }
             catch (IOException e) {
                 throw Throwables.propagate(e);
@@ -550,11 +624,13 @@ public class RcBinaryBlockLoader
     }
 
     private static final class LazyDoubleBlockLoader
-            implements LazyBlockLoader<LazyFixedWidthBlock>
+            implements SelectiveLazyBlockLoader<LazyFixedWidthBlock>
     {
         private final RcFileColumnsBatch batch;
         private final int fieldId;
         private boolean loaded;
+        private boolean[] isNull;
+        private double[] vector;
 
         private LazyDoubleBlockLoader(RcFileColumnsBatch batch, int fieldId)
         {
@@ -568,16 +644,25 @@ public class RcBinaryBlockLoader
             if (loaded) {
                 return;
             }
+            load(block, allPositions(block.getPositionCount()), block.getPositionCount());
+            loaded = true;
+        }
 
+        @Override
+        public void load(LazyFixedWidthBlock block, int[] positions, int positionCount)
+        {
             try {
                 BytesRefArrayWritable columnBatch = batch.getColumn(fieldId);
                 int positionInBatch = batch.getPositionInBatch();
 
                 int batchSize = block.getPositionCount();
-                boolean[] isNull = new boolean[batchSize];
-                double[] vector = new double[batchSize];
+                if (vector == null) {
+                    isNull = new boolean[batchSize];
+                    vector = new double[batchSize];
+                }
 
-                for (int i = 0; i < batchSize; i++) {
+                for (int index = 0; index < positionCount; index++) {
+                    int i = positions[index];
                     BytesRefWritable writable = columnBatch.unCheckedGet(i + positionInBatch);
 
                     int length = writable.getLength();
@@ -598,8 +683,6 @@ public class RcBinaryBlockLoader
 
                 block.setNullVector(isNull);
                 block.setRawSlice(wrappedDoubleArray(vector));
-
-                loaded = true;
             }
             catch (IOException e) {
                 throw Throwables.propagate(e);
@@ -608,11 +691,12 @@ public class RcBinaryBlockLoader
     }
 
     private static final class LazySliceBlockLoader
-            implements LazyBlockLoader<LazySliceArrayBlock>
+            implements SelectiveLazyBlockLoader<LazySliceArrayBlock>
     {
         private final RcFileColumnsBatch batch;
         private final int fieldId;
         private boolean loaded;
+        private Slice[] vector;
 
         private LazySliceBlockLoader(RcFileColumnsBatch batch, int fieldId)
         {
@@ -626,15 +710,24 @@ public class RcBinaryBlockLoader
             if (loaded) {
                 return;
             }
+            load(block, allPositions(block.getPositionCount()), block.getPositionCount());
+            loaded = true;
+        }
 
+        @Override
+        public void load(LazySliceArrayBlock block, int[] positions, int positionCount)
+        {
             try {
                 BytesRefArrayWritable columnBatch = batch.getColumn(fieldId);
                 int positionInBatch = batch.getPositionInBatch();
 
                 int batchSize = block.getPositionCount();
-                Slice[] vector = new Slice[batchSize];
+                if (vector == null) {
+                    vector = new Slice[batchSize];
+                }
 
-                for (int i = 0; i < batchSize; i++) {
+                for (int index = 0; index < positionCount; index++) {
+                    int i = positions[index];
                     BytesRefWritable writable = columnBatch.unCheckedGet(i + positionInBatch);
 
                     int length = writable.getLength();
@@ -651,8 +744,6 @@ public class RcBinaryBlockLoader
                 }
 
                 block.setValues(vector);
-
-                loaded = true;
             }
             catch (IOException e) {
                 throw Throwables.propagate(e);
@@ -661,12 +752,13 @@ public class RcBinaryBlockLoader
     }
 
     private static final class LazyJsonSliceBlockLoader
-            implements LazyBlockLoader<LazySliceArrayBlock>
+            implements SelectiveLazyBlockLoader<LazySliceArrayBlock>
     {
         private final RcFileColumnsBatch batch;
         private final int fieldId;
         private final ObjectInspector fieldInspector;
         private boolean loaded;
+        private Slice[] vector;
 
         private LazyJsonSliceBlockLoader(RcFileColumnsBatch batch, int fieldId, ObjectInspector fieldInspector)
         {
@@ -681,15 +773,24 @@ public class RcBinaryBlockLoader
             if (loaded) {
                 return;
             }
+            load(block, allPositions(block.getPositionCount()), block.getPositionCount());
+            loaded = true;
+        }
 
+        @Override
+        public void load(LazySliceArrayBlock block, int[] positions, int positionCount)
+        {
             try {
                 BytesRefArrayWritable columnBatch = batch.getColumn(fieldId);
                 int positionInBatch = batch.getPositionInBatch();
 
                 int batchSize = block.getPositionCount();
-                Slice[] vector = new Slice[batchSize];
+                if (vector == null) {
+                    vector = new Slice[batchSize];
+                }
 
-                for (int i = 0; i < batchSize; i++) {
+                for (int index = 0; index < positionCount; index++) {
+                    int i = positions[index];
                     BytesRefWritable writable = columnBatch.unCheckedGet(i + positionInBatch);
 
                     int length = writable.getLength();
@@ -705,8 +806,6 @@ public class RcBinaryBlockLoader
                 }
 
                 block.setValues(vector);
-
-                loaded = true;
             }
             catch (IOException e) {
                 throw Throwables.propagate(e);
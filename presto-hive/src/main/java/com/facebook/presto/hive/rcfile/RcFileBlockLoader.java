@@ -25,4 +25,16 @@ public interface RcFileBlockLoader
     LazyBlockLoader<LazyFixedWidthBlock> fixedWidthBlockLoader(RcFileColumnsBatch batch, int fieldId, HiveType hiveType);
 
     LazyBlockLoader<LazySliceArrayBlock> variableWidthBlockLoader(RcFileColumnsBatch batch, int fieldId, HiveType hiveType, ObjectInspector fieldInspector);
+
+    /**
+     * Returns the positions of a whole block, for loaders that decode the rows at selected positions.
+     */
+    static int[] allPositions(int positionCount)
+    {
+        int[] positions = new int[positionCount];
+        for (int position = 0; position < positionCount; position++) {
+            positions[position] = position;
+        }
+        return positions;
+    }
 }
@@ -26,6 +26,7 @@ import com.facebook.presto.spi.block.BlockBuilderStatus;
 import com.facebook.presto.spi.block.LazyBlockLoader;
 import com.facebook.presto.spi.block.LazyFixedWidthBlock;
 import com.facebook.presto.spi.block.LazySliceArrayBlock;
+import com.facebook.presto.spi.block.RunLengthEncodedBlock;
 import com.facebook.presto.spi.type.FixedWidthType;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.spi.type.TypeManager;
@@ -170,63 +171,47 @@ public class RcFilePageSource
 
                 byte[] bytes = partitionKey.getValue().getBytes(UTF_8);
 
-                BlockBuilder blockBuilder = type.createBlockBuilder(new BlockBuilderStatus(), MAX_PAGE_SIZE, Math.max(MAX_FIXED_WIDTH_SIZE, bytes.length));
+                BlockBuilder blockBuilder = type.createBlockBuilder(new BlockBuilderStatus(), 1, Math.max(MAX_FIXED_WIDTH_SIZE, bytes.length));
 
                 if (HiveUtil.isHiveNull(bytes)) {
-                    for (int i = 0; i < MAX_PAGE_SIZE; i++) {
-                        blockBuilder.appendNull();
-                    }
+                    blockBuilder.appendNull();
                 }
                 else if (type.equals(BOOLEAN)) {
                     boolean value = booleanPartitionKey(partitionKey.getValue(), name);
-                    for (int i = 0; i < MAX_PAGE_SIZE; i++) {
-                        BOOLEAN.writeBoolean(blockBuilder, value);
-                    }
+                    BOOLEAN.writeBoolean(blockBuilder, value);
                 }
                 else if (type.equals(BIGINT)) {
                     long value = bigintPartitionKey(partitionKey.getValue(), name);
-                    for (int i = 0; i < MAX_PAGE_SIZE; i++) {
-                        BIGINT.writeLong(blockBuilder, value);
-                    }
+                    BIGINT.writeLong(blockBuilder, value);
                 }
                 else if (type.equals(DOUBLE)) {
                     double value = doublePartitionKey(partitionKey.getValue(), name);
-                    for (int i = 0; i < MAX_PAGE_SIZE; i++) {
-                        DOUBLE.writeDouble(blockBuilder, value);
-                    }
+                    DOUBLE.writeDouble(blockBuilder, value);
                 }
                 else if (type.equals(VARCHAR)) {
                     Slice value = Slices.wrappedBuffer(bytes);
-                    for (int i = 0; i < MAX_PAGE_SIZE; i++) {
-                        VARCHAR.writeSlice(blockBuilder, value);
-                    }
+                    VARCHAR.writeSlice(blockBuilder, value);
                 }
                 else if (type.equals(DATE)) {
                     long value = datePartitionKey(partitionKey.getValue(), name);
-                    for (int i = 0; i < MAX_PAGE_SIZE; i++) {
-                        DATE.writeLong(blockBuilder, value);
-                    }
+                    DATE.writeLong(blockBuilder, value);
                 }
                 else if (TIMESTAMP.equals(type)) {
                     long value = timestampPartitionKey(partitionKey.getValue(), hiveStorageTimeZone, name);
-                    for (int i = 0; i < MAX_PAGE_SIZE; i++) {
-                        TIMESTAMP.writeLong(blockBuilder, value);
-                    }
+                    TIMESTAMP.writeLong(blockBuilder, value);
                 }
                 else {
                     throw new PrestoException(NOT_SUPPORTED, format("Unsupported column type %s for partition key: %s", type.getDisplayName(), name));
                 }
 
-                constantBlocks[columnIndex] = blockBuilder.build();
+                constantBlocks[columnIndex] = new RunLengthEncodedBlock(blockBuilder.build(), MAX_PAGE_SIZE);
             }
             else if (hiveColumnIndexes[columnIndex] >= recordReader.getCurrentKeyBufferObj().getColumnNumber()) {
                 // this partition may contain fewer fields than what's declared in the schema
                 // this happens when additional columns are added to the hive table after a partition has been created
-                BlockBuilder blockBuilder = type.createBlockBuilder(new BlockBuilderStatus(), MAX_PAGE_SIZE, NULL_ENTRY_SIZE);
-                for (int i = 0; i < MAX_PAGE_SIZE; i++) {
-                    blockBuilder.appendNull();
-                }
-                constantBlocks[columnIndex] = blockBuilder.build();
+                BlockBuilder blockBuilder = type.createBlockBuilder(new BlockBuilderStatus(), 1, NULL_ENTRY_SIZE);
+                blockBuilder.appendNull();
+                constantBlocks[columnIndex] = new RunLengthEncodedBlock(blockBuilder.build(), MAX_PAGE_SIZE);
             }
         }
         types = typesBuilder.build();
@@ -18,6 +18,7 @@ import com.facebook.presto.hive.rcfile.RcFilePageSource.RcFileColumnsBatch;
 import com.facebook.presto.spi.block.LazyBlockLoader;
 import com.facebook.presto.spi.block.LazyFixedWidthBlock;
 import com.facebook.presto.spi.block.LazySliceArrayBlock;
+import com.facebook.presto.spi.block.SelectiveLazyBlockLoader;
 import com.google.common.base.Throwables;
 import io.airlift.slice.Slice;
 import io.airlift.slice.Slices;
@@ -51,6 +52,7 @@ import static com.facebook.presto.hive.HiveUtil.parseHiveDate;
 import static com.facebook.presto.hive.HiveUtil.parseHiveTimestamp;
 import static com.facebook.presto.hive.NumberParser.parseDouble;
 import static com.facebook.presto.hive.NumberParser.parseLong;
+import static com.facebook.presto.hive.rcfile.RcFileBlockLoader.allPositions;
 import static com.facebook.presto.hive.util.SerDeUtils.getBlockSlice;
 import static io.airlift.slice.Slices.wrappedBooleanArray;
 import static io.airlift.slice.Slices.wrappedDoubleArray;
@@ -108,11 +110,13 @@ public class RcTextBlockLoader
     }
 
     private static final class LazyBooleanBlockLoader
-            implements LazyBlockLoader<LazyFixedWidthBlock>
+            implements SelectiveLazyBlockLoader<LazyFixedWidthBlock>
     {
         private final RcFileColumnsBatch batch;
         private final int fieldId;
         private boolean loaded;
+        private boolean[] isNull;
+        private boolean[] vector;
 
         public LazyBooleanBlockLoader(RcFileColumnsBatch batch, int fieldId)
         {
@@ -126,16 +130,25 @@ public class RcTextBlockLoader
             if (loaded) {
                 return;
             }
+            load(block, allPositions(block.getPositionCount()), block.getPositionCount());
+            loaded = true;
+        }
 
+        @Override
+        public void load(LazyFixedWidthBlock block, int[] positions, int positionCount)
+        {
             try {
                 BytesRefArrayWritable columnBatch = batch.getColumn(fieldId);
                 int positionInBatch = batch.getPositionInBatch();
 
-                int positionCount = block.getPositionCount();
-                boolean[] isNull = new boolean[positionCount];
-                boolean[] vector = new boolean[positionCount];
+                int batchSize = block.getPositionCount();
+                if (vector == null) {
+                    isNull = new boolean[batchSize];
+                    vector = new boolean[batchSize];
+                }
 
-                for (int i = 0; i < positionCount; i++) {
+                for (int index = 0; index < positionCount; index++) {
+                    int i = positions[index];
                     BytesRefWritable writable = columnBatch.unCheckedGet(i + positionInBatch);
 
                     byte[] bytes = writable.getData();
@@ -153,9 +166,7 @@ public class RcTextBlockLoader
                 }
 
                 block.setNullVector(isNull);
-                block.setRawSlice(wrappedBooleanArray(vector, 0, positionCount));
-
-                loaded = true;
+                block.setRawSlice(wrappedBooleanArray(vector, 0, batchSize));
             }
             catch (IOException e) {
                 throw Throwables.propagate(e);
@@ -164,11 +175,13 @@ public class RcTextBlockLoader
     }
 
     private static final class LazyLongBlockLoader
-            implements LazyBlockLoader<LazyFixedWidthBlock>
+            implements SelectiveLazyBlockLoader<LazyFixedWidthBlock>
     {
         private final RcFileColumnsBatch batch;
         private final int fieldId;
         private boolean loaded;
+        private boolean[] isNull;
+        private long[] vector;
 
         private LazyLongBlockLoader(RcFileColumnsBatch batch, int fieldId)
         {
@@ -182,16 +195,25 @@ public class RcTextBlockLoader
             if (loaded) {
                 return;
             }
+            load(block, allPositions(block.getPositionCount()), block.getPositionCount());
+            loaded = true;
+        }
 
+        @Override
+        public void load(LazyFixedWidthBlock block, int[] positions, int positionCount)
+        {
             try {
                 BytesRefArrayWritable columnBatch = batch.getColumn(fieldId);
                 int positionInBatch = batch.getPositionInBatch();
 
                 int batchSize = block.getPositionCount();
-                boolean[] isNull = new boolean[batchSize];
-                long[] vector = new long[batchSize];
+                if (vector == null) {
+                    isNull = new boolean[batchSize];
+                    vector = new long[batchSize];
+                }
 
-                for (int i = 0; i < batchSize; i++) {
+                for (int index = 0; index < positionCount; index++) {
+                    int i = positions[index];
                     BytesRefWritable writable = columnBatch.unCheckedGet(i + positionInBatch);
 
                     byte[] bytes = writable.getData();
@@ -207,8 +229,6 @@ public class RcTextBlockLoader
 
                 block.setNullVector(isNull);
                 block.setRawSlice(wrappedLongArray(vector));
-
-                loaded = true;
             }
             catch (IOException e) {
                 throw Throwables.propagate(e);
@@ -217,11 +237,13 @@ public class RcTextBlockLoader
     }
 
     private static final class LazyDateBlockLoader
-            implements LazyBlockLoader<LazyFixedWidthBlock>
+            implements SelectiveLazyBlockLoader<LazyFixedWidthBlock>
     {
         private final RcFileColumnsBatch batch;
         private final int fieldId;
         private boolean loaded;
+        private boolean[] isNull;
+        private long[] vector;
 
         private LazyDateBlockLoader(RcFileColumnsBatch batch, int fieldId)
         {
@@ -235,16 +257,25 @@ public class RcTextBlockLoader
             if (loaded) {
                 return;
             }
+            load(block, allPositions(block.getPositionCount()), block.getPositionCount());
+            loaded = true;
+        }
 
+        @Override
+        public void load(LazyFixedWidthBlock block, int[] positions, int positionCount)
+        {
             try {
                 BytesRefArrayWritable columnBatch = batch.getColumn(fieldId);
                 int positionInBatch = batch.getPositionInBatch();
 
-                int positionCount = block.getPositionCount();
-                boolean[] isNull = new boolean[positionCount];
-                long[] vector = new long[positionCount];
+                int batchSize = block.getPositionCount();
+                if (vector == null) {
+                    isNull = new boolean[batchSize];
+                    vector = new long[batchSize];
+                }
 
-                for (int i = 0; i < positionCount; i++) {
+                for (int index = 0; index < positionCount; index++) {
+                    int i = positions[index];
                     BytesRefWritable writable = columnBatch.unCheckedGet(i + positionInBatch);
 
                     byte[] bytes = writable.getData();
@@ -261,8 +292,6 @@ public class RcTextBlockLoader
 
                 block.setNullVector(isNull);
                 block.setRawSlice(wrappedLongArray(vector));
-
-                loaded = true;
             }
             catch (IOException e) {
                 throw Throwables.propagate(e);
@@ -272,12 +301,14 @@ public class RcTextBlockLoader
     }
 
     private static final class LazyTimestampBlockLoader
-            implements LazyBlockLoader<LazyFixedWidthBlock>
+            implements SelectiveLazyBlockLoader<LazyFixedWidthBlock>
     {
         private final RcFileColumnsBatch batch;
         private final int fieldId;
         private final DateTimeZone hiveStorageTimeZone;
         private boolean loaded;
+        private boolean[] isNull;
+        private long[] vector;
 
         private LazyTimestampBlockLoader(RcFileColumnsBatch batch, int fieldId, DateTimeZone hiveStorageTimeZone)
         {
@@ -292,16 +323,25 @@ public class RcTextBlockLoader
             if (loaded) {
                 return;
             }
+            load(block, allPositions(block.getPositionCount()), block.getPositionCount());
+            loaded = true;
+        }
 
+        @Override
+        public void load(LazyFixedWidthBlock block, int[] positions, int positionCount)
+        {
             try {
                 BytesRefArrayWritable columnBatch = batch.getColumn(fieldId);
                 int positionInBatch = batch.getPositionInBatch();
 
                 int batchSize = block.getPositionCount();
-                boolean[] isNull = new boolean[batchSize];
-                long[] vector = new long[batchSize];
+                if (vector == null) {
+                    isNull = new boolean[batchSize];
+                    vector = new long[batchSize];
+                }
 
-                for (int i = 0; i < batchSize; i++) {
+                for (int index = 0; index < positionCount; index++) {
+                    int i = positions[index];
                     BytesRefWritable writable = columnBatch.unCheckedGet(i + positionInBatch);
 
                     byte[] bytes = writable.getData();
@@ -318,8 +358,6 @@ public class RcTextBlockLoader
 
                 block.setNullVector(isNull);
                 block.setRawSlice(wrappedLongArray(vector));
-
-                loaded = true;
             }
             catch (IOException e) {
                 throw Throwables.propagate(e);
@@ -328,11 +366,13 @@ public class RcTextBlockLoader
     }
 
     private static final class LazyDoubleBlockLoader
-            implements LazyBlockLoader<LazyFixedWidthBlock>
+            implements SelectiveLazyBlockLoader<LazyFixedWidthBlock>
     {
         private final RcFileColumnsBatch batch;
         private final int fieldId;
         private boolean loaded;
+        private boolean[] isNull;
+        private double[] vector;
 
         private LazyDoubleBlockLoader(RcFileColumnsBatch batch, int fieldId)
         {
@@ -346,16 +386,25 @@ public class RcTextBlockLoader
             if (loaded) {
                 return;
             }
+            load(block, allPositions(block.getPositionCount()), block.getPositionCount());
+            loaded = true;
+        }
 
+        @Override
+        public void load(LazyFixedWidthBlock block, int[] positions, int positionCount)
+        {
             try {
                 BytesRefArrayWritable columnBatch = batch.getColumn(fieldId);
                 int positionInBatch = batch.getPositionInBatch();
 
                 int batchSize = block.getPositionCount();
-                boolean[] isNull = new boolean[batchSize];
-                double[] vector = new double[batchSize];
+                if (vector == null) {
+                    isNull = new boolean[batchSize];
+                    vector = new double[batchSize];
+                }
 
-                for (int i = 0; i < batchSize; i++) {
+                for (int index = 0; index < positionCount; index++) {
+                    int i = positions[index];
                     BytesRefWritable writable = columnBatch.unCheckedGet(i + positionInBatch);
 
                     byte[] bytes = writable.getData();
@@ -371,8 +420,6 @@ public class RcTextBlockLoader
 
                 block.setNullVector(isNull);
                 block.setRawSlice(wrappedDoubleArray(vector));
-
-                loaded = true;
             }
             catch (IOException e) {
                 throw Throwables.propagate(e);
@@ -381,11 +428,12 @@ public class RcTextBlockLoader
     }
 
     private static final class LazyStringBlockLoader
-            implements LazyBlockLoader<LazySliceArrayBlock>
+            implements SelectiveLazyBlockLoader<LazySliceArrayBlock>
     {
         private final RcFileColumnsBatch batch;
         private final int fieldId;
         private boolean loaded;
+        private Slice[] vector;
 
         private LazyStringBlockLoader(RcFileColumnsBatch batch, int fieldId)
         {
@@ -399,15 +447,24 @@ public class RcTextBlockLoader
             if (loaded) {
                 return;
             }
+            load(block, allPositions(block.getPositionCount()), block.getPositionCount());
+            loaded = true;
+        }
 
+        @Override
+        public void load(LazySliceArrayBlock block, int[] positions, int positionCount)
+        {
             try {
                 BytesRefArrayWritable columnBatch = batch.getColumn(fieldId);
                 int positionInBatch = batch.getPositionInBatch();
 
                 int batchSize = block.getPositionCount();
-                Slice[] vector = new Slice[batchSize];
+                if (vector == null) {
+                    vector = new Slice[batchSize];
+                }
 
-                for (int i = 0; i < batchSize; i++) {
+                for (int index = 0; index < positionCount; index++) {
+                    int i = positions[index];
                     BytesRefWritable writable = columnBatch.unCheckedGet(i + positionInBatch);
 
                     byte[] bytes = writable.getData();
@@ -419,8 +476,6 @@ public class RcTextBlockLoader
                 }
 
                 block.setValues(vector);
-
-                loaded = true;
             }
             catch (IOException e) {
                 throw Throwables.propagate(e);
@@ -429,11 +484,12 @@ public class RcTextBlockLoader
     }
 
     private static final class LazyBinaryBlockLoader
-            implements LazyBlockLoader<LazySliceArrayBlock>
+            implements SelectiveLazyBlockLoader<LazySliceArrayBlock>
     {
         private final RcFileColumnsBatch batch;
         private final int fieldId;
         private boolean loaded;
+        private Slice[] vector;
 
         private LazyBinaryBlockLoader(RcFileColumnsBatch batch, int fieldId)
         {
@@ -447,15 +503,24 @@ public class RcTextBlockLoader
             if (loaded) {
                 return;
             }
+            load(block, allPositions(block.getPositionCount()), block.getPositionCount());
+            loaded = true;
+        }
 
+        @Override
+        public void load(LazySliceArrayBlock block, int[] positions, int positionCount)
+        {
             try {
                 BytesRefArrayWritable columnBatch = batch.getColumn(fieldId);
                 int positionInBatch = batch.getPositionInBatch();
 
                 int batchSize = block.getPositionCount();
-                Slice[] vector = new Slice[batchSize];
+                if (vector == null) {
+                    vector = new Slice[batchSize];
+                }
 
-                for (int i = 0; i < batchSize; i++) {
+                for (int index = 0; index < positionCount; index++) {
+                    int i = positions[index];
                     BytesRefWritable writable = columnBatch.unCheckedGet(i + positionInBatch);
 
                     byte[] bytes = writable.getData();
@@ -469,8 +534,6 @@ public class RcTextBlockLoader
                 }
 
                 block.setValues(vector);
-
-                loaded = true;
             }
             catch (IOException e) {
                 throw Throwables.propagate(e);
@@ -479,12 +542,13 @@ public class RcTextBlockLoader
     }
 
     private static final class LazyJsonSliceBlockLoader
-            implements LazyBlockLoader<LazySliceArrayBlock>
+            implements SelectiveLazyBlockLoader<LazySliceArrayBlock>
     {
         private final RcFileColumnsBatch batch;
         private final int fieldId;
         private final ObjectInspector fieldInspector;
         private boolean loaded;
+        private Slice[] vector;
 
         private LazyJsonSliceBlockLoader(RcFileColumnsBatch batch, int fieldId, ObjectInspector fieldInspector)
         {
@@ -499,15 +563,24 @@ public class RcTextBlockLoader
             if (loaded) {
                 return;
             }
+            load(block, allPositions(block.getPositionCount()), block.getPositionCount());
+            loaded = true;
+        }
 
+        @Override
+        public void load(LazySliceArrayBlock block, int[] positions, int positionCount)
+        {
             try {
                 BytesRefArrayWritable columnBatch = batch.getColumn(fieldId);
                 int positionInBatch = batch.getPositionInBatch();
 
                 int batchSize = block.getPositionCount();
-                Slice[] vector = new Slice[batchSize];
+                if (vector == null) {
+                    vector = new Slice[batchSize];
+                }
 
-                for (int i = 0; i < batchSize; i++) {
+                for (int index = 0; index < positionCount; index++) {
+                    int i = positions[index];
                     BytesRefWritable writable = columnBatch.unCheckedGet(i + positionInBatch);
 
                     byte[] bytes = writable.getData();
@@ -523,8 +596,6 @@ public class RcTextBlockLoader
                 }
 
                 block.setValues(vector);
-
-                loaded = true;
             }
             catch (IOException e) {
                 throw Throwables.propagate(e);
@@ -1675,12 +1675,14 @@ public final class BenchmarkHiveFileFormats
                 fileSplit.getPath().toString(),
                 fileSplit.getStart(),
                 fileSplit.getLength(),
+                0,
                 partitionProperties,
                 ImmutableList.<HivePartitionKey>of(),
                 ImmutableList.<HostAddress>of(),
                 false,
                 SESSION,
-                TupleDomain.<HiveColumnHandle>all());
+                TupleDomain.<HiveColumnHandle>all(),
+                -1);
     }
 
     private static List<HiveColumnHandle> getHiveColumnHandles(TpchColumn<?>... tpchColumns)
@@ -48,12 +48,14 @@ public class TestHiveSplit
                 "path",
                 42,
                 88,
+                1234,
                 schema,
                 partitionKeys,
                 addresses,
                 true,
                 SESSION,
-                TupleDomain.<HiveColumnHandle>all());
+                TupleDomain.<HiveColumnHandle>all(),
+                3);
 
         String json = codec.toJson(expected);
         HiveSplit actual = codec.fromJson(json);
@@ -62,6 +64,7 @@ public class TestHiveSplit
         assertEquals(actual.getDatabase(), expected.getDatabase());
         assertEquals(actual.getTable(), expected.getTable());
         assertEquals(actual.getPartitionName(), expected.getPartitionName());
+        assertEquals(actual.getFileModifiedTime(), expected.getFileModifiedTime());
         assertEquals(actual.getPath(), expected.getPath());
         assertEquals(actual.getStart(), expected.getStart());
         assertEquals(actual.getLength(), expected.getLength());
@@ -73,5 +76,6 @@ public class TestHiveSplit
         assertEquals(actual.getSession().getTimeZoneKey(), expected.getSession().getTimeZoneKey());
         assertEquals(actual.getSession().getStartTime(), expected.getSession().getStartTime());
         assertEquals(actual.isForceLocalScheduling(), expected.isForceLocalScheduling());
+        assertEquals(actual.getBucket(), expected.getBucket());
     }
 }
@@ -0,0 +1,94 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.hive;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.Optional;
+
+import static com.facebook.presto.hive.HiveSplitSourceProvider.getBucketFiles;
+import static io.airlift.testing.FileUtils.deleteRecursively;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestHiveSplitSourceProvider
+{
+    private File partitionDirectory;
+    private FileSystem fileSystem;
+
+    @BeforeMethod
+    public void setUp()
+            throws Exception
+    {
+        partitionDirectory = Files.createTempDir();
+        fileSystem = FileSystem.getLocal(new Configuration());
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        deleteRecursively(partitionDirectory);
+    }
+
+    @Test
+    public void testBucketNumbers()
+            throws Exception
+    {
+        // like Hive, the bucket number is the position of the file in the sorted file names
+        for (String name : ImmutableList.of("000002_0", "000000_0", "000001_0")) {
+            assertTrue(new File(partitionDirectory, name).createNewFile());
+        }
+
+        Optional<List<FileStatus>> bucketFiles = getBucketFiles(3, fileSystem, new Path(partitionDirectory.toURI()));
+        assertTrue(bucketFiles.isPresent());
+        assertEquals(bucketFiles.get().size(), 3);
+        for (int bucket = 0; bucket < 3; bucket++) {
+            assertEquals(bucketFiles.get().get(bucket).getPath().getName(), "00000" + bucket + "_0");
+        }
+    }
+
+    @Test
+    public void testFileCountDifferentFromBucketCount()
+            throws Exception
+    {
+        // the partition was not written with one file per bucket, so its splits have no bucket number
+        for (String name : ImmutableList.of("000000_0", "000001_0", "000001_0_copy_1")) {
+            assertTrue(new File(partitionDirectory, name).createNewFile());
+        }
+
+        assertFalse(getBucketFiles(2, fileSystem, new Path(partitionDirectory.toURI())).isPresent());
+    }
+
+    @Test
+    public void testDirectoryInPartition()
+            throws Exception
+    {
+        assertTrue(new File(partitionDirectory, "000000_0").createNewFile());
+        assertTrue(new File(partitionDirectory, "000001_0").mkdir());
+
+        assertFalse(getBucketFiles(2, fileSystem, new Path(partitionDirectory.toURI())).isPresent());
+    }
+}
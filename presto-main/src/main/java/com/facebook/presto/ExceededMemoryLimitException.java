@@ -23,6 +23,16 @@ public class ExceededMemoryLimitException
 {
     public ExceededMemoryLimitException(DataSize maxMemory)
     {
-        super(EXCEEDED_MEMORY_LIMIT, String.format("Task exceeded max memory size of %s", maxMemory));
+        this(String.format("Task exceeded max memory size of %s", maxMemory));
+    }
+
+    private ExceededMemoryLimitException(String message)
+    {
+        super(EXCEEDED_MEMORY_LIMIT, message);
+    }
+
+    public static ExceededMemoryLimitException exceededDistributedQueryLimit(DataSize maxMemory)
+    {
+        return new ExceededMemoryLimitException(String.format("Query exceeded distributed memory limit of %s", maxMemory));
     }
 }
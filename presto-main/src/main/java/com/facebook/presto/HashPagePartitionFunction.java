@@ -16,6 +16,7 @@ package com.facebook.presto;
 import com.facebook.presto.operator.HashGenerator;
 import com.facebook.presto.operator.InterpretedHashGenerator;
 import com.facebook.presto.operator.PrecomputedHashGenerator;
+import com.facebook.presto.operator.SpilledJoinPartitions;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.PageBuilder;
 import com.facebook.presto.spi.type.Type;
@@ -129,6 +130,30 @@ public final class HashPagePartitionFunction
         return partitionedPages.build();
     }
 
+    /**
+     * Splits the rows of a page into all partitions of this partitioning in a single pass.
+     * Partitions without rows are {@code null}.
+     */
+    public Page[] partitionPage(Page page)
+    {
+        int[] partitions = new int[page.getPositionCount()];
+        for (int position = 0; position < partitions.length; position++) {
+            partitions[position] = getPartitionHashBucket(position, page);
+        }
+        return SpilledJoinPartitions.partitionPage(page, types, partitions, partitionCount);
+    }
+
+    /**
+     * Returns true if the other function assigns every row to the same partition as this one.
+     */
+    public boolean hasSamePartitioning(HashPagePartitionFunction other)
+    {
+        return partitionCount == other.partitionCount &&
+                partitioningChannels.equals(other.partitioningChannels) &&
+                hashChannel.equals(other.hashChannel) &&
+                types.equals(other.types);
+    }
+
     private int getPartitionHashBucket(int position, Page page)
     {
         int rawHash = hashGenerator.hashPosition(position, page);
@@ -52,6 +52,7 @@ public final class Session
     private final long startTime;
     private final Map<String, String> systemProperties;
     private final Map<String, Map<String, String>> catalogProperties;
+    private final Map<String, String> preparedStatements;
 
     @JsonCreator
     public Session(
@@ -65,7 +66,8 @@ public final class Session
             @JsonProperty("userAgent") @Nullable String userAgent,
             @JsonProperty("startTime") long startTime,
             @JsonProperty("systemProperties") Map<String, String> systemProperties,
-            @JsonProperty("catalogProperties") Map<String, Map<String, String>> catalogProperties)
+            @JsonProperty("catalogProperties") Map<String, Map<String, String>> catalogProperties,
+            @JsonProperty("preparedStatements") Map<String, String> preparedStatements)
     {
         this.user = requireNonNull(user, "user is null");
         this.source = source;
@@ -83,6 +85,8 @@ public final class Session
                 .map(entry -> Maps.immutableEntry(entry.getKey(), ImmutableMap.copyOf(entry.getValue())))
                 .forEach(catalogPropertiesBuilder::put);
         this.catalogProperties = catalogPropertiesBuilder.build();
+
+        this.preparedStatements = ImmutableMap.copyOf(requireNonNull(preparedStatements, "preparedStatements is null"));
     }
 
     @JsonProperty
@@ -154,6 +158,35 @@ public final class Session
         return catalogProperties;
     }
 
+    @JsonProperty
+    public Map<String, String> getPreparedStatements()
+    {
+        return preparedStatements;
+    }
+
+    public Session withPreparedStatement(String name, String sql)
+    {
+        checkNotNull(name, "name is null");
+        checkNotNull(sql, "sql is null");
+
+        Map<String, String> preparedStatements = new LinkedHashMap<>(this.preparedStatements);
+        preparedStatements.put(name, sql);
+
+        return new Session(
+                user,
+                source,
+                catalog,
+                schema,
+                timeZoneKey,
+                locale,
+                remoteUserAddress,
+                userAgent,
+                startTime,
+                systemProperties,
+                catalogProperties,
+                preparedStatements);
+    }
+
     public Session withSystemProperty(String key, String value)
     {
         checkNotNull(key, "key is null");
@@ -173,7 +206,8 @@ public final class Session
                 userAgent,
                 startTime,
                 systemProperties,
-                catalogProperties);
+                catalogProperties,
+                preparedStatements);
     }
 
     public Session withCatalogProperty(String catalog, String key, String value)
@@ -204,7 +238,8 @@ public final class Session
                 userAgent,
                 startTime,
                 systemProperties,
-                catalogProperties);
+                catalogProperties,
+                preparedStatements);
     }
 
     public ConnectorSession toConnectorSession()
@@ -237,6 +272,7 @@ public final class Session
                 timeZoneKey.getId(),
                 locale,
                 properties.build(),
+                preparedStatements,
                 debug);
     }
 
@@ -274,6 +310,7 @@ public final class Session
         private long startTime = System.currentTimeMillis();
         private Map<String, String> systemProperties = ImmutableMap.of();
         private final Map<String, Map<String, String>> catalogProperties = new HashMap<>();
+        private final Map<String, String> preparedStatements = new HashMap<>();
 
         private SessionBuilder()
         {
@@ -356,9 +393,18 @@ public final class Session
             return this;
         }
 
+        public SessionBuilder addPreparedStatement(String name, String sql)
+        {
+            checkNotNull(name, "name is null");
+            checkNotNull(sql, "sql is null");
+
+            preparedStatements.put(name, sql);
+            return this;
+        }
+
         public Session build()
         {
-            return new Session(user, source, catalog, schema, timeZoneKey, locale, remoteUserAddress, userAgent, startTime, systemProperties, catalogProperties);
+            return new Session(user, source, catalog, schema, timeZoneKey, locale, remoteUserAddress, userAgent, startTime, systemProperties, catalogProperties, preparedStatements);
         }
     }
 }
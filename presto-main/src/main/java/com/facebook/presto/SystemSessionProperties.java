@@ -13,11 +13,26 @@
  */
 package com.facebook.presto;
 
+import java.util.Map;
+
 public final class SystemSessionProperties
 {
     public static final String BIG_QUERY = "experimental_big_query";
     private static final String OPTIMIZE_HASH_GENERATION = "optimize_hash_generation";
     private static final String DISTRIBUTED_JOIN = "distributed_join";
+    private static final String AUTOMATIC_JOIN_DISTRIBUTION = "automatic_join_distribution";
+    private static final String SPILL_ENABLED = "spill_enabled";
+    private static final String DYNAMIC_FILTERING_ENABLED = "dynamic_filtering_enabled";
+    private static final String DYNAMIC_FILTERING_BLOOM_FILTER_ENABLED = "dynamic_filtering_bloom_filter_enabled";
+    private static final String REORDER_JOINS = "reorder_joins";
+    private static final String JOIN_BUILD_CONCURRENCY = "join_build_concurrency";
+    private static final String TASK_CONCURRENCY = "task_concurrency";
+    private static final String ADAPTIVE_PARTIAL_AGGREGATION_ENABLED = "adaptive_partial_aggregation_enabled";
+    private static final String MERGE_JOIN_ENABLED = "merge_join_enabled";
+    private static final String COLOCATED_JOIN = "colocated_join";
+    private static final String QUERY_RESULT_CACHE_ENABLED = "query_result_cache_enabled";
+    private static final String FRAGMENT_RESULT_CACHE_ENABLED = "fragment_result_cache_enabled";
+    private static final String PLAN_CACHE_ENABLED = "plan_cache_enabled";
 
     private SystemSessionProperties() {}
 
@@ -45,4 +60,84 @@ public final class SystemSessionProperties
     {
         return isEnabled(DISTRIBUTED_JOIN, session, defaultValue);
     }
+
+    public static boolean isAutomaticJoinDistributionEnabled(Session session, boolean defaultValue)
+    {
+        // a join distribution chosen for the session takes precedence over the estimates, unless
+        // automatic distribution is also enabled for the session
+        Map<String, String> properties = session.getSystemProperties();
+        if (properties.containsKey(DISTRIBUTED_JOIN) && !properties.containsKey(AUTOMATIC_JOIN_DISTRIBUTION)) {
+            return false;
+        }
+        return isEnabled(AUTOMATIC_JOIN_DISTRIBUTION, session, defaultValue);
+    }
+
+    public static boolean isSpillEnabled(Session session, boolean defaultValue)
+    {
+        return isEnabled(SPILL_ENABLED, session, defaultValue);
+    }
+
+    public static boolean isDynamicFilteringEnabled(Session session, boolean defaultValue)
+    {
+        return isEnabled(DYNAMIC_FILTERING_ENABLED, session, defaultValue);
+    }
+
+    public static boolean isDynamicFilteringBloomFilterEnabled(Session session, boolean defaultValue)
+    {
+        return isEnabled(DYNAMIC_FILTERING_BLOOM_FILTER_ENABLED, session, defaultValue);
+    }
+
+    public static boolean isReorderJoinsEnabled(Session session, boolean defaultValue)
+    {
+        return isEnabled(REORDER_JOINS, session, defaultValue);
+    }
+
+    public static boolean isAdaptivePartialAggregationEnabled(Session session, boolean defaultValue)
+    {
+        return isEnabled(ADAPTIVE_PARTIAL_AGGREGATION_ENABLED, session, defaultValue);
+    }
+
+    public static boolean isMergeJoinEnabled(Session session, boolean defaultValue)
+    {
+        return isEnabled(MERGE_JOIN_ENABLED, session, defaultValue);
+    }
+
+    public static boolean isColocatedJoinEnabled(Session session, boolean defaultValue)
+    {
+        return isEnabled(COLOCATED_JOIN, session, defaultValue);
+    }
+
+    public static boolean isQueryResultCacheEnabled(Session session, boolean defaultValue)
+    {
+        return isEnabled(QUERY_RESULT_CACHE_ENABLED, session, defaultValue);
+    }
+
+    public static boolean isFragmentResultCacheEnabled(Session session, boolean defaultValue)
+    {
+        return isEnabled(FRAGMENT_RESULT_CACHE_ENABLED, session, defaultValue);
+    }
+
+    public static boolean isPlanCacheEnabled(Session session, boolean defaultValue)
+    {
+        return isEnabled(PLAN_CACHE_ENABLED, session, defaultValue);
+    }
+
+    public static int getJoinBuildConcurrency(Session session, int defaultValue)
+    {
+        return getInteger(JOIN_BUILD_CONCURRENCY, session, defaultValue);
+    }
+
+    public static int getTaskConcurrency(Session session, int defaultValue)
+    {
+        return getInteger(TASK_CONCURRENCY, session, defaultValue);
+    }
+
+    private static int getInteger(String propertyName, Session session, int defaultValue)
+    {
+        String value = session.getSystemProperties().get(propertyName);
+        if (value == null) {
+            return defaultValue;
+        }
+        return Integer.parseInt(value);
+    }
 }
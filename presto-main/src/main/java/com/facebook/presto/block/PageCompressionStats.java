@@ -0,0 +1,61 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.block;
+
+/**
+ * Sizes and compression cost of the compressed pages written or read by a single writer or reader.
+ */
+public class PageCompressionStats
+{
+    private long compressedBytes;
+    private long uncompressedBytes;
+    private long compressionCpuNanos;
+    private long decompressionCpuNanos;
+
+    public void addPage(long compressedSize, long uncompressedSize)
+    {
+        compressedBytes += compressedSize;
+        uncompressedBytes += uncompressedSize;
+    }
+
+    public void addCompressionCpuNanos(long nanos)
+    {
+        compressionCpuNanos += nanos;
+    }
+
+    public void addDecompressionCpuNanos(long nanos)
+    {
+        decompressionCpuNanos += nanos;
+    }
+
+    public long getCompressedBytes()
+    {
+        return compressedBytes;
+    }
+
+    public long getUncompressedBytes()
+    {
+        return uncompressedBytes;
+    }
+
+    public long getCompressionCpuNanos()
+    {
+        return compressionCpuNanos;
+    }
+
+    public long getDecompressionCpuNanos()
+    {
+        return decompressionCpuNanos;
+    }
+}
@@ -18,12 +18,20 @@ import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.block.BlockEncoding;
 import com.facebook.presto.spi.block.BlockEncodingSerde;
 import com.google.common.collect.AbstractIterator;
+import io.airlift.slice.DynamicSliceOutput;
+import io.airlift.slice.Slice;
 import io.airlift.slice.SliceInput;
 import io.airlift.slice.SliceOutput;
+import io.airlift.slice.Slices;
+import org.iq80.snappy.CorruptionException;
+import org.iq80.snappy.Snappy;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.Iterator;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 import static java.util.Arrays.asList;
 
 // layout is:
@@ -32,8 +40,17 @@ import static java.util.Arrays.asList;
 //   - sequence of:
 //       - block encoding
 //       - block
+//
+// compressed layout is a sequence of:
+//   - uncompressed size (int)
+//   - compressed size (int), equal to the uncompressed size if the page is not compressed
+//   - page in the above layout, compressed with snappy unless stored as is
 public final class PagesSerde
 {
+    // pages that do not shrink below this fraction of their size are sent uncompressed
+    private static final double MAX_COMPRESSION_RATIO = 0.8;
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
     private PagesSerde() {}
 
     public static void writePages(BlockEncodingSerde blockEncodingSerde, SliceOutput sliceOutput, Page... pages)
@@ -59,6 +76,19 @@ public final class PagesSerde
         return new PagesReader(blockEncodingSerde, sliceInput);
     }
 
+    public static void writeCompressedPages(BlockEncodingSerde blockEncodingSerde, SliceOutput sliceOutput, Iterable<Page> pages, PageCompressionStats stats)
+    {
+        CompressedPagesWriter pagesWriter = new CompressedPagesWriter(blockEncodingSerde, sliceOutput, stats);
+        for (Page page : pages) {
+            pagesWriter.append(page);
+        }
+    }
+
+    public static Iterator<Page> readCompressedPages(BlockEncodingSerde blockEncodingSerde, SliceInput sliceInput, PageCompressionStats stats)
+    {
+        return new CompressedPagesReader(blockEncodingSerde, sliceInput, stats);
+    }
+
     private static class PagesWriter
     {
         private final BlockEncodingSerde serde;
@@ -120,4 +150,102 @@ public final class PagesSerde
             return page;
         }
     }
+
+    private static class CompressedPagesWriter
+    {
+        private final PagesWriter pageWriter;
+        private final DynamicSliceOutput pageBuffer = new DynamicSliceOutput(64 * 1024);
+        private final SliceOutput output;
+        private final PageCompressionStats stats;
+        private byte[] compressed = new byte[0];
+
+        private CompressedPagesWriter(BlockEncodingSerde serde, SliceOutput output, PageCompressionStats stats)
+        {
+            this.pageWriter = new PagesWriter(serde, pageBuffer);
+            this.output = checkNotNull(output, "output is null");
+            this.stats = checkNotNull(stats, "stats is null");
+        }
+
+        public CompressedPagesWriter append(Page page)
+        {
+            pageBuffer.reset();
+            pageWriter.append(page);
+            Slice serialized = pageBuffer.slice();
+            byte[] uncompressed = serialized.getBytes();
+
+            int maxCompressedLength = Snappy.maxCompressedLength(uncompressed.length);
+            if (compressed.length < maxCompressedLength) {
+                compressed = new byte[maxCompressedLength];
+            }
+            long start = THREAD_MX_BEAN.getCurrentThreadCpuTime();
+            int compressedSize = Snappy.compress(uncompressed, 0, uncompressed.length, compressed, 0);
+            stats.addCompressionCpuNanos(THREAD_MX_BEAN.getCurrentThreadCpuTime() - start);
+
+            output.writeInt(uncompressed.length);
+            if (compressedSize <= uncompressed.length * MAX_COMPRESSION_RATIO) {
+                output.writeInt(compressedSize);
+                output.writeBytes(compressed, 0, compressedSize);
+                stats.addPage(compressedSize, uncompressed.length);
+            }
+            else {
+                output.writeInt(uncompressed.length);
+                output.writeBytes(uncompressed);
+                stats.addPage(uncompressed.length, uncompressed.length);
+            }
+            return this;
+        }
+    }
+
+    private static class CompressedPagesReader
+            extends AbstractIterator<Page>
+    {
+        private final BlockEncodingSerde serde;
+        private final SliceInput input;
+        private final PageCompressionStats stats;
+
+        public CompressedPagesReader(BlockEncodingSerde serde, SliceInput input, PageCompressionStats stats)
+        {
+            this.serde = checkNotNull(serde, "serde is null");
+            this.input = checkNotNull(input, "input is null");
+            this.stats = checkNotNull(stats, "stats is null");
+        }
+
+        @Override
+        protected Page computeNext()
+        {
+            if (!input.isReadable()) {
+                return endOfData();
+            }
+
+            int uncompressedSize = input.readInt();
+            int compressedSize = input.readInt();
+            byte[] compressed = new byte[compressedSize];
+            input.readBytes(compressed);
+            stats.addPage(compressedSize, uncompressedSize);
+
+            Slice serialized;
+            if (compressedSize == uncompressedSize) {
+                serialized = Slices.wrappedBuffer(compressed);
+            }
+            else {
+                long start = THREAD_MX_BEAN.getCurrentThreadCpuTime();
+                serialized = Slices.wrappedBuffer(uncompress(compressed, uncompressedSize));
+                stats.addDecompressionCpuNanos(THREAD_MX_BEAN.getCurrentThreadCpuTime() - start);
+            }
+            return new PagesReader(serde, serialized.getInput()).next();
+        }
+
+        private static byte[] uncompress(byte[] compressed, int uncompressedSize)
+        {
+            try {
+                byte[] uncompressed = new byte[uncompressedSize];
+                int size = Snappy.uncompress(compressed, 0, compressed.length, uncompressed, 0);
+                checkState(size == uncompressedSize, "Corrupt compressed page: expected %s bytes, but got %s", uncompressedSize, size);
+                return uncompressed;
+            }
+            catch (CorruptionException e) {
+                throw new IllegalStateException("Corrupt compressed page", e);
+            }
+        }
+    }
 }
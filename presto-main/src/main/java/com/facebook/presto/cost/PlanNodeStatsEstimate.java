@@ -0,0 +1,110 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.cost;
+
+import com.facebook.presto.spi.type.FixedWidthType;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.sql.planner.Symbol;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Collection;
+import java.util.Map;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Estimated statistics of the output of a plan node. Estimates that are not known are NaN.
+ */
+public final class PlanNodeStatsEstimate
+{
+    // assumed size of a value of a variable width type, such as a varchar
+    private static final int VARIABLE_WIDTH_VALUE_SIZE = 32;
+
+    public static final PlanNodeStatsEstimate UNKNOWN = new PlanNodeStatsEstimate(Double.NaN, ImmutableMap.of());
+
+    private final double outputRowCount;
+    private final Map<Symbol, Double> distinctValuesCounts;
+
+    public PlanNodeStatsEstimate(double outputRowCount, Map<Symbol, Double> distinctValuesCounts)
+    {
+        checkArgument(Double.isNaN(outputRowCount) || outputRowCount >= 0, "outputRowCount is negative");
+        this.outputRowCount = outputRowCount;
+
+        // a symbol can not have more distinct values than there are rows
+        ImmutableMap.Builder<Symbol, Double> builder = ImmutableMap.builder();
+        for (Map.Entry<Symbol, Double> entry : checkNotNull(distinctValuesCounts, "distinctValuesCounts is null").entrySet()) {
+            if (!entry.getValue().isNaN()) {
+                builder.put(entry.getKey(), Double.isNaN(outputRowCount) ? entry.getValue() : Math.min(entry.getValue(), outputRowCount));
+            }
+        }
+        this.distinctValuesCounts = builder.build();
+    }
+
+    public double getOutputRowCount()
+    {
+        return outputRowCount;
+    }
+
+    public boolean isOutputRowCountUnknown()
+    {
+        return Double.isNaN(outputRowCount);
+    }
+
+    /**
+     * Returns the number of distinct values of a symbol, or NaN when not known.
+     */
+    public double getDistinctValuesCount(Symbol symbol)
+    {
+        Double distinctValuesCount = distinctValuesCounts.get(symbol);
+        if (distinctValuesCount == null) {
+            return Double.NaN;
+        }
+        return distinctValuesCount;
+    }
+
+    public Map<Symbol, Double> getDistinctValuesCounts()
+    {
+        return distinctValuesCounts;
+    }
+
+    /**
+     * Returns the estimated size in bytes of the given symbols of all output rows, or NaN when
+     * the row count is not known.
+     */
+    public double getOutputSizeInBytes(Collection<Symbol> outputSymbols, Map<Symbol, Type> types)
+    {
+        double rowSize = 0;
+        for (Symbol symbol : outputSymbols) {
+            Type type = types.get(symbol);
+            if (type instanceof FixedWidthType) {
+                rowSize += ((FixedWidthType) type).getFixedSize();
+            }
+            else {
+                rowSize += VARIABLE_WIDTH_VALUE_SIZE;
+            }
+        }
+        return outputRowCount * rowSize;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("outputRowCount", outputRowCount)
+                .add("distinctValuesCounts", distinctValuesCounts)
+                .toString();
+    }
+}
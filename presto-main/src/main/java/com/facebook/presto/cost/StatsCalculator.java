@@ -0,0 +1,474 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.cost;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.metadata.ColumnHandle;
+import com.facebook.presto.metadata.Metadata;
+import com.facebook.presto.spi.ColumnStatistics;
+import com.facebook.presto.spi.Domain;
+import com.facebook.presto.spi.Marker;
+import com.facebook.presto.spi.Range;
+import com.facebook.presto.spi.SortedRangeSet;
+import com.facebook.presto.spi.TableStatistics;
+import com.facebook.presto.spi.TupleDomain;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.sql.planner.DomainTranslator;
+import com.facebook.presto.sql.planner.Symbol;
+import com.facebook.presto.sql.planner.plan.AggregationNode;
+import com.facebook.presto.sql.planner.plan.ExchangeNode;
+import com.facebook.presto.sql.planner.plan.FilterNode;
+import com.facebook.presto.sql.planner.plan.JoinNode;
+import com.facebook.presto.sql.planner.plan.LimitNode;
+import com.facebook.presto.sql.planner.plan.MarkDistinctNode;
+import com.facebook.presto.sql.planner.plan.OutputNode;
+import com.facebook.presto.sql.planner.plan.PlanNode;
+import com.facebook.presto.sql.planner.plan.PlanVisitor;
+import com.facebook.presto.sql.planner.plan.ProjectNode;
+import com.facebook.presto.sql.planner.plan.SampleNode;
+import com.facebook.presto.sql.planner.plan.SemiJoinNode;
+import com.facebook.presto.sql.planner.plan.SortNode;
+import com.facebook.presto.sql.planner.plan.TableScanNode;
+import com.facebook.presto.sql.planner.plan.TopNNode;
+import com.facebook.presto.sql.planner.plan.UnionNode;
+import com.facebook.presto.sql.planner.plan.ValuesNode;
+import com.facebook.presto.sql.planner.plan.WindowNode;
+import com.facebook.presto.sql.tree.Expression;
+import com.facebook.presto.sql.tree.QualifiedNameReference;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.facebook.presto.sql.tree.BooleanLiteral.TRUE_LITERAL;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Estimates the number of rows and the number of distinct values of the symbols
+ * produced by a plan, using the table statistics provided by the connectors.
+ */
+public class StatsCalculator
+{
+    // selectivity of predicates the statistics can not say anything about
+    private static final double UNKNOWN_FILTER_SELECTIVITY = 0.5;
+    private static final double UNKNOWN_EQUALITY_SELECTIVITY = 0.1;
+    private static final double UNKNOWN_RANGE_SELECTIVITY = 0.5;
+
+    private final Metadata metadata;
+
+    public StatsCalculator(Metadata metadata)
+    {
+        this.metadata = checkNotNull(metadata, "metadata is null");
+    }
+
+    public PlanNodeStatsEstimate calculateStats(PlanNode node, Session session, Map<Symbol, Type> types)
+    {
+        return createMemo(session, types).calculateStats(node);
+    }
+
+    /**
+     * Returns a calculator that remembers the estimates of the plan nodes and the statistics of
+     * the tables it has seen. It must only be used within a single optimizer run, as plan nodes
+     * are identified by reference and the table statistics are not refreshed.
+     */
+    public Memo createMemo(Session session, Map<Symbol, Type> types)
+    {
+        checkNotNull(session, "session is null");
+        checkNotNull(types, "types is null");
+        return new Memo(new Visitor(session, types));
+    }
+
+    public static final class Memo
+    {
+        private final Visitor visitor;
+
+        private Memo(Visitor visitor)
+        {
+            this.visitor = visitor;
+        }
+
+        public PlanNodeStatsEstimate calculateStats(PlanNode node)
+        {
+            checkNotNull(node, "node is null");
+            return visitor.getStats(node);
+        }
+    }
+
+    private class Visitor
+            extends PlanVisitor<Void, PlanNodeStatsEstimate>
+    {
+        private final Session session;
+        private final Map<Symbol, Type> types;
+        private final Map<PlanNode, PlanNodeStatsEstimate> stats = new IdentityHashMap<>();
+        private final Map<TableScanNode, Optional<TableStatistics>> tableStatistics = new IdentityHashMap<>();
+
+        public Visitor(Session session, Map<Symbol, Type> types)
+        {
+            this.session = session;
+            this.types = types;
+        }
+
+        public PlanNodeStatsEstimate getStats(PlanNode node)
+        {
+            PlanNodeStatsEstimate estimate = stats.get(node);
+            if (estimate == null) {
+                estimate = node.accept(this, null);
+                stats.put(node, estimate);
+            }
+            return estimate;
+        }
+
+        @Override
+        protected PlanNodeStatsEstimate visitPlan(PlanNode node, Void context)
+        {
+            return PlanNodeStatsEstimate.UNKNOWN;
+        }
+
+        @Override
+        public PlanNodeStatsEstimate visitTableScan(TableScanNode node, Void context)
+        {
+            TableStatistics statistics = getTableStatistics(node);
+            if (statistics == null) {
+                return PlanNodeStatsEstimate.UNKNOWN;
+            }
+
+            ImmutableMap.Builder<Symbol, Double> distinctValuesCounts = ImmutableMap.builder();
+            for (Map.Entry<Symbol, ColumnHandle> entry : node.getAssignments().entrySet()) {
+                ColumnStatistics columnStatistics = statistics.getColumnStatistics(entry.getValue().getConnectorHandle());
+                distinctValuesCounts.put(entry.getKey(), columnStatistics.getDistinctValuesCount());
+            }
+            return new PlanNodeStatsEstimate(statistics.getRowCount(), distinctValuesCounts.build());
+        }
+
+        @Override
+        public PlanNodeStatsEstimate visitFilter(FilterNode node, Void context)
+        {
+            PlanNodeStatsEstimate sourceStats = getStats(node.getSource());
+
+            double selectivity = UNKNOWN_FILTER_SELECTIVITY;
+            if (node.getSource() instanceof TableScanNode) {
+                // the statistics of the scan are remembered while computing its estimate
+                TableScanNode tableScan = (TableScanNode) node.getSource();
+                TableStatistics statistics = getTableStatistics(tableScan);
+                if (statistics != null) {
+                    DomainTranslator.ExtractionResult extractionResult = DomainTranslator.fromPredicate(
+                            metadata,
+                            session,
+                            node.getPredicate(),
+                            types,
+                            tableScan.getAssignments());
+                    selectivity = getSelectivity(extractionResult.getTupleDomain(), statistics);
+                    if (!extractionResult.getRemainingExpression().equals(TRUE_LITERAL)) {
+                        selectivity *= UNKNOWN_FILTER_SELECTIVITY;
+                    }
+                }
+            }
+            return new PlanNodeStatsEstimate(sourceStats.getOutputRowCount() * selectivity, sourceStats.getDistinctValuesCounts());
+        }
+
+        @Override
+        public PlanNodeStatsEstimate visitProject(ProjectNode node, Void context)
+        {
+            PlanNodeStatsEstimate sourceStats = getStats(node.getSource());
+
+            ImmutableMap.Builder<Symbol, Double> distinctValuesCounts = ImmutableMap.builder();
+            for (Map.Entry<Symbol, Expression> entry : node.getAssignments().entrySet()) {
+                if (entry.getValue() instanceof QualifiedNameReference) {
+                    Symbol symbol = Symbol.fromQualifiedName(((QualifiedNameReference) entry.getValue()).getName());
+                    distinctValuesCounts.put(entry.getKey(), sourceStats.getDistinctValuesCount(symbol));
+                }
+            }
+            return new PlanNodeStatsEstimate(sourceStats.getOutputRowCount(), distinctValuesCounts.build());
+        }
+
+        @Override
+        public PlanNodeStatsEstimate visitJoin(JoinNode node, Void context)
+        {
+            PlanNodeStatsEstimate leftStats = getStats(node.getLeft());
+            PlanNodeStatsEstimate rightStats = getStats(node.getRight());
+            double leftRows = leftStats.getOutputRowCount();
+            double rightRows = rightStats.getOutputRowCount();
+
+            Map<Symbol, Double> distinctValuesCounts = new HashMap<>();
+            distinctValuesCounts.putAll(leftStats.getDistinctValuesCounts());
+            distinctValuesCounts.putAll(rightStats.getDistinctValuesCounts());
+
+            double rows;
+            if (node.getType() == JoinNode.Type.CROSS || node.getCriteria().isEmpty()) {
+                rows = leftRows * rightRows;
+            }
+            else {
+                rows = Double.NaN;
+                for (JoinNode.EquiJoinClause clause : node.getCriteria()) {
+                    double leftDistinct = leftStats.getDistinctValuesCount(clause.getLeft());
+                    double rightDistinct = rightStats.getDistinctValuesCount(clause.getRight());
+                    double distinct = Double.isNaN(leftDistinct) ? rightDistinct : Double.isNaN(rightDistinct) ? leftDistinct : Math.max(leftDistinct, rightDistinct);
+                    if (Double.isNaN(distinct)) {
+                        continue;
+                    }
+                    double clauseRows = distinct == 0 ? 0 : leftRows * rightRows / distinct;
+                    rows = Double.isNaN(rows) ? clauseRows : Math.min(rows, clauseRows);
+
+                    // only the values present on both sides survive the join
+                    double joinedDistinct = Double.isNaN(leftDistinct) || Double.isNaN(rightDistinct) ? distinct : Math.min(leftDistinct, rightDistinct);
+                    distinctValuesCounts.put(clause.getLeft(), joinedDistinct);
+                    distinctValuesCounts.put(clause.getRight(), joinedDistinct);
+                }
+                if (Double.isNaN(rows)) {
+                    // assume a foreign key join
+                    rows = Math.max(leftRows, rightRows);
+                }
+            }
+
+            if (node.getType() == JoinNode.Type.LEFT) {
+                rows = Math.max(rows, leftRows);
+            }
+            if (node.getType() == JoinNode.Type.RIGHT) {
+                rows = Math.max(rows, rightRows);
+            }
+            return new PlanNodeStatsEstimate(rows, distinctValuesCounts);
+        }
+
+        @Override
+        public PlanNodeStatsEstimate visitAggregation(AggregationNode node, Void context)
+        {
+            PlanNodeStatsEstimate sourceStats = getStats(node.getSource());
+            if (node.getGroupBy().isEmpty()) {
+                return new PlanNodeStatsEstimate(1, ImmutableMap.of());
+            }
+
+            ImmutableMap.Builder<Symbol, Double> distinctValuesCounts = ImmutableMap.builder();
+            double groups = 1;
+            for (Symbol symbol : node.getGroupBy()) {
+                double distinct = sourceStats.getDistinctValuesCount(symbol);
+                distinctValuesCounts.put(symbol, distinct);
+                groups *= distinct;
+            }
+
+            double rows = sourceStats.getOutputRowCount();
+            if (!Double.isNaN(groups)) {
+                rows = Double.isNaN(rows) ? groups : Math.min(rows, groups);
+            }
+            return new PlanNodeStatsEstimate(rows, distinctValuesCounts.build());
+        }
+
+        @Override
+        public PlanNodeStatsEstimate visitLimit(LimitNode node, Void context)
+        {
+            return limit(getStats(node.getSource()), node.getCount());
+        }
+
+        @Override
+        public PlanNodeStatsEstimate visitTopN(TopNNode node, Void context)
+        {
+            return limit(getStats(node.getSource()), node.getCount());
+        }
+
+        @Override
+        public PlanNodeStatsEstimate visitValues(ValuesNode node, Void context)
+        {
+            return new PlanNodeStatsEstimate(node.getRows().size(), ImmutableMap.of());
+        }
+
+        @Override
+        public PlanNodeStatsEstimate visitSample(SampleNode node, Void context)
+        {
+            PlanNodeStatsEstimate sourceStats = getStats(node.getSource());
+            return new PlanNodeStatsEstimate(sourceStats.getOutputRowCount() * node.getSampleRatio(), sourceStats.getDistinctValuesCounts());
+        }
+
+        @Override
+        public PlanNodeStatsEstimate visitSort(SortNode node, Void context)
+        {
+            return getStats(node.getSource());
+        }
+
+        @Override
+        public PlanNodeStatsEstimate visitOutput(OutputNode node, Void context)
+        {
+            return getStats(node.getSource());
+        }
+
+        @Override
+        public PlanNodeStatsEstimate visitWindow(WindowNode node, Void context)
+        {
+            return getStats(node.getSource());
+        }
+
+        @Override
+        public PlanNodeStatsEstimate visitMarkDistinct(MarkDistinctNode node, Void context)
+        {
+            return getStats(node.getSource());
+        }
+
+        @Override
+        public PlanNodeStatsEstimate visitSemiJoin(SemiJoinNode node, Void context)
+        {
+            return getStats(node.getSource());
+        }
+
+        @Override
+        public PlanNodeStatsEstimate visitUnion(UnionNode node, Void context)
+        {
+            return sum(node.getSources());
+        }
+
+        @Override
+        public PlanNodeStatsEstimate visitExchange(ExchangeNode node, Void context)
+        {
+            if (node.getSources().size() == 1) {
+                return getStats(node.getSources().get(0));
+            }
+            return sum(node.getSources());
+        }
+
+        private PlanNodeStatsEstimate sum(List<PlanNode> sources)
+        {
+            double rows = 0;
+            for (PlanNode source : sources) {
+                rows += getStats(source).getOutputRowCount();
+            }
+            return new PlanNodeStatsEstimate(rows, ImmutableMap.of());
+        }
+
+        private PlanNodeStatsEstimate limit(PlanNodeStatsEstimate sourceStats, long count)
+        {
+            double rows = sourceStats.getOutputRowCount();
+            rows = Double.isNaN(rows) ? count : Math.min(rows, count);
+            return new PlanNodeStatsEstimate(rows, sourceStats.getDistinctValuesCounts());
+        }
+
+        private TableStatistics getTableStatistics(TableScanNode node)
+        {
+            Optional<TableStatistics> statistics = tableStatistics.get(node);
+            if (statistics == null) {
+                // statistics are only available once the partitions to scan are known
+                if (node.getGeneratedPartitions().isPresent()) {
+                    statistics = Optional.of(metadata.getTableStatistics(session, node.getTable(), node.getGeneratedPartitions().get().getPartitions()));
+                }
+                else {
+                    statistics = Optional.empty();
+                }
+                tableStatistics.put(node, statistics);
+            }
+            return statistics.orElse(null);
+        }
+    }
+
+    /**
+     * Returns the estimated fraction of the rows of a table that match a predicate.
+     */
+    static double getSelectivity(TupleDomain<ColumnHandle> tupleDomain, TableStatistics statistics)
+    {
+        if (tupleDomain.isNone()) {
+            return 0;
+        }
+
+        double selectivity = 1;
+        for (Map.Entry<ColumnHandle, Domain> entry : tupleDomain.getDomains().entrySet()) {
+            selectivity *= getSelectivity(entry.getValue(), statistics.getColumnStatistics(entry.getKey().getConnectorHandle()));
+        }
+        return selectivity;
+    }
+
+    static double getSelectivity(Domain domain, ColumnStatistics statistics)
+    {
+        if (domain.isNone()) {
+            return 0;
+        }
+        if (domain.isAll()) {
+            return 1;
+        }
+
+        double nullsFraction = statistics.getNullsFraction();
+        SortedRangeSet ranges = domain.getRanges();
+        if (Double.isNaN(nullsFraction)) {
+            if (ranges.isNone()) {
+                // IS NULL
+                return UNKNOWN_EQUALITY_SELECTIVITY;
+            }
+            nullsFraction = 0;
+        }
+
+        double nonNullSelectivity = 0;
+        if (ranges.isAll()) {
+            nonNullSelectivity = 1;
+        }
+        else {
+            for (Range range : ranges.getRanges()) {
+                nonNullSelectivity += getSelectivity(range, statistics);
+            }
+        }
+
+        double selectivity = (1 - nullsFraction) * Math.min(nonNullSelectivity, 1);
+        if (domain.isNullAllowed()) {
+            selectivity += nullsFraction;
+        }
+        return selectivity;
+    }
+
+    private static double getSelectivity(Range range, ColumnStatistics statistics)
+    {
+        double distinctValuesCount = statistics.getDistinctValuesCount();
+        if (range.isSingleValue()) {
+            if (Double.isNaN(distinctValuesCount)) {
+                return UNKNOWN_EQUALITY_SELECTIVITY;
+            }
+            return distinctValuesCount == 0 ? 0 : 1 / Math.max(distinctValuesCount, 1);
+        }
+
+        Double min = toDouble(statistics.getMin());
+        Double max = toDouble(statistics.getMax());
+        if (min == null || max == null) {
+            return UNKNOWN_RANGE_SELECTIVITY;
+        }
+
+        double low = min;
+        if (!range.getLow().isLowerUnbounded()) {
+            Double value = toDouble(range.getLow().getValue());
+            if (value == null) {
+                return UNKNOWN_RANGE_SELECTIVITY;
+            }
+            low = Math.max(low, value);
+        }
+
+        double high = max;
+        if (!range.getHigh().isUpperUnbounded()) {
+            Double value = toDouble(range.getHigh().getValue());
+            if (value == null) {
+                return UNKNOWN_RANGE_SELECTIVITY;
+            }
+            high = Math.min(high, value);
+        }
+
+        if (low > high) {
+            return 0;
+        }
+        if (max.equals(min)) {
+            return range.includes(Marker.exactly(statistics.getMin())) ? 1 : 0;
+        }
+        return (high - low) / (max - min);
+    }
+
+    private static Double toDouble(Comparable<?> value)
+    {
+        if (value instanceof Long || value instanceof Double) {
+            return ((Number) value).doubleValue();
+        }
+        return null;
+    }
+}
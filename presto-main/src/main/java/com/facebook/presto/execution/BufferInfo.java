@@ -16,6 +16,7 @@ package com.facebook.presto.execution;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.base.Preconditions;
+import io.airlift.units.Duration;
 
 import java.util.Objects;
 
@@ -27,20 +28,30 @@ public class BufferInfo
     private final boolean finished;
     private final int bufferedPages;
     private final long pagesSent;
+    private final long bufferedBytes;
+    private final long maxBufferedBytes;
+    private final Duration blockedTime;
 
     @JsonCreator
     public BufferInfo(
             @JsonProperty("bufferId") TaskId bufferId,
             @JsonProperty("finished") boolean finished,
             @JsonProperty("bufferedPages") int bufferedPages,
-            @JsonProperty("pagesSent") long pagesSent)
+            @JsonProperty("pagesSent") long pagesSent,
+            @JsonProperty("bufferedBytes") long bufferedBytes,
+            @JsonProperty("maxBufferedBytes") long maxBufferedBytes,
+            @JsonProperty("blockedTime") Duration blockedTime)
     {
         Preconditions.checkNotNull(bufferId, "bufferId is null");
+        Preconditions.checkNotNull(blockedTime, "blockedTime is null");
 
         this.bufferId = bufferId;
         this.finished = finished;
         this.bufferedPages = bufferedPages;
         this.pagesSent = pagesSent;
+        this.bufferedBytes = bufferedBytes;
+        this.maxBufferedBytes = maxBufferedBytes;
+        this.blockedTime = blockedTime;
     }
 
     @JsonProperty
@@ -67,6 +78,30 @@ public class BufferInfo
         return pagesSent;
     }
 
+    @JsonProperty
+    public long getBufferedBytes()
+    {
+        return bufferedBytes;
+    }
+
+    /**
+     * The size of this partition at which the producer of the buffer is blocked.
+     */
+    @JsonProperty
+    public long getMaxBufferedBytes()
+    {
+        return maxBufferedBytes;
+    }
+
+    /**
+     * The time the producer of the buffer was blocked while this partition was full.
+     */
+    @JsonProperty
+    public Duration getBlockedTime()
+    {
+        return blockedTime;
+    }
+
     @Override
     public boolean equals(Object obj)
     {
@@ -80,13 +115,16 @@ public class BufferInfo
         return Objects.equals(this.bufferId, other.bufferId) &&
                 Objects.equals(this.finished, other.finished) &&
                 Objects.equals(this.bufferedPages, other.bufferedPages) &&
-                Objects.equals(this.pagesSent, other.pagesSent);
+                Objects.equals(this.pagesSent, other.pagesSent) &&
+                Objects.equals(this.bufferedBytes, other.bufferedBytes) &&
+                Objects.equals(this.maxBufferedBytes, other.maxBufferedBytes) &&
+                Objects.equals(this.blockedTime, other.blockedTime);
     }
 
     @Override
     public int hashCode()
     {
-        return Objects.hash(bufferId, finished, bufferedPages, pagesSent);
+        return Objects.hash(bufferId, finished, bufferedPages, pagesSent, bufferedBytes, maxBufferedBytes, blockedTime);
     }
 
     @Override
@@ -97,6 +135,9 @@ public class BufferInfo
                 .add("finished", finished)
                 .add("bufferedPages", bufferedPages)
                 .add("pagesSent", pagesSent)
+                .add("bufferedBytes", bufferedBytes)
+                .add("maxBufferedBytes", maxBufferedBytes)
+                .add("blockedTime", blockedTime)
                 .toString();
     }
 }
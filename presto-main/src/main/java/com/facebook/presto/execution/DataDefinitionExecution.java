@@ -17,13 +17,18 @@ import com.facebook.presto.Session;
 import com.facebook.presto.execution.StateMachine.StateChangeListener;
 import com.facebook.presto.metadata.Metadata;
 import com.facebook.presto.metadata.MetadataManager;
+import com.facebook.presto.resultcache.CachedQueryResult;
+import com.facebook.presto.resultcache.QueryResultCacheKey;
+import com.facebook.presto.sql.tree.Expression;
 import com.facebook.presto.sql.tree.Statement;
 import io.airlift.units.Duration;
 
 import javax.inject.Inject;
 
 import java.net.URI;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -98,6 +103,18 @@ public class DataDefinitionExecution<T extends Statement>
         // no-op
     }
 
+    @Override
+    public Optional<QueryResultCacheKey> getResultCacheKey()
+    {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<CachedQueryResult> getCachedResult()
+    {
+        return Optional.empty();
+    }
+
     @Override
     public void recordHeartbeat()
     {
@@ -142,8 +159,10 @@ public class DataDefinitionExecution<T extends Statement>
                 QueryId queryId,
                 String query,
                 Session session,
-                Statement statement)
+                Statement statement,
+                List<Expression> parameters)
         {
+            checkArgument(parameters.isEmpty(), "parameters are not supported for %s", statement.getClass().getSimpleName());
             URI self = locationFactory.createQueryLocation(queryId);
             QueryStateMachine stateMachine = new QueryStateMachine(queryId, query, session, self, executor);
             return createExecution(statement, session, stateMachine);
@@ -0,0 +1,41 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.metadata.Metadata;
+import com.facebook.presto.sql.analyzer.SemanticException;
+import com.facebook.presto.sql.tree.Deallocate;
+
+import static com.facebook.presto.sql.analyzer.SemanticErrorCode.PREPARED_STATEMENT_NOT_FOUND;
+
+public class DeallocateTask
+        implements DataDefinitionTask<Deallocate>
+{
+    @Override
+    public String getName()
+    {
+        return "DEALLOCATE";
+    }
+
+    @Override
+    public void execute(Deallocate statement, Session session, Metadata metadata, QueryStateMachine stateMachine)
+    {
+        if (!session.getPreparedStatements().containsKey(statement.getName())) {
+            throw new SemanticException(PREPARED_STATEMENT_NOT_FOUND, statement, "Prepared statement not found: %s", statement.getName());
+        }
+
+        stateMachine.removePreparedStatement(statement.getName());
+    }
+}
@@ -15,9 +15,12 @@ package com.facebook.presto.execution;
 
 import com.facebook.presto.Session;
 import com.facebook.presto.execution.StateMachine.StateChangeListener;
+import com.facebook.presto.resultcache.CachedQueryResult;
+import com.facebook.presto.resultcache.QueryResultCacheKey;
 import io.airlift.units.Duration;
 
 import java.net.URI;
+import java.util.Optional;
 import java.util.concurrent.Executor;
 
 public class FailedQueryExecution
@@ -76,6 +79,18 @@ public class FailedQueryExecution
         // no-op
     }
 
+    @Override
+    public Optional<QueryResultCacheKey> getResultCacheKey()
+    {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<CachedQueryResult> getCachedResult()
+    {
+        return Optional.empty();
+    }
+
     @Override
     public void recordHeartbeat()
     {
@@ -40,6 +40,7 @@ import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
@@ -203,6 +204,25 @@ public class NodeScheduler
          *      If we cannot find an assignment for a split, it is not included in the map.
          */
         public Multimap<Node, Split> computeAssignments(Set<Split> splits, Iterable<RemoteTask> existingTasks)
+        {
+            return computeAssignments(splits, existingTasks, Optional.empty());
+        }
+
+        /**
+         * Identifies the nodes for running the specified splits of bucketed tables.
+         *
+         * @param bucketNodes the node of each bucket that has been assigned before. The splits of these buckets
+         *      are only assigned to the same node, and the node chosen for a split of a new bucket is added.
+         *
+         * @return a multimap from node to splits only for splits for which we could identify a node to schedule on.
+         *      If we cannot find an assignment for a split, it is not included in the map.
+         */
+        public Multimap<Node, Split> computeBucketedAssignments(Set<Split> splits, Iterable<RemoteTask> existingTasks, Map<Integer, Node> bucketNodes)
+        {
+            return computeAssignments(splits, existingTasks, Optional.of(checkNotNull(bucketNodes, "bucketNodes is null")));
+        }
+
+        private Multimap<Node, Split> computeAssignments(Set<Split> splits, Iterable<RemoteTask> existingTasks, Optional<Map<Integer, Node>> bucketNodes)
         {
             Multimap<Node, Split> assignment = HashMultimap.create();
             Map<Node, Integer> assignmentCount = new HashMap<>();
@@ -222,7 +242,10 @@ public class NodeScheduler
 
             for (Split split : splits) {
                 List<Node> candidateNodes;
-                if (locationAwareScheduling || !split.isRemotelyAccessible()) {
+                if (bucketNodes.isPresent() && bucketNodes.get().containsKey(split.getBucket())) {
+                    candidateNodes = ImmutableList.of(bucketNodes.get().get(split.getBucket()));
+                }
+                else if (locationAwareScheduling || !split.isRemotelyAccessible()) {
                     candidateNodes = selectCandidateNodes(nodeMap.get().get(), split);
                 }
                 else {
@@ -266,6 +289,9 @@ public class NodeScheduler
                     assignment.put(chosenNode, split);
                     int count = assignmentCount.containsKey(chosenNode) ? assignmentCount.get(chosenNode) : 0;
                     assignmentCount.put(chosenNode, count + 1);
+                    if (bucketNodes.isPresent()) {
+                        bucketNodes.get().putIfAbsent(split.getBucket(), chosenNode);
+                    }
                 }
             }
             return assignment;
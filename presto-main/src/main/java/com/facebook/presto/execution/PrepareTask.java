@@ -0,0 +1,47 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.metadata.Metadata;
+import com.facebook.presto.sql.analyzer.SemanticException;
+import com.facebook.presto.sql.tree.Deallocate;
+import com.facebook.presto.sql.tree.Execute;
+import com.facebook.presto.sql.tree.Prepare;
+import com.facebook.presto.sql.tree.Statement;
+
+import static com.facebook.presto.sql.SqlFormatter.formatSql;
+import static com.facebook.presto.sql.analyzer.SemanticErrorCode.NOT_SUPPORTED;
+
+public class PrepareTask
+        implements DataDefinitionTask<Prepare>
+{
+    @Override
+    public String getName()
+    {
+        return "PREPARE";
+    }
+
+    @Override
+    public void execute(Prepare statement, Session session, Metadata metadata, QueryStateMachine stateMachine)
+    {
+        Statement prepared = statement.getStatement();
+        if (prepared instanceof Prepare || prepared instanceof Execute || prepared instanceof Deallocate) {
+            throw new SemanticException(NOT_SUPPORTED, statement, "Invalid statement type for prepared statement: %s", prepared.getClass().getSimpleName().toUpperCase());
+        }
+
+        // the client sends the statement back with every query, so store it in canonical form
+        stateMachine.addPreparedStatement(statement.getName(), formatSql(prepared));
+    }
+}
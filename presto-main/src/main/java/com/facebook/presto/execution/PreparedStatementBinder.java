@@ -0,0 +1,199 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.metadata.Metadata;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.sql.ExpressionFormatter;
+import com.facebook.presto.sql.analyzer.SemanticException;
+import com.facebook.presto.sql.parser.SqlParser;
+import com.facebook.presto.sql.tree.Deallocate;
+import com.facebook.presto.sql.tree.DefaultTraversalVisitor;
+import com.facebook.presto.sql.tree.Execute;
+import com.facebook.presto.sql.tree.Expression;
+import com.facebook.presto.sql.tree.Join;
+import com.facebook.presto.sql.tree.JoinOn;
+import com.facebook.presto.sql.tree.Parameter;
+import com.facebook.presto.sql.tree.Prepare;
+import com.facebook.presto.sql.tree.QualifiedNameReference;
+import com.facebook.presto.sql.tree.Query;
+import com.facebook.presto.sql.tree.SampledRelation;
+import com.facebook.presto.sql.tree.Statement;
+import com.facebook.presto.sql.tree.SubqueryExpression;
+import com.facebook.presto.sql.tree.Unnest;
+import com.facebook.presto.sql.tree.Values;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.facebook.presto.sql.ExpressionFormatter.formatExpression;
+import static com.facebook.presto.sql.analyzer.ExpressionAnalyzer.getExpressionTypes;
+import static com.facebook.presto.sql.analyzer.SemanticErrorCode.EXPRESSION_NOT_CONSTANT;
+import static com.facebook.presto.sql.analyzer.SemanticErrorCode.INVALID_PARAMETER_USAGE;
+import static com.facebook.presto.sql.analyzer.SemanticErrorCode.NOT_SUPPORTED;
+import static com.facebook.presto.sql.analyzer.SemanticErrorCode.PREPARED_STATEMENT_NOT_FOUND;
+import static com.facebook.presto.sql.parser.ParameterBinder.bindParameters;
+import static com.facebook.presto.sql.parser.ParameterBinder.countParameters;
+import static com.facebook.presto.sql.planner.ExpressionInterpreter.expressionInterpreter;
+import static com.facebook.presto.sql.planner.LiteralInterpreter.toExpression;
+import static com.facebook.presto.sql.planner.optimizations.CanonicalizeExpressions.canonicalizeExpression;
+import static com.facebook.presto.util.ImmutableCollectors.toImmutableList;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Resolves an EXECUTE to the prepared statement it names and the values of the USING
+ * expressions, evaluated to literals.  Queries keep their parameters, which are bound to
+ * the values when the query is planned, so all executions share the analysis of the
+ * statement.  Other statements, and queries with parameters in clauses the analyzer or
+ * planner evaluate to constants, have the parameters replaced by the values in the text.
+ */
+final class PreparedStatementBinder
+{
+    private PreparedStatementBinder() {}
+
+    public static BoundStatement bindPreparedStatement(Execute execute, Session session, Metadata metadata, SqlParser sqlParser)
+    {
+        String sql = session.getPreparedStatements().get(execute.getName());
+        if (sql == null) {
+            throw new SemanticException(PREPARED_STATEMENT_NOT_FOUND, execute, "Prepared statement not found: %s", execute.getName());
+        }
+
+        int parameters = countParameters(sql);
+        if (parameters != execute.getParameters().size()) {
+            throw new SemanticException(INVALID_PARAMETER_USAGE, execute, "Prepared statement %s takes %s parameters, but %s were provided", execute.getName(), parameters, execute.getParameters().size());
+        }
+
+        List<Expression> values = execute.getParameters().stream()
+                .map(parameter -> evaluateParameter(parameter, session, metadata, sqlParser))
+                .collect(toImmutableList());
+
+        Statement statement = sqlParser.createStatement(sql);
+        if (statement instanceof Prepare || statement instanceof Execute || statement instanceof Deallocate) {
+            throw new SemanticException(NOT_SUPPORTED, execute, "Invalid statement type for prepared statement: %s", statement.getClass().getSimpleName().toUpperCase());
+        }
+
+        if (parameters == 0 || (statement instanceof Query && !hasConstantParameters(statement))) {
+            return new BoundStatement(statement, values);
+        }
+
+        List<String> formattedValues = values.stream()
+                .map(ExpressionFormatter::formatExpression)
+                .collect(toImmutableList());
+        return new BoundStatement(sqlParser.createStatement(bindParameters(sql, formattedValues)), ImmutableList.of());
+    }
+
+    private static Expression evaluateParameter(Expression parameter, Session session, Metadata metadata, SqlParser sqlParser)
+    {
+        new DefaultTraversalVisitor<Void, Void>()
+        {
+            @Override
+            protected Void visitQualifiedNameReference(QualifiedNameReference node, Void context)
+            {
+                throw new SemanticException(EXPRESSION_NOT_CONSTANT, parameter, "Parameter value cannot contain column references: %s", formatExpression(parameter));
+            }
+
+            @Override
+            protected Void visitSubqueryExpression(SubqueryExpression node, Void context)
+            {
+                throw new SemanticException(EXPRESSION_NOT_CONSTANT, parameter, "Parameter value cannot contain subqueries: %s", formatExpression(parameter));
+            }
+        }.process(parameter, null);
+
+        Expression canonicalized = canonicalizeExpression(parameter);
+        IdentityHashMap<Expression, Type> types = getExpressionTypes(session, metadata, sqlParser, ImmutableMap.of(), canonicalized);
+        Object value = expressionInterpreter(canonicalized, metadata, session, types).evaluate(0);
+        return toExpression(value, types.get(canonicalized));
+    }
+
+    /**
+     * Returns whether the statement has parameters in a clause the analyzer or planner
+     * evaluate to a constant, which needs the values.
+     */
+    private static boolean hasConstantParameters(Statement statement)
+    {
+        AtomicBoolean found = new AtomicBoolean();
+        new DefaultTraversalVisitor<Void, Boolean>()
+        {
+            @Override
+            protected Void visitParameter(Parameter node, Boolean constant)
+            {
+                if (constant) {
+                    found.set(true);
+                }
+                return null;
+            }
+
+            @Override
+            protected Void visitSampledRelation(SampledRelation node, Boolean constant)
+            {
+                process(node.getRelation(), constant);
+                process(node.getSamplePercentage(), true);
+                return null;
+            }
+
+            @Override
+            protected Void visitJoin(Join node, Boolean constant)
+            {
+                process(node.getLeft(), constant);
+                process(node.getRight(), constant);
+                if (node.getCriteria().isPresent() && node.getCriteria().get() instanceof JoinOn) {
+                    process(((JoinOn) node.getCriteria().get()).getExpression(), true);
+                }
+                return null;
+            }
+
+            @Override
+            protected Void visitValues(Values node, Boolean constant)
+            {
+                return super.visitValues(node, true);
+            }
+
+            @Override
+            protected Void visitUnnest(Unnest node, Boolean constant)
+            {
+                return super.visitUnnest(node, true);
+            }
+        }.process(statement, false);
+        return found.get();
+    }
+
+    public static final class BoundStatement
+    {
+        private final Statement statement;
+        private final List<Expression> parameters;
+
+        private BoundStatement(Statement statement, List<Expression> parameters)
+        {
+            this.statement = checkNotNull(statement, "statement is null");
+            this.parameters = ImmutableList.copyOf(checkNotNull(parameters, "parameters is null"));
+        }
+
+        public Statement getStatement()
+        {
+            return statement;
+        }
+
+        /**
+         * The values of the parameters the statement still has, by position.
+         */
+        public List<Expression> getParameters()
+        {
+            return parameters;
+        }
+    }
+}
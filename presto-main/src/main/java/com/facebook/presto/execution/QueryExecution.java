@@ -15,9 +15,15 @@ package com.facebook.presto.execution;
 
 import com.facebook.presto.Session;
 import com.facebook.presto.execution.StateMachine.StateChangeListener;
+import com.facebook.presto.resultcache.CachedQueryResult;
+import com.facebook.presto.resultcache.QueryResultCacheKey;
+import com.facebook.presto.sql.tree.Expression;
 import com.facebook.presto.sql.tree.Statement;
 import io.airlift.units.Duration;
 
+import java.util.List;
+import java.util.Optional;
+
 public interface QueryExecution
 {
     QueryId getQueryId();
@@ -37,8 +43,12 @@ public interface QueryExecution
 
     void addStateChangeListener(StateChangeListener<QueryState> stateChangeListener);
 
+    Optional<QueryResultCacheKey> getResultCacheKey();
+
+    Optional<CachedQueryResult> getCachedResult();
+
     interface QueryExecutionFactory<T extends QueryExecution>
     {
-        T createQueryExecution(QueryId queryId, String query, Session session, Statement statement);
+        T createQueryExecution(QueryId queryId, String query, Session session, Statement statement, List<Expression> parameters);
     }
 }
@@ -48,6 +48,8 @@ public class QueryInfo
     private final QueryStats queryStats;
     private final Map<String, String> setSessionProperties;
     private final Set<String> resetSessionProperties;
+    private final Map<String, String> addedPreparedStatements;
+    private final Set<String> deallocatedPreparedStatements;
     private final String updateType;
     private final StageInfo outputStage;
     private final FailureInfo failureInfo;
@@ -67,6 +69,8 @@ public class QueryInfo
             @JsonProperty("queryStats") QueryStats queryStats,
             @JsonProperty("setSessionProperties") Map<String, String> setSessionProperties,
             @JsonProperty("resetSessionProperties") Set<String> resetSessionProperties,
+            @JsonProperty("addedPreparedStatements") Map<String, String> addedPreparedStatements,
+            @JsonProperty("deallocatedPreparedStatements") Set<String> deallocatedPreparedStatements,
             @JsonProperty("updateType") String updateType,
             @JsonProperty("outputStage") StageInfo outputStage,
             @JsonProperty("failureInfo") FailureInfo failureInfo,
@@ -81,6 +85,8 @@ public class QueryInfo
         Preconditions.checkNotNull(queryStats, "queryStats is null");
         Preconditions.checkNotNull(setSessionProperties, "setSessionProperties is null");
         Preconditions.checkNotNull(resetSessionProperties, "resetSessionProperties is null");
+        Preconditions.checkNotNull(addedPreparedStatements, "addedPreparedStatements is null");
+        Preconditions.checkNotNull(deallocatedPreparedStatements, "deallocatedPreparedStatements is null");
         Preconditions.checkNotNull(query, "query is null");
         Preconditions.checkNotNull(inputs, "inputs is null");
 
@@ -94,6 +100,8 @@ public class QueryInfo
         this.queryStats = queryStats;
         this.setSessionProperties = ImmutableMap.copyOf(setSessionProperties);
         this.resetSessionProperties = ImmutableSet.copyOf(resetSessionProperties);
+        this.addedPreparedStatements = ImmutableMap.copyOf(addedPreparedStatements);
+        this.deallocatedPreparedStatements = ImmutableSet.copyOf(deallocatedPreparedStatements);
         this.updateType = updateType;
         this.outputStage = outputStage;
         this.failureInfo = failureInfo;
@@ -162,6 +170,18 @@ public class QueryInfo
         return resetSessionProperties;
     }
 
+    @JsonProperty
+    public Map<String, String> getAddedPreparedStatements()
+    {
+        return addedPreparedStatements;
+    }
+
+    @JsonProperty
+    public Set<String> getDeallocatedPreparedStatements()
+    {
+        return deallocatedPreparedStatements;
+    }
+
     @Nullable
     @JsonProperty
     public String getUpdateType()
@@ -14,9 +14,12 @@
 package com.facebook.presto.execution;
 
 import com.facebook.presto.Session;
+import com.facebook.presto.resultcache.CachedQueryResult;
+import com.facebook.presto.resultcache.QueryResultCacheKey;
 import io.airlift.units.Duration;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface QueryManager
 {
@@ -34,4 +37,14 @@ public interface QueryManager
     void cancelQuery(QueryId queryId);
 
     void cancelStage(StageId stageId);
+
+    /**
+     * Returns the key to cache the results of the query under, if they can be cached.
+     */
+    Optional<QueryResultCacheKey> getResultCacheKey(QueryId queryId);
+
+    /**
+     * Returns the cached results the query is answered with instead of being executed, if any.
+     */
+    Optional<CachedQueryResult> getCachedResult(QueryId queryId);
 }
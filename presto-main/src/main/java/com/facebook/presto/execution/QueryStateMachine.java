@@ -88,6 +88,12 @@ public class QueryStateMachine
     @GuardedBy("this")
     private final Set<String> resetSessionProperties = new LinkedHashSet<>();
 
+    @GuardedBy("this")
+    private final Map<String, String> addedPreparedStatements = new LinkedHashMap<>();
+
+    @GuardedBy("this")
+    private final Set<String> deallocatedPreparedStatements = new LinkedHashSet<>();
+
     @GuardedBy("this")
     private String updateType;
 
@@ -254,6 +260,8 @@ public class QueryStateMachine
                 queryStats,
                 setSessionProperties,
                 resetSessionProperties,
+                addedPreparedStatements,
+                deallocatedPreparedStatements,
                 updateType,
                 rootStage,
                 failureInfo,
@@ -293,6 +301,26 @@ public class QueryStateMachine
         resetSessionProperties.add(checkNotNull(name, "name is null"));
     }
 
+    public synchronized Map<String, String> getAddedPreparedStatements()
+    {
+        return addedPreparedStatements;
+    }
+
+    public synchronized void addPreparedStatement(String name, String sql)
+    {
+        addedPreparedStatements.put(checkNotNull(name, "name is null"), checkNotNull(sql, "sql is null"));
+    }
+
+    public synchronized Set<String> getDeallocatedPreparedStatements()
+    {
+        return deallocatedPreparedStatements;
+    }
+
+    public synchronized void removePreparedStatement(String name)
+    {
+        deallocatedPreparedStatements.add(checkNotNull(name, "name is null"));
+    }
+
     public synchronized void setUpdateType(String updateType)
     {
         this.updateType = updateType;
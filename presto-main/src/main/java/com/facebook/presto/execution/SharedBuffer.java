@@ -13,27 +13,34 @@
  */
 package com.facebook.presto.execution;
 
+import com.facebook.presto.HashPagePartitionFunction;
 import com.facebook.presto.OutputBuffers;
 import com.facebook.presto.PagePartitionFunction;
+import com.facebook.presto.UnpartitionedPagePartitionFunction;
 import com.facebook.presto.execution.StateMachine.StateChangeListener;
 import com.facebook.presto.spi.Page;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
 import com.google.common.collect.Sets.SetView;
 import com.google.common.primitives.Ints;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
 
 import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.Immutable;
 import javax.annotation.concurrent.ThreadSafe;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
@@ -58,6 +65,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 @ThreadSafe
 public class SharedBuffer
@@ -126,14 +134,17 @@ public class SharedBuffer
     }
 
     private final long maxBufferedBytes;
+    // empty to share the buffer evenly between the named buffers
+    private final Optional<DataSize> maxPartitionBufferSize;
 
     @GuardedBy("this")
     private OutputBuffers outputBuffers = INITIAL_EMPTY_OUTPUT_BUFFERS;
 
+    // bytes of all distinct pages referenced by the master buffer or the named buffers
+    private final AtomicLong bufferedBytes = new AtomicLong();
+    // pages are kept until no more buffers can be added, so late buffers see all pages
     @GuardedBy("this")
-    private long bufferedBytes;
-    @GuardedBy("this")
-    private final LinkedList<Page> masterBuffer = new LinkedList<>();
+    private final List<PageReference> masterBuffer = new ArrayList<>();
     @GuardedBy("this")
     private final BlockingQueue<QueuedPage> queuedPages = new LinkedBlockingQueue<>();
     @GuardedBy("this")
@@ -150,7 +161,16 @@ public class SharedBuffer
 
     private final AtomicLong pagesAdded = new AtomicLong();
 
+    private final AtomicLong blockedNanos = new AtomicLong();
+    private volatile boolean producerBlocked;
+    private volatile long blockedTimeUpdateNanos;
+
     public SharedBuffer(TaskId taskId, Executor executor, DataSize maxBufferSize)
+    {
+        this(taskId, executor, maxBufferSize, Optional.empty());
+    }
+
+    public SharedBuffer(TaskId taskId, Executor executor, DataSize maxBufferSize, Optional<DataSize> maxPartitionBufferSize)
     {
         checkNotNull(taskId, "taskId is null");
         checkNotNull(executor, "executor is null");
@@ -159,6 +179,10 @@ public class SharedBuffer
         checkNotNull(maxBufferSize, "maxBufferSize is null");
         checkArgument(maxBufferSize.toBytes() > 0, "maxBufferSize must be at least 1");
         this.maxBufferedBytes = maxBufferSize.toBytes();
+
+        checkNotNull(maxPartitionBufferSize, "maxPartitionBufferSize is null");
+        checkArgument(!maxPartitionBufferSize.isPresent() || maxPartitionBufferSize.get().toBytes() > 0, "maxPartitionBufferSize must be at least 1");
+        this.maxPartitionBufferSize = maxPartitionBufferSize;
     }
 
     public void addStateChangeListener(StateChangeListener<BufferState> stateChangeListener)
@@ -182,7 +206,14 @@ public class SharedBuffer
         for (NamedBuffer namedBuffer : namedBuffers.values()) {
             infos.add(namedBuffer.getInfo());
         }
-        return new SharedBufferInfo(state.get(), masterSequenceId.get(), pagesAdded.get(), infos.build());
+        return new SharedBufferInfo(
+                state.get(),
+                masterSequenceId.get(),
+                pagesAdded.get(),
+                bufferedBytes.get(),
+                maxBufferedBytes,
+                getBlockedTime(blockedNanos, producerBlocked),
+                infos.build());
     }
 
     public synchronized void setOutputBuffers(OutputBuffers newOutputBuffers)
@@ -206,11 +237,16 @@ public class SharedBuffer
             if (!namedBuffers.containsKey(bufferId)) {
                 checkState(state.get().canAddBuffers(), "Cannot add buffers to %s", SharedBuffer.class.getSimpleName());
                 NamedBuffer namedBuffer = new NamedBuffer(bufferId, entry.getValue());
+                // added first, so the limit of the buffer accounts for it
+                namedBuffers.put(bufferId, namedBuffer);
                 // the buffer may have been aborted before the creation message was received
                 if (abortedBuffers.contains(bufferId)) {
                     namedBuffer.abort();
                 }
-                namedBuffers.put(bufferId, namedBuffer);
+                else {
+                    // the new buffer sees all pages added so far
+                    namedBuffer.enqueuePages(masterBuffer, ImmutableMap.<TaskId, List<Page>>of());
+                }
             }
         }
 
@@ -223,7 +259,7 @@ public class SharedBuffer
         updateState();
     }
 
-    public synchronized ListenableFuture<?> enqueue(Page page)
+    public ListenableFuture<?> enqueue(Page page)
     {
         checkNotNull(page, "page is null");
 
@@ -233,29 +269,114 @@ public class SharedBuffer
             return immediateFuture(true);
         }
 
-        // is there room in the buffer
-        if (bufferedBytes < maxBufferedBytes) {
-            addInternal(page);
-            return immediateFuture(true);
+        // split and partition outside of the lock, so readers are not blocked by the producer
+        List<Page> pages = splitPage(page, DEFAULT_MAX_PAGE_SIZE_IN_BYTES);
+        Map<TaskId, List<Page>> partitionedPages = partitionPages(pages, namedBuffers.values());
+
+        synchronized (this) {
+            if (!state.get().canAddPages()) {
+                return immediateFuture(true);
+            }
+
+            // is there room in the buffer
+            if (canAcceptPages()) {
+                addInternal(pages, partitionedPages);
+                return immediateFuture(true);
+            }
+
+            QueuedPage queuedPage = new QueuedPage(pages, partitionedPages);
+            queuedPages.add(queuedPage);
+            updateState();
+            return queuedPage.getFuture();
         }
+    }
 
-        QueuedPage queuedPage = new QueuedPage(page);
-        queuedPages.add(queuedPage);
-        updateState();
-        return queuedPage.getFuture();
+    /**
+     * Only the whole buffer blocks the producer. A named buffer that is full queues its share
+     * of the pages, so the other buffers keep receiving pages while its consumer is slow.
+     */
+    private synchronized boolean canAcceptPages()
+    {
+        return bufferedBytes.get() < maxBufferedBytes;
     }
 
-    private synchronized void addInternal(Page page)
+    private long getMaxPartitionBufferedBytes()
     {
-        List<Page> pages = splitPage(page, DEFAULT_MAX_PAGE_SIZE_IN_BYTES);
-        masterBuffer.addAll(pages);
+        if (maxPartitionBufferSize.isPresent()) {
+            return maxPartitionBufferSize.get().toBytes();
+        }
+        return Math.max(maxBufferedBytes / Math.max(namedBuffers.size(), 1), 1);
+    }
+
+    private synchronized void addInternal(List<Page> pages, Map<TaskId, List<Page>> partitionedPages)
+    {
+        List<PageReference> pageReferences = new ArrayList<>(pages.size());
+        for (Page page : pages) {
+            pageReferences.add(new PageReference(page));
+        }
         pagesAdded.addAndGet(pages.size());
-        for (Page p : pages) {
-            bufferedBytes += p.getSizeInBytes();
+
+        if (state.get().canAddBuffers()) {
+            for (PageReference pageReference : pageReferences) {
+                retainPage(pageReference);
+            }
+            masterBuffer.addAll(pageReferences);
+        }
+        else {
+            masterSequenceId.set(pagesAdded.get());
+        }
+
+        for (NamedBuffer namedBuffer : namedBuffers.values()) {
+            namedBuffer.enqueuePages(pageReferences, partitionedPages);
         }
         processPendingReads();
     }
 
+    /**
+     * Returns the pages of each buffer that does not share the unpartitioned pages.
+     * Buffers with the same hash partitioning are split in a single pass over the pages.
+     */
+    private static Map<TaskId, List<Page>> partitionPages(List<Page> pages, Collection<NamedBuffer> buffers)
+    {
+        ImmutableMap.Builder<TaskId, List<Page>> partitionedPages = ImmutableMap.builder();
+        List<HashPagePartitionFunction> partitionings = new ArrayList<>();
+        List<List<Page[]>> partitioningPages = new ArrayList<>();
+        for (NamedBuffer buffer : buffers) {
+            PagePartitionFunction partitionFunction = buffer.getPartitionFunction();
+            if (buffer.isFinished() || partitionFunction instanceof UnpartitionedPagePartitionFunction) {
+                continue;
+            }
+            if (!(partitionFunction instanceof HashPagePartitionFunction)) {
+                partitionedPages.put(buffer.getBufferId(), partitionFunction.partition(pages));
+                continue;
+            }
+
+            HashPagePartitionFunction hashPartitionFunction = (HashPagePartitionFunction) partitionFunction;
+            int partitioning = 0;
+            while (partitioning < partitionings.size() && !partitionings.get(partitioning).hasSamePartitioning(hashPartitionFunction)) {
+                partitioning++;
+            }
+            if (partitioning == partitionings.size()) {
+                ImmutableList.Builder<Page[]> splitPages = ImmutableList.builder();
+                for (Page page : pages) {
+                    splitPages.add(hashPartitionFunction.partitionPage(page));
+                }
+                partitionings.add(hashPartitionFunction);
+                partitioningPages.add(splitPages.build());
+            }
+
+            ImmutableList.Builder<Page> bufferPages = ImmutableList.builder();
+            for (Page[] splitPage : partitioningPages.get(partitioning)) {
+                Page partitionPage = splitPage[hashPartitionFunction.getPartition()];
+                if (partitionPage != null) {
+                    bufferPages.add(partitionPage);
+                }
+            }
+            partitionedPages.put(buffer.getBufferId(), bufferPages.build());
+        }
+        return partitionedPages.build();
+    }
+
     public synchronized ListenableFuture<BufferResult> get(TaskId outputId, long startingSequenceId, DataSize maxSize)
     {
         checkNotNull(outputId, "outputId is null");
@@ -275,25 +396,6 @@ public class SharedBuffer
         return getBufferResult.getFuture();
     }
 
-    private synchronized List<Page> getPagesInternal(DataSize maxSize, long sequenceId)
-    {
-        long maxBytes = maxSize.toBytes();
-        List<Page> pages = new ArrayList<>();
-        long bytes = 0;
-
-        int listOffset = Ints.checkedCast(sequenceId - masterSequenceId.get());
-        while (listOffset < masterBuffer.size()) {
-            Page page = masterBuffer.get(listOffset++);
-            bytes += page.getSizeInBytes();
-            // break (and don't add) if this page would exceed the limit
-            if (!pages.isEmpty() && bytes > maxBytes) {
-                break;
-            }
-            pages.add(page);
-        }
-        return ImmutableList.copyOf(pages);
-    }
-
     public synchronized void abort(TaskId outputId)
     {
         checkNotNull(outputId, "outputId is null");
@@ -328,8 +430,7 @@ public class SharedBuffer
         state.set(FINISHED);
 
         // clear the buffer
-        masterBuffer.clear();
-        bufferedBytes = 0;
+        releaseMasterBuffer();
 
         // free queued page waiters
         for (QueuedPage queuedPage : queuedPages) {
@@ -341,6 +442,7 @@ public class SharedBuffer
         for (NamedBuffer namedBuffer : namedBuffers.values()) {
             namedBuffer.abort();
         }
+        updateBlockedTime();
         processPendingReads();
     }
 
@@ -357,14 +459,17 @@ public class SharedBuffer
         state.set(FAILED);
 
         // clear the buffer
-        masterBuffer.clear();
-        bufferedBytes = 0;
+        releaseMasterBuffer();
+        for (NamedBuffer namedBuffer : namedBuffers.values()) {
+            namedBuffer.discardPages();
+        }
 
         // free queued page waiters
         for (QueuedPage queuedPage : queuedPages) {
             queuedPage.getFuture().set(null);
         }
         queuedPages.clear();
+        updateBlockedTime();
 
         // DO NOT free readers
     }
@@ -405,34 +510,16 @@ public class SharedBuffer
                 queuedPages.clear();
             }
 
-            // advanced master queue
-            if (!state.canAddBuffers() && !namedBuffers.isEmpty()) {
-                // advance master sequence id
-                long oldMasterSequenceId = masterSequenceId.get();
-                long newMasterSequenceId = Long.MAX_VALUE;
-                for (NamedBuffer namedBuffer : namedBuffers.values()) {
-                    newMasterSequenceId = Math.min(namedBuffer.getSequenceId(), newMasterSequenceId);
-                }
-                masterSequenceId.set(newMasterSequenceId);
-
-                // drop consumed pages
-                int pagesToRemove = Ints.checkedCast(newMasterSequenceId - oldMasterSequenceId);
-                checkState(pagesToRemove >= 0,
-                        "Master sequence id moved backwards: oldMasterSequenceId=%s, newMasterSequenceId=%s",
-                        oldMasterSequenceId,
-                        newMasterSequenceId);
-
-                for (int i = 0; i < pagesToRemove; i++) {
-                    Page page = masterBuffer.removeFirst();
-                    bufferedBytes -= page.getSizeInBytes();
-                }
+            // all buffers have seen the master buffer, so its pages only stay for unconsumed buffers
+            if (!state.canAddBuffers()) {
+                releaseMasterBuffer();
+            }
 
-                // refill buffer from queued pages
-                while (!queuedPages.isEmpty() && bufferedBytes < maxBufferedBytes) {
-                    QueuedPage queuedPage = queuedPages.remove();
-                    addInternal(queuedPage.getPage());
-                    queuedPage.getFuture().set(null);
-                }
+            // refill buffer from queued pages
+            while (!queuedPages.isEmpty() && canAcceptPages()) {
+                QueuedPage queuedPage = queuedPages.remove();
+                addInternal(queuedPage.getPages(), queuedPage.getPartitionedPages());
+                queuedPage.getFuture().set(null);
             }
 
             // remove any completed buffers
@@ -443,10 +530,73 @@ public class SharedBuffer
             }
         }
         finally {
+            updateBlockedTime();
             checkFlushComplete();
         }
     }
 
+    private void releaseMasterBuffer()
+    {
+        checkState(Thread.holdsLock(this), "Thread must hold a lock on the %s", SharedBuffer.class.getSimpleName());
+
+        for (PageReference pageReference : masterBuffer) {
+            releasePage(pageReference);
+        }
+        masterBuffer.clear();
+        masterSequenceId.set(pagesAdded.get());
+    }
+
+    private void retainPage(PageReference pageReference)
+    {
+        checkState(Thread.holdsLock(this), "Thread must hold a lock on the %s", SharedBuffer.class.getSimpleName());
+
+        if (pageReference.retain()) {
+            bufferedBytes.addAndGet(pageReference.getSizeInBytes());
+        }
+    }
+
+    private void releasePage(PageReference pageReference)
+    {
+        checkState(Thread.holdsLock(this), "Thread must hold a lock on the %s", SharedBuffer.class.getSimpleName());
+
+        if (pageReference.release()) {
+            bufferedBytes.addAndGet(-pageReference.getSizeInBytes());
+        }
+    }
+
+    /**
+     * Accounts the time since the last update to the producer, and to each buffer that was full
+     * while the producer was blocked.
+     */
+    private void updateBlockedTime()
+    {
+        checkState(Thread.holdsLock(this), "Thread must hold a lock on the %s", SharedBuffer.class.getSimpleName());
+
+        long now = System.nanoTime();
+        if (producerBlocked) {
+            long elapsed = now - blockedTimeUpdateNanos;
+            blockedNanos.addAndGet(elapsed);
+            for (NamedBuffer namedBuffer : namedBuffers.values()) {
+                namedBuffer.addBlockedTime(elapsed);
+            }
+        }
+        blockedTimeUpdateNanos = now;
+
+        producerBlocked = !queuedPages.isEmpty();
+        for (NamedBuffer namedBuffer : namedBuffers.values()) {
+            namedBuffer.updateBlocking(producerBlocked);
+        }
+    }
+
+    private Duration getBlockedTime(AtomicLong blockedNanos, boolean blocked)
+    {
+        long nanos = blockedNanos.get();
+        if (blocked) {
+            nanos += Math.max(System.nanoTime() - blockedTimeUpdateNanos, 0);
+        }
+        return new Duration(nanos, NANOSECONDS).convertToMostSuccinctTimeUnit();
+    }
+
     private void processPendingReads()
     {
         checkState(Thread.holdsLock(this), "Thread must hold a lock on the %s", SharedBuffer.class.getSimpleName());
@@ -464,15 +614,42 @@ public class SharedBuffer
         private final TaskId bufferId;
         private final PagePartitionFunction partitionFunction;
 
+        // pages from sequenceId (inclusive) to pagesAdded (exclusive)
+        @GuardedBy("SharedBuffer.this")
+        private final LinkedList<PageReference> pages = new LinkedList<>();
         private final AtomicLong sequenceId = new AtomicLong();
+        private final AtomicLong pagesAdded = new AtomicLong();
+        private final AtomicLong bufferedBytes = new AtomicLong();
+        // pages added while the buffer was full, which become readable as earlier pages are acknowledged
+        @GuardedBy("SharedBuffer.this")
+        private final BlockingQueue<PageReference> queuedPages = new LinkedBlockingQueue<>();
+        private final AtomicLong queuedBytes = new AtomicLong();
         private final AtomicBoolean finished = new AtomicBoolean();
 
+        private final AtomicLong blockedNanos = new AtomicLong();
+        private volatile boolean blockingProducer;
+
         private NamedBuffer(TaskId bufferId, PagePartitionFunction partitionFunction)
         {
             this.bufferId = bufferId;
             this.partitionFunction = partitionFunction;
         }
 
+        public TaskId getBufferId()
+        {
+            return bufferId;
+        }
+
+        public PagePartitionFunction getPartitionFunction()
+        {
+            return partitionFunction;
+        }
+
+        public boolean isFinished()
+        {
+            return finished.get();
+        }
+
         public BufferInfo getInfo()
         {
             //
@@ -481,12 +658,14 @@ public class SharedBuffer
             checkState(!Thread.holdsLock(SharedBuffer.this), "Thread must NOT hold a lock on the %s", SharedBuffer.class.getSimpleName());
 
             long sequenceId = this.sequenceId.get();
+            Duration blockedTime = getBlockedTime(blockedNanos, blockingProducer);
+            long maxBufferedBytes = getMaxPartitionBufferedBytes();
             if (finished.get()) {
-                return new BufferInfo(bufferId, true, 0, sequenceId);
+                return new BufferInfo(bufferId, true, 0, sequenceId, 0, maxBufferedBytes, blockedTime);
             }
 
-            int size = Math.max(Ints.checkedCast(pagesAdded.get() + queuedPages.size() - sequenceId), 0);
-            return new BufferInfo(bufferId, finished.get(), size, sequenceId);
+            int size = Math.max(Ints.checkedCast(pagesAdded.get() + queuedPages.size() + SharedBuffer.this.queuedPages.size() - sequenceId), 0);
+            return new BufferInfo(bufferId, finished.get(), size, sequenceId, bufferedBytes.get() + queuedBytes.get(), maxBufferedBytes, blockedTime);
         }
 
         public long getSequenceId()
@@ -496,6 +675,70 @@ public class SharedBuffer
             return sequenceId.get();
         }
 
+        public boolean isFull()
+        {
+            checkState(Thread.holdsLock(SharedBuffer.this), "Thread must hold a lock on the %s", SharedBuffer.class.getSimpleName());
+
+            return !finished.get() && bufferedBytes.get() >= getMaxPartitionBufferedBytes();
+        }
+
+        public void enqueuePages(List<PageReference> pageReferences, Map<TaskId, List<Page>> partitionedPages)
+        {
+            checkState(Thread.holdsLock(SharedBuffer.this), "Thread must hold a lock on the %s", SharedBuffer.class.getSimpleName());
+
+            if (finished.get()) {
+                return;
+            }
+
+            List<Page> bufferPages = partitionedPages.get(bufferId);
+            if (bufferPages == null) {
+                if (partitionFunction instanceof UnpartitionedPagePartitionFunction) {
+                    // share the pages with the master buffer and the other unpartitioned buffers
+                    for (PageReference pageReference : pageReferences) {
+                        addPage(pageReference);
+                    }
+                    return;
+                }
+
+                // the buffer was created after the pages were partitioned
+                ImmutableList.Builder<Page> masterPages = ImmutableList.builder();
+                for (PageReference pageReference : pageReferences) {
+                    masterPages.add(pageReference.getPage());
+                }
+                bufferPages = partitionPages(masterPages.build(), ImmutableList.of(this)).get(bufferId);
+            }
+
+            for (Page page : bufferPages) {
+                addPage(new PageReference(page));
+            }
+        }
+
+        private void addPage(PageReference pageReference)
+        {
+            retainPage(pageReference);
+
+            // once a page is queued, the later pages are queued behind it to keep their order
+            if (!queuedPages.isEmpty() || isFull()) {
+                queuedPages.add(pageReference);
+                queuedBytes.addAndGet(pageReference.getSizeInBytes());
+                return;
+            }
+            pages.add(pageReference);
+            pagesAdded.incrementAndGet();
+            bufferedBytes.addAndGet(pageReference.getSizeInBytes());
+        }
+
+        private void dequeuePages()
+        {
+            while (!queuedPages.isEmpty() && !isFull()) {
+                PageReference pageReference = queuedPages.remove();
+                queuedBytes.addAndGet(-pageReference.getSizeInBytes());
+                pages.add(pageReference);
+                pagesAdded.incrementAndGet();
+                bufferedBytes.addAndGet(pageReference.getSizeInBytes());
+            }
+        }
+
         public BufferResult getPages(long startingSequenceId, DataSize maxSize)
         {
             checkState(Thread.holdsLock(SharedBuffer.this), "Thread must hold a lock on the %s", SharedBuffer.class.getSimpleName());
@@ -504,18 +747,34 @@ public class SharedBuffer
             long sequenceId = this.sequenceId.get();
             checkArgument(startingSequenceId >= sequenceId, "startingSequenceId is before the beginning of the buffer");
 
-            // acknowledge previous pages
+            // acknowledge previous pages, which frees them as soon as no other buffer references them
             if (startingSequenceId > sequenceId) {
+                for (long i = sequenceId; i < startingSequenceId && !pages.isEmpty(); i++) {
+                    PageReference pageReference = pages.removeFirst();
+                    bufferedBytes.addAndGet(-pageReference.getSizeInBytes());
+                    releasePage(pageReference);
+                }
                 this.sequenceId.set(startingSequenceId);
                 sequenceId = startingSequenceId;
+                dequeuePages();
             }
 
             if (checkCompletion()) {
                 return emptyResults(startingSequenceId, true);
             }
 
-            List<Page> pages = getPagesInternal(maxSize, sequenceId);
-            return new BufferResult(startingSequenceId, startingSequenceId + pages.size(), false, pages, partitionFunction);
+            long maxBytes = maxSize.toBytes();
+            List<Page> result = new ArrayList<>();
+            long bytes = 0;
+            for (PageReference pageReference : pages) {
+                bytes += pageReference.getSizeInBytes();
+                // break (and don't add) if this page would exceed the limit
+                if (!result.isEmpty() && bytes > maxBytes) {
+                    break;
+                }
+                result.add(pageReference.getPage());
+            }
+            return new BufferResult(startingSequenceId, startingSequenceId + result.size(), false, result);
         }
 
         public void abort()
@@ -523,6 +782,24 @@ public class SharedBuffer
             checkState(Thread.holdsLock(SharedBuffer.this), "Thread must hold a lock on the %s", SharedBuffer.class.getSimpleName());
 
             finished.set(true);
+            discardPages();
+        }
+
+        public void discardPages()
+        {
+            checkState(Thread.holdsLock(SharedBuffer.this), "Thread must hold a lock on the %s", SharedBuffer.class.getSimpleName());
+
+            for (PageReference pageReference : pages) {
+                releasePage(pageReference);
+            }
+            pages.clear();
+            bufferedBytes.set(0);
+
+            for (PageReference pageReference : queuedPages) {
+                releasePage(pageReference);
+            }
+            queuedPages.clear();
+            queuedBytes.set(0);
         }
 
         public boolean checkCompletion()
@@ -533,7 +810,7 @@ public class SharedBuffer
                 return true;
             }
 
-            if (!state.get().canAddPages() && sequenceId.get() >= pagesAdded.get()) {
+            if (!state.get().canAddPages() && queuedPages.isEmpty() && sequenceId.get() >= pagesAdded.get()) {
                 // WARNING: finish must set before the call to checkFlushComplete of the short circuit above will not trigger and the code enter an infinite recursion
                 finished.set(true);
 
@@ -543,24 +820,42 @@ public class SharedBuffer
             return finished.get();
         }
 
+        public void addBlockedTime(long elapsedNanos)
+        {
+            if (blockingProducer) {
+                blockedNanos.addAndGet(elapsedNanos);
+            }
+        }
+
+        public void updateBlocking(boolean producerBlocked)
+        {
+            blockingProducer = producerBlocked && isFull();
+        }
+
         @Override
         public String toString()
         {
             return toStringHelper(this)
                     .add("bufferId", bufferId)
                     .add("sequenceId", sequenceId.get())
+                    .add("bufferedBytes", bufferedBytes.get())
+                    .add("queuedBytes", queuedBytes.get())
                     .add("finished", finished.get())
                     .toString();
         }
     }
 
-    @Immutable
-    private static final class QueuedPage
+    /**
+     * A page held by the master buffer and/or one or more named buffers. The page
+     * counts against the buffer memory until the last holder releases it.
+     */
+    private static final class PageReference
     {
         private final Page page;
-        private final SettableFuture<?> future = SettableFuture.create();
+        @GuardedBy("SharedBuffer.this")
+        private int referenceCount;
 
-        private QueuedPage(Page page)
+        private PageReference(Page page)
         {
             this.page = page;
         }
@@ -570,6 +865,54 @@ public class SharedBuffer
             return page;
         }
 
+        private long getSizeInBytes()
+        {
+            return page.getSizeInBytes();
+        }
+
+        /**
+         * @return true if this is the first reference to the page
+         */
+        private boolean retain()
+        {
+            referenceCount++;
+            return referenceCount == 1;
+        }
+
+        /**
+         * @return true if this was the last reference to the page
+         */
+        private boolean release()
+        {
+            checkState(referenceCount > 0, "Page is not referenced");
+            referenceCount--;
+            return referenceCount == 0;
+        }
+    }
+
+    @Immutable
+    private static final class QueuedPage
+    {
+        private final List<Page> pages;
+        private final Map<TaskId, List<Page>> partitionedPages;
+        private final SettableFuture<?> future = SettableFuture.create();
+
+        private QueuedPage(List<Page> pages, Map<TaskId, List<Page>> partitionedPages)
+        {
+            this.pages = ImmutableList.copyOf(pages);
+            this.partitionedPages = ImmutableMap.copyOf(partitionedPages);
+        }
+
+        private List<Page> getPages()
+        {
+            return pages;
+        }
+
+        private Map<TaskId, List<Page>> getPartitionedPages()
+        {
+            return partitionedPages;
+        }
+
         private SettableFuture<?> getFuture()
         {
             return future;
@@ -17,17 +17,22 @@ import com.facebook.presto.execution.SharedBuffer.BufferState;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.ImmutableList;
+import io.airlift.units.Duration;
 
 import java.util.List;
 import java.util.Objects;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkNotNull;
 
 public final class SharedBufferInfo
 {
     private final BufferState state;
     private final long masterSequenceId;
     private final long pagesAdded;
+    private final long bufferedBytes;
+    private final long maxBufferedBytes;
+    private final Duration blockedTime;
     private final List<BufferInfo> buffers;
 
     @JsonCreator
@@ -35,11 +40,17 @@ public final class SharedBufferInfo
             @JsonProperty("state") BufferState state,
             @JsonProperty("masterSequenceId") long masterSequenceId,
             @JsonProperty("pagesAdded") long pagesAdded,
+            @JsonProperty("bufferedBytes") long bufferedBytes,
+            @JsonProperty("maxBufferedBytes") long maxBufferedBytes,
+            @JsonProperty("blockedTime") Duration blockedTime,
             @JsonProperty("buffers") List<BufferInfo> buffers)
     {
         this.state = state;
         this.masterSequenceId = masterSequenceId;
         this.pagesAdded = pagesAdded;
+        this.bufferedBytes = bufferedBytes;
+        this.maxBufferedBytes = maxBufferedBytes;
+        this.blockedTime = checkNotNull(blockedTime, "blockedTime is null");
         this.buffers = ImmutableList.copyOf(buffers);
     }
 
@@ -61,6 +72,30 @@ public final class SharedBufferInfo
         return pagesAdded;
     }
 
+    /**
+     * The size of all distinct pages held for the buffers, which is limited by {@link #getMaxBufferedBytes()}.
+     */
+    @JsonProperty
+    public long getBufferedBytes()
+    {
+        return bufferedBytes;
+    }
+
+    @JsonProperty
+    public long getMaxBufferedBytes()
+    {
+        return maxBufferedBytes;
+    }
+
+    /**
+     * The time the producer was blocked because the buffer or one of its partitions was full.
+     */
+    @JsonProperty
+    public Duration getBlockedTime()
+    {
+        return blockedTime;
+    }
+
     @JsonProperty
     public List<BufferInfo> getBuffers()
     {
@@ -70,7 +105,7 @@ public final class SharedBufferInfo
     @Override
     public int hashCode()
     {
-        return Objects.hash(state, pagesAdded, buffers, masterSequenceId);
+        return Objects.hash(state, pagesAdded, bufferedBytes, maxBufferedBytes, blockedTime, buffers, masterSequenceId);
     }
 
     @Override
@@ -85,6 +120,9 @@ public final class SharedBufferInfo
         SharedBufferInfo other = (SharedBufferInfo) obj;
         return Objects.equals(this.state, other.state) &&
                 Objects.equals(this.pagesAdded, other.pagesAdded) &&
+                Objects.equals(this.bufferedBytes, other.bufferedBytes) &&
+                Objects.equals(this.maxBufferedBytes, other.maxBufferedBytes) &&
+                Objects.equals(this.blockedTime, other.blockedTime) &&
                 Objects.equals(this.buffers, other.buffers) &&
                 Objects.equals(this.masterSequenceId, other.masterSequenceId);
     }
@@ -95,6 +133,9 @@ public final class SharedBufferInfo
         return toStringHelper(this)
                 .add("state", state)
                 .add("pagesAdded", pagesAdded)
+                .add("bufferedBytes", bufferedBytes)
+                .add("maxBufferedBytes", maxBufferedBytes)
+                .add("blockedTime", blockedTime)
                 .add("buffers", buffers)
                 .add("masterSequenceId", masterSequenceId)
                 .toString();
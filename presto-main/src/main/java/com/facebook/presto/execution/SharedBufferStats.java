@@ -0,0 +1,92 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution;
+
+import org.weakref.jmx.Managed;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Output buffer utilization and producer blocked time of the tasks on this worker.
+ */
+@ThreadSafe
+public final class SharedBufferStats
+{
+    private final AtomicLong finishedBlockedMillis = new AtomicLong();
+
+    private volatile long bufferedBytes;
+    private volatile double maxUtilization;
+    private volatile double maxPartitionUtilization;
+    private volatile long blockedMillis;
+
+    public void addFinished(SharedBufferInfo info)
+    {
+        finishedBlockedMillis.addAndGet(info.getBlockedTime().toMillis());
+    }
+
+    public void update(Iterable<SharedBufferInfo> runningInfos)
+    {
+        long totalBufferedBytes = 0;
+        double maxBufferUtilization = 0;
+        double maxBufferPartitionUtilization = 0;
+        long totalBlockedMillis = finishedBlockedMillis.get();
+        for (SharedBufferInfo info : runningInfos) {
+            totalBufferedBytes += info.getBufferedBytes();
+            maxBufferUtilization = Math.max(maxBufferUtilization, utilization(info.getBufferedBytes(), info.getMaxBufferedBytes()));
+            for (BufferInfo bufferInfo : info.getBuffers()) {
+                maxBufferPartitionUtilization = Math.max(maxBufferPartitionUtilization, utilization(bufferInfo.getBufferedBytes(), bufferInfo.getMaxBufferedBytes()));
+            }
+            totalBlockedMillis += info.getBlockedTime().toMillis();
+        }
+
+        bufferedBytes = totalBufferedBytes;
+        maxUtilization = maxBufferUtilization;
+        maxPartitionUtilization = maxBufferPartitionUtilization;
+        blockedMillis = totalBlockedMillis;
+    }
+
+    private static double utilization(long bufferedBytes, long maxBufferedBytes)
+    {
+        if (maxBufferedBytes <= 0) {
+            return 0;
+        }
+        return (double) bufferedBytes / maxBufferedBytes;
+    }
+
+    @Managed(description = "Bytes buffered for the consumers of running tasks")
+    public long getBufferedBytes()
+    {
+        return bufferedBytes;
+    }
+
+    @Managed(description = "Highest ratio of buffered bytes to the buffer limit of a running task")
+    public double getMaxUtilization()
+    {
+        return maxUtilization;
+    }
+
+    @Managed(description = "Highest ratio of buffered bytes to the partition limit of a consumer of a running task")
+    public double getMaxPartitionUtilization()
+    {
+        return maxPartitionUtilization;
+    }
+
+    @Managed(description = "Total time task output was blocked on full buffers")
+    public long getBlockedTimeMillis()
+    {
+        return blockedMillis;
+    }
+}
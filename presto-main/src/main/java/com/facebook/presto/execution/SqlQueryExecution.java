@@ -17,9 +17,19 @@ import com.facebook.presto.OutputBuffers;
 import com.facebook.presto.Session;
 import com.facebook.presto.UnpartitionedPagePartitionFunction;
 import com.facebook.presto.execution.StateMachine.StateChangeListener;
+import com.facebook.presto.metadata.FunctionInfo;
 import com.facebook.presto.metadata.Metadata;
+import com.facebook.presto.metadata.Partition;
+import com.facebook.presto.metadata.TableHandle;
+import com.facebook.presto.resultcache.CachedQueryResult;
+import com.facebook.presto.plancache.CachedPlan;
+import com.facebook.presto.plancache.PlanCache;
+import com.facebook.presto.resultcache.QueryResultCache;
+import com.facebook.presto.resultcache.QueryResultCacheKey;
+import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.NodeManager;
 import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.split.SplitManager;
 import com.facebook.presto.sql.analyzer.Analysis;
 import com.facebook.presto.sql.analyzer.Analyzer;
@@ -35,25 +45,49 @@ import com.facebook.presto.sql.planner.PlanNodeIdAllocator;
 import com.facebook.presto.sql.planner.StageExecutionPlan;
 import com.facebook.presto.sql.planner.SubPlan;
 import com.facebook.presto.sql.planner.optimizations.PlanOptimizer;
+import com.facebook.presto.sql.planner.plan.IndexSourceNode;
+import com.facebook.presto.sql.planner.plan.PlanNode;
+import com.facebook.presto.sql.planner.plan.TableScanNode;
+import com.facebook.presto.sql.tree.CurrentTime;
+import com.facebook.presto.sql.tree.Expression;
+import com.facebook.presto.sql.tree.FunctionCall;
+import com.facebook.presto.sql.tree.Query;
 import com.facebook.presto.sql.tree.Statement;
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import io.airlift.concurrent.SetThreadName;
+import io.airlift.json.JsonCodec;
 import io.airlift.units.Duration;
 
 import javax.annotation.concurrent.ThreadSafe;
 import javax.inject.Inject;
 
+import java.lang.invoke.MethodType;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static com.facebook.presto.OutputBuffers.INITIAL_EMPTY_OUTPUT_BUFFERS;
 import static com.facebook.presto.SystemSessionProperties.isBigQueryEnabled;
+import static com.facebook.presto.SystemSessionProperties.isPlanCacheEnabled;
+import static com.facebook.presto.SystemSessionProperties.isQueryResultCacheEnabled;
 import static com.facebook.presto.spi.StandardErrorCode.USER_CANCELED;
+import static com.facebook.presto.sql.SqlFormatter.formatSql;
+import static com.facebook.presto.sql.analyzer.ExpressionAnalyzer.getExpressionTypes;
+import static com.facebook.presto.util.ImmutableCollectors.toImmutableList;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 @ThreadSafe
 public class SqlQueryExecution
@@ -66,6 +100,7 @@ public class SqlQueryExecution
     private final QueryStateMachine stateMachine;
 
     private final Statement statement;
+    private final List<Expression> parameters;
     private final Metadata metadata;
     private final SqlParser sqlParser;
     private final SplitManager splitManager;
@@ -77,9 +112,14 @@ public class SqlQueryExecution
     private final int initialHashPartitions;
     private final boolean experimentalSyntaxEnabled;
     private final ExecutorService queryExecutor;
+    private final QueryResultCache resultCache;
+    private final PlanCache planCache;
+    private final JsonCodec<PlanNode> planCodec;
 
     private final QueryExplainer queryExplainer;
     private final AtomicReference<SqlStageExecution> outputStage = new AtomicReference<>();
+    private final AtomicReference<QueryResultCacheKey> resultCacheKey = new AtomicReference<>();
+    private final AtomicReference<CachedQueryResult> cachedResult = new AtomicReference<>();
     private final NodeTaskMap nodeTaskMap;
 
     public SqlQueryExecution(QueryId queryId,
@@ -87,6 +127,7 @@ public class SqlQueryExecution
             Session session,
             URI self,
             Statement statement,
+            List<Expression> parameters,
             Metadata metadata,
             SqlParser sqlParser,
             SplitManager splitManager,
@@ -99,10 +140,14 @@ public class SqlQueryExecution
             int initialHashPartitions,
             boolean experimentalSyntaxEnabled,
             ExecutorService queryExecutor,
-            NodeTaskMap nodeTaskMap)
+            NodeTaskMap nodeTaskMap,
+            QueryResultCache resultCache,
+            PlanCache planCache,
+            JsonCodec<PlanNode> planCodec)
     {
         try (SetThreadName ignored = new SetThreadName("Query-%s", queryId)) {
             this.statement = checkNotNull(statement, "statement is null");
+            this.parameters = ImmutableList.copyOf(checkNotNull(parameters, "parameters is null"));
             this.metadata = checkNotNull(metadata, "metadata is null");
             this.sqlParser = checkNotNull(sqlParser, "sqlParser is null");
             this.splitManager = checkNotNull(splitManager, "splitManager is null");
@@ -113,6 +158,9 @@ public class SqlQueryExecution
             this.queryExecutor = checkNotNull(queryExecutor, "queryExecutor is null");
             this.experimentalSyntaxEnabled = experimentalSyntaxEnabled;
             this.nodeTaskMap = checkNotNull(nodeTaskMap, "nodeTaskMap is null");
+            this.resultCache = checkNotNull(resultCache, "resultCache is null");
+            this.planCache = checkNotNull(planCache, "planCache is null");
+            this.planCodec = checkNotNull(planCodec, "planCodec is null");
 
             checkArgument(maxPendingSplitsPerNode > 0, "scheduleSplitBatchSize must be greater than 0");
             this.scheduleSplitBatchSize = scheduleSplitBatchSize;
@@ -144,6 +192,17 @@ public class SqlQueryExecution
                 // analyze query
                 SubPlan subplan = analyzeQuery();
 
+                // answer the query with the results of an earlier run instead, if they are cached
+                CachedQueryResult cached = cachedResult.get();
+                if (cached != null) {
+                    stateMachine.setOutputFieldNames(cached.getFieldNames());
+                    if (stateMachine.starting()) {
+                        stateMachine.recordExecutionStart();
+                        stateMachine.finished();
+                    }
+                    return;
+                }
+
                 // plan distribution of query
                 planDistribution(subplan);
 
@@ -193,21 +252,62 @@ public class SqlQueryExecution
         // time analysis phase
         long analysisStart = System.nanoTime();
 
-        // analyze query
-        Analyzer analyzer = new Analyzer(stateMachine.getSession(), metadata, sqlParser, Optional.of(queryExplainer), experimentalSyntaxEnabled);
-        Analysis analysis = analyzer.analyze(statement);
+        // reuse the analysis and plan of an earlier run of the same statement
+        Session session = stateMachine.getSession();
+        List<Type> parameterTypes = parameters.stream()
+                .map(parameter -> getExpressionTypes(session, metadata, sqlParser, ImmutableMap.of(), parameter).get(parameter))
+                .collect(toImmutableList());
+        Optional<String> planCacheKey = computePlanCacheKey(parameterTypes);
+        Optional<CachedPlan> cachedPlan = Optional.empty();
+        if (planCacheKey.isPresent()) {
+            cachedPlan = planCache.get(planCacheKey.get(), session, metadata);
+        }
+
+        Analysis analysis;
+        Plan plan;
+        if (cachedPlan.isPresent() && cachedPlan.get().getPlan().isPresent()) {
+            analysis = cachedPlan.get().getAnalysis();
+            plan = cachedPlan.get().getPlan().get();
+            stateMachine.setUpdateType(analysis.getUpdateType());
+        }
+        else {
+            long planCacheGeneration = planCache.getGeneration();
+
+            // analyze query, unless only the plan depends on the values of the parameters
+            if (cachedPlan.isPresent()) {
+                analysis = cachedPlan.get().getAnalysis();
+            }
+            else {
+                Analyzer analyzer = new Analyzer(session, metadata, sqlParser, Optional.of(queryExplainer), experimentalSyntaxEnabled);
+                analysis = analyzer.analyze(statement, parameterTypes);
+            }
 
-        stateMachine.setUpdateType(analysis.getUpdateType());
+            stateMachine.setUpdateType(analysis.getUpdateType());
 
-        // plan query
-        PlanNodeIdAllocator idAllocator = new PlanNodeIdAllocator();
-        LogicalPlanner logicalPlanner = new LogicalPlanner(stateMachine.getSession(), planOptimizers, idAllocator, metadata);
-        Plan plan = logicalPlanner.plan(analysis);
+            // plan query, with the parameters bound to their values
+            PlanNodeIdAllocator idAllocator = new PlanNodeIdAllocator();
+            LogicalPlanner logicalPlanner = new LogicalPlanner(session, planOptimizers, idAllocator, metadata);
+            plan = logicalPlanner.plan(analysis, parameters);
+
+            if (planCacheKey.isPresent() && !cachedPlan.isPresent()) {
+                Optional<CachedPlan> newPlan = createCachedPlan(analysis, plan);
+                if (newPlan.isPresent()) {
+                    planCache.put(planCacheKey.get(), newPlan.get(), planCacheGeneration);
+                }
+            }
+        }
 
         // extract inputs
         List<Input> inputs = new InputExtractor(metadata).extract(plan.getRoot());
         stateMachine.setInputs(inputs);
 
+        // look up the results of an earlier run of the same plan over the same data
+        Optional<QueryResultCacheKey> key = computeResultCacheKey(analysis, plan);
+        if (key.isPresent()) {
+            resultCacheKey.set(key.get());
+            resultCache.get(key.get()).ifPresent(cachedResult::set);
+        }
+
         // fragment the plan
         SubPlan subplan = new PlanFragmenter().createSubPlans(plan);
 
@@ -217,6 +317,156 @@ public class SqlQueryExecution
         return subplan;
     }
 
+    private Optional<String> computePlanCacheKey(List<Type> parameterTypes)
+    {
+        Session session = stateMachine.getSession();
+        if (!(statement instanceof Query) || !isPlanCacheEnabled(session, planCache.isEnabled())) {
+            return Optional.empty();
+        }
+
+        Hasher fingerprint = Hashing.sha256().newHasher();
+        for (String part : ImmutableList.of(
+                formatSql(statement),
+                parameterTypes.stream().map(type -> type.getTypeSignature().toString()).collect(toImmutableList()).toString(),
+                session.getUser(),
+                session.getCatalog(),
+                session.getSchema(),
+                session.getTimeZoneKey().getId(),
+                session.getLocale().toLanguageTag(),
+                new TreeMap<>(session.getSystemProperties()).toString(),
+                new TreeMap<>(Maps.transformValues(session.getCatalogProperties(), TreeMap::new)).toString())) {
+            fingerprint.putInt(part.length()).putString(part, UTF_8);
+        }
+        return Optional.of(fingerprint.hash().toString());
+    }
+
+    private Optional<CachedPlan> createCachedPlan(Analysis analysis, Plan plan)
+    {
+        // the plan of a prepared statement depends on the values of its parameters, so only the
+        // analysis is reused, as long as the columns of the tables it read are unchanged
+        if (!parameters.isEmpty()) {
+            Map<TableHandle, List<Partition>> tables = new HashMap<>();
+            Map<TableHandle, String> schemaVersions = new HashMap<>();
+            for (TableHandle table : getPartitions(plan.getRoot()).keySet()) {
+                tables.put(table, ImmutableList.of());
+                schemaVersions.put(table, PlanCache.getSchemaVersion(metadata, table));
+            }
+            return Optional.of(new CachedPlan(analysis, Optional.empty(), tables, schemaVersions));
+        }
+
+        // the optimizer folds the start time of the query into the plan
+        for (Expression expression : analysis.getTypes().keySet()) {
+            if (expression instanceof CurrentTime) {
+                return Optional.empty();
+            }
+            if (expression instanceof FunctionCall) {
+                FunctionInfo function = analysis.getFunctionInfo((FunctionCall) expression);
+                if (function != null && dependsOnStartTime(function)) {
+                    return Optional.empty();
+                }
+            }
+        }
+
+        // the plan can only be reused while the data of every table read is unchanged,
+        // since the optimizer may have pruned partitions based on it
+        Map<TableHandle, List<Partition>> partitions = getPartitions(plan.getRoot());
+        Map<TableHandle, String> dataVersions = new HashMap<>();
+        for (Map.Entry<TableHandle, List<Partition>> entry : partitions.entrySet()) {
+            Optional<String> version = metadata.getTableDataVersion(stateMachine.getSession(), entry.getKey(), entry.getValue());
+            if (!version.isPresent()) {
+                return Optional.empty();
+            }
+            dataVersions.put(entry.getKey(), version.get());
+        }
+        return Optional.of(new CachedPlan(analysis, Optional.of(plan), partitions, dataVersions));
+    }
+
+    private Optional<QueryResultCacheKey> computeResultCacheKey(Analysis analysis, Plan plan)
+    {
+        Session session = stateMachine.getSession();
+        if (!(statement instanceof Query) || !isQueryResultCacheEnabled(session, resultCache.isEnabled())) {
+            return Optional.empty();
+        }
+
+        // functions like rand() and now() return different results on every run
+        for (Expression expression : analysis.getTypes().keySet()) {
+            if (expression instanceof CurrentTime) {
+                return Optional.empty();
+            }
+            if (expression instanceof FunctionCall) {
+                FunctionInfo function = analysis.getFunctionInfo((FunctionCall) expression);
+                if (function != null && (!function.isDeterministic() || dependsOnStartTime(function))) {
+                    return Optional.empty();
+                }
+            }
+        }
+
+        // the results can only be reused while the data of every table read is unchanged
+        Map<String, String> dataVersions = new TreeMap<>();
+        for (Map.Entry<TableHandle, List<Partition>> entry : getPartitions(plan.getRoot()).entrySet()) {
+            Optional<String> version = metadata.getTableDataVersion(session, entry.getKey(), entry.getValue());
+            if (!version.isPresent()) {
+                return Optional.empty();
+            }
+            dataVersions.put(entry.getKey().toString(), version.get());
+        }
+
+        Hasher fingerprint = Hashing.sha256().newHasher();
+        for (String part : ImmutableList.of(
+                planCodec.toJson(plan.getRoot()),
+                session.getUser(),
+                session.getTimeZoneKey().getId(),
+                session.getLocale().toLanguageTag(),
+                new TreeMap<>(session.getSystemProperties()).toString(),
+                new TreeMap<>(Maps.transformValues(session.getCatalogProperties(), TreeMap::new)).toString())) {
+            fingerprint.putInt(part.length()).putString(part, UTF_8);
+        }
+        return Optional.of(new QueryResultCacheKey(fingerprint.hash().toString(), dataVersions));
+    }
+
+    private static boolean dependsOnStartTime(FunctionInfo function)
+    {
+        // scalar functions that only take the session, like current_timestamp, read its start time
+        if (!function.isScalar()) {
+            return false;
+        }
+        MethodType type = function.getMethodHandle().type();
+        return type.parameterCount() == 1 && type.parameterType(0) == ConnectorSession.class;
+    }
+
+    /**
+     * Returns the partitions of each table the plan reads, so that the data versions only cover them.
+     */
+    private Map<TableHandle, List<Partition>> getPartitions(PlanNode root)
+    {
+        Map<TableHandle, List<Partition>> partitions = new HashMap<>();
+        addPartitions(root, partitions);
+        return partitions;
+    }
+
+    private void addPartitions(PlanNode node, Map<TableHandle, List<Partition>> partitions)
+    {
+        if (node instanceof TableScanNode) {
+            TableScanNode tableScan = (TableScanNode) node;
+            List<Partition> scanPartitions;
+            if (tableScan.getGeneratedPartitions().isPresent()) {
+                scanPartitions = tableScan.getGeneratedPartitions().get().getPartitions();
+            }
+            else {
+                scanPartitions = splitManager.getPartitions(tableScan.getTable(), Optional.empty()).getPartitions();
+            }
+            partitions.computeIfAbsent(tableScan.getTable(), table -> new ArrayList<>()).addAll(scanPartitions);
+        }
+        else if (node instanceof IndexSourceNode) {
+            // index lookups may read any partition
+            TableHandle table = ((IndexSourceNode) node).getTableHandle();
+            partitions.computeIfAbsent(table, key -> new ArrayList<>()).addAll(splitManager.getPartitions(table, Optional.empty()).getPartitions());
+        }
+        for (PlanNode source : node.getSources()) {
+            addPartitions(source, partitions);
+        }
+    }
+
     private void planDistribution(SubPlan subplan)
     {
         // time distribution planning
@@ -275,6 +525,11 @@ public class SqlQueryExecution
             // transition to failed state, only if not already finished
             stateMachine.fail(cause);
 
+            CachedQueryResult cached = cachedResult.getAndSet(null);
+            if (cached != null) {
+                cached.close();
+            }
+
             SqlStageExecution stageExecution = outputStage.get();
             if (stageExecution != null) {
                 stageExecution.abort();
@@ -297,6 +552,19 @@ public class SqlQueryExecution
         stateMachine.recordHeartbeat();
     }
 
+    @Override
+    public Optional<QueryResultCacheKey> getResultCacheKey()
+    {
+        return Optional.ofNullable(resultCacheKey.get());
+    }
+
+    @Override
+    public Optional<CachedQueryResult> getCachedResult()
+    {
+        // the cached pages can only be read once, so hand them over to a single reader
+        return Optional.ofNullable(cachedResult.getAndSet(null));
+    }
+
     @Override
     public QueryId getQueryId()
     {
@@ -385,6 +653,9 @@ public class SqlQueryExecution
         private final ExecutorService executor;
         private final NodeTaskMap nodeTaskMap;
         private final NodeManager nodeManager;
+        private final QueryResultCache resultCache;
+        private final PlanCache planCache;
+        private final JsonCodec<PlanNode> planCodec;
 
         @Inject
         SqlQueryExecutionFactory(QueryManagerConfig config,
@@ -398,7 +669,10 @@ public class SqlQueryExecution
                 List<PlanOptimizer> planOptimizers,
                 RemoteTaskFactory remoteTaskFactory,
                 @ForQueryExecution ExecutorService executor,
-                NodeTaskMap nodeTaskMap)
+                NodeTaskMap nodeTaskMap,
+                QueryResultCache resultCache,
+                PlanCache planCache,
+                JsonCodec<PlanNode> planCodec)
         {
             checkNotNull(config, "config is null");
             this.scheduleSplitBatchSize = config.getScheduleSplitBatchSize();
@@ -417,10 +691,13 @@ public class SqlQueryExecution
             this.executor = checkNotNull(executor, "executor is null");
             this.nodeTaskMap = checkNotNull(nodeTaskMap, "nodeTaskMap is null");
             this.nodeManager = checkNotNull(nodeManager, "nodeManager is null");
+            this.resultCache = checkNotNull(resultCache, "resultCache is null");
+            this.planCache = checkNotNull(planCache, "planCache is null");
+            this.planCodec = checkNotNull(planCodec, "planCodec is null");
         }
 
         @Override
-        public SqlQueryExecution createQueryExecution(QueryId queryId, String query, Session session, Statement statement)
+        public SqlQueryExecution createQueryExecution(QueryId queryId, String query, Session session, Statement statement, List<Expression> parameters)
         {
             int initialHashPartitions;
             if (isBigQueryEnabled(session, false)) {
@@ -439,6 +716,7 @@ public class SqlQueryExecution
                     session,
                     locationFactory.createQueryLocation(queryId),
                     statement,
+                    parameters,
                     metadata,
                     sqlParser,
                     splitManager,
@@ -451,7 +729,10 @@ public class SqlQueryExecution
                     initialHashPartitions,
                     experimentalSyntaxEnabled,
                     executor,
-                    nodeTaskMap);
+                    nodeTaskMap,
+                    resultCache,
+                    planCache,
+                    planCodec);
 
             return queryExecution;
         }
@@ -15,11 +15,28 @@ package com.facebook.presto.execution;
 
 import com.facebook.presto.Session;
 import com.facebook.presto.event.query.QueryMonitor;
+import com.facebook.presto.execution.PreparedStatementBinder.BoundStatement;
 import com.facebook.presto.execution.QueryExecution.QueryExecutionFactory;
+import com.facebook.presto.memory.ClusterMemoryManager;
+import com.facebook.presto.metadata.Metadata;
+import com.facebook.presto.plancache.PlanCache;
+import com.facebook.presto.resultcache.CachedQueryResult;
+import com.facebook.presto.resultcache.QueryResultCacheKey;
 import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.sql.analyzer.SemanticException;
 import com.facebook.presto.sql.parser.ParsingException;
 import com.facebook.presto.sql.parser.SqlParser;
+import com.facebook.presto.sql.tree.CreateTable;
+import com.facebook.presto.sql.tree.CreateView;
+import com.facebook.presto.sql.tree.DropTable;
+import com.facebook.presto.sql.tree.DropView;
+import com.facebook.presto.sql.tree.Execute;
+import com.facebook.presto.sql.tree.Expression;
+import com.facebook.presto.sql.tree.Insert;
+import com.facebook.presto.sql.tree.RenameTable;
 import com.facebook.presto.sql.tree.Statement;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import io.airlift.concurrent.ThreadPoolExecutorMBean;
 import io.airlift.log.Logger;
 import io.airlift.units.Duration;
@@ -37,7 +54,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
@@ -48,6 +67,7 @@ import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import static com.facebook.presto.execution.PreparedStatementBinder.bindPreparedStatement;
 import static com.facebook.presto.spi.StandardErrorCode.QUERY_QUEUE_FULL;
 import static com.facebook.presto.spi.StandardErrorCode.SERVER_SHUTTING_DOWN;
 import static com.facebook.presto.spi.StandardErrorCode.USER_CANCELED;
@@ -64,7 +84,17 @@ public class SqlQueryManager
 {
     private static final Logger log = Logger.get(SqlQueryManager.class);
 
+    // statements that change the tables or views cached plans may depend on
+    private static final Set<Class<? extends Statement>> METADATA_CHANGING_STATEMENTS = ImmutableSet.of(
+            CreateTable.class,
+            Insert.class,
+            DropTable.class,
+            RenameTable.class,
+            CreateView.class,
+            DropView.class);
+
     private final SqlParser sqlParser;
+    private final Metadata metadata;
 
     private final ExecutorService queryExecutor;
     private final ThreadPoolExecutorMBean queryExecutorMBean;
@@ -84,6 +114,8 @@ public class SqlQueryManager
     private final QueryMonitor queryMonitor;
     private final LocationFactory locationFactory;
     private final QueryIdGenerator queryIdGenerator;
+    private final ClusterMemoryManager memoryManager;
+    private final PlanCache planCache;
 
     private final Map<Class<? extends Statement>, QueryExecutionFactory<?>> executionFactories;
 
@@ -92,14 +124,18 @@ public class SqlQueryManager
     @Inject
     public SqlQueryManager(
             SqlParser sqlParser,
+            Metadata metadata,
             QueryManagerConfig config,
             QueryMonitor queryMonitor,
             QueryQueueManager queueManager,
             QueryIdGenerator queryIdGenerator,
             LocationFactory locationFactory,
+            ClusterMemoryManager memoryManager,
+            PlanCache planCache,
             Map<Class<? extends Statement>, QueryExecutionFactory<?>> executionFactories)
     {
         this.sqlParser = checkNotNull(sqlParser, "sqlParser is null");
+        this.metadata = checkNotNull(metadata, "metadata is null");
 
         this.executionFactories = checkNotNull(executionFactories, "executionFactories is null");
 
@@ -112,6 +148,8 @@ public class SqlQueryManager
         this.queryMonitor = checkNotNull(queryMonitor, "queryMonitor is null");
         this.locationFactory = checkNotNull(locationFactory, "locationFactory is null");
         this.queryIdGenerator = checkNotNull(queryIdGenerator, "queryIdGenerator is null");
+        this.memoryManager = checkNotNull(memoryManager, "memoryManager is null");
+        this.planCache = checkNotNull(planCache, "planCache is null");
 
         this.maxQueryAge = config.getMaxQueryAge();
         this.maxQueryHistory = config.getMaxQueryHistory();
@@ -131,6 +169,13 @@ public class SqlQueryManager
                     log.warn(e, "Error cancelling abandoned queries");
                 }
 
+                try {
+                    enforceMemoryLimits();
+                }
+                catch (Throwable e) {
+                    log.warn(e, "Error enforcing memory limits");
+                }
+
                 try {
                     removeExpiredQueries();
                 }
@@ -229,6 +274,32 @@ public class SqlQueryManager
         return query.getQueryInfo();
     }
 
+    @Override
+    public Optional<QueryResultCacheKey> getResultCacheKey(QueryId queryId)
+    {
+        checkNotNull(queryId, "queryId is null");
+
+        QueryExecution query = queries.get(queryId);
+        if (query == null) {
+            throw new NoSuchElementException();
+        }
+
+        return query.getResultCacheKey();
+    }
+
+    @Override
+    public Optional<CachedQueryResult> getCachedResult(QueryId queryId)
+    {
+        checkNotNull(queryId, "queryId is null");
+
+        QueryExecution query = queries.get(queryId);
+        if (query == null) {
+            throw new NoSuchElementException();
+        }
+
+        return query.getCachedResult();
+    }
+
     @Override
     public QueryInfo createQuery(Session session, String query)
     {
@@ -238,10 +309,16 @@ public class SqlQueryManager
         QueryId queryId = queryIdGenerator.createNextQueryId();
 
         Statement statement;
+        List<Expression> parameters = ImmutableList.of();
         try {
             statement = sqlParser.createStatement(query);
+            if (statement instanceof Execute) {
+                BoundStatement bound = bindPreparedStatement((Execute) statement, session, metadata, sqlParser);
+                statement = bound.getStatement();
+                parameters = bound.getParameters();
+            }
         }
-        catch (ParsingException e) {
+        catch (ParsingException | SemanticException | PrestoException e) {
             // This is intentionally not a method, since after the state change listener is registered
             // it's not safe to do any of this, and we had bugs before where people reused this code in a method
             URI self = locationFactory.createQueryLocation(queryId);
@@ -258,11 +335,17 @@ public class SqlQueryManager
 
         QueryExecutionFactory<?> queryExecutionFactory = executionFactories.get(statement.getClass());
         checkState(queryExecutionFactory != null, "Unsupported statement type %s", statement.getClass().getName());
-        QueryExecution queryExecution = queryExecutionFactory.createQueryExecution(queryId, query, session, statement);
+        QueryExecution queryExecution = queryExecutionFactory.createQueryExecution(queryId, query, session, statement, parameters);
         queryMonitor.createdEvent(queryExecution.getQueryInfo());
 
+        boolean changesMetadata = METADATA_CHANGING_STATEMENTS.contains(statement.getClass());
         queryExecution.addStateChangeListener(newValue -> {
             if (newValue.isDone()) {
+                if (changesMetadata) {
+                    // even a failed statement may have changed some of the metadata
+                    planCache.invalidateAll();
+                }
+
                 QueryInfo info = queryExecution.getQueryInfo();
 
                 stats.queryFinished(info);
@@ -328,6 +411,11 @@ public class SqlQueryManager
         return queryManagementExecutorMBean;
     }
 
+    private void enforceMemoryLimits()
+    {
+        memoryManager.process(queries.values());
+    }
+
     /**
      * Remove completed queries after a waiting period
      */
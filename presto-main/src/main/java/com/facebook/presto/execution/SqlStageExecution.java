@@ -44,6 +44,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import io.airlift.concurrent.SetThreadName;
@@ -59,11 +60,11 @@ import javax.annotation.concurrent.ThreadSafe;
 
 import java.net.URI;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -78,6 +79,7 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static com.facebook.presto.OutputBuffers.INITIAL_EMPTY_OUTPUT_BUFFERS;
+import static com.facebook.presto.spi.StandardErrorCode.NOT_SUPPORTED;
 import static com.facebook.presto.spi.StandardErrorCode.NO_NODES_AVAILABLE;
 import static com.facebook.presto.util.Failures.checkCondition;
 import static com.facebook.presto.util.Failures.toFailures;
@@ -116,6 +118,7 @@ public class SqlStageExecution
     private final ConcurrentMap<TaskId, RemoteTask> tasks = new ConcurrentHashMap<>();
 
     private final Optional<SplitSource> dataSource;
+    private final Map<PlanNodeId, SplitSource> bucketedDataSources;
     private final RemoteTaskFactory remoteTaskFactory;
     private final Session session; // only used for remote task factory
     private final int splitBatchSize;
@@ -206,6 +209,7 @@ public class SqlStageExecution
             this.location = locationFactory.createStageLocation(stageId);
             this.fragment = plan.getFragment();
             this.dataSource = plan.getDataSource();
+            this.bucketedDataSources = plan.getBucketedDataSources();
             this.remoteTaskFactory = remoteTaskFactory;
             this.session = session;
             this.splitBatchSize = splitBatchSize;
@@ -213,10 +217,9 @@ public class SqlStageExecution
             this.executor = executor;
 
             this.allSources = Stream.concat(
-                    Stream.of(fragment.getPartitionedSource()),
+                    fragment.getPartitionedSources().stream(),
                     fragment.getRemoteSourceNodes().stream()
                             .map(RemoteSourceNode::getId))
-                    .filter(Objects::nonNull)
                     .collect(Collectors.toSet());
 
             ImmutableMap.Builder<PlanFragmentId, StageExecutionNode> subStages = ImmutableMap.builder();
@@ -242,6 +245,9 @@ public class SqlStageExecution
             this.subStages = subStages.build();
 
             String dataSourceName = dataSource.isPresent() ? dataSource.get().getDataSourceName() : null;
+            if (!bucketedDataSources.isEmpty()) {
+                dataSourceName = bucketedDataSources.values().iterator().next().getDataSourceName();
+            }
             this.nodeSelector = nodeScheduler.createNodeSelector(dataSourceName);
             this.nodeTaskMap = nodeTaskMap;
             stageState = new StateMachine<>("stage " + stageId, this.executor, StageState.PLANNED);
@@ -554,6 +560,9 @@ public class SqlStageExecution
                 else if (fragment.getDistribution() == PlanDistribution.SOURCE) {
                     scheduleSourcePartitionedNodes();
                 }
+                else if (fragment.getDistribution() == PlanDistribution.BUCKETED) {
+                    scheduleBucketedNodes();
+                }
                 else if (fragment.getDistribution() == PlanDistribution.COORDINATOR_ONLY) {
                     scheduleOnCurrentNode();
                 }
@@ -658,7 +667,61 @@ public class SqlStageExecution
         setNoMoreStageNodes();
     }
 
+    private void scheduleBucketedNodes()
+            throws InterruptedException
+    {
+        AtomicInteger nextTaskId = new AtomicInteger(0);
+
+        // the splits of equal bucket numbers of the tables go to the node chosen for the first of them
+        Map<Integer, Node> bucketNodes = new HashMap<>();
+
+        // the build side of a join comes after its probe side, and is scheduled first, since
+        // queued probe splits do not make progress before the build is finished
+        for (PlanNodeId sourceId : Lists.reverse(ImmutableList.copyOf(bucketedDataSources.keySet()))) {
+            try (SplitSource splitSource = bucketedDataSources.get(sourceId)) {
+                while (!splitSource.isFinished()) {
+                    // if query has been canceled, exit cleanly; query will never run regardless
+                    if (getState().isDone()) {
+                        break;
+                    }
+
+                    long start = System.nanoTime();
+                    Set<Split> pendingSplits = ImmutableSet.copyOf(splitSource.getNextBatch(splitBatchSize));
+                    getSplitDistribution.add(System.nanoTime() - start);
+
+                    for (Split split : pendingSplits) {
+                        checkCondition(split.getBucket() >= 0, NOT_SUPPORTED, "Split of bucketed table does not have a bucket number (set colocated_join=false to read it): %s", split.getInfo());
+                    }
+
+                    while (!pendingSplits.isEmpty() && !getState().isDone()) {
+                        Multimap<Node, Split> splitAssignment = nodeSelector.computeBucketedAssignments(pendingSplits, tasks.values(), bucketNodes);
+                        pendingSplits = ImmutableSet.copyOf(Sets.difference(pendingSplits, ImmutableSet.copyOf(splitAssignment.values())));
+
+                        assignSplits(nextTaskId, sourceId, splitAssignment);
+
+                        if (!pendingSplits.isEmpty()) {
+                            waitForFreeNode(nextTaskId);
+                        }
+                    }
+                }
+            }
+
+            for (RemoteTask task : tasks.values()) {
+                task.noMoreSplits(sourceId);
+            }
+            completeSources.add(sourceId);
+        }
+
+        // tell sub stages there will be no more output buffers
+        setNoMoreStageNodes();
+    }
+
     private void assignSplits(AtomicInteger nextTaskId, Multimap<Node, Split> splitAssignment)
+    {
+        assignSplits(nextTaskId, fragment.getPartitionedSource(), splitAssignment);
+    }
+
+    private void assignSplits(AtomicInteger nextTaskId, PlanNodeId sourceId, Multimap<Node, Split> splitAssignment)
     {
         for (Entry<Node, Collection<Split>> taskSplits : splitAssignment.asMap().entrySet()) {
             long scheduleSplitStart = System.nanoTime();
@@ -667,7 +730,7 @@ public class SqlStageExecution
             TaskId taskId = Iterables.getOnlyElement(localNodeTaskMap.get(node), null);
             RemoteTask task = taskId != null ? tasks.get(taskId) : null;
             if (task == null) {
-                RemoteTask remoteTask = scheduleTask(nextTaskId.getAndIncrement(), node, fragment.getPartitionedSource(), taskSplits.getValue());
+                RemoteTask remoteTask = scheduleTask(nextTaskId.getAndIncrement(), node, sourceId, taskSplits.getValue());
 
                 // tell the sub stages to create a buffer for this task
                 addStageNode(remoteTask.getTaskInfo().getTaskId());
@@ -675,7 +738,7 @@ public class SqlStageExecution
                 scheduleTaskDistribution.add(System.nanoTime() - scheduleSplitStart);
             }
             else {
-                task.addSplits(fragment.getPartitionedSource(), taskSplits.getValue());
+                task.addSplits(sourceId, taskSplits.getValue());
                 addSplitDistribution.add(System.nanoTime() - scheduleSplitStart);
             }
         }
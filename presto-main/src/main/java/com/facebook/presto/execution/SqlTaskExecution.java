@@ -19,6 +19,7 @@ import com.facebook.presto.event.query.QueryMonitor;
 import com.facebook.presto.execution.SharedBuffer.BufferState;
 import com.facebook.presto.execution.StateMachine.StateChangeListener;
 import com.facebook.presto.execution.TaskExecutor.TaskHandle;
+import com.facebook.presto.fragmentcache.FragmentResultCache;
 import com.facebook.presto.operator.Driver;
 import com.facebook.presto.operator.DriverContext;
 import com.facebook.presto.operator.DriverFactory;
@@ -26,6 +27,7 @@ import com.facebook.presto.operator.DriverStats;
 import com.facebook.presto.operator.PipelineContext;
 import com.facebook.presto.operator.TaskContext;
 import com.facebook.presto.operator.TaskOutputOperator.TaskOutputFactory;
+import com.facebook.presto.spi.Page;
 import com.facebook.presto.sql.planner.LocalExecutionPlanner;
 import com.facebook.presto.sql.planner.LocalExecutionPlanner.LocalExecutionPlan;
 import com.facebook.presto.sql.planner.PlanFragment;
@@ -33,7 +35,10 @@ import com.facebook.presto.sql.planner.PlanFragment.PlanDistribution;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -48,6 +53,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -56,6 +62,7 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import static com.facebook.presto.fragmentcache.FragmentFingerprinter.getCacheKey;
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -90,11 +97,15 @@ public class SqlTaskExecution
     @GuardedBy("this")
     private long maxAcknowledgedSplit = Long.MIN_VALUE;
 
-    private final PlanNodeId partitionedSourceId;
-    private final DriverSplitRunnerFactory partitionedDriverFactory;
+    // a bucketed fragment has a partitioned source for each of its tables
+    private final Map<PlanNodeId, DriverSplitRunnerFactory> partitionedDriverFactories;
 
     private final List<DriverSplitRunnerFactory> unpartitionedDriverFactories;
 
+    private final FragmentResultCache fragmentResultCache;
+    // present when the output of the fragment for each split can be cached
+    private final Optional<String> fragmentFingerprint;
+
     public static SqlTaskExecution createSqlTaskExecution(
             TaskStateMachine taskStateMachine,
             TaskContext taskContext,
@@ -104,14 +115,18 @@ public class SqlTaskExecution
             LocalExecutionPlanner planner,
             TaskExecutor taskExecutor,
             Executor notificationExecutor,
-            QueryMonitor queryMonitor)
+            QueryMonitor queryMonitor,
+            FragmentResultCache fragmentResultCache,
+            Optional<String> fragmentFingerprint)
     {
         SqlTaskExecution task = new SqlTaskExecution(
                 taskStateMachine, taskContext, sharedBuffer, fragment,
                 planner,
                 taskExecutor,
                 queryMonitor,
-                notificationExecutor
+                notificationExecutor,
+                fragmentResultCache,
+                fragmentFingerprint
         );
 
         try (SetThreadName ignored = new SetThreadName("Task-%s", task.getTaskId())) {
@@ -129,7 +144,9 @@ public class SqlTaskExecution
             LocalExecutionPlanner planner,
             TaskExecutor taskExecutor,
             QueryMonitor queryMonitor,
-            Executor notificationExecutor)
+            Executor notificationExecutor,
+            FragmentResultCache fragmentResultCache,
+            Optional<String> fragmentFingerprint)
     {
         this.taskStateMachine = checkNotNull(taskStateMachine, "taskStateMachine is null");
         this.taskId = taskStateMachine.getTaskId();
@@ -140,11 +157,19 @@ public class SqlTaskExecution
         this.notificationExecutor = checkNotNull(notificationExecutor, "notificationExecutor is null");
 
         this.queryMonitor = checkNotNull(queryMonitor, "queryMonitor is null");
+        this.fragmentResultCache = checkNotNull(fragmentResultCache, "fragmentResultCache is null");
+        checkNotNull(fragmentFingerprint, "fragmentFingerprint is null");
 
         try (SetThreadName ignored = new SetThreadName("Task-%s", taskId)) {
             List<DriverFactory> driverFactories;
             try {
-                LocalExecutionPlan localExecutionPlan = planner.plan(taskContext.getSession(), fragment.getRoot(), fragment.getOutputLayout(), fragment.getSymbols(), new TaskOutputFactory(sharedBuffer));
+                LocalExecutionPlan localExecutionPlan = planner.plan(
+                        taskContext.getSession(),
+                        fragment.getRoot(),
+                        fragment.getOutputLayout(),
+                        fragment.getSymbols(),
+                        fragment.getPartitionedSources(),
+                        new TaskOutputFactory(sharedBuffer));
                 driverFactories = localExecutionPlan.getDriverFactories();
             }
             catch (Throwable e) {
@@ -154,24 +179,33 @@ public class SqlTaskExecution
             }
 
             // index driver factories
-            DriverSplitRunnerFactory partitionedDriverFactory = null;
+            Map<PlanNodeId, DriverSplitRunnerFactory> partitionedDriverFactories = new HashMap<>();
             ImmutableList.Builder<DriverSplitRunnerFactory> unpartitionedDriverFactories = ImmutableList.builder();
             for (DriverFactory driverFactory : driverFactories) {
-                if (driverFactory.getSourceIds().contains(fragment.getPartitionedSource())) {
-                    checkState(partitionedDriverFactory == null, "multiple partitioned sources are not supported");
-                    partitionedDriverFactory = new DriverSplitRunnerFactory(driverFactory);
+                Set<PlanNodeId> partitionedSourceIds = Sets.intersection(driverFactory.getSourceIds(), ImmutableSet.copyOf(fragment.getPartitionedSources()));
+                if (!partitionedSourceIds.isEmpty()) {
+                    checkState(partitionedSourceIds.size() == 1, "multiple partitioned sources in a driver are not supported");
+                    PlanNodeId partitionedSourceId = Iterables.getOnlyElement(partitionedSourceIds);
+                    partitionedDriverFactories.put(partitionedSourceId, new DriverSplitRunnerFactory(driverFactory, partitionedSourceId));
                 }
                 else {
-                    unpartitionedDriverFactories.add(new DriverSplitRunnerFactory(driverFactory));
+                    unpartitionedDriverFactories.add(new DriverSplitRunnerFactory(driverFactory, null));
                 }
             }
             this.unpartitionedDriverFactories = unpartitionedDriverFactories.build();
 
-            if (fragment.getDistribution() == PlanDistribution.SOURCE) {
-                checkArgument(partitionedDriverFactory != null, "Fragment is partitioned, but no partitioned driver found");
+            if (fragment.getDistribution() == PlanDistribution.SOURCE || fragment.getDistribution() == PlanDistribution.BUCKETED) {
+                checkArgument(partitionedDriverFactories.keySet().containsAll(fragment.getPartitionedSources()), "Fragment is partitioned, but no partitioned driver found");
+            }
+            this.partitionedDriverFactories = ImmutableMap.copyOf(partitionedDriverFactories);
+
+            // the output of a split is only the output of the task if the split is read by the only pipeline
+            if (driverFactories.size() == 1 && this.partitionedDriverFactories.size() == 1) {
+                this.fragmentFingerprint = fragmentFingerprint;
+            }
+            else {
+                this.fragmentFingerprint = Optional.empty();
             }
-            this.partitionedSourceId = fragment.getPartitionedSource();
-            this.partitionedDriverFactory = partitionedDriverFactory;
 
             // don't register the task if it is already completed (most likely failed during planning above)
             if (!taskStateMachine.getState().isDone()) {
@@ -255,7 +289,8 @@ public class SqlTaskExecution
 
         for (TaskSource source : sources) {
             PlanNodeId sourceId = source.getPlanNodeId();
-            if (sourceId.equals(partitionedSourceId)) {
+            DriverSplitRunnerFactory partitionedDriverFactory = partitionedDriverFactories.get(sourceId);
+            if (partitionedDriverFactory != null) {
                 // partitioned split
                 ImmutableList.Builder<DriverSplitRunner> runners = ImmutableList.builder();
                 for (ScheduledSplit scheduledSplit : source.getSplits()) {
@@ -365,8 +400,10 @@ public class SqlTaskExecution
     public Set<PlanNodeId> getNoMoreSplits()
     {
         ImmutableSet.Builder<PlanNodeId> noMoreSplits = ImmutableSet.builder();
-        if (partitionedDriverFactory != null && partitionedDriverFactory.isNoMoreSplits()) {
-            noMoreSplits.add(partitionedSourceId);
+        for (Map.Entry<PlanNodeId, DriverSplitRunnerFactory> entry : partitionedDriverFactories.entrySet()) {
+            if (entry.getValue().isNoMoreSplits()) {
+                noMoreSplits.add(entry.getKey());
+            }
         }
         for (TaskSource taskSource : unpartitionedSources.values()) {
             if (taskSource.isNoMoreSplits()) {
@@ -383,8 +420,10 @@ public class SqlTaskExecution
         }
 
         // are there more partition splits expected?
-        if (partitionedDriverFactory != null && !partitionedDriverFactory.isNoMoreSplits()) {
-            return;
+        for (DriverSplitRunnerFactory partitionedDriverFactory : partitionedDriverFactories.values()) {
+            if (!partitionedDriverFactory.isNoMoreSplits()) {
+                return;
+            }
         }
         // do we still have running tasks?
         if (remainingDrivers.get() != 0) {
@@ -431,14 +470,17 @@ public class SqlTaskExecution
     private class DriverSplitRunnerFactory
     {
         private final DriverFactory driverFactory;
+        @Nullable
+        private final PlanNodeId partitionedSourceId;
         private final PipelineContext pipelineContext;
 
         private final AtomicInteger pendingCreation = new AtomicInteger();
         private final AtomicBoolean noMoreSplits = new AtomicBoolean();
 
-        private DriverSplitRunnerFactory(DriverFactory driverFactory)
+        private DriverSplitRunnerFactory(DriverFactory driverFactory, @Nullable PlanNodeId partitionedSourceId)
         {
             this.driverFactory = driverFactory;
+            this.partitionedSourceId = partitionedSourceId;
             this.pipelineContext = taskContext.addPipelineContext(driverFactory.isInputDriver(), driverFactory.isOutputDriver());
         }
 
@@ -453,7 +495,25 @@ public class SqlTaskExecution
 
         private Driver createDriver(DriverContext driverContext, @Nullable ScheduledSplit partitionedSplit)
         {
-            Driver driver = driverFactory.createDriver(driverContext);
+            Optional<String> cacheKey = Optional.empty();
+            if (partitionedSplit != null && fragmentFingerprint.isPresent()) {
+                cacheKey = getCacheKey(fragmentFingerprint.get(), partitionedSplit.getSplit());
+            }
+
+            Driver driver;
+            if (cacheKey.isPresent()) {
+                Optional<List<Page>> cachedPages = fragmentResultCache.get(cacheKey.get());
+                if (cachedPages.isPresent()) {
+                    // the driver does not read the split
+                    driver = driverFactory.createCachedDriver(driverContext, cachedPages.get());
+                }
+                else {
+                    driver = driverFactory.createCachingDriver(driverContext, fragmentResultCache, cacheKey.get());
+                }
+            }
+            else {
+                driver = driverFactory.createDriver(driverContext);
+            }
 
             // record driver so other threads add unpartitioned sources can see the driver
             // NOTE: this MUST be done before reading unpartitionedSources, so we see a consistent view of the unpartitioned sources
@@ -16,6 +16,9 @@ package com.facebook.presto.execution;
 import com.facebook.presto.Session;
 import com.facebook.presto.TaskSource;
 import com.facebook.presto.event.query.QueryMonitor;
+import com.facebook.presto.fragmentcache.FragmentFingerprinter;
+import com.facebook.presto.fragmentcache.FragmentResultCache;
+import com.facebook.presto.memory.QueryContext;
 import com.facebook.presto.operator.TaskContext;
 import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.sql.planner.LocalExecutionPlanner;
@@ -23,9 +26,11 @@ import com.facebook.presto.sql.planner.PlanFragment;
 import io.airlift.units.DataSize;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.Executor;
 
 import static com.facebook.presto.SystemSessionProperties.isBigQueryEnabled;
+import static com.facebook.presto.SystemSessionProperties.isFragmentResultCacheEnabled;
 import static com.facebook.presto.execution.SqlTaskExecution.createSqlTaskExecution;
 import static com.facebook.presto.spi.StandardErrorCode.NOT_SUPPORTED;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -44,12 +49,16 @@ public class SqlTaskExecutionFactory
     private final DataSize operatorPreAllocatedMemory;
     private final boolean verboseStats;
     private final boolean cpuTimerEnabled;
+    private final FragmentResultCache fragmentResultCache;
+    private final FragmentFingerprinter fragmentFingerprinter;
 
     public SqlTaskExecutionFactory(
             Executor taskNotificationExecutor,
             TaskExecutor taskExecutor,
             LocalExecutionPlanner planner,
             QueryMonitor queryMonitor,
+            FragmentResultCache fragmentResultCache,
+            FragmentFingerprinter fragmentFingerprinter,
             TaskManagerConfig config)
     {
         this(
@@ -61,7 +70,9 @@ public class SqlTaskExecutionFactory
                 config.getBigQueryMaxTaskMemoryUsage(),
                 config.getOperatorPreAllocatedMemory(),
                 config.isVerboseStats(),
-                config.isTaskCpuTimerEnabled());
+                config.isTaskCpuTimerEnabled(),
+                fragmentResultCache,
+                fragmentFingerprinter);
     }
 
     public SqlTaskExecutionFactory(
@@ -73,7 +84,9 @@ public class SqlTaskExecutionFactory
             DataSize bigQueryMaxTaskMemoryUsage,
             DataSize operatorPreAllocatedMemory,
             boolean verboseStats,
-            boolean cpuTimerEnabled)
+            boolean cpuTimerEnabled,
+            FragmentResultCache fragmentResultCache,
+            FragmentFingerprinter fragmentFingerprinter)
     {
         this.taskNotificationExecutor = checkNotNull(taskNotificationExecutor, "taskNotificationExecutor is null");
         this.taskExecutor = checkNotNull(taskExecutor, "taskExecutor is null");
@@ -84,12 +97,15 @@ public class SqlTaskExecutionFactory
         this.operatorPreAllocatedMemory = checkNotNull(operatorPreAllocatedMemory, "operatorPreAllocatedMemory is null");
         this.verboseStats = verboseStats;
         this.cpuTimerEnabled = cpuTimerEnabled;
+        this.fragmentResultCache = checkNotNull(fragmentResultCache, "fragmentResultCache is null");
+        this.fragmentFingerprinter = checkNotNull(fragmentFingerprinter, "fragmentFingerprinter is null");
     }
 
-    public SqlTaskExecution create(Session session, TaskStateMachine taskStateMachine, SharedBuffer sharedBuffer, PlanFragment fragment, List<TaskSource> sources)
+    public SqlTaskExecution create(Session session, QueryContext queryContext, TaskStateMachine taskStateMachine, SharedBuffer sharedBuffer, PlanFragment fragment, List<TaskSource> sources)
     {
         boolean verboseStats = getVerboseStats(session);
         TaskContext taskContext = new TaskContext(
+                queryContext,
                 taskStateMachine,
                 taskNotificationExecutor,
                 session,
@@ -98,6 +114,11 @@ public class SqlTaskExecutionFactory
                 verboseStats,
                 cpuTimerEnabled);
 
+        Optional<String> fragmentFingerprint = Optional.empty();
+        if (isFragmentResultCacheEnabled(session, fragmentResultCache.isEnabled())) {
+            fragmentFingerprint = fragmentFingerprinter.getFingerprint(session, fragment);
+        }
+
         return createSqlTaskExecution(
                 taskStateMachine,
                 taskContext,
@@ -107,7 +128,9 @@ public class SqlTaskExecutionFactory
                 planner,
                 taskExecutor,
                 taskNotificationExecutor,
-                queryMonitor);
+                queryMonitor,
+                fragmentResultCache,
+                fragmentFingerprint);
     }
 
     private boolean getVerboseStats(Session session)
@@ -17,6 +17,13 @@ import com.facebook.presto.OutputBuffers;
 import com.facebook.presto.Session;
 import com.facebook.presto.TaskSource;
 import com.facebook.presto.event.query.QueryMonitor;
+import com.facebook.presto.fragmentcache.FragmentFingerprinter;
+import com.facebook.presto.fragmentcache.FragmentResultCache;
+import com.facebook.presto.memory.LocalMemoryManager;
+import com.facebook.presto.memory.MemoryPoolAssignment;
+import com.facebook.presto.memory.MemoryPoolAssignmentsRequest;
+import com.facebook.presto.memory.MemoryPoolId;
+import com.facebook.presto.memory.QueryContext;
 import com.facebook.presto.sql.planner.LocalExecutionPlanner;
 import com.facebook.presto.sql.planner.PlanFragment;
 import com.google.common.base.Preconditions;
@@ -24,6 +31,7 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.concurrent.ThreadPoolExecutorMBean;
 import io.airlift.log.Logger;
@@ -36,16 +44,21 @@ import org.weakref.jmx.Managed;
 import org.weakref.jmx.Nested;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 
 import java.io.Closeable;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
+import static com.facebook.presto.util.ImmutableCollectors.toImmutableSet;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Predicates.notNull;
 import static com.google.common.collect.Iterables.filter;
@@ -68,10 +81,17 @@ public class SqlTaskManager
     private final Duration infoCacheTime;
     private final Duration clientTimeout;
 
+    private final LocalMemoryManager localMemoryManager;
+    private final LoadingCache<QueryId, QueryContext> queryContexts;
     private final LoadingCache<TaskId, SqlTask> tasks;
 
+    @GuardedBy("this")
+    private long currentMemoryPoolAssignmentVersion;
+    private volatile Map<QueryId, MemoryPoolId> memoryPoolAssignments = ImmutableMap.of();
+
     private final SqlTaskIoStats cachedStats = new SqlTaskIoStats();
     private final SqlTaskIoStats finishedTaskStats = new SqlTaskIoStats();
+    private final SharedBufferStats sharedBufferStats = new SharedBufferStats();
 
     @Inject
     public SqlTaskManager(
@@ -80,6 +100,9 @@ public class SqlTaskManager
             TaskExecutor taskExecutor,
             QueryMonitor queryMonitor,
             NodeInfo nodeInfo,
+            LocalMemoryManager localMemoryManager,
+            FragmentResultCache fragmentResultCache,
+            FragmentFingerprinter fragmentFingerprinter,
             TaskManagerConfig config)
     {
         checkNotNull(nodeInfo, "nodeInfo is null");
@@ -88,6 +111,7 @@ public class SqlTaskManager
         clientTimeout = config.getClientTimeout();
 
         final DataSize maxBufferSize = config.getSinkMaxBufferSize();
+        final Optional<DataSize> maxPartitionBufferSize = Optional.ofNullable(config.getSinkMaxPartitionBufferSize());
 
         taskNotificationExecutor = newCachedThreadPool(threadsNamed("task-notification-%s"));
         taskNotificationExecutorMBean = new ThreadPoolExecutorMBean((ThreadPoolExecutor) taskNotificationExecutor);
@@ -95,7 +119,26 @@ public class SqlTaskManager
         taskManagementExecutor = newScheduledThreadPool(5, threadsNamed("task-management-%s"));
         taskManagementExecutorMBean = new ThreadPoolExecutorMBean((ThreadPoolExecutor) taskManagementExecutor);
 
-        final SqlTaskExecutionFactory sqlTaskExecutionFactory = new SqlTaskExecutionFactory(taskNotificationExecutor, taskExecutor, planner, queryMonitor, config);
+        this.localMemoryManager = checkNotNull(localMemoryManager, "localMemoryManager is null");
+        queryContexts = CacheBuilder.newBuilder().build(new CacheLoader<QueryId, QueryContext>()
+        {
+            @Override
+            public QueryContext load(QueryId queryId)
+                    throws Exception
+            {
+                MemoryPoolId poolId = memoryPoolAssignments.getOrDefault(queryId, LocalMemoryManager.GENERAL_POOL);
+                return new QueryContext(queryId, localMemoryManager.getMaxQueryMemoryPerNode(), localMemoryManager.getPool(poolId));
+            }
+        });
+
+        final SqlTaskExecutionFactory sqlTaskExecutionFactory = new SqlTaskExecutionFactory(
+                taskNotificationExecutor,
+                taskExecutor,
+                planner,
+                queryMonitor,
+                fragmentResultCache,
+                fragmentFingerprinter,
+                config);
 
         tasks = CacheBuilder.newBuilder().build(new CacheLoader<TaskId, SqlTask>()
         {
@@ -107,13 +150,16 @@ public class SqlTaskManager
                         taskId,
                         nodeInfo.getInstanceId(),
                         locationFactory.createLocalTaskLocation(taskId),
+                        queryContexts.getUnchecked(taskId.getQueryId()),
                         sqlTaskExecutionFactory,
                         taskNotificationExecutor,
                         sqlTask -> {
                                 finishedTaskStats.merge(sqlTask.getIoStats());
+                                sharedBufferStats.addFinished(sqlTask.getTaskInfo().getOutputBuffers());
                                 return null;
                         },
-                        maxBufferSize
+                        maxBufferSize,
+                        maxPartitionBufferSize
                 );
             }
         });
@@ -162,6 +208,13 @@ public class SqlTaskManager
         return cachedStats;
     }
 
+    @Managed
+    @Nested
+    public SharedBufferStats getOutputBufferStats()
+    {
+        return sharedBufferStats;
+    }
+
     @Managed(description = "Task notification executor")
     @Nested
     public ThreadPoolExecutorMBean getTaskNotificationExecutor()
@@ -253,6 +306,26 @@ public class SqlTaskManager
         return tasks.getUnchecked(taskId).abort();
     }
 
+    @Override
+    public synchronized void updateMemoryPoolAssignments(MemoryPoolAssignmentsRequest assignments)
+    {
+        checkNotNull(assignments, "assignments is null");
+        if (assignments.getVersion() <= currentMemoryPoolAssignmentVersion) {
+            return;
+        }
+        currentMemoryPoolAssignmentVersion = assignments.getVersion();
+
+        ImmutableMap.Builder<QueryId, MemoryPoolId> newAssignments = ImmutableMap.builder();
+        for (MemoryPoolAssignment assignment : assignments.getAssignments()) {
+            newAssignments.put(assignment.getQueryId(), assignment.getPoolId());
+            QueryContext queryContext = queryContexts.getIfPresent(assignment.getQueryId());
+            if (queryContext != null) {
+                queryContext.setMemoryPool(localMemoryManager.getPool(assignment.getPoolId()));
+            }
+        }
+        memoryPoolAssignments = newAssignments.build();
+    }
+
     public void removeOldTasks()
     {
         DateTime oldestAllowedTask = DateTime.now().minus(infoCacheTime.toMillis());
@@ -267,6 +340,12 @@ public class SqlTaskManager
                 log.warn(e, "Error while inspecting age of complete task %s", taskInfo.getTaskId());
             }
         }
+
+        // drop the memory accounting of queries that no longer have tasks on this node
+        Set<QueryId> activeQueries = tasks.asMap().keySet().stream()
+                .map(TaskId::getQueryId)
+                .collect(toImmutableSet());
+        queryContexts.asMap().keySet().removeIf(queryId -> !activeQueries.contains(queryId));
     }
 
     public void failAbandonedTasks()
@@ -304,10 +383,16 @@ public class SqlTaskManager
         // finishedTaskStats, and getting the stats from the task.  Since we have
         // already merged the final stats, we could miss the stats from this task
         // which would result in an under-count, but we will not get an over-count.
-        tasks.asMap().values().stream()
-                .filter(task -> !task.getTaskInfo().getState().isDone())
-                .forEach(task -> tempIoStats.merge(task.getIoStats()));
+        ImmutableList.Builder<SharedBufferInfo> runningBuffers = ImmutableList.builder();
+        for (SqlTask task : tasks.asMap().values()) {
+            TaskInfo taskInfo = task.getTaskInfo();
+            if (!taskInfo.getState().isDone()) {
+                tempIoStats.merge(task.getIoStats());
+                runningBuffers.add(taskInfo.getOutputBuffers());
+            }
+        }
 
         cachedStats.resetTo(tempIoStats);
+        sharedBufferStats.update(runningBuffers.build());
     }
 }
@@ -16,6 +16,7 @@ package com.facebook.presto.execution;
 import com.facebook.presto.OutputBuffers;
 import com.facebook.presto.Session;
 import com.facebook.presto.TaskSource;
+import com.facebook.presto.memory.MemoryPoolAssignmentsRequest;
 import com.facebook.presto.sql.planner.PlanFragment;
 import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.units.DataSize;
@@ -87,4 +88,9 @@ public interface TaskManager
      * eventually exist are queried.
      */
     TaskInfo abortTaskResults(TaskId taskId, TaskId outputId);
+
+    /**
+     * Moves queries between the memory pools of this node, as requested by the coordinator.
+     */
+    void updateMemoryPoolAssignments(MemoryPoolAssignmentsRequest assignments);
 }
@@ -21,6 +21,9 @@ import io.airlift.units.DataSize.Unit;
 import io.airlift.units.Duration;
 import io.airlift.units.MinDuration;
 
+import javax.annotation.Nullable;
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
@@ -39,11 +42,21 @@ public class TaskManagerConfig
     private Integer minDrivers;
 
     private DataSize sinkMaxBufferSize = new DataSize(32, Unit.MEGABYTE);
+    private DataSize sinkMaxPartitionBufferSize;
 
     private Duration clientTimeout = new Duration(2, TimeUnit.MINUTES);
     private Duration infoMaxAge = new Duration(15, TimeUnit.MINUTES);
     private int writerCount = 1;
     private int httpNotificationThreads = 25;
+    private boolean dynamicFilteringEnabled;
+    private boolean dynamicFilteringBloomFilterEnabled;
+    private DataSize dynamicFilteringMaxBloomFilterSize = new DataSize(1, Unit.MEGABYTE);
+    private int joinBuildConcurrency = 1;
+    private int taskConcurrency = 1;
+    private boolean adaptivePartialAggregationEnabled = true;
+    private long adaptivePartialAggregationMinRows = 100_000;
+    private double adaptivePartialAggregationUniqueRowsRatio = 0.8;
+    private boolean mergeJoinEnabled;
 
     public boolean isVerboseStats()
     {
@@ -179,6 +192,20 @@ public class TaskManagerConfig
         return this;
     }
 
+    @Nullable
+    public DataSize getSinkMaxPartitionBufferSize()
+    {
+        return sinkMaxPartitionBufferSize;
+    }
+
+    @Config("sink.max-partition-buffer-size")
+    @ConfigDescription("Size of the pages buffered for a single consumer beyond which its pages wait in its queue (defaults to sink.max-buffer-size divided by the number of consumers)")
+    public TaskManagerConfig setSinkMaxPartitionBufferSize(DataSize sinkMaxPartitionBufferSize)
+    {
+        this.sinkMaxPartitionBufferSize = sinkMaxPartitionBufferSize;
+        return this;
+    }
+
     @MinDuration("5s")
     @NotNull
     public Duration getClientTimeout()
@@ -232,4 +259,127 @@ public class TaskManagerConfig
         this.httpNotificationThreads = httpNotificationThreads;
         return this;
     }
+
+    public boolean isDynamicFilteringEnabled()
+    {
+        return dynamicFilteringEnabled;
+    }
+
+    @Config("task.dynamic-filtering-enabled")
+    @ConfigDescription("Filter the probe side of inner joins and filtering semi joins with the join keys of the build side")
+    public TaskManagerConfig setDynamicFilteringEnabled(boolean dynamicFilteringEnabled)
+    {
+        this.dynamicFilteringEnabled = dynamicFilteringEnabled;
+        return this;
+    }
+
+    public boolean isDynamicFilteringBloomFilterEnabled()
+    {
+        return dynamicFilteringBloomFilterEnabled;
+    }
+
+    @Config("task.dynamic-filtering-bloom-filter-enabled")
+    @ConfigDescription("Narrow the range of join keys with too many distinct values using a Bloom filter")
+    public TaskManagerConfig setDynamicFilteringBloomFilterEnabled(boolean dynamicFilteringBloomFilterEnabled)
+    {
+        this.dynamicFilteringBloomFilterEnabled = dynamicFilteringBloomFilterEnabled;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getDynamicFilteringMaxBloomFilterSize()
+    {
+        return dynamicFilteringMaxBloomFilterSize;
+    }
+
+    @Config("task.dynamic-filtering-max-bloom-filter-size")
+    @ConfigDescription("Size of the Bloom filter built for each join key, before it is shrunk to the number of keys")
+    public TaskManagerConfig setDynamicFilteringMaxBloomFilterSize(DataSize dynamicFilteringMaxBloomFilterSize)
+    {
+        this.dynamicFilteringMaxBloomFilterSize = dynamicFilteringMaxBloomFilterSize;
+        return this;
+    }
+
+    @Min(1)
+    public int getJoinBuildConcurrency()
+    {
+        return joinBuildConcurrency;
+    }
+
+    @Config("task.join-build-concurrency")
+    @ConfigDescription("Number of drivers building the hash table of a join in each task")
+    public TaskManagerConfig setJoinBuildConcurrency(int joinBuildConcurrency)
+    {
+        this.joinBuildConcurrency = joinBuildConcurrency;
+        return this;
+    }
+
+    @Min(1)
+    public int getTaskConcurrency()
+    {
+        return taskConcurrency;
+    }
+
+    @Config("task.concurrency")
+    @ConfigDescription("Number of drivers running final aggregations and window functions in each task")
+    public TaskManagerConfig setTaskConcurrency(int taskConcurrency)
+    {
+        this.taskConcurrency = taskConcurrency;
+        return this;
+    }
+
+    public boolean isAdaptivePartialAggregationEnabled()
+    {
+        return adaptivePartialAggregationEnabled;
+    }
+
+    @Config("task.adaptive-partial-aggregation-enabled")
+    @ConfigDescription("Pass rows through partial aggregations that do not reduce the number of rows")
+    public TaskManagerConfig setAdaptivePartialAggregationEnabled(boolean adaptivePartialAggregationEnabled)
+    {
+        this.adaptivePartialAggregationEnabled = adaptivePartialAggregationEnabled;
+        return this;
+    }
+
+    @Min(1)
+    public long getAdaptivePartialAggregationMinRows()
+    {
+        return adaptivePartialAggregationMinRows;
+    }
+
+    @Config("task.adaptive-partial-aggregation-min-rows")
+    @ConfigDescription("Number of rows a partial aggregation groups before deciding whether to pass rows through")
+    public TaskManagerConfig setAdaptivePartialAggregationMinRows(long adaptivePartialAggregationMinRows)
+    {
+        this.adaptivePartialAggregationMinRows = adaptivePartialAggregationMinRows;
+        return this;
+    }
+
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    public double getAdaptivePartialAggregationUniqueRowsRatio()
+    {
+        return adaptivePartialAggregationUniqueRowsRatio;
+    }
+
+    @Config("task.adaptive-partial-aggregation-unique-rows-ratio")
+    @ConfigDescription("Ratio of groups to rows above which a partial aggregation passes rows through")
+    public TaskManagerConfig setAdaptivePartialAggregationUniqueRowsRatio(double adaptivePartialAggregationUniqueRowsRatio)
+    {
+        this.adaptivePartialAggregationUniqueRowsRatio = adaptivePartialAggregationUniqueRowsRatio;
+        return this;
+    }
+
+    public boolean isMergeJoinEnabled()
+    {
+        return mergeJoinEnabled;
+    }
+
+    @Config("task.merge-join-enabled")
+    @ConfigDescription("Merge the sides of joins that are both sorted on the join keys instead of hashing the build side")
+    public TaskManagerConfig setMergeJoinEnabled(boolean mergeJoinEnabled)
+    {
+        this.mergeJoinEnabled = mergeJoinEnabled;
+        return this;
+    }
 }
@@ -0,0 +1,354 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.fragmentcache;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.metadata.ColumnHandle;
+import com.facebook.presto.metadata.Metadata;
+import com.facebook.presto.metadata.ParametricFunction;
+import com.facebook.presto.metadata.Signature;
+import com.facebook.presto.metadata.Split;
+import com.facebook.presto.spi.block.SortOrder;
+import com.facebook.presto.sql.planner.PlanFragment;
+import com.facebook.presto.sql.planner.PlanFragment.PlanDistribution;
+import com.facebook.presto.sql.planner.Symbol;
+import com.facebook.presto.sql.planner.plan.AggregationNode;
+import com.facebook.presto.sql.planner.plan.DistinctLimitNode;
+import com.facebook.presto.sql.planner.plan.FilterNode;
+import com.facebook.presto.sql.planner.plan.LimitNode;
+import com.facebook.presto.sql.planner.plan.PlanNode;
+import com.facebook.presto.sql.planner.plan.PlanNodeId;
+import com.facebook.presto.sql.planner.plan.PlanRewriter;
+import com.facebook.presto.sql.planner.plan.ProjectNode;
+import com.facebook.presto.sql.planner.plan.TableScanNode;
+import com.facebook.presto.sql.planner.plan.TopNNode;
+import com.facebook.presto.sql.tree.CurrentTime;
+import com.facebook.presto.sql.tree.DefaultExpressionTraversalVisitor;
+import com.facebook.presto.sql.tree.Expression;
+import com.facebook.presto.sql.tree.ExpressionRewriter;
+import com.facebook.presto.sql.tree.ExpressionTreeRewriter;
+import com.facebook.presto.sql.tree.FunctionCall;
+import com.facebook.presto.sql.tree.QualifiedNameReference;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import io.airlift.json.JsonCodec;
+
+import javax.inject.Inject;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.facebook.presto.util.ImmutableCollectors.toImmutableList;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Computes the keys of the {@link FragmentResultCache}. A fragment is fingerprinted when it
+ * scans a table with a driver for each split and only filters, projects, partially aggregates
+ * or limits the rows of the split with deterministic functions, so that its output for a split
+ * is the same whenever the data the split reads is the same. The fingerprint does not depend on
+ * the ids of the plan nodes or the names of the symbols, which differ between queries that share
+ * the fragment.
+ */
+public class FragmentFingerprinter
+{
+    private final Metadata metadata;
+    private final JsonCodec<PlanNode> planCodec;
+
+    @Inject
+    public FragmentFingerprinter(Metadata metadata, JsonCodec<PlanNode> planCodec)
+    {
+        this.metadata = checkNotNull(metadata, "metadata is null");
+        this.planCodec = checkNotNull(planCodec, "planCodec is null");
+    }
+
+    public Optional<String> getFingerprint(Session session, PlanFragment fragment)
+    {
+        checkNotNull(session, "session is null");
+        checkNotNull(fragment, "fragment is null");
+
+        if (fragment.getDistribution() != PlanDistribution.SOURCE || !isCacheable(fragment.getRoot(), getSessionDependentFunctions())) {
+            return Optional.empty();
+        }
+
+        Hasher fingerprint = Hashing.sha256().newHasher();
+        for (String part : ImmutableList.of(
+                getCanonicalPlan(fragment),
+                session.getTimeZoneKey().getId(),
+                session.getLocale().toLanguageTag(),
+                new TreeMap<>(session.getSystemProperties()).toString(),
+                new TreeMap<>(Maps.transformValues(session.getCatalogProperties(), TreeMap::new)).toString())) {
+            fingerprint.putInt(part.length()).putString(part, UTF_8);
+        }
+        return Optional.of(fingerprint.hash().toString());
+    }
+
+    /**
+     * Gets the key of the output of a fragment for a split, or empty if the connector
+     * can not identify the data of the split.
+     */
+    public static Optional<String> getCacheKey(String fragmentFingerprint, Split split)
+    {
+        String dataIdentifier = split.getConnectorSplit().getDataIdentifier();
+        if (dataIdentifier == null) {
+            return Optional.empty();
+        }
+
+        Hasher key = Hashing.sha256().newHasher();
+        for (String part : ImmutableList.of(fragmentFingerprint, split.getConnectorId(), dataIdentifier)) {
+            key.putInt(part.length()).putString(part, UTF_8);
+        }
+        return Optional.of(key.hash().toString());
+    }
+
+    private boolean isCacheable(PlanNode node, Set<String> sessionDependentFunctions)
+    {
+        List<Expression> expressions;
+        if (node instanceof TableScanNode) {
+            expressions = ImmutableList.of();
+        }
+        else if (node instanceof FilterNode) {
+            expressions = ImmutableList.of(((FilterNode) node).getPredicate());
+        }
+        else if (node instanceof ProjectNode) {
+            expressions = ((ProjectNode) node).getExpressions();
+        }
+        else if (node instanceof AggregationNode) {
+            for (Signature signature : ((AggregationNode) node).getFunctions().values()) {
+                if (!metadata.getExactFunction(signature).isDeterministic()) {
+                    return false;
+                }
+            }
+            expressions = ImmutableList.of();
+        }
+        else if (node instanceof TopNNode || node instanceof LimitNode || node instanceof DistinctLimitNode) {
+            expressions = ImmutableList.of();
+        }
+        else {
+            return false;
+        }
+
+        for (Expression expression : expressions) {
+            if (dependsOnSession(expression, sessionDependentFunctions)) {
+                return false;
+            }
+        }
+        for (PlanNode source : node.getSources()) {
+            if (!isCacheable(source, sessionDependentFunctions)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Set<String> getSessionDependentFunctions()
+    {
+        // functions like rand() return different results on every call, and the scalar functions
+        // without arguments, like now(), read the start time of the query from the session
+        ImmutableSet.Builder<String> functions = ImmutableSet.builder();
+        for (ParametricFunction function : metadata.listFunctions()) {
+            if (!function.isDeterministic() || (function.isScalar() && function.getSignature().getArgumentTypes().isEmpty())) {
+                functions.add(function.getSignature().getName());
+            }
+        }
+        return functions.build();
+    }
+
+    private static boolean dependsOnSession(Expression expression, Set<String> sessionDependentFunctions)
+    {
+        AtomicBoolean dependsOnSession = new AtomicBoolean();
+        new DefaultExpressionTraversalVisitor<Void, Void>()
+        {
+            @Override
+            protected Void visitCurrentTime(CurrentTime node, Void context)
+            {
+                dependsOnSession.set(true);
+                return null;
+            }
+
+            @Override
+            protected Void visitFunctionCall(FunctionCall node, Void context)
+            {
+                if (sessionDependentFunctions.contains(node.getName().toString())) {
+                    dependsOnSession.set(true);
+                }
+                return super.visitFunctionCall(node, context);
+            }
+        }.process(expression, null);
+        return dependsOnSession.get();
+    }
+
+    private String getCanonicalPlan(PlanFragment fragment)
+    {
+        SymbolCanonicalizer canonicalizer = new SymbolCanonicalizer();
+        PlanNode root = PlanRewriter.rewriteWith(canonicalizer, fragment.getRoot());
+        List<Symbol> outputLayout = fragment.getOutputLayout().stream()
+                .map(canonicalizer::canonicalize)
+                .collect(toImmutableList());
+        return planCodec.toJson(root) + outputLayout;
+    }
+
+    /**
+     * Names the symbols and numbers the plan nodes in the order they appear from the table scan
+     * up, as their names depend on the other symbols and nodes of the query. The rewrite goes
+     * through the plan nodes and the symbol references of their expressions, so literals and
+     * other text of the plan are never renamed.
+     */
+    private static class SymbolCanonicalizer
+            extends PlanRewriter<Void>
+    {
+        private final Map<Symbol, Symbol> canonicalSymbols = new HashMap<>();
+        private int nextPlanNodeId;
+
+        @Override
+        public PlanNode visitTableScan(TableScanNode node, RewriteContext<Void> context)
+        {
+            // the output symbols are named first, so the names do not depend on the order of the assignments
+            List<Symbol> outputSymbols = canonicalize(node.getOutputSymbols());
+            ImmutableMap.Builder<Symbol, ColumnHandle> assignments = ImmutableMap.builder();
+            for (Map.Entry<Symbol, ColumnHandle> entry : node.getAssignments().entrySet()) {
+                assignments.put(canonicalize(entry.getKey()), entry.getValue());
+            }
+
+            Expression originalConstraint = null;
+            if (node.getOriginalConstraint() != null) {
+                originalConstraint = canonicalize(node.getOriginalConstraint());
+            }
+            return new TableScanNode(nextPlanNodeId(), node.getTable(), outputSymbols, assignments.build(), originalConstraint, node.getSummarizedPartition());
+        }
+
+        @Override
+        public PlanNode visitFilter(FilterNode node, RewriteContext<Void> context)
+        {
+            PlanNode source = context.rewrite(node.getSource());
+            return new FilterNode(nextPlanNodeId(), source, canonicalize(node.getPredicate()));
+        }
+
+        @Override
+        public PlanNode visitProject(ProjectNode node, RewriteContext<Void> context)
+        {
+            PlanNode source = context.rewrite(node.getSource());
+            Map<Symbol, Expression> assignments = new LinkedHashMap<>();
+            for (Map.Entry<Symbol, Expression> entry : node.getAssignments().entrySet()) {
+                Expression expression = canonicalize(entry.getValue());
+                assignments.put(canonicalize(entry.getKey()), expression);
+            }
+            return new ProjectNode(nextPlanNodeId(), source, assignments);
+        }
+
+        @Override
+        public PlanNode visitAggregation(AggregationNode node, RewriteContext<Void> context)
+        {
+            PlanNode source = context.rewrite(node.getSource());
+            List<Symbol> groupBy = canonicalize(node.getGroupBy());
+            Optional<Symbol> hashSymbol = canonicalize(node.getHashSymbol());
+
+            ImmutableMap.Builder<Symbol, FunctionCall> aggregations = ImmutableMap.builder();
+            ImmutableMap.Builder<Symbol, Signature> functions = ImmutableMap.builder();
+            for (Map.Entry<Symbol, FunctionCall> entry : node.getAggregations().entrySet()) {
+                FunctionCall call = (FunctionCall) canonicalize(entry.getValue());
+                Symbol symbol = canonicalize(entry.getKey());
+                aggregations.put(symbol, call);
+                functions.put(symbol, node.getFunctions().get(entry.getKey()));
+            }
+            ImmutableMap.Builder<Symbol, Symbol> masks = ImmutableMap.builder();
+            for (Map.Entry<Symbol, Symbol> entry : node.getMasks().entrySet()) {
+                masks.put(canonicalize(entry.getKey()), canonicalize(entry.getValue()));
+            }
+
+            return new AggregationNode(
+                    nextPlanNodeId(),
+                    source,
+                    groupBy,
+                    aggregations.build(),
+                    functions.build(),
+                    masks.build(),
+                    node.getStep(),
+                    canonicalize(node.getSampleWeight()),
+                    node.getConfidence(),
+                    hashSymbol);
+        }
+
+        @Override
+        public PlanNode visitTopN(TopNNode node, RewriteContext<Void> context)
+        {
+            PlanNode source = context.rewrite(node.getSource());
+            ImmutableMap.Builder<Symbol, SortOrder> orderings = ImmutableMap.builder();
+            for (Symbol symbol : node.getOrderBy()) {
+                orderings.put(canonicalize(symbol), node.getOrderings().get(symbol));
+            }
+            return new TopNNode(nextPlanNodeId(), source, node.getCount(), canonicalize(node.getOrderBy()), orderings.build(), node.isPartial());
+        }
+
+        @Override
+        public PlanNode visitLimit(LimitNode node, RewriteContext<Void> context)
+        {
+            PlanNode source = context.rewrite(node.getSource());
+            return new LimitNode(nextPlanNodeId(), source, node.getCount());
+        }
+
+        @Override
+        public PlanNode visitDistinctLimit(DistinctLimitNode node, RewriteContext<Void> context)
+        {
+            PlanNode source = context.rewrite(node.getSource());
+            return new DistinctLimitNode(nextPlanNodeId(), source, node.getLimit(), canonicalize(node.getHashSymbol()));
+        }
+
+        public Symbol canonicalize(Symbol symbol)
+        {
+            return canonicalSymbols.computeIfAbsent(symbol, name -> new Symbol("#" + canonicalSymbols.size()));
+        }
+
+        private List<Symbol> canonicalize(List<Symbol> symbols)
+        {
+            return symbols.stream()
+                    .map(this::canonicalize)
+                    .collect(toImmutableList());
+        }
+
+        private Optional<Symbol> canonicalize(Optional<Symbol> symbol)
+        {
+            return symbol.map(this::canonicalize);
+        }
+
+        private Expression canonicalize(Expression expression)
+        {
+            return ExpressionTreeRewriter.rewriteWith(new ExpressionRewriter<Void>()
+            {
+                @Override
+                public Expression rewriteQualifiedNameReference(QualifiedNameReference node, Void context, ExpressionTreeRewriter<Void> treeRewriter)
+                {
+                    return canonicalize(Symbol.fromQualifiedName(node.getName())).toQualifiedNameReference();
+                }
+            }, expression);
+        }
+
+        private PlanNodeId nextPlanNodeId()
+        {
+            PlanNodeId id = new PlanNodeId(String.valueOf(nextPlanNodeId));
+            nextPlanNodeId++;
+            return id;
+        }
+    }
+}
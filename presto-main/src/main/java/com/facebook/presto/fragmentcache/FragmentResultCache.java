@@ -0,0 +1,385 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.fragmentcache;
+
+import com.facebook.presto.block.PagesSerde;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.BlockEncodingSerde;
+import com.google.common.collect.ImmutableList;
+import io.airlift.log.Logger;
+import io.airlift.slice.InputStreamSliceInput;
+import io.airlift.slice.OutputStreamSliceOutput;
+import io.airlift.units.DataSize;
+import org.weakref.jmx.Managed;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Caches the output pages of leaf plan fragments for each split on the local disk of a worker,
+ * and keeps the most recently used of them in memory as well. Entries are keyed by the
+ * fingerprint of the fragment and the data the split reads (see {@link FragmentFingerprinter}),
+ * so they never become stale; the least recently used are evicted when either tier is full.
+ */
+@ThreadSafe
+public class FragmentResultCache
+{
+    static final String FILE_SUFFIX = ".pages";
+
+    private static final Logger log = Logger.get(FragmentResultCache.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final BlockEncodingSerde blockEncodingSerde;
+    private final boolean enabled;
+    private final Path cachePath;
+    private final long maxSizeInBytes;
+    private final long maxInMemorySizeInBytes;
+    private final long maxEntrySizeInBytes;
+
+    // entries in access order, so the first is the least recently used
+    @GuardedBy("this")
+    private final LinkedHashMap<String, FileEntry> fileEntries = new LinkedHashMap<>(16, 0.75f, true);
+    @GuardedBy("this")
+    private final LinkedHashMap<String, MemoryEntry> memoryEntries = new LinkedHashMap<>(16, 0.75f, true);
+
+    @GuardedBy("this")
+    private long sizeInBytes;
+    @GuardedBy("this")
+    private long inMemorySizeInBytes;
+    @GuardedBy("this")
+    private long memoryHits;
+    @GuardedBy("this")
+    private long diskHits;
+    @GuardedBy("this")
+    private long misses;
+    @GuardedBy("this")
+    private long evictions;
+
+    @Inject
+    public FragmentResultCache(FragmentResultCacheConfig config, BlockEncodingSerde blockEncodingSerde)
+    {
+        this(blockEncodingSerde,
+                config.isEnabled(),
+                config.getPath().toPath(),
+                config.getMaxSize(),
+                config.getMaxInMemorySize(),
+                config.getMaxEntrySize());
+    }
+
+    public FragmentResultCache(BlockEncodingSerde blockEncodingSerde, boolean enabled, Path cachePath, DataSize maxSize, DataSize maxInMemorySize, DataSize maxEntrySize)
+    {
+        this.blockEncodingSerde = checkNotNull(blockEncodingSerde, "blockEncodingSerde is null");
+        this.enabled = enabled;
+        this.cachePath = checkNotNull(cachePath, "cachePath is null");
+        this.maxSizeInBytes = checkNotNull(maxSize, "maxSize is null").toBytes();
+        this.maxInMemorySizeInBytes = checkNotNull(maxInMemorySize, "maxInMemorySize is null").toBytes();
+        this.maxEntrySizeInBytes = checkNotNull(maxEntrySize, "maxEntrySize is null").toBytes();
+        checkArgument(maxEntrySizeInBytes <= maxSizeInBytes, "maxEntrySize is larger than maxSize");
+
+        // the cache is not persistent, so remove the results left behind by an earlier run
+        deleteCacheFiles();
+    }
+
+    /**
+     * Whether queries use the cache unless their session says otherwise.
+     */
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Gets the size of the largest output that is cached for a split.
+     */
+    public long getMaxEntrySizeInBytes()
+    {
+        return maxEntrySizeInBytes;
+    }
+
+    /**
+     * Returns the pages cached for the key, reading them from disk if they are not in memory.
+     */
+    public Optional<List<Page>> get(String key)
+    {
+        checkNotNull(key, "key is null");
+
+        FileEntry fileEntry;
+        synchronized (this) {
+            // look the file up first, so the file of an entry in memory is kept as well
+            fileEntry = fileEntries.get(key);
+            MemoryEntry memoryEntry = memoryEntries.get(key);
+            if (memoryEntry != null) {
+                memoryHits++;
+                return Optional.of(memoryEntry.getPages());
+            }
+            if (fileEntry == null) {
+                misses++;
+                return Optional.empty();
+            }
+        }
+
+        List<Page> pages;
+        try (InputStreamSliceInput input = new InputStreamSliceInput(new BufferedInputStream(Files.newInputStream(fileEntry.getFile()), BUFFER_SIZE))) {
+            pages = ImmutableList.copyOf(PagesSerde.readPages(blockEncodingSerde, input));
+        }
+        catch (IOException | UncheckedIOException e) {
+            synchronized (this) {
+                // the file may have been evicted while it was read
+                if (fileEntries.get(key) == fileEntry) {
+                    log.warn(e, "Failed to read fragment results from the cache");
+                    removeFile(key);
+                }
+                misses++;
+            }
+            return Optional.empty();
+        }
+
+        synchronized (this) {
+            diskHits++;
+            putInMemory(key, pages);
+        }
+        return Optional.of(pages);
+    }
+
+    /**
+     * Caches the pages for the key, replacing any pages cached for it, unless they are larger
+     * than the maximum entry size.
+     */
+    public void put(String key, List<Page> pages)
+    {
+        checkNotNull(key, "key is null");
+        checkNotNull(pages, "pages is null");
+
+        if (getSizeInBytes(pages) > maxEntrySizeInBytes) {
+            return;
+        }
+
+        Path file = null;
+        long fileSizeInBytes;
+        try {
+            Files.createDirectories(cachePath);
+            file = Files.createTempFile(cachePath, "fragment", FILE_SUFFIX);
+            try (OutputStreamSliceOutput output = new OutputStreamSliceOutput(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE))) {
+                PagesSerde.writePages(blockEncodingSerde, output, pages);
+                fileSizeInBytes = output.size();
+            }
+        }
+        catch (IOException | UncheckedIOException e) {
+            log.warn(e, "Failed to write fragment results to the cache");
+            if (file != null) {
+                deleteFile(file);
+            }
+            return;
+        }
+
+        synchronized (this) {
+            removeFile(key);
+            fileEntries.put(key, new FileEntry(file, fileSizeInBytes));
+            sizeInBytes += fileSizeInBytes;
+
+            Iterator<FileEntry> leastRecentlyUsed = fileEntries.values().iterator();
+            while (sizeInBytes > maxSizeInBytes && leastRecentlyUsed.hasNext()) {
+                FileEntry evicted = leastRecentlyUsed.next();
+                leastRecentlyUsed.remove();
+                sizeInBytes -= evicted.getSizeInBytes();
+                deleteFile(evicted.getFile());
+                evictions++;
+            }
+
+            putInMemory(key, pages);
+        }
+    }
+
+    @GuardedBy("this")
+    private void putInMemory(String key, List<Page> pages)
+    {
+        MemoryEntry previous = memoryEntries.remove(key);
+        if (previous != null) {
+            inMemorySizeInBytes -= previous.getSizeInBytes();
+        }
+
+        long entrySizeInBytes = getSizeInBytes(pages);
+        if (entrySizeInBytes > maxInMemorySizeInBytes) {
+            return;
+        }
+        memoryEntries.put(key, new MemoryEntry(pages, entrySizeInBytes));
+        inMemorySizeInBytes += entrySizeInBytes;
+
+        // pages dropped from memory can still be read from their file
+        Iterator<MemoryEntry> leastRecentlyUsed = memoryEntries.values().iterator();
+        while (inMemorySizeInBytes > maxInMemorySizeInBytes && leastRecentlyUsed.hasNext()) {
+            MemoryEntry dropped = leastRecentlyUsed.next();
+            leastRecentlyUsed.remove();
+            inMemorySizeInBytes -= dropped.getSizeInBytes();
+        }
+    }
+
+    @GuardedBy("this")
+    private void removeFile(String key)
+    {
+        FileEntry entry = fileEntries.remove(key);
+        if (entry != null) {
+            sizeInBytes -= entry.getSizeInBytes();
+            deleteFile(entry.getFile());
+        }
+    }
+
+    private static void deleteFile(Path file)
+    {
+        try {
+            Files.deleteIfExists(file);
+        }
+        catch (IOException e) {
+            log.warn(e, "Failed to delete fragment result cache file %s", file);
+        }
+    }
+
+    private void deleteCacheFiles()
+    {
+        if (!Files.isDirectory(cachePath)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(cachePath, "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+        catch (IOException e) {
+            log.warn(e, "Failed to delete fragment result cache files in %s", cachePath);
+        }
+    }
+
+    private static long getSizeInBytes(List<Page> pages)
+    {
+        long sizeInBytes = 0;
+        for (Page page : pages) {
+            sizeInBytes += page.getSizeInBytes();
+        }
+        return sizeInBytes;
+    }
+
+    @Managed
+    public synchronized long getMemoryHits()
+    {
+        return memoryHits;
+    }
+
+    @Managed
+    public synchronized long getDiskHits()
+    {
+        return diskHits;
+    }
+
+    @Managed
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    @Managed
+    public synchronized double getHitRate()
+    {
+        long hits = memoryHits + diskHits;
+        long lookups = hits + misses;
+        if (lookups == 0) {
+            return Double.NaN;
+        }
+        return ((double) hits) / lookups;
+    }
+
+    @Managed
+    public synchronized long getEvictions()
+    {
+        return evictions;
+    }
+
+    @Managed
+    public synchronized long getSizeInBytes()
+    {
+        return sizeInBytes;
+    }
+
+    @Managed
+    public synchronized long getInMemorySizeInBytes()
+    {
+        return inMemorySizeInBytes;
+    }
+
+    @Managed
+    public synchronized long getEntryCount()
+    {
+        return fileEntries.size();
+    }
+
+    private static class FileEntry
+    {
+        private final Path file;
+        private final long sizeInBytes;
+
+        public FileEntry(Path file, long sizeInBytes)
+        {
+            this.file = file;
+            this.sizeInBytes = sizeInBytes;
+        }
+
+        public Path getFile()
+        {
+            return file;
+        }
+
+        public long getSizeInBytes()
+        {
+            return sizeInBytes;
+        }
+    }
+
+    private static class MemoryEntry
+    {
+        private final List<Page> pages;
+        private final long sizeInBytes;
+
+        public MemoryEntry(List<Page> pages, long sizeInBytes)
+        {
+            this.pages = ImmutableList.copyOf(pages);
+            this.sizeInBytes = sizeInBytes;
+        }
+
+        public List<Page> getPages()
+        {
+            return pages;
+        }
+
+        public long getSizeInBytes()
+        {
+            return sizeInBytes;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.fragmentcache;
+
+import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
+import io.airlift.units.DataSize;
+
+import javax.validation.constraints.NotNull;
+
+import java.io.File;
+
+import static io.airlift.units.DataSize.Unit.GIGABYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+
+public class FragmentResultCacheConfig
+{
+    private boolean enabled;
+    private File path = new File(System.getProperty("java.io.tmpdir"), "presto-fragment-results");
+    private DataSize maxSize = new DataSize(10, GIGABYTE);
+    private DataSize maxInMemorySize = new DataSize(256, MEGABYTE);
+    private DataSize maxEntrySize = new DataSize(16, MEGABYTE);
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    @Config("fragment-result-cache.enabled")
+    @ConfigDescription("Reuse the output of leaf fragments for splits whose data is unchanged")
+    public FragmentResultCacheConfig setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+        return this;
+    }
+
+    @NotNull
+    public File getPath()
+    {
+        return path;
+    }
+
+    @Config("fragment-result-cache.path")
+    public FragmentResultCacheConfig setPath(File path)
+    {
+        this.path = path;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getMaxSize()
+    {
+        return maxSize;
+    }
+
+    @Config("fragment-result-cache.max-size")
+    @ConfigDescription("Maximum disk space used by cached results, beyond which the least recently used are evicted")
+    public FragmentResultCacheConfig setMaxSize(DataSize maxSize)
+    {
+        this.maxSize = maxSize;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getMaxInMemorySize()
+    {
+        return maxInMemorySize;
+    }
+
+    @Config("fragment-result-cache.max-in-memory-size")
+    @ConfigDescription("Maximum memory used to keep the most recently used results, in addition to their files")
+    public FragmentResultCacheConfig setMaxInMemorySize(DataSize maxInMemorySize)
+    {
+        this.maxInMemorySize = maxInMemorySize;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getMaxEntrySize()
+    {
+        return maxEntrySize;
+    }
+
+    @Config("fragment-result-cache.max-entry-size")
+    @ConfigDescription("Results of a split larger than this are not cached")
+    public FragmentResultCacheConfig setMaxEntrySize(DataSize maxEntrySize)
+    {
+        this.maxEntrySize = maxEntrySize;
+        return this;
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.memory;
+
+import com.facebook.presto.execution.QueryExecution;
+import com.facebook.presto.execution.QueryId;
+import com.facebook.presto.metadata.InternalNodeManager;
+import com.facebook.presto.spi.Node;
+import com.facebook.presto.spi.PrestoException;
+import com.google.common.collect.ImmutableList;
+import io.airlift.http.client.HttpClient;
+import io.airlift.json.JsonCodec;
+import io.airlift.log.Logger;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.facebook.presto.ExceededMemoryLimitException.exceededDistributedQueryLimit;
+import static com.facebook.presto.memory.LocalMemoryManager.GENERAL_POOL;
+import static com.facebook.presto.memory.LocalMemoryManager.RESERVED_POOL;
+import static com.facebook.presto.spi.StandardErrorCode.CLUSTER_OUT_OF_MEMORY;
+import static com.facebook.presto.util.ImmutableCollectors.toImmutableList;
+import static com.facebook.presto.util.ImmutableCollectors.toImmutableSet;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Sets.difference;
+
+/**
+ * Tracks the memory pools of all workers. Queries that exceed the distributed memory limit
+ * are failed, and when the general pool is exhausted on some workers the largest query is
+ * moved to the reserved pool so that it can make progress while the others are blocked.
+ */
+@ThreadSafe
+public class ClusterMemoryManager
+{
+    private static final Logger log = Logger.get(ClusterMemoryManager.class);
+
+    private final InternalNodeManager nodeManager;
+    private final HttpClient httpClient;
+    private final JsonCodec<MemoryInfo> memoryInfoCodec;
+    private final JsonCodec<MemoryPoolAssignmentsRequest> assignmentsRequestJsonCodec;
+    private final DataSize maxQueryMemory;
+    private final boolean killOnOutOfMemory;
+    private final Duration killOnOutOfMemoryDelay;
+
+    private final ClusterMemoryPool generalPool = new ClusterMemoryPool(GENERAL_POOL);
+    private final ClusterMemoryPool reservedPool = new ClusterMemoryPool(RESERVED_POOL);
+
+    @GuardedBy("this")
+    private final Map<String, RemoteNodeMemory> nodes = new HashMap<>();
+    @GuardedBy("this")
+    private long assignmentsVersion;
+    @GuardedBy("this")
+    private Optional<QueryId> reservedQuery = Optional.empty();
+    @GuardedBy("this")
+    private long outOfMemorySinceNanos;
+    @GuardedBy("this")
+    private long queriesKilledDueToOutOfMemory;
+
+    @Inject
+    public ClusterMemoryManager(
+            @ForMemoryManager HttpClient httpClient,
+            InternalNodeManager nodeManager,
+            MemoryManagerConfig config,
+            JsonCodec<MemoryInfo> memoryInfoCodec,
+            JsonCodec<MemoryPoolAssignmentsRequest> assignmentsRequestJsonCodec)
+    {
+        this.httpClient = checkNotNull(httpClient, "httpClient is null");
+        this.nodeManager = checkNotNull(nodeManager, "nodeManager is null");
+        this.memoryInfoCodec = checkNotNull(memoryInfoCodec, "memoryInfoCodec is null");
+        this.assignmentsRequestJsonCodec = checkNotNull(assignmentsRequestJsonCodec, "assignmentsRequestJsonCodec is null");
+        checkNotNull(config, "config is null");
+        this.maxQueryMemory = config.getMaxQueryMemory();
+        this.killOnOutOfMemory = config.isKillOnOutOfMemory();
+        this.killOnOutOfMemoryDelay = config.getKillOnOutOfMemoryDelay();
+    }
+
+    public synchronized void process(Iterable<QueryExecution> queries)
+    {
+        List<QueryExecution> runningQueries = ImmutableList.copyOf(queries).stream()
+                .filter(query -> !query.getQueryInfo().getState().isDone())
+                .collect(toImmutableList());
+
+        for (QueryExecution query : runningQueries) {
+            DataSize reservation = query.getQueryInfo().getQueryStats().getTotalMemoryReservation();
+            if (reservation.toBytes() > maxQueryMemory.toBytes()) {
+                query.fail(exceededDistributedQueryLimit(maxQueryMemory));
+            }
+        }
+
+        if (reservedQuery.isPresent() && runningQueries.stream().noneMatch(query -> query.getQueryId().equals(reservedQuery.get()))) {
+            reservedQuery = Optional.empty();
+            assignmentsVersion++;
+        }
+
+        if (generalPool.getBlockedNodes() > 0) {
+            if (!reservedQuery.isPresent()) {
+                // promote the largest query of the general pool, so at least one query can finish
+                reservedQuery = findLargestQuery(runningQueries);
+                if (reservedQuery.isPresent()) {
+                    log.info("Moving query %s to the reserved pool", reservedQuery.get());
+                    assignmentsVersion++;
+                }
+                outOfMemorySinceNanos = 0;
+            }
+            else if (outOfMemorySinceNanos == 0) {
+                outOfMemorySinceNanos = System.nanoTime();
+            }
+            else if (killOnOutOfMemory && Duration.nanosSince(outOfMemorySinceNanos).compareTo(killOnOutOfMemoryDelay) > 0) {
+                killLargestQuery(runningQueries);
+                outOfMemorySinceNanos = 0;
+            }
+        }
+        else {
+            outOfMemorySinceNanos = 0;
+        }
+
+        updateNodes(runningQueries);
+        updatePools(runningQueries.size());
+    }
+
+    private Optional<QueryId> findLargestQuery(List<QueryExecution> runningQueries)
+    {
+        Map<QueryId, Long> reservations = generalPool.getQueryMemoryReservations();
+        QueryId largest = null;
+        long largestBytes = 0;
+        for (QueryExecution query : runningQueries) {
+            long bytes = reservations.getOrDefault(query.getQueryId(), 0L);
+            if (bytes > largestBytes && !reservedQuery.equals(Optional.of(query.getQueryId()))) {
+                largest = query.getQueryId();
+                largestBytes = bytes;
+            }
+        }
+        return Optional.ofNullable(largest);
+    }
+
+    private void killLargestQuery(List<QueryExecution> runningQueries)
+    {
+        Optional<QueryId> largest = findLargestQuery(runningQueries);
+        if (!largest.isPresent()) {
+            return;
+        }
+        for (QueryExecution query : runningQueries) {
+            if (query.getQueryId().equals(largest.get())) {
+                log.info("Killing query %s because the cluster is out of memory", largest.get());
+                query.fail(new PrestoException(CLUSTER_OUT_OF_MEMORY, "The cluster is out of memory, and your query was killed. Please try again in a few minutes."));
+                queriesKilledDueToOutOfMemory++;
+                return;
+            }
+        }
+    }
+
+    private void updateNodes(List<QueryExecution> runningQueries)
+    {
+        Set<Node> activeNodes = nodeManager.getAllNodes().getActiveNodes();
+        Set<String> activeNodeIds = activeNodes.stream()
+                .map(Node::getNodeIdentifier)
+                .collect(toImmutableSet());
+
+        // remove nodes that are no longer active
+        for (String nodeId : ImmutableList.copyOf(difference(nodes.keySet(), activeNodeIds))) {
+            nodes.remove(nodeId);
+        }
+
+        for (Node node : activeNodes) {
+            if (!nodes.containsKey(node.getNodeIdentifier())) {
+                nodes.put(node.getNodeIdentifier(), new RemoteNodeMemory(httpClient, memoryInfoCodec, assignmentsRequestJsonCodec, node.getHttpUri().resolve("/v1/memory")));
+            }
+        }
+
+        ImmutableList.Builder<MemoryPoolAssignment> assignments = ImmutableList.builder();
+        for (QueryExecution query : runningQueries) {
+            MemoryPoolId poolId = reservedQuery.equals(Optional.of(query.getQueryId())) ? RESERVED_POOL : GENERAL_POOL;
+            assignments.add(new MemoryPoolAssignment(query.getQueryId(), poolId));
+        }
+        MemoryPoolAssignmentsRequest request = new MemoryPoolAssignmentsRequest(assignmentsVersion, assignments.build());
+        for (RemoteNodeMemory node : nodes.values()) {
+            node.asyncRefresh(request);
+        }
+    }
+
+    private void updatePools(int queryCount)
+    {
+        List<MemoryInfo> memoryInfos = nodes.values().stream()
+                .map(RemoteNodeMemory::getInfo)
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .collect(toImmutableList());
+        generalPool.update(memoryInfos, reservedQuery.isPresent() ? queryCount - 1 : queryCount);
+        reservedPool.update(memoryInfos, reservedQuery.isPresent() ? 1 : 0);
+    }
+
+    @Managed
+    @Nested
+    public ClusterMemoryPool getGeneralPool()
+    {
+        return generalPool;
+    }
+
+    @Managed
+    @Nested
+    public ClusterMemoryPool getReservedPool()
+    {
+        return reservedPool;
+    }
+
+    @Managed
+    public synchronized long getQueriesKilledDueToOutOfMemory()
+    {
+        return queriesKilledDueToOutOfMemory;
+    }
+}
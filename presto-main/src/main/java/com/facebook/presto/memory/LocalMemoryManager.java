@@ -0,0 +1,82 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.memory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
+import io.airlift.units.DataSize;
+
+import javax.inject.Inject;
+
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static io.airlift.units.DataSize.Unit.BYTE;
+
+/**
+ * Divides the heap of a worker into a general pool shared by all queries and a reserved
+ * pool that the coordinator assigns to at most one query at a time.
+ */
+public final class LocalMemoryManager
+{
+    public static final MemoryPoolId GENERAL_POOL = new MemoryPoolId("general");
+    public static final MemoryPoolId RESERVED_POOL = new MemoryPoolId("reserved");
+
+    private final DataSize maxQueryMemoryPerNode;
+    private final Map<MemoryPoolId, MemoryPool> pools;
+
+    @Inject
+    public LocalMemoryManager(NodeMemoryConfig config)
+    {
+        this(config, Runtime.getRuntime().maxMemory());
+    }
+
+    @VisibleForTesting
+    public LocalMemoryManager(NodeMemoryConfig config, long availableMemory)
+    {
+        checkNotNull(config, "config is null");
+        maxQueryMemoryPerNode = config.getMaxQueryMemoryPerNode();
+        long generalPoolSize = availableMemory - config.getReservedSystemMemory().toBytes() - maxQueryMemoryPerNode.toBytes();
+        checkArgument(generalPoolSize > 0, "Max query memory per node (%s) plus reserved system memory (%s) must be less than the available memory (%s)",
+                maxQueryMemoryPerNode,
+                config.getReservedSystemMemory(),
+                new DataSize(availableMemory, BYTE).convertToMostSuccinctDataSize());
+
+        pools = ImmutableMap.of(
+                GENERAL_POOL, new MemoryPool(GENERAL_POOL, new DataSize(generalPoolSize, BYTE)),
+                RESERVED_POOL, new MemoryPool(RESERVED_POOL, maxQueryMemoryPerNode));
+    }
+
+    public DataSize getMaxQueryMemoryPerNode()
+    {
+        return maxQueryMemoryPerNode;
+    }
+
+    public MemoryPool getPool(MemoryPoolId id)
+    {
+        MemoryPool pool = pools.get(id);
+        checkArgument(pool != null, "Unknown memory pool %s", id);
+        return pool;
+    }
+
+    public MemoryInfo getInfo()
+    {
+        ImmutableMap.Builder<MemoryPoolId, MemoryPoolInfo> infos = ImmutableMap.builder();
+        for (Map.Entry<MemoryPoolId, MemoryPool> entry : pools.entrySet()) {
+            infos.put(entry.getKey(), entry.getValue().getInfo());
+        }
+        return new MemoryInfo(infos.build());
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.memory;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableMap;
+
+import javax.annotation.concurrent.Immutable;
+
+import java.util.Map;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Memory usage of a worker, as reported to the coordinator.
+ */
+@Immutable
+public class MemoryInfo
+{
+    private final Map<MemoryPoolId, MemoryPoolInfo> pools;
+
+    @JsonCreator
+    public MemoryInfo(
+            @JsonProperty("pools") Map<MemoryPoolId, MemoryPoolInfo> pools)
+    {
+        this.pools = ImmutableMap.copyOf(checkNotNull(pools, "pools is null"));
+    }
+
+    @JsonProperty
+    public Map<MemoryPoolId, MemoryPoolInfo> getPools()
+    {
+        return pools;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("pools", pools)
+                .toString();
+    }
+}
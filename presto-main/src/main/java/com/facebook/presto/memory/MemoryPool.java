@@ -0,0 +1,156 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.memory;
+
+import com.facebook.presto.execution.QueryId;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.airlift.units.DataSize;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Memory shared by the queries running on a node. Reservations are always granted, but once
+ * the pool is exhausted the future returned by {@link #reserve} only completes after enough
+ * memory has been freed, which blocks the drivers of the reserving query.
+ */
+@ThreadSafe
+public class MemoryPool
+{
+    private static final ListenableFuture<?> NOT_BLOCKED = Futures.immediateFuture(null);
+
+    private final MemoryPoolId id;
+    private final long maxBytes;
+
+    @GuardedBy("this")
+    private long freeBytes;
+    @GuardedBy("this")
+    private final Map<QueryId, Long> queryMemoryReservations = new HashMap<>();
+    @GuardedBy("this")
+    private SettableFuture<?> future;
+
+    public MemoryPool(MemoryPoolId id, DataSize size)
+    {
+        this.id = checkNotNull(id, "id is null");
+        checkNotNull(size, "size is null");
+        this.maxBytes = size.toBytes();
+        this.freeBytes = maxBytes;
+    }
+
+    public MemoryPoolId getId()
+    {
+        return id;
+    }
+
+    public long getMaxBytes()
+    {
+        return maxBytes;
+    }
+
+    public synchronized long getFreeBytes()
+    {
+        return freeBytes;
+    }
+
+    public synchronized MemoryPoolInfo getInfo()
+    {
+        return new MemoryPoolInfo(maxBytes, freeBytes, ImmutableMap.copyOf(queryMemoryReservations));
+    }
+
+    /**
+     * Reserves memory for the query.
+     *
+     * @return a future that completes when the pool is no longer exhausted
+     */
+    public synchronized ListenableFuture<?> reserve(QueryId queryId, long bytes)
+    {
+        checkArgument(bytes >= 0, "bytes is negative");
+        if (bytes != 0) {
+            queryMemoryReservations.merge(queryId, bytes, Long::sum);
+        }
+        freeBytes -= bytes;
+        if (freeBytes > 0) {
+            return NOT_BLOCKED;
+        }
+        if (future == null) {
+            future = SettableFuture.create();
+        }
+        return future;
+    }
+
+    /**
+     * Reserves memory for the query only if the pool has enough free memory.
+     */
+    public synchronized boolean tryReserve(QueryId queryId, long bytes)
+    {
+        checkArgument(bytes >= 0, "bytes is negative");
+        if (freeBytes - bytes < 0) {
+            return false;
+        }
+        reserve(queryId, bytes);
+        return true;
+    }
+
+    public void free(QueryId queryId, long bytes)
+    {
+        checkArgument(bytes >= 0, "bytes is negative");
+        if (bytes == 0) {
+            return;
+        }
+
+        SettableFuture<?> unblocked = null;
+        synchronized (this) {
+            Long queryReservation = queryMemoryReservations.get(queryId);
+            checkArgument(queryReservation != null && bytes <= queryReservation, "tried to free more memory than is reserved by query %s", queryId);
+            if (bytes == queryReservation) {
+                queryMemoryReservations.remove(queryId);
+            }
+            else {
+                queryMemoryReservations.put(queryId, queryReservation - bytes);
+            }
+
+            freeBytes += bytes;
+            if (freeBytes > 0 && future != null) {
+                unblocked = future;
+                future = null;
+            }
+        }
+
+        // complete the future outside of the lock, since listeners may run on this thread
+        if (unblocked != null) {
+            unblocked.set(null);
+        }
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return toStringHelper(this)
+                .add("id", id)
+                .add("maxBytes", maxBytes)
+                .add("freeBytes", freeBytes)
+                .add("queryMemoryReservations", queryMemoryReservations)
+                .toString();
+    }
+}
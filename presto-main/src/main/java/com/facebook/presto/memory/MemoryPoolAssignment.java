@@ -0,0 +1,58 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.memory;
+
+import com.facebook.presto.execution.QueryId;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.annotation.concurrent.Immutable;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+@Immutable
+public class MemoryPoolAssignment
+{
+    private final QueryId queryId;
+    private final MemoryPoolId poolId;
+
+    @JsonCreator
+    public MemoryPoolAssignment(@JsonProperty("queryId") QueryId queryId, @JsonProperty("poolId") MemoryPoolId poolId)
+    {
+        this.queryId = checkNotNull(queryId, "queryId is null");
+        this.poolId = checkNotNull(poolId, "poolId is null");
+    }
+
+    @JsonProperty
+    public QueryId getQueryId()
+    {
+        return queryId;
+    }
+
+    @JsonProperty
+    public MemoryPoolId getPoolId()
+    {
+        return poolId;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("queryId", queryId)
+                .add("poolId", poolId)
+                .toString();
+    }
+}
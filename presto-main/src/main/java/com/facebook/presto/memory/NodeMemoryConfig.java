@@ -0,0 +1,57 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.memory;
+
+import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
+import io.airlift.units.DataSize;
+
+import javax.validation.constraints.NotNull;
+
+import static io.airlift.units.DataSize.Unit.BYTE;
+import static io.airlift.units.DataSize.Unit.GIGABYTE;
+
+public class NodeMemoryConfig
+{
+    private DataSize maxQueryMemoryPerNode = new DataSize(1, GIGABYTE);
+    private DataSize reservedSystemMemory = new DataSize(Runtime.getRuntime().maxMemory() * 0.4, BYTE);
+
+    @NotNull
+    public DataSize getMaxQueryMemoryPerNode()
+    {
+        return maxQueryMemoryPerNode;
+    }
+
+    @Config("query.max-memory-per-node")
+    @ConfigDescription("Maximum memory a query may use on a single node; also the size of the reserved pool")
+    public NodeMemoryConfig setMaxQueryMemoryPerNode(DataSize maxQueryMemoryPerNode)
+    {
+        this.maxQueryMemoryPerNode = maxQueryMemoryPerNode;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getReservedSystemMemory()
+    {
+        return reservedSystemMemory;
+    }
+
+    @Config("resources.reserved-system-memory")
+    @ConfigDescription("Heap memory that is not available to the query memory pools")
+    public NodeMemoryConfig setReservedSystemMemory(DataSize reservedSystemMemory)
+    {
+        this.reservedSystemMemory = reservedSystemMemory;
+        return this;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.memory;
+
+import com.facebook.presto.execution.QueryId;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.airlift.units.DataSize;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+
+/**
+ * Memory accounting for all tasks of a query on a single node.
+ */
+@ThreadSafe
+public class QueryContext
+{
+    private static final ListenableFuture<?> NOT_BLOCKED = Futures.immediateFuture(null);
+
+    private final QueryId queryId;
+    private final long maxMemory;
+
+    @GuardedBy("this")
+    private MemoryPool memoryPool;
+    @GuardedBy("this")
+    private long reserved;
+    @GuardedBy("this")
+    private SettableFuture<?> memoryFuture;
+
+    public QueryContext(QueryId queryId, DataSize maxMemory, MemoryPool memoryPool)
+    {
+        this.queryId = checkNotNull(queryId, "queryId is null");
+        this.maxMemory = checkNotNull(maxMemory, "maxMemory is null").toBytes();
+        this.memoryPool = checkNotNull(memoryPool, "memoryPool is null");
+    }
+
+    public QueryId getQueryId()
+    {
+        return queryId;
+    }
+
+    public synchronized MemoryPool getMemoryPool()
+    {
+        return memoryPool;
+    }
+
+    public synchronized long getReservedBytes()
+    {
+        return reserved;
+    }
+
+    /**
+     * Reserves memory from the pool of the query. Fails only if the query would exceed its
+     * limit on this node. If the pool is exhausted the reservation still succeeds, but
+     * {@link #getMemoryFuture()} is not done until the pool has free memory again.
+     */
+    public synchronized boolean reserveMemory(long bytes)
+    {
+        checkArgument(bytes >= 0, "bytes is negative");
+        if (reserved + bytes > maxMemory) {
+            return false;
+        }
+        reserved += bytes;
+        waitFor(memoryPool.reserve(queryId, bytes));
+        return true;
+    }
+
+    public synchronized void freeMemory(long bytes)
+    {
+        checkArgument(bytes >= 0, "bytes is negative");
+        checkArgument(bytes <= reserved, "tried to free more memory than is reserved");
+        reserved -= bytes;
+        memoryPool.free(queryId, bytes);
+    }
+
+    /**
+     * Moves the memory of this query to another pool, for example when the coordinator
+     * promotes the query to the reserved pool.
+     */
+    public synchronized void setMemoryPool(MemoryPool newMemoryPool)
+    {
+        checkNotNull(newMemoryPool, "newMemoryPool is null");
+        if (newMemoryPool == memoryPool) {
+            return;
+        }
+
+        ListenableFuture<?> future = newMemoryPool.reserve(queryId, reserved);
+        memoryPool.free(queryId, reserved);
+        memoryPool = newMemoryPool;
+
+        if (future.isDone() && memoryFuture != null) {
+            // the drivers were blocked on the old pool
+            memoryFuture.set(null);
+        }
+        else {
+            waitFor(future);
+        }
+    }
+
+    /**
+     * Returns a future that is done when the memory pool of the query is not exhausted.
+     */
+    public synchronized ListenableFuture<?> getMemoryFuture()
+    {
+        if (memoryFuture == null || memoryFuture.isDone()) {
+            return NOT_BLOCKED;
+        }
+        return memoryFuture;
+    }
+
+    @GuardedBy("this")
+    private void waitFor(ListenableFuture<?> poolFuture)
+    {
+        if (poolFuture.isDone()) {
+            return;
+        }
+        if (memoryFuture == null || memoryFuture.isDone()) {
+            memoryFuture = SettableFuture.create();
+        }
+        // the listener does not take the lock, since the pool may complete its future while another query holds its own lock
+        SettableFuture<?> future = memoryFuture;
+        poolFuture.addListener(() -> future.set(null), directExecutor());
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.memory;
+
+import com.google.common.net.MediaType;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.airlift.http.client.FullJsonResponseHandler.JsonResponse;
+import io.airlift.http.client.HttpClient;
+import io.airlift.http.client.Request;
+import io.airlift.json.JsonCodec;
+import io.airlift.log.Logger;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.net.URI;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
+import static io.airlift.http.client.FullJsonResponseHandler.createFullJsonResponseHandler;
+import static io.airlift.http.client.HttpStatus.OK;
+import static io.airlift.http.client.JsonBodyGenerator.jsonBodyGenerator;
+import static io.airlift.http.client.Request.Builder.preparePost;
+
+/**
+ * Memory state of a worker as last reported to the coordinator. Each refresh also sends
+ * the current memory pool assignments to the worker.
+ */
+@ThreadSafe
+public class RemoteNodeMemory
+{
+    private static final Logger log = Logger.get(RemoteNodeMemory.class);
+
+    private final HttpClient httpClient;
+    private final URI memoryInfoUri;
+    private final JsonCodec<MemoryInfo> memoryInfoCodec;
+    private final JsonCodec<MemoryPoolAssignmentsRequest> assignmentsRequestJsonCodec;
+    private final AtomicReference<Optional<MemoryInfo>> memoryInfo = new AtomicReference<>(Optional.empty());
+    private final AtomicReference<ListenableFuture<?>> future = new AtomicReference<>();
+
+    public RemoteNodeMemory(HttpClient httpClient, JsonCodec<MemoryInfo> memoryInfoCodec, JsonCodec<MemoryPoolAssignmentsRequest> assignmentsRequestJsonCodec, URI memoryInfoUri)
+    {
+        this.httpClient = checkNotNull(httpClient, "httpClient is null");
+        this.memoryInfoUri = checkNotNull(memoryInfoUri, "memoryInfoUri is null");
+        this.memoryInfoCodec = checkNotNull(memoryInfoCodec, "memoryInfoCodec is null");
+        this.assignmentsRequestJsonCodec = checkNotNull(assignmentsRequestJsonCodec, "assignmentsRequestJsonCodec is null");
+    }
+
+    public Optional<MemoryInfo> getInfo()
+    {
+        return memoryInfo.get();
+    }
+
+    public void asyncRefresh(MemoryPoolAssignmentsRequest assignments)
+    {
+        ListenableFuture<?> currentRequest = future.get();
+        if (currentRequest != null && !currentRequest.isDone()) {
+            // the previous request is still in flight; the next refresh will send the latest assignments
+            return;
+        }
+
+        Request request = preparePost()
+                .setUri(memoryInfoUri)
+                .setHeader(CONTENT_TYPE, MediaType.JSON_UTF_8.toString())
+                .setBodyGenerator(jsonBodyGenerator(assignmentsRequestJsonCodec, assignments))
+                .build();
+        ListenableFuture<JsonResponse<MemoryInfo>> responseFuture = httpClient.executeAsync(request, createFullJsonResponseHandler(memoryInfoCodec));
+        future.compareAndSet(currentRequest, responseFuture);
+
+        Futures.addCallback(responseFuture, new FutureCallback<JsonResponse<MemoryInfo>>()
+        {
+            @Override
+            public void onSuccess(JsonResponse<MemoryInfo> result)
+            {
+                if (result != null && result.getStatusCode() == OK.code() && result.hasValue()) {
+                    memoryInfo.set(Optional.of(result.getValue()));
+                }
+                else {
+                    log.debug("Unexpected response fetching memory info from %s", memoryInfoUri);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t)
+            {
+                log.debug(t, "Error fetching memory info from %s", memoryInfoUri);
+            }
+        });
+    }
+}
@@ -15,6 +15,7 @@ package com.facebook.presto.metadata;
 
 import com.facebook.presto.Session;
 import com.facebook.presto.spi.ColumnMetadata;
+import com.facebook.presto.spi.TableStatistics;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.spi.type.TypeManager;
 import com.facebook.presto.spi.type.TypeSignature;
@@ -64,6 +65,31 @@ public interface Metadata
     @NotNull
     TableMetadata getTableMetadata(TableHandle tableHandle);
 
+    /**
+     * Return the statistics of the rows of the specified partitions of a table.
+     */
+    @NotNull
+    TableStatistics getTableStatistics(Session session, TableHandle tableHandle, List<Partition> partitions);
+
+    /**
+     * Return the columns that the rows of each split of a table are grouped on, in the order of
+     * their grouping. Any leading subset of the columns is grouped.
+     */
+    @NotNull
+    List<ColumnHandle> getGroupingColumns(Session session, TableHandle tableHandle);
+
+    /**
+     * Return the layout of the rows of a table in buckets, if the table is bucketed.
+     */
+    @NotNull
+    Optional<TableBucketing> getTableBucketing(Session session, TableHandle tableHandle);
+
+    /**
+     * Return the version of the data of the specified partitions of a table, if the connector tracks one.
+     */
+    @NotNull
+    Optional<String> getTableDataVersion(Session session, TableHandle tableHandle, List<Partition> partitions);
+
     /**
      * Get the names that match the specified table prefix (never null).
      */
@@ -21,11 +21,13 @@ import com.facebook.presto.spi.ConnectorInsertTableHandle;
 import com.facebook.presto.spi.ConnectorMetadata;
 import com.facebook.presto.spi.ConnectorOutputTableHandle;
 import com.facebook.presto.spi.ConnectorSession;
+import com.facebook.presto.spi.ConnectorTableBucketing;
 import com.facebook.presto.spi.ConnectorTableHandle;
 import com.facebook.presto.spi.ConnectorTableMetadata;
 import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.SchemaTableName;
 import com.facebook.presto.spi.SchemaTablePrefix;
+import com.facebook.presto.spi.TableStatistics;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.spi.type.TypeManager;
 import com.facebook.presto.spi.type.TypeSignature;
@@ -38,6 +40,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import io.airlift.json.JsonCodec;
 import io.airlift.json.JsonCodecFactory;
@@ -216,6 +219,51 @@ public class MetadataManager
         return new TableMetadata(tableHandle.getConnectorId(), tableMetadata);
     }
 
+    @Override
+    public TableStatistics getTableStatistics(Session session, TableHandle tableHandle, List<Partition> partitions)
+    {
+        checkNotNull(tableHandle, "tableHandle is null");
+        checkNotNull(partitions, "partitions is null");
+
+        // assume connectorId and catalog are the same
+        ConnectorSession connectorSession = session.toConnectorSession(tableHandle.getConnectorId());
+        return lookupConnectorFor(tableHandle).getTableStatistics(connectorSession, tableHandle.getConnectorHandle(), Lists.transform(partitions, Partition::getConnectorPartition));
+    }
+
+    @Override
+    public List<ColumnHandle> getGroupingColumns(Session session, TableHandle tableHandle)
+    {
+        checkNotNull(tableHandle, "tableHandle is null");
+
+        ConnectorSession connectorSession = session.toConnectorSession(tableHandle.getConnectorId());
+        List<ConnectorColumnHandle> columns = lookupConnectorFor(tableHandle).getGroupingColumns(connectorSession, tableHandle.getConnectorHandle());
+        return ImmutableList.copyOf(Lists.transform(columns, handle -> new ColumnHandle(tableHandle.getConnectorId(), handle)));
+    }
+
+    @Override
+    public Optional<TableBucketing> getTableBucketing(Session session, TableHandle tableHandle)
+    {
+        checkNotNull(tableHandle, "tableHandle is null");
+
+        ConnectorSession connectorSession = session.toConnectorSession(tableHandle.getConnectorId());
+        ConnectorTableBucketing bucketing = lookupConnectorFor(tableHandle).getTableBucketing(connectorSession, tableHandle.getConnectorHandle());
+        if (bucketing == null) {
+            return Optional.empty();
+        }
+        List<ColumnHandle> columns = ImmutableList.copyOf(Lists.transform(bucketing.getBucketColumns(), handle -> new ColumnHandle(tableHandle.getConnectorId(), handle)));
+        return Optional.of(new TableBucketing(tableHandle.getConnectorId(), bucketing.getBucketFunction(), columns));
+    }
+
+    @Override
+    public Optional<String> getTableDataVersion(Session session, TableHandle tableHandle, List<Partition> partitions)
+    {
+        checkNotNull(tableHandle, "tableHandle is null");
+        checkNotNull(partitions, "partitions is null");
+
+        ConnectorSession connectorSession = session.toConnectorSession(tableHandle.getConnectorId());
+        return Optional.ofNullable(lookupConnectorFor(tableHandle).getTableDataVersion(connectorSession, tableHandle.getConnectorHandle(), Lists.transform(partitions, Partition::getConnectorPartition)));
+    }
+
     @Override
     public Map<String, ColumnHandle> getColumnHandles(TableHandle tableHandle)
     {
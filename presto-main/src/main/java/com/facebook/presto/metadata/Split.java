@@ -64,6 +64,11 @@ public final class Split
         return connectorSplit.isRemotelyAccessible();
     }
 
+    public int getBucket()
+    {
+        return connectorSplit.getBucket();
+    }
+
     @Override
     public String toString()
     {
@@ -0,0 +1,93 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.metadata;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+import java.util.Objects;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+public final class TableBucketing
+{
+    private final String connectorId;
+    private final String bucketFunction;
+    private final List<ColumnHandle> bucketColumns;
+
+    public TableBucketing(String connectorId, String bucketFunction, List<ColumnHandle> bucketColumns)
+    {
+        this.connectorId = checkNotNull(connectorId, "connectorId is null");
+        this.bucketFunction = checkNotNull(bucketFunction, "bucketFunction is null");
+        this.bucketColumns = ImmutableList.copyOf(checkNotNull(bucketColumns, "bucketColumns is null"));
+    }
+
+    public String getConnectorId()
+    {
+        return connectorId;
+    }
+
+    public String getBucketFunction()
+    {
+        return bucketFunction;
+    }
+
+    public List<ColumnHandle> getBucketColumns()
+    {
+        return bucketColumns;
+    }
+
+    /**
+     * Rows of tables with compatible bucketings that have equal values in corresponding
+     * bucket columns are in buckets with equal numbers.
+     */
+    public boolean isCompatible(TableBucketing other)
+    {
+        return connectorId.equals(other.connectorId) &&
+                bucketFunction.equals(other.bucketFunction) &&
+                bucketColumns.size() == other.bucketColumns.size();
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(connectorId, bucketFunction, bucketColumns);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        TableBucketing other = (TableBucketing) obj;
+        return Objects.equals(this.connectorId, other.connectorId) &&
+                Objects.equals(this.bucketFunction, other.bucketFunction) &&
+                Objects.equals(this.bucketColumns, other.bucketColumns);
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("connectorId", connectorId)
+                .add("bucketFunction", bucketFunction)
+                .add("bucketColumns", bucketColumns)
+                .toString();
+    }
+}
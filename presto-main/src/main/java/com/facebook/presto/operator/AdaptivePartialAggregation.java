@@ -0,0 +1,60 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Decides when a partial aggregation stops grouping its input. Once enough rows have been
+ * aggregated, the partial aggregation passes the remaining rows through as intermediate states
+ * if it has found more than the given ratio of groups to rows.
+ */
+public class AdaptivePartialAggregation
+{
+    private final long minRows;
+    private final double uniqueRowsRatio;
+
+    public AdaptivePartialAggregation(long minRows, double uniqueRowsRatio)
+    {
+        checkArgument(minRows > 0, "minRows must be positive");
+        checkArgument(uniqueRowsRatio >= 0 && uniqueRowsRatio <= 1, "uniqueRowsRatio must be between 0 and 1");
+        this.minRows = minRows;
+        this.uniqueRowsRatio = uniqueRowsRatio;
+    }
+
+    public long getMinRows()
+    {
+        return minRows;
+    }
+
+    public double getUniqueRowsRatio()
+    {
+        return uniqueRowsRatio;
+    }
+
+    public boolean shouldPassThrough(long inputRows, long groupCount)
+    {
+        return inputRows >= minRows && groupCount > uniqueRowsRatio * inputRows;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("minRows", minRows)
+                .add("uniqueRowsRatio", uniqueRowsRatio)
+                .toString();
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.type.Type;
+import io.airlift.slice.XxHash64;
+
+import static com.facebook.presto.type.TypeUtils.createBlock;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static io.airlift.slice.SizeOf.sizeOf;
+
+/**
+ * A Bloom filter over the native values of a key. The number of bits is a power of two, so
+ * a filter can be folded to half its size by combining its halves, which lets the builder
+ * start with the largest filter allowed and shrink it to the number of values it received.
+ */
+public final class BloomFilter
+{
+    private static final int HASH_FUNCTIONS = 6;
+    // about 1% false positives with six hash functions
+    private static final int MIN_BITS_PER_VALUE = 10;
+    private static final int MIN_BITS = 64;
+
+    private final long[] bits;
+    private final int mask;
+    private long valueCount;
+
+    public BloomFilter(long maxSizeInBytes)
+    {
+        checkArgument(maxSizeInBytes >= MIN_BITS / Byte.SIZE, "maxSizeInBytes must be at least %s", MIN_BITS / Byte.SIZE);
+        // the bit index must fit in an int
+        long bitCount = Long.highestOneBit(Math.min(maxSizeInBytes * Byte.SIZE, 1L << 30));
+        this.bits = new long[(int) (bitCount / Long.SIZE)];
+        this.mask = (int) bitCount - 1;
+    }
+
+    private BloomFilter(long[] bits, long valueCount)
+    {
+        this.bits = bits;
+        this.mask = bits.length * Long.SIZE - 1;
+        this.valueCount = valueCount;
+    }
+
+    /**
+     * Hashes the value at a position of a block, spreading the hash of the type over 64 bits.
+     */
+    public static long hash(Type type, Block block, int position)
+    {
+        return XxHash64.hash(type.hash(block, position));
+    }
+
+    /**
+     * Hashes a native value the same way as {@link #hash(Type, Block, int)} does in a block.
+     */
+    public static long hash(Type type, Object value)
+    {
+        checkNotNull(value, "value is null");
+        return hash(type, createBlock(type, value), 0);
+    }
+
+    public void add(long hash)
+    {
+        int first = (int) hash;
+        int second = (int) (hash >>> 32);
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            int bit = (first + i * second) & mask;
+            bits[bit >>> 6] |= 1L << bit;
+        }
+        valueCount++;
+    }
+
+    public boolean mightContain(long hash)
+    {
+        int first = (int) hash;
+        int second = (int) (hash >>> 32);
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            int bit = (first + i * second) & mask;
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds the values of another filter of the same size.
+     */
+    public void merge(BloomFilter other)
+    {
+        checkNotNull(other, "other is null");
+        checkArgument(other.bits.length == bits.length, "Filters have different sizes");
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] |= other.bits[i];
+        }
+        valueCount += other.valueCount;
+    }
+
+    /**
+     * Returns the smallest fold of this filter that still has enough bits for the values
+     * that were added. The values include duplicates, so the result errs on the large side.
+     */
+    public BloomFilter compact()
+    {
+        long[] folded = bits;
+        while (folded.length > 1 && (folded.length / 2L) * Long.SIZE >= valueCount * MIN_BITS_PER_VALUE) {
+            long[] half = new long[folded.length / 2];
+            for (int i = 0; i < half.length; i++) {
+                half[i] = folded[i] | folded[i + half.length];
+            }
+            folded = half;
+        }
+        if (folded == bits) {
+            return this;
+        }
+        return new BloomFilter(folded, valueCount);
+    }
+
+    public long getSizeInBytes()
+    {
+        return sizeOf(bits);
+    }
+
+    public int getBitCount()
+    {
+        return bits.length * Long.SIZE;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.PageBuilder;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.DictionaryBlock;
+import com.facebook.presto.spi.block.RunLengthEncodedBlock;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Looks up each distinct value of a dictionary or run length encoded probe channel
+ * in the lookup source only once per page.
+ */
+public class DictionaryAwareJoinProbe
+        implements JoinProbe
+{
+    public static class DictionaryAwareJoinProbeFactory
+            implements JoinProbeFactory
+    {
+        private final JoinProbeFactory delegate;
+        private final int probeJoinChannel;
+
+        public DictionaryAwareJoinProbeFactory(JoinProbeFactory delegate, int probeJoinChannel)
+        {
+            this.delegate = checkNotNull(delegate, "delegate is null");
+            this.probeJoinChannel = probeJoinChannel;
+        }
+
+        @Override
+        public JoinProbe createJoinProbe(LookupSource lookupSource, Page page)
+        {
+            JoinProbe probe = delegate.createJoinProbe(lookupSource, page);
+            Block block = page.getBlock(probeJoinChannel);
+            if (block instanceof RunLengthEncodedBlock) {
+                return new DictionaryAwareJoinProbe(probe, null, 1);
+            }
+            if (block instanceof DictionaryBlock) {
+                DictionaryBlock dictionaryBlock = (DictionaryBlock) block;
+                int dictionarySize = dictionaryBlock.getDictionary().getPositionCount();
+                if (dictionarySize <= page.getPositionCount()) {
+                    return new DictionaryAwareJoinProbe(probe, dictionaryBlock, dictionarySize);
+                }
+            }
+            return probe;
+        }
+    }
+
+    private static final long UNKNOWN = -2;
+
+    private final JoinProbe delegate;
+    private final DictionaryBlock dictionaryBlock;
+    private final long[] joinPositions;
+    private int position = -1;
+
+    private DictionaryAwareJoinProbe(JoinProbe delegate, DictionaryBlock dictionaryBlock, int dictionarySize)
+    {
+        this.delegate = delegate;
+        this.dictionaryBlock = dictionaryBlock;
+        this.joinPositions = new long[dictionarySize];
+        Arrays.fill(joinPositions, UNKNOWN);
+    }
+
+    @Override
+    public int getChannelCount()
+    {
+        return delegate.getChannelCount();
+    }
+
+    @Override
+    public boolean advanceNextPosition()
+    {
+        position++;
+        return delegate.advanceNextPosition();
+    }
+
+    @Override
+    public long getCurrentJoinPosition()
+    {
+        // a run length encoded block has a single dictionary entry
+        int id = dictionaryBlock == null ? 0 : dictionaryBlock.getId(position);
+        long joinPosition = joinPositions[id];
+        if (joinPosition == UNKNOWN) {
+            joinPosition = delegate.getCurrentJoinPosition();
+            joinPositions[id] = joinPosition;
+        }
+        return joinPosition;
+    }
+
+    @Override
+    public void appendTo(PageBuilder pageBuilder)
+    {
+        delegate.appendTo(pageBuilder);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.spi.block.Block;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Results of a page processor over the last dictionary seen by its filter and by each of its
+ * projections. The pages of a split usually share their dictionaries, so a dictionary is only
+ * evaluated for the first page that refers to it. Page processors are shared by all the
+ * operators of a query, so each operator has a cache of its own.
+ */
+@NotThreadSafe
+public class DictionaryCache
+{
+    private Block filterDictionary;
+    private boolean[] filterResults;
+
+    private final Map<Integer, Block> sourceDictionaries = new HashMap<>();
+    private final Map<Integer, Block> projectedDictionaries = new HashMap<>();
+
+    @Nullable
+    public boolean[] getFilterResults(Block dictionary)
+    {
+        if (dictionary != filterDictionary) {
+            return null;
+        }
+        return filterResults;
+    }
+
+    public void setFilterResults(Block dictionary, @Nullable boolean[] results)
+    {
+        filterDictionary = dictionary;
+        filterResults = results;
+    }
+
+    @Nullable
+    public Block getProjectedDictionary(int projection, Block dictionary)
+    {
+        if (sourceDictionaries.get(projection) != dictionary) {
+            return null;
+        }
+        return projectedDictionaries.get(projection);
+    }
+
+    public void setProjectedDictionary(int projection, Block dictionary, @Nullable Block projectedDictionary)
+    {
+        sourceDictionaries.put(projection, dictionary);
+        projectedDictionaries.put(projection, projectedDictionary);
+    }
+}
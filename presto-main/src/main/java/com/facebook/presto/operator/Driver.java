@@ -319,6 +319,12 @@ public class Driver
                 processNewSources();
             }
 
+            // wait while the memory pool of the query is exhausted
+            ListenableFuture<?> memoryFuture = driverContext.getMemoryFuture();
+            if (!memoryFuture.isDone()) {
+                return memoryFuture;
+            }
+
             for (int i = 0; i < operators.size() - 1 && !driverContext.isDone(); i++) {
                 // check if current operator is blocked
                 Operator current = operators.get(i);
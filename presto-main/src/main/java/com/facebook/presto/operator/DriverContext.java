@@ -199,6 +199,11 @@ public class DriverContext
         return result;
     }
 
+    public ListenableFuture<?> getMemoryFuture()
+    {
+        return pipelineContext.getTaskContext().getMemoryFuture();
+    }
+
     public void freeMemory(long bytes)
     {
         pipelineContext.freeMemory(bytes);
@@ -13,6 +13,8 @@
  */
 package com.facebook.presto.operator;
 
+import com.facebook.presto.fragmentcache.FragmentResultCache;
+import com.facebook.presto.spi.Page;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
@@ -24,6 +26,7 @@ import java.util.Set;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.Iterables.getLast;
 
 public class DriverFactory
         implements Closeable
@@ -96,6 +99,53 @@ public class DriverFactory
         return new Driver(driverContext, operators.build());
     }
 
+    /**
+     * Creates a driver that passes the cached output of the pipeline to its output operator
+     * instead of running the other operators.
+     */
+    public synchronized Driver createCachedDriver(DriverContext driverContext, List<Page> cachedPages)
+    {
+        checkState(!closed, "DriverFactory is already closed");
+        checkNotNull(driverContext, "driverContext is null");
+        checkNotNull(cachedPages, "cachedPages is null");
+        checkState(outputDriver, "Only the output of an output driver can be cached");
+        checkState(operatorFactories.size() > 1, "Pipeline has no operators before the output operator");
+
+        OperatorFactory outputOperatorFactory = getLast(operatorFactories);
+        Operator outputOperator = outputOperatorFactory.createOperator(driverContext);
+
+        // the output operator is planned last, so no other operator of the pipeline uses the next id
+        int operatorId = outputOperator.getOperatorContext().getOperatorId() + 1;
+        OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, ValuesOperator.class.getSimpleName());
+        Operator cachedPagesOperator = new ValuesOperator(operatorContext, operatorFactories.get(operatorFactories.size() - 2).getTypes(), cachedPages);
+
+        return new Driver(driverContext, cachedPagesOperator, outputOperator);
+    }
+
+    /**
+     * Creates a driver that puts the output of the pipeline in the cache under the key,
+     * once it has been fully produced.
+     */
+    public synchronized Driver createCachingDriver(DriverContext driverContext, FragmentResultCache cache, String key)
+    {
+        checkState(!closed, "DriverFactory is already closed");
+        checkNotNull(driverContext, "driverContext is null");
+        checkState(outputDriver, "Only the output of an output driver can be cached");
+        checkState(operatorFactories.size() > 1, "Pipeline has no operators before the output operator");
+
+        ImmutableList.Builder<Operator> operators = ImmutableList.builder();
+        for (OperatorFactory operatorFactory : operatorFactories.subList(0, operatorFactories.size() - 1)) {
+            operators.add(operatorFactory.createOperator(driverContext));
+        }
+        Operator outputOperator = getLast(operatorFactories).createOperator(driverContext);
+
+        int operatorId = outputOperator.getOperatorContext().getOperatorId() + 1;
+        OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, FragmentResultCacheOperator.class.getSimpleName());
+        operators.add(new FragmentResultCacheOperator(operatorContext, operatorFactories.get(operatorFactories.size() - 2).getTypes(), cache, key));
+
+        return new Driver(driverContext, operators.add(outputOperator).build());
+    }
+
     @Override
     public synchronized void close()
     {
@@ -0,0 +1,370 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.metadata.ColumnHandle;
+import com.facebook.presto.spi.Domain;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.Range;
+import com.facebook.presto.spi.RecordCursor;
+import com.facebook.presto.spi.TupleDomain;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.DictionaryBlock;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.airlift.slice.Slice;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Collections.nCopies;
+
+/**
+ * Domains of the join keys on the build side of an inner join or of a semi join that
+ * filters its source, used to skip probe rows that cannot match. The build side publishes
+ * the domains once the hash table or set is built, and the table scan on the probe side
+ * applies them to the splits and pages it reads after that point. Keys with too many
+ * distinct values to list are described by their range and, optionally, a Bloom filter.
+ */
+@ThreadSafe
+public class DynamicFilter
+{
+    private final List<Integer> probeChannels;
+    private final List<ColumnHandle> probeColumns;
+    private final List<Type> types;
+    private final long maxBloomFilterSize;
+
+    private final AtomicReference<List<KeyFilter>> keyFilters = new AtomicReference<>();
+
+    /**
+     * @param probeChannels the input channels of the probe side table scan holding the same keys
+     * @param probeColumns the columns of the probe side table scan holding the same keys
+     * @param types the types of the join keys
+     */
+    public DynamicFilter(List<Integer> probeChannels, List<ColumnHandle> probeColumns, List<Type> types)
+    {
+        this(probeChannels, probeColumns, types, 0);
+    }
+
+    /**
+     * @param maxBloomFilterSize the size in bytes of the Bloom filter that the build side collects for each key,
+     * which is folded to the number of keys at the end, or zero to only collect the domains
+     */
+    public DynamicFilter(List<Integer> probeChannels, List<ColumnHandle> probeColumns, List<Type> types, long maxBloomFilterSize)
+    {
+        this.probeChannels = ImmutableList.copyOf(checkNotNull(probeChannels, "probeChannels is null"));
+        this.probeColumns = ImmutableList.copyOf(checkNotNull(probeColumns, "probeColumns is null"));
+        this.types = ImmutableList.copyOf(checkNotNull(types, "types is null"));
+        checkArgument(probeChannels.size() == types.size() && probeColumns.size() == types.size(), "channels, columns and types must have the same size");
+        checkArgument(!types.isEmpty(), "types is empty");
+        for (Type type : types) {
+            checkArgument(isSupportedType(type), "Unsupported type %s", type);
+        }
+        checkArgument(maxBloomFilterSize >= 0, "maxBloomFilterSize is negative");
+        this.maxBloomFilterSize = maxBloomFilterSize;
+    }
+
+    /**
+     * Dynamic filtering uses the native value of the keys, so the key types must be orderable.
+     * Doubles are excluded because they compare differently in a join than in a domain.
+     */
+    public static boolean isSupportedType(Type type)
+    {
+        Class<?> javaType = type.getJavaType();
+        return type.isOrderable() && (javaType == long.class || javaType == boolean.class || javaType == Slice.class);
+    }
+
+    public List<Type> getTypes()
+    {
+        return types;
+    }
+
+    public long getMaxBloomFilterSize()
+    {
+        return maxBloomFilterSize;
+    }
+
+    public void setDomains(List<Domain> domains)
+    {
+        setDomains(domains, nCopies(domains.size(), Optional.empty()));
+    }
+
+    /**
+     * @param bloomFilters the Bloom filters of the keys whose domains are not made of single values
+     */
+    public void setDomains(List<Domain> domains, List<Optional<BloomFilter>> bloomFilters)
+    {
+        checkNotNull(domains, "domains is null");
+        checkNotNull(bloomFilters, "bloomFilters is null");
+        checkArgument(domains.size() == types.size(), "Expected %s domains, but got %s", types.size(), domains.size());
+        checkArgument(bloomFilters.size() == types.size(), "Expected %s Bloom filters, but got %s", types.size(), bloomFilters.size());
+
+        ImmutableList.Builder<KeyFilter> filters = ImmutableList.builder();
+        for (int i = 0; i < domains.size(); i++) {
+            filters.add(new KeyFilter(types.get(i), domains.get(i), bloomFilters.get(i)));
+        }
+        checkState(keyFilters.compareAndSet(null, filters.build()), "Domains are already set");
+    }
+
+    public boolean isComplete()
+    {
+        return keyFilters.get() != null;
+    }
+
+    public TupleDomain<ColumnHandle> getTupleDomain()
+    {
+        List<KeyFilter> filters = keyFilters.get();
+        checkState(filters != null, "Dynamic filter is not complete");
+
+        TupleDomain<ColumnHandle> tupleDomain = TupleDomain.all();
+        for (int i = 0; i < filters.size(); i++) {
+            // a column can be compared with more than one build key, so the domains are intersected
+            tupleDomain = tupleDomain.intersect(TupleDomain.withColumnDomains(ImmutableMap.of(probeColumns.get(i), filters.get(i).getDomain())));
+        }
+        return tupleDomain;
+    }
+
+    /**
+     * Removes the rows of a probe side page whose keys are not in the domains. The remaining
+     * rows are not copied, but wrapped in dictionary blocks, so lazy blocks stay unloaded.
+     */
+    public Page filter(Page page)
+    {
+        List<KeyFilter> filters = keyFilters.get();
+        checkState(filters != null, "Dynamic filter is not complete");
+
+        int[] positions = new int[page.getPositionCount()];
+        int positionCount = 0;
+        for (int position = 0; position < page.getPositionCount(); position++) {
+            if (matches(filters, page, position)) {
+                positions[positionCount] = position;
+                positionCount++;
+            }
+        }
+
+        if (positionCount == page.getPositionCount()) {
+            return page;
+        }
+
+        Block[] blocks = new Block[page.getChannelCount()];
+        for (int channel = 0; channel < blocks.length; channel++) {
+            blocks[channel] = new DictionaryBlock(positionCount, page.getBlock(channel), positions);
+        }
+        return new Page(positionCount, blocks);
+    }
+
+    /**
+     * Returns a cursor that skips the rows of a probe side cursor whose keys are not in the domains.
+     */
+    public RecordCursor filter(RecordCursor cursor)
+    {
+        List<KeyFilter> filters = keyFilters.get();
+        checkState(filters != null, "Dynamic filter is not complete");
+        return new FilteredRecordCursor(cursor, filters);
+    }
+
+    private boolean matches(List<KeyFilter> filters, Page page, int position)
+    {
+        for (int i = 0; i < filters.size(); i++) {
+            Block block = page.getBlock(probeChannels.get(i));
+            if (block.isNull(position) || !filters.get(i).includes(block, position)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static Comparable<?> getNativeValue(Type type, Block block, int position)
+    {
+        Class<?> javaType = type.getJavaType();
+        if (javaType == long.class) {
+            return type.getLong(block, position);
+        }
+        if (javaType == boolean.class) {
+            return type.getBoolean(block, position);
+        }
+        return type.getSlice(block, position);
+    }
+
+    private boolean matches(List<KeyFilter> filters, RecordCursor cursor)
+    {
+        for (int i = 0; i < filters.size(); i++) {
+            int field = probeChannels.get(i);
+            if (cursor.isNull(field) || !filters.get(i).includes(getNativeValue(types.get(i), cursor, field))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Comparable<?> getNativeValue(Type type, RecordCursor cursor, int field)
+    {
+        Class<?> javaType = type.getJavaType();
+        if (javaType == long.class) {
+            return cursor.getLong(field);
+        }
+        if (javaType == boolean.class) {
+            return cursor.getBoolean(field);
+        }
+        return cursor.getSlice(field);
+    }
+
+    private class FilteredRecordCursor
+            implements RecordCursor
+    {
+        private final RecordCursor cursor;
+        private final List<KeyFilter> filters;
+
+        public FilteredRecordCursor(RecordCursor cursor, List<KeyFilter> filters)
+        {
+            this.cursor = checkNotNull(cursor, "cursor is null");
+            this.filters = filters;
+        }
+
+        @Override
+        public boolean advanceNextPosition()
+        {
+            while (cursor.advanceNextPosition()) {
+                if (matches(filters, cursor)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public long getTotalBytes()
+        {
+            return cursor.getTotalBytes();
+        }
+
+        @Override
+        public long getCompletedBytes()
+        {
+            return cursor.getCompletedBytes();
+        }
+
+        @Override
+        public long getReadTimeNanos()
+        {
+            return cursor.getReadTimeNanos();
+        }
+
+        @Override
+        public Type getType(int field)
+        {
+            return cursor.getType(field);
+        }
+
+        @Override
+        public boolean getBoolean(int field)
+        {
+            return cursor.getBoolean(field);
+        }
+
+        @Override
+        public long getLong(int field)
+        {
+            return cursor.getLong(field);
+        }
+
+        @Override
+        public double getDouble(int field)
+        {
+            return cursor.getDouble(field);
+        }
+
+        @Override
+        public Slice getSlice(int field)
+        {
+            return cursor.getSlice(field);
+        }
+
+        @Override
+        public boolean isNull(int field)
+        {
+            return cursor.isNull(field);
+        }
+
+        @Override
+        public void close()
+        {
+            cursor.close();
+        }
+    }
+
+    private static class KeyFilter
+    {
+        private final Type type;
+        private final Domain domain;
+        // exact lookups for domains made of single values
+        private final Set<Object> values;
+        // approximate lookups within a range
+        private final BloomFilter bloomFilter;
+
+        public KeyFilter(Type type, Domain domain, Optional<BloomFilter> bloomFilter)
+        {
+            this.type = checkNotNull(type, "type is null");
+            this.domain = checkNotNull(domain, "domain is null");
+            this.bloomFilter = checkNotNull(bloomFilter, "bloomFilter is null").orElse(null);
+
+            Set<Object> singleValues = new HashSet<>();
+            for (Range range : domain.getRanges()) {
+                if (!range.isSingleValue()) {
+                    singleValues = null;
+                    break;
+                }
+                singleValues.add(range.getSingleValue());
+            }
+            this.values = singleValues;
+        }
+
+        public Domain getDomain()
+        {
+            return domain;
+        }
+
+        public boolean includes(Block block, int position)
+        {
+            Comparable<?> value = getNativeValue(type, block, position);
+            if (values != null) {
+                return values.contains(value);
+            }
+            if (!domain.includesValue(value)) {
+                return false;
+            }
+            return bloomFilter == null || bloomFilter.mightContain(BloomFilter.hash(type, block, position));
+        }
+
+        public boolean includes(Comparable<?> value)
+        {
+            if (values != null) {
+                return values.contains(value);
+            }
+            if (!domain.includesValue(value)) {
+                return false;
+            }
+            return bloomFilter == null || bloomFilter.mightContain(BloomFilter.hash(type, value));
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.spi.Domain;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.Range;
+import com.facebook.presto.spi.SortedRangeSet;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Primitives;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.facebook.presto.operator.DynamicFilter.getNativeValue;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Iterables.transform;
+
+/**
+ * Collects the domains of the build side join keys for a {@link DynamicFilter}. Each key is
+ * described by its distinct values while there are few of them. Past that, the distinct values
+ * are dropped and the key is described by its range, narrowed by a Bloom filter of the values
+ * when the dynamic filter allows one.
+ */
+public class DynamicFilterCollector
+{
+    private static final int MAX_DISTINCT_VALUES = 1024;
+
+    private final DynamicFilter dynamicFilter;
+    private final List<Integer> channels;
+    private final List<Type> types;
+    // the distinct values of each key, or null once there are too many
+    private final List<Set<Comparable<?>>> distinctValues = new ArrayList<>();
+    // the smallest and largest value of each key, as single value blocks
+    private final Block[] min;
+    private final Block[] max;
+    // the Bloom filter of each key whose distinct values were dropped, or null if the dynamic filter does not use them
+    private final BloomFilter[] bloomFilters;
+
+    /**
+     * @param channels the join key channels of the build side, in the order of the keys of the filter
+     */
+    public DynamicFilterCollector(DynamicFilter dynamicFilter, List<Integer> channels)
+    {
+        this.dynamicFilter = checkNotNull(dynamicFilter, "dynamicFilter is null");
+        this.channels = ImmutableList.copyOf(checkNotNull(channels, "channels is null"));
+        this.types = dynamicFilter.getTypes();
+        checkArgument(channels.size() == types.size(), "Expected %s channels, but got %s", types.size(), channels.size());
+
+        for (int i = 0; i < types.size(); i++) {
+            distinctValues.add(new HashSet<>());
+        }
+        this.min = new Block[types.size()];
+        this.max = new Block[types.size()];
+        this.bloomFilters = dynamicFilter.getMaxBloomFilterSize() > 0 ? new BloomFilter[types.size()] : null;
+    }
+
+    /**
+     * Returns the memory used by the Bloom filters.
+     */
+    public long getEstimatedSize()
+    {
+        if (bloomFilters == null) {
+            return 0;
+        }
+        long size = 0;
+        for (BloomFilter bloomFilter : bloomFilters) {
+            if (bloomFilter != null) {
+                size += bloomFilter.getSizeInBytes();
+            }
+        }
+        return size;
+    }
+
+    public void addPage(Page page)
+    {
+        for (int i = 0; i < channels.size(); i++) {
+            Block block = page.getBlock(channels.get(i));
+            Type type = types.get(i);
+            for (int position = 0; position < block.getPositionCount(); position++) {
+                // null keys never match, so they do not widen the domain
+                if (block.isNull(position)) {
+                    continue;
+                }
+                if (min[i] == null || type.compareTo(block, position, min[i], 0) < 0) {
+                    min[i] = block.getSingleValueBlock(position);
+                }
+                if (max[i] == null || type.compareTo(block, position, max[i], 0) > 0) {
+                    max[i] = block.getSingleValueBlock(position);
+                }
+
+                Set<Comparable<?>> values = distinctValues.get(i);
+                if (values != null) {
+                    if (values.add(getNativeValue(type, block, position)) && values.size() > MAX_DISTINCT_VALUES) {
+                        dropDistinctValues(i);
+                    }
+                }
+                else if (bloomFilters != null) {
+                    bloomFilters[i].add(BloomFilter.hash(type, block, position));
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the keys collected by another collector of the same dynamic filter, for a build
+     * side that is collected by several drivers.
+     */
+    public void merge(DynamicFilterCollector other)
+    {
+        checkNotNull(other, "other is null");
+        checkArgument(other.dynamicFilter == dynamicFilter, "Collectors are for different dynamic filters");
+
+        for (int i = 0; i < types.size(); i++) {
+            if (other.min[i] == null) {
+                continue;
+            }
+            Type type = types.get(i);
+            if (min[i] == null || type.compareTo(other.min[i], 0, min[i], 0) < 0) {
+                min[i] = other.min[i];
+            }
+            if (max[i] == null || type.compareTo(other.max[i], 0, max[i], 0) > 0) {
+                max[i] = other.max[i];
+            }
+
+            Set<Comparable<?>> otherValues = other.distinctValues.get(i);
+            if (otherValues != null) {
+                addDistinctValues(i, otherValues);
+                continue;
+            }
+            if (distinctValues.get(i) != null) {
+                dropDistinctValues(i);
+            }
+            if (bloomFilters != null) {
+                bloomFilters[i].merge(other.bloomFilters[i]);
+            }
+        }
+    }
+
+    private void addDistinctValues(int key, Set<Comparable<?>> values)
+    {
+        Set<Comparable<?>> distinct = distinctValues.get(key);
+        if (distinct != null) {
+            if (distinct.addAll(values) && distinct.size() > MAX_DISTINCT_VALUES) {
+                dropDistinctValues(key);
+            }
+        }
+        else if (bloomFilters != null) {
+            for (Comparable<?> value : values) {
+                bloomFilters[key].add(BloomFilter.hash(types.get(key), value));
+            }
+        }
+    }
+
+    /**
+     * Replaces the distinct values of a key by a Bloom filter of them.
+     */
+    private void dropDistinctValues(int key)
+    {
+        Set<Comparable<?>> values = distinctValues.get(key);
+        distinctValues.set(key, null);
+        if (bloomFilters != null) {
+            bloomFilters[key] = new BloomFilter(dynamicFilter.getMaxBloomFilterSize());
+            addDistinctValues(key, values);
+        }
+    }
+
+    /**
+     * Publishes the domains to the dynamic filter.
+     */
+    public void finish()
+    {
+        ImmutableList.Builder<Domain> domains = ImmutableList.builder();
+        ImmutableList.Builder<Optional<BloomFilter>> keyBloomFilters = ImmutableList.builder();
+        for (int i = 0; i < types.size(); i++) {
+            Type type = types.get(i);
+            Class<?> javaType = Primitives.wrap(type.getJavaType());
+            Set<Comparable<?>> values = distinctValues.get(i);
+            if (min[i] == null) {
+                domains.add(Domain.none(javaType));
+            }
+            else if (values != null) {
+                domains.add(Domain.create(SortedRangeSet.copyOf(javaType, transform(values, Range::equal)), false));
+            }
+            else {
+                domains.add(Domain.create(SortedRangeSet.of(Range.range(getNativeValue(type, min[i], 0), true, getNativeValue(type, max[i], 0), true)), false));
+            }
+
+            if (bloomFilters != null && min[i] != null && values == null) {
+                keyBloomFilters.add(Optional.of(bloomFilters[i].compact()));
+            }
+            else {
+                keyBloomFilters.add(Optional.empty());
+            }
+        }
+        dynamicFilter.setDomains(domains.build(), keyBloomFilters.build());
+    }
+}
@@ -115,11 +115,26 @@ public class ExchangeClient
             bufferedPages--;
         }
 
+        long compressedBytesReceived = 0;
+        long uncompressedBytesReceived = 0;
+        long decompressionCpuNanos = 0;
         ImmutableList.Builder<PageBufferClientStatus> exchangeStatus = ImmutableList.builder();
         for (HttpPageBufferClient client : allClients.values()) {
-            exchangeStatus.add(client.getStatus());
+            PageBufferClientStatus clientStatus = client.getStatus();
+            compressedBytesReceived += clientStatus.getCompressedBytesReceived();
+            uncompressedBytesReceived += clientStatus.getUncompressedBytesReceived();
+            decompressionCpuNanos += clientStatus.getDecompressionCpuNanos();
+            exchangeStatus.add(clientStatus);
         }
-        return new ExchangeClientStatus(bufferBytes, averageBytesPerRequest, bufferedPages, noMoreLocations, exchangeStatus.build());
+        return new ExchangeClientStatus(
+                bufferBytes,
+                averageBytesPerRequest,
+                bufferedPages,
+                noMoreLocations,
+                compressedBytesReceived,
+                uncompressedBytesReceived,
+                decompressionCpuNanos,
+                exchangeStatus.build());
     }
 
     public synchronized void addLocation(URI location)
@@ -32,6 +32,7 @@ public class ExchangeClientConfig
     private Duration minErrorDuration = new Duration(1, TimeUnit.MINUTES);
     private DataSize maxResponseSize = new HttpClientConfig().getMaxContentLength();
     private int clientThreads = 25;
+    private boolean compressionEnabled;
 
     @NotNull
     public DataSize getMaxBufferSize()
@@ -98,4 +99,16 @@ public class ExchangeClientConfig
         this.clientThreads = clientThreads;
         return this;
     }
+
+    public boolean isCompressionEnabled()
+    {
+        return compressionEnabled;
+    }
+
+    @Config("exchange.compression-enabled")
+    public ExchangeClientConfig setCompressionEnabled(boolean compressionEnabled)
+    {
+        this.compressionEnabled = compressionEnabled;
+        return this;
+    }
 }
@@ -28,6 +28,9 @@ public class ExchangeClientStatus
     private final long averageBytesPerRequest;
     private final int bufferedPages;
     private final boolean noMoreLocations;
+    private final long compressedBytesReceived;
+    private final long uncompressedBytesReceived;
+    private final long decompressionCpuNanos;
     private final List<PageBufferClientStatus> pageBufferClientStatuses;
 
     @JsonCreator
@@ -36,12 +39,18 @@ public class ExchangeClientStatus
             @JsonProperty("averageBytesPerRequest") long averageBytesPerRequest,
             @JsonProperty("bufferedPages") int bufferedPages,
             @JsonProperty("noMoreLocations") boolean noMoreLocations,
+            @JsonProperty("compressedBytesReceived") long compressedBytesReceived,
+            @JsonProperty("uncompressedBytesReceived") long uncompressedBytesReceived,
+            @JsonProperty("decompressionCpuNanos") long decompressionCpuNanos,
             @JsonProperty("pageBufferClientStatuses") List<PageBufferClientStatus> pageBufferClientStatuses)
     {
         this.bufferedBytes = bufferedBytes;
         this.averageBytesPerRequest = averageBytesPerRequest;
         this.bufferedPages = bufferedPages;
         this.noMoreLocations = noMoreLocations;
+        this.compressedBytesReceived = compressedBytesReceived;
+        this.uncompressedBytesReceived = uncompressedBytesReceived;
+        this.decompressionCpuNanos = decompressionCpuNanos;
         this.pageBufferClientStatuses = ImmutableList.copyOf(checkNotNull(pageBufferClientStatuses, "pageBufferClientStatuses is null"));
     }
 
@@ -69,6 +78,30 @@ public class ExchangeClientStatus
         return noMoreLocations;
     }
 
+    /**
+     * Size of the compressed pages received, as sent over the network.
+     */
+    @JsonProperty
+    public long getCompressedBytesReceived()
+    {
+        return compressedBytesReceived;
+    }
+
+    /**
+     * Size of the compressed pages received, after decompression.
+     */
+    @JsonProperty
+    public long getUncompressedBytesReceived()
+    {
+        return uncompressedBytesReceived;
+    }
+
+    @JsonProperty
+    public long getDecompressionCpuNanos()
+    {
+        return decompressionCpuNanos;
+    }
+
     @JsonProperty
 
     public List<PageBufferClientStatus> getPageBufferClientStatuses()
@@ -84,6 +117,9 @@ public class ExchangeClientStatus
                 .add("averageBytesPerRequest", averageBytesPerRequest)
                 .add("bufferedPages", bufferedPages)
                 .add("noMoreLocations", noMoreLocations)
+                .add("compressedBytesReceived", compressedBytesReceived)
+                .add("uncompressedBytesReceived", uncompressedBytesReceived)
+                .add("decompressionCpuNanos", decompressionCpuNanos)
                 .add("pageBufferClientStatuses", pageBufferClientStatuses)
                 .toString();
     }
@@ -31,6 +31,7 @@ public class FilterAndProjectOperator
 
     private final PageBuilder pageBuilder;
     private final PageProcessor processor;
+    private final DictionaryCache dictionaryCache = new DictionaryCache();
     private Page currentPage;
     private int currentPosition;
     private boolean finishing;
@@ -88,7 +89,16 @@ public class FilterAndProjectOperator
     public final Page getOutput()
     {
         if (!pageBuilder.isFull() && currentPage != null) {
-            currentPosition = processor.process(operatorContext.getSession().toConnectorSession(), currentPage, currentPosition, currentPage.getPositionCount(), pageBuilder);
+            // a page processed over its dictionaries is returned as is, so the output keeps the order of the input
+            if (currentPosition == 0 && pageBuilder.isEmpty()) {
+                Page page = processor.processDictionaryPage(operatorContext.getSession().toConnectorSession(), currentPage, dictionaryCache);
+                if (page != null) {
+                    currentPage = null;
+                    return page.getPositionCount() == 0 ? null : page;
+                }
+            }
+
+            currentPosition = processor.process(operatorContext.getSession().toConnectorSession(), currentPage, currentPosition, currentPage.getPositionCount(), pageBuilder, dictionaryCache);
             if (currentPosition == currentPage.getPositionCount()) {
                 currentPage = null;
                 currentPosition = 0;
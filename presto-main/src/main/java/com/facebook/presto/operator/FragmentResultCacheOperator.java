@@ -0,0 +1,135 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.fragmentcache.FragmentResultCache;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Passes the output of a pipeline for a split through to its output operator, and puts
+ * the pages in the {@link FragmentResultCache} once all of them were produced. Pages that
+ * grow beyond the maximum entry size or the memory of the task are not cached.
+ */
+public class FragmentResultCacheOperator
+        implements Operator
+{
+    private final OperatorContext operatorContext;
+    private final List<Type> types;
+    private final FragmentResultCache cache;
+    private final String key;
+
+    // null once the pages are not cached
+    private List<Page> pages = new ArrayList<>();
+    private long sizeInBytes;
+
+    private Page outputPage;
+    private boolean finishing;
+
+    public FragmentResultCacheOperator(OperatorContext operatorContext, List<Type> types, FragmentResultCache cache, String key)
+    {
+        this.operatorContext = checkNotNull(operatorContext, "operatorContext is null");
+        this.types = ImmutableList.copyOf(checkNotNull(types, "types is null"));
+        this.cache = checkNotNull(cache, "cache is null");
+        this.key = checkNotNull(key, "key is null");
+    }
+
+    @Override
+    public OperatorContext getOperatorContext()
+    {
+        return operatorContext;
+    }
+
+    @Override
+    public List<Type> getTypes()
+    {
+        return types;
+    }
+
+    @Override
+    public void finish()
+    {
+        if (finishing) {
+            return;
+        }
+        finishing = true;
+
+        if (pages != null) {
+            cache.put(key, pages);
+            discardPages();
+        }
+    }
+
+    @Override
+    public boolean isFinished()
+    {
+        return finishing && outputPage == null;
+    }
+
+    @Override
+    public boolean needsInput()
+    {
+        return !finishing && outputPage == null;
+    }
+
+    @Override
+    public void addInput(Page page)
+    {
+        checkNotNull(page, "page is null");
+        checkState(needsInput(), "Operator is already finishing or has a pending page");
+
+        if (pages != null) {
+            long pageSizeInBytes = page.getSizeInBytes();
+            if (sizeInBytes + pageSizeInBytes <= cache.getMaxEntrySizeInBytes() && operatorContext.reserveMemory(pageSizeInBytes)) {
+                pages.add(page);
+                sizeInBytes += pageSizeInBytes;
+            }
+            else {
+                discardPages();
+            }
+        }
+        outputPage = page;
+    }
+
+    @Override
+    public Page getOutput()
+    {
+        Page page = outputPage;
+        outputPage = null;
+        return page;
+    }
+
+    @Override
+    public void close()
+    {
+        if (pages != null) {
+            // the pipeline did not produce all of its output
+            discardPages();
+        }
+    }
+
+    private void discardPages()
+    {
+        operatorContext.freeMemory(sizeInBytes);
+        sizeInBytes = 0;
+        pages = null;
+    }
+}
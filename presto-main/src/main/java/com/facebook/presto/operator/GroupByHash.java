@@ -17,6 +17,8 @@ import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.PageBuilder;
 import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.block.DictionaryBlock;
+import com.facebook.presto.spi.block.RunLengthEncodedBlock;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.sql.gen.JoinCompiler;
 import com.facebook.presto.util.array.LongBigArray;
@@ -133,6 +135,11 @@ public class GroupByHash
         return nextGroupId;
     }
 
+    public int getRawHash(int groupId)
+    {
+        return hashPosition(groupAddress.get(groupId));
+    }
+
     public void appendValuesTo(int groupId, PageBuilder pageBuilder, int outputChannelOffset)
     {
         long address = groupAddress.get(groupId);
@@ -154,15 +161,55 @@ public class GroupByHash
             hashBlocks[i] = page.getBlock(channels[i]);
         }
 
-        // get the group id for each position
+        if (hashBlocks.length == 1 && hashBlocks[0] instanceof RunLengthEncodedBlock) {
+            addRunLengthEncodedGroupIds(page, hashBlocks, blockBuilder);
+        }
+        else if (hashBlocks.length == 1 && hashBlocks[0] instanceof DictionaryBlock && ((DictionaryBlock) hashBlocks[0]).getDictionary().getPositionCount() <= positionCount) {
+            addDictionaryGroupIds(page, hashBlocks, blockBuilder);
+        }
+        else {
+            // get the group id for each position
+            for (int position = 0; position < positionCount; position++) {
+                // get the group for the current row
+                int groupId = putIfAbsent(position, page, hashBlocks);
+
+                // output the group id for this row
+                BIGINT.writeLong(blockBuilder, groupId);
+            }
+        }
+        return new GroupByIdBlock(nextGroupId, blockBuilder.build());
+    }
+
+    private void addRunLengthEncodedGroupIds(Page page, Block[] hashBlocks, BlockBuilder blockBuilder)
+    {
+        // all rows have the same value, so only the first row is hashed
+        int positionCount = page.getPositionCount();
+        if (positionCount == 0) {
+            return;
+        }
+        int groupId = putIfAbsent(0, page, hashBlocks);
         for (int position = 0; position < positionCount; position++) {
-            // get the group for the current row
-            int groupId = putIfAbsent(position, page, hashBlocks);
+            BIGINT.writeLong(blockBuilder, groupId);
+        }
+    }
 
-            // output the group id for this row
+    private void addDictionaryGroupIds(Page page, Block[] hashBlocks, BlockBuilder blockBuilder)
+    {
+        // hash each dictionary entry once, the first time a row refers to it; entries
+        // that no row refers to must not create a group
+        DictionaryBlock dictionaryBlock = (DictionaryBlock) hashBlocks[0];
+        int[] dictionaryGroupIds = new int[dictionaryBlock.getDictionary().getPositionCount()];
+        Arrays.fill(dictionaryGroupIds, -1);
+
+        for (int position = 0; position < page.getPositionCount(); position++) {
+            int id = dictionaryBlock.getId(position);
+            int groupId = dictionaryGroupIds[id];
+            if (groupId < 0) {
+                groupId = putIfAbsent(position, page, hashBlocks);
+                dictionaryGroupIds[id] = groupId;
+            }
             BIGINT.writeLong(blockBuilder, groupId);
         }
-        return new GroupByIdBlock(nextGroupId, blockBuilder.build());
     }
 
     public boolean contains(int position, Page page)
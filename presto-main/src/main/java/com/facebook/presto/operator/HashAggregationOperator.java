@@ -18,20 +18,30 @@ import com.facebook.presto.operator.aggregation.AccumulatorFactory;
 import com.facebook.presto.operator.aggregation.GroupedAccumulator;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.PageBuilder;
+import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.block.BlockBuilderStatus;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spiller.Spiller;
+import com.facebook.presto.spiller.SpillerFactory;
 import com.facebook.presto.sql.planner.plan.AggregationNode.Step;
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 import com.google.common.primitives.Ints;
 import io.airlift.units.DataSize;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spiller.SpillPartitions.MAX_SPLIT_LEVEL;
+import static com.facebook.presto.spiller.SpillPartitions.getPartition;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
@@ -53,6 +63,8 @@ public class HashAggregationOperator
         private final List<Type> types;
         private boolean closed;
         private final long maxPartialMemory;
+        private final Optional<SpillerFactory> spillerFactory;
+        private final Optional<AdaptivePartialAggregation> adaptivePartialAggregation;
 
         public HashAggregationOperatorFactory(
                 int operatorId,
@@ -63,6 +75,35 @@ public class HashAggregationOperator
                 Optional<Integer> hashChannel,
                 int expectedGroups,
                 DataSize maxPartialMemory)
+        {
+            this(operatorId, groupByTypes, groupByChannels, step, accumulatorFactories, hashChannel, expectedGroups, maxPartialMemory, Optional.empty());
+        }
+
+        public HashAggregationOperatorFactory(
+                int operatorId,
+                List<? extends Type> groupByTypes,
+                List<Integer> groupByChannels,
+                Step step,
+                List<AccumulatorFactory> accumulatorFactories,
+                Optional<Integer> hashChannel,
+                int expectedGroups,
+                DataSize maxPartialMemory,
+                Optional<SpillerFactory> spillerFactory)
+        {
+            this(operatorId, groupByTypes, groupByChannels, step, accumulatorFactories, hashChannel, expectedGroups, maxPartialMemory, spillerFactory, Optional.empty());
+        }
+
+        public HashAggregationOperatorFactory(
+                int operatorId,
+                List<? extends Type> groupByTypes,
+                List<Integer> groupByChannels,
+                Step step,
+                List<AccumulatorFactory> accumulatorFactories,
+                Optional<Integer> hashChannel,
+                int expectedGroups,
+                DataSize maxPartialMemory,
+                Optional<SpillerFactory> spillerFactory,
+                Optional<AdaptivePartialAggregation> adaptivePartialAggregation)
         {
             this.operatorId = operatorId;
             this.hashChannel = checkNotNull(hashChannel, "hashChannel is null");
@@ -72,6 +113,8 @@ public class HashAggregationOperator
             this.accumulatorFactories = ImmutableList.copyOf(accumulatorFactories);
             this.expectedGroups = expectedGroups;
             this.maxPartialMemory = checkNotNull(maxPartialMemory, "maxPartialMemory is null").toBytes();
+            this.spillerFactory = checkNotNull(spillerFactory, "spillerFactory is null");
+            this.adaptivePartialAggregation = checkNotNull(adaptivePartialAggregation, "adaptivePartialAggregation is null");
 
             this.types = toTypes(groupByTypes, step, accumulatorFactories, hashChannel);
         }
@@ -101,7 +144,9 @@ public class HashAggregationOperator
                     step,
                     accumulatorFactories,
                     hashChannel,
-                    expectedGroups);
+                    expectedGroups,
+                    spillerFactory,
+                    adaptivePartialAggregation);
         }
 
         @Override
@@ -111,6 +156,9 @@ public class HashAggregationOperator
         }
     }
 
+    // number of files the groups are hash partitioned into when spilling
+    private static final int SPILL_PARTITIONS = 16;
+
     private final OperatorContext operatorContext;
     private final List<Type> groupByTypes;
     private final List<Integer> groupByChannels;
@@ -121,11 +169,24 @@ public class HashAggregationOperator
 
     private final List<Type> types;
     private final MemoryManager memoryManager;
+    private final Optional<SpillerFactory> spillerFactory;
+    private final Optional<AdaptivePartialAggregation> adaptivePartialAggregation;
 
     private GroupByHashAggregationBuilder aggregationBuilder;
     private Iterator<Page> outputIterator;
+    private List<Spiller> spillers;
+    // spilled partitions still to be merged, and the partitions they were split into
+    private final Deque<SpilledPartition> pendingPartitions = new ArrayDeque<>();
+    private final List<Spiller> splitSpillers = new ArrayList<>();
+    private boolean spillsMerged;
     private boolean finishing;
 
+    // rows added to the partial aggregation, and the groups of the builders that have been flushed
+    private long inputRows;
+    private long flushedGroups;
+    private boolean passThrough;
+    private Page passThroughPage;
+
     public HashAggregationOperator(
             OperatorContext operatorContext,
             List<Type> groupByTypes,
@@ -134,6 +195,33 @@ public class HashAggregationOperator
             List<AccumulatorFactory> accumulatorFactories,
             Optional<Integer> hashChannel,
             int expectedGroups)
+    {
+        this(operatorContext, groupByTypes, groupByChannels, step, accumulatorFactories, hashChannel, expectedGroups, Optional.empty());
+    }
+
+    public HashAggregationOperator(
+            OperatorContext operatorContext,
+            List<Type> groupByTypes,
+            List<Integer> groupByChannels,
+            Step step,
+            List<AccumulatorFactory> accumulatorFactories,
+            Optional<Integer> hashChannel,
+            int expectedGroups,
+            Optional<SpillerFactory> spillerFactory)
+    {
+        this(operatorContext, groupByTypes, groupByChannels, step, accumulatorFactories, hashChannel, expectedGroups, spillerFactory, Optional.empty());
+    }
+
+    public HashAggregationOperator(
+            OperatorContext operatorContext,
+            List<Type> groupByTypes,
+            List<Integer> groupByChannels,
+            Step step,
+            List<AccumulatorFactory> accumulatorFactories,
+            Optional<Integer> hashChannel,
+            int expectedGroups,
+            Optional<SpillerFactory> spillerFactory,
+            Optional<AdaptivePartialAggregation> adaptivePartialAggregation)
     {
         this.operatorContext = checkNotNull(operatorContext, "operatorContext is null");
         checkNotNull(step, "step is null");
@@ -148,6 +236,10 @@ public class HashAggregationOperator
 
         this.expectedGroups = expectedGroups;
         this.memoryManager = new MemoryManager(operatorContext);
+        this.spillerFactory = checkNotNull(spillerFactory, "spillerFactory is null");
+        checkArgument(!spillerFactory.isPresent() || step != Step.PARTIAL, "partial aggregation flushes instead of spilling");
+        this.adaptivePartialAggregation = checkNotNull(adaptivePartialAggregation, "adaptivePartialAggregation is null");
+        checkArgument(!adaptivePartialAggregation.isPresent() || step == Step.PARTIAL, "only partial aggregation can pass rows through");
 
         this.types = toTypes(groupByTypes, step, accumulatorFactories, hashChannel);
     }
@@ -173,13 +265,13 @@ public class HashAggregationOperator
     @Override
     public boolean isFinished()
     {
-        return finishing && aggregationBuilder == null && (outputIterator == null || !outputIterator.hasNext());
+        return finishing && aggregationBuilder == null && passThroughPage == null && (outputIterator == null || !outputIterator.hasNext()) && (spillers == null || spillsMerged);
     }
 
     @Override
     public boolean needsInput()
     {
-        return !finishing && outputIterator == null && (aggregationBuilder == null || !aggregationBuilder.isFull());
+        return !finishing && outputIterator == null && passThroughPage == null && (aggregationBuilder == null || (!passThrough && !aggregationBuilder.isFull()));
     }
 
     @Override
@@ -187,6 +279,12 @@ public class HashAggregationOperator
     {
         checkState(!finishing, "Operator is already finishing");
         checkNotNull(page, "page is null");
+        if (passThrough) {
+            checkState(passThroughPage == null, "Previous page has not been returned");
+            passThroughPage = toIntermediatePage(page);
+            return;
+        }
+
         if (aggregationBuilder == null) {
             aggregationBuilder = new GroupByHashAggregationBuilder(
                     accumulatorFactories,
@@ -203,32 +301,69 @@ public class HashAggregationOperator
             checkState(!aggregationBuilder.isFull(), "Aggregation buffer is full");
         }
         aggregationBuilder.processPage(page);
+
+        // stop grouping once the partial aggregation does not reduce the rows enough to pay for the hashing
+        inputRows += page.getPositionCount();
+        if (adaptivePartialAggregation.isPresent() && adaptivePartialAggregation.get().shouldPassThrough(inputRows, flushedGroups + aggregationBuilder.getGroupCount())) {
+            passThrough = true;
+        }
     }
 
     @Override
     public Page getOutput()
     {
+        if (passThroughPage != null && (outputIterator == null || !outputIterator.hasNext())) {
+            Page page = passThroughPage;
+            passThroughPage = null;
+            return page;
+        }
+
         if (outputIterator == null || !outputIterator.hasNext()) {
             // current output iterator is done
             outputIterator = null;
 
-            // no data
-            if (aggregationBuilder == null) {
-                return null;
-            }
+            if (spillers != null) {
+                if (!finishing) {
+                    if (aggregationBuilder != null && aggregationBuilder.isFull()) {
+                        spillToDisk();
+                    }
+                    return null;
+                }
 
-            // only flush if we are finishing or the aggregation builder is full
-            if (!finishing && !aggregationBuilder.isFull()) {
-                return null;
+                // merge spilled groups only once all input has been spilled
+                if (spillsMerged) {
+                    return null;
+                }
+                if (aggregationBuilder != null) {
+                    spillToDisk();
+                }
+                outputIterator = mergeSpilledPartitions();
+                spillsMerged = true;
             }
+            else {
+                // no data
+                if (aggregationBuilder == null) {
+                    return null;
+                }
 
-            // Only partial aggregation can flush early. Also, check that we are not flushing tiny bits at a time
-            if (!finishing && step != Step.PARTIAL) {
-                throw new ExceededMemoryLimitException(memoryManager.getMaxMemorySize());
-            }
+                // only flush if we are finishing, the aggregation builder is full, or the remaining rows are passed through
+                if (!finishing && !passThrough && !aggregationBuilder.isFull()) {
+                    return null;
+                }
 
-            outputIterator = aggregationBuilder.build();
-            aggregationBuilder = null;
+                // Only partial aggregation can flush early. Also, check that we are not flushing tiny bits at a time
+                if (!finishing && step != Step.PARTIAL) {
+                    if (!spillerFactory.isPresent()) {
+                        throw new ExceededMemoryLimitException(memoryManager.getMaxMemorySize());
+                    }
+                    spillToDisk();
+                    return null;
+                }
+
+                flushedGroups += aggregationBuilder.getGroupCount();
+                outputIterator = aggregationBuilder.build();
+                aggregationBuilder = null;
+            }
 
             if (!outputIterator.hasNext()) {
                 // current output iterator is done
@@ -240,6 +375,159 @@ public class HashAggregationOperator
         return outputIterator.next();
     }
 
+    @Override
+    public void close()
+    {
+        if (spillers != null) {
+            spillers.forEach(Spiller::close);
+            spillers = null;
+        }
+        splitSpillers.forEach(Spiller::close);
+        splitSpillers.clear();
+        pendingPartitions.clear();
+    }
+
+    private void spillToDisk()
+    {
+        if (spillers == null) {
+            spillers = createSpillers();
+        }
+
+        aggregationBuilder.spill(spillers, 0);
+        aggregationBuilder = null;
+        memoryManager.freeAllMemory();
+    }
+
+    private List<Spiller> createSpillers()
+    {
+        ImmutableList.Builder<Spiller> builder = ImmutableList.builder();
+        for (int i = 0; i < SPILL_PARTITIONS; i++) {
+            builder.add(spillerFactory.get().create());
+        }
+        return builder.build();
+    }
+
+    private Iterator<Page> mergeSpilledPartitions()
+    {
+        for (Spiller spiller : spillers) {
+            pendingPartitions.add(new SpilledPartition(spiller, 0));
+        }
+
+        // each partition holds every spilled state of its groups, so partitions can be merged one at a time
+        return Iterators.concat(new AbstractIterator<Iterator<Page>>()
+        {
+            @Override
+            protected Iterator<Page> computeNext()
+            {
+                while (!pendingPartitions.isEmpty()) {
+                    Optional<Iterator<Page>> mergedPartition = mergePartition(pendingPartitions.remove());
+                    if (mergedPartition.isPresent()) {
+                        return mergedPartition.get();
+                    }
+                }
+                return endOfData();
+            }
+        });
+    }
+
+    /**
+     * Merges the groups of a spilled partition. If they do not fit in memory, the partition is
+     * split at the next level instead, and its parts are merged before the remaining partitions.
+     */
+    private Optional<Iterator<Page>> mergePartition(SpilledPartition partition)
+    {
+        memoryManager.freeAllMemory();
+        GroupByHashAggregationBuilder mergingBuilder = createMergingBuilder();
+        List<Spiller> splitPartitions = null;
+        int splitLevel = partition.getLevel() + 1;
+
+        Iterator<Page> spilledPages = partition.getSpiller().getSpilledPages();
+        while (spilledPages.hasNext()) {
+            mergingBuilder.processPage(spilledPages.next());
+            if (mergingBuilder.isFull()) {
+                if (splitPartitions == null) {
+                    if (splitLevel > MAX_SPLIT_LEVEL) {
+                        throw new ExceededMemoryLimitException(memoryManager.getMaxMemorySize());
+                    }
+                    splitPartitions = createSpillers();
+                    splitSpillers.addAll(splitPartitions);
+                }
+                mergingBuilder.spill(splitPartitions, splitLevel);
+                memoryManager.freeAllMemory();
+                mergingBuilder = createMergingBuilder();
+            }
+        }
+        partition.getSpiller().close();
+
+        if (splitPartitions == null) {
+            return Optional.of(mergingBuilder.build());
+        }
+
+        mergingBuilder.spill(splitPartitions, splitLevel);
+        memoryManager.freeAllMemory();
+        for (Spiller spiller : Lists.reverse(splitPartitions)) {
+            pendingPartitions.addFirst(new SpilledPartition(spiller, splitLevel));
+        }
+        return Optional.empty();
+    }
+
+    private GroupByHashAggregationBuilder createMergingBuilder()
+    {
+        // spilled pages use the partial aggregation layout: group by columns, optional hash, intermediate states
+        ImmutableList.Builder<Integer> spilledGroupByChannels = ImmutableList.builder();
+        for (int i = 0; i < groupByTypes.size(); i++) {
+            spilledGroupByChannels.add(i);
+        }
+        Optional<Integer> spilledHashChannel = hashChannel.map(channel -> groupByTypes.size());
+        int intermediateChannel = groupByTypes.size() + (hashChannel.isPresent() ? 1 : 0);
+
+        ImmutableList.Builder<Aggregator> aggregators = ImmutableList.builder();
+        for (AccumulatorFactory accumulatorFactory : accumulatorFactories) {
+            aggregators.add(new Aggregator(accumulatorFactory, step, intermediateChannel));
+            intermediateChannel++;
+        }
+
+        return new GroupByHashAggregationBuilder(
+                aggregators.build(),
+                expectedGroups,
+                groupByTypes,
+                spilledGroupByChannels.build(),
+                spilledHashChannel,
+                memoryManager);
+    }
+
+    /**
+     * Converts raw input rows to the output layout of a partial aggregation, with each row in a group of its own.
+     */
+    private Page toIntermediatePage(Page page)
+    {
+        int positionCount = page.getPositionCount();
+        BlockBuilder groupIdsBuilder = BIGINT.createBlockBuilder(new BlockBuilderStatus(), positionCount);
+        for (int position = 0; position < positionCount; position++) {
+            BIGINT.writeLong(groupIdsBuilder, position);
+        }
+        GroupByIdBlock groupIds = new GroupByIdBlock(positionCount, groupIdsBuilder.build());
+
+        Block[] blocks = new Block[types.size()];
+        int channel = 0;
+        for (int groupByChannel : groupByChannels) {
+            blocks[channel++] = page.getBlock(groupByChannel);
+        }
+        if (hashChannel.isPresent()) {
+            blocks[channel++] = page.getBlock(hashChannel.get());
+        }
+        for (AccumulatorFactory accumulatorFactory : accumulatorFactories) {
+            GroupedAccumulator accumulator = accumulatorFactory.createGroupedAccumulator();
+            accumulator.addInput(groupIds, page);
+            BlockBuilder output = accumulator.getIntermediateType().createBlockBuilder(new BlockBuilderStatus(), positionCount);
+            for (int groupId = 0; groupId < positionCount; groupId++) {
+                accumulator.evaluateIntermediate(groupId, output);
+            }
+            blocks[channel++] = output.build();
+        }
+        return new Page(positionCount, blocks);
+    }
+
     private static List<Type> toTypes(List<? extends Type> groupByType, Step step, List<AccumulatorFactory> factories, Optional<Integer> hashChannel)
     {
         ImmutableList.Builder<Type> types = ImmutableList.builder();
@@ -267,10 +555,25 @@ public class HashAggregationOperator
                 List<Integer> groupByChannels,
                 Optional<Integer> hashChannel,
                 MemoryManager memoryManager)
+        {
+            this(createAggregators(accumulatorFactories, step), expectedGroups, groupByTypes, groupByChannels, hashChannel, memoryManager);
+        }
+
+        private GroupByHashAggregationBuilder(
+                List<Aggregator> aggregators,
+                int expectedGroups,
+                List<Type> groupByTypes,
+                List<Integer> groupByChannels,
+                Optional<Integer> hashChannel,
+                MemoryManager memoryManager)
         {
             this.groupByHash = new GroupByHash(groupByTypes, Ints.toArray(groupByChannels), hashChannel, expectedGroups);
+            this.aggregators = ImmutableList.copyOf(checkNotNull(aggregators, "aggregators is null"));
             this.memoryManager = memoryManager;
+        }
 
+        private static List<Aggregator> createAggregators(List<AccumulatorFactory> accumulatorFactories, Step step)
+        {
             // wrapper each function with an aggregator
             ImmutableList.Builder<Aggregator> builder = ImmutableList.builder();
             checkNotNull(accumulatorFactories, "accumulatorFactories is null");
@@ -278,7 +581,7 @@ public class HashAggregationOperator
                 AccumulatorFactory accumulatorFactory = accumulatorFactories.get(i);
                 builder.add(new Aggregator(accumulatorFactory, step));
             }
-            aggregators = builder.build();
+            return builder.build();
         }
 
         private void processPage(Page page)
@@ -290,6 +593,11 @@ public class HashAggregationOperator
             }
         }
 
+        public int getGroupCount()
+        {
+            return groupByHash.getGroupCount();
+        }
+
         public boolean isFull()
         {
             long memorySize = groupByHash.getEstimatedSize();
@@ -299,6 +607,50 @@ public class HashAggregationOperator
             return !memoryManager.canUse(memorySize);
         }
 
+        /**
+         * Writes the group keys and intermediate states of all groups to the spillers,
+         * hash partitioned on the group keys so equal groups always land in the same spiller.
+         */
+        public void spill(List<Spiller> spillers, int level)
+        {
+            int groupCount = groupByHash.getGroupCount();
+            int[] groupPartitions = new int[groupCount];
+            for (int groupId = 0; groupId < groupCount; groupId++) {
+                groupPartitions[groupId] = getPartition(groupByHash.getRawHash(groupId), level, spillers.size());
+            }
+
+            List<Type> types = new ArrayList<>(groupByHash.getTypes());
+            for (Aggregator aggregator : aggregators) {
+                types.add(aggregator.getIntermediateType());
+            }
+
+            PageBuilder pageBuilder = new PageBuilder(types);
+            for (int partition = 0; partition < spillers.size(); partition++) {
+                Spiller spiller = spillers.get(partition);
+                for (int groupId = 0; groupId < groupCount; groupId++) {
+                    if (groupPartitions[groupId] != partition) {
+                        continue;
+                    }
+
+                    groupByHash.appendValuesTo(groupId, pageBuilder, 0);
+                    pageBuilder.declarePosition();
+                    for (int i = 0; i < aggregators.size(); i++) {
+                        BlockBuilder output = pageBuilder.getBlockBuilder(groupByHash.getTypes().size() + i);
+                        aggregators.get(i).evaluateIntermediate(groupId, output);
+                    }
+
+                    if (pageBuilder.isFull()) {
+                        spiller.spill(Iterators.singletonIterator(pageBuilder.build()));
+                        pageBuilder.reset();
+                    }
+                }
+                if (!pageBuilder.isEmpty()) {
+                    spiller.spill(Iterators.singletonIterator(pageBuilder.build()));
+                    pageBuilder.reset();
+                }
+            }
+        }
+
         public Iterator<Page> build()
         {
             List<Type> types = new ArrayList<>(groupByHash.getTypes());
@@ -361,6 +713,14 @@ public class HashAggregationOperator
             this.step = step;
         }
 
+        // merges intermediate states read from the given channel, as produced by spilling
+        private Aggregator(AccumulatorFactory accumulatorFactory, Step step, int intermediateChannel)
+        {
+            this.intermediateChannel = intermediateChannel;
+            this.aggregation = accumulatorFactory.createGroupedIntermediateAccumulator();
+            this.step = step;
+        }
+
         public long getEstimatedSize()
         {
             return aggregation.getEstimatedSize();
@@ -376,9 +736,14 @@ public class HashAggregationOperator
             }
         }
 
+        public Type getIntermediateType()
+        {
+            return aggregation.getIntermediateType();
+        }
+
         public void processPage(GroupByIdBlock groupIds, Page page)
         {
-            if (step == Step.FINAL) {
+            if (intermediateChannel >= 0) {
                 aggregation.addIntermediate(groupIds, page.getBlock(intermediateChannel));
             }
             else {
@@ -395,5 +760,32 @@ public class HashAggregationOperator
                 aggregation.evaluateFinal(groupId, output);
             }
         }
+
+        public void evaluateIntermediate(int groupId, BlockBuilder output)
+        {
+            aggregation.evaluateIntermediate(groupId, output);
+        }
+    }
+
+    private static final class SpilledPartition
+    {
+        private final Spiller spiller;
+        private final int level;
+
+        private SpilledPartition(Spiller spiller, int level)
+        {
+            this.spiller = spiller;
+            this.level = level;
+        }
+
+        public Spiller getSpiller()
+        {
+            return spiller;
+        }
+
+        public int getLevel()
+        {
+            return level;
+        }
     }
 }
@@ -14,13 +14,20 @@
 package com.facebook.presto.operator;
 
 import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spiller.Spiller;
+import com.facebook.presto.spiller.SpillerFactory;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterators;
 
 import javax.annotation.concurrent.ThreadSafe;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -30,6 +37,8 @@ import static com.google.common.base.Preconditions.checkState;
 public class HashBuilderOperator
         implements Operator
 {
+    private static final int SPILL_PARTITIONS = 16;
+
     public static class HashBuilderOperatorFactory
             implements OperatorFactory
     {
@@ -39,6 +48,9 @@ public class HashBuilderOperator
         private final Optional<Integer> hashChannel;
 
         private final int expectedPositions;
+        private final Optional<SpillerFactory> spillerFactory;
+        private final Optional<DynamicFilter> dynamicFilter;
+        private final PagesIndex.Factory pagesIndexFactory;
         private boolean closed;
 
         public HashBuilderOperatorFactory(
@@ -46,7 +58,33 @@ public class HashBuilderOperator
                 List<Type> types,
                 List<Integer> hashChannels,
                 Optional<Integer> hashChannel,
-                int expectedPositions)
+                int expectedPositions,
+                PagesIndex.Factory pagesIndexFactory)
+        {
+            this(operatorId, types, hashChannels, hashChannel, expectedPositions, Optional.empty(), pagesIndexFactory);
+        }
+
+        public HashBuilderOperatorFactory(
+                int operatorId,
+                List<Type> types,
+                List<Integer> hashChannels,
+                Optional<Integer> hashChannel,
+                int expectedPositions,
+                Optional<SpillerFactory> spillerFactory,
+                PagesIndex.Factory pagesIndexFactory)
+        {
+            this(operatorId, types, hashChannels, hashChannel, expectedPositions, spillerFactory, Optional.empty(), pagesIndexFactory);
+        }
+
+        public HashBuilderOperatorFactory(
+                int operatorId,
+                List<Type> types,
+                List<Integer> hashChannels,
+                Optional<Integer> hashChannel,
+                int expectedPositions,
+                Optional<SpillerFactory> spillerFactory,
+                Optional<DynamicFilter> dynamicFilter,
+                PagesIndex.Factory pagesIndexFactory)
         {
             this.operatorId = operatorId;
             this.lookupSourceSupplier = new SettableLookupSourceSupplier(checkNotNull(types, "types is null"));
@@ -56,6 +94,9 @@ public class HashBuilderOperator
             this.hashChannel = checkNotNull(hashChannel, "hashChannel is null");
 
             this.expectedPositions = checkNotNull(expectedPositions, "expectedPositions is null");
+            this.spillerFactory = checkNotNull(spillerFactory, "spillerFactory is null");
+            this.dynamicFilter = checkNotNull(dynamicFilter, "dynamicFilter is null");
+            this.pagesIndexFactory = checkNotNull(pagesIndexFactory, "pagesIndexFactory is null");
         }
 
         public LookupSourceSupplier getLookupSourceSupplier()
@@ -79,7 +120,10 @@ public class HashBuilderOperator
                     lookupSourceSupplier,
                     hashChannels,
                     hashChannel,
-                    expectedPositions);
+                    expectedPositions,
+                    spillerFactory,
+                    dynamicFilter,
+                    pagesIndexFactory);
         }
 
         @Override
@@ -96,6 +140,14 @@ public class HashBuilderOperator
 
     private final PagesIndex pagesIndex;
 
+    private final Optional<SpillerFactory> spillerFactory;
+    private final MemoryManager memoryManager;
+    private final HashGenerator partitionHashGenerator;
+    private final PagesIndex[] partitions;
+    private final Spiller[] spillers;
+    private final Optional<DynamicFilterCollector> dynamicFilterCollector;
+    private final PagesIndex.Factory pagesIndexFactory;
+
     private boolean finished;
 
     public HashBuilderOperator(
@@ -103,7 +155,33 @@ public class HashBuilderOperator
             SettableLookupSourceSupplier lookupSourceSupplier,
             List<Integer> hashChannels,
             Optional<Integer> hashChannel,
-            int expectedPositions)
+            int expectedPositions,
+            PagesIndex.Factory pagesIndexFactory)
+    {
+        this(operatorContext, lookupSourceSupplier, hashChannels, hashChannel, expectedPositions, Optional.empty(), pagesIndexFactory);
+    }
+
+    public HashBuilderOperator(
+            OperatorContext operatorContext,
+            SettableLookupSourceSupplier lookupSourceSupplier,
+            List<Integer> hashChannels,
+            Optional<Integer> hashChannel,
+            int expectedPositions,
+            Optional<SpillerFactory> spillerFactory,
+            PagesIndex.Factory pagesIndexFactory)
+    {
+        this(operatorContext, lookupSourceSupplier, hashChannels, hashChannel, expectedPositions, spillerFactory, Optional.empty(), pagesIndexFactory);
+    }
+
+    public HashBuilderOperator(
+            OperatorContext operatorContext,
+            SettableLookupSourceSupplier lookupSourceSupplier,
+            List<Integer> hashChannels,
+            Optional<Integer> hashChannel,
+            int expectedPositions,
+            Optional<SpillerFactory> spillerFactory,
+            Optional<DynamicFilter> dynamicFilter,
+            PagesIndex.Factory pagesIndexFactory)
     {
         this.operatorContext = checkNotNull(operatorContext, "operatorContext is null");
 
@@ -113,7 +191,26 @@ public class HashBuilderOperator
         this.hashChannels = ImmutableList.copyOf(checkNotNull(hashChannels, "hashChannels is null"));
         this.hashChannel = checkNotNull(hashChannel, "hashChannel is null");
 
-        this.pagesIndex = new PagesIndex(lookupSourceSupplier.getTypes(), expectedPositions);
+        this.pagesIndexFactory = checkNotNull(pagesIndexFactory, "pagesIndexFactory is null");
+        this.pagesIndex = pagesIndexFactory.newPagesIndex(lookupSourceSupplier.getTypes(), expectedPositions);
+
+        this.spillerFactory = checkNotNull(spillerFactory, "spillerFactory is null");
+        this.memoryManager = new MemoryManager(operatorContext);
+        if (spillerFactory.isPresent()) {
+            // with spilling enabled the build side is split into partitions that can be spilled independently
+            this.partitionHashGenerator = SpilledJoinPartitions.createPartitionHashGenerator(lookupSourceSupplier.getTypes(), hashChannels);
+            this.partitions = new PagesIndex[SPILL_PARTITIONS];
+            for (int partition = 0; partition < SPILL_PARTITIONS; partition++) {
+                partitions[partition] = pagesIndexFactory.newPagesIndex(lookupSourceSupplier.getTypes(), expectedPositions / SPILL_PARTITIONS);
+            }
+            this.spillers = new Spiller[SPILL_PARTITIONS];
+        }
+        else {
+            this.partitionHashGenerator = null;
+            this.partitions = null;
+            this.spillers = null;
+        }
+        this.dynamicFilterCollector = checkNotNull(dynamicFilter, "dynamicFilter is null").map(filter -> new DynamicFilterCollector(filter, this.hashChannels));
     }
 
     @Override
@@ -135,11 +232,49 @@ public class HashBuilderOperator
             return;
         }
 
-        LookupSource lookupSource = pagesIndex.createLookupSource(hashChannels, operatorContext, hashChannel);
-        lookupSourceSupplier.setLookupSource(lookupSource);
+        // the domains must be published before the probe side is unblocked by the lookup source
+        dynamicFilterCollector.ifPresent(DynamicFilterCollector::finish);
+
+        if (partitions == null) {
+            LookupSource lookupSource = pagesIndex.createLookupSource(hashChannels, operatorContext, hashChannel);
+            lookupSourceSupplier.setLookupSource(lookupSource);
+        }
+        else {
+            finishPartitioned();
+        }
         finished = true;
     }
 
+    private void finishPartitioned()
+    {
+        // move the partitions that stayed in memory into a single index; the blocks are shared, not copied
+        Map<Integer, Spiller> spilledPartitions = new HashMap<>();
+        for (int partition = 0; partition < SPILL_PARTITIONS; partition++) {
+            if (spillers[partition] != null) {
+                spilledPartitions.put(partition, spillers[partition]);
+            }
+            else {
+                addPages(partitions[partition], pagesIndex);
+                partitions[partition].clear();
+            }
+        }
+
+        LookupSource lookupSource = pagesIndex.createLookupSource(hashChannels, operatorContext, hashChannel);
+        if (spilledPartitions.isEmpty()) {
+            lookupSourceSupplier.setLookupSource(lookupSource);
+        }
+        else {
+            lookupSourceSupplier.setLookupSource(lookupSource, Optional.of(new SpilledJoinPartitions(
+                    SPILL_PARTITIONS,
+                    lookupSourceSupplier.getTypes(),
+                    hashChannels,
+                    hashChannel,
+                    ImmutableMap.copyOf(spilledPartitions),
+                    spillerFactory.get(),
+                    pagesIndexFactory)));
+        }
+    }
+
     @Override
     public boolean isFinished()
     {
@@ -158,11 +293,116 @@ public class HashBuilderOperator
         checkNotNull(page, "page is null");
         checkState(!isFinished(), "Operator is already finished");
 
-        pagesIndex.addPage(page);
-        operatorContext.setMemoryReservation(pagesIndex.getEstimatedSize().toBytes());
+        dynamicFilterCollector.ifPresent(collector -> collector.addPage(page));
+
+        if (partitions == null) {
+            pagesIndex.addPage(page);
+            operatorContext.setMemoryReservation(pagesIndex.getEstimatedSize().toBytes() + getDynamicFilterSize());
+        }
+        else {
+            addPartitionedPage(page);
+        }
         operatorContext.recordGeneratedOutput(page.getSizeInBytes(), page.getPositionCount());
     }
 
+    private void addPartitionedPage(Page page)
+    {
+        Page[] partitionPages = SpilledJoinPartitions.partitionPage(
+                page,
+                lookupSourceSupplier.getTypes(),
+                SpilledJoinPartitions.getPartitions(page, partitionHashGenerator, SPILL_PARTITIONS),
+                SPILL_PARTITIONS);
+        for (int partition = 0; partition < SPILL_PARTITIONS; partition++) {
+            Page partitionPage = partitionPages[partition];
+            if (partitionPage == null) {
+                continue;
+            }
+            if (spillers[partition] != null) {
+                spillers[partition].spill(Iterators.singletonIterator(partitionPage));
+            }
+            else {
+                partitions[partition].addPage(partitionPage);
+            }
+        }
+
+        // spill the largest in-memory partitions until the remaining ones fit; only half of the
+        // memory is used for the build side, so the probe side has room to load a spilled partition
+        while (getInMemorySize() > memoryManager.getMaxMemorySize().toBytes() / 2 || !memoryManager.canUse(getInMemorySize())) {
+            int largest = -1;
+            for (int partition = 0; partition < SPILL_PARTITIONS; partition++) {
+                if (spillers[partition] == null && (largest < 0 || partitions[partition].getPositionCount() > partitions[largest].getPositionCount())) {
+                    largest = partition;
+                }
+            }
+            if (largest < 0) {
+                break;
+            }
+            spillPartition(largest);
+        }
+    }
+
+    private void spillPartition(int partition)
+    {
+        Spiller spiller = spillerFactory.get().create();
+        spillers[partition] = spiller;
+
+        PagesIndex partitionIndex = partitions[partition];
+        ImmutableList.Builder<Page> pages = ImmutableList.builder();
+        for (int page = 0; page < partitionIndex.getChannel(0).size(); page++) {
+            pages.add(getPage(partitionIndex, page));
+        }
+        spiller.spill(pages.build().iterator());
+
+        partitionIndex.clear();
+        memoryManager.freeAllMemory();
+    }
+
+    private long getInMemorySize()
+    {
+        // the Bloom filters of the dynamic filter can not be spilled, but they use memory too
+        long size = getDynamicFilterSize();
+        for (int partition = 0; partition < SPILL_PARTITIONS; partition++) {
+            if (spillers[partition] == null) {
+                size += partitions[partition].getEstimatedSize().toBytes();
+            }
+        }
+        return size;
+    }
+
+    private long getDynamicFilterSize()
+    {
+        return dynamicFilterCollector.map(DynamicFilterCollector::getEstimatedSize).orElse(0L);
+    }
+
+    static void addPages(PagesIndex source, PagesIndex target)
+    {
+        for (int page = 0; page < source.getChannel(0).size(); page++) {
+            target.addPage(getPage(source, page));
+        }
+    }
+
+    private static Page getPage(PagesIndex pagesIndex, int page)
+    {
+        Block[] blocks = new Block[pagesIndex.getTypes().size()];
+        for (int channel = 0; channel < blocks.length; channel++) {
+            blocks[channel] = pagesIndex.getChannel(channel).get(page);
+        }
+        return new Page(blocks);
+    }
+
+    @Override
+    public void close()
+    {
+        if (spillers != null && !finished) {
+            // the lookup source was never published, so nobody else owns the spilled partitions
+            for (Spiller spiller : spillers) {
+                if (spiller != null) {
+                    spiller.close();
+                }
+            }
+        }
+    }
+
     @Override
     public Page getOutput()
     {
@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.operator;
 
+import com.facebook.presto.block.PageCompressionStats;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.block.BlockEncodingSerde;
@@ -48,13 +49,17 @@ import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.facebook.presto.PrestoMediaTypes.PRESTO_PAGES_TYPE;
+import static com.facebook.presto.block.PagesSerde.readCompressedPages;
 import static com.facebook.presto.block.PagesSerde.readPages;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_MAX_SIZE;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_PAGE_COMPRESSION;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_PAGE_NEXT_TOKEN;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_PAGE_TOKEN;
 import static com.facebook.presto.operator.HttpPageBufferClient.PagesResponse.createClosedResponse;
+import static com.facebook.presto.operator.HttpPageBufferClient.PagesResponse.createCompressedPagesResponse;
 import static com.facebook.presto.operator.HttpPageBufferClient.PagesResponse.createEmptyPagesResponse;
 import static com.facebook.presto.operator.HttpPageBufferClient.PagesResponse.createPagesResponse;
 import static com.facebook.presto.util.Failures.WORKER_NODE_ERROR;
@@ -75,6 +80,8 @@ public final class HttpPageBufferClient
     private static final int INITIAL_DELAY_MILLIS = 1;
     private static final int MAX_DELAY_MILLIS = 100;
 
+    public static final String PAGE_COMPRESSION_SNAPPY = "snappy";
+
     private static final Logger log = Logger.get(HttpPageBufferClient.class);
 
     /**
@@ -121,6 +128,9 @@ public final class HttpPageBufferClient
     private long errorDelayMillis;
 
     private final AtomicInteger pagesReceived = new AtomicInteger();
+    private final AtomicLong compressedBytesReceived = new AtomicLong();
+    private final AtomicLong uncompressedBytesReceived = new AtomicLong();
+    private final AtomicLong decompressionCpuNanos = new AtomicLong();
 
     private final AtomicInteger requestsScheduled = new AtomicInteger();
     private final AtomicInteger requestsCompleted = new AtomicInteger();
@@ -182,6 +192,9 @@ public final class HttpPageBufferClient
                 state,
                 lastUpdate,
                 pagesReceived.get(),
+                compressedBytesReceived.get(),
+                uncompressedBytesReceived.get(),
+                decompressionCpuNanos.get(),
                 requestsScheduled.get(),
                 requestsCompleted.get(),
                 requestsFailed.get(),
@@ -281,6 +294,13 @@ public final class HttpPageBufferClient
                     }
                 }
 
+                if (!pages.isEmpty()) {
+                    PageCompressionStats compressionStats = result.getCompressionStats();
+                    compressedBytesReceived.addAndGet(compressionStats.getCompressedBytes());
+                    uncompressedBytesReceived.addAndGet(compressionStats.getUncompressedBytes());
+                    decompressionCpuNanos.addAndGet(compressionStats.getDecompressionCpuNanos());
+                }
+
                 // add pages
                 for (Page page : pages) {
                     pagesReceived.incrementAndGet();
@@ -462,8 +482,17 @@ public final class HttpPageBufferClient
             long nextToken = getNextToken(response);
 
             try (SliceInput input = new InputStreamSliceInput(response.getInputStream())) {
-                List<Page> pages = ImmutableList.copyOf(readPages(blockEncodingSerde, input));
-                return createPagesResponse(token, nextToken, pages);
+                String compression = response.getHeader(PRESTO_PAGE_COMPRESSION);
+                if (compression == null) {
+                    List<Page> pages = ImmutableList.copyOf(readPages(blockEncodingSerde, input));
+                    return createPagesResponse(token, nextToken, pages);
+                }
+                if (!compression.equals(PAGE_COMPRESSION_SNAPPY)) {
+                    throw new PageTransportErrorException(format("Unsupported page compression %s: %s", compression, request.getUri()));
+                }
+                PageCompressionStats compressionStats = new PageCompressionStats();
+                List<Page> pages = ImmutableList.copyOf(readCompressedPages(blockEncodingSerde, input, compressionStats));
+                return createCompressedPagesResponse(token, nextToken, pages, compressionStats);
             }
             catch (IOException e) {
                 throw Throwables.propagate(e);
@@ -503,29 +532,36 @@ public final class HttpPageBufferClient
     {
         public static PagesResponse createPagesResponse(long token, long nextToken, Iterable<Page> pages)
         {
-            return new PagesResponse(token, nextToken, pages, false);
+            return new PagesResponse(token, nextToken, pages, new PageCompressionStats(), false);
+        }
+
+        public static PagesResponse createCompressedPagesResponse(long token, long nextToken, Iterable<Page> pages, PageCompressionStats compressionStats)
+        {
+            return new PagesResponse(token, nextToken, pages, compressionStats, false);
         }
 
         public static PagesResponse createEmptyPagesResponse(long token, long nextToken)
         {
-            return new PagesResponse(token, nextToken, ImmutableList.<Page>of(), false);
+            return new PagesResponse(token, nextToken, ImmutableList.<Page>of(), new PageCompressionStats(), false);
         }
 
         public static PagesResponse createClosedResponse(long token)
         {
-            return new PagesResponse(token, -1, ImmutableList.<Page>of(), true);
+            return new PagesResponse(token, -1, ImmutableList.<Page>of(), new PageCompressionStats(), true);
         }
 
         private final long token;
         private final long nextToken;
         private final List<Page> pages;
+        private final PageCompressionStats compressionStats;
         private final boolean clientClosed;
 
-        private PagesResponse(long token, long nextToken, Iterable<Page> pages, boolean clientClosed)
+        private PagesResponse(long token, long nextToken, Iterable<Page> pages, PageCompressionStats compressionStats, boolean clientClosed)
         {
             this.token = token;
             this.nextToken = nextToken;
             this.pages = ImmutableList.copyOf(pages);
+            this.compressionStats = checkNotNull(compressionStats, "compressionStats is null");
             this.clientClosed = clientClosed;
         }
 
@@ -544,6 +580,11 @@ public final class HttpPageBufferClient
             return pages;
         }
 
+        public PageCompressionStats getCompressionStats()
+        {
+            return compressionStats;
+        }
+
         public boolean isClientClosed()
         {
             return clientClosed;
@@ -16,6 +16,7 @@ package com.facebook.presto.operator;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.type.Type;
 import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Ints;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 import io.airlift.units.DataSize;
@@ -24,6 +25,7 @@ import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
@@ -33,11 +35,18 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
 
+/**
+ * Passes pages from the sink operators to the source operators of the drivers of a task.
+ * The exchange either has a single buffer read by all sources, or is partitioned: the rows
+ * are then assigned to one buffer per source by the hash of the partition channels, so each
+ * source receives all rows with the same values of those channels.
+ */
 @ThreadSafe
 public class InMemoryExchange
 {
     private final List<Type> types;
-    private final Queue<Page> buffer;
+    private final List<Queue<Page>> buffers;
+    private final HashGenerator partitionHashGenerator;
     private final long maxBufferedBytes;
 
     @GuardedBy("this")
@@ -52,11 +61,20 @@ public class InMemoryExchange
     @GuardedBy("this")
     private int sinks;
 
+    @GuardedBy("this")
+    private int nextSourceBuffer;
+
+    @GuardedBy("this")
+    private final boolean[] finishedBuffers;
+
+    @GuardedBy("this")
+    private int finishedBufferCount;
+
     @GuardedBy("this")
     private long bufferBytes;
 
     @GuardedBy("this")
-    private SettableFuture<?> readerFuture;
+    private final SettableFuture<?>[] readerFutures;
 
     @GuardedBy("this")
     private SettableFuture<?> writerFuture;
@@ -67,19 +85,65 @@ public class InMemoryExchange
     }
 
     public InMemoryExchange(List<Type> types, DataSize maxBufferedBytes)
+    {
+        this(types, 1, null, maxBufferedBytes);
+    }
+
+    /**
+     * Creates a partitioned exchange with one buffer for each of the {@code bufferCount} sources.
+     *
+     * @param partitionChannels the channels the rows are partitioned on
+     * @param hashChannel the channel holding the precomputed hash of the partition channels, if any
+     */
+    public InMemoryExchange(List<Type> types, int bufferCount, List<Integer> partitionChannels, Optional<Integer> hashChannel)
+    {
+        this(types, bufferCount, createPartitionHashGenerator(types, partitionChannels, hashChannel), new DataSize(32, MEGABYTE));
+    }
+
+    private InMemoryExchange(List<Type> types, int bufferCount, HashGenerator partitionHashGenerator, DataSize maxBufferedBytes)
     {
         this.types = ImmutableList.copyOf(checkNotNull(types, "types is null"));
-        this.buffer = new ConcurrentLinkedQueue<>();
+
+        checkArgument(bufferCount > 0, "bufferCount must be greater than zero");
+        checkArgument(bufferCount == 1 || partitionHashGenerator != null, "partitionHashGenerator is null");
+        ImmutableList.Builder<Queue<Page>> buffers = ImmutableList.builder();
+        for (int buffer = 0; buffer < bufferCount; buffer++) {
+            buffers.add(new ConcurrentLinkedQueue<>());
+        }
+        this.buffers = buffers.build();
+        this.partitionHashGenerator = partitionHashGenerator;
+        this.finishedBuffers = new boolean[bufferCount];
+        this.readerFutures = new SettableFuture<?>[bufferCount];
 
         checkArgument(maxBufferedBytes.toBytes() > 0, "maxBufferedBytes must be greater than zero");
         this.maxBufferedBytes = maxBufferedBytes.toBytes();
     }
 
+    private static HashGenerator createPartitionHashGenerator(List<Type> types, List<Integer> partitionChannels, Optional<Integer> hashChannel)
+    {
+        checkNotNull(types, "types is null");
+        checkNotNull(partitionChannels, "partitionChannels is null");
+        checkNotNull(hashChannel, "hashChannel is null");
+        if (hashChannel.isPresent()) {
+            return new PrecomputedHashGenerator(hashChannel.get());
+        }
+        ImmutableList.Builder<Type> partitionTypes = ImmutableList.builder();
+        for (int channel : partitionChannels) {
+            partitionTypes.add(types.get(channel));
+        }
+        return new InterpretedHashGenerator(partitionTypes.build(), Ints.toArray(partitionChannels));
+    }
+
     public List<Type> getTypes()
     {
         return types;
     }
 
+    public int getBufferCount()
+    {
+        return buffers.size();
+    }
+
     public synchronized OperatorFactory createSinkFactory(int operatorId)
     {
         sinkFactories++;
@@ -92,6 +156,19 @@ public class InMemoryExchange
         sinks++;
     }
 
+    /**
+     * Returns the buffer read by the next source. All sources read the same buffer unless
+     * the exchange is partitioned, in which case there must be one source per buffer.
+     */
+    synchronized int addSource()
+    {
+        if (buffers.size() == 1) {
+            return 0;
+        }
+        checkState(nextSourceBuffer < buffers.size(), "All %s buffers already have a source", buffers.size());
+        return nextSourceBuffer++;
+    }
+
     public synchronized void sinkFinished()
     {
         checkState(sinks != 0, "All sinks are already complete");
@@ -127,48 +204,104 @@ public class InMemoryExchange
     public synchronized void finish()
     {
         finishing = true;
-        notifyBlockedReaders();
+        for (int buffer = 0; buffer < buffers.size(); buffer++) {
+            notifyBlockedReader(buffer);
+        }
         notifyBlockedWriters();
     }
 
+    /**
+     * Called when the source of a buffer needs no more pages. The exchange finishes
+     * once no buffer needs pages anymore.
+     */
+    public synchronized void finish(int buffer)
+    {
+        if (!finishedBuffers[buffer]) {
+            finishedBuffers[buffer] = true;
+            finishedBufferCount++;
+            Page page = buffers.get(buffer).poll();
+            while (page != null) {
+                bufferBytes -= page.getSizeInBytes();
+                page = buffers.get(buffer).poll();
+            }
+            if (bufferBytes < maxBufferedBytes) {
+                notifyBlockedWriters();
+            }
+        }
+        if (finishedBufferCount == buffers.size()) {
+            finish();
+        }
+    }
+
     public synchronized boolean isFinished()
     {
-        return finishing && buffer.isEmpty();
+        for (Queue<Page> buffer : buffers) {
+            if (!buffer.isEmpty()) {
+                return false;
+            }
+        }
+        return finishing;
+    }
+
+    public synchronized boolean isFinished(int buffer)
+    {
+        return finishedBuffers[buffer] || (finishing && buffers.get(buffer).isEmpty());
+    }
+
+    public void addPage(Page page)
+    {
+        if (buffers.size() == 1) {
+            addPage(0, page);
+            return;
+        }
+
+        // partition outside of the lock, so the sinks partition their pages in parallel
+        Page[] partitionPages = SpilledJoinPartitions.partitionPage(
+                page,
+                types,
+                SpilledJoinPartitions.getPartitions(page, partitionHashGenerator, buffers.size()),
+                buffers.size());
+        for (int buffer = 0; buffer < partitionPages.length; buffer++) {
+            if (partitionPages[buffer] != null) {
+                addPage(buffer, partitionPages[buffer]);
+            }
+        }
     }
 
-    public synchronized void addPage(Page page)
+    private synchronized void addPage(int buffer, Page page)
     {
-        if (finishing) {
+        if (finishing || finishedBuffers[buffer]) {
             return;
         }
-        buffer.add(page);
+        buffers.get(buffer).add(page);
         bufferBytes += page.getSizeInBytes();
         // TODO: record memory usage using OperatorContext.setMemoryReservation()
-        notifyBlockedReaders();
+        notifyBlockedReader(buffer);
     }
 
-    private synchronized void notifyBlockedReaders()
+    private synchronized void notifyBlockedReader(int buffer)
     {
+        SettableFuture<?> readerFuture = readerFutures[buffer];
         if (readerFuture != null) {
+            readerFutures[buffer] = null;
             readerFuture.set(null);
-            readerFuture = null;
         }
     }
 
-    public synchronized ListenableFuture<?> waitForReading()
+    public synchronized ListenableFuture<?> waitForReading(int buffer)
     {
-        if (finishing || !buffer.isEmpty()) {
+        if (finishing || finishedBuffers[buffer] || !buffers.get(buffer).isEmpty()) {
             return NOT_BLOCKED;
         }
-        if (readerFuture == null) {
-            readerFuture = SettableFuture.create();
+        if (readerFutures[buffer] == null) {
+            readerFutures[buffer] = SettableFuture.create();
         }
-        return readerFuture;
+        return readerFutures[buffer];
     }
 
-    public synchronized Page removePage()
+    public synchronized Page removePage(int buffer)
     {
-        Page page = buffer.poll();
+        Page page = buffers.get(buffer).poll();
         if (page != null) {
             bufferBytes -= page.getSizeInBytes();
         }
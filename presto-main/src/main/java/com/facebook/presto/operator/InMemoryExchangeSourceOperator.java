@@ -19,6 +19,7 @@ import com.google.common.util.concurrent.ListenableFuture;
 
 import java.util.List;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
@@ -49,7 +50,7 @@ public class InMemoryExchangeSourceOperator
         {
             checkState(!closed, "Factory is already closed");
             OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, InMemoryExchangeSourceOperator.class.getSimpleName());
-            return new InMemoryExchangeSourceOperator(operatorContext, inMemoryExchange);
+            return new InMemoryExchangeSourceOperator(operatorContext, inMemoryExchange, inMemoryExchange.addSource());
         }
 
         @Override
@@ -61,11 +62,14 @@ public class InMemoryExchangeSourceOperator
 
     private final OperatorContext operatorContext;
     private final InMemoryExchange exchange;
+    private final int buffer;
 
-    public InMemoryExchangeSourceOperator(OperatorContext operatorContext, InMemoryExchange exchange)
+    public InMemoryExchangeSourceOperator(OperatorContext operatorContext, InMemoryExchange exchange, int buffer)
     {
         this.operatorContext = checkNotNull(operatorContext, "operatorContext is null");
         this.exchange = checkNotNull(exchange, "exchange is null");
+        checkArgument(buffer >= 0 && buffer < exchange.getBufferCount(), "Invalid buffer %s", buffer);
+        this.buffer = buffer;
     }
 
     @Override
@@ -83,19 +87,19 @@ public class InMemoryExchangeSourceOperator
     @Override
     public void finish()
     {
-        exchange.finish();
+        exchange.finish(buffer);
     }
 
     @Override
     public boolean isFinished()
     {
-        return exchange.isFinished();
+        return exchange.isFinished(buffer);
     }
 
     @Override
     public ListenableFuture<?> isBlocked()
     {
-        ListenableFuture<?> blocked = exchange.waitForReading();
+        ListenableFuture<?> blocked = exchange.waitForReading(buffer);
         if (blocked.isDone()) {
             return NOT_BLOCKED;
         }
@@ -117,7 +121,7 @@ public class InMemoryExchangeSourceOperator
     @Override
     public Page getOutput()
     {
-        Page page = exchange.removePage();
+        Page page = exchange.removePage(buffer);
         if (page != null) {
             operatorContext.recordGeneratedInput(page.getSizeInBytes(), page.getPositionCount());
         }
@@ -29,32 +29,41 @@ import static com.google.common.base.Preconditions.checkState;
 public class LookupJoinOperator
         implements Operator, Closeable
 {
+    private final LookupSourceSupplier lookupSourceSupplier;
     private final ListenableFuture<LookupSource> lookupSourceFuture;
 
     private final OperatorContext operatorContext;
     private final JoinProbeFactory joinProbeFactory;
     private final boolean enableOuterJoin;
+    private final List<Type> probeTypes;
+    private final List<Integer> probeJoinChannels;
     private final List<Type> types;
     private final PageBuilder pageBuilder;
 
     private LookupSource lookupSource;
     private JoinProbe probe;
+    private SpilledProbePartitions spilledProbePartitions;
+    // the lookup source is owned by the spilled partitions once the spilled rows are joined
+    private boolean probingSpilledPartitions;
 
     private boolean finishing;
+    private boolean closed;
     private long joinPosition = -1;
 
     public LookupJoinOperator(
             OperatorContext operatorContext,
             LookupSourceSupplier lookupSourceSupplier,
             List<Type> probeTypes,
+            List<Integer> probeJoinChannels,
             boolean enableOuterJoin,
             JoinProbeFactory joinProbeFactory)
     {
         this.operatorContext = checkNotNull(operatorContext, "operatorContext is null");
 
         // todo pass in desired projection
-        checkNotNull(lookupSourceSupplier, "lookupSourceSupplier is null");
-        checkNotNull(probeTypes, "probeTypes is null");
+        this.lookupSourceSupplier = checkNotNull(lookupSourceSupplier, "lookupSourceSupplier is null");
+        this.probeTypes = ImmutableList.copyOf(checkNotNull(probeTypes, "probeTypes is null"));
+        this.probeJoinChannels = ImmutableList.copyOf(checkNotNull(probeJoinChannels, "probeJoinChannels is null"));
 
         this.lookupSourceFuture = lookupSourceSupplier.getLookupSource(operatorContext);
         this.joinProbeFactory = joinProbeFactory;
@@ -88,14 +97,11 @@ public class LookupJoinOperator
     @Override
     public boolean isFinished()
     {
-        boolean finished = finishing && probe == null && pageBuilder.isEmpty();
+        boolean finished = finishing && probe == null && spilledProbePartitions == null && pageBuilder.isEmpty();
 
         // if finished drop references so memory is freed early
         if (finished) {
-            if (lookupSource != null) {
-                lookupSource.close();
-                lookupSource = null;
-            }
+            closeLookupSource();
             probe = null;
             pageBuilder.reset();
         }
@@ -117,6 +123,9 @@ public class LookupJoinOperator
 
         if (lookupSource == null) {
             lookupSource = tryGetUnchecked(lookupSourceFuture);
+            if (lookupSource != null && lookupSourceSupplier.getSpilledPartitions().isPresent()) {
+                spilledProbePartitions = new SpilledProbePartitions(lookupSourceSupplier.getSpilledPartitions().get(), probeTypes, probeJoinChannels, operatorContext);
+            }
         }
         return lookupSource != null && probe == null;
     }
@@ -129,6 +138,14 @@ public class LookupJoinOperator
         checkState(lookupSource != null, "Lookup source has not been built yet");
         checkState(probe == null, "Current page has not been completely processed yet");
 
+        if (spilledProbePartitions != null) {
+            // rows of spilled build partitions are joined after all input is consumed
+            page = spilledProbePartitions.spillRows(page);
+            if (page == null) {
+                return;
+            }
+        }
+
         // create probe
         probe = joinProbeFactory.createJoinProbe(lookupSource, page);
 
@@ -139,20 +156,27 @@ public class LookupJoinOperator
     @Override
     public Page getOutput()
     {
-        // join probe page with the lookup source
-        if (probe != null) {
-            while (joinCurrentPosition()) {
-                if (!advanceProbePosition()) {
-                    break;
-                }
-                if (!outerJoinCurrentPosition()) {
-                    break;
+        do {
+            if (finishing && probe == null && spilledProbePartitions != null) {
+                advanceSpilledProbe();
+            }
+
+            // join probe page with the lookup source
+            if (probe != null) {
+                while (joinCurrentPosition()) {
+                    if (!advanceProbePosition()) {
+                        break;
+                    }
+                    if (!outerJoinCurrentPosition()) {
+                        break;
+                    }
                 }
             }
         }
+        while (!pageBuilder.isFull() && finishing && probe == null && spilledProbePartitions != null);
 
         // only flush full pages unless we are done
-        if (pageBuilder.isFull() || (finishing && !pageBuilder.isEmpty() && probe == null)) {
+        if (pageBuilder.isFull() || (finishing && !pageBuilder.isEmpty() && probe == null && spilledProbePartitions == null)) {
             Page page = pageBuilder.build();
             pageBuilder.reset();
             return page;
@@ -164,10 +188,45 @@ public class LookupJoinOperator
     @Override
     public void close()
     {
-        if (lookupSource != null) {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        closeLookupSource();
+        if (spilledProbePartitions != null) {
+            spilledProbePartitions.close();
+            spilledProbePartitions = null;
+        }
+        lookupSourceSupplier.release();
+    }
+
+    private void advanceSpilledProbe()
+    {
+        Page page = spilledProbePartitions.nextProbePage();
+        if (page == null) {
+            spilledProbePartitions.close();
+            spilledProbePartitions = null;
+            return;
+        }
+
+        // join the spilled probe rows against the build rows of the same partition
+        if (!probingSpilledPartitions) {
+            // the in-memory partitions are no longer needed
+            closeLookupSource();
+            probingSpilledPartitions = true;
+        }
+        lookupSource = spilledProbePartitions.getLookupSource();
+        probe = joinProbeFactory.createJoinProbe(lookupSource, page);
+        joinPosition = -1;
+    }
+
+    private void closeLookupSource()
+    {
+        if (lookupSource != null && !probingSpilledPartitions) {
             lookupSource.close();
-            lookupSource = null;
         }
+        lookupSource = null;
     }
 
     private boolean joinCurrentPosition()
@@ -26,6 +26,7 @@ public class LookupJoinOperatorFactory
     private final int operatorId;
     private final LookupSourceSupplier lookupSourceSupplier;
     private final List<Type> probeTypes;
+    private final List<Integer> probeJoinChannels;
     private final boolean enableOuterJoin;
     private final List<Type> types;
     private final JoinProbeFactory joinProbeFactory;
@@ -34,12 +35,14 @@ public class LookupJoinOperatorFactory
     public LookupJoinOperatorFactory(int operatorId,
             LookupSourceSupplier lookupSourceSupplier,
             List<Type> probeTypes,
+            List<Integer> probeJoinChannels,
             boolean enableOuterJoin,
             JoinProbeFactory joinProbeFactory)
     {
         this.operatorId = operatorId;
         this.lookupSourceSupplier = lookupSourceSupplier;
         this.probeTypes = probeTypes;
+        this.probeJoinChannels = probeJoinChannels;
         this.enableOuterJoin = enableOuterJoin;
 
         this.joinProbeFactory = joinProbeFactory;
@@ -48,6 +51,9 @@ public class LookupJoinOperatorFactory
                 .addAll(probeTypes)
                 .addAll(lookupSourceSupplier.getTypes())
                 .build();
+
+        // keep spilled build partitions around until this factory and all of its operators are closed
+        lookupSourceSupplier.retain();
     }
 
     @Override
@@ -61,12 +67,17 @@ public class LookupJoinOperatorFactory
     {
         checkState(!closed, "Factory is already closed");
         OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, LookupJoinOperator.class.getSimpleName());
-        return new LookupJoinOperator(operatorContext, lookupSourceSupplier, probeTypes, enableOuterJoin, joinProbeFactory);
+        lookupSourceSupplier.retain();
+        return new LookupJoinOperator(operatorContext, lookupSourceSupplier, probeTypes, probeJoinChannels, enableOuterJoin, joinProbeFactory);
     }
 
     @Override
     public void close()
     {
+        if (closed) {
+            return;
+        }
         closed = true;
+        lookupSourceSupplier.release();
     }
 }
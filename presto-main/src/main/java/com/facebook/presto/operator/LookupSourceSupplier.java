@@ -17,10 +17,27 @@ import com.facebook.presto.spi.type.Type;
 import com.google.common.util.concurrent.ListenableFuture;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface LookupSourceSupplier
 {
     List<Type> getTypes();
 
     ListenableFuture<LookupSource> getLookupSource(OperatorContext operatorContext);
+
+    /**
+     * Build partitions that were spilled to disk. Only valid after the lookup source future is done.
+     */
+    default Optional<SpilledJoinPartitions> getSpilledPartitions()
+    {
+        return Optional.empty();
+    }
+
+    default void retain()
+    {
+    }
+
+    default void release()
+    {
+    }
 }
@@ -54,6 +54,11 @@ public class MemoryManager
         currentMemoryReservation -= bytes;
     }
 
+    public void freeAllMemory()
+    {
+        freeMemory(currentMemoryReservation);
+    }
+
     public boolean isFull()
     {
         return currentMemoryReservation >= operatorContext.getMaxMemorySize().toBytes();
@@ -0,0 +1,463 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.ExceededMemoryLimitException;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.PageBuilder;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Joins two inputs that are both sorted ascending on the join channels. The probe rows are the
+ * input of the operator, and the build rows are read from an in-memory exchange fed by the build
+ * pipeline. Only the build rows with the key of the current probe row are held in memory, so the
+ * memory used is bounded by the largest run of build rows with equal keys. Rows with a null key
+ * never match.
+ */
+public class MergeJoinOperator
+        implements Operator
+{
+    public static class MergeJoinOperatorFactory
+            implements OperatorFactory
+    {
+        private final int operatorId;
+        private final InMemoryExchange buildExchange;
+        private final List<Type> probeTypes;
+        private final List<Integer> probeJoinChannels;
+        private final List<Integer> buildJoinChannels;
+        private final boolean enableOuterJoin;
+        private final List<Type> types;
+        private boolean closed;
+
+        public MergeJoinOperatorFactory(
+                int operatorId,
+                InMemoryExchange buildExchange,
+                List<Type> probeTypes,
+                List<Integer> probeJoinChannels,
+                List<Integer> buildJoinChannels,
+                boolean enableOuterJoin)
+        {
+            this.operatorId = operatorId;
+            this.buildExchange = checkNotNull(buildExchange, "buildExchange is null");
+            checkArgument(buildExchange.getBufferCount() == 1, "buildExchange must have a single buffer");
+            this.probeTypes = ImmutableList.copyOf(checkNotNull(probeTypes, "probeTypes is null"));
+            this.probeJoinChannels = ImmutableList.copyOf(checkNotNull(probeJoinChannels, "probeJoinChannels is null"));
+            this.buildJoinChannels = ImmutableList.copyOf(checkNotNull(buildJoinChannels, "buildJoinChannels is null"));
+            this.enableOuterJoin = enableOuterJoin;
+            this.types = ImmutableList.<Type>builder()
+                    .addAll(probeTypes)
+                    .addAll(buildExchange.getTypes())
+                    .build();
+        }
+
+        @Override
+        public List<Type> getTypes()
+        {
+            return types;
+        }
+
+        @Override
+        public Operator createOperator(DriverContext driverContext)
+        {
+            checkState(!closed, "Factory is already closed");
+            OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, MergeJoinOperator.class.getSimpleName());
+            return new MergeJoinOperator(operatorContext, buildExchange, buildExchange.addSource(), probeTypes, probeJoinChannels, buildJoinChannels, enableOuterJoin);
+        }
+
+        @Override
+        public void close()
+        {
+            closed = true;
+        }
+    }
+
+    private final OperatorContext operatorContext;
+    private final InMemoryExchange buildExchange;
+    private final int buildBuffer;
+    private final List<Type> probeTypes;
+    private final List<Type> buildTypes;
+    private final List<Type> keyTypes;
+    private final int[] probeJoinChannels;
+    private final int[] buildJoinChannels;
+    private final boolean enableOuterJoin;
+    private final List<Type> types;
+    private final MemoryManager memoryManager;
+    private final PageBuilder pageBuilder;
+
+    private Page probePage;
+    private int probePosition;
+
+    // the next build row that is not part of the current run
+    private Page buildPage;
+    private int buildPosition;
+    private boolean buildFinished;
+
+    // the build rows with the key of the first row of the first page
+    private final List<Page> run = new ArrayList<>();
+    private long runSizeInBytes;
+    private boolean runComplete;
+
+    // the next build row of the run to join with the current probe row, or -1 if it is not being joined
+    private int runPage = -1;
+    private int runPosition;
+
+    private boolean waitingForBuild;
+    private boolean finishing;
+
+    public MergeJoinOperator(
+            OperatorContext operatorContext,
+            InMemoryExchange buildExchange,
+            int buildBuffer,
+            List<Type> probeTypes,
+            List<Integer> probeJoinChannels,
+            List<Integer> buildJoinChannels,
+            boolean enableOuterJoin)
+    {
+        this.operatorContext = checkNotNull(operatorContext, "operatorContext is null");
+        this.buildExchange = checkNotNull(buildExchange, "buildExchange is null");
+        this.buildBuffer = buildBuffer;
+        this.probeTypes = ImmutableList.copyOf(checkNotNull(probeTypes, "probeTypes is null"));
+        this.buildTypes = buildExchange.getTypes();
+        this.probeJoinChannels = Ints.toArray(checkNotNull(probeJoinChannels, "probeJoinChannels is null"));
+        this.buildJoinChannels = Ints.toArray(checkNotNull(buildJoinChannels, "buildJoinChannels is null"));
+        checkArgument(this.probeJoinChannels.length == this.buildJoinChannels.length, "probeJoinChannels and buildJoinChannels have different sizes");
+        checkArgument(this.probeJoinChannels.length > 0, "probeJoinChannels is empty");
+
+        ImmutableList.Builder<Type> keyTypes = ImmutableList.builder();
+        for (int channel : this.probeJoinChannels) {
+            keyTypes.add(this.probeTypes.get(channel));
+        }
+        this.keyTypes = keyTypes.build();
+
+        this.enableOuterJoin = enableOuterJoin;
+        this.types = ImmutableList.<Type>builder()
+                .addAll(this.probeTypes)
+                .addAll(buildTypes)
+                .build();
+        this.memoryManager = new MemoryManager(operatorContext);
+        this.pageBuilder = new PageBuilder(types);
+    }
+
+    @Override
+    public OperatorContext getOperatorContext()
+    {
+        return operatorContext;
+    }
+
+    @Override
+    public List<Type> getTypes()
+    {
+        return types;
+    }
+
+    @Override
+    public void finish()
+    {
+        finishing = true;
+    }
+
+    @Override
+    public boolean isFinished()
+    {
+        boolean finished = finishing && probePage == null && pageBuilder.isEmpty();
+        if (finished) {
+            close();
+        }
+        return finished;
+    }
+
+    @Override
+    public ListenableFuture<?> isBlocked()
+    {
+        if (!waitingForBuild) {
+            return NOT_BLOCKED;
+        }
+        ListenableFuture<?> blocked = buildExchange.waitForReading(buildBuffer);
+        if (blocked.isDone()) {
+            return NOT_BLOCKED;
+        }
+        return blocked;
+    }
+
+    @Override
+    public boolean needsInput()
+    {
+        return !finishing && probePage == null;
+    }
+
+    @Override
+    public void addInput(Page page)
+    {
+        checkNotNull(page, "page is null");
+        checkState(!finishing, "Operator is finishing");
+        checkState(probePage == null, "Current page has not been completely processed yet");
+        probePage = page;
+        probePosition = 0;
+    }
+
+    @Override
+    public Page getOutput()
+    {
+        if (probePage != null) {
+            processProbe();
+        }
+
+        if (pageBuilder.isEmpty() || (probePage != null && !pageBuilder.isFull())) {
+            return null;
+        }
+        Page page = pageBuilder.build();
+        pageBuilder.reset();
+        return page;
+    }
+
+    @Override
+    public void close()
+    {
+        buildExchange.finish(buildBuffer);
+        run.clear();
+        memoryManager.freeAllMemory();
+    }
+
+    private void processProbe()
+    {
+        waitingForBuild = false;
+        if (!enableOuterJoin && buildFinished && run.isEmpty()) {
+            // no build rows are left to match
+            probePage = null;
+            return;
+        }
+
+        while (probePosition < probePage.getPositionCount() && !pageBuilder.isFull()) {
+            if (runPage >= 0) {
+                if (!joinRun()) {
+                    return;
+                }
+                probePosition++;
+                continue;
+            }
+
+            if (hasNullKey(probePage, probeJoinChannels, probePosition)) {
+                appendUnmatched();
+                probePosition++;
+                continue;
+            }
+
+            if (!run.isEmpty() && !runComplete && !extendRun()) {
+                waitingForBuild = true;
+                return;
+            }
+
+            if (!run.isEmpty()) {
+                int comparison = compareToRun(probePage, probeJoinChannels, probePosition);
+                if (comparison == 0) {
+                    runPage = 0;
+                    runPosition = 0;
+                    continue;
+                }
+                if (comparison < 0) {
+                    appendUnmatched();
+                    probePosition++;
+                    continue;
+                }
+                clearRun();
+            }
+
+            if (!startRun()) {
+                waitingForBuild = true;
+                return;
+            }
+            if (run.isEmpty()) {
+                // the build rows are exhausted
+                appendUnmatched();
+                probePosition++;
+            }
+        }
+
+        if (probePosition == probePage.getPositionCount()) {
+            probePage = null;
+        }
+    }
+
+    /**
+     * Skips the build rows with keys less than the key of the current probe row, and starts a run
+     * at the next build row. Returns false if the build side has no rows available yet.
+     */
+    private boolean startRun()
+    {
+        while (true) {
+            if (!advanceBuildPage()) {
+                return false;
+            }
+            if (buildFinished) {
+                return true;
+            }
+            while (buildPosition < buildPage.getPositionCount()) {
+                if (!hasNullKey(buildPage, buildJoinChannels, buildPosition) && compareKeys(probePage, probeJoinChannels, probePosition, buildPage, buildJoinChannels, buildPosition) <= 0) {
+                    addToRun(buildPage.getRegion(buildPosition, 1));
+                    buildPosition++;
+                    runComplete = false;
+                    extendRun();
+                    return true;
+                }
+                buildPosition++;
+            }
+        }
+    }
+
+    /**
+     * Adds the following build rows with the key of the run to the run. Returns false if the end
+     * of the run is not known yet because the build side has no rows available.
+     */
+    private boolean extendRun()
+    {
+        while (true) {
+            if (!advanceBuildPage()) {
+                return false;
+            }
+            if (buildFinished) {
+                runComplete = true;
+                return true;
+            }
+            int start = buildPosition;
+            while (buildPosition < buildPage.getPositionCount() && !hasNullKey(buildPage, buildJoinChannels, buildPosition) && compareToRun(buildPage, buildJoinChannels, buildPosition) == 0) {
+                buildPosition++;
+            }
+            if (buildPosition > start) {
+                addToRun(buildPage.getRegion(start, buildPosition - start));
+            }
+            if (buildPosition < buildPage.getPositionCount()) {
+                runComplete = true;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Makes sure the current build page has a row left, unless the build side is finished.
+     * Returns false if the build side has no rows available yet.
+     */
+    private boolean advanceBuildPage()
+    {
+        while (!buildFinished && (buildPage == null || buildPosition == buildPage.getPositionCount())) {
+            // check the state before removing the page, so a page added in between is not missed
+            boolean finished = buildExchange.isFinished(buildBuffer);
+            buildPage = buildExchange.removePage(buildBuffer);
+            buildPosition = 0;
+            if (buildPage == null) {
+                if (!finished) {
+                    return false;
+                }
+                buildFinished = true;
+            }
+        }
+        return true;
+    }
+
+    private void addToRun(Page page)
+    {
+        run.add(page);
+        runSizeInBytes += page.getSizeInBytes();
+        if (!memoryManager.canUse(runSizeInBytes)) {
+            throw new ExceededMemoryLimitException(memoryManager.getMaxMemorySize());
+        }
+    }
+
+    private void clearRun()
+    {
+        run.clear();
+        runSizeInBytes = 0;
+        memoryManager.freeAllMemory();
+    }
+
+    /**
+     * Joins the current probe row with the rows of the run. Returns false if the output page
+     * filled up before all rows were joined.
+     */
+    private boolean joinRun()
+    {
+        while (runPage < run.size()) {
+            Page page = run.get(runPage);
+            while (runPosition < page.getPositionCount()) {
+                if (pageBuilder.isFull()) {
+                    return false;
+                }
+                pageBuilder.declarePosition();
+                appendProbeRow();
+                for (int channel = 0; channel < buildTypes.size(); channel++) {
+                    buildTypes.get(channel).appendTo(page.getBlock(channel), runPosition, pageBuilder.getBlockBuilder(probeTypes.size() + channel));
+                }
+                runPosition++;
+            }
+            runPage++;
+            runPosition = 0;
+        }
+        runPage = -1;
+        return true;
+    }
+
+    private void appendUnmatched()
+    {
+        if (!enableOuterJoin) {
+            return;
+        }
+        pageBuilder.declarePosition();
+        appendProbeRow();
+        for (int channel = 0; channel < buildTypes.size(); channel++) {
+            pageBuilder.getBlockBuilder(probeTypes.size() + channel).appendNull();
+        }
+    }
+
+    private void appendProbeRow()
+    {
+        for (int channel = 0; channel < probeTypes.size(); channel++) {
+            probeTypes.get(channel).appendTo(probePage.getBlock(channel), probePosition, pageBuilder.getBlockBuilder(channel));
+        }
+    }
+
+    private int compareToRun(Page page, int[] channels, int position)
+    {
+        return compareKeys(page, channels, position, run.get(0), buildJoinChannels, 0);
+    }
+
+    private int compareKeys(Page left, int[] leftChannels, int leftPosition, Page right, int[] rightChannels, int rightPosition)
+    {
+        for (int i = 0; i < keyTypes.size(); i++) {
+            int comparison = keyTypes.get(i).compareTo(left.getBlock(leftChannels[i]), leftPosition, right.getBlock(rightChannels[i]), rightPosition);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    private static boolean hasNullKey(Page page, int[] channels, int position)
+    {
+        for (int channel : channels) {
+            if (page.getBlock(channel).isNull(position)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
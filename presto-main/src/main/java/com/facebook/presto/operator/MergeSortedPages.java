@@ -0,0 +1,130 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.PageBuilder;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Merges streams of pages that are each already sorted by the comparator
+ * into a single sorted stream of pages containing the output channels.
+ */
+public class MergeSortedPages
+        extends AbstractIterator<Page>
+{
+    private final List<Type> sourceTypes;
+    private final PageWithPositionComparator comparator;
+    private final int[] outputChannels;
+    private final PageBuilder pageBuilder;
+    private final PriorityQueue<PagePosition> queue;
+
+    public MergeSortedPages(
+            List<Iterator<Page>> sortedPages,
+            List<Type> sourceTypes,
+            PageWithPositionComparator comparator,
+            int[] outputChannels)
+    {
+        checkNotNull(sortedPages, "sortedPages is null");
+        this.sourceTypes = ImmutableList.copyOf(checkNotNull(sourceTypes, "sourceTypes is null"));
+        this.comparator = checkNotNull(comparator, "comparator is null");
+        this.outputChannels = checkNotNull(outputChannels, "outputChannels is null").clone();
+
+        ImmutableList.Builder<Type> outputTypes = ImmutableList.builder();
+        for (int channel : outputChannels) {
+            outputTypes.add(sourceTypes.get(channel));
+        }
+        this.pageBuilder = new PageBuilder(outputTypes.build());
+
+        this.queue = new PriorityQueue<>(Math.max(1, sortedPages.size()), this::compare);
+        for (Iterator<Page> pages : sortedPages) {
+            PagePosition position = new PagePosition(pages);
+            if (position.advance()) {
+                queue.add(position);
+            }
+        }
+    }
+
+    @Override
+    protected Page computeNext()
+    {
+        if (queue.isEmpty()) {
+            return endOfData();
+        }
+
+        pageBuilder.reset();
+        while (!pageBuilder.isFull() && !queue.isEmpty()) {
+            PagePosition next = queue.poll();
+
+            pageBuilder.declarePosition();
+            for (int i = 0; i < outputChannels.length; i++) {
+                int channel = outputChannels[i];
+                sourceTypes.get(channel).appendTo(next.getPage().getBlock(channel), next.getPosition(), pageBuilder.getBlockBuilder(i));
+            }
+
+            if (next.advance()) {
+                queue.add(next);
+            }
+        }
+        return pageBuilder.build();
+    }
+
+    private int compare(PagePosition left, PagePosition right)
+    {
+        return comparator.compareTo(left.getPage(), left.getPosition(), right.getPage(), right.getPosition());
+    }
+
+    private static class PagePosition
+    {
+        private final Iterator<Page> pages;
+        private Page page;
+        private int position;
+
+        private PagePosition(Iterator<Page> pages)
+        {
+            this.pages = pages;
+        }
+
+        public Page getPage()
+        {
+            return page;
+        }
+
+        public int getPosition()
+        {
+            return position;
+        }
+
+        public boolean advance()
+        {
+            position++;
+            while (page == null || position >= page.getPositionCount()) {
+                if (!pages.hasNext()) {
+                    return false;
+                }
+                page = pages.next();
+                position = 0;
+            }
+            return true;
+        }
+    }
+}
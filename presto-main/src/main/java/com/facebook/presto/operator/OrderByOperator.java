@@ -17,10 +17,16 @@ import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.PageBuilder;
 import com.facebook.presto.spi.block.SortOrder;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spiller.Spiller;
+import com.facebook.presto.spiller.SpillerFactory;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
 import com.google.common.primitives.Ints;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
@@ -39,6 +45,8 @@ public class OrderByOperator
         private final List<Integer> sortChannels;
         private final List<SortOrder> sortOrder;
         private final List<Type> types;
+        private final Optional<SpillerFactory> spillerFactory;
+        private final PagesIndex.Factory pagesIndexFactory;
         private boolean closed;
 
         public OrderByOperatorFactory(
@@ -47,7 +55,21 @@ public class OrderByOperator
                 List<Integer> outputChannels,
                 int expectedPositions,
                 List<Integer> sortChannels,
-                List<SortOrder> sortOrder)
+                List<SortOrder> sortOrder,
+                PagesIndex.Factory pagesIndexFactory)
+        {
+            this(operatorId, sourceTypes, outputChannels, expectedPositions, sortChannels, sortOrder, Optional.empty(), pagesIndexFactory);
+        }
+
+        public OrderByOperatorFactory(
+                int operatorId,
+                List<? extends Type> sourceTypes,
+                List<Integer> outputChannels,
+                int expectedPositions,
+                List<Integer> sortChannels,
+                List<SortOrder> sortOrder,
+                Optional<SpillerFactory> spillerFactory,
+                PagesIndex.Factory pagesIndexFactory)
         {
             this.operatorId = operatorId;
             this.sourceTypes = ImmutableList.copyOf(checkNotNull(sourceTypes, "sourceTypes is null"));
@@ -60,6 +82,8 @@ public class OrderByOperator
             this.expectedPositions = expectedPositions;
             this.sortChannels = ImmutableList.copyOf(checkNotNull(sortChannels, "sortChannels is null"));
             this.sortOrder = ImmutableList.copyOf(checkNotNull(sortOrder, "sortOrder is null"));
+            this.spillerFactory = checkNotNull(spillerFactory, "spillerFactory is null");
+            this.pagesIndexFactory = checkNotNull(pagesIndexFactory, "pagesIndexFactory is null");
 
             this.types = toTypes(sourceTypes, outputChannels);
         }
@@ -83,7 +107,9 @@ public class OrderByOperator
                     expectedPositions,
                     sortTypes,
                     sortChannels,
-                    sortOrder);
+                    sortOrder,
+                    spillerFactory,
+                    pagesIndexFactory);
         }
 
         @Override
@@ -101,6 +127,7 @@ public class OrderByOperator
     }
 
     private final OperatorContext operatorContext;
+    private final List<Type> sourceTypes;
     private final List<Type> sortTypes;
     private final List<Integer> sortChannels;
     private final List<SortOrder> sortOrder;
@@ -112,6 +139,11 @@ public class OrderByOperator
     private final PageBuilder pageBuilder;
     private int currentPosition;
 
+    private final Optional<SpillerFactory> spillerFactory;
+    private final MemoryManager memoryManager;
+    private final List<Spiller> spilledRuns = new ArrayList<>();
+    private Iterator<Page> mergedRuns;
+
     private State state = State.NEEDS_INPUT;
 
     public OrderByOperator(
@@ -121,18 +153,37 @@ public class OrderByOperator
             int expectedPositions,
             List<Type> sortTypes,
             List<Integer> sortChannels,
-            List<SortOrder> sortOrder)
+            List<SortOrder> sortOrder,
+            PagesIndex.Factory pagesIndexFactory)
+    {
+        this(operatorContext, sourceTypes, outputChannels, expectedPositions, sortTypes, sortChannels, sortOrder, Optional.empty(), pagesIndexFactory);
+    }
+
+    public OrderByOperator(
+            OperatorContext operatorContext,
+            List<Type> sourceTypes,
+            List<Integer> outputChannels,
+            int expectedPositions,
+            List<Type> sortTypes,
+            List<Integer> sortChannels,
+            List<SortOrder> sortOrder,
+            Optional<SpillerFactory> spillerFactory,
+            PagesIndex.Factory pagesIndexFactory)
     {
         this.operatorContext = checkNotNull(operatorContext, "operatorContext is null");
+        this.sourceTypes = ImmutableList.copyOf(checkNotNull(sourceTypes, "sourceTypes is null"));
         this.outputChannels = Ints.toArray(checkNotNull(outputChannels, "outputChannels is null"));
         this.types = toTypes(sourceTypes, outputChannels);
         this.sortTypes = ImmutableList.copyOf(checkNotNull(sortTypes, "sortTypes is null"));
         this.sortChannels = ImmutableList.copyOf(checkNotNull(sortChannels, "sortChannels is null"));
         this.sortOrder = ImmutableList.copyOf(checkNotNull(sortOrder, "sortOrder is null"));
 
-        this.pageIndex = new PagesIndex(sourceTypes, expectedPositions);
+        this.pageIndex = checkNotNull(pagesIndexFactory, "pagesIndexFactory is null").newPagesIndex(sourceTypes, expectedPositions);
 
         this.pageBuilder = new PageBuilder(this.types);
+
+        this.spillerFactory = checkNotNull(spillerFactory, "spillerFactory is null");
+        this.memoryManager = new MemoryManager(operatorContext);
     }
 
     @Override
@@ -153,6 +204,18 @@ public class OrderByOperator
         if (state == State.NEEDS_INPUT) {
             state = State.HAS_OUTPUT;
 
+            if (!spilledRuns.isEmpty()) {
+                // write the remaining rows as the last run and merge all of the runs
+                spillToDisk();
+                ImmutableList.Builder<Iterator<Page>> runs = ImmutableList.builder();
+                for (Spiller spiller : spilledRuns) {
+                    runs.add(spiller.getSpilledPages());
+                }
+                PageWithPositionComparator comparator = pageIndex.createPageWithPositionComparator(sortTypes, sortChannels, sortOrder);
+                mergedRuns = new MergeSortedPages(runs.build(), sourceTypes, comparator, outputChannels);
+                return;
+            }
+
             // sort the index
             pageIndex.sort(sortTypes, sortChannels, sortOrder);
         }
@@ -177,7 +240,37 @@ public class OrderByOperator
         checkNotNull(page, "page is null");
 
         pageIndex.addPage(page);
-        operatorContext.setMemoryReservation(pageIndex.getEstimatedSize().toBytes());
+
+        if (!spillerFactory.isPresent()) {
+            operatorContext.setMemoryReservation(pageIndex.getEstimatedSize().toBytes());
+        }
+        else if (!memoryManager.canUse(pageIndex.getEstimatedSize().toBytes())) {
+            spillToDisk();
+        }
+    }
+
+    private void spillToDisk()
+    {
+        // write the index as a sorted run and start over with an empty index
+        pageIndex.sort(sortTypes, sortChannels, sortOrder);
+
+        Spiller spiller = spillerFactory.get().create();
+        spilledRuns.add(spiller);
+
+        int[] allChannels = new int[sourceTypes.size()];
+        for (int i = 0; i < allChannels.length; i++) {
+            allChannels[i] = i;
+        }
+        PageBuilder runPageBuilder = new PageBuilder(sourceTypes);
+        int position = 0;
+        while (position < pageIndex.getPositionCount()) {
+            runPageBuilder.reset();
+            position = pageIndex.buildPage(position, allChannels, runPageBuilder);
+            spiller.spill(Iterators.singletonIterator(runPageBuilder.build()));
+        }
+
+        pageIndex.clear();
+        memoryManager.freeAllMemory();
     }
 
     @Override
@@ -187,6 +280,14 @@ public class OrderByOperator
             return null;
         }
 
+        if (mergedRuns != null) {
+            if (!mergedRuns.hasNext()) {
+                state = State.FINISHED;
+                return null;
+            }
+            return mergedRuns.next();
+        }
+
         if (currentPosition >= pageIndex.getPositionCount()) {
             state = State.FINISHED;
             return null;
@@ -206,6 +307,13 @@ public class OrderByOperator
         return page;
     }
 
+    @Override
+    public void close()
+    {
+        spilledRuns.forEach(Spiller::close);
+        spilledRuns.clear();
+    }
+
     private static List<Type> toTypes(List<? extends Type> sourceTypes, List<Integer> outputChannels)
     {
         ImmutableList.Builder<Type> types = ImmutableList.builder();
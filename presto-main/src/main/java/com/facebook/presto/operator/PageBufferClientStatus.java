@@ -27,6 +27,9 @@ public class PageBufferClientStatus
     private final String state;
     private final DateTime lastUpdate;
     private final int pagesReceived;
+    private final long compressedBytesReceived;
+    private final long uncompressedBytesReceived;
+    private final long decompressionCpuNanos;
     private final int requestsScheduled;
     private final int requestsCompleted;
     private final int requestsFailed;
@@ -37,6 +40,9 @@ public class PageBufferClientStatus
             @JsonProperty("state") String state,
             @JsonProperty("lastUpdate") DateTime lastUpdate,
             @JsonProperty("pagesReceived") int pagesReceived,
+            @JsonProperty("compressedBytesReceived") long compressedBytesReceived,
+            @JsonProperty("uncompressedBytesReceived") long uncompressedBytesReceived,
+            @JsonProperty("decompressionCpuNanos") long decompressionCpuNanos,
             @JsonProperty("requestsScheduled") int requestsScheduled,
             @JsonProperty("requestsCompleted") int requestsCompleted,
             @JsonProperty("requestsFailed") int requestsFailed,
@@ -46,6 +52,9 @@ public class PageBufferClientStatus
         this.state = state;
         this.lastUpdate = lastUpdate;
         this.pagesReceived = pagesReceived;
+        this.compressedBytesReceived = compressedBytesReceived;
+        this.uncompressedBytesReceived = uncompressedBytesReceived;
+        this.decompressionCpuNanos = decompressionCpuNanos;
         this.requestsScheduled = requestsScheduled;
         this.requestsCompleted = requestsCompleted;
         this.requestsFailed = requestsFailed;
@@ -76,6 +85,24 @@ public class PageBufferClientStatus
         return pagesReceived;
     }
 
+    @JsonProperty
+    public long getCompressedBytesReceived()
+    {
+        return compressedBytesReceived;
+    }
+
+    @JsonProperty
+    public long getUncompressedBytesReceived()
+    {
+        return uncompressedBytesReceived;
+    }
+
+    @JsonProperty
+    public long getDecompressionCpuNanos()
+    {
+        return decompressionCpuNanos;
+    }
+
     @JsonProperty
     public int getRequestsScheduled()
     {
@@ -17,7 +17,29 @@ import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.PageBuilder;
 
+import javax.annotation.Nullable;
+
 public interface PageProcessor
 {
     int process(ConnectorSession session, Page page, int start, int end, PageBuilder pageBuilder);
+
+    /**
+     * Same as {@link #process(ConnectorSession, Page, int, int, PageBuilder)}, but the dictionaries
+     * evaluated for earlier pages are taken from the cache of the calling operator.
+     */
+    default int process(ConnectorSession session, Page page, int start, int end, PageBuilder pageBuilder, DictionaryCache dictionaryCache)
+    {
+        return process(session, page, start, end, pageBuilder);
+    }
+
+    /**
+     * Processes a whole page whose filter and projections can all be evaluated over the dictionaries
+     * of its blocks. The output blocks refer to the projected dictionaries with the ids of the input,
+     * so no value is copied. Returns null if the page has to be processed row by row.
+     */
+    @Nullable
+    default Page processDictionaryPage(ConnectorSession session, Page page, DictionaryCache dictionaryCache)
+    {
+        return null;
+    }
 }
@@ -32,6 +32,8 @@ import it.unimi.dsi.fastutil.ints.IntComparator;
 import it.unimi.dsi.fastutil.longs.LongArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 
+import javax.inject.Inject;
+
 import java.util.List;
 import java.util.Optional;
 
@@ -56,11 +58,8 @@ public class PagesIndex
 {
     private static final Logger log = Logger.get(PagesIndex.class);
 
-    // todo this should be a services assigned in the constructor
-    private static final OrderingCompiler orderingCompiler = new OrderingCompiler();
-
-    // todo this should be a services assigned in the constructor
-    private static final JoinCompiler joinCompiler = new JoinCompiler();
+    private final OrderingCompiler orderingCompiler;
+    private final JoinCompiler joinCompiler;
 
     private final List<Type> types;
     private final LongArrayList valueAddresses;
@@ -70,8 +69,10 @@ public class PagesIndex
     private long pagesMemorySize;
     private long estimatedSize;
 
-    public PagesIndex(List<Type> types, int expectedPositions)
+    private PagesIndex(OrderingCompiler orderingCompiler, JoinCompiler joinCompiler, List<Type> types, int expectedPositions)
     {
+        this.orderingCompiler = checkNotNull(orderingCompiler, "orderingCompiler is null");
+        this.joinCompiler = checkNotNull(joinCompiler, "joinCompiler is null");
         this.types = ImmutableList.copyOf(checkNotNull(types, "types is null"));
         this.valueAddresses = new LongArrayList(expectedPositions);
 
@@ -82,6 +83,47 @@ public class PagesIndex
         }
     }
 
+    public interface Factory
+    {
+        PagesIndex newPagesIndex(List<Type> types, int expectedPositions);
+    }
+
+    /**
+     * Creates indexes that use the compilers of the node, so all queries share the generated classes.
+     */
+    public static class DefaultFactory
+            implements Factory
+    {
+        private final OrderingCompiler orderingCompiler;
+        private final JoinCompiler joinCompiler;
+
+        @Inject
+        public DefaultFactory(OrderingCompiler orderingCompiler, JoinCompiler joinCompiler)
+        {
+            this.orderingCompiler = checkNotNull(orderingCompiler, "orderingCompiler is null");
+            this.joinCompiler = checkNotNull(joinCompiler, "joinCompiler is null");
+        }
+
+        @Override
+        public PagesIndex newPagesIndex(List<Type> types, int expectedPositions)
+        {
+            return new PagesIndex(orderingCompiler, joinCompiler, types, expectedPositions);
+        }
+    }
+
+    public static class TestingFactory
+            implements Factory
+    {
+        private static final OrderingCompiler ORDERING_COMPILER = new OrderingCompiler();
+        private static final JoinCompiler JOIN_COMPILER = new JoinCompiler();
+
+        @Override
+        public PagesIndex newPagesIndex(List<Type> types, int expectedPositions)
+        {
+            return new PagesIndex(ORDERING_COMPILER, JOIN_COMPILER, types, expectedPositions);
+        }
+    }
+
     public List<Type> getTypes()
     {
         return types;
@@ -121,6 +163,19 @@ public class PagesIndex
         estimatedSize = calculateEstimatedSize();
     }
 
+    public void clear()
+    {
+        for (ObjectArrayList<Block> channel : channels) {
+            channel.clear();
+        }
+        valueAddresses.clear();
+        valueAddresses.trim();
+        positionCount = 0;
+        pagesMemorySize = 0;
+
+        estimatedSize = calculateEstimatedSize();
+    }
+
     public DataSize getEstimatedSize()
     {
         return new DataSize(estimatedSize, Unit.BYTE);
@@ -244,6 +299,14 @@ public class PagesIndex
         };
     }
 
+    /**
+     * Returns a comparator for rows of pages with the layout of this index, such as sorted runs of this index.
+     */
+    public PageWithPositionComparator createPageWithPositionComparator(List<Type> sortTypes, List<Integer> sortChannels, List<SortOrder> sortOrders)
+    {
+        return orderingCompiler.compilePageWithPositionComparator(sortTypes, sortChannels, sortOrders);
+    }
+
     public LookupSource createLookupSource(List<Integer> joinChannels, OperatorContext operatorContext)
     {
         return createLookupSource(joinChannels, operatorContext, Optional.empty());
@@ -0,0 +1,264 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.List;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Builds the hash table of a join in several drivers. Each operator splits its input by the
+ * hash of the join channels, and once all operators of the factory finished their input,
+ * indexes a share of the partitions. The partitions are combined in a
+ * {@link PartitionedLookupSource}, so the hash table build runs in parallel.
+ */
+public class PartitionedHashBuilderOperator
+        implements Operator
+{
+    public static class PartitionedHashBuilderOperatorFactory
+            implements OperatorFactory
+    {
+        private final int operatorId;
+        private final PartitionedLookupSourceSupplier lookupSourceSupplier;
+        private final List<Integer> hashChannels;
+        private final Optional<Integer> hashChannel;
+        private final int expectedPositions;
+        private final Optional<DynamicFilter> dynamicFilter;
+        private final PagesIndex.Factory pagesIndexFactory;
+
+        private int builderCount;
+        private boolean closed;
+
+        public PartitionedHashBuilderOperatorFactory(
+                int operatorId,
+                List<Type> types,
+                List<Integer> hashChannels,
+                Optional<Integer> hashChannel,
+                int expectedPositions,
+                int partitionCount,
+                Optional<DynamicFilter> dynamicFilter,
+                PagesIndex.Factory pagesIndexFactory)
+        {
+            this.operatorId = operatorId;
+
+            checkArgument(!hashChannels.isEmpty(), "hashChannels is empty");
+            this.hashChannels = ImmutableList.copyOf(checkNotNull(hashChannels, "hashChannels is null"));
+            this.hashChannel = checkNotNull(hashChannel, "hashChannel is null");
+            this.lookupSourceSupplier = new PartitionedLookupSourceSupplier(checkNotNull(types, "types is null"), this.hashChannels, partitionCount);
+
+            this.expectedPositions = expectedPositions;
+            this.dynamicFilter = checkNotNull(dynamicFilter, "dynamicFilter is null");
+            this.pagesIndexFactory = checkNotNull(pagesIndexFactory, "pagesIndexFactory is null");
+        }
+
+        public LookupSourceSupplier getLookupSourceSupplier()
+        {
+            return lookupSourceSupplier;
+        }
+
+        @Override
+        public List<Type> getTypes()
+        {
+            return lookupSourceSupplier.getTypes();
+        }
+
+        @Override
+        public synchronized Operator createOperator(DriverContext driverContext)
+        {
+            checkState(!closed, "Factory is already closed");
+            OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, PartitionedHashBuilderOperator.class.getSimpleName());
+            PartitionedHashBuilderOperator operator = new PartitionedHashBuilderOperator(
+                    operatorContext,
+                    lookupSourceSupplier,
+                    builderCount,
+                    hashChannels,
+                    hashChannel,
+                    expectedPositions,
+                    dynamicFilter,
+                    pagesIndexFactory);
+            builderCount++;
+            return operator;
+        }
+
+        @Override
+        public synchronized void close()
+        {
+            if (!closed) {
+                closed = true;
+                lookupSourceSupplier.setBuilderCount(builderCount);
+            }
+        }
+    }
+
+    private enum State
+    {
+        CONSUMING_INPUT,
+        WAITING_FOR_PARTITIONS,
+        FINISHED
+    }
+
+    private final OperatorContext operatorContext;
+    private final PartitionedLookupSourceSupplier lookupSourceSupplier;
+    private final int builderId;
+    private final List<Integer> hashChannels;
+    private final Optional<Integer> hashChannel;
+    private final HashGenerator partitionHashGenerator;
+    private final PagesIndex[] partitions;
+    private final Optional<DynamicFilterCollector> dynamicFilterCollector;
+    private final PagesIndex.Factory pagesIndexFactory;
+
+    private State state = State.CONSUMING_INPUT;
+    private ListenableFuture<?> partitionsFuture;
+
+    public PartitionedHashBuilderOperator(
+            OperatorContext operatorContext,
+            PartitionedLookupSourceSupplier lookupSourceSupplier,
+            int builderId,
+            List<Integer> hashChannels,
+            Optional<Integer> hashChannel,
+            int expectedPositions,
+            Optional<DynamicFilter> dynamicFilter,
+            PagesIndex.Factory pagesIndexFactory)
+    {
+        this.operatorContext = checkNotNull(operatorContext, "operatorContext is null");
+        this.lookupSourceSupplier = checkNotNull(lookupSourceSupplier, "lookupSourceSupplier is null");
+        checkArgument(builderId >= 0, "builderId is negative");
+        this.builderId = builderId;
+
+        checkArgument(!hashChannels.isEmpty(), "hashChannels is empty");
+        this.hashChannels = ImmutableList.copyOf(checkNotNull(hashChannels, "hashChannels is null"));
+        this.hashChannel = checkNotNull(hashChannel, "hashChannel is null");
+
+        // the precomputed hash has the same value as the hash computed from the join channels
+        List<Type> types = lookupSourceSupplier.getTypes();
+        if (hashChannel.isPresent()) {
+            this.partitionHashGenerator = new PrecomputedHashGenerator(hashChannel.get());
+        }
+        else {
+            this.partitionHashGenerator = SpilledJoinPartitions.createPartitionHashGenerator(types, this.hashChannels);
+        }
+
+        int partitionCount = lookupSourceSupplier.getPartitionCount();
+        this.pagesIndexFactory = checkNotNull(pagesIndexFactory, "pagesIndexFactory is null");
+        this.partitions = new PagesIndex[partitionCount];
+        for (int partition = 0; partition < partitionCount; partition++) {
+            partitions[partition] = pagesIndexFactory.newPagesIndex(types, expectedPositions / partitionCount);
+        }
+
+        this.dynamicFilterCollector = checkNotNull(dynamicFilter, "dynamicFilter is null").map(filter -> new DynamicFilterCollector(filter, this.hashChannels));
+    }
+
+    @Override
+    public OperatorContext getOperatorContext()
+    {
+        return operatorContext;
+    }
+
+    @Override
+    public List<Type> getTypes()
+    {
+        return lookupSourceSupplier.getTypes();
+    }
+
+    @Override
+    public ListenableFuture<?> isBlocked()
+    {
+        if (state == State.WAITING_FOR_PARTITIONS) {
+            return partitionsFuture;
+        }
+        return NOT_BLOCKED;
+    }
+
+    @Override
+    public void finish()
+    {
+        if (state == State.CONSUMING_INPUT) {
+            partitionsFuture = lookupSourceSupplier.addPartitions(partitions, dynamicFilterCollector);
+            state = State.WAITING_FOR_PARTITIONS;
+        }
+        if (state == State.WAITING_FOR_PARTITIONS && partitionsFuture.isDone()) {
+            buildLookupSources();
+            state = State.FINISHED;
+        }
+    }
+
+    private void buildLookupSources()
+    {
+        int builderCount = lookupSourceSupplier.getBuilderCount();
+        for (int partition = builderId; partition < partitions.length; partition += builderCount) {
+            // the blocks are shared with the indexes of the builders, not copied, so the memory
+            // stays accounted to the builder that received the rows
+            PagesIndex pagesIndex = pagesIndexFactory.newPagesIndex(lookupSourceSupplier.getTypes(), 0);
+            for (PagesIndex builderPartition : lookupSourceSupplier.getPartition(partition)) {
+                HashBuilderOperator.addPages(builderPartition, pagesIndex);
+            }
+            lookupSourceSupplier.setLookupSource(partition, pagesIndex.createLookupSource(hashChannels, operatorContext, hashChannel));
+        }
+    }
+
+    @Override
+    public boolean isFinished()
+    {
+        return state == State.FINISHED;
+    }
+
+    @Override
+    public boolean needsInput()
+    {
+        return state == State.CONSUMING_INPUT;
+    }
+
+    @Override
+    public void addInput(Page page)
+    {
+        checkNotNull(page, "page is null");
+        checkState(needsInput(), "Operator is already finishing");
+
+        dynamicFilterCollector.ifPresent(collector -> collector.addPage(page));
+
+        Page[] partitionPages = SpilledJoinPartitions.partitionPage(
+                page,
+                lookupSourceSupplier.getTypes(),
+                SpilledJoinPartitions.getPartitions(page, partitionHashGenerator, partitions.length),
+                partitions.length);
+        long size = getDynamicFilterSize();
+        for (int partition = 0; partition < partitions.length; partition++) {
+            if (partitionPages[partition] != null) {
+                partitions[partition].addPage(partitionPages[partition]);
+            }
+            size += partitions[partition].getEstimatedSize().toBytes();
+        }
+        operatorContext.setMemoryReservation(size);
+        operatorContext.recordGeneratedOutput(page.getSizeInBytes(), page.getPositionCount());
+    }
+
+    @Override
+    public Page getOutput()
+    {
+        return null;
+    }
+
+    private long getDynamicFilterSize()
+    {
+        return dynamicFilterCollector.map(DynamicFilterCollector::getEstimatedSize).orElse(0L);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.PageBuilder;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Lookup source over the build side of a join that was hash partitioned and indexed by
+ * several drivers. A probe row is looked up only in the partition its join keys hash to.
+ * Join positions carry the partition in the upper 32 bits and the position within the
+ * partition in the lower 32 bits.
+ */
+public final class PartitionedLookupSource
+        implements LookupSource
+{
+    private final LookupSource[] lookupSources;
+    private final HashGenerator probeHashGenerator;
+
+    /**
+     * @param lookupSources the lookup source of each partition
+     * @param hashChannelTypes the types of the join channels, which are the channels of the probe pages
+     */
+    public PartitionedLookupSource(List<? extends LookupSource> lookupSources, List<Type> hashChannelTypes)
+    {
+        checkNotNull(lookupSources, "lookupSources is null");
+        checkArgument(!lookupSources.isEmpty(), "lookupSources is empty");
+        this.lookupSources = lookupSources.toArray(new LookupSource[lookupSources.size()]);
+
+        checkNotNull(hashChannelTypes, "hashChannelTypes is null");
+        int[] hashChannels = new int[hashChannelTypes.size()];
+        for (int channel = 0; channel < hashChannels.length; channel++) {
+            hashChannels[channel] = channel;
+        }
+        this.probeHashGenerator = new InterpretedHashGenerator(ImmutableList.copyOf(hashChannelTypes), hashChannels);
+    }
+
+    @Override
+    public int getChannelCount()
+    {
+        return lookupSources[0].getChannelCount();
+    }
+
+    @Override
+    public long getJoinPosition(int position, Page page)
+    {
+        // the partition computes its own hash of the row, which need not match the partitioning hash
+        int partition = getPartition(probeHashGenerator.hashPosition(position, page), lookupSources.length);
+        return encodePosition(partition, lookupSources[partition].getJoinPosition(position, page));
+    }
+
+    @Override
+    public long getJoinPosition(int position, Page page, int rawHash)
+    {
+        int partition = getPartition(rawHash, lookupSources.length);
+        return encodePosition(partition, lookupSources[partition].getJoinPosition(position, page, rawHash));
+    }
+
+    @Override
+    public long getNextJoinPosition(long currentPosition)
+    {
+        int partition = decodePartition(currentPosition);
+        return encodePosition(partition, lookupSources[partition].getNextJoinPosition(decodePosition(currentPosition)));
+    }
+
+    @Override
+    public void appendTo(long position, PageBuilder pageBuilder, int outputChannelOffset)
+    {
+        lookupSources[decodePartition(position)].appendTo(decodePosition(position), pageBuilder, outputChannelOffset);
+    }
+
+    @Override
+    public void close()
+    {
+        for (LookupSource lookupSource : lookupSources) {
+            lookupSource.close();
+        }
+    }
+
+    /**
+     * Partition of a row of the build side or of the probe side, given the raw hash of its join keys.
+     */
+    public static int getPartition(int rawHash, int partitionCount)
+    {
+        return SpilledJoinPartitions.getPartition(rawHash, partitionCount);
+    }
+
+    private static long encodePosition(int partition, long position)
+    {
+        if (position < 0) {
+            return -1;
+        }
+        return (((long) partition) << 32) | position;
+    }
+
+    private static int decodePartition(long position)
+    {
+        return (int) (position >>> 32);
+    }
+
+    private static long decodePosition(long position)
+    {
+        return position & 0xFFFF_FFFFL;
+    }
+}
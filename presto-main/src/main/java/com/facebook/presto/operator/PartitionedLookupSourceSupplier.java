@@ -0,0 +1,180 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Collects the build side of a join from several {@link PartitionedHashBuilderOperator}s.
+ * Each builder first hands over its rows split into hash partitions; once all builders
+ * did so, each of them indexes a share of the partitions, and the lookup source is
+ * available when all partitions are indexed.
+ */
+@ThreadSafe
+public final class PartitionedLookupSourceSupplier
+        implements LookupSourceSupplier
+{
+    private final List<Type> types;
+    private final List<Type> hashChannelTypes;
+    private final int partitionCount;
+    private final SettableFuture<?> partitionsFuture = SettableFuture.create();
+    private final SettableFuture<LookupSource> lookupSourceFuture = SettableFuture.create();
+
+    @GuardedBy("this")
+    private int builderCount = -1;
+    @GuardedBy("this")
+    private final List<PagesIndex[]> builderPartitions = new ArrayList<>();
+    @GuardedBy("this")
+    private final List<DynamicFilterCollector> dynamicFilterCollectors = new ArrayList<>();
+    @GuardedBy("this")
+    private final LookupSource[] lookupSources;
+    @GuardedBy("this")
+    private int lookupSourceCount;
+
+    public PartitionedLookupSourceSupplier(List<Type> types, List<Integer> hashChannels, int partitionCount)
+    {
+        this.types = ImmutableList.copyOf(checkNotNull(types, "types is null"));
+        checkNotNull(hashChannels, "hashChannels is null");
+        ImmutableList.Builder<Type> hashChannelTypes = ImmutableList.builder();
+        for (int channel : hashChannels) {
+            hashChannelTypes.add(types.get(channel));
+        }
+        this.hashChannelTypes = hashChannelTypes.build();
+
+        checkArgument(partitionCount > 0, "partitionCount must be positive");
+        this.partitionCount = partitionCount;
+        this.lookupSources = new LookupSource[partitionCount];
+    }
+
+    @Override
+    public List<Type> getTypes()
+    {
+        return types;
+    }
+
+    public int getPartitionCount()
+    {
+        return partitionCount;
+    }
+
+    @Override
+    public ListenableFuture<LookupSource> getLookupSource(OperatorContext operatorContext)
+    {
+        return lookupSourceFuture;
+    }
+
+    /**
+     * Sets the number of builders, which is only known once all build drivers are created.
+     */
+    public void setBuilderCount(int builderCount)
+    {
+        checkArgument(builderCount >= 0, "builderCount is negative");
+        synchronized (this) {
+            checkState(this.builderCount < 0, "builderCount is already set");
+            this.builderCount = builderCount;
+        }
+        checkPartitionsComplete();
+    }
+
+    public synchronized int getBuilderCount()
+    {
+        checkState(builderCount >= 0, "builderCount is not set");
+        return builderCount;
+    }
+
+    /**
+     * Hands over the rows of a builder, split into hash partitions. The returned future is
+     * done once all builders handed over their rows.
+     */
+    public ListenableFuture<?> addPartitions(PagesIndex[] partitions, Optional<DynamicFilterCollector> dynamicFilterCollector)
+    {
+        checkNotNull(partitions, "partitions is null");
+        checkArgument(partitions.length == partitionCount, "Expected %s partitions, but got %s", partitionCount, partitions.length);
+        checkNotNull(dynamicFilterCollector, "dynamicFilterCollector is null");
+        synchronized (this) {
+            checkState(!partitionsFuture.isDone(), "All builders already added their partitions");
+            builderPartitions.add(partitions);
+            dynamicFilterCollector.ifPresent(dynamicFilterCollectors::add);
+        }
+        checkPartitionsComplete();
+        return partitionsFuture;
+    }
+
+    private void checkPartitionsComplete()
+    {
+        synchronized (this) {
+            if (builderCount <= 0 || builderPartitions.size() < builderCount) {
+                return;
+            }
+
+            // the domains must be published before the probe side is unblocked by the lookup source
+            if (!dynamicFilterCollectors.isEmpty()) {
+                DynamicFilterCollector collector = dynamicFilterCollectors.get(0);
+                for (int i = 1; i < dynamicFilterCollectors.size(); i++) {
+                    collector.merge(dynamicFilterCollectors.get(i));
+                }
+                collector.finish();
+                dynamicFilterCollectors.clear();
+            }
+        }
+        partitionsFuture.set(null);
+    }
+
+    /**
+     * Returns the rows of a partition handed over by all builders. Only valid after all
+     * builders handed over their rows, and only once per partition.
+     */
+    public synchronized List<PagesIndex> getPartition(int partition)
+    {
+        checkState(partitionsFuture.isDone(), "Not all builders added their partitions");
+        ImmutableList.Builder<PagesIndex> indexes = ImmutableList.builder();
+        for (PagesIndex[] partitions : builderPartitions) {
+            checkState(partitions[partition] != null, "Partition %s was already taken", partition);
+            indexes.add(partitions[partition]);
+            // release the rows as soon as the partition is indexed
+            partitions[partition] = null;
+        }
+        return indexes.build();
+    }
+
+    public void setLookupSource(int partition, LookupSource lookupSource)
+    {
+        checkNotNull(lookupSource, "lookupSource is null");
+        synchronized (this) {
+            checkState(lookupSources[partition] == null, "Lookup source for partition %s is already set", partition);
+            lookupSources[partition] = lookupSource;
+            lookupSourceCount++;
+            if (lookupSourceCount < partitionCount) {
+                return;
+            }
+        }
+        boolean wasSet = lookupSourceFuture.set(new PartitionedLookupSource(Arrays.asList(lookupSources), hashChannelTypes));
+        checkState(wasSet, "Lookup source already set");
+    }
+}
@@ -20,6 +20,7 @@ import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.PageBuilder;
 import com.facebook.presto.spi.RecordCursor;
 import com.facebook.presto.spi.RecordPageSource;
+import com.facebook.presto.spi.TupleDomain;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.split.PageSourceProvider;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
@@ -49,6 +50,11 @@ public class ScanFilterAndProjectOperator
     private final PageBuilder pageBuilder;
     private final CursorProcessor cursorProcessor;
     private final PageProcessor pageProcessor;
+    private final DictionaryCache dictionaryCache = new DictionaryCache();
+    private final List<DynamicFilter> dynamicFilters;
+
+    @GuardedBy("this")
+    private Split pendingSplit;
 
     @GuardedBy("this")
     private RecordCursor cursor;
@@ -72,6 +78,19 @@ public class ScanFilterAndProjectOperator
             PageProcessor pageProcessor,
             Iterable<ColumnHandle> columns,
             Iterable<Type> types)
+    {
+        this(operatorContext, sourceId, pageSourceProvider, cursorProcessor, pageProcessor, columns, types, ImmutableList.of());
+    }
+
+    protected ScanFilterAndProjectOperator(
+            OperatorContext operatorContext,
+            PlanNodeId sourceId,
+            PageSourceProvider pageSourceProvider,
+            CursorProcessor cursorProcessor,
+            PageProcessor pageProcessor,
+            Iterable<ColumnHandle> columns,
+            Iterable<Type> types,
+            List<DynamicFilter> dynamicFilters)
     {
         this.cursorProcessor = checkNotNull(cursorProcessor, "cursorProcessor is null");
         this.pageProcessor = checkNotNull(pageProcessor, "pageProcessor is null");
@@ -80,6 +99,7 @@ public class ScanFilterAndProjectOperator
         this.pageSourceProvider = checkNotNull(pageSourceProvider, "pageSourceManager is null");
         this.types = ImmutableList.copyOf(checkNotNull(types, "types is null"));
         this.columns = ImmutableList.copyOf(checkNotNull(columns, "columns is null"));
+        this.dynamicFilters = ImmutableList.copyOf(checkNotNull(dynamicFilters, "dynamicFilters is null"));
 
         this.pageBuilder = new PageBuilder(getTypes());
     }
@@ -100,14 +120,15 @@ public class ScanFilterAndProjectOperator
     public synchronized void addSplit(Split split)
     {
         checkNotNull(split, "split is null");
-        checkState(cursor == null && pageSource == null, "split already set");
+        checkState(cursor == null && pageSource == null && pendingSplit == null, "split already set");
 
-        ConnectorPageSource pageSource = pageSourceProvider.createPageSource(split, columns);
-        if (pageSource instanceof RecordPageSource) {
-            cursor = ((RecordPageSource) pageSource).getCursor();
+        if (dynamicFilters.isEmpty()) {
+            createPageSource(split, TupleDomain.all());
         }
         else {
-            this.pageSource = pageSource;
+            // the page source is created when the first page is requested, since
+            // by then the build side of the join has usually published its domains
+            pendingSplit = split;
         }
 
         Object splitInfo = split.getInfo();
@@ -116,10 +137,68 @@ public class ScanFilterAndProjectOperator
         }
     }
 
+    private synchronized void createPendingPageSource()
+    {
+        Split split = pendingSplit;
+        pendingSplit = null;
+
+        TupleDomain<ColumnHandle> dynamicFilter = TupleDomain.all();
+        if (isDynamicFilterComplete()) {
+            for (DynamicFilter filter : dynamicFilters) {
+                dynamicFilter = dynamicFilter.intersect(filter.getTupleDomain());
+            }
+        }
+
+        if (dynamicFilter.isNone()) {
+            // no row of the split can match a row on the build side
+            finishing = true;
+            return;
+        }
+        createPageSource(split, dynamicFilter);
+
+        if (cursor != null && isDynamicFilterComplete()) {
+            for (DynamicFilter filter : dynamicFilters) {
+                cursor = filter.filter(cursor);
+            }
+        }
+    }
+
+    private void createPageSource(Split split, TupleDomain<ColumnHandle> dynamicFilter)
+    {
+        ConnectorPageSource pageSource = pageSourceProvider.createPageSource(split, columns, dynamicFilter);
+        if (pageSource instanceof RecordPageSource) {
+            cursor = ((RecordPageSource) pageSource).getCursor();
+        }
+        else {
+            this.pageSource = pageSource;
+        }
+    }
+
+    private boolean isDynamicFilterComplete()
+    {
+        for (DynamicFilter filter : dynamicFilters) {
+            if (!filter.isComplete()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Page applyDynamicFilters(Page page)
+    {
+        if (dynamicFilters.isEmpty() || !isDynamicFilterComplete()) {
+            return page;
+        }
+        for (DynamicFilter filter : dynamicFilters) {
+            page = filter.filter(page);
+        }
+        return page;
+    }
+
     @Override
     public synchronized void noMoreSplits()
     {
-        if (cursor == null && pageSource == null) {
+        if (cursor == null && pageSource == null && pendingSplit == null) {
             finishing = true;
         }
     }
@@ -139,6 +218,7 @@ public class ScanFilterAndProjectOperator
     @Override
     public void close()
     {
+        pendingSplit = null;
         if (pageSource != null) {
             try {
                 pageSource.close();
@@ -178,6 +258,10 @@ public class ScanFilterAndProjectOperator
     @Override
     public Page getOutput()
     {
+        if (!finishing && pendingSplit != null) {
+            createPendingPageSource();
+        }
+
         if (!finishing) {
             if (cursor != null) {
                 int rowsProcessed = cursorProcessor.process(operatorContext.getSession().toConnectorSession(), cursor, ROWS_PER_PAGE, pageBuilder);
@@ -202,13 +286,24 @@ public class ScanFilterAndProjectOperator
                         operatorContext.recordGeneratedInput(endCompletedBytes - completedBytes, currentPage.getPositionCount(), endReadTimeNanos - readTimeNanos);
                         completedBytes = endCompletedBytes;
                         readTimeNanos = endReadTimeNanos;
+
+                        currentPage = applyDynamicFilters(currentPage);
                     }
 
                     currentPosition = 0;
                 }
 
+                // a page processed over its dictionaries is returned as is, so the output keeps the order of the input
+                if (currentPage != null && currentPosition == 0 && pageBuilder.isEmpty()) {
+                    Page page = pageProcessor.processDictionaryPage(operatorContext.getSession().toConnectorSession(), currentPage, dictionaryCache);
+                    if (page != null) {
+                        currentPage = null;
+                        return page.getPositionCount() == 0 ? null : page;
+                    }
+                }
+
                 if (currentPage != null) {
-                    currentPosition = pageProcessor.process(operatorContext.getSession().toConnectorSession(), currentPage, currentPosition, currentPage.getPositionCount(), pageBuilder);
+                    currentPosition = pageProcessor.process(operatorContext.getSession().toConnectorSession(), currentPage, currentPosition, currentPage.getPositionCount(), pageBuilder, dictionaryCache);
                     if (currentPosition == currentPage.getPositionCount()) {
                         currentPage = null;
                         currentPosition = 0;
@@ -237,6 +332,7 @@ public class ScanFilterAndProjectOperator
         private final PageSourceProvider pageSourceProvider;
         private final List<ColumnHandle> columns;
         private final List<Type> types;
+        private final List<DynamicFilter> dynamicFilters;
         private boolean closed;
 
         public ScanFilterAndProjectOperatorFactory(
@@ -247,6 +343,19 @@ public class ScanFilterAndProjectOperator
                 PageProcessor pageProcessor,
                 Iterable<ColumnHandle> columns,
                 List<Type> types)
+        {
+            this(operatorId, sourceId, pageSourceProvider, cursorProcessor, pageProcessor, columns, types, ImmutableList.of());
+        }
+
+        public ScanFilterAndProjectOperatorFactory(
+                int operatorId,
+                PlanNodeId sourceId,
+                PageSourceProvider pageSourceProvider,
+                CursorProcessor cursorProcessor,
+                PageProcessor pageProcessor,
+                Iterable<ColumnHandle> columns,
+                List<Type> types,
+                List<DynamicFilter> dynamicFilters)
         {
             this.operatorId = operatorId;
             this.cursorProcessor = checkNotNull(cursorProcessor, "cursorProcessor is null");
@@ -255,6 +364,7 @@ public class ScanFilterAndProjectOperator
             this.pageSourceProvider = checkNotNull(pageSourceProvider, "pageSourceProvider is null");
             this.columns = ImmutableList.copyOf(checkNotNull(columns, "columns is null"));
             this.types = checkNotNull(types, "types is null");
+            this.dynamicFilters = ImmutableList.copyOf(checkNotNull(dynamicFilters, "dynamicFilters is null"));
         }
 
         @Override
@@ -281,7 +391,8 @@ public class ScanFilterAndProjectOperator
                     cursorProcessor,
                     pageProcessor,
                     columns,
-                    types);
+                    types,
+                    dynamicFilters);
         }
 
         @Override
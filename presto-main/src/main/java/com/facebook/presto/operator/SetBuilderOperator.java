@@ -69,6 +69,7 @@ public class SetBuilderOperator
         private final SetSupplier setProvider;
         private final int setChannel;
         private final int expectedPositions;
+        private final Optional<DynamicFilter> dynamicFilter;
         private boolean closed;
 
         public SetBuilderOperatorFactory(
@@ -77,6 +78,17 @@ public class SetBuilderOperator
                 int setChannel,
                 Optional<Integer> hashChannel,
                 int expectedPositions)
+        {
+            this(operatorId, types, setChannel, hashChannel, expectedPositions, Optional.empty());
+        }
+
+        public SetBuilderOperatorFactory(
+                int operatorId,
+                List<Type> types,
+                int setChannel,
+                Optional<Integer> hashChannel,
+                int expectedPositions,
+                Optional<DynamicFilter> dynamicFilter)
         {
             this.operatorId = operatorId;
             Preconditions.checkArgument(setChannel >= 0, "setChannel is negative");
@@ -84,6 +96,7 @@ public class SetBuilderOperator
             this.setChannel = setChannel;
             this.hashChannel = checkNotNull(hashChannel, "hashChannel is null");
             this.expectedPositions = checkNotNull(expectedPositions, "expectedPositions is null");
+            this.dynamicFilter = checkNotNull(dynamicFilter, "dynamicFilter is null");
         }
 
         public SetSupplier getSetProvider()
@@ -102,7 +115,7 @@ public class SetBuilderOperator
         {
             checkState(!closed, "Factory is already closed");
             OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, SetBuilderOperator.class.getSimpleName());
-            return new SetBuilderOperator(operatorContext, setProvider, setChannel, hashChannel, expectedPositions);
+            return new SetBuilderOperator(operatorContext, setProvider, setChannel, hashChannel, expectedPositions, dynamicFilter);
         }
 
         @Override
@@ -118,6 +131,7 @@ public class SetBuilderOperator
     private final Optional<Integer> hashChannel;
 
     private final ChannelSetBuilder channelSetBuilder;
+    private final Optional<DynamicFilterCollector> dynamicFilterCollector;
 
     private boolean finished;
 
@@ -126,7 +140,8 @@ public class SetBuilderOperator
             SetSupplier setSupplier,
             int setChannel,
             Optional<Integer> hashChannel,
-            int expectedPositions)
+            int expectedPositions,
+            Optional<DynamicFilter> dynamicFilter)
     {
         this.operatorContext = checkNotNull(operatorContext, "operatorContext is null");
         this.setSupplier = checkNotNull(setSupplier, "setProvider is null");
@@ -140,6 +155,7 @@ public class SetBuilderOperator
                 channelSetHashChannel,
                 expectedPositions,
                 checkNotNull(operatorContext, "operatorContext is null"));
+        this.dynamicFilterCollector = checkNotNull(dynamicFilter, "dynamicFilter is null").map(filter -> new DynamicFilterCollector(filter, ImmutableList.of(setChannel)));
     }
 
     @Override
@@ -161,6 +177,9 @@ public class SetBuilderOperator
             return;
         }
 
+        // publish the dynamic filter first, so the probe side scans are filtered once the semi join starts
+        dynamicFilterCollector.ifPresent(DynamicFilterCollector::finish);
+
         ChannelSet channelSet = channelSetBuilder.build();
         setSupplier.setChannelSet(channelSet);
         operatorContext.recordGeneratedOutput(channelSet.getEstimatedSizeInBytes(), channelSet.size());
@@ -188,6 +207,11 @@ public class SetBuilderOperator
         Block sourceBlock = page.getBlock(setChannel);
         Page sourcePage = hashChannel.isPresent() ? new Page(sourceBlock, page.getBlock(hashChannel.get())) : new Page(sourceBlock);
         channelSetBuilder.addPage(sourcePage);
+        dynamicFilterCollector.ifPresent(collector -> {
+            collector.addPage(page);
+            // the channel set builder only reserves the memory of the set
+            operatorContext.setMemoryReservation(channelSetBuilder.getEstimatedSize() + collector.getEstimatedSize());
+        });
     }
 
     @Override
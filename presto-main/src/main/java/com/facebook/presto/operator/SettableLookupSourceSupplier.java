@@ -18,7 +18,10 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 
+import javax.annotation.concurrent.GuardedBy;
+
 import java.util.List;
+import java.util.Optional;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
@@ -29,6 +32,13 @@ public final class SettableLookupSourceSupplier
     private final List<Type> types;
     private final SettableFuture<LookupSource> lookupSourceFuture = SettableFuture.create();
 
+    @GuardedBy("this")
+    private Optional<SpilledJoinPartitions> spilledPartitions = Optional.empty();
+    @GuardedBy("this")
+    private int referenceCount;
+    @GuardedBy("this")
+    private boolean released;
+
     public SettableLookupSourceSupplier(List<Type> types)
     {
         this.types = ImmutableList.copyOf(checkNotNull(types, "types is null"));
@@ -46,9 +56,46 @@ public final class SettableLookupSourceSupplier
         return lookupSourceFuture;
     }
 
+    @Override
+    public synchronized Optional<SpilledJoinPartitions> getSpilledPartitions()
+    {
+        return spilledPartitions;
+    }
+
+    @Override
+    public synchronized void retain()
+    {
+        checkState(!released, "Lookup source supplier is already released");
+        referenceCount++;
+    }
+
+    @Override
+    public synchronized void release()
+    {
+        checkState(referenceCount > 0, "Lookup source supplier is not retained");
+        referenceCount--;
+        if (referenceCount == 0) {
+            released = true;
+            spilledPartitions.ifPresent(SpilledJoinPartitions::destroy);
+        }
+    }
+
     public void setLookupSource(LookupSource lookupSource)
+    {
+        setLookupSource(lookupSource, Optional.empty());
+    }
+
+    public void setLookupSource(LookupSource lookupSource, Optional<SpilledJoinPartitions> spilledPartitions)
     {
         checkNotNull(lookupSource, "lookupSource is null");
+        checkNotNull(spilledPartitions, "spilledPartitions is null");
+        synchronized (this) {
+            this.spilledPartitions = spilledPartitions;
+            if (released) {
+                // all probe operators are already gone
+                spilledPartitions.ifPresent(SpilledJoinPartitions::destroy);
+            }
+        }
         boolean wasSet = lookupSourceFuture.set(lookupSource);
         checkState(wasSet, "Lookup source already set");
     }
@@ -0,0 +1,349 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.ExceededMemoryLimitException;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.PageBuilder;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spiller.SpillPartitions;
+import com.facebook.presto.spiller.Spiller;
+import com.facebook.presto.spiller.SpillerFactory;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterators;
+import com.google.common.primitives.Ints;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.facebook.presto.spiller.SpillPartitions.MAX_SPLIT_LEVEL;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Build side partitions of a grace hash join that did not fit in memory.
+ * Rows are assigned to partitions by the hash of the join channels, so a
+ * probe row can only match build rows from the partition with the same number.
+ * A partition that is still too large to be loaded is split into the partitions
+ * of the next level, see {@link SpillPartitions}.
+ */
+@ThreadSafe
+public class SpilledJoinPartitions
+{
+    private final int level;
+    private final int partitionCount;
+    private final List<Type> buildTypes;
+    private final List<Integer> buildHashChannels;
+    private final Optional<Integer> buildHashChannel;
+    private final Map<Integer, Spiller> buildSpillers;
+    private final SpillerFactory spillerFactory;
+    private final PagesIndex.Factory pagesIndexFactory;
+
+    @GuardedBy("this")
+    private final Map<Integer, LoadedPartition> loadedPartitions = new HashMap<>();
+    @GuardedBy("this")
+    private final Map<Integer, SpilledJoinPartitions> splitPartitions = new HashMap<>();
+    @GuardedBy("this")
+    private boolean destroyed;
+
+    public SpilledJoinPartitions(
+            int partitionCount,
+            List<Type> buildTypes,
+            List<Integer> buildHashChannels,
+            Optional<Integer> buildHashChannel,
+            Map<Integer, Spiller> buildSpillers,
+            SpillerFactory spillerFactory,
+            PagesIndex.Factory pagesIndexFactory)
+    {
+        this(0, partitionCount, buildTypes, buildHashChannels, buildHashChannel, buildSpillers, spillerFactory, pagesIndexFactory);
+    }
+
+    private SpilledJoinPartitions(
+            int level,
+            int partitionCount,
+            List<Type> buildTypes,
+            List<Integer> buildHashChannels,
+            Optional<Integer> buildHashChannel,
+            Map<Integer, Spiller> buildSpillers,
+            SpillerFactory spillerFactory,
+            PagesIndex.Factory pagesIndexFactory)
+    {
+        checkArgument(level >= 0 && level <= MAX_SPLIT_LEVEL, "invalid level %s", level);
+        checkArgument(partitionCount > 0, "partitionCount must be positive");
+        this.level = level;
+        this.partitionCount = partitionCount;
+        this.buildTypes = ImmutableList.copyOf(checkNotNull(buildTypes, "buildTypes is null"));
+        this.buildHashChannels = ImmutableList.copyOf(checkNotNull(buildHashChannels, "buildHashChannels is null"));
+        this.buildHashChannel = checkNotNull(buildHashChannel, "buildHashChannel is null");
+        this.buildSpillers = ImmutableMap.copyOf(checkNotNull(buildSpillers, "buildSpillers is null"));
+        this.spillerFactory = checkNotNull(spillerFactory, "spillerFactory is null");
+        this.pagesIndexFactory = checkNotNull(pagesIndexFactory, "pagesIndexFactory is null");
+    }
+
+    public int getLevel()
+    {
+        return level;
+    }
+
+    public int getPartitionCount()
+    {
+        return partitionCount;
+    }
+
+    public boolean isSpilled(int partition)
+    {
+        return buildSpillers.containsKey(partition);
+    }
+
+    public SpillerFactory getSpillerFactory()
+    {
+        return spillerFactory;
+    }
+
+    /**
+     * Returns the index of the build rows of a spilled partition. The partition is read back
+     * and indexed once, and shared by all probe operators that use it at the same time. Each
+     * operator reserves the memory of the partition against the supplied memory manager while
+     * it uses the partition, and calls {@link #releasePartition} once it is done. If the
+     * partition does not fit in the memory of the operator, nothing is reserved and the
+     * operator must join the partition through {@link #splitPartition} instead.
+     */
+    public synchronized Optional<LookupSource> acquirePartition(int partition, OperatorContext operatorContext, MemoryManager memoryManager)
+    {
+        checkArgument(isSpilled(partition), "partition %s is not spilled", partition);
+        checkState(!destroyed, "spilled partitions are already destroyed");
+
+        LoadedPartition loadedPartition = loadedPartitions.get(partition);
+        if (loadedPartition == null) {
+            // the spill files are only read while holding the lock, as the spillers are not thread safe
+            Optional<LoadedPartition> newPartition = loadPartition(partition, operatorContext, memoryManager);
+            if (!newPartition.isPresent()) {
+                return Optional.empty();
+            }
+            loadedPartition = newPartition.get();
+            loadedPartitions.put(partition, loadedPartition);
+        }
+        else if (!memoryManager.canUse(loadedPartition.getSizeInBytes())) {
+            return Optional.empty();
+        }
+        loadedPartition.retain();
+        return Optional.of(loadedPartition.getLookupSource());
+    }
+
+    /**
+     * Returns the build rows of a spilled partition split into the partitions of the next
+     * level. The split is done once, and shared by all probe operators that cannot load the
+     * partition. The spilled probe rows of the partition must be split the same way.
+     */
+    public synchronized SpilledJoinPartitions splitPartition(int partition, MemoryManager memoryManager)
+    {
+        checkArgument(isSpilled(partition), "partition %s is not spilled", partition);
+        checkState(!destroyed, "spilled partitions are already destroyed");
+
+        SpilledJoinPartitions subPartitions = splitPartitions.get(partition);
+        if (subPartitions != null) {
+            return subPartitions;
+        }
+        if (level == MAX_SPLIT_LEVEL) {
+            throw new ExceededMemoryLimitException(memoryManager.getMaxMemorySize());
+        }
+
+        // every partition of the next level is spilled, even if empty, so all probe rows are joined against it
+        int subLevel = level + 1;
+        ImmutableMap.Builder<Integer, Spiller> subSpillers = ImmutableMap.builder();
+        Spiller[] spillers = new Spiller[partitionCount];
+        for (int subPartition = 0; subPartition < partitionCount; subPartition++) {
+            spillers[subPartition] = spillerFactory.create();
+            subSpillers.put(subPartition, spillers[subPartition]);
+        }
+
+        HashGenerator hashGenerator = createPartitionHashGenerator(buildTypes, buildHashChannels);
+        Iterator<Page> pages = buildSpillers.get(partition).getSpilledPages();
+        while (pages.hasNext()) {
+            Page page = pages.next();
+            Page[] partitionPages = partitionPage(page, buildTypes, getPartitions(page, hashGenerator, subLevel, partitionCount), partitionCount);
+            for (int subPartition = 0; subPartition < partitionCount; subPartition++) {
+                if (partitionPages[subPartition] != null) {
+                    spillers[subPartition].spill(Iterators.singletonIterator(partitionPages[subPartition]));
+                }
+            }
+        }
+        subPartitions = new SpilledJoinPartitions(subLevel, partitionCount, buildTypes, buildHashChannels, buildHashChannel, subSpillers.build(), spillerFactory, pagesIndexFactory);
+        splitPartitions.put(partition, subPartitions);
+        return subPartitions;
+    }
+
+    /**
+     * Releases a partition acquired with {@link #acquirePartition}. The index is dropped once
+     * no probe operator uses it anymore.
+     */
+    public synchronized void releasePartition(int partition)
+    {
+        if (destroyed) {
+            return;
+        }
+        LoadedPartition loadedPartition = loadedPartitions.get(partition);
+        checkState(loadedPartition != null, "partition %s is not loaded", partition);
+        if (loadedPartition.release()) {
+            loadedPartitions.remove(partition);
+            loadedPartition.getLookupSource().close();
+        }
+    }
+
+    private Optional<LoadedPartition> loadPartition(int partition, OperatorContext operatorContext, MemoryManager memoryManager)
+    {
+        PagesIndex pagesIndex = pagesIndexFactory.newPagesIndex(buildTypes, 10_000);
+        Iterator<Page> pages = buildSpillers.get(partition).getSpilledPages();
+        while (pages.hasNext()) {
+            pagesIndex.addPage(pages.next());
+            if (!memoryManager.canUse(pagesIndex.getEstimatedSize().toBytes())) {
+                memoryManager.freeAllMemory();
+                return Optional.empty();
+            }
+        }
+        LookupSource lookupSource = pagesIndex.createLookupSource(buildHashChannels, operatorContext, buildHashChannel);
+        return Optional.of(new LoadedPartition(lookupSource, pagesIndex.getEstimatedSize().toBytes()));
+    }
+
+    /**
+     * Deletes the spilled build partitions. Called once no probe operator needs them anymore.
+     */
+    public synchronized void destroy()
+    {
+        if (destroyed) {
+            return;
+        }
+        destroyed = true;
+        loadedPartitions.values().forEach(loadedPartition -> loadedPartition.getLookupSource().close());
+        loadedPartitions.clear();
+        splitPartitions.values().forEach(SpilledJoinPartitions::destroy);
+        splitPartitions.clear();
+        buildSpillers.values().forEach(Spiller::close);
+    }
+
+    public static int getPartition(int rawHash, int partitionCount)
+    {
+        return SpillPartitions.getPartition(rawHash, 0, partitionCount);
+    }
+
+    public static int[] getPartitions(Page page, HashGenerator hashGenerator, int partitionCount)
+    {
+        return getPartitions(page, hashGenerator, 0, partitionCount);
+    }
+
+    public static int[] getPartitions(Page page, HashGenerator hashGenerator, int level, int partitionCount)
+    {
+        int[] partitions = new int[page.getPositionCount()];
+        for (int position = 0; position < partitions.length; position++) {
+            partitions[position] = SpillPartitions.getPartition(hashGenerator.hashPosition(position, page), level, partitionCount);
+        }
+        return partitions;
+    }
+
+    /**
+     * Splits the rows of a page by the supplied partition of each row. Partitions without
+     * rows are {@code null}; if all rows fall into a single partition the page itself is
+     * returned for it.
+     */
+    public static Page[] partitionPage(Page page, List<Type> types, int[] partitions, int partitionCount)
+    {
+        int positionCount = page.getPositionCount();
+        int[] partitionSizes = new int[partitionCount];
+        for (int position = 0; position < positionCount; position++) {
+            partitionSizes[partitions[position]]++;
+        }
+
+        Page[] partitionPages = new Page[partitionCount];
+        if (positionCount > 0 && partitionSizes[partitions[0]] == positionCount) {
+            partitionPages[partitions[0]] = page;
+            return partitionPages;
+        }
+
+        PageBuilder[] pageBuilders = new PageBuilder[partitionCount];
+        for (int position = 0; position < positionCount; position++) {
+            int partition = partitions[position];
+            PageBuilder pageBuilder = pageBuilders[partition];
+            if (pageBuilder == null) {
+                pageBuilder = new PageBuilder(types);
+                pageBuilders[partition] = pageBuilder;
+            }
+            pageBuilder.declarePosition();
+            for (int channel = 0; channel < types.size(); channel++) {
+                types.get(channel).appendTo(page.getBlock(channel), position, pageBuilder.getBlockBuilder(channel));
+            }
+        }
+
+        for (int partition = 0; partition < partitionCount; partition++) {
+            if (pageBuilders[partition] != null) {
+                partitionPages[partition] = pageBuilders[partition].build();
+            }
+        }
+        return partitionPages;
+    }
+
+    public static HashGenerator createPartitionHashGenerator(List<Type> types, List<Integer> joinChannels)
+    {
+        ImmutableList.Builder<Type> joinTypes = ImmutableList.builder();
+        for (int channel : joinChannels) {
+            joinTypes.add(types.get(channel));
+        }
+        return new InterpretedHashGenerator(joinTypes.build(), Ints.toArray(joinChannels));
+    }
+
+    private static final class LoadedPartition
+    {
+        private final LookupSource lookupSource;
+        private final long sizeInBytes;
+        private int referenceCount;
+
+        private LoadedPartition(LookupSource lookupSource, long sizeInBytes)
+        {
+            this.lookupSource = lookupSource;
+            this.sizeInBytes = sizeInBytes;
+        }
+
+        private LookupSource getLookupSource()
+        {
+            return lookupSource;
+        }
+
+        private long getSizeInBytes()
+        {
+            return sizeInBytes;
+        }
+
+        private void retain()
+        {
+            referenceCount++;
+        }
+
+        /**
+         * @return true if this was the last reference to the partition
+         */
+        private boolean release()
+        {
+            checkState(referenceCount > 0, "partition is not referenced");
+            referenceCount--;
+            return referenceCount == 0;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spiller.Spiller;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Probe side of a grace hash join. Probe rows that belong to a spilled build
+ * partition are spilled as well, and joined one partition at a time after
+ * all input has been consumed.
+ */
+@NotThreadSafe
+public class SpilledProbePartitions
+        implements Closeable
+{
+    private final SpilledJoinPartitions spilledPartitions;
+    private final List<Type> probeTypes;
+    private final List<Integer> probeJoinChannels;
+    private final HashGenerator hashGenerator;
+    private final OperatorContext operatorContext;
+    private final MemoryManager memoryManager;
+    private final Spiller[] spillers;
+
+    private int currentPartition = -1;
+    private LookupSource lookupSource;
+    private Iterator<Page> probePages = ImmutableList.<Page>of().iterator();
+    // probe rows of the current partition, if its build rows had to be split to fit in memory
+    private SpilledProbePartitions subPartitions;
+
+    public SpilledProbePartitions(SpilledJoinPartitions spilledPartitions, List<Type> probeTypes, List<Integer> probeJoinChannels, OperatorContext operatorContext)
+    {
+        this.spilledPartitions = checkNotNull(spilledPartitions, "spilledPartitions is null");
+        this.probeTypes = ImmutableList.copyOf(checkNotNull(probeTypes, "probeTypes is null"));
+        this.probeJoinChannels = ImmutableList.copyOf(checkNotNull(probeJoinChannels, "probeJoinChannels is null"));
+        this.hashGenerator = SpilledJoinPartitions.createPartitionHashGenerator(probeTypes, probeJoinChannels);
+        this.operatorContext = checkNotNull(operatorContext, "operatorContext is null");
+        this.memoryManager = new MemoryManager(operatorContext);
+        this.spillers = new Spiller[spilledPartitions.getPartitionCount()];
+    }
+
+    /**
+     * Spills the rows of the page that belong to spilled partitions.
+     *
+     * @return the rows that can be joined against the in-memory lookup source, or null if there are none
+     */
+    public Page spillRows(Page page)
+    {
+        int partitionCount = spilledPartitions.getPartitionCount();
+
+        // all rows of in-memory partitions are collected in an extra partition
+        int inMemory = partitionCount;
+        int[] partitions = SpilledJoinPartitions.getPartitions(page, hashGenerator, spilledPartitions.getLevel(), partitionCount);
+        for (int position = 0; position < partitions.length; position++) {
+            if (!spilledPartitions.isSpilled(partitions[position])) {
+                partitions[position] = inMemory;
+            }
+        }
+
+        Page[] partitionPages = SpilledJoinPartitions.partitionPage(page, probeTypes, partitions, partitionCount + 1);
+        for (int partition = 0; partition < partitionCount; partition++) {
+            if (partitionPages[partition] != null) {
+                if (spillers[partition] == null) {
+                    spillers[partition] = spilledPartitions.getSpillerFactory().create();
+                }
+                spillers[partition].spill(Iterators.singletonIterator(partitionPages[partition]));
+            }
+        }
+        return partitionPages[inMemory];
+    }
+
+    /**
+     * Returns the next spilled probe page, loading the matching build partition when
+     * moving on to the next partition, or null once all spilled partitions are joined.
+     */
+    public Page nextProbePage()
+    {
+        while (true) {
+            if (subPartitions != null) {
+                Page page = subPartitions.nextProbePage();
+                if (page != null) {
+                    return page;
+                }
+                subPartitions.close();
+                subPartitions = null;
+            }
+            if (probePages.hasNext()) {
+                return probePages.next();
+            }
+
+            // release the previous partition before loading the next one
+            releaseLookupSource();
+
+            currentPartition++;
+            while (currentPartition < spillers.length && spillers[currentPartition] == null) {
+                currentPartition++;
+            }
+            if (currentPartition == spillers.length) {
+                return null;
+            }
+
+            Optional<LookupSource> partitionLookupSource = spilledPartitions.acquirePartition(currentPartition, operatorContext, memoryManager);
+            if (partitionLookupSource.isPresent()) {
+                lookupSource = partitionLookupSource.get();
+                probePages = spillers[currentPartition].getSpilledPages();
+            }
+            else {
+                // the build rows do not fit in memory, so the partition is joined one split partition at a time
+                subPartitions = new SpilledProbePartitions(spilledPartitions.splitPartition(currentPartition, memoryManager), probeTypes, probeJoinChannels, operatorContext);
+                Iterator<Page> pages = spillers[currentPartition].getSpilledPages();
+                while (pages.hasNext()) {
+                    checkState(subPartitions.spillRows(pages.next()) == null, "all split partitions must be spilled");
+                }
+                spillers[currentPartition].close();
+            }
+        }
+    }
+
+    public LookupSource getLookupSource()
+    {
+        if (subPartitions != null) {
+            return subPartitions.getLookupSource();
+        }
+        checkState(lookupSource != null, "no spilled partition is loaded");
+        return lookupSource;
+    }
+
+    private void releaseLookupSource()
+    {
+        if (lookupSource != null) {
+            lookupSource = null;
+            spilledPartitions.releasePartition(currentPartition);
+        }
+        memoryManager.freeAllMemory();
+    }
+
+    @Override
+    public void close()
+    {
+        if (subPartitions != null) {
+            subPartitions.close();
+            subPartitions = null;
+        }
+        releaseLookupSource();
+        for (Spiller spiller : spillers) {
+            if (spiller != null) {
+                spiller.close();
+            }
+        }
+    }
+}
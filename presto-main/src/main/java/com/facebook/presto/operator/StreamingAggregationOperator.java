@@ -0,0 +1,346 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.ExceededMemoryLimitException;
+import com.facebook.presto.operator.aggregation.Accumulator;
+import com.facebook.presto.operator.aggregation.AccumulatorFactory;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.PageBuilder;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.sql.planner.plan.AggregationNode.Step;
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Ints;
+
+import java.util.List;
+import java.util.Optional;
+
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Aggregates input that is already grouped on the group by channels, so that all rows of a group
+ * are adjacent. Each group is output as soon as a row of the next group arrives, so only the
+ * state of the current group is held in memory.
+ */
+public class StreamingAggregationOperator
+        implements Operator
+{
+    public static class StreamingAggregationOperatorFactory
+            implements OperatorFactory
+    {
+        private final int operatorId;
+        private final List<Type> groupByTypes;
+        private final List<Integer> groupByChannels;
+        private final Step step;
+        private final List<AccumulatorFactory> accumulatorFactories;
+        private final Optional<Integer> hashChannel;
+        private final List<Type> types;
+        private boolean closed;
+
+        public StreamingAggregationOperatorFactory(
+                int operatorId,
+                List<? extends Type> groupByTypes,
+                List<Integer> groupByChannels,
+                Step step,
+                List<AccumulatorFactory> accumulatorFactories,
+                Optional<Integer> hashChannel)
+        {
+            this.operatorId = operatorId;
+            this.groupByTypes = ImmutableList.copyOf(checkNotNull(groupByTypes, "groupByTypes is null"));
+            this.groupByChannels = ImmutableList.copyOf(checkNotNull(groupByChannels, "groupByChannels is null"));
+            this.step = checkNotNull(step, "step is null");
+            this.accumulatorFactories = ImmutableList.copyOf(checkNotNull(accumulatorFactories, "accumulatorFactories is null"));
+            this.hashChannel = checkNotNull(hashChannel, "hashChannel is null");
+            this.types = toTypes(groupByTypes, step, accumulatorFactories, hashChannel);
+        }
+
+        @Override
+        public List<Type> getTypes()
+        {
+            return types;
+        }
+
+        @Override
+        public Operator createOperator(DriverContext driverContext)
+        {
+            checkState(!closed, "Factory is already closed");
+            OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, StreamingAggregationOperator.class.getSimpleName());
+            return new StreamingAggregationOperator(operatorContext, groupByTypes, groupByChannels, step, accumulatorFactories, hashChannel);
+        }
+
+        @Override
+        public void close()
+        {
+            closed = true;
+        }
+    }
+
+    private final OperatorContext operatorContext;
+    private final List<Type> groupByTypes;
+    private final int[] groupByChannels;
+    private final Step step;
+    private final List<AccumulatorFactory> accumulatorFactories;
+    private final Optional<Integer> hashChannel;
+    private final List<Type> types;
+    private final MemoryManager memoryManager;
+    private final PageBuilder pageBuilder;
+
+    // the group by values and hash of the current group, and the aggregations of its rows
+    private Block[] currentGroup;
+    private List<Aggregator> aggregators;
+    private boolean finishing;
+
+    public StreamingAggregationOperator(
+            OperatorContext operatorContext,
+            List<Type> groupByTypes,
+            List<Integer> groupByChannels,
+            Step step,
+            List<AccumulatorFactory> accumulatorFactories,
+            Optional<Integer> hashChannel)
+    {
+        this.operatorContext = checkNotNull(operatorContext, "operatorContext is null");
+        this.groupByTypes = ImmutableList.copyOf(checkNotNull(groupByTypes, "groupByTypes is null"));
+        this.groupByChannels = Ints.toArray(checkNotNull(groupByChannels, "groupByChannels is null"));
+        checkArgument(this.groupByTypes.size() == this.groupByChannels.length, "groupByTypes and groupByChannels have different sizes");
+        checkArgument(this.groupByChannels.length > 0, "groupByChannels is empty");
+        this.step = checkNotNull(step, "step is null");
+        this.accumulatorFactories = ImmutableList.copyOf(checkNotNull(accumulatorFactories, "accumulatorFactories is null"));
+        this.hashChannel = checkNotNull(hashChannel, "hashChannel is null");
+        this.types = toTypes(groupByTypes, step, accumulatorFactories, hashChannel);
+        this.memoryManager = new MemoryManager(operatorContext);
+        this.pageBuilder = new PageBuilder(types);
+    }
+
+    @Override
+    public OperatorContext getOperatorContext()
+    {
+        return operatorContext;
+    }
+
+    @Override
+    public List<Type> getTypes()
+    {
+        return types;
+    }
+
+    @Override
+    public void finish()
+    {
+        if (!finishing && currentGroup != null) {
+            flushGroup();
+        }
+        finishing = true;
+    }
+
+    @Override
+    public boolean isFinished()
+    {
+        return finishing && pageBuilder.isEmpty();
+    }
+
+    @Override
+    public boolean needsInput()
+    {
+        return !finishing && !pageBuilder.isFull();
+    }
+
+    @Override
+    public void addInput(Page page)
+    {
+        checkState(!finishing, "Operator is already finishing");
+        checkNotNull(page, "page is null");
+
+        int start = 0;
+        while (start < page.getPositionCount()) {
+            if (currentGroup != null && !isCurrentGroup(page, start)) {
+                flushGroup();
+            }
+            if (currentGroup == null) {
+                startGroup(page, start);
+            }
+
+            int end = start + 1;
+            while (end < page.getPositionCount() && isSameGroup(page, end - 1, end)) {
+                end++;
+            }
+
+            Page region = page.getRegion(start, end - start);
+            long memorySize = 0;
+            for (Aggregator aggregator : aggregators) {
+                aggregator.processPage(region);
+                memorySize += aggregator.getEstimatedSize();
+            }
+            if (!memoryManager.canUse(memorySize)) {
+                throw new ExceededMemoryLimitException(memoryManager.getMaxMemorySize());
+            }
+            start = end;
+        }
+    }
+
+    @Override
+    public Page getOutput()
+    {
+        if (pageBuilder.isEmpty() || (!finishing && !pageBuilder.isFull())) {
+            return null;
+        }
+        Page page = pageBuilder.build();
+        pageBuilder.reset();
+        return page;
+    }
+
+    private void startGroup(Page page, int position)
+    {
+        currentGroup = new Block[groupByChannels.length + (hashChannel.isPresent() ? 1 : 0)];
+        for (int i = 0; i < groupByChannels.length; i++) {
+            currentGroup[i] = page.getBlock(groupByChannels[i]).getSingleValueBlock(position);
+        }
+        if (hashChannel.isPresent()) {
+            currentGroup[groupByChannels.length] = page.getBlock(hashChannel.get()).getSingleValueBlock(position);
+        }
+
+        ImmutableList.Builder<Aggregator> builder = ImmutableList.builder();
+        for (AccumulatorFactory accumulatorFactory : accumulatorFactories) {
+            builder.add(new Aggregator(accumulatorFactory, step));
+        }
+        aggregators = builder.build();
+    }
+
+    private void flushGroup()
+    {
+        pageBuilder.declarePosition();
+        int channel = 0;
+        for (int i = 0; i < groupByTypes.size(); i++) {
+            groupByTypes.get(i).appendTo(currentGroup[i], 0, pageBuilder.getBlockBuilder(channel));
+            channel++;
+        }
+        if (hashChannel.isPresent()) {
+            BIGINT.appendTo(currentGroup[groupByChannels.length], 0, pageBuilder.getBlockBuilder(channel));
+            channel++;
+        }
+        for (Aggregator aggregator : aggregators) {
+            aggregator.evaluate(pageBuilder.getBlockBuilder(channel));
+            channel++;
+        }
+
+        currentGroup = null;
+        aggregators = null;
+        memoryManager.freeAllMemory();
+    }
+
+    private boolean isCurrentGroup(Page page, int position)
+    {
+        for (int i = 0; i < groupByChannels.length; i++) {
+            if (!valueEquals(groupByTypes.get(i), currentGroup[i], 0, page.getBlock(groupByChannels[i]), position)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isSameGroup(Page page, int leftPosition, int rightPosition)
+    {
+        for (int i = 0; i < groupByChannels.length; i++) {
+            Block block = page.getBlock(groupByChannels[i]);
+            if (!valueEquals(groupByTypes.get(i), block, leftPosition, block, rightPosition)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean valueEquals(Type type, Block leftBlock, int leftPosition, Block rightBlock, int rightPosition)
+    {
+        // nulls are grouped together
+        boolean leftIsNull = leftBlock.isNull(leftPosition);
+        boolean rightIsNull = rightBlock.isNull(rightPosition);
+        if (leftIsNull || rightIsNull) {
+            return leftIsNull && rightIsNull;
+        }
+        return type.equalTo(leftBlock, leftPosition, rightBlock, rightPosition);
+    }
+
+    private static List<Type> toTypes(List<? extends Type> groupByTypes, Step step, List<AccumulatorFactory> factories, Optional<Integer> hashChannel)
+    {
+        ImmutableList.Builder<Type> types = ImmutableList.builder();
+        types.addAll(groupByTypes);
+        if (hashChannel.isPresent()) {
+            types.add(BIGINT);
+        }
+        for (AccumulatorFactory factory : factories) {
+            types.add(new Aggregator(factory, step).getType());
+        }
+        return types.build();
+    }
+
+    private static class Aggregator
+    {
+        private final Accumulator aggregation;
+        private final Step step;
+        private final int intermediateChannel;
+
+        private Aggregator(AccumulatorFactory accumulatorFactory, Step step)
+        {
+            if (step == Step.FINAL) {
+                checkArgument(accumulatorFactory.getInputChannels().size() == 1, "expected 1 input channel for intermediate aggregation");
+                intermediateChannel = accumulatorFactory.getInputChannels().get(0);
+                aggregation = accumulatorFactory.createIntermediateAccumulator();
+            }
+            else {
+                intermediateChannel = -1;
+                aggregation = accumulatorFactory.createAccumulator();
+            }
+            this.step = step;
+        }
+
+        public Type getType()
+        {
+            if (step == Step.PARTIAL) {
+                return aggregation.getIntermediateType();
+            }
+            else {
+                return aggregation.getFinalType();
+            }
+        }
+
+        public long getEstimatedSize()
+        {
+            return aggregation.getEstimatedSize();
+        }
+
+        public void processPage(Page page)
+        {
+            if (step == Step.FINAL) {
+                aggregation.addIntermediate(page.getBlock(intermediateChannel));
+            }
+            else {
+                aggregation.addInput(page);
+            }
+        }
+
+        public void evaluate(BlockBuilder blockBuilder)
+        {
+            if (step == Step.PARTIAL) {
+                aggregation.evaluateIntermediate(blockBuilder);
+            }
+            else {
+                aggregation.evaluateFinal(blockBuilder);
+            }
+        }
+    }
+}
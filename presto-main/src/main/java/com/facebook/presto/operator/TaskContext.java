@@ -18,12 +18,17 @@ import com.facebook.presto.execution.StateMachine.StateChangeListener;
 import com.facebook.presto.execution.TaskId;
 import com.facebook.presto.execution.TaskState;
 import com.facebook.presto.execution.TaskStateMachine;
+import com.facebook.presto.memory.MemoryPool;
+import com.facebook.presto.memory.MemoryPoolId;
+import com.facebook.presto.memory.QueryContext;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.stats.CounterStat;
 import io.airlift.units.DataSize;
 import io.airlift.units.Duration;
 import org.joda.time.DateTime;
 
+import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 
 import java.util.List;
@@ -43,6 +48,7 @@ import static java.util.concurrent.TimeUnit.NANOSECONDS;
 @ThreadSafe
 public class TaskContext
 {
+    private final QueryContext queryContext;
     private final TaskStateMachine taskStateMachine;
     private final Executor executor;
     private final Session session;
@@ -51,6 +57,10 @@ public class TaskContext
     private final DataSize operatorPreAllocatedMemory;
 
     private final AtomicLong memoryReservation = new AtomicLong();
+    @GuardedBy("this")
+    private long queryMemoryReservation;
+    @GuardedBy("this")
+    private boolean queryMemoryReleased;
 
     private final long createNanos = System.nanoTime();
 
@@ -105,6 +115,30 @@ public class TaskContext
             boolean verboseStats,
             boolean cpuTimerEnabled)
     {
+        this(
+                new QueryContext(
+                        checkNotNull(taskStateMachine, "taskStateMachine is null").getTaskId().getQueryId(),
+                        new DataSize(Long.MAX_VALUE, BYTE),
+                        new MemoryPool(new MemoryPoolId("unbounded"), new DataSize(Long.MAX_VALUE, BYTE))),
+                taskStateMachine,
+                executor,
+                session,
+                maxMemory,
+                operatorPreAllocatedMemory,
+                verboseStats,
+                cpuTimerEnabled);
+    }
+
+    public TaskContext(QueryContext queryContext,
+            TaskStateMachine taskStateMachine,
+            Executor executor,
+            Session session,
+            DataSize maxMemory,
+            DataSize operatorPreAllocatedMemory,
+            boolean verboseStats,
+            boolean cpuTimerEnabled)
+    {
+        this.queryContext = checkNotNull(queryContext, "queryContext is null");
         this.taskStateMachine = checkNotNull(taskStateMachine, "taskStateMachine is null");
         this.executor = checkNotNull(executor, "executor is null");
         this.session = session;
@@ -119,6 +153,7 @@ public class TaskContext
                 if (newValue.isDone()) {
                     executionEndTime.set(DateTime.now());
                     endNanos.set(System.nanoTime());
+                    freeAllMemory();
                 }
             }
         });
@@ -187,6 +222,12 @@ public class TaskContext
         if (memoryReservation.get() + bytes > maxMemory) {
             return false;
         }
+        if (!queryMemoryReleased) {
+            if (!queryContext.reserveMemory(bytes)) {
+                return false;
+            }
+            queryMemoryReservation += bytes;
+        }
         memoryReservation.getAndAdd(bytes);
         return true;
     }
@@ -195,6 +236,26 @@ public class TaskContext
     {
         checkArgument(bytes <= memoryReservation.get(), "tried to free more memory than is reserved");
         memoryReservation.getAndAdd(-bytes);
+        if (!queryMemoryReleased) {
+            queryContext.freeMemory(bytes);
+            queryMemoryReservation -= bytes;
+        }
+    }
+
+    private synchronized void freeAllMemory()
+    {
+        // operators of a finished task may not have released their memory, so return it to the pool here
+        queryContext.freeMemory(queryMemoryReservation);
+        queryMemoryReservation = 0;
+        queryMemoryReleased = true;
+    }
+
+    /**
+     * Returns a future that is done when the memory pool of the query is not exhausted.
+     */
+    public ListenableFuture<?> getMemoryFuture()
+    {
+        return queryContext.getMemoryFuture();
     }
 
     public boolean isVerboseStats()
@@ -293,13 +293,11 @@ public class TopNRowNumberOperator
         }
 
         pageBuilder.reset();
-        long sizeDelta = 0;
         while (!pageBuilder.isFull() && flushingPartition.isPresent()) {
             FlushingPartition currentFlushingPartition = flushingPartition.get();
 
             while (!pageBuilder.isFull() && currentFlushingPartition.hasNext()) {
                 Block[] next = currentFlushingPartition.next();
-                sizeDelta += sizeOfRow(next);
 
                 pageBuilder.declarePosition();
                 for (int i = 0; i < outputChannels.length; i++) {
@@ -318,9 +316,11 @@ public class TopNRowNumberOperator
         if (pageBuilder.isEmpty()) {
             return null;
         }
-        Page page = pageBuilder.build();
-        memoryManager.freeMemory(-sizeDelta);
-        return page;
+        if (!flushingPartition.isPresent()) {
+            // the reservation excludes the pre-allocated memory, so it is only released once all rows are flushed
+            memoryManager.freeAllMemory();
+        }
+        return pageBuilder.build();
     }
 
     private Optional<FlushingPartition> getFlushingPartition()
@@ -62,6 +62,7 @@ public class WindowOperator
         private final Optional<Integer> frameEndChannel;
         private final int expectedPositions;
         private final List<Type> types;
+        private final PagesIndex.Factory pagesIndexFactory;
         private boolean closed;
 
         public WindowOperatorFactory(
@@ -77,7 +78,8 @@ public class WindowOperator
                 Optional<Integer> frameStartChannel,
                 FrameBound.Type frameEndType,
                 Optional<Integer> frameEndChannel,
-                int expectedPositions)
+                int expectedPositions,
+                PagesIndex.Factory pagesIndexFactory)
         {
             this.operatorId = operatorId;
             this.sourceTypes = ImmutableList.copyOf(sourceTypes);
@@ -104,6 +106,7 @@ public class WindowOperator
             this.frameEndChannel = checkNotNull(frameEndChannel, "frameEndChannel is null");
 
             this.expectedPositions = expectedPositions;
+            this.pagesIndexFactory = checkNotNull(pagesIndexFactory, "pagesIndexFactory is null");
 
             this.types = toTypes(sourceTypes, outputChannels, toWindowFunctions(windowFunctionDefinitions));
         }
@@ -135,7 +138,8 @@ public class WindowOperator
                     frameStartChannel,
                     frameEndType,
                     frameEndChannel,
-                    expectedPositions);
+                    expectedPositions,
+                    pagesIndexFactory);
         }
 
         @Override
@@ -199,7 +203,8 @@ public class WindowOperator
             Optional<Integer> frameStartChannel,
             FrameBound.Type frameEndType,
             Optional<Integer> frameEndChannel,
-            int expectedPositions)
+            int expectedPositions,
+            PagesIndex.Factory pagesIndexFactory)
     {
         this.operatorContext = checkNotNull(operatorContext, "operatorContext is null");
         this.outputChannels = Ints.toArray(checkNotNull(outputChannels, "outputChannels is null"));
@@ -218,7 +223,7 @@ public class WindowOperator
 
         this.types = toTypes(sourceTypes, outputChannels, windowFunctions);
 
-        this.pagesIndex = new PagesIndex(sourceTypes, expectedPositions);
+        this.pagesIndex = checkNotNull(pagesIndexFactory, "pagesIndexFactory is null").newPagesIndex(sourceTypes, expectedPositions);
         this.pageBuilder = new PageBuilder(this.types);
     }
 
@@ -278,7 +283,7 @@ public class WindowOperator
         checkNotNull(page, "page is null");
 
         pagesIndex.addPage(page);
-        operatorContext.setMemoryReservation(pagesIndex.getEstimatedSize().toBytes());
+        updateMemoryReservation();
     }
 
     @Override
@@ -351,6 +356,9 @@ public class WindowOperator
             currentPosition++;
         }
 
+        // the window functions may have built state for the partition, e.g. an aggregation segment tree
+        updateMemoryReservation();
+
         // output the page if we have any data
         if (pageBuilder.isEmpty()) {
             state = State.FINISHED;
@@ -361,6 +369,15 @@ public class WindowOperator
         return page;
     }
 
+    private void updateMemoryReservation()
+    {
+        long memoryReservation = pagesIndex.getEstimatedSize().toBytes();
+        for (WindowFunction function : windowFunctions) {
+            memoryReservation += function.getEstimatedSize();
+        }
+        operatorContext.setMemoryReservation(memoryReservation);
+    }
+
     private void updateFrame()
     {
         int rowPosition = currentPosition - partitionStart;
@@ -28,6 +28,16 @@ public interface Accumulator
 
     void addInput(Page page);
 
+    /**
+     * Returns true if the aggregation can remove input rows, so {@link #removeInput} can be called.
+     */
+    boolean isRemoveInputSupported();
+
+    /**
+     * Removes rows that were previously added with {@link #addInput}.
+     */
+    void removeInput(Page page);
+
     void addIntermediate(Block block);
 
     void evaluateIntermediate(BlockBuilder blockBuilder);
@@ -130,7 +130,10 @@ public class AccumulatorCompiler
                 grouped);
 
         // Generate methods
-        generateAddInput(definition, stateField, inputChannelsField, maskChannelField, sampleWeightChannelField, metadata.getInputMetadata(), metadata.getInputFunction(), callSiteBinder, grouped);
+        generateAddInput(definition, "addInput", stateField, inputChannelsField, maskChannelField, sampleWeightChannelField, metadata.getInputMetadata(), metadata.getInputFunction(), callSiteBinder, grouped);
+        if (!grouped) {
+            generateRemoveInput(definition, stateField, inputChannelsField, maskChannelField, metadata.getInputMetadata(), metadata.getRemoveInputFunction(), callSiteBinder);
+        }
         generateGetEstimatedSize(definition, stateField);
         generateGetIntermediateType(definition, callSiteBinder, stateSerializer.getSerializedType());
         generateGetFinalType(definition, callSiteBinder, metadata.getOutputType());
@@ -191,8 +194,37 @@ public class AccumulatorCompiler
                 .retLong();
     }
 
+    private static void generateRemoveInput(
+            ClassDefinition definition,
+            FieldDefinition stateField,
+            FieldDefinition inputChannelsField,
+            FieldDefinition maskChannelField,
+            List<ParameterMetadata> parameterMetadatas,
+            @Nullable MethodHandle removeInputFunction,
+            CallSiteBinder callSiteBinder)
+    {
+        definition.declareMethod(a(PUBLIC), "isRemoveInputSupported", type(boolean.class))
+                .getBody()
+                .push(removeInputFunction != null)
+                .retBoolean();
+
+        if (removeInputFunction != null) {
+            generateAddInput(definition, "removeInput", stateField, inputChannelsField, maskChannelField, null, parameterMetadatas, removeInputFunction, callSiteBinder, false);
+            return;
+        }
+
+        CompilerContext context = new CompilerContext(BOOTSTRAP_METHOD);
+        definition.declareMethod(context, a(PUBLIC), "removeInput", type(void.class), arg("page", Page.class))
+                .getBody()
+                .newObject(UnsupportedOperationException.class)
+                .dup()
+                .invokeConstructor(UnsupportedOperationException.class)
+                .throwObject();
+    }
+
     private static void generateAddInput(
             ClassDefinition definition,
+            String methodName,
             FieldDefinition stateField,
             FieldDefinition inputChannelsField,
             FieldDefinition maskChannelField,
@@ -210,7 +242,7 @@ public class AccumulatorCompiler
         }
         parameters.add(arg("page", Page.class));
 
-        Block body = definition.declareMethod(context, a(PUBLIC), "addInput", type(void.class), parameters.build())
+        Block body = definition.declareMethod(context, a(PUBLIC), methodName, type(void.class), parameters.build())
                 .getBody();
 
         if (grouped) {
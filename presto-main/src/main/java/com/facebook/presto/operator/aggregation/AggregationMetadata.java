@@ -49,6 +49,8 @@ public class AggregationMetadata
     private final String name;
     private final List<ParameterMetadata> inputMetadata;
     private final MethodHandle inputFunction;
+    @Nullable
+    private final MethodHandle removeInputFunction;
     private final List<ParameterMetadata> intermediateInputMetadata;
     @Nullable
     private final MethodHandle intermediateInputFunction;
@@ -75,6 +77,24 @@ public class AggregationMetadata
             AccumulatorStateFactory<?> stateFactory,
             Type outputType,
             boolean approximate)
+    {
+        this(name, inputMetadata, inputFunction, null, intermediateInputMetadata, intermediateInputFunction, combineFunction, outputFunction, stateInterface, stateSerializer, stateFactory, outputType, approximate);
+    }
+
+    public AggregationMetadata(
+            String name,
+            List<ParameterMetadata> inputMetadata,
+            MethodHandle inputFunction,
+            @Nullable MethodHandle removeInputFunction,
+            @Nullable List<ParameterMetadata> intermediateInputMetadata,
+            @Nullable MethodHandle intermediateInputFunction,
+            @Nullable MethodHandle combineFunction,
+            @Nullable MethodHandle outputFunction,
+            Class<?> stateInterface,
+            AccumulatorStateSerializer<?> stateSerializer,
+            AccumulatorStateFactory<?> stateFactory,
+            Type outputType,
+            boolean approximate)
     {
         this.outputType = checkNotNull(outputType);
         this.inputMetadata = ImmutableList.copyOf(checkNotNull(inputMetadata, "inputMetadata is null"));
@@ -87,6 +107,8 @@ public class AggregationMetadata
         }
         this.name = checkNotNull(name, "name is null");
         this.inputFunction = checkNotNull(inputFunction, "inputFunction is null");
+        checkArgument(removeInputFunction == null || !approximate, "Approximate aggregations cannot remove input");
+        this.removeInputFunction = removeInputFunction;
         checkArgument(combineFunction == null || intermediateInputFunction == null, "Aggregation cannot have both a combine and a intermediate input method");
         checkArgument(combineFunction != null || intermediateInputFunction != null, "Aggregation must have either a combine or a intermediate input method");
         this.intermediateInputFunction = intermediateInputFunction;
@@ -98,6 +120,9 @@ public class AggregationMetadata
         this.approximate = approximate;
 
         verifyInputFunctionSignature(inputFunction, inputMetadata, stateInterface);
+        if (removeInputFunction != null) {
+            verifyInputFunctionSignature(removeInputFunction, inputMetadata, stateInterface);
+        }
         if (intermediateInputFunction != null) {
             checkArgument(countInputChannels(intermediateInputMetadata) == 1, "Intermediate input function may only have one input channel");
             verifyInputFunctionSignature(intermediateInputFunction, intermediateInputMetadata, stateInterface);
@@ -138,6 +163,12 @@ public class AggregationMetadata
         return inputFunction;
     }
 
+    @Nullable
+    public MethodHandle getRemoveInputFunction()
+    {
+        return removeInputFunction;
+    }
+
     @Nullable
     public MethodHandle getIntermediateInputFunction()
     {
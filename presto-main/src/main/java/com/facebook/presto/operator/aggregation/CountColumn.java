@@ -49,6 +49,7 @@ public class CountColumn
     private static final String NAME = "count";
     private static final Signature SIGNATURE = new Signature(NAME, ImmutableList.of(typeParameter("T")), StandardTypes.BIGINT, ImmutableList.of("T"), false, false);
     private static final MethodHandle INPUT_FUNCTION = methodHandle(CountColumn.class, "input", LongState.class, Block.class, int.class);
+    private static final MethodHandle REMOVE_INPUT_FUNCTION = methodHandle(CountColumn.class, "removeInput", LongState.class, Block.class, int.class);
     private static final MethodHandle COMBINE_FUNCTION = methodHandle(CountColumn.class, "combine", LongState.class, LongState.class);
 
     @Override
@@ -86,6 +87,7 @@ public class CountColumn
                 generateAggregationName(NAME, BIGINT, inputTypes),
                 createInputParameterMetadata(type),
                 INPUT_FUNCTION,
+                REMOVE_INPUT_FUNCTION,
                 null,
                 null,
                 COMBINE_FUNCTION,
@@ -110,6 +112,11 @@ public class CountColumn
         state.setLong(state.getLong() + 1);
     }
 
+    public static void removeInput(LongState state, Block block, int index)
+    {
+        state.setLong(state.getLong() - 1);
+    }
+
     public static void combine(LongState state, LongState otherState)
     {
         state.setLong(state.getLong() + otherState.getLong());
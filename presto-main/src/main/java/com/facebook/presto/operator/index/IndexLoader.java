@@ -19,6 +19,7 @@ import com.facebook.presto.metadata.Split;
 import com.facebook.presto.operator.Driver;
 import com.facebook.presto.operator.DriverFactory;
 import com.facebook.presto.operator.LookupSource;
+import com.facebook.presto.operator.PagesIndex;
 import com.facebook.presto.operator.PipelineContext;
 import com.facebook.presto.operator.TaskContext;
 import com.facebook.presto.spi.Page;
@@ -61,6 +62,7 @@ public class IndexLoader
     private final int expectedPositions;
     private final DataSize maxIndexMemorySize;
     private final IndexJoinLookupStats stats;
+    private final PagesIndex.Factory pagesIndexFactory;
 
     private final AtomicReference<TaskContext> taskContextReference = new AtomicReference<>();
     private final Set<Integer> lookupSourceInputChannels;
@@ -85,7 +87,8 @@ public class IndexLoader
             IndexBuildDriverFactoryProvider indexBuildDriverFactoryProvider,
             int expectedPositions,
             DataSize maxIndexMemorySize,
-            IndexJoinLookupStats stats)
+            IndexJoinLookupStats stats,
+            PagesIndex.Factory pagesIndexFactory)
     {
         checkNotNull(lookupSourceInputChannels, "lookupSourceInputChannels is null");
         checkArgument(!lookupSourceInputChannels.isEmpty(), "lookupSourceInputChannels must not be empty");
@@ -98,6 +101,7 @@ public class IndexLoader
         checkNotNull(expectedPositions, "expectedPositions is null");
         checkNotNull(maxIndexMemorySize, "maxIndexMemorySize is null");
         checkNotNull(stats, "stats is null");
+        checkNotNull(pagesIndexFactory, "pagesIndexFactory is null");
 
         this.lookupSourceInputChannels = ImmutableSet.copyOf(lookupSourceInputChannels);
         this.keyOutputChannels = ImmutableList.copyOf(keyOutputChannels);
@@ -107,6 +111,7 @@ public class IndexLoader
         this.expectedPositions = expectedPositions;
         this.maxIndexMemorySize = maxIndexMemorySize;
         this.stats = stats;
+        this.pagesIndexFactory = pagesIndexFactory;
 
         ImmutableList.Builder<Type> keyTypeBuilder = ImmutableList.builder();
         for (int keyOutputChannel : keyOutputChannels) {
@@ -249,7 +254,8 @@ public class IndexLoader
                     keyOutputChannels,
                     keyOutputHashChannel,
                     expectedPositions,
-                    maxIndexMemorySize);
+                    maxIndexMemorySize,
+                    pagesIndexFactory);
         }
     }
 
@@ -274,7 +280,8 @@ public class IndexLoader
                 List<Integer> keyOutputChannels,
                 Optional<Integer> keyOutputHashChannel,
                 int expectedPositions,
-                DataSize maxIndexMemorySize)
+                DataSize maxIndexMemorySize,
+                PagesIndex.Factory pagesIndexFactory)
         {
             this.pipelineContext = pipelineContext;
             this.indexSnapshotReference = indexSnapshotReference;
@@ -288,7 +295,8 @@ public class IndexLoader
                     keyOutputHashChannel,
                     pipelineContext.addDriverContext(),
                     maxIndexMemorySize,
-                    expectedPositions);
+                    expectedPositions,
+                    pagesIndexFactory);
             this.driverFactory = indexBuildDriverFactoryProvider.createSnapshot(this.indexSnapshotBuilder);
 
             ImmutableSet.Builder<Integer> builder = ImmutableSet.builder();
@@ -16,6 +16,7 @@ package com.facebook.presto.operator.index;
 import com.facebook.presto.operator.LookupSource;
 import com.facebook.presto.operator.LookupSourceSupplier;
 import com.facebook.presto.operator.OperatorContext;
+import com.facebook.presto.operator.PagesIndex;
 import com.facebook.presto.spi.type.Type;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -37,9 +38,10 @@ public class IndexLookupSourceSupplier
             List<Type> outputTypes,
             IndexBuildDriverFactoryProvider indexBuildDriverFactoryProvider,
             DataSize maxIndexMemorySize,
-            IndexJoinLookupStats stats)
+            IndexJoinLookupStats stats,
+            PagesIndex.Factory pagesIndexFactory)
     {
-        this.indexLoader = new IndexLoader(lookupSourceInputChannels, keyOutputChannels, keyOutputHashChannel, outputTypes, indexBuildDriverFactoryProvider, 100_000, maxIndexMemorySize, stats);
+        this.indexLoader = new IndexLoader(lookupSourceInputChannels, keyOutputChannels, keyOutputHashChannel, outputTypes, indexBuildDriverFactoryProvider, 100_000, maxIndexMemorySize, stats, pagesIndexFactory);
     }
 
     @Override
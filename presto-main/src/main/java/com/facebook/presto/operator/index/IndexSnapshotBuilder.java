@@ -38,6 +38,7 @@ import static com.google.common.base.Preconditions.checkState;
 public class IndexSnapshotBuilder
 {
     private final int expectedPositions;
+    private final PagesIndex.Factory pagesIndexFactory;
     private final List<Type> outputTypes;
     private final List<Type> missingKeysTypes;
     private final List<Integer> keyOutputChannels;
@@ -58,7 +59,8 @@ public class IndexSnapshotBuilder
             Optional<Integer> keyOutputHashChannel,
             DriverContext driverContext,
             DataSize maxMemoryInBytes,
-            int expectedPositions)
+            int expectedPositions,
+            PagesIndex.Factory pagesIndexFactory)
     {
         checkNotNull(outputTypes, "outputTypes is null");
         checkNotNull(keyOutputChannels, "keyOutputChannels is null");
@@ -66,9 +68,11 @@ public class IndexSnapshotBuilder
         checkNotNull(driverContext, "driverContext is null");
         checkNotNull(maxMemoryInBytes, "maxMemoryInBytes is null");
         checkArgument(expectedPositions > 0, "expectedPositions must be greater than zero");
+        checkNotNull(pagesIndexFactory, "pagesIndexFactory is null");
 
         this.outputTypes = ImmutableList.copyOf(outputTypes);
         this.expectedPositions = expectedPositions;
+        this.pagesIndexFactory = pagesIndexFactory;
         this.keyOutputChannels = ImmutableList.copyOf(keyOutputChannels);
         this.keyOutputHashChannel = keyOutputHashChannel;
         this.maxMemoryInBytes = maxMemoryInBytes.toBytes();
@@ -90,8 +94,8 @@ public class IndexSnapshotBuilder
                 .addDriverContext()
                 .addOperatorContext(0, "operator");
 
-        this.outputPagesIndex = new PagesIndex(outputTypes, expectedPositions);
-        this.missingKeysIndex = new PagesIndex(missingKeysTypes.build(), expectedPositions);
+        this.outputPagesIndex = pagesIndexFactory.newPagesIndex(outputTypes, expectedPositions);
+        this.missingKeysIndex = pagesIndexFactory.newPagesIndex(missingKeysTypes.build(), expectedPositions);
         this.missingKeys = missingKeysIndex.createLookupSource(this.missingKeysChannels, bogusOperatorContext);
     }
 
@@ -168,7 +172,7 @@ public class IndexSnapshotBuilder
     {
         memoryInBytes = 0;
         pages.clear();
-        outputPagesIndex = new PagesIndex(outputTypes, expectedPositions);
-        missingKeysIndex = new PagesIndex(missingKeysTypes, expectedPositions);
+        outputPagesIndex = pagesIndexFactory.newPagesIndex(outputTypes, expectedPositions);
+        missingKeysIndex = pagesIndexFactory.newPagesIndex(missingKeysTypes, expectedPositions);
     }
 }
@@ -17,6 +17,7 @@ import com.facebook.presto.metadata.Signature;
 import com.facebook.presto.operator.aggregation.Accumulator;
 import com.facebook.presto.operator.aggregation.AccumulatorFactory;
 import com.facebook.presto.operator.aggregation.InternalAggregationFunction;
+import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.PageBuilder;
 import com.facebook.presto.spi.block.BlockBuilder;
 import com.facebook.presto.spi.type.Type;
@@ -34,17 +35,22 @@ public class AggregateWindowFunction
     private final InternalAggregationFunction function;
     private final int[] argumentChannels;
     private final AccumulatorFactory accumulatorFactory;
+    private final boolean removeInputSupported;
+    private final PageBuilder pageBuilder;
 
     private WindowIndex windowIndex;
     private Accumulator accumulator;
     private int currentStart;
     private int currentEnd;
+    private AggregationSegmentTree segmentTree;
 
     private AggregateWindowFunction(InternalAggregationFunction function, List<Integer> argumentChannels)
     {
         this.function = checkNotNull(function, "function is null");
         this.argumentChannels = Ints.toArray(argumentChannels);
         this.accumulatorFactory = function.bind(createArgs(function), Optional.empty(), Optional.empty(), 1.0);
+        this.removeInputSupported = accumulatorFactory.createAccumulator().isRemoveInputSupported();
+        this.pageBuilder = new PageBuilder(function.getParameterTypes());
     }
 
     @Override
@@ -57,6 +63,7 @@ public class AggregateWindowFunction
     public void reset(WindowIndex windowIndex)
     {
         this.windowIndex = windowIndex;
+        this.segmentTree = null;
         resetAccumulator();
     }
 
@@ -72,6 +79,23 @@ public class AggregateWindowFunction
             accumulate(currentEnd + 1, frameEnd);
             currentEnd = frameEnd;
         }
+        else if (removeInputSupported && (currentStart >= 0) && (frameStart > currentStart) && (frameStart <= currentEnd + 1) && (frameEnd >= currentEnd)) {
+            // moving frame: remove the rows that left the frame and add the rows that entered it
+            removeInput(currentStart, frameStart - 1);
+            accumulate(currentEnd + 1, frameEnd);
+            currentStart = frameStart;
+            currentEnd = frameEnd;
+        }
+        else if (isSegmentTreeCandidate(frameStart, frameEnd)) {
+            // different frame that is large enough to be aggregated from the ranges of the segment tree
+            resetAccumulator();
+            if (segmentTree == null) {
+                segmentTree = new AggregationSegmentTree(accumulatorFactory, function.getIntermediateType(), function.getParameterTypes(), argumentChannels, windowIndex);
+            }
+            segmentTree.addIntermediate(frameStart, frameEnd, accumulator);
+            currentStart = frameStart;
+            currentEnd = frameEnd;
+        }
         else {
             // different frame
             resetAccumulator();
@@ -83,17 +107,58 @@ public class AggregateWindowFunction
         accumulator.evaluateFinal(output);
     }
 
+    @Override
+    public long getEstimatedSize()
+    {
+        long size = 0;
+        if (accumulator != null) {
+            size += accumulator.getEstimatedSize();
+        }
+        if (segmentTree != null) {
+            size += segmentTree.getEstimatedSize();
+        }
+        return size;
+    }
+
+    /**
+     * The segment tree is used when aggregating the frame row by row would cost more than
+     * combining the O(log n) ranges of the tree. Approximate aggregations and aggregations that
+     * cannot combine intermediate states always aggregate the rows.
+     */
+    private boolean isSegmentTreeCandidate(int frameStart, int frameEnd)
+    {
+        if (!function.isDecomposable() || function.isApproximate()) {
+            return false;
+        }
+        int levels = Integer.SIZE - Integer.numberOfLeadingZeros(windowIndex.size());
+        return frameEnd - frameStart + 1 > 2 * levels;
+    }
+
     private void accumulate(int start, int end)
+    {
+        if (start <= end) {
+            accumulator.addInput(createPage(start, end));
+        }
+    }
+
+    private void removeInput(int start, int end)
+    {
+        if (start <= end) {
+            accumulator.removeInput(createPage(start, end));
+        }
+    }
+
+    private Page createPage(int start, int end)
     {
         // TODO: add Accumulator method that does not require creating pages
-        PageBuilder pageBuilder = new PageBuilder(function.getParameterTypes());
+        pageBuilder.reset();
         for (int position = start; position <= end; position++) {
             for (int i = 0; i < function.getParameterTypes().size(); i++) {
                 windowIndex.appendTo(argumentChannels[i], position, pageBuilder.getBlockBuilder(i));
             }
             pageBuilder.declarePosition();
         }
-        accumulator.addInput(pageBuilder.build());
+        return pageBuilder.build();
     }
 
     private void resetAccumulator()
@@ -0,0 +1,142 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.window;
+
+import com.facebook.presto.operator.GroupByIdBlock;
+import com.facebook.presto.operator.aggregation.Accumulator;
+import com.facebook.presto.operator.aggregation.AccumulatorFactory;
+import com.facebook.presto.operator.aggregation.GroupedAccumulator;
+import com.facebook.presto.spi.PageBuilder;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.block.BlockBuilderStatus;
+import com.facebook.presto.spi.type.Type;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static io.airlift.slice.SizeOf.sizeOf;
+
+/**
+ * Intermediate states of an aggregation over power of two aligned ranges of the rows of a window
+ * partition. The aggregation of any frame combines at most two ranges of each size, so it costs
+ * O(log n) instead of O(frame size). Ranges are combined in row order.
+ */
+final class AggregationSegmentTree
+{
+    private final Type intermediateType;
+    // the intermediate states of the ranges of 2^level rows
+    private final List<Block> levels = new ArrayList<>();
+    private final int[] rightLevels;
+    private final int[] rightRanges;
+
+    public AggregationSegmentTree(AccumulatorFactory accumulatorFactory, Type intermediateType, List<Type> parameterTypes, int[] argumentChannels, WindowIndex windowIndex)
+    {
+        checkNotNull(accumulatorFactory, "accumulatorFactory is null");
+        this.intermediateType = checkNotNull(intermediateType, "intermediateType is null");
+        checkNotNull(parameterTypes, "parameterTypes is null");
+        checkNotNull(argumentChannels, "argumentChannels is null");
+        checkNotNull(windowIndex, "windowIndex is null");
+
+        int rangeCount = 1;
+        while (rangeCount < windowIndex.size()) {
+            rangeCount <<= 1;
+        }
+
+        // each row is a range of its own
+        GroupedAccumulator rows = accumulatorFactory.createGroupedAccumulator();
+        PageBuilder pageBuilder = new PageBuilder(parameterTypes);
+        BlockBuilder groupIds = BIGINT.createBlockBuilder(new BlockBuilderStatus(), windowIndex.size());
+        for (int position = 0; position < windowIndex.size(); position++) {
+            for (int i = 0; i < parameterTypes.size(); i++) {
+                windowIndex.appendTo(argumentChannels[i], position, pageBuilder.getBlockBuilder(i));
+            }
+            pageBuilder.declarePosition();
+            BIGINT.writeLong(groupIds, position);
+            if (pageBuilder.isFull() || position == windowIndex.size() - 1) {
+                rows.addInput(new GroupByIdBlock(rangeCount, groupIds.build()), pageBuilder.build());
+                pageBuilder.reset();
+                groupIds = BIGINT.createBlockBuilder(new BlockBuilderStatus(), windowIndex.size() - position);
+            }
+        }
+        levels.add(evaluateIntermediates(rows, rangeCount));
+
+        // each range combines the two halves of the level below
+        while (rangeCount > 1) {
+            rangeCount >>= 1;
+            GroupedAccumulator ranges = accumulatorFactory.createGroupedAccumulator();
+            groupIds = BIGINT.createBlockBuilder(new BlockBuilderStatus(), rangeCount * 2);
+            for (int i = 0; i < rangeCount * 2; i++) {
+                BIGINT.writeLong(groupIds, i / 2);
+            }
+            ranges.addIntermediate(new GroupByIdBlock(rangeCount, groupIds.build()), levels.get(levels.size() - 1));
+            levels.add(evaluateIntermediates(ranges, rangeCount));
+        }
+
+        this.rightLevels = new int[levels.size()];
+        this.rightRanges = new int[levels.size()];
+    }
+
+    /**
+     * Adds the intermediate states of the rows from start to end, inclusive, to the accumulator.
+     */
+    public void addIntermediate(int start, int end, Accumulator accumulator)
+    {
+        BlockBuilder states = intermediateType.createBlockBuilder(new BlockBuilderStatus(), levels.size() * 2);
+
+        // ranges on the left are added in order, ranges on the right are added in reverse order once the left side is done
+        int rightCount = 0;
+        int low = start;
+        int high = end + 1;
+        for (int level = 0; low < high; level++) {
+            if ((low & 1) == 1) {
+                intermediateType.appendTo(levels.get(level), low, states);
+                low++;
+            }
+            if ((high & 1) == 1) {
+                high--;
+                rightLevels[rightCount] = level;
+                rightRanges[rightCount] = high;
+                rightCount++;
+            }
+            low >>= 1;
+            high >>= 1;
+        }
+        for (int i = rightCount - 1; i >= 0; i--) {
+            intermediateType.appendTo(levels.get(rightLevels[i]), rightRanges[i], states);
+        }
+
+        accumulator.addIntermediate(states.build());
+    }
+
+    public long getEstimatedSize()
+    {
+        long size = sizeOf(rightLevels) + sizeOf(rightRanges);
+        for (Block level : levels) {
+            size += level.getSizeInBytes();
+        }
+        return size;
+    }
+
+    private Block evaluateIntermediates(GroupedAccumulator accumulator, int groupCount)
+    {
+        BlockBuilder blockBuilder = intermediateType.createBlockBuilder(new BlockBuilderStatus(), groupCount);
+        for (int groupId = 0; groupId < groupCount; groupId++) {
+            accumulator.evaluateIntermediate(groupId, blockBuilder);
+        }
+        return blockBuilder.build();
+    }
+}
@@ -71,4 +71,10 @@ public abstract class RankingWindowFunction
      * @param currentPosition the current position for this row
      */
     public abstract void processRow(BlockBuilder output, boolean newPeerGroup, int peerGroupCount, int currentPosition);
+
+    @Override
+    public long getEstimatedSize()
+    {
+        return 0;
+    }
 }
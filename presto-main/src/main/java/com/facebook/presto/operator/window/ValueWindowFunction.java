@@ -56,4 +56,10 @@ public abstract class ValueWindowFunction
      * @param currentPosition the current position for this row
      */
     public abstract void processRow(BlockBuilder output, int frameStart, int frameEnd, int currentPosition);
+
+    @Override
+    public long getEstimatedSize()
+    {
+        return 0;
+    }
 }
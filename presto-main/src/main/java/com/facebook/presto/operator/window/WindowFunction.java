@@ -42,4 +42,9 @@ public interface WindowFunction
      * @param frameEnd the position of the last row in the window frame
      */
     void processRow(BlockBuilder output, int peerGroupStart, int peerGroupEnd, int frameStart, int frameEnd);
+
+    /**
+     * Returns the estimated size in bytes of the state kept for the current partition.
+     */
+    long getEstimatedSize();
 }
@@ -0,0 +1,75 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.plancache;
+
+import com.facebook.presto.metadata.Partition;
+import com.facebook.presto.metadata.TableHandle;
+import com.facebook.presto.sql.analyzer.Analysis;
+import com.facebook.presto.sql.planner.Plan;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The analysis and optimized plan of a statement, along with the partitions of the tables
+ * the plan reads and their data versions at the time it was created. Prepared statements
+ * with parameters only have their analysis cached, since their plan depends on the values.
+ * The analysis only depends on the columns of the tables, so these entries have no partitions
+ * and hold the schema versions of the tables instead, see {@link PlanCache#getSchemaVersion}.
+ */
+public final class CachedPlan
+{
+    private final Analysis analysis;
+    private final Optional<Plan> plan;
+    private final Map<TableHandle, List<Partition>> partitions;
+    private final Map<TableHandle, String> versions;
+
+    public CachedPlan(Analysis analysis, Optional<Plan> plan, Map<TableHandle, List<Partition>> partitions, Map<TableHandle, String> versions)
+    {
+        this.analysis = checkNotNull(analysis, "analysis is null");
+        this.plan = checkNotNull(plan, "plan is null");
+        this.partitions = ImmutableMap.copyOf(checkNotNull(partitions, "partitions is null"));
+        this.versions = ImmutableMap.copyOf(checkNotNull(versions, "versions is null"));
+        checkArgument(partitions.keySet().equals(versions.keySet()), "partitions and versions are for different tables");
+    }
+
+    public Analysis getAnalysis()
+    {
+        return analysis;
+    }
+
+    public Optional<Plan> getPlan()
+    {
+        return plan;
+    }
+
+    public Map<TableHandle, List<Partition>> getPartitions()
+    {
+        return partitions;
+    }
+
+    /**
+     * Returns the data versions of the tables the plan reads, or their schema versions if only
+     * the analysis is cached.
+     */
+    public Map<TableHandle, String> getVersions()
+    {
+        return versions;
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.plancache;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.metadata.Metadata;
+import com.facebook.presto.metadata.TableHandle;
+import com.google.common.base.Ticker;
+import io.airlift.units.Duration;
+import org.weakref.jmx.Managed;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Caches the analysis and optimized plan of statements on the coordinator, keyed by the
+ * fingerprint of the statement text and the session settings that affect planning.
+ * Statements that change metadata invalidate the whole cache. Since data can also change
+ * outside of the engine, the data versions of the tables a plan reads, or their schema versions
+ * for an entry that only holds an analysis, are checked again once the plan has been reused for
+ * the validation interval, and the plan is invalidated if they changed. When the cache holds
+ * more than its maximum number of plans, the least recently used are evicted.
+ */
+@ThreadSafe
+public class PlanCache
+{
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long validationIntervalNanos;
+    private final Ticker ticker;
+
+    // entries in access order, so the first is the least recently used
+    @GuardedBy("this")
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    // incremented by every invalidation of the whole cache, so plans created from metadata
+    // read before the invalidation are not added after it
+    @GuardedBy("this")
+    private long generation;
+
+    @GuardedBy("this")
+    private long hits;
+    @GuardedBy("this")
+    private long misses;
+    @GuardedBy("this")
+    private long invalidations;
+    @GuardedBy("this")
+    private long evictions;
+
+    @Inject
+    public PlanCache(PlanCacheConfig config)
+    {
+        this(config.isEnabled(), config.getMaxEntries(), config.getValidationInterval(), Ticker.systemTicker());
+    }
+
+    public PlanCache(boolean enabled, int maxEntries, Duration validationInterval, Ticker ticker)
+    {
+        checkArgument(maxEntries > 0, "maxEntries must be greater than 0");
+        checkNotNull(validationInterval, "validationInterval is null");
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.validationIntervalNanos = validationInterval.roundTo(NANOSECONDS);
+        this.ticker = checkNotNull(ticker, "ticker is null");
+    }
+
+    /**
+     * Whether statements use the cache unless their session says otherwise.
+     */
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Returns the generation to pass to {@link #put} for a plan created from metadata read after this call.
+     */
+    public synchronized long getGeneration()
+    {
+        return generation;
+    }
+
+    /**
+     * Returns the cached plan for the key, unless the versions of the tables it reads have changed. The versions are read on every lookup, unless a validation interval is
+     * configured, in which case a plan is reused without reading them until the interval
+     * since they were last read elapsed.
+     */
+    public Optional<CachedPlan> get(String key, Session session, Metadata metadata)
+    {
+        checkNotNull(key, "key is null");
+        checkNotNull(session, "session is null");
+        checkNotNull(metadata, "metadata is null");
+
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry == null) {
+                misses++;
+                return Optional.empty();
+            }
+            if (validationIntervalNanos > 0 && ticker.read() - entry.getValidationTime() < validationIntervalNanos) {
+                hits++;
+                return Optional.of(entry.getPlan());
+            }
+        }
+
+        // the versions are read from the connectors, so do it without holding the lock
+        CachedPlan plan = entry.getPlan();
+        long validationTime = ticker.read();
+        boolean valid = true;
+        for (Map.Entry<TableHandle, String> cachedVersion : plan.getVersions().entrySet()) {
+            TableHandle table = cachedVersion.getKey();
+            Optional<String> version;
+            if (plan.getPlan().isPresent()) {
+                version = metadata.getTableDataVersion(session, table, plan.getPartitions().get(table));
+            }
+            else {
+                version = Optional.of(getSchemaVersion(metadata, table));
+            }
+            if (!version.isPresent() || !version.get().equals(cachedVersion.getValue())) {
+                valid = false;
+                break;
+            }
+        }
+
+        synchronized (this) {
+            if (!valid) {
+                // the table changed since the plan was created
+                entries.remove(key, entry);
+                invalidations++;
+                misses++;
+                return Optional.empty();
+            }
+            entry.setValidationTime(validationTime);
+            hits++;
+            return Optional.of(plan);
+        }
+    }
+
+    /**
+     * Returns the version of the columns of a table and their types, which is all the analysis
+     * of a statement depends on. Unlike the data version, it does not change when rows are written.
+     */
+    public static String getSchemaVersion(Metadata metadata, TableHandle table)
+    {
+        checkNotNull(metadata, "metadata is null");
+        checkNotNull(table, "table is null");
+
+        return metadata.getTableMetadata(table).getColumns().stream()
+                .map(column -> column.getName() + " " + column.getType().getTypeSignature() + (column.isHidden() ? " hidden" : ""))
+                .collect(joining(", "));
+    }
+
+    /**
+     * Adds a plan unless the cache was invalidated since the given generation.
+     */
+    public synchronized void put(String key, CachedPlan plan, long generation)
+    {
+        checkNotNull(key, "key is null");
+        checkNotNull(plan, "plan is null");
+
+        if (generation != this.generation) {
+            return;
+        }
+
+        // the versions of the plan were read just before
+        entries.put(key, new Entry(plan, ticker.read()));
+
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > maxEntries) {
+            iterator.next();
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Removes all plans, for when metadata they may depend on has changed.
+     */
+    @Managed
+    public synchronized void invalidateAll()
+    {
+        invalidations += entries.size();
+        entries.clear();
+        generation++;
+    }
+
+    @Managed
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    @Managed
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    @Managed
+    public synchronized double getHitRate()
+    {
+        long lookups = hits + misses;
+        if (lookups == 0) {
+            return Double.NaN;
+        }
+        return ((double) hits) / lookups;
+    }
+
+    @Managed
+    public synchronized long getInvalidations()
+    {
+        return invalidations;
+    }
+
+    @Managed
+    public synchronized long getEvictions()
+    {
+        return evictions;
+    }
+
+    @Managed
+    public synchronized long getEntryCount()
+    {
+        return entries.size();
+    }
+
+    private static final class Entry
+    {
+        private final CachedPlan plan;
+        // guarded by the cache
+        private long validationTime;
+
+        private Entry(CachedPlan plan, long validationTime)
+        {
+            this.plan = plan;
+            this.validationTime = validationTime;
+        }
+
+        public CachedPlan getPlan()
+        {
+            return plan;
+        }
+
+        public long getValidationTime()
+        {
+            return validationTime;
+        }
+
+        public void setValidationTime(long validationTime)
+        {
+            this.validationTime = validationTime;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.plancache;
+
+import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
+import io.airlift.units.Duration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import java.util.concurrent.TimeUnit;
+
+public class PlanCacheConfig
+{
+    private boolean enabled;
+    private int maxEntries = 1000;
+    private Duration validationInterval = new Duration(0, TimeUnit.SECONDS);
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    @Config("plan-cache.enabled")
+    @ConfigDescription("Reuse the analysis and optimized plan of a statement for later runs with the same session settings")
+    public PlanCacheConfig setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+        return this;
+    }
+
+    @Min(1)
+    public int getMaxEntries()
+    {
+        return maxEntries;
+    }
+
+    @Config("plan-cache.max-entries")
+    @ConfigDescription("Maximum number of cached plans, beyond which the least recently used are evicted")
+    public PlanCacheConfig setMaxEntries(int maxEntries)
+    {
+        this.maxEntries = maxEntries;
+        return this;
+    }
+
+    @NotNull
+    public Duration getValidationInterval()
+    {
+        return validationInterval;
+    }
+
+    @Config("plan-cache.validation-interval")
+    @ConfigDescription("How long a cached plan is reused before the data versions of the tables it reads are checked again, or 0 to check them on every reuse")
+    public PlanCacheConfig setValidationInterval(Duration validationInterval)
+    {
+        this.validationInterval = validationInterval;
+        return this;
+    }
+}
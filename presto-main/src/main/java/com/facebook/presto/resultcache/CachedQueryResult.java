@@ -0,0 +1,74 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.resultcache;
+
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+import static com.facebook.presto.spi.StandardErrorCode.INTERNAL_ERROR;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Results of an earlier run of a query, read back from the cache. The pages can only
+ * be read once, and the result must be closed when the client is done with it.
+ */
+public class CachedQueryResult
+        implements Closeable
+{
+    private final List<String> fieldNames;
+    private final List<Type> types;
+    private final Iterator<Page> pages;
+    private final Closeable input;
+
+    public CachedQueryResult(List<String> fieldNames, List<Type> types, Iterator<Page> pages, Closeable input)
+    {
+        this.fieldNames = ImmutableList.copyOf(checkNotNull(fieldNames, "fieldNames is null"));
+        this.types = ImmutableList.copyOf(checkNotNull(types, "types is null"));
+        this.pages = checkNotNull(pages, "pages is null");
+        this.input = checkNotNull(input, "input is null");
+    }
+
+    public List<String> getFieldNames()
+    {
+        return fieldNames;
+    }
+
+    public List<Type> getTypes()
+    {
+        return types;
+    }
+
+    public Iterator<Page> getPages()
+    {
+        return pages;
+    }
+
+    @Override
+    public void close()
+    {
+        try {
+            input.close();
+        }
+        catch (IOException e) {
+            throw new PrestoException(INTERNAL_ERROR, "Failed to close cached query results", e);
+        }
+    }
+}
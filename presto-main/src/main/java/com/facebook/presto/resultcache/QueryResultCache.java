@@ -0,0 +1,301 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.resultcache;
+
+import com.facebook.presto.block.PagesSerde;
+import com.facebook.presto.spi.block.BlockEncodingSerde;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+import io.airlift.log.Logger;
+import io.airlift.slice.InputStreamSliceInput;
+import io.airlift.units.DataSize;
+import org.weakref.jmx.Managed;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Caches the results of queries in files on the local disk of the coordinator. Results are
+ * looked up by the fingerprint of the query, and are only served while the versions of the
+ * data of the tables the query reads are unchanged; otherwise they are invalidated. When the
+ * cache grows beyond its maximum size, the least recently used results are evicted.
+ */
+@ThreadSafe
+public class QueryResultCache
+{
+    static final String FILE_SUFFIX = ".results";
+
+    private static final Logger log = Logger.get(QueryResultCache.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final BlockEncodingSerde blockEncodingSerde;
+    private final boolean enabled;
+    private final Path cachePath;
+    private final long maxSizeInBytes;
+    private final long maxEntrySizeInBytes;
+
+    // entries in access order, so the first is the least recently used
+    @GuardedBy("this")
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    @GuardedBy("this")
+    private long sizeInBytes;
+    @GuardedBy("this")
+    private long hits;
+    @GuardedBy("this")
+    private long misses;
+    @GuardedBy("this")
+    private long invalidations;
+    @GuardedBy("this")
+    private long evictions;
+    @GuardedBy("this")
+    private long bytesServed;
+
+    @Inject
+    public QueryResultCache(QueryResultCacheConfig config, BlockEncodingSerde blockEncodingSerde)
+    {
+        this(blockEncodingSerde, config.isEnabled(), config.getPath().toPath(), config.getMaxSize(), config.getMaxEntrySize());
+    }
+
+    public QueryResultCache(BlockEncodingSerde blockEncodingSerde, boolean enabled, Path cachePath, DataSize maxSize, DataSize maxEntrySize)
+    {
+        this.blockEncodingSerde = checkNotNull(blockEncodingSerde, "blockEncodingSerde is null");
+        this.enabled = enabled;
+        this.cachePath = checkNotNull(cachePath, "cachePath is null");
+        this.maxSizeInBytes = checkNotNull(maxSize, "maxSize is null").toBytes();
+        this.maxEntrySizeInBytes = checkNotNull(maxEntrySize, "maxEntrySize is null").toBytes();
+        checkArgument(maxEntrySizeInBytes <= maxSizeInBytes, "maxEntrySize is larger than maxSize");
+
+        // the cache is not persistent, so remove the results left behind by an earlier run
+        deleteCacheFiles();
+    }
+
+    /**
+     * Whether queries use the cache unless their session says otherwise.
+     */
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Returns the cached results for the key if the data they were computed from is unchanged.
+     */
+    public synchronized Optional<CachedQueryResult> get(QueryResultCacheKey key)
+    {
+        checkNotNull(key, "key is null");
+
+        Entry entry = entries.get(key.getFingerprint());
+        if (entry == null) {
+            misses++;
+            return Optional.empty();
+        }
+
+        if (!entry.getDataVersions().equals(key.getDataVersions())) {
+            // the data of a table changed since the results were computed
+            remove(key.getFingerprint());
+            invalidations++;
+            misses++;
+            return Optional.empty();
+        }
+
+        InputStreamSliceInput input;
+        try {
+            // an evicted file can still be read through a stream opened before it was deleted
+            input = new InputStreamSliceInput(new BufferedInputStream(Files.newInputStream(entry.getFile()), BUFFER_SIZE));
+        }
+        catch (IOException e) {
+            log.warn(e, "Failed to read query results from the cache");
+            remove(key.getFingerprint());
+            misses++;
+            return Optional.empty();
+        }
+
+        hits++;
+        bytesServed += entry.getSizeInBytes();
+        return Optional.of(new CachedQueryResult(entry.getFieldNames(), entry.getTypes(), PagesSerde.readPages(blockEncodingSerde, input), input));
+    }
+
+    /**
+     * Creates a writer for the results of a query with the key, which replace any results
+     * cached for it when committed.
+     */
+    public QueryResultCacheWriter createWriter(QueryResultCacheKey key, List<String> fieldNames, List<Type> types)
+    {
+        return new QueryResultCacheWriter(this, blockEncodingSerde, key, fieldNames, types, cachePath, maxEntrySizeInBytes);
+    }
+
+    synchronized void put(QueryResultCacheKey key, List<String> fieldNames, List<Type> types, Path file, long entrySizeInBytes)
+    {
+        remove(key.getFingerprint());
+
+        entries.put(key.getFingerprint(), new Entry(key.getDataVersions(), fieldNames, types, file, entrySizeInBytes));
+        sizeInBytes += entrySizeInBytes;
+
+        Iterator<Entry> leastRecentlyUsed = entries.values().iterator();
+        while (sizeInBytes > maxSizeInBytes && leastRecentlyUsed.hasNext()) {
+            Entry evicted = leastRecentlyUsed.next();
+            leastRecentlyUsed.remove();
+            delete(evicted);
+            evictions++;
+        }
+    }
+
+    @GuardedBy("this")
+    private void remove(String fingerprint)
+    {
+        Entry entry = entries.remove(fingerprint);
+        if (entry != null) {
+            delete(entry);
+        }
+    }
+
+    @GuardedBy("this")
+    private void delete(Entry entry)
+    {
+        sizeInBytes -= entry.getSizeInBytes();
+        try {
+            Files.deleteIfExists(entry.getFile());
+        }
+        catch (IOException e) {
+            log.warn(e, "Failed to delete query result cache file %s", entry.getFile());
+        }
+    }
+
+    private void deleteCacheFiles()
+    {
+        if (!Files.isDirectory(cachePath)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(cachePath, "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+        catch (IOException e) {
+            log.warn(e, "Failed to delete query result cache files in %s", cachePath);
+        }
+    }
+
+    @Managed
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    @Managed
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    @Managed
+    public synchronized double getHitRate()
+    {
+        long lookups = hits + misses;
+        if (lookups == 0) {
+            return Double.NaN;
+        }
+        return ((double) hits) / lookups;
+    }
+
+    @Managed
+    public synchronized long getInvalidations()
+    {
+        return invalidations;
+    }
+
+    @Managed
+    public synchronized long getEvictions()
+    {
+        return evictions;
+    }
+
+    @Managed
+    public synchronized long getBytesServed()
+    {
+        return bytesServed;
+    }
+
+    @Managed
+    public synchronized long getSizeInBytes()
+    {
+        return sizeInBytes;
+    }
+
+    @Managed
+    public synchronized long getEntryCount()
+    {
+        return entries.size();
+    }
+
+    private static class Entry
+    {
+        private final Map<String, String> dataVersions;
+        private final List<String> fieldNames;
+        private final List<Type> types;
+        private final Path file;
+        private final long sizeInBytes;
+
+        public Entry(Map<String, String> dataVersions, List<String> fieldNames, List<Type> types, Path file, long sizeInBytes)
+        {
+            this.dataVersions = dataVersions;
+            this.fieldNames = ImmutableList.copyOf(fieldNames);
+            this.types = ImmutableList.copyOf(types);
+            this.file = file;
+            this.sizeInBytes = sizeInBytes;
+        }
+
+        public Map<String, String> getDataVersions()
+        {
+            return dataVersions;
+        }
+
+        public List<String> getFieldNames()
+        {
+            return fieldNames;
+        }
+
+        public List<Type> getTypes()
+        {
+            return types;
+        }
+
+        public Path getFile()
+        {
+            return file;
+        }
+
+        public long getSizeInBytes()
+        {
+            return sizeInBytes;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.resultcache;
+
+import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
+import io.airlift.units.DataSize;
+
+import javax.validation.constraints.NotNull;
+
+import java.io.File;
+
+import static io.airlift.units.DataSize.Unit.GIGABYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+
+public class QueryResultCacheConfig
+{
+    private boolean enabled;
+    private File path = new File(System.getProperty("java.io.tmpdir"), "presto-query-results");
+    private DataSize maxSize = new DataSize(1, GIGABYTE);
+    private DataSize maxEntrySize = new DataSize(64, MEGABYTE);
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    @Config("query-result-cache.enabled")
+    @ConfigDescription("Serve repeated queries from the results of earlier runs while the data they read is unchanged")
+    public QueryResultCacheConfig setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+        return this;
+    }
+
+    @NotNull
+    public File getPath()
+    {
+        return path;
+    }
+
+    @Config("query-result-cache.path")
+    public QueryResultCacheConfig setPath(File path)
+    {
+        this.path = path;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getMaxSize()
+    {
+        return maxSize;
+    }
+
+    @Config("query-result-cache.max-size")
+    @ConfigDescription("Maximum disk space used by cached results, beyond which the least recently used are evicted")
+    public QueryResultCacheConfig setMaxSize(DataSize maxSize)
+    {
+        this.maxSize = maxSize;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getMaxEntrySize()
+    {
+        return maxEntrySize;
+    }
+
+    @Config("query-result-cache.max-entry-size")
+    @ConfigDescription("Results larger than this are not cached")
+    public QueryResultCacheConfig setMaxEntrySize(DataSize maxEntrySize)
+    {
+        this.maxEntrySize = maxEntrySize;
+        return this;
+    }
+}
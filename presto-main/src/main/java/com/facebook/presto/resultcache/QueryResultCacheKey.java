@@ -0,0 +1,78 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.resultcache;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Map;
+import java.util.Objects;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Identifies the results of a query: the fingerprint covers the optimized plan and the
+ * session settings that affect its output, and the data versions are those of the tables
+ * it reads, which must match for cached results to be served.
+ */
+public final class QueryResultCacheKey
+{
+    private final String fingerprint;
+    private final Map<String, String> dataVersions;
+
+    public QueryResultCacheKey(String fingerprint, Map<String, String> dataVersions)
+    {
+        this.fingerprint = checkNotNull(fingerprint, "fingerprint is null");
+        this.dataVersions = ImmutableMap.copyOf(checkNotNull(dataVersions, "dataVersions is null"));
+    }
+
+    public String getFingerprint()
+    {
+        return fingerprint;
+    }
+
+    public Map<String, String> getDataVersions()
+    {
+        return dataVersions;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        QueryResultCacheKey other = (QueryResultCacheKey) obj;
+        return Objects.equals(this.fingerprint, other.fingerprint) &&
+                Objects.equals(this.dataVersions, other.dataVersions);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(fingerprint, dataVersions);
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("fingerprint", fingerprint)
+                .add("dataVersions", dataVersions)
+                .toString();
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.resultcache;
+
+import com.facebook.presto.block.PagesSerde;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.BlockEncodingSerde;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+import io.airlift.log.Logger;
+import io.airlift.slice.OutputStreamSliceOutput;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Writes the results of a query to a new cache file as they are served to the client.
+ * The results only become visible to other queries once they are committed, and writing
+ * stops silently if they grow beyond the maximum entry size or the file cannot be written.
+ */
+@NotThreadSafe
+public class QueryResultCacheWriter
+{
+    private static final Logger log = Logger.get(QueryResultCacheWriter.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final QueryResultCache cache;
+    private final BlockEncodingSerde blockEncodingSerde;
+    private final QueryResultCacheKey key;
+    private final List<String> fieldNames;
+    private final List<Type> types;
+    private final Path cachePath;
+    private final long maxEntrySizeInBytes;
+
+    private Path file;
+    private OutputStreamSliceOutput output;
+    private boolean done;
+
+    QueryResultCacheWriter(
+            QueryResultCache cache,
+            BlockEncodingSerde blockEncodingSerde,
+            QueryResultCacheKey key,
+            List<String> fieldNames,
+            List<Type> types,
+            Path cachePath,
+            long maxEntrySizeInBytes)
+    {
+        this.cache = checkNotNull(cache, "cache is null");
+        this.blockEncodingSerde = checkNotNull(blockEncodingSerde, "blockEncodingSerde is null");
+        this.key = checkNotNull(key, "key is null");
+        this.fieldNames = ImmutableList.copyOf(checkNotNull(fieldNames, "fieldNames is null"));
+        this.types = ImmutableList.copyOf(checkNotNull(types, "types is null"));
+        this.cachePath = checkNotNull(cachePath, "cachePath is null");
+        this.maxEntrySizeInBytes = maxEntrySizeInBytes;
+    }
+
+    public void append(Page page)
+    {
+        checkNotNull(page, "page is null");
+        if (done) {
+            return;
+        }
+
+        try {
+            if (output == null) {
+                Files.createDirectories(cachePath);
+                file = Files.createTempFile(cachePath, "query", QueryResultCache.FILE_SUFFIX);
+                output = new OutputStreamSliceOutput(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE));
+            }
+            PagesSerde.writePages(blockEncodingSerde, output, page);
+        }
+        catch (IOException | UncheckedIOException e) {
+            log.warn(e, "Failed to write query results to the cache");
+            abort();
+            return;
+        }
+
+        if (output.size() > maxEntrySizeInBytes) {
+            abort();
+        }
+    }
+
+    public void commit()
+    {
+        if (done) {
+            return;
+        }
+        done = true;
+
+        long sizeInBytes = 0;
+        try {
+            if (output == null) {
+                // queries without rows still cache their columns
+                Files.createDirectories(cachePath);
+                file = Files.createTempFile(cachePath, "query", QueryResultCache.FILE_SUFFIX);
+            }
+            else {
+                sizeInBytes = output.size();
+                output.close();
+            }
+        }
+        catch (IOException | UncheckedIOException e) {
+            log.warn(e, "Failed to write query results to the cache");
+            deleteFile();
+            return;
+        }
+
+        cache.put(key, fieldNames, types, file, sizeInBytes);
+    }
+
+    public void abort()
+    {
+        if (done) {
+            return;
+        }
+        done = true;
+
+        if (output != null) {
+            try {
+                output.close();
+            }
+            catch (IOException | UncheckedIOException e) {
+                log.warn(e, "Failed to close query result cache file %s", file);
+            }
+        }
+        deleteFile();
+    }
+
+    public boolean isDone()
+    {
+        return done;
+    }
+
+    private void deleteFile()
+    {
+        checkState(done, "writer is not done");
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        }
+        catch (IOException e) {
+            log.warn(e, "Failed to delete query result cache file %s", file);
+        }
+    }
+}
@@ -187,7 +187,7 @@ public class HttpRemoteTask
 
             List<BufferInfo> bufferStates = outputBuffers.getBuffers()
                     .keySet().stream()
-                    .map(outputId -> new BufferInfo(outputId, false, 0, 0))
+                    .map(outputId -> new BufferInfo(outputId, false, 0, 0, 0, 0, new Duration(0, TimeUnit.MILLISECONDS)))
                     .collect(toImmutableList());
 
             TaskStats taskStats = new TaskContext(taskId, executor, session).getTaskStats();
@@ -199,7 +199,7 @@ public class HttpRemoteTask
                     TaskState.PLANNED,
                     location,
                     DateTime.now(),
-                    new SharedBufferInfo(BufferState.OPEN, 0, 0, bufferStates),
+                    new SharedBufferInfo(BufferState.OPEN, 0, 0, 0, 0, new Duration(0, TimeUnit.MILLISECONDS), bufferStates),
                     ImmutableSet.<PlanNodeId>of(),
                     taskStats,
                     ImmutableList.<ExecutionFailureInfo>of()));
@@ -282,15 +282,22 @@ public class HttpRemoteTask
     @Override
     public synchronized int getPartitionedSplitCount()
     {
-        int splitCount = pendingSplits.get(planFragment.getPartitionedSource()).size();
-        return splitCount + taskInfo.get().getStats().getQueuedPartitionedDrivers() + taskInfo.get().getStats().getRunningPartitionedDrivers();
+        return getPendingPartitionedSplitCount() + taskInfo.get().getStats().getQueuedPartitionedDrivers() + taskInfo.get().getStats().getRunningPartitionedDrivers();
     }
 
     @Override
     public synchronized int getQueuedPartitionedSplitCount()
     {
-        int splitCount = pendingSplits.get(planFragment.getPartitionedSource()).size();
-        return splitCount + taskInfo.get().getStats().getQueuedPartitionedDrivers();
+        return getPendingPartitionedSplitCount() + taskInfo.get().getStats().getQueuedPartitionedDrivers();
+    }
+
+    private int getPendingPartitionedSplitCount()
+    {
+        int splitCount = 0;
+        for (PlanNodeId partitionedSource : planFragment.getPartitionedSources()) {
+            splitCount += pendingSplits.get(partitionedSource).size();
+        }
+        return splitCount;
     }
 
     @Override
@@ -410,8 +417,7 @@ public class HttpRemoteTask
 
     private synchronized List<TaskSource> getSources()
     {
-        return Stream.concat(Stream.of(planFragment.getPartitionedSourceNode()), planFragment.getRemoteSourceNodes().stream())
-                .filter(Objects::nonNull)
+        return Stream.concat(planFragment.getPartitionedSourceNodes().stream(), planFragment.getRemoteSourceNodes().stream())
                 .map(PlanNode::getId)
                 .map(this::getSource)
                 .filter(Objects::nonNull)
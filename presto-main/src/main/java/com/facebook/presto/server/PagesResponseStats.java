@@ -0,0 +1,57 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.server;
+
+import com.facebook.presto.block.PageCompressionStats;
+import org.weakref.jmx.Managed;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sizes and compression cost of the compressed pages sent to exchange clients by this worker.
+ */
+@ThreadSafe
+public final class PagesResponseStats
+{
+    private final AtomicLong compressedBytesSent = new AtomicLong();
+    private final AtomicLong uncompressedBytesSent = new AtomicLong();
+    private final AtomicLong compressionCpuNanos = new AtomicLong();
+
+    public void add(PageCompressionStats stats)
+    {
+        compressedBytesSent.addAndGet(stats.getCompressedBytes());
+        uncompressedBytesSent.addAndGet(stats.getUncompressedBytes());
+        compressionCpuNanos.addAndGet(stats.getCompressionCpuNanos());
+    }
+
+    @Managed(description = "Size of the compressed pages sent, as sent over the network")
+    public long getCompressedBytesSent()
+    {
+        return compressedBytesSent.get();
+    }
+
+    @Managed(description = "Size of the compressed pages sent, before compression")
+    public long getUncompressedBytesSent()
+    {
+        return uncompressedBytesSent.get();
+    }
+
+    @Managed(description = "CPU time spent compressing pages")
+    public long getCompressionCpuNanos()
+    {
+        return compressionCpuNanos.get();
+    }
+}
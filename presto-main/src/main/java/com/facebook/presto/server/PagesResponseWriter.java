@@ -13,7 +13,9 @@
  */
 package com.facebook.presto.server;
 
+import com.facebook.presto.block.PageCompressionStats;
 import com.facebook.presto.block.PagesSerde;
+import com.facebook.presto.operator.ExchangeClientConfig;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.block.BlockEncodingSerde;
 import com.google.common.base.Throwables;
@@ -37,6 +39,9 @@ import java.lang.reflect.Type;
 import java.util.List;
 
 import static com.facebook.presto.PrestoMediaTypes.PRESTO_PAGES;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_PAGE_COMPRESSION;
+import static com.facebook.presto.operator.HttpPageBufferClient.PAGE_COMPRESSION_SNAPPY;
+import static com.google.common.base.Preconditions.checkNotNull;
 
 @Provider
 @Produces(PRESTO_PAGES)
@@ -56,11 +61,20 @@ public class PagesResponseWriter
     }
 
     private final BlockEncodingSerde blockEncodingSerde;
+    private final boolean compressionEnabled;
+    private final PagesResponseStats stats;
 
     @Inject
-    public PagesResponseWriter(BlockEncodingSerde blockEncodingSerde)
+    public PagesResponseWriter(BlockEncodingSerde blockEncodingSerde, ExchangeClientConfig exchangeClientConfig, PagesResponseStats stats)
     {
-        this.blockEncodingSerde = blockEncodingSerde;
+        this(blockEncodingSerde, checkNotNull(exchangeClientConfig, "exchangeClientConfig is null").isCompressionEnabled(), stats);
+    }
+
+    public PagesResponseWriter(BlockEncodingSerde blockEncodingSerde, boolean compressionEnabled, PagesResponseStats stats)
+    {
+        this.blockEncodingSerde = checkNotNull(blockEncodingSerde, "blockEncodingSerde is null");
+        this.compressionEnabled = compressionEnabled;
+        this.stats = checkNotNull(stats, "stats is null");
     }
 
     @Override
@@ -88,7 +102,19 @@ public class PagesResponseWriter
             throws IOException, WebApplicationException
     {
         try {
-            PagesSerde.writePages(blockEncodingSerde, new OutputStreamSliceOutput(output), pages);
+            if (compressionEnabled) {
+                httpHeaders.putSingle(PRESTO_PAGE_COMPRESSION, PAGE_COMPRESSION_SNAPPY);
+                PageCompressionStats compressionStats = new PageCompressionStats();
+                try {
+                    PagesSerde.writeCompressedPages(blockEncodingSerde, new OutputStreamSliceOutput(output), pages, compressionStats);
+                }
+                finally {
+                    stats.add(compressionStats);
+                }
+            }
+            else {
+                PagesSerde.writePages(blockEncodingSerde, new OutputStreamSliceOutput(output), pages);
+            }
         }
         catch (RuntimeIOException e) {
             // EOF exception occurs when the client disconnects while writing data
@@ -29,6 +29,8 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -38,6 +40,7 @@ import java.util.Map.Entry;
 
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_CATALOG;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_LANGUAGE;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_PREPARED_STATEMENT;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_SCHEMA;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_SESSION;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_SOURCE;
@@ -46,6 +49,7 @@ import static com.facebook.presto.client.PrestoHeaders.PRESTO_USER;
 import static com.google.common.base.Strings.isNullOrEmpty;
 import static com.google.common.net.HttpHeaders.USER_AGENT;
 import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 final class ResourceUtil
 {
@@ -85,9 +89,31 @@ final class ResourceUtil
             }
         }
 
+        // parse prepared statements
+        for (String preparedStatementHeader : Collections.list(servletRequest.getHeaders(PRESTO_PREPARED_STATEMENT))) {
+            parsePreparedStatementHeader(preparedStatementHeader, sessionBuilder);
+        }
+
         return sessionBuilder.build();
     }
 
+    private static void parsePreparedStatementHeader(String header, SessionBuilder sessionBuilder)
+    {
+        List<String> nameValue = Splitter.on('=').limit(2).trimResults().splitToList(header);
+        assertRequest(nameValue.size() == 2, "Invalid %s header", PRESTO_PREPARED_STATEMENT);
+        assertRequest(!nameValue.get(0).isEmpty(), "Invalid %s header", PRESTO_PREPARED_STATEMENT);
+
+        String sql;
+        try {
+            sql = URLDecoder.decode(nameValue.get(1), UTF_8.name());
+        }
+        catch (IllegalArgumentException | UnsupportedEncodingException e) {
+            throw badRequest(format("Invalid %s header: %s", PRESTO_PREPARED_STATEMENT, e.getMessage()));
+        }
+
+        sessionBuilder.addPreparedStatement(nameValue.get(0), sql);
+    }
+
     private static void parseSessionHeader(String header, Multimap<String, Entry<String, String>> sessionPropertiesByCatalog)
     {
         List<String> nameValue = Splitter.on('=').limit(2).splitToList(header);
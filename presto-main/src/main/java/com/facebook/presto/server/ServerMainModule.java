@@ -34,7 +34,13 @@ import com.facebook.presto.execution.TaskManager;
 import com.facebook.presto.execution.TaskManagerConfig;
 import com.facebook.presto.failureDetector.FailureDetector;
 import com.facebook.presto.failureDetector.FailureDetectorModule;
+import com.facebook.presto.fragmentcache.FragmentFingerprinter;
+import com.facebook.presto.fragmentcache.FragmentResultCache;
+import com.facebook.presto.fragmentcache.FragmentResultCacheConfig;
 import com.facebook.presto.index.IndexManager;
+import com.facebook.presto.memory.LocalMemoryManager;
+import com.facebook.presto.memory.MemoryResource;
+import com.facebook.presto.memory.NodeMemoryConfig;
 import com.facebook.presto.metadata.CatalogManager;
 import com.facebook.presto.metadata.CatalogManagerConfig;
 import com.facebook.presto.metadata.HandleJsonModule;
@@ -46,6 +52,7 @@ import com.facebook.presto.operator.ExchangeClientConfig;
 import com.facebook.presto.operator.ExchangeClientFactory;
 import com.facebook.presto.operator.ForExchange;
 import com.facebook.presto.operator.ForScheduler;
+import com.facebook.presto.operator.PagesIndex;
 import com.facebook.presto.operator.index.IndexJoinLookupStats;
 import com.facebook.presto.spi.ConnectorFactory;
 import com.facebook.presto.spi.ConnectorPageSinkProvider;
@@ -55,11 +62,16 @@ import com.facebook.presto.spi.PageSorter;
 import com.facebook.presto.spi.block.BlockEncodingFactory;
 import com.facebook.presto.spi.block.BlockEncodingSerde;
 import com.facebook.presto.spi.block.FixedWidthBlockEncoding;
+import com.facebook.presto.spi.block.DictionaryBlockEncoding;
 import com.facebook.presto.spi.block.LazySliceArrayBlockEncoding;
+import com.facebook.presto.spi.block.RunLengthBlockEncoding;
 import com.facebook.presto.spi.block.SliceArrayBlockEncoding;
 import com.facebook.presto.spi.block.VariableWidthBlockEncoding;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.spi.type.TypeManager;
+import com.facebook.presto.spiller.FileSpillerFactory;
+import com.facebook.presto.spiller.SpillerConfig;
+import com.facebook.presto.spiller.SpillerFactory;
 import com.facebook.presto.split.PageSinkManager;
 import com.facebook.presto.split.PageSinkProvider;
 import com.facebook.presto.split.PageSourceManager;
@@ -68,12 +80,15 @@ import com.facebook.presto.sql.Serialization.ExpressionDeserializer;
 import com.facebook.presto.sql.Serialization.ExpressionSerializer;
 import com.facebook.presto.sql.Serialization.FunctionCallDeserializer;
 import com.facebook.presto.sql.gen.ExpressionCompiler;
+import com.facebook.presto.sql.gen.JoinCompiler;
+import com.facebook.presto.sql.gen.OrderingCompiler;
 import com.facebook.presto.sql.parser.SqlParser;
 import com.facebook.presto.sql.parser.SqlParserOptions;
 import com.facebook.presto.sql.planner.CompilerConfig;
 import com.facebook.presto.sql.planner.LocalExecutionPlanner;
 import com.facebook.presto.sql.planner.PlanOptimizersFactory;
 import com.facebook.presto.sql.planner.optimizations.PlanOptimizer;
+import com.facebook.presto.sql.planner.plan.PlanNode;
 import com.facebook.presto.sql.tree.Expression;
 import com.facebook.presto.sql.tree.FunctionCall;
 import com.facebook.presto.type.TypeDeserializer;
@@ -151,14 +166,33 @@ public class ServerMainModule
         bindConfig(binder).to(CompilerConfig.class);
         binder.bind(ExpressionCompiler.class).in(Scopes.SINGLETON);
         newExporter(binder).export(ExpressionCompiler.class).withGeneratedName();
+        binder.bind(JoinCompiler.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(JoinCompiler.class).withGeneratedName();
+        binder.bind(OrderingCompiler.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(OrderingCompiler.class).withGeneratedName();
+        binder.bind(PagesIndex.Factory.class).to(PagesIndex.DefaultFactory.class).in(Scopes.SINGLETON);
         bindConfig(binder).to(TaskManagerConfig.class);
+        bindConfig(binder).to(NodeMemoryConfig.class);
+        binder.bind(LocalMemoryManager.class).in(Scopes.SINGLETON);
+        jaxrsBinder(binder).bind(MemoryResource.class);
+        bindConfig(binder).to(SpillerConfig.class);
+        binder.bind(SpillerFactory.class).to(FileSpillerFactory.class).in(Scopes.SINGLETON);
         binder.bind(IndexJoinLookupStats.class).in(Scopes.SINGLETON);
         newExporter(binder).export(IndexJoinLookupStats.class).withGeneratedName();
         binder.bind(AsyncHttpExecutionMBean.class).in(Scopes.SINGLETON);
         newExporter(binder).export(AsyncHttpExecutionMBean.class).withGeneratedName();
 
+        // fragment result cache
+        binder.bind(FragmentResultCache.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(FragmentResultCache.class).withGeneratedName();
+        bindConfig(binder).to(FragmentResultCacheConfig.class);
+        binder.bind(FragmentFingerprinter.class).in(Scopes.SINGLETON);
+        jsonCodecBinder(binder).bindJsonCodec(PlanNode.class);
+
         jsonCodecBinder(binder).bindJsonCodec(TaskInfo.class);
         jaxrsBinder(binder).bind(PagesResponseWriter.class);
+        binder.bind(PagesResponseStats.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(PagesResponseStats.class).withGeneratedName();
 
         // exchange client
         binder.bind(new TypeLiteral<Supplier<ExchangeClient>>() {}).to(ExchangeClientFactory.class).in(Scopes.SINGLETON);
@@ -270,6 +304,8 @@ public class ServerMainModule
         blockEncodingFactoryBinder.addBinding().toInstance(FixedWidthBlockEncoding.FACTORY);
         blockEncodingFactoryBinder.addBinding().toInstance(SliceArrayBlockEncoding.FACTORY);
         blockEncodingFactoryBinder.addBinding().toInstance(LazySliceArrayBlockEncoding.FACTORY);
+        blockEncodingFactoryBinder.addBinding().toInstance(DictionaryBlockEncoding.FACTORY);
+        blockEncodingFactoryBinder.addBinding().toInstance(RunLengthBlockEncoding.FACTORY);
 
         // thread visualizer
         jaxrsBinder(binder).bind(ThreadResource.class);
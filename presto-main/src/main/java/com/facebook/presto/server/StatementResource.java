@@ -33,6 +33,10 @@ import com.facebook.presto.execution.StageState;
 import com.facebook.presto.execution.TaskId;
 import com.facebook.presto.execution.TaskInfo;
 import com.facebook.presto.operator.ExchangeClient;
+import com.facebook.presto.resultcache.CachedQueryResult;
+import com.facebook.presto.resultcache.QueryResultCache;
+import com.facebook.presto.resultcache.QueryResultCacheKey;
+import com.facebook.presto.resultcache.QueryResultCacheWriter;
 import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.block.Block;
@@ -73,7 +77,9 @@ import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.UriInfo;
 
 import java.io.Closeable;
+import java.io.UnsupportedEncodingException;
 import java.net.URI;
+import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -87,7 +93,9 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicLong;
 
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_ADDED_PREPARE;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_CLEAR_SESSION;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_DEALLOCATED_PREPARE;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_SET_SESSION;
 import static com.facebook.presto.server.ResourceUtil.assertRequest;
 import static com.facebook.presto.server.ResourceUtil.createSessionForRequest;
@@ -99,6 +107,7 @@ import static io.airlift.concurrent.Threads.threadsNamed;
 import static io.airlift.http.client.HttpUriBuilder.uriBuilderFrom;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
 import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
@@ -114,15 +123,17 @@ public class StatementResource
 
     private final QueryManager queryManager;
     private final Supplier<ExchangeClient> exchangeClientSupplier;
+    private final QueryResultCache resultCache;
 
     private final ConcurrentMap<QueryId, Query> queries = new ConcurrentHashMap<>();
     private final ScheduledExecutorService queryPurger = newSingleThreadScheduledExecutor(threadsNamed("query-purger"));
 
     @Inject
-    public StatementResource(QueryManager queryManager, Supplier<ExchangeClient> exchangeClientSupplier)
+    public StatementResource(QueryManager queryManager, Supplier<ExchangeClient> exchangeClientSupplier, QueryResultCache resultCache)
     {
         this.queryManager = checkNotNull(queryManager, "queryManager is null");
         this.exchangeClientSupplier = checkNotNull(exchangeClientSupplier, "exchangeClientSupplier is null");
+        this.resultCache = checkNotNull(resultCache, "resultCache is null");
 
         queryPurger.scheduleWithFixedDelay(new PurgeQueriesRunnable(queries, queryManager), 200, 200, MILLISECONDS);
     }
@@ -146,7 +157,7 @@ public class StatementResource
         Session session = createSessionForRequest(servletRequest);
 
         ExchangeClient exchangeClient = exchangeClientSupplier.get();
-        Query query = new Query(session, statement, queryManager, exchangeClient);
+        Query query = new Query(session, statement, queryManager, exchangeClient, resultCache);
         queries.put(query.getQueryId(), query);
 
         return getQueryResults(query, Optional.empty(), uriInfo, new Duration(1, MILLISECONDS));
@@ -192,9 +203,27 @@ public class StatementResource
         query.getResetSessionProperties().stream()
                 .forEach(name -> response.header(PRESTO_CLEAR_SESSION, name));
 
+        // add added prepared statements, url encoded since the statement text may contain any character
+        query.getAddedPreparedStatements().entrySet().stream()
+                .forEach(entry -> response.header(PRESTO_ADDED_PREPARE, entry.getKey() + '=' + urlEncode(entry.getValue())));
+
+        // add deallocated prepared statements
+        query.getDeallocatedPreparedStatements().stream()
+                .forEach(name -> response.header(PRESTO_DEALLOCATED_PREPARE, name));
+
         return response.build();
     }
 
+    private static String urlEncode(String value)
+    {
+        try {
+            return URLEncoder.encode(value, UTF_8.name());
+        }
+        catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
     @DELETE
     @Path("{queryId}/{token}")
     @Produces(MediaType.APPLICATION_JSON)
@@ -216,6 +245,7 @@ public class StatementResource
         private final QueryManager queryManager;
         private final QueryId queryId;
         private final ExchangeClient exchangeClient;
+        private final QueryResultCache resultCache;
 
         private final AtomicLong resultId = new AtomicLong();
         private final Session session;
@@ -235,21 +265,36 @@ public class StatementResource
         @GuardedBy("this")
         private Set<String> resetSessionProperties;
 
+        @GuardedBy("this")
+        private Map<String, String> addedPreparedStatements;
+
+        @GuardedBy("this")
+        private Set<String> deallocatedPreparedStatements;
+
         @GuardedBy("this")
         private Long updateCount;
 
+        @GuardedBy("this")
+        private CachedQueryResult cachedResult;
+
+        @GuardedBy("this")
+        private QueryResultCacheWriter resultCacheWriter;
+
         public Query(Session session,
                 String query,
                 QueryManager queryManager,
-                ExchangeClient exchangeClient)
+                ExchangeClient exchangeClient,
+                QueryResultCache resultCache)
         {
             checkNotNull(session, "session is null");
             checkNotNull(query, "query is null");
             checkNotNull(queryManager, "queryManager is null");
             checkNotNull(exchangeClient, "exchangeClient is null");
+            checkNotNull(resultCache, "resultCache is null");
 
             this.session = session;
             this.queryManager = queryManager;
+            this.resultCache = resultCache;
 
             QueryInfo queryInfo = queryManager.createQuery(session, query);
             queryId = queryInfo.getQueryId();
@@ -262,6 +307,15 @@ public class StatementResource
             queryManager.cancelQuery(queryId);
             // frees buffers in the client
             exchangeClient.close();
+
+            synchronized (this) {
+                if (resultCacheWriter != null) {
+                    resultCacheWriter.abort();
+                }
+                if (cachedResult != null) {
+                    cachedResult.close();
+                }
+            }
         }
 
         public QueryId getQueryId()
@@ -279,6 +333,16 @@ public class StatementResource
             return resetSessionProperties;
         }
 
+        public synchronized Map<String, String> getAddedPreparedStatements()
+        {
+            return addedPreparedStatements;
+        }
+
+        public synchronized Set<String> getDeallocatedPreparedStatements()
+        {
+            return deallocatedPreparedStatements;
+        }
+
         public synchronized QueryResults getResults(long token, UriInfo uriInfo, Duration maxWaitTime)
                 throws InterruptedException
         {
@@ -333,7 +397,7 @@ public class StatementResource
                 if (queryInfo.getState() != QueryState.FINISHED) {
                     exchangeClient.close();
                 }
-                else if (queryInfo.getOutputStage() == null) {
+                else if (queryInfo.getOutputStage() == null && cachedResult == null) {
                     // For simple executions (e.g. drop table), there will never be an output stage,
                     // so close the exchange as soon as the query is done.
                     exchangeClient.close();
@@ -344,6 +408,16 @@ public class StatementResource
                 }
             }
 
+            // the results are complete once the query finished and all of its output was received
+            if (resultCacheWriter != null && queryInfo.getState().isDone()) {
+                if (queryInfo.getState() == QueryState.FINISHED && exchangeClient.isClosed()) {
+                    resultCacheWriter.commit();
+                }
+                else if (queryInfo.getState() != QueryState.FINISHED) {
+                    resultCacheWriter.abort();
+                }
+            }
+
             // only return a next if the query is not done or there is more data to send (due to buffering)
             URI nextResultsUri = null;
             if ((!queryInfo.getState().isDone()) || (!exchangeClient.isClosed())) {
@@ -353,6 +427,8 @@ public class StatementResource
             // update setSessionProperties
             setSessionProperties = queryInfo.getSetSessionProperties();
             resetSessionProperties = queryInfo.getResetSessionProperties();
+            addedPreparedStatements = queryInfo.getAddedPreparedStatements();
+            deallocatedPreparedStatements = queryInfo.getDeallocatedPreparedStatements();
 
             // first time through, self is null
             QueryResults queryResults = new QueryResults(
@@ -388,17 +464,28 @@ public class StatementResource
                 queryInfo = queryManager.getQueryInfo(queryId);
             }
 
-            // if query did not finish starting or does not have output, just return
-            if (!isQueryStarted(queryInfo) || queryInfo.getOutputStage() == null) {
+            // if query did not finish starting, just return
+            if (!isQueryStarted(queryInfo)) {
                 return null;
             }
 
-            if (columns == null) {
-                columns = createColumnsList(queryInfo);
+            // queries answered from the result cache have no output stage
+            if (queryInfo.getOutputStage() == null) {
+                return getCachedData();
             }
 
             List<Type> types = queryInfo.getOutputStage().getTypes();
 
+            if (columns == null) {
+                columns = createColumnsList(queryInfo.getFieldNames(), types);
+
+                // cache the results as they are returned, if the query allows it
+                Optional<QueryResultCacheKey> resultCacheKey = queryManager.getResultCacheKey(queryId);
+                if (resultCacheKey.isPresent()) {
+                    resultCacheWriter = resultCache.createWriter(resultCacheKey.get(), queryInfo.getFieldNames(), types);
+                }
+            }
+
             updateExchangeClient(queryInfo.getOutputStage());
 
             ImmutableList.Builder<RowIterable> pages = ImmutableList.builder();
@@ -411,6 +498,9 @@ public class StatementResource
                 }
                 bytes += page.getSizeInBytes();
                 pages.add(new RowIterable(session.toConnectorSession(), types, page));
+                if (resultCacheWriter != null) {
+                    resultCacheWriter.append(page);
+                }
 
                 // only wait on first call
                 maxWait = new Duration(0, MILLISECONDS);
@@ -423,6 +513,40 @@ public class StatementResource
             return Iterables.concat(pages.build());
         }
 
+        private synchronized Iterable<List<Object>> getCachedData()
+        {
+            if (cachedResult == null) {
+                Optional<CachedQueryResult> result = queryManager.getCachedResult(queryId);
+                if (!result.isPresent()) {
+                    // the query does not have output
+                    return null;
+                }
+                cachedResult = result.get();
+                columns = createColumnsList(cachedResult.getFieldNames(), cachedResult.getTypes());
+            }
+
+            ImmutableList.Builder<RowIterable> pages = ImmutableList.builder();
+            long bytes = 0;
+            Iterator<Page> cachedPages = cachedResult.getPages();
+            while (bytes < DESIRED_RESULT_BYTES && cachedPages.hasNext()) {
+                Page page = cachedPages.next();
+                bytes += page.getSizeInBytes();
+                pages.add(new RowIterable(session.toConnectorSession(), cachedResult.getTypes(), page));
+            }
+
+            // the exchange client is not used, so closing it marks the end of the results
+            if (!cachedPages.hasNext()) {
+                cachedResult.close();
+                exchangeClient.close();
+            }
+
+            if (bytes == 0) {
+                return null;
+            }
+
+            return Iterables.concat(pages.build());
+        }
+
         private static boolean isQueryStarted(QueryInfo queryInfo)
         {
             QueryState state = queryInfo.getState();
@@ -480,15 +604,8 @@ public class StatementResource
             return uriInfo.getBaseUriBuilder().replacePath("/v1/statement").path(queryId.toString()).path(String.valueOf(resultId.incrementAndGet())).replaceQuery("").build();
         }
 
-        private static List<Column> createColumnsList(QueryInfo queryInfo)
+        private static List<Column> createColumnsList(List<String> names, List<Type> types)
         {
-            checkNotNull(queryInfo, "queryInfo is null");
-            StageInfo outputStage = queryInfo.getOutputStage();
-            checkNotNull(outputStage, "outputStage is null");
-
-            List<String> names = queryInfo.getFieldNames();
-            List<Type> types = outputStage.getTypes();
-
             checkArgument(names.size() == types.size(), "names and types size mismatch");
 
             ImmutableList.Builder<Column> list = ImmutableList.builder();
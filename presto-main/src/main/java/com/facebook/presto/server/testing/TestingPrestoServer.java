@@ -15,9 +15,11 @@ package com.facebook.presto.server.testing;
 
 import com.facebook.presto.connector.ConnectorManager;
 import com.facebook.presto.execution.QueryManager;
+import com.facebook.presto.fragmentcache.FragmentResultCache;
 import com.facebook.presto.metadata.AllNodes;
 import com.facebook.presto.metadata.InternalNodeManager;
 import com.facebook.presto.metadata.Metadata;
+import com.facebook.presto.plancache.PlanCache;
 import com.facebook.presto.server.PluginManager;
 import com.facebook.presto.server.ServerMainModule;
 import com.facebook.presto.spi.Node;
@@ -62,6 +64,7 @@ import java.util.Set;
 
 import static com.facebook.presto.server.testing.FileUtils.deleteRecursively;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Strings.nullToEmpty;
 import static io.airlift.discovery.client.ServiceAnnouncement.serviceAnnouncement;
 
@@ -79,6 +82,8 @@ public class TestingPrestoServer
     private final InternalNodeManager nodeManager;
     private final ServiceSelectorManager serviceSelectorManager;
     private final Announcer announcer;
+    private final FragmentResultCache fragmentResultCache;
+    private final PlanCache planCache;
     private QueryManager queryManager;
 
     public TestingPrestoServer()
@@ -102,7 +107,8 @@ public class TestingPrestoServer
                 .putAll(properties)
                 .put("coordinator", String.valueOf(coordinator))
                 .put("presto.version", "testversion")
-                .put("analyzer.experimental-syntax-enabled", "true");
+                .put("analyzer.experimental-syntax-enabled", "true")
+                .put("query.max-memory-per-node", "512MB");
 
         if (coordinator) {
             // TODO: enable failure detector
@@ -160,6 +166,8 @@ public class TestingPrestoServer
         nodeManager = injector.getInstance(InternalNodeManager.class);
         serviceSelectorManager = injector.getInstance(ServiceSelectorManager.class);
         announcer = injector.getInstance(Announcer.class);
+        fragmentResultCache = injector.getInstance(FragmentResultCache.class);
+        planCache = coordinator ? injector.getInstance(PlanCache.class) : null;
 
         announcer.forceAnnounce();
 
@@ -223,6 +231,17 @@ public class TestingPrestoServer
         return HostAndPort.fromParts(getBaseUrl().getHost(), getBaseUrl().getPort());
     }
 
+    public FragmentResultCache getFragmentResultCache()
+    {
+        return fragmentResultCache;
+    }
+
+    public PlanCache getPlanCache()
+    {
+        checkState(planCache != null, "not a coordinator");
+        return planCache;
+    }
+
     public Metadata getMetadata()
     {
         return metadata;
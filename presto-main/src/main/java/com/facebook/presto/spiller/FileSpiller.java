@@ -0,0 +1,139 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.spiller;
+
+import com.facebook.presto.block.PagesSerde;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.spi.block.BlockEncodingSerde;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.InputStreamSliceInput;
+import io.airlift.slice.OutputStreamSliceOutput;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static com.facebook.presto.spi.StandardErrorCode.INTERNAL_ERROR;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Spills pages to a single temporary file using the same serialization as the exchange.
+ * The file is created lazily on the first spill and deleted when the spiller is closed.
+ */
+@NotThreadSafe
+public class FileSpiller
+        implements Spiller
+{
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final BlockEncodingSerde blockEncodingSerde;
+    private final Path spillPath;
+    private final List<Closeable> openStreams = new ArrayList<>();
+
+    private Path file;
+    private OutputStreamSliceOutput output;
+    private long spilledBytes;
+    private boolean readStarted;
+    private boolean closed;
+
+    public FileSpiller(BlockEncodingSerde blockEncodingSerde, Path spillPath)
+    {
+        this.blockEncodingSerde = checkNotNull(blockEncodingSerde, "blockEncodingSerde is null");
+        this.spillPath = checkNotNull(spillPath, "spillPath is null");
+    }
+
+    @Override
+    public void spill(Iterator<Page> pageIterator)
+    {
+        checkNotNull(pageIterator, "pageIterator is null");
+        checkState(!closed, "spiller is closed");
+        checkState(!readStarted, "spilled pages are already being read");
+
+        try {
+            if (output == null) {
+                Files.createDirectories(spillPath);
+                file = Files.createTempFile(spillPath, "spill", ".bin");
+                output = new OutputStreamSliceOutput(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE));
+            }
+            long start = output.size();
+            PagesSerde.writePages(blockEncodingSerde, output, pageIterator);
+            spilledBytes += output.size() - start;
+        }
+        catch (IOException | UncheckedIOException e) {
+            throw new PrestoException(INTERNAL_ERROR, "Failed to spill pages", e);
+        }
+    }
+
+    @Override
+    public Iterator<Page> getSpilledPages()
+    {
+        checkState(!closed, "spiller is closed");
+        readStarted = true;
+
+        if (output == null) {
+            return ImmutableList.<Page>of().iterator();
+        }
+
+        try {
+            output.flush();
+            InputStreamSliceInput input = new InputStreamSliceInput(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+            openStreams.add(input);
+            return PagesSerde.readPages(blockEncodingSerde, input);
+        }
+        catch (IOException e) {
+            throw new PrestoException(INTERNAL_ERROR, "Failed to read spilled pages", e);
+        }
+    }
+
+    @Override
+    public long getSpilledBytes()
+    {
+        return spilledBytes;
+    }
+
+    @Override
+    public void close()
+    {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            for (Closeable stream : openStreams) {
+                stream.close();
+            }
+            if (output != null) {
+                output.close();
+            }
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+        }
+        catch (IOException e) {
+            throw new PrestoException(INTERNAL_ERROR, "Failed to delete spill file", e);
+        }
+    }
+}
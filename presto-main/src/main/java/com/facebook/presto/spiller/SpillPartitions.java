@@ -0,0 +1,37 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.spiller;
+
+import static it.unimi.dsi.fastutil.HashCommon.murmurHash3;
+
+/**
+ * Hash partitioning of spilled rows. A spilled partition that does not fit in memory
+ * is split again at the next level, which mixes the hash with a different seed so the
+ * rows of the partition spread over all partitions of that level.
+ */
+public final class SpillPartitions
+{
+    // a partition can only stay too large after this many splits if most of its rows share the same hash
+    public static final int MAX_SPLIT_LEVEL = 8;
+
+    private SpillPartitions()
+    {
+    }
+
+    public static int getPartition(int rawHash, int level, int partitionCount)
+    {
+        int hash = level == 0 ? rawHash : murmurHash3(rawHash ^ level);
+        return (hash & Integer.MAX_VALUE) % partitionCount;
+    }
+}
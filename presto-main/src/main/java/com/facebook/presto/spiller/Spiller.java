@@ -0,0 +1,42 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.spiller;
+
+import com.facebook.presto.spi.Page;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+public interface Spiller
+        extends Closeable
+{
+    /**
+     * Appends the pages to the spilled data of this spiller.
+     */
+    void spill(Iterator<Page> pageIterator);
+
+    /**
+     * Returns an iterator over all pages spilled so far, in the order they were spilled.
+     * No more pages may be spilled after this method is called.
+     */
+    Iterator<Page> getSpilledPages();
+
+    long getSpilledBytes();
+
+    /**
+     * Releases all resources, including the spilled data on disk.
+     */
+    @Override
+    void close();
+}
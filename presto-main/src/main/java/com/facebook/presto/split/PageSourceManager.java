@@ -18,6 +18,7 @@ import com.facebook.presto.metadata.Split;
 import com.facebook.presto.spi.ConnectorColumnHandle;
 import com.facebook.presto.spi.ConnectorPageSource;
 import com.facebook.presto.spi.ConnectorPageSourceProvider;
+import com.facebook.presto.spi.TupleDomain;
 import com.google.common.collect.Lists;
 
 import java.util.List;
@@ -48,6 +49,18 @@ public class PageSourceManager
         return getPageSourceProvider(split).createPageSource(split.getConnectorSplit(), handles);
     }
 
+    @Override
+    public ConnectorPageSource createPageSource(Split split, List<ColumnHandle> columns, TupleDomain<ColumnHandle> dynamicFilter)
+    {
+        checkNotNull(split, "split is null");
+        checkNotNull(columns, "columns is null");
+        checkNotNull(dynamicFilter, "dynamicFilter is null");
+
+        List<ConnectorColumnHandle> handles = Lists.transform(columns, ColumnHandle::getConnectorHandle);
+
+        return getPageSourceProvider(split).createPageSource(split.getConnectorSplit(), handles, dynamicFilter.transform(ColumnHandle::getConnectorHandle));
+    }
+
     private ConnectorPageSourceProvider getPageSourceProvider(Split split)
     {
         ConnectorPageSourceProvider provider = pageSourceProviders.get(split.getConnectorId());
@@ -37,6 +37,7 @@ import com.facebook.presto.sql.tree.LogicalBinaryExpression;
 import com.facebook.presto.sql.tree.Node;
 import com.facebook.presto.sql.tree.NotExpression;
 import com.facebook.presto.sql.tree.NullIfExpression;
+import com.facebook.presto.sql.tree.Parameter;
 import com.facebook.presto.sql.tree.QualifiedName;
 import com.facebook.presto.sql.tree.QualifiedNameReference;
 import com.facebook.presto.sql.tree.SearchedCaseExpression;
@@ -195,6 +196,12 @@ public class AggregationAnalyzer
             return true;
         }
 
+        @Override
+        protected Boolean visitParameter(Parameter node, Void context)
+        {
+            return true;
+        }
+
         @Override
         protected Boolean visitArithmeticBinary(ArithmeticBinaryExpression node, Void context)
         {
@@ -31,6 +31,7 @@ import com.facebook.presto.sql.tree.SampledRelation;
 import com.facebook.presto.sql.tree.Table;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.SetMultimap;
 
@@ -83,6 +84,9 @@ public class Analysis
     // for insert
     private Optional<TableHandle> insertTarget = Optional.empty();
 
+    // types of the values the parameters of a prepared statement are bound to after analysis
+    private List<Type> parameterTypes = ImmutableList.of();
+
     public Query getQuery()
     {
         return query;
@@ -103,6 +107,16 @@ public class Analysis
         this.updateType = updateType;
     }
 
+    public List<Type> getParameterTypes()
+    {
+        return parameterTypes;
+    }
+
+    public void setParameterTypes(List<Type> parameterTypes)
+    {
+        this.parameterTypes = ImmutableList.copyOf(checkNotNull(parameterTypes, "parameterTypes is null"));
+    }
+
     public void addResolvedNames(Expression expression, Map<QualifiedName, Integer> mappings)
     {
         resolvedNames.put(expression, mappings);
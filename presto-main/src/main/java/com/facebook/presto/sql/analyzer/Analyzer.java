@@ -15,6 +15,7 @@ package com.facebook.presto.sql.analyzer;
 
 import com.facebook.presto.Session;
 import com.facebook.presto.metadata.Metadata;
+import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.sql.parser.SqlParser;
 import com.facebook.presto.sql.tree.Expression;
 import com.facebook.presto.sql.tree.FunctionCall;
@@ -46,8 +47,17 @@ public class Analyzer
     }
 
     public Analysis analyze(Statement statement)
+    {
+        return analyze(statement, ImmutableList.of());
+    }
+
+    /**
+     * Analyzes a prepared statement whose parameters will be bound to values of the given types.
+     */
+    public Analysis analyze(Statement statement, List<Type> parameterTypes)
     {
         Analysis analysis = new Analysis();
+        analysis.setParameterTypes(parameterTypes);
         StatementAnalyzer analyzer = new StatementAnalyzer(analysis, metadata, sqlParser, session, experimentalSyntaxEnabled, queryExplainer);
         TupleDescriptor outputDescriptor = analyzer.process(statement, new AnalysisContext());
         analysis.setOutputDescriptor(outputDescriptor);
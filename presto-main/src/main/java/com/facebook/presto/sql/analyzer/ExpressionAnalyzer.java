@@ -54,6 +54,7 @@ import com.facebook.presto.sql.tree.Node;
 import com.facebook.presto.sql.tree.NotExpression;
 import com.facebook.presto.sql.tree.NullIfExpression;
 import com.facebook.presto.sql.tree.NullLiteral;
+import com.facebook.presto.sql.tree.Parameter;
 import com.facebook.presto.sql.tree.QualifiedName;
 import com.facebook.presto.sql.tree.QualifiedNameReference;
 import com.facebook.presto.sql.tree.Row;
@@ -98,6 +99,7 @@ import static com.facebook.presto.spi.type.TimestampWithTimeZoneType.TIMESTAMP_W
 import static com.facebook.presto.spi.type.TypeSignature.parseTypeSignature;
 import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 import static com.facebook.presto.sql.analyzer.SemanticErrorCode.AMBIGUOUS_ATTRIBUTE;
+import static com.facebook.presto.sql.analyzer.SemanticErrorCode.INVALID_PARAMETER_USAGE;
 import static com.facebook.presto.sql.analyzer.SemanticErrorCode.MISSING_ATTRIBUTE;
 import static com.facebook.presto.sql.analyzer.SemanticErrorCode.MULTIPLE_FIELDS_FROM_SCALAR_SUBQUERY;
 import static com.facebook.presto.sql.analyzer.SemanticErrorCode.NOT_SUPPORTED;
@@ -626,6 +628,19 @@ public class ExpressionAnalyzer
             return UNKNOWN;
         }
 
+        @Override
+        protected Type visitParameter(Parameter node, AnalysisContext context)
+        {
+            List<Type> parameterTypes = analysis.getParameterTypes();
+            if (node.getPosition() >= parameterTypes.size()) {
+                throw new SemanticException(INVALID_PARAMETER_USAGE, node, "Parameters are only allowed in prepared statements");
+            }
+
+            Type type = parameterTypes.get(node.getPosition());
+            expressionTypes.put(node, type);
+            return type;
+        }
+
         @Override
         protected Type visitFunctionCall(FunctionCall node, AnalysisContext context)
         {
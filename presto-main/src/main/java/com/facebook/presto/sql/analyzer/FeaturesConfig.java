@@ -15,6 +15,11 @@ package com.facebook.presto.sql.analyzer;
 
 import io.airlift.configuration.Config;
 import io.airlift.configuration.LegacyConfig;
+import io.airlift.units.DataSize;
+
+import javax.validation.constraints.NotNull;
+
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
 
 public class FeaturesConfig
 {
@@ -23,6 +28,10 @@ public class FeaturesConfig
     private boolean distributedJoinsEnabled;
     private boolean optimizeMetadataQueries;
     private boolean optimizeHashGeneration;
+    private boolean reorderJoins;
+    private boolean automaticJoinDistribution = true;
+    private DataSize broadcastJoinMaxSize = new DataSize(100, MEGABYTE);
+    private boolean colocatedJoinsEnabled;
 
     @LegacyConfig("analyzer.experimental-syntax-enabled")
     @Config("experimental-syntax-enabled")
@@ -84,4 +93,53 @@ public class FeaturesConfig
         this.optimizeHashGeneration = optimizeHashGeneration;
         return this;
     }
+
+    public boolean isReorderJoins()
+    {
+        return reorderJoins;
+    }
+
+    @Config("optimizer.reorder-joins")
+    public FeaturesConfig setReorderJoins(boolean reorderJoins)
+    {
+        this.reorderJoins = reorderJoins;
+        return this;
+    }
+
+    public boolean isAutomaticJoinDistribution()
+    {
+        return automaticJoinDistribution;
+    }
+
+    @Config("optimizer.automatic-join-distribution")
+    public FeaturesConfig setAutomaticJoinDistribution(boolean automaticJoinDistribution)
+    {
+        this.automaticJoinDistribution = automaticJoinDistribution;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getBroadcastJoinMaxSize()
+    {
+        return broadcastJoinMaxSize;
+    }
+
+    @Config("optimizer.broadcast-join-max-size")
+    public FeaturesConfig setBroadcastJoinMaxSize(DataSize broadcastJoinMaxSize)
+    {
+        this.broadcastJoinMaxSize = broadcastJoinMaxSize;
+        return this;
+    }
+
+    public boolean isColocatedJoinsEnabled()
+    {
+        return colocatedJoinsEnabled;
+    }
+
+    @Config("optimizer.colocated-joins-enabled")
+    public FeaturesConfig setColocatedJoinsEnabled(boolean colocatedJoinsEnabled)
+    {
+        this.colocatedJoinsEnabled = colocatedJoinsEnabled;
+        return this;
+    }
 }
@@ -62,5 +62,8 @@ public enum SemanticErrorCode
 
     SAMPLE_PERCENTAGE_OUT_OF_RANGE,
 
-    INVALID_SESSION_PROPERTY
+    INVALID_SESSION_PROPERTY,
+
+    PREPARED_STATEMENT_NOT_FOUND,
+    INVALID_PARAMETER_USAGE
 }
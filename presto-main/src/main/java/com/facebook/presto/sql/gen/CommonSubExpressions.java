@@ -0,0 +1,299 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.gen;
+
+import com.facebook.presto.metadata.FunctionInfo;
+import com.facebook.presto.metadata.FunctionRegistry;
+import com.facebook.presto.sql.relational.CallExpression;
+import com.facebook.presto.sql.relational.Expressions;
+import com.facebook.presto.sql.relational.InputReferenceExpression;
+import com.facebook.presto.sql.relational.RowExpression;
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.facebook.presto.sql.relational.Expressions.call;
+import static com.facebook.presto.sql.relational.Expressions.field;
+import static com.facebook.presto.sql.relational.Signatures.COALESCE;
+import static com.facebook.presto.sql.relational.Signatures.IF;
+import static com.facebook.presto.sql.relational.Signatures.IN;
+import static com.facebook.presto.sql.relational.Signatures.IS_NULL;
+import static com.facebook.presto.sql.relational.Signatures.NULL_IF;
+import static com.facebook.presto.sql.relational.Signatures.SWITCH;
+import static com.facebook.presto.sql.relational.Signatures.TRY_CAST;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The deterministic subexpressions that the filter and the projections of a page processor
+ * would evaluate more than once for a row. Each of them is replaced by a reference to an extra
+ * input channel, which holds the values of the subexpression computed once per row.
+ * <p>
+ * Only subexpressions that are evaluated for every row are shared. Arguments that are evaluated
+ * lazily, like the branches of an IF, the right side of an AND or the arguments of a call that
+ * follow a null argument, are left untouched, so that sharing never evaluates an expression
+ * that the query would not have evaluated.
+ */
+final class CommonSubExpressions
+{
+    private final RowExpression filter;
+    private final List<RowExpression> projections;
+    private final int firstChannel;
+    // the subexpression held by each extra channel, starting at the first channel
+    private final List<RowExpression> expressions;
+    private final boolean[] evaluatedBeforeFilter;
+
+    private CommonSubExpressions(RowExpression filter, List<RowExpression> projections, int firstChannel, List<RowExpression> expressions)
+    {
+        this.filter = checkNotNull(filter, "filter is null");
+        this.projections = ImmutableList.copyOf(checkNotNull(projections, "projections is null"));
+        this.firstChannel = firstChannel;
+        this.expressions = ImmutableList.copyOf(checkNotNull(expressions, "expressions is null"));
+
+        // a subexpression used by the filter, or by a subexpression used by the filter, is computed for every row of a batch
+        this.evaluatedBeforeFilter = new boolean[expressions.size()];
+        for (int i = 0; i < expressions.size(); i++) {
+            int channel = firstChannel + i;
+            evaluatedBeforeFilter[i] = getInputChannels(filter).contains(channel);
+            for (int j = 0; j < i && !evaluatedBeforeFilter[i]; j++) {
+                evaluatedBeforeFilter[i] = evaluatedBeforeFilter[j] && getInputChannels(expressions.get(j)).contains(channel);
+            }
+        }
+    }
+
+    public static CommonSubExpressions extract(RowExpression filter, List<RowExpression> projections, FunctionRegistry registry)
+    {
+        checkNotNull(filter, "filter is null");
+        checkNotNull(projections, "projections is null");
+        checkNotNull(registry, "registry is null");
+
+        int firstChannel = 0;
+        for (RowExpression expression : Expressions.subExpressions(ImmutableList.<RowExpression>builder().add(filter).addAll(projections).build())) {
+            if (expression instanceof InputReferenceExpression) {
+                firstChannel = Math.max(firstChannel, ((InputReferenceExpression) expression).getField() + 1);
+            }
+        }
+
+        List<RowExpression> rewrittenProjections = new ArrayList<>(projections);
+        List<RowExpression> expressions = new ArrayList<>();
+        while (true) {
+            // count the occurrences of each candidate, the roots of the extracted subexpressions are not candidates
+            Map<RowExpression, Integer> occurrences = new LinkedHashMap<>();
+            countOccurrences(filter, registry, occurrences);
+            for (RowExpression projection : rewrittenProjections) {
+                countOccurrences(projection, registry, occurrences);
+            }
+            for (RowExpression expression : expressions) {
+                for (RowExpression argument : getUnconditionalArguments((CallExpression) expression)) {
+                    countOccurrences(argument, registry, occurrences);
+                }
+            }
+
+            // extract the largest repeated subexpression first, the subexpressions it contains may still be shared with other expressions
+            RowExpression largest = null;
+            int largestSize = 0;
+            for (Map.Entry<RowExpression, Integer> entry : occurrences.entrySet()) {
+                int size = Expressions.subExpressions(ImmutableList.of(entry.getKey())).size();
+                if (entry.getValue() > 1 && size > largestSize) {
+                    largest = entry.getKey();
+                    largestSize = size;
+                }
+            }
+            if (largest == null) {
+                break;
+            }
+
+            RowExpression reference = field(firstChannel + expressions.size(), largest.getType());
+            filter = replace(filter, largest, reference);
+            for (int i = 0; i < rewrittenProjections.size(); i++) {
+                rewrittenProjections.set(i, replace(rewrittenProjections.get(i), largest, reference));
+            }
+            for (int i = 0; i < expressions.size(); i++) {
+                expressions.set(i, replaceArguments((CallExpression) expressions.get(i), largest, reference));
+            }
+            expressions.add(largest);
+        }
+
+        return new CommonSubExpressions(filter, rewrittenProjections, firstChannel, expressions);
+    }
+
+    public boolean isEmpty()
+    {
+        return expressions.isEmpty();
+    }
+
+    public RowExpression getFilter()
+    {
+        return filter;
+    }
+
+    public List<RowExpression> getProjections()
+    {
+        return projections;
+    }
+
+    /**
+     * Returns the extra channels in the order they must be computed. A subexpression only refers
+     * to the channels of the subexpressions it contains, which are extracted after it.
+     */
+    public List<Integer> getChannels()
+    {
+        ImmutableList.Builder<Integer> channels = ImmutableList.builder();
+        for (int i = expressions.size() - 1; i >= 0; i--) {
+            channels.add(firstChannel + i);
+        }
+        return channels.build();
+    }
+
+    public boolean isCommonSubExpression(int channel)
+    {
+        return channel >= firstChannel && channel < firstChannel + expressions.size();
+    }
+
+    public List<RowExpression> getExpressions()
+    {
+        return expressions;
+    }
+
+    public RowExpression getExpression(int channel)
+    {
+        checkArgument(isCommonSubExpression(channel), "Channel %s is not a common subexpression", channel);
+        return expressions.get(channel - firstChannel);
+    }
+
+    /**
+     * Returns true if the subexpression is used by the filter, so it is computed for every row
+     * of a batch rather than only for the rows that pass the filter.
+     */
+    public boolean isEvaluatedBeforeFilter(int channel)
+    {
+        checkArgument(isCommonSubExpression(channel), "Channel %s is not a common subexpression", channel);
+        return evaluatedBeforeFilter[channel - firstChannel];
+    }
+
+    public boolean hasCommonSubExpressionInputs(RowExpression expression)
+    {
+        for (int channel : getInputChannels(expression)) {
+            if (isCommonSubExpression(channel)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void countOccurrences(RowExpression expression, FunctionRegistry registry, Map<RowExpression, Integer> occurrences)
+    {
+        if (!(expression instanceof CallExpression)) {
+            return;
+        }
+        CallExpression call = (CallExpression) expression;
+        if (isCandidate(call, registry)) {
+            occurrences.merge(call, 1, Integer::sum);
+        }
+        for (RowExpression argument : getUnconditionalArguments(call)) {
+            countOccurrences(argument, registry, occurrences);
+        }
+    }
+
+    private static boolean isCandidate(CallExpression call, FunctionRegistry registry)
+    {
+        switch (call.getSignature().getName()) {
+            case IF:
+            case NULL_IF:
+            case SWITCH:
+            case "WHEN":
+            case TRY_CAST:
+            case IS_NULL:
+            case "IS_DISTINCT_FROM":
+            case COALESCE:
+            case "AND":
+            case "OR":
+            case IN:
+                return false;
+        }
+
+        // constant expressions are folded by the optimizer
+        if (getInputChannels(call).isEmpty()) {
+            return false;
+        }
+        for (RowExpression subExpression : Expressions.subExpressions(ImmutableList.of(call))) {
+            if (subExpression instanceof CallExpression) {
+                FunctionInfo function = registry.getExactFunction(((CallExpression) subExpression).getSignature());
+                if (function != null && !function.isDeterministic()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the arguments of the call that are evaluated whenever the call is evaluated. An
+     * ordinary call stops evaluating its arguments at the first null one, so only its first
+     * argument is always evaluated.
+     */
+    private static List<RowExpression> getUnconditionalArguments(CallExpression call)
+    {
+        List<RowExpression> arguments = call.getArguments();
+        switch (call.getSignature().getName()) {
+            case IF:
+            case SWITCH:
+            case COALESCE:
+            case IN:
+            case "AND":
+            case "OR":
+                return arguments.subList(0, Math.min(1, arguments.size()));
+            case TRY_CAST:
+                return ImmutableList.of();
+            default:
+                return arguments.subList(0, Math.min(1, arguments.size()));
+        }
+    }
+
+    private static RowExpression replace(RowExpression expression, RowExpression target, RowExpression reference)
+    {
+        if (expression.equals(target)) {
+            return reference;
+        }
+        if (!(expression instanceof CallExpression)) {
+            return expression;
+        }
+        return replaceArguments((CallExpression) expression, target, reference);
+    }
+
+    private static CallExpression replaceArguments(CallExpression call, RowExpression target, RowExpression reference)
+    {
+        int unconditionalArguments = getUnconditionalArguments(call).size();
+        ImmutableList.Builder<RowExpression> arguments = ImmutableList.builder();
+        for (int i = 0; i < call.getArguments().size(); i++) {
+            RowExpression argument = call.getArguments().get(i);
+            arguments.add(i < unconditionalArguments ? replace(argument, target, reference) : argument);
+        }
+        return call(call.getSignature(), call.getType(), arguments.build());
+    }
+
+    private static List<Integer> getInputChannels(RowExpression expression)
+    {
+        ImmutableList.Builder<Integer> channels = ImmutableList.builder();
+        for (RowExpression subExpression : Expressions.subExpressions(ImmutableList.of(expression))) {
+            if (subExpression instanceof InputReferenceExpression) {
+                channels.add(((InputReferenceExpression) subExpression).getField());
+            }
+        }
+        return channels.build();
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.gen;
+
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.block.BlockBuilderStatus;
+import com.facebook.presto.spi.block.DictionaryBlock;
+import com.facebook.presto.spi.block.RunLengthEncodedBlock;
+import com.facebook.presto.spi.type.Type;
+
+import javax.annotation.Nullable;
+
+import java.util.Arrays;
+
+// This methods are statically bound by the compiler
+@SuppressWarnings("UnusedDeclaration")
+public final class DictionaryOperations
+{
+    private DictionaryOperations()
+    {
+    }
+
+    /**
+     * Returns the distinct values of a dictionary or run length encoded block, or null if
+     * the block has no dictionary or the dictionary is larger than the block itself.
+     */
+    @Nullable
+    public static Block getDictionary(Block block)
+    {
+        if (block instanceof RunLengthEncodedBlock) {
+            return ((RunLengthEncodedBlock) block).getValue();
+        }
+        if (block instanceof DictionaryBlock) {
+            Block dictionary = ((DictionaryBlock) block).getDictionary();
+            if (dictionary.getPositionCount() <= block.getPositionCount()) {
+                return dictionary;
+            }
+        }
+        return null;
+    }
+
+    public static int getDictionaryId(Block block, int position)
+    {
+        if (block instanceof RunLengthEncodedBlock) {
+            return 0;
+        }
+        return ((DictionaryBlock) block).getId(position);
+    }
+
+    public static BlockBuilder createBlockBuilder(Type type, Block dictionary)
+    {
+        return type.createBlockBuilder(new BlockBuilderStatus(), dictionary.getPositionCount());
+    }
+
+    public static void appendProjectedValue(Type type, Block projectedDictionary, Block block, int position, BlockBuilder output)
+    {
+        type.appendTo(projectedDictionary, getDictionaryId(block, position), output);
+    }
+
+    public static boolean[] createFilterResults(Block dictionary)
+    {
+        return new boolean[dictionary.getPositionCount()];
+    }
+
+    public static boolean getFilterResult(boolean[] filterResults, Block block, int position)
+    {
+        return filterResults[getDictionaryId(block, position)];
+    }
+
+    public static boolean isDictionaryEncoded(Block block)
+    {
+        return getDictionary(block) != null;
+    }
+
+    /**
+     * Returns the positions of the block whose dictionary entry passed the filter, or null if all of them did.
+     */
+    @Nullable
+    public static int[] selectPositions(boolean[] filterResults, Block block)
+    {
+        int positionCount = block.getPositionCount();
+        if (block instanceof RunLengthEncodedBlock) {
+            return filterResults[0] ? null : new int[0];
+        }
+
+        DictionaryBlock dictionaryBlock = (DictionaryBlock) block;
+        int[] selectedPositions = new int[positionCount];
+        int selectedCount = 0;
+        for (int position = 0; position < positionCount; position++) {
+            if (filterResults[dictionaryBlock.getId(position)]) {
+                selectedPositions[selectedCount] = position;
+                selectedCount++;
+            }
+        }
+        if (selectedCount == positionCount) {
+            return null;
+        }
+        return Arrays.copyOf(selectedPositions, selectedCount);
+    }
+
+    /**
+     * Returns a block that refers to the projected dictionary with the ids of the selected positions of the block.
+     */
+    public static Block createProjectedBlock(Block projectedDictionary, Block block, @Nullable int[] selectedPositions)
+    {
+        if (block instanceof RunLengthEncodedBlock) {
+            return new RunLengthEncodedBlock(projectedDictionary, getSelectedCount(block, selectedPositions));
+        }
+
+        DictionaryBlock dictionaryBlock = (DictionaryBlock) block;
+        if (selectedPositions == null) {
+            return dictionaryBlock.withDictionary(projectedDictionary);
+        }
+        return new DictionaryBlock(selectedPositions.length, projectedDictionary, getSelectedIds(dictionaryBlock, selectedPositions));
+    }
+
+    /**
+     * Returns the selected positions of a block the processor passes through, keeping its encoding when it has one.
+     */
+    public static Block selectPositions(Type type, Block block, @Nullable int[] selectedPositions)
+    {
+        if (selectedPositions == null) {
+            return block;
+        }
+        if (block instanceof RunLengthEncodedBlock) {
+            return new RunLengthEncodedBlock(((RunLengthEncodedBlock) block).getValue(), selectedPositions.length);
+        }
+        if (block instanceof DictionaryBlock) {
+            DictionaryBlock dictionaryBlock = (DictionaryBlock) block;
+            return new DictionaryBlock(selectedPositions.length, dictionaryBlock.getDictionary(), getSelectedIds(dictionaryBlock, selectedPositions));
+        }
+
+        BlockBuilder output = type.createBlockBuilder(new BlockBuilderStatus(), selectedPositions.length);
+        SelectionOperations.copyPositions(type, block, selectedPositions, selectedPositions.length, output);
+        return output.build();
+    }
+
+    public static Block[] createBlocks(int channelCount)
+    {
+        return new Block[channelCount];
+    }
+
+    public static void setBlock(Block[] blocks, int channel, Block block)
+    {
+        blocks[channel] = block;
+    }
+
+    public static Page createPage(Page page, @Nullable int[] selectedPositions, Block[] blocks)
+    {
+        return new Page(selectedPositions == null ? page.getPositionCount() : selectedPositions.length, blocks);
+    }
+
+    private static int getSelectedCount(Block block, @Nullable int[] selectedPositions)
+    {
+        return selectedPositions == null ? block.getPositionCount() : selectedPositions.length;
+    }
+
+    private static int[] getSelectedIds(DictionaryBlock block, int[] selectedPositions)
+    {
+        int[] ids = new int[selectedPositions.length];
+        for (int i = 0; i < selectedPositions.length; i++) {
+            ids[i] = block.getId(selectedPositions[i]);
+        }
+        return ids;
+    }
+}
@@ -25,6 +25,7 @@ import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
 import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
 
 import javax.inject.Inject;
 
@@ -45,7 +46,7 @@ public class ExpressionCompiler
 {
     private final Metadata metadata;
 
-    private final LoadingCache<CacheKey, PageProcessor> pageProcessors = CacheBuilder.newBuilder().maximumSize(1000).build(
+    private final LoadingCache<CacheKey, PageProcessor> pageProcessors = CacheBuilder.newBuilder().recordStats().maximumSize(1000).build(
             new CacheLoader<CacheKey, PageProcessor>()
             {
                 @Override
@@ -56,7 +57,7 @@ public class ExpressionCompiler
                 }
             });
 
-    private final LoadingCache<CacheKey, CursorProcessor> cursorProcessors = CacheBuilder.newBuilder().maximumSize(1000).build(
+    private final LoadingCache<CacheKey, CursorProcessor> cursorProcessors = CacheBuilder.newBuilder().recordStats().maximumSize(1000).build(
             new CacheLoader<CacheKey, CursorProcessor>()
             {
                 @Override
@@ -67,6 +68,9 @@ public class ExpressionCompiler
                 }
             });
 
+    private final CacheStatsMBean pageProcessorCacheStats = new CacheStatsMBean(pageProcessors);
+    private final CacheStatsMBean cursorProcessorCacheStats = new CacheStatsMBean(cursorProcessors);
+
     @Inject
     public ExpressionCompiler(Metadata metadata)
     {
@@ -79,14 +83,28 @@ public class ExpressionCompiler
         return pageProcessors.size();
     }
 
-    public CursorProcessor compileCursorProcessor(RowExpression filter, List<RowExpression> projections, Object uniqueKey)
+    @Managed
+    @Nested
+    public CacheStatsMBean getPageProcessorCache()
+    {
+        return pageProcessorCacheStats;
+    }
+
+    @Managed
+    @Nested
+    public CacheStatsMBean getCursorProcessorCache()
+    {
+        return cursorProcessorCacheStats;
+    }
+
+    public CursorProcessor compileCursorProcessor(RowExpression filter, List<RowExpression> projections)
     {
-        return cursorProcessors.getUnchecked(new CacheKey(filter, projections, uniqueKey));
+        return cursorProcessors.getUnchecked(new CacheKey(filter, projections));
     }
 
     public PageProcessor compilePageProcessor(RowExpression filter, List<RowExpression> projections)
     {
-        return pageProcessors.getUnchecked(new CacheKey(filter, projections, null));
+        return pageProcessors.getUnchecked(new CacheKey(filter, projections));
     }
 
     private <T> T compileAndInstantiate(RowExpression filter, List<RowExpression> projections, BodyCompiler<T> bodyCompiler, Class<? extends T> superType)
@@ -146,12 +164,10 @@ public class ExpressionCompiler
     {
         private final RowExpression filter;
         private final List<RowExpression> projections;
-        private final Object uniqueKey;
 
-        private CacheKey(RowExpression filter, List<RowExpression> projections, Object uniqueKey)
+        private CacheKey(RowExpression filter, List<RowExpression> projections)
         {
             this.filter = filter;
-            this.uniqueKey = uniqueKey;
             this.projections = ImmutableList.copyOf(projections);
         }
 
@@ -168,7 +184,7 @@ public class ExpressionCompiler
         @Override
         public int hashCode()
         {
-            return Objects.hash(filter, projections, uniqueKey);
+            return Objects.hash(filter, projections);
         }
 
         @Override
@@ -182,8 +198,7 @@ public class ExpressionCompiler
             }
             CacheKey other = (CacheKey) obj;
             return Objects.equals(this.filter, other.filter) &&
-                    Objects.equals(this.projections, other.projections) &&
-                    Objects.equals(this.uniqueKey, other.uniqueKey);
+                    Objects.equals(this.projections, other.projections);
         }
 
         @Override
@@ -192,7 +207,6 @@ public class ExpressionCompiler
             return toStringHelper(this)
                     .add("filter", filter)
                     .add("projections", projections)
-                    .add("uniqueKey", uniqueKey)
                     .toString();
         }
     }
@@ -42,6 +42,8 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.ExecutionError;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 import it.unimi.dsi.fastutil.longs.LongArrayList;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
 
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
@@ -67,7 +69,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 public class JoinCompiler
 {
-    private final LoadingCache<CacheKey, LookupSourceFactory> lookupSourceFactories = CacheBuilder.newBuilder().maximumSize(1000).build(
+    private final LoadingCache<CacheKey, LookupSourceFactory> lookupSourceFactories = CacheBuilder.newBuilder().recordStats().maximumSize(1000).build(
             new CacheLoader<CacheKey, LookupSourceFactory>()
             {
                 @Override
@@ -78,7 +80,7 @@ public class JoinCompiler
                 }
             });
 
-    private final LoadingCache<CacheKey, Class<? extends PagesHashStrategy>> hashStrategies = CacheBuilder.newBuilder().maximumSize(1000).build(
+    private final LoadingCache<CacheKey, Class<? extends PagesHashStrategy>> hashStrategies = CacheBuilder.newBuilder().recordStats().maximumSize(1000).build(
             new CacheLoader<CacheKey, Class<? extends PagesHashStrategy>>() {
                 @Override
                 public Class<? extends PagesHashStrategy> load(CacheKey key)
@@ -88,6 +90,23 @@ public class JoinCompiler
                 }
             });
 
+    private final CacheStatsMBean lookupSourceFactoryCacheStats = new CacheStatsMBean(lookupSourceFactories);
+    private final CacheStatsMBean hashStrategyCacheStats = new CacheStatsMBean(hashStrategies);
+
+    @Managed
+    @Nested
+    public CacheStatsMBean getLookupSourceFactoryCache()
+    {
+        return lookupSourceFactoryCacheStats;
+    }
+
+    @Managed
+    @Nested
+    public CacheStatsMBean getHashStrategyCache()
+    {
+        return hashStrategyCacheStats;
+    }
+
     public LookupSourceFactory compileLookupSourceFactory(List<? extends Type> types, List<Integer> joinChannels)
     {
         try {
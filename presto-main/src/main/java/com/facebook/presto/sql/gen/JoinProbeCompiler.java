@@ -22,6 +22,7 @@ import com.facebook.presto.byteCode.control.IfStatement;
 import com.facebook.presto.byteCode.expression.ByteCodeExpression;
 import com.facebook.presto.byteCode.instruction.JumpInstruction;
 import com.facebook.presto.byteCode.instruction.LabelNode;
+import com.facebook.presto.operator.DictionaryAwareJoinProbe.DictionaryAwareJoinProbeFactory;
 import com.facebook.presto.operator.JoinProbe;
 import com.facebook.presto.operator.JoinProbeFactory;
 import com.facebook.presto.operator.LookupJoinOperator;
@@ -128,6 +129,9 @@ public class JoinProbeCompiler
         catch (Exception e) {
             throw Throwables.propagate(e);
         }
+        if (probeJoinChannel.size() == 1) {
+            joinProbeFactory = new DictionaryAwareJoinProbeFactory(joinProbeFactory, probeJoinChannel.get(0));
+        }
 
         Class<? extends OperatorFactory> operatorFactoryClass = IsolatedClass.isolateClass(
                 classLoader,
@@ -486,7 +490,7 @@ public class JoinProbeCompiler
             this.joinProbeFactory = joinProbeFactory;
 
             try {
-                constructor = operatorFactoryClass.getConstructor(int.class, LookupSourceSupplier.class, List.class, boolean.class, JoinProbeFactory.class);
+                constructor = operatorFactoryClass.getConstructor(int.class, LookupSourceSupplier.class, List.class, List.class, boolean.class, JoinProbeFactory.class);
             }
             catch (NoSuchMethodException e) {
                 throw Throwables.propagate(e);
@@ -501,7 +505,7 @@ public class JoinProbeCompiler
                 boolean enableOuterJoin)
         {
             try {
-                return constructor.newInstance(operatorId, lookupSourceSupplier, probeTypes, enableOuterJoin, joinProbeFactory);
+                return constructor.newInstance(operatorId, lookupSourceSupplier, probeTypes, probeJoinChannel, enableOuterJoin, joinProbeFactory);
             }
             catch (Exception e) {
                 throw Throwables.propagate(e);
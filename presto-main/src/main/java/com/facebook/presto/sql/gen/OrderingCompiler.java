@@ -20,11 +20,14 @@ import com.facebook.presto.byteCode.MethodDefinition;
 import com.facebook.presto.byteCode.Variable;
 import com.facebook.presto.byteCode.expression.ByteCodeExpression;
 import com.facebook.presto.byteCode.instruction.LabelNode;
+import com.facebook.presto.operator.PageWithPositionComparator;
 import com.facebook.presto.operator.PagesIndex;
 import com.facebook.presto.operator.PagesIndexComparator;
 import com.facebook.presto.operator.PagesIndexOrdering;
+import com.facebook.presto.operator.SimplePageWithPositionComparator;
 import com.facebook.presto.operator.SimplePagesIndexComparator;
 import com.facebook.presto.operator.SyntheticAddress;
+import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.block.SortOrder;
 import com.facebook.presto.spi.type.Type;
 import com.google.common.annotations.VisibleForTesting;
@@ -38,6 +41,8 @@ import com.google.common.util.concurrent.UncheckedExecutionException;
 import io.airlift.log.Logger;
 import it.unimi.dsi.fastutil.longs.LongArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
 
 import java.util.List;
 import java.util.Objects;
@@ -61,7 +66,7 @@ public class OrderingCompiler
 {
     private static final Logger log = Logger.get(OrderingCompiler.class);
 
-    private final LoadingCache<PagesIndexComparatorCacheKey, PagesIndexOrdering> pagesIndexOrderings = CacheBuilder.newBuilder().maximumSize(1000).build(
+    private final LoadingCache<PagesIndexComparatorCacheKey, PagesIndexOrdering> pagesIndexOrderings = CacheBuilder.newBuilder().recordStats().maximumSize(1000).build(
             new CacheLoader<PagesIndexComparatorCacheKey, PagesIndexOrdering>()
             {
                 @Override
@@ -72,6 +77,34 @@ public class OrderingCompiler
                 }
             });
 
+    private final LoadingCache<PagesIndexComparatorCacheKey, PageWithPositionComparator> pageWithPositionComparators = CacheBuilder.newBuilder().recordStats().maximumSize(1000).build(
+            new CacheLoader<PagesIndexComparatorCacheKey, PageWithPositionComparator>()
+            {
+                @Override
+                public PageWithPositionComparator load(PagesIndexComparatorCacheKey key)
+                        throws Exception
+                {
+                    return internalCompilePageWithPositionComparator(key.getSortTypes(), key.getSortChannels(), key.getSortOrders());
+                }
+            });
+
+    private final CacheStatsMBean pagesIndexOrderingCacheStats = new CacheStatsMBean(pagesIndexOrderings);
+    private final CacheStatsMBean pageWithPositionComparatorCacheStats = new CacheStatsMBean(pageWithPositionComparators);
+
+    @Managed
+    @Nested
+    public CacheStatsMBean getPagesIndexOrderingCache()
+    {
+        return pagesIndexOrderingCacheStats;
+    }
+
+    @Managed
+    @Nested
+    public CacheStatsMBean getPageWithPositionComparatorCache()
+    {
+        return pageWithPositionComparatorCacheStats;
+    }
+
     public PagesIndexOrdering compilePagesIndexOrdering(List<Type> sortTypes, List<Integer> sortChannels, List<SortOrder> sortOrders)
     {
         checkNotNull(sortTypes, "sortTypes is null");
@@ -107,6 +140,46 @@ public class OrderingCompiler
         return new PagesIndexOrdering(comparator);
     }
 
+    public PageWithPositionComparator compilePageWithPositionComparator(List<Type> sortTypes, List<Integer> sortChannels, List<SortOrder> sortOrders)
+    {
+        checkNotNull(sortTypes, "sortTypes is null");
+        checkNotNull(sortChannels, "sortChannels is null");
+        checkNotNull(sortOrders, "sortOrders is null");
+
+        try {
+            return pageWithPositionComparators.get(new PagesIndexComparatorCacheKey(sortTypes, sortChannels, sortOrders));
+        }
+        catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    @VisibleForTesting
+    public PageWithPositionComparator internalCompilePageWithPositionComparator(List<Type> sortTypes, List<Integer> sortChannels, List<SortOrder> sortOrders)
+    {
+        checkNotNull(sortChannels, "sortChannels is null");
+        checkNotNull(sortOrders, "sortOrders is null");
+
+        try {
+            CallSiteBinder callSiteBinder = new CallSiteBinder();
+
+            ClassDefinition classDefinition = new ClassDefinition(new CompilerContext(BOOTSTRAP_METHOD),
+                    a(PUBLIC, FINAL),
+                    makeClassName("PageWithPositionComparator"),
+                    type(Object.class),
+                    type(PageWithPositionComparator.class));
+
+            classDefinition.declareDefaultConstructor(a(PUBLIC));
+            generatePageWithPositionCompareTo(classDefinition, callSiteBinder, sortTypes, sortChannels, sortOrders);
+
+            return defineClass(classDefinition, PageWithPositionComparator.class, callSiteBinder.getBindings(), getClass().getClassLoader()).newInstance();
+        }
+        catch (Throwable e) {
+            log.error(e, "Error compiling comparator for channels %s with order %s", sortChannels, sortOrders);
+            return new SimplePageWithPositionComparator(sortTypes, sortChannels, sortOrders);
+        }
+    }
+
     private Class<? extends PagesIndexComparator> compilePagesIndexComparator(
             List<Type> sortTypes,
             List<Integer> sortChannels,
@@ -183,11 +256,6 @@ public class OrderingCompiler
             int sortChannel = sortChannels.get(i);
             SortOrder sortOrder = sortOrders.get(i);
 
-            Block block = new Block(context)
-                    .setDescription("compare channel " + sortChannel + " " + sortOrder);
-
-            Type sortType = sortTypes.get(i);
-
             ByteCodeExpression leftBlock = context.getVariable("pagesIndex")
                     .invoke("getChannel", ObjectArrayList.class, constantInt(sortChannel))
                     .invoke("get", Object.class, leftBlockIndex)
@@ -198,25 +266,46 @@ public class OrderingCompiler
                     .invoke("get", Object.class, rightBlockIndex)
                     .cast(com.facebook.presto.spi.block.Block.class);
 
-            block.append(getStatic(SortOrder.class, sortOrder.name())
-                    .invoke("compareBlockValue",
-                            int.class,
-                            ImmutableList.of(Type.class, com.facebook.presto.spi.block.Block.class, int.class, com.facebook.presto.spi.block.Block.class, int.class),
-                            constantType(context, callSiteBinder, sortType),
-                            leftBlock,
-                            leftBlockPosition,
-                            rightBlock,
-                            rightBlockPosition));
-
-            LabelNode equal = new LabelNode("equal");
-            block.comment("if (compare != 0) return compare")
-                    .dup()
-                    .ifZeroGoto(equal)
-                    .retInt()
-                    .visitLabel(equal)
-                    .pop(int.class);
-
-            compareToMethod.getBody().append(block);
+            compareToMethod.getBody().append(generateCompareChannel(context, callSiteBinder, sortChannel, sortTypes.get(i), sortOrder, leftBlock, leftBlockPosition, rightBlock, rightBlockPosition));
+        }
+
+        // values are equal
+        compareToMethod.getBody()
+                .push(0)
+                .retInt();
+    }
+
+    private void generatePageWithPositionCompareTo(ClassDefinition classDefinition, CallSiteBinder callSiteBinder, List<Type> sortTypes, List<Integer> sortChannels, List<SortOrder> sortOrders)
+    {
+        CompilerContext context = new CompilerContext(BOOTSTRAP_METHOD);
+        MethodDefinition compareToMethod = classDefinition.declareMethod(context,
+                a(PUBLIC),
+                "compareTo",
+                type(int.class),
+                arg("left", Page.class),
+                arg("leftPosition", int.class),
+                arg("right", Page.class),
+                arg("rightPosition", int.class));
+
+        for (int i = 0; i < sortChannels.size(); i++) {
+            int sortChannel = sortChannels.get(i);
+
+            ByteCodeExpression leftBlock = context.getVariable("left")
+                    .invoke("getBlock", com.facebook.presto.spi.block.Block.class, constantInt(sortChannel));
+
+            ByteCodeExpression rightBlock = context.getVariable("right")
+                    .invoke("getBlock", com.facebook.presto.spi.block.Block.class, constantInt(sortChannel));
+
+            compareToMethod.getBody().append(generateCompareChannel(
+                    context,
+                    callSiteBinder,
+                    sortChannel,
+                    sortTypes.get(i),
+                    sortOrders.get(i),
+                    leftBlock,
+                    context.getVariable("leftPosition"),
+                    rightBlock,
+                    context.getVariable("rightPosition")));
         }
 
         // values are equal
@@ -225,6 +314,41 @@ public class OrderingCompiler
                 .retInt();
     }
 
+    private static Block generateCompareChannel(
+            CompilerContext context,
+            CallSiteBinder callSiteBinder,
+            int sortChannel,
+            Type sortType,
+            SortOrder sortOrder,
+            ByteCodeExpression leftBlock,
+            ByteCodeExpression leftPosition,
+            ByteCodeExpression rightBlock,
+            ByteCodeExpression rightPosition)
+    {
+        Block block = new Block(context)
+                .setDescription("compare channel " + sortChannel + " " + sortOrder);
+
+        block.append(getStatic(SortOrder.class, sortOrder.name())
+                .invoke("compareBlockValue",
+                        int.class,
+                        ImmutableList.of(Type.class, com.facebook.presto.spi.block.Block.class, int.class, com.facebook.presto.spi.block.Block.class, int.class),
+                        constantType(context, callSiteBinder, sortType),
+                        leftBlock,
+                        leftPosition,
+                        rightBlock,
+                        rightPosition));
+
+        LabelNode equal = new LabelNode("equal");
+        block.comment("if (compare != 0) return compare")
+                .dup()
+                .ifZeroGoto(equal)
+                .retInt()
+                .visitLabel(equal)
+                .pop(int.class);
+
+        return block;
+    }
+
     private static final class PagesIndexComparatorCacheKey
     {
         private final List<Type> sortTypes;
@@ -23,8 +23,11 @@ import com.facebook.presto.byteCode.ParameterizedType;
 import com.facebook.presto.byteCode.Variable;
 import com.facebook.presto.byteCode.control.ForLoop;
 import com.facebook.presto.byteCode.control.IfStatement;
+import com.facebook.presto.byteCode.control.TryCatch;
 import com.facebook.presto.byteCode.instruction.LabelNode;
+import com.facebook.presto.metadata.FunctionInfo;
 import com.facebook.presto.metadata.Metadata;
+import com.facebook.presto.operator.DictionaryCache;
 import com.facebook.presto.operator.PageProcessor;
 import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.Page;
@@ -41,12 +44,19 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.primitives.Primitives;
 
+import javax.annotation.Nullable;
+
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.TreeSet;
 
 import static com.facebook.presto.byteCode.Access.PUBLIC;
 import static com.facebook.presto.byteCode.Access.a;
 import static com.facebook.presto.byteCode.NamedParameterDefinition.arg;
+import static com.facebook.presto.byteCode.OpCode.BASTORE;
+import static com.facebook.presto.byteCode.OpCode.IALOAD;
+import static com.facebook.presto.byteCode.OpCode.IASTORE;
 import static com.facebook.presto.byteCode.OpCode.NOP;
 import static com.facebook.presto.byteCode.ParameterizedType.type;
 import static com.facebook.presto.byteCode.control.ForLoop.ForLoopBuilder;
@@ -54,6 +64,7 @@ import static com.facebook.presto.byteCode.control.IfStatement.IfStatementBuilde
 import static com.facebook.presto.sql.gen.Bootstrap.BOOTSTRAP_METHOD;
 import static com.facebook.presto.sql.gen.ByteCodeUtils.generateWrite;
 import static com.facebook.presto.sql.gen.ByteCodeUtils.loadConstant;
+import static com.google.common.collect.Iterables.getOnlyElement;
 import static java.lang.String.format;
 import static java.util.Collections.nCopies;
 
@@ -70,15 +81,76 @@ public class PageProcessorCompiler
     @Override
     public void generateMethods(ClassDefinition classDefinition, CallSiteBinder callSiteBinder, RowExpression filter, List<RowExpression> projections)
     {
-        generateProcessMethod(classDefinition, filter, projections);
-        generateFilterMethod(classDefinition, callSiteBinder, filter);
+        CommonSubExpressions commonSubExpressions = CommonSubExpressions.extract(filter, projections, metadata.getFunctionRegistry());
+        filter = commonSubExpressions.getFilter();
+        projections = commonSubExpressions.getProjections();
+
+        generateProcessMethod(classDefinition, callSiteBinder, filter, projections, commonSubExpressions);
+        generateProcessWithoutCacheMethod(classDefinition);
+        if (isDictionaryPageCandidate(filter, projections, commonSubExpressions)) {
+            generateProcessDictionaryPageMethod(classDefinition, callSiteBinder, filter, projections);
+        }
+        generateFilterMethod(classDefinition, callSiteBinder, filter, commonSubExpressions);
+        if (isDictionaryCandidate(filter, commonSubExpressions)) {
+            generateFilterDictionaryMethod(classDefinition);
+        }
 
         for (int i = 0; i < projections.size(); i++) {
-            generateProjectMethod(classDefinition, callSiteBinder, "project_" + i, projections.get(i));
+            generateProjectMethod(classDefinition, callSiteBinder, "project_" + i, projections.get(i), commonSubExpressions);
+            if (!(projections.get(i) instanceof InputReferenceExpression) || commonSubExpressions.hasCommonSubExpressionInputs(projections.get(i))) {
+                generateProjectSelectedMethod(classDefinition, callSiteBinder, i, projections.get(i), commonSubExpressions);
+            }
+            if (isDictionaryCandidate(projections.get(i), commonSubExpressions)) {
+                generateProjectDictionaryMethod(classDefinition, callSiteBinder, i, projections.get(i).getType());
+            }
+        }
+
+        for (int channel : commonSubExpressions.getChannels()) {
+            generateProjectMethod(classDefinition, callSiteBinder, "commonSubExpression_" + channel, commonSubExpressions.getExpression(channel), commonSubExpressions);
+        }
+    }
+
+    /**
+     * Expressions over a single channel that are deterministic are evaluated once per distinct
+     * value when the channel is dictionary or run length encoded.
+     */
+    private boolean isDictionaryCandidate(RowExpression expression, CommonSubExpressions commonSubExpressions)
+    {
+        if (getInputChannels(expression).size() != 1 || commonSubExpressions.hasCommonSubExpressionInputs(expression)) {
+            return false;
+        }
+        for (RowExpression subExpression : Expressions.subExpressions(ImmutableList.of(expression))) {
+            if (subExpression instanceof CallExpression) {
+                FunctionInfo function = metadata.getFunctionRegistry().getExactFunction(((CallExpression) subExpression).getSignature());
+                if (function != null && !function.isDeterministic()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A whole page is processed over its dictionaries when the filter and each projection either
+     * are dictionary candidates or pass an input channel through.
+     */
+    private boolean isDictionaryPageCandidate(RowExpression filter, List<RowExpression> projections, CommonSubExpressions commonSubExpressions)
+    {
+        if (!commonSubExpressions.isEmpty()) {
+            return false;
+        }
+        if (isSelective(filter) && !isDictionaryCandidate(filter, commonSubExpressions)) {
+            return false;
+        }
+        for (RowExpression projection : projections) {
+            if (!(projection instanceof InputReferenceExpression) && !isDictionaryCandidate(projection, commonSubExpressions)) {
+                return false;
+            }
         }
+        return true;
     }
 
-    private void generateProcessMethod(ClassDefinition classDefinition, RowExpression filter, List<RowExpression> projections)
+    private void generateProcessMethod(ClassDefinition classDefinition, CallSiteBinder callSiteBinder, RowExpression filter, List<RowExpression> projections, CommonSubExpressions commonSubExpressions)
     {
         CompilerContext context = new CompilerContext(BOOTSTRAP_METHOD);
         MethodDefinition method = classDefinition.declareMethod(context,
@@ -89,13 +161,11 @@ public class PageProcessorCompiler
                 arg("page", Page.class),
                 arg("start", int.class),
                 arg("end", int.class),
-                arg("pageBuilder", PageBuilder.class));
+                arg("pageBuilder", PageBuilder.class),
+                arg("dictionaryCache", DictionaryCache.class));
 
-        Variable sessionVariable = context.getVariable("session");
         Variable pageVariable = context.getVariable("page");
         Variable startVariable = context.getVariable("start");
-        Variable endVariable = context.getVariable("end");
-        Variable pageBuilderVariable = context.getVariable("pageBuilder");
 
         Variable positionVariable = context.declareVariable(int.class, "position");
 
@@ -104,8 +174,11 @@ public class PageProcessorCompiler
                 .getVariable(startVariable)
                 .putVariable(positionVariable);
 
-        List<Integer> allInputChannels = getInputChannels(Iterables.concat(projections, ImmutableList.of(filter)));
+        List<Integer> allInputChannels = getInputChannels(Iterables.concat(projections, ImmutableList.of(filter), commonSubExpressions.getExpressions()));
         for (int channel : allInputChannels) {
+            if (commonSubExpressions.isCommonSubExpression(channel)) {
+                continue;
+            }
             Variable blockVariable = context.declareVariable(com.facebook.presto.spi.block.Block.class, "block_" + channel);
             method.getBody()
                     .comment("Block %s = page.getBlock(%s);", blockVariable.getName(), channel)
@@ -115,9 +188,222 @@ public class PageProcessorCompiler
                     .putVariable(blockVariable);
         }
 
-        //
-        // for loop loop body
-        //
+        // evaluate the filter and projections over the dictionaries of dictionary encoded channels
+        Variable filterResultsVariable = null;
+        if (isDictionaryCandidate(filter, commonSubExpressions)) {
+            int channel = getOnlyElement(getInputChannels(filter));
+            filterResultsVariable = context.declareVariable(boolean[].class, "filterResults");
+            method.getBody().append(evaluateDictionary(context, channel, filterResultsVariable, "filterDictionary", boolean[].class, null));
+        }
+        Variable[] projectedDictionaryVariables = new Variable[projections.size()];
+        for (int projectionIndex = 0; projectionIndex < projections.size(); projectionIndex++) {
+            RowExpression projection = projections.get(projectionIndex);
+            if (isDictionaryCandidate(projection, commonSubExpressions)) {
+                int channel = getOnlyElement(getInputChannels(projection));
+                projectedDictionaryVariables[projectionIndex] = context.declareVariable(com.facebook.presto.spi.block.Block.class, "projectedDictionary_" + projectionIndex);
+                method.getBody().append(evaluateDictionary(context, channel, projectedDictionaryVariables[projectionIndex], "projectDictionary_" + projectionIndex, com.facebook.presto.spi.block.Block.class, projectionIndex));
+            }
+        }
+
+        // the values of the common subexpressions are computed for each batch into blocks of their own
+        for (int channel : commonSubExpressions.getChannels()) {
+            Variable blockVariable = context.declareVariable(com.facebook.presto.spi.block.Block.class, "block_" + channel);
+            method.getBody()
+                    .pushNull()
+                    .putVariable(blockVariable);
+        }
+
+        if (isSelective(filter) || !commonSubExpressions.isEmpty()) {
+            method.getBody().append(generateSelectionLoop(context, classDefinition, callSiteBinder, filter, projections, commonSubExpressions, filterResultsVariable, projectedDictionaryVariables));
+        }
+        else {
+            method.getBody().append(generateRowLoop(context, classDefinition, callSiteBinder, filter, projections, commonSubExpressions, filterResultsVariable, projectedDictionaryVariables));
+        }
+
+        method.getBody()
+                .comment("return position;")
+                .getVariable(positionVariable)
+                .retInt();
+    }
+
+    private static void generateProcessWithoutCacheMethod(ClassDefinition classDefinition)
+    {
+        CompilerContext context = new CompilerContext(BOOTSTRAP_METHOD);
+        MethodDefinition method = classDefinition.declareMethod(context,
+                a(PUBLIC),
+                "process",
+                type(int.class),
+                arg("session", ConnectorSession.class),
+                arg("page", Page.class),
+                arg("start", int.class),
+                arg("end", int.class),
+                arg("pageBuilder", PageBuilder.class));
+
+        method.getBody()
+                .comment("return process(session, page, start, end, pageBuilder, new DictionaryCache());")
+                .pushThis()
+                .getVariable("session")
+                .getVariable("page")
+                .getVariable("start")
+                .getVariable("end")
+                .getVariable("pageBuilder")
+                .newObject(DictionaryCache.class)
+                .dup()
+                .invokeConstructor(DictionaryCache.class)
+                .invokeVirtual(classDefinition.getType(),
+                        "process",
+                        type(int.class),
+                        type(ConnectorSession.class),
+                        type(Page.class),
+                        type(int.class),
+                        type(int.class),
+                        type(PageBuilder.class),
+                        type(DictionaryCache.class))
+                .retInt();
+    }
+
+    /**
+     * Evaluates the filter and the projections once per dictionary, and builds the output blocks
+     * over the projected dictionaries with the ids of the selected positions.
+     */
+    private void generateProcessDictionaryPageMethod(ClassDefinition classDefinition, CallSiteBinder callSiteBinder, RowExpression filter, List<RowExpression> projections)
+    {
+        CompilerContext context = new CompilerContext(BOOTSTRAP_METHOD);
+        MethodDefinition method = classDefinition.declareMethod(context,
+                a(PUBLIC),
+                "processDictionaryPage",
+                type(Page.class),
+                arg("session", ConnectorSession.class),
+                arg("page", Page.class),
+                arg("dictionaryCache", DictionaryCache.class));
+
+        Block body = method.getBody();
+        for (int channel : getInputChannels(Iterables.concat(projections, ImmutableList.of(filter)))) {
+            Variable blockVariable = context.declareVariable(com.facebook.presto.spi.block.Block.class, "block_" + channel);
+            body.comment("Block %s = page.getBlock(%s);", blockVariable.getName(), channel)
+                    .getVariable("page")
+                    .push(channel)
+                    .invokeVirtual(Page.class, "getBlock", com.facebook.presto.spi.block.Block.class, int.class)
+                    .putVariable(blockVariable);
+        }
+
+        // the page is processed row by row unless every channel an expression reads is dictionary encoded
+        List<RowExpression> dictionaryExpressions = new ArrayList<>();
+        if (isSelective(filter)) {
+            dictionaryExpressions.add(filter);
+        }
+        for (RowExpression projection : projections) {
+            if (!(projection instanceof InputReferenceExpression)) {
+                dictionaryExpressions.add(projection);
+            }
+        }
+        for (int channel : getInputChannels(dictionaryExpressions)) {
+            LabelNode encoded = new LabelNode("encoded_" + channel);
+            body.comment("if (!isDictionaryEncoded(block_%s)) return null;", channel)
+                    .getVariable("block_" + channel)
+                    .invokeStatic(DictionaryOperations.class, "isDictionaryEncoded", boolean.class, com.facebook.presto.spi.block.Block.class)
+                    .ifTrueGoto(encoded)
+                    .pushNull()
+                    .retObject()
+                    .visitLabel(encoded);
+        }
+
+        Variable selectedPositionsVariable = context.declareVariable(int[].class, "selectedPositions");
+        body.pushNull()
+                .putVariable(selectedPositionsVariable);
+        if (isSelective(filter)) {
+            int channel = getOnlyElement(getInputChannels(filter));
+            Variable filterResultsVariable = context.declareVariable(boolean[].class, "filterResults");
+            body.append(evaluateDictionary(context, channel, filterResultsVariable, "filterDictionary", boolean[].class, null))
+                    .append(returnNullIfNull(context, filterResultsVariable))
+                    .comment("selectedPositions = selectPositions(filterResults, block_%s);", channel)
+                    .getVariable(filterResultsVariable)
+                    .getVariable("block_" + channel)
+                    .invokeStatic(DictionaryOperations.class, "selectPositions", int[].class, boolean[].class, com.facebook.presto.spi.block.Block.class)
+                    .putVariable(selectedPositionsVariable);
+        }
+
+        Variable blocksVariable = context.declareVariable(com.facebook.presto.spi.block.Block[].class, "blocks");
+        body.comment("Block[] blocks = createBlocks(%s);", projections.size())
+                .push(projections.size())
+                .invokeStatic(DictionaryOperations.class, "createBlocks", com.facebook.presto.spi.block.Block[].class, int.class)
+                .putVariable(blocksVariable);
+
+        for (int projectionIndex = 0; projectionIndex < projections.size(); projectionIndex++) {
+            RowExpression projection = projections.get(projectionIndex);
+            int channel = getOnlyElement(getInputChannels(projection));
+            if (projection instanceof InputReferenceExpression) {
+                body.comment("setBlock(blocks, %s, selectPositions(type, block_%s, selectedPositions));", projectionIndex, channel)
+                        .getVariable(blocksVariable)
+                        .push(projectionIndex)
+                        .append(loadConstant(context, callSiteBinder.bind(projection.getType(), Type.class)))
+                        .getVariable("block_" + channel)
+                        .getVariable(selectedPositionsVariable)
+                        .invokeStatic(DictionaryOperations.class, "selectPositions", com.facebook.presto.spi.block.Block.class, Type.class, com.facebook.presto.spi.block.Block.class, int[].class);
+            }
+            else {
+                Variable projectedDictionaryVariable = context.declareVariable(com.facebook.presto.spi.block.Block.class, "projectedDictionary_" + projectionIndex);
+                body.append(evaluateDictionary(context, channel, projectedDictionaryVariable, "projectDictionary_" + projectionIndex, com.facebook.presto.spi.block.Block.class, projectionIndex))
+                        .append(returnNullIfNull(context, projectedDictionaryVariable))
+                        .comment("setBlock(blocks, %s, createProjectedBlock(projectedDictionary_%s, block_%s, selectedPositions));", projectionIndex, projectionIndex, channel)
+                        .getVariable(blocksVariable)
+                        .push(projectionIndex)
+                        .getVariable(projectedDictionaryVariable)
+                        .getVariable("block_" + channel)
+                        .getVariable(selectedPositionsVariable)
+                        .invokeStatic(DictionaryOperations.class,
+                                "createProjectedBlock",
+                                com.facebook.presto.spi.block.Block.class,
+                                com.facebook.presto.spi.block.Block.class,
+                                com.facebook.presto.spi.block.Block.class,
+                                int[].class);
+            }
+            body.invokeStatic(DictionaryOperations.class, "setBlock", void.class, com.facebook.presto.spi.block.Block[].class, int.class, com.facebook.presto.spi.block.Block.class);
+        }
+
+        body.comment("return createPage(page, selectedPositions, blocks);")
+                .getVariable("page")
+                .getVariable(selectedPositionsVariable)
+                .getVariable(blocksVariable)
+                .invokeStatic(DictionaryOperations.class, "createPage", Page.class, Page.class, int[].class, com.facebook.presto.spi.block.Block[].class)
+                .retObject();
+    }
+
+    private static ByteCodeNode returnNullIfNull(CompilerContext context, Variable variable)
+    {
+        LabelNode notNull = new LabelNode("notNull");
+        return new Block(context)
+                .comment("if (%s == null) return null;", variable.getName())
+                .getVariable(variable)
+                .ifNotNullGoto(notNull)
+                .pushNull()
+                .retObject()
+                .visitLabel(notNull);
+    }
+
+    /**
+     * Pages with a filter are processed in batches: the filter selects the matching positions
+     * of the batch, and then each projection runs over the selected positions only.
+     */
+    private static boolean isSelective(RowExpression filter)
+    {
+        return !(filter instanceof ConstantExpression && Boolean.TRUE.equals(((ConstantExpression) filter).getValue()));
+    }
+
+    private ByteCodeNode generateRowLoop(
+            CompilerContext context,
+            ClassDefinition classDefinition,
+            CallSiteBinder callSiteBinder,
+            RowExpression filter,
+            List<RowExpression> projections,
+            CommonSubExpressions commonSubExpressions,
+            Variable filterResultsVariable,
+            Variable[] projectedDictionaryVariables)
+    {
+        Variable positionVariable = context.getVariable("position");
+        Variable endVariable = context.getVariable("end");
+        Variable pageBuilderVariable = context.getVariable("pageBuilder");
+
         LabelNode done = new LabelNode("done");
 
         Block loopBody = new Block(context);
@@ -144,60 +430,638 @@ public class PageProcessorCompiler
         IfStatementBuilder filterBlock = new IfStatementBuilder(context);
 
         Block trueBlock = new Block(context);
-        filterBlock.condition(new Block(context)
+        filterBlock.condition(generateFilterCall(context, classDefinition, filter, commonSubExpressions, filterResultsVariable, positionVariable))
+                .ifTrue(trueBlock);
+
+        trueBlock.getVariable(pageBuilderVariable)
+                .invokeVirtual(PageBuilder.class, "declarePosition", void.class);
+
+        for (int projectionIndex = 0; projectionIndex < projections.size(); projectionIndex++) {
+            trueBlock.append(generateProjectCall(context, classDefinition, callSiteBinder, projections.get(projectionIndex), commonSubExpressions, projectionIndex, projectedDictionaryVariables[projectionIndex], positionVariable));
+        }
+
+        loopBody.append(filterBlock.build());
+
+        return new Block(context)
+                .append(loop.build())
+                .visitLabel(done);
+    }
+
+    private ByteCodeNode generateSelectionLoop(
+            CompilerContext context,
+            ClassDefinition classDefinition,
+            CallSiteBinder callSiteBinder,
+            RowExpression filter,
+            List<RowExpression> projections,
+            CommonSubExpressions commonSubExpressions,
+            Variable filterResultsVariable,
+            Variable[] projectedDictionaryVariables)
+    {
+        Variable positionVariable = context.getVariable("position");
+        Variable startVariable = context.getVariable("start");
+        Variable endVariable = context.getVariable("end");
+        Variable pageBuilderVariable = context.getVariable("pageBuilder");
+
+        Variable selectedPositionsVariable = context.declareVariable(int[].class, "selectedPositions");
+        Variable selectedCountVariable = context.declareVariable(int.class, "selectedCount");
+        Variable batchStartVariable = context.declareVariable(int.class, "batchStart");
+        Variable batchEndVariable = context.declareVariable(int.class, "batchEnd");
+        // used by the loops over the selected positions
+        context.declareVariable(int.class, "index");
+        context.declareVariable(int.class, "selectedPosition");
+
+        // select the positions of the batch that pass the filter
+        ByteCodeNode filterLoop = ForLoop.forLoopBuilder(context)
+                .initialize(NOP)
+                .condition(new Block(context)
+                        .comment("position < batchEnd")
+                        .getVariable(positionVariable)
+                        .getVariable(batchEndVariable)
+                        .invokeStatic(CompilerOperations.class, "lessThan", boolean.class, int.class, int.class))
+                .update(new Block(context)
+                        .comment("position++")
+                        .incrementVariable(positionVariable, (byte) 1))
+                .body(new IfStatementBuilder(context)
+                        .condition(generateFilterCall(context, classDefinition, filter, commonSubExpressions, filterResultsVariable, positionVariable))
+                        .ifTrue(new Block(context)
+                                .comment("selectedPositions[selectedCount++] = position;")
+                                .getVariable(selectedPositionsVariable)
+                                .getVariable(selectedCountVariable)
+                                .getVariable(positionVariable)
+                                .append(IASTORE)
+                                .incrementVariable(selectedCountVariable, (byte) 1))
+                        .build())
+                .build();
+
+        Block batchBody = new Block(context)
+                .comment("int batchEnd = getBatchEnd(position, end);")
+                .getVariable(positionVariable)
+                .getVariable(endVariable)
+                .invokeStatic(SelectionOperations.class, "getBatchEnd", int.class, int.class, int.class)
+                .putVariable(batchEndVariable)
+                .getVariable(positionVariable)
+                .putVariable(batchStartVariable);
+
+        // the common subexpressions of the filter are computed for every position of the batch, the others only for the selected positions
+        for (int channel : commonSubExpressions.getChannels()) {
+            if (commonSubExpressions.isEvaluatedBeforeFilter(channel)) {
+                batchBody.append(generateCommonSubExpressionBlock(context, classDefinition, callSiteBinder, commonSubExpressions, channel, true));
+            }
+        }
+
+        batchBody.putVariable(selectedCountVariable, 0)
+                .append(filterLoop);
+
+        // the channels that are only read at the selected positions are loaded at those positions, so lazy blocks only decode the rows that pass the filter
+        for (int channel : getSelectedPositionChannels(filter, projections, commonSubExpressions)) {
+            batchBody.comment("loadPositions(block_%s, selectedPositions, selectedCount);", channel)
+                    .getVariable("block_" + channel)
+                    .getVariable(selectedPositionsVariable)
+                    .getVariable(selectedCountVariable)
+                    .invokeStatic(SelectionOperations.class, "loadPositions", void.class, com.facebook.presto.spi.block.Block.class, int[].class, int.class);
+        }
+
+        for (int channel : commonSubExpressions.getChannels()) {
+            if (!commonSubExpressions.isEvaluatedBeforeFilter(channel)) {
+                batchBody.append(generateCommonSubExpressionBlock(context, classDefinition, callSiteBinder, commonSubExpressions, channel, false));
+            }
+        }
+
+        // run each projection over the selected positions
+        for (int projectionIndex = 0; projectionIndex < projections.size(); projectionIndex++) {
+            RowExpression projection = projections.get(projectionIndex);
+            if (projection instanceof InputReferenceExpression && !commonSubExpressions.hasCommonSubExpressionInputs(projection)) {
+                int channel = ((InputReferenceExpression) projection).getField();
+                batchBody.comment("copyPositions(type, block_%s, selectedPositions, selectedCount, pageBuilder.getBlockBuilder(%s));", channel, projectionIndex)
+                        .append(loadConstant(context, callSiteBinder.bind(projection.getType(), Type.class)))
+                        .getVariable("block_" + channel)
+                        .getVariable(selectedPositionsVariable)
+                        .getVariable(selectedCountVariable)
+                        .getVariable(pageBuilderVariable)
+                        .push(projectionIndex)
+                        .invokeVirtual(PageBuilder.class, "getBlockBuilder", BlockBuilder.class, int.class)
+                        .invokeStatic(SelectionOperations.class,
+                                "copyPositions",
+                                void.class,
+                                Type.class,
+                                com.facebook.presto.spi.block.Block.class,
+                                int[].class,
+                                int.class,
+                                BlockBuilder.class);
+                continue;
+            }
+
+            batchBody.append(generateProjectSelectedCall(context, classDefinition, callSiteBinder, projection, commonSubExpressions, projectionIndex, projectedDictionaryVariables[projectionIndex]));
+        }
+
+        batchBody.comment("declarePositions(pageBuilder, selectedCount);")
+                .getVariable(pageBuilderVariable)
+                .getVariable(selectedCountVariable)
+                .invokeStatic(SelectionOperations.class, "declarePositions", void.class, PageBuilder.class, int.class);
+
+        // the page builder is only checked between batches, so a page can exceed its size by up to a batch
+        ByteCodeNode batchLoop = ForLoop.forLoopBuilder(context)
+                .initialize(NOP)
+                .condition(new Block(context)
+                        .comment("position < end && !pageBuilder.isFull()")
+                        .getVariable(positionVariable)
+                        .getVariable(endVariable)
+                        .invokeStatic(CompilerOperations.class, "lessThan", boolean.class, int.class, int.class)
+                        .getVariable(pageBuilderVariable)
+                        .invokeVirtual(PageBuilder.class, "isFull", boolean.class)
+                        .invokeStatic(CompilerOperations.class, "not", boolean.class, boolean.class)
+                        .invokeStatic(CompilerOperations.class, "and", boolean.class, boolean.class, boolean.class))
+                .update(NOP)
+                .body(batchBody)
+                .build();
+
+        return new Block(context)
+                .comment("int[] selectedPositions = createSelectedPositions(start, end);")
+                .getVariable(startVariable)
+                .getVariable(endVariable)
+                .invokeStatic(SelectionOperations.class, "createSelectedPositions", int[].class, int.class, int.class)
+                .putVariable(selectedPositionsVariable)
+                .append(batchLoop);
+    }
+
+    /**
+     * Returns the input channels that are read by the projections, but not by the filter.
+     */
+    private static Set<Integer> getSelectedPositionChannels(RowExpression filter, List<RowExpression> projections, CommonSubExpressions commonSubExpressions)
+    {
+        List<RowExpression> filterExpressions = new ArrayList<>();
+        filterExpressions.add(filter);
+        List<RowExpression> projectionExpressions = new ArrayList<>(projections);
+        for (int channel : commonSubExpressions.getChannels()) {
+            if (commonSubExpressions.isEvaluatedBeforeFilter(channel)) {
+                filterExpressions.add(commonSubExpressions.getExpression(channel));
+            }
+            else {
+                projectionExpressions.add(commonSubExpressions.getExpression(channel));
+            }
+        }
+
+        Set<Integer> channels = new TreeSet<>(getInputChannels(projectionExpressions));
+        channels.removeAll(getInputChannels(filterExpressions));
+        channels.removeIf(commonSubExpressions::isCommonSubExpression);
+        return channels;
+    }
+
+    /**
+     * Computes the block of a common subexpression for the current batch. The block has a position
+     * for each position of the batch, and the positions that are not computed are null.
+     */
+    private static ByteCodeNode generateCommonSubExpressionBlock(
+            CompilerContext context,
+            ClassDefinition classDefinition,
+            CallSiteBinder callSiteBinder,
+            CommonSubExpressions commonSubExpressions,
+            int channel,
+            boolean allPositions)
+    {
+        RowExpression expression = commonSubExpressions.getExpression(channel);
+        Variable positionVariable = context.getVariable("position");
+        Variable batchStartVariable = context.getVariable("batchStart");
+        Variable batchEndVariable = context.getVariable("batchEnd");
+        Variable selectedPositionVariable = context.getVariable("selectedPosition");
+        Variable blockBuilderVariable = context.declareVariable(BlockBuilder.class, "blockBuilder_" + channel);
+
+        ByteCodeNode loop;
+        if (allPositions) {
+            loop = ForLoop.forLoopBuilder(context)
+                    .initialize(new Block(context)
+                            .getVariable(batchStartVariable)
+                            .putVariable(positionVariable))
+                    .condition(new Block(context)
+                            .getVariable(positionVariable)
+                            .getVariable(batchEndVariable)
+                            .invokeStatic(CompilerOperations.class, "lessThan", boolean.class, int.class, int.class))
+                    .update(new Block(context)
+                            .incrementVariable(positionVariable, (byte) 1))
+                    .body(generateCommonSubExpressionCall(context, classDefinition, expression, commonSubExpressions, channel, positionVariable, blockBuilderVariable))
+                    .build();
+        }
+        else {
+            Variable indexVariable = context.getVariable("index");
+            loop = ForLoop.forLoopBuilder(context)
+                    .initialize(new Block(context)
+                            .putVariable(indexVariable, 0))
+                    .condition(new Block(context)
+                            .getVariable(indexVariable)
+                            .getVariable("selectedCount")
+                            .invokeStatic(CompilerOperations.class, "lessThan", boolean.class, int.class, int.class))
+                    .update(new Block(context)
+                            .incrementVariable(indexVariable, (byte) 1))
+                    .body(new Block(context)
+                            .comment("selectedPosition = selectedPositions[index];")
+                            .getVariable("selectedPositions")
+                            .getVariable(indexVariable)
+                            .append(IALOAD)
+                            .putVariable(selectedPositionVariable)
+                            .getVariable(blockBuilderVariable)
+                            .getVariable(batchStartVariable)
+                            .getVariable(selectedPositionVariable)
+                            .invokeStatic(SelectionOperations.class, "appendNulls", void.class, BlockBuilder.class, int.class, int.class)
+                            .append(generateCommonSubExpressionCall(context, classDefinition, expression, commonSubExpressions, channel, selectedPositionVariable, blockBuilderVariable)))
+                    .build();
+        }
+
+        Block block = new Block(context)
+                .comment("block_%s = %s", channel, expression)
+                .append(loadConstant(context, callSiteBinder.bind(expression.getType(), Type.class)))
+                .getVariable(batchStartVariable)
+                .getVariable(batchEndVariable)
+                .invokeStatic(SelectionOperations.class, "createBlockBuilder", BlockBuilder.class, Type.class, int.class, int.class)
+                .putVariable(blockBuilderVariable)
+                .append(loop)
+                .getVariable(blockBuilderVariable)
+                .invokeInterface(BlockBuilder.class, "build", com.facebook.presto.spi.block.Block.class)
+                .putVariable("block_" + channel);
+
+        if (allPositions) {
+            // the filter starts from the beginning of the batch
+            block.getVariable(batchStartVariable)
+                    .putVariable(positionVariable);
+        }
+        return block;
+    }
+
+    private static ByteCodeNode generateCommonSubExpressionCall(
+            CompilerContext context,
+            ClassDefinition classDefinition,
+            RowExpression expression,
+            CommonSubExpressions commonSubExpressions,
+            int channel,
+            Variable positionVariable,
+            Variable blockBuilderVariable)
+    {
+        List<Integer> inputChannels = getInputChannels(expression);
+        return new Block(context)
                 .pushThis()
-                .getVariable(sessionVariable)
+                .getVariable("session")
+                .append(pushBlockVariables(context, inputChannels))
+                .getVariable(positionVariable)
+                .append(pushBatchStart(context, expression, commonSubExpressions))
+                .getVariable(blockBuilderVariable)
+                .invokeVirtual(classDefinition.getType(),
+                        "commonSubExpression_" + channel,
+                        type(void.class),
+                        ImmutableList.<ParameterizedType>builder()
+                                .add(type(ConnectorSession.class))
+                                .addAll(nCopies(inputChannels.size(), type(com.facebook.presto.spi.block.Block.class)))
+                                .addAll(positionParameterTypes(expression, commonSubExpressions))
+                                .add(type(BlockBuilder.class))
+                                .build());
+    }
+
+    private static ByteCodeNode generateFilterCall(
+            CompilerContext context,
+            ClassDefinition classDefinition,
+            RowExpression filter,
+            CommonSubExpressions commonSubExpressions,
+            Variable filterResultsVariable,
+            Variable positionVariable)
+    {
+        Block filterCall = new Block(context)
+                .pushThis()
+                .getVariable("session")
                 .append(pushBlockVariables(context, getInputChannels(filter)))
                 .getVariable(positionVariable)
+                .append(pushBatchStart(context, filter, commonSubExpressions))
                 .invokeVirtual(classDefinition.getType(),
                         "filter",
                         type(boolean.class),
                         ImmutableList.<ParameterizedType>builder()
                                 .add(type(ConnectorSession.class))
                                 .addAll(nCopies(getInputChannels(filter).size(), type(com.facebook.presto.spi.block.Block.class)))
-                                .add(type(int.class))
-                                .build()))
-                .ifTrue(trueBlock);
+                                .addAll(positionParameterTypes(filter, commonSubExpressions))
+                                .build());
+        if (filterResultsVariable == null) {
+            return filterCall;
+        }
 
-        trueBlock.getVariable(pageBuilderVariable)
-                .invokeVirtual(PageBuilder.class, "declarePosition", void.class);
+        LabelNode filterRow = new LabelNode("filterRow");
+        LabelNode filterDone = new LabelNode("filterDone");
+        return new Block(context)
+                .comment("filterResults != null ? filterResults[id] : filter(...)")
+                .getVariable(filterResultsVariable)
+                .ifNullGoto(filterRow)
+                .getVariable(filterResultsVariable)
+                .append(pushBlockVariables(context, getInputChannels(filter)))
+                .getVariable(positionVariable)
+                .invokeStatic(DictionaryOperations.class, "getFilterResult", boolean.class, boolean[].class, com.facebook.presto.spi.block.Block.class, int.class)
+                .gotoLabel(filterDone)
+                .visitLabel(filterRow)
+                .append(filterCall)
+                .visitLabel(filterDone);
+    }
 
-        for (int projectionIndex = 0; projectionIndex < projections.size(); projectionIndex++) {
-            List<Integer> inputChannels = getInputChannels(projections.get(projectionIndex));
+    private static ByteCodeNode generateProjectCall(
+            CompilerContext context,
+            ClassDefinition classDefinition,
+            CallSiteBinder callSiteBinder,
+            RowExpression projection,
+            CommonSubExpressions commonSubExpressions,
+            int projectionIndex,
+            Variable projectedDictionaryVariable,
+            Variable positionVariable)
+    {
+        List<Integer> inputChannels = getInputChannels(projection);
+        Block block = new Block(context);
 
-            trueBlock.pushThis()
-                    .getVariable(sessionVariable)
+        LabelNode projectRow = new LabelNode("projectRow");
+        LabelNode projectDone = new LabelNode("projectDone");
+        if (projectedDictionaryVariable != null) {
+            block.comment("if (projectedDictionary_%s != null) appendProjectedValue(...)", projectionIndex)
+                    .getVariable(projectedDictionaryVariable)
+                    .ifNullGoto(projectRow)
+                    .append(loadConstant(context, callSiteBinder.bind(projection.getType(), Type.class)))
+                    .getVariable(projectedDictionaryVariable)
                     .append(pushBlockVariables(context, inputChannels))
-                    .getVariable(positionVariable);
-
-            trueBlock.comment("pageBuilder.getBlockBuilder(" + projectionIndex + ")")
-                    .getVariable(pageBuilderVariable)
+                    .getVariable(positionVariable)
+                    .getVariable("pageBuilder")
                     .push(projectionIndex)
-                    .invokeVirtual(PageBuilder.class, "getBlockBuilder", BlockBuilder.class, int.class);
+                    .invokeVirtual(PageBuilder.class, "getBlockBuilder", BlockBuilder.class, int.class)
+                    .invokeStatic(DictionaryOperations.class,
+                            "appendProjectedValue",
+                            void.class,
+                            Type.class,
+                            com.facebook.presto.spi.block.Block.class,
+                            com.facebook.presto.spi.block.Block.class,
+                            int.class,
+                            BlockBuilder.class)
+                    .gotoLabel(projectDone)
+                    .visitLabel(projectRow);
+        }
 
-            trueBlock.comment("project_" + projectionIndex + "(session, block_" + inputChannels + ", position, blockBuilder)")
-                    .invokeVirtual(classDefinition.getType(),
-                            "project_" + projectionIndex,
-                            type(void.class),
-                            ImmutableList.<ParameterizedType>builder()
-                                    .add(type(ConnectorSession.class))
-                                    .addAll(nCopies(inputChannels.size(), type(com.facebook.presto.spi.block.Block.class)))
-                                    .add(type(int.class))
-                                    .add(type(BlockBuilder.class))
-                                    .build());
+        block.pushThis()
+                .getVariable("session")
+                .append(pushBlockVariables(context, inputChannels))
+                .getVariable(positionVariable)
+                .append(pushBatchStart(context, projection, commonSubExpressions));
+
+        block.comment("pageBuilder.getBlockBuilder(" + projectionIndex + ")")
+                .getVariable("pageBuilder")
+                .push(projectionIndex)
+                .invokeVirtual(PageBuilder.class, "getBlockBuilder", BlockBuilder.class, int.class);
+
+        block.comment("project_" + projectionIndex + "(session, block_" + inputChannels + ", position, blockBuilder)")
+                .invokeVirtual(classDefinition.getType(),
+                        "project_" + projectionIndex,
+                        type(void.class),
+                        ImmutableList.<ParameterizedType>builder()
+                                .add(type(ConnectorSession.class))
+                                .addAll(nCopies(inputChannels.size(), type(com.facebook.presto.spi.block.Block.class)))
+                                .addAll(positionParameterTypes(projection, commonSubExpressions))
+                                .add(type(BlockBuilder.class))
+                                .build());
+
+        if (projectedDictionaryVariable != null) {
+            block.visitLabel(projectDone);
         }
+        return block;
+    }
 
-        loopBody.append(filterBlock.build());
+    /**
+     * Projects the selected positions of the batch with a single call, or from the projected
+     * dictionary when the input channel has one.
+     */
+    private static ByteCodeNode generateProjectSelectedCall(
+            CompilerContext context,
+            ClassDefinition classDefinition,
+            CallSiteBinder callSiteBinder,
+            RowExpression projection,
+            CommonSubExpressions commonSubExpressions,
+            int projectionIndex,
+            Variable projectedDictionaryVariable)
+    {
+        List<Integer> inputChannels = getInputChannels(projection);
+        Block block = new Block(context);
+
+        LabelNode projectSelected = new LabelNode("projectSelected");
+        LabelNode projectDone = new LabelNode("projectDone");
+        if (projectedDictionaryVariable != null) {
+            Variable indexVariable = context.getVariable("index");
+            Variable selectedPositionVariable = context.getVariable("selectedPosition");
+            block.getVariable(projectedDictionaryVariable)
+                    .ifNullGoto(projectSelected)
+                    .append(ForLoop.forLoopBuilder(context)
+                            .initialize(new Block(context)
+                                    .putVariable(indexVariable, 0))
+                            .condition(new Block(context)
+                                    .comment("index < selectedCount")
+                                    .getVariable(indexVariable)
+                                    .getVariable("selectedCount")
+                                    .invokeStatic(CompilerOperations.class, "lessThan", boolean.class, int.class, int.class))
+                            .update(new Block(context)
+                                    .incrementVariable(indexVariable, (byte) 1))
+                            .body(new Block(context)
+                                    .comment("selectedPosition = selectedPositions[index];")
+                                    .getVariable("selectedPositions")
+                                    .getVariable(indexVariable)
+                                    .append(IALOAD)
+                                    .putVariable(selectedPositionVariable)
+                                    .append(generateProjectCall(context, classDefinition, callSiteBinder, projection, commonSubExpressions, projectionIndex, projectedDictionaryVariable, selectedPositionVariable)))
+                            .build())
+                    .gotoLabel(projectDone)
+                    .visitLabel(projectSelected);
+        }
+
+        block.comment("projectSelected_%s(session, block_%s, selectedPositions, selectedCount, pageBuilder.getBlockBuilder(%s))", projectionIndex, inputChannels, projectionIndex)
+                .pushThis()
+                .getVariable("session")
+                .append(pushBlockVariables(context, inputChannels))
+                .append(pushBatchStart(context, projection, commonSubExpressions))
+                .getVariable("selectedPositions")
+                .getVariable("selectedCount")
+                .getVariable("pageBuilder")
+                .push(projectionIndex)
+                .invokeVirtual(PageBuilder.class, "getBlockBuilder", BlockBuilder.class, int.class)
+                .invokeVirtual(classDefinition.getType(),
+                        "projectSelected_" + projectionIndex,
+                        type(void.class),
+                        ImmutableList.<ParameterizedType>builder()
+                                .add(type(ConnectorSession.class))
+                                .addAll(nCopies(inputChannels.size(), type(com.facebook.presto.spi.block.Block.class)))
+                                .addAll(nCopies(commonSubExpressions.hasCommonSubExpressionInputs(projection) ? 1 : 0, type(int.class)))
+                                .add(type(int[].class))
+                                .add(type(int.class))
+                                .add(type(BlockBuilder.class))
+                                .build());
+
+        if (projectedDictionaryVariable != null) {
+            block.visitLabel(projectDone);
+        }
+        return block;
+    }
+
+    /**
+     * Evaluates an expression over the dictionary of a block, unless the cache of the operator
+     * already holds its result for that dictionary. The result is null if the block has no
+     * dictionary, or if an entry failed to evaluate.
+     */
+    private static ByteCodeNode evaluateDictionary(CompilerContext context, int channel, Variable resultVariable, String methodName, Class<?> resultType, @Nullable Integer projectionIndex)
+    {
+        Variable dictionaryVariable = context.declareVariable(com.facebook.presto.spi.block.Block.class, "dictionary_" + methodName);
+        LabelNode done = new LabelNode("done");
+
+        Block block = new Block(context)
+                .comment("%s = getDictionary(block_%s) == null ? null : cached or %s(session, dictionary)", resultVariable.getName(), channel, methodName)
+                .pushNull()
+                .putVariable(resultVariable)
+                .getVariable("block_" + channel)
+                .invokeStatic(DictionaryOperations.class, "getDictionary", com.facebook.presto.spi.block.Block.class, com.facebook.presto.spi.block.Block.class)
+                .putVariable(dictionaryVariable)
+                .getVariable(dictionaryVariable)
+                .ifNullGoto(done)
+                .getVariable("dictionaryCache");
+        if (projectionIndex == null) {
+            block.getVariable(dictionaryVariable)
+                    .invokeVirtual(DictionaryCache.class, "getFilterResults", boolean[].class, com.facebook.presto.spi.block.Block.class);
+        }
+        else {
+            block.push(projectionIndex)
+                    .getVariable(dictionaryVariable)
+                    .invokeVirtual(DictionaryCache.class, "getProjectedDictionary", com.facebook.presto.spi.block.Block.class, int.class, com.facebook.presto.spi.block.Block.class);
+        }
+        block.putVariable(resultVariable)
+                .getVariable(resultVariable)
+                .ifNotNullGoto(done)
+                .pushThis()
+                .getVariable("session")
+                .getVariable(dictionaryVariable)
+                .invokeVirtual(context.getVariable("this").getType(),
+                        methodName,
+                        type(resultType),
+                        type(ConnectorSession.class),
+                        type(com.facebook.presto.spi.block.Block.class))
+                .putVariable(resultVariable)
+                .getVariable("dictionaryCache");
+        if (projectionIndex == null) {
+            block.getVariable(dictionaryVariable)
+                    .getVariable(resultVariable)
+                    .invokeVirtual(DictionaryCache.class, "setFilterResults", void.class, com.facebook.presto.spi.block.Block.class, boolean[].class);
+        }
+        else {
+            block.push(projectionIndex)
+                    .getVariable(dictionaryVariable)
+                    .getVariable(resultVariable)
+                    .invokeVirtual(DictionaryCache.class, "setProjectedDictionary", void.class, int.class, com.facebook.presto.spi.block.Block.class, com.facebook.presto.spi.block.Block.class);
+        }
+        return block.visitLabel(done);
+    }
+
+    private void generateFilterDictionaryMethod(ClassDefinition classDefinition)
+    {
+        CompilerContext context = new CompilerContext(BOOTSTRAP_METHOD);
+        MethodDefinition method = classDefinition.declareMethod(context,
+                a(PUBLIC),
+                "filterDictionary",
+                type(boolean[].class),
+                arg("session", ConnectorSession.class),
+                arg("dictionary", com.facebook.presto.spi.block.Block.class));
+
+        Variable sessionVariable = context.getVariable("session");
+        Variable dictionaryVariable = context.getVariable("dictionary");
+        Variable resultsVariable = context.declareVariable(boolean[].class, "results");
+        Variable positionVariable = context.declareVariable(int.class, "position");
+
+        Block loopBody = new Block(context)
+                .getVariable(resultsVariable)
+                .getVariable(positionVariable)
+                .pushThis()
+                .getVariable(sessionVariable)
+                .getVariable(dictionaryVariable)
+                .getVariable(positionVariable)
+                .invokeVirtual(classDefinition.getType(),
+                        "filter",
+                        type(boolean.class),
+                        type(ConnectorSession.class),
+                        type(com.facebook.presto.spi.block.Block.class),
+                        type(int.class))
+                .append(BASTORE);
 
         method.getBody()
-                .append(loop.build())
-                .visitLabel(done)
-                .comment("return position;")
+                .comment("boolean[] results = createFilterResults(dictionary);")
+                .getVariable(dictionaryVariable)
+                .invokeStatic(DictionaryOperations.class, "createFilterResults", boolean[].class, com.facebook.presto.spi.block.Block.class)
+                .putVariable(resultsVariable)
+                .append(evaluateEachDictionaryPosition(context, dictionaryVariable, positionVariable, loopBody))
+                .getVariable(resultsVariable)
+                .retObject();
+    }
+
+    private void generateProjectDictionaryMethod(ClassDefinition classDefinition, CallSiteBinder callSiteBinder, int projectionIndex, Type type)
+    {
+        CompilerContext context = new CompilerContext(BOOTSTRAP_METHOD);
+        MethodDefinition method = classDefinition.declareMethod(context,
+                a(PUBLIC),
+                "projectDictionary_" + projectionIndex,
+                type(com.facebook.presto.spi.block.Block.class),
+                arg("session", ConnectorSession.class),
+                arg("dictionary", com.facebook.presto.spi.block.Block.class));
+
+        Variable sessionVariable = context.getVariable("session");
+        Variable dictionaryVariable = context.getVariable("dictionary");
+        Variable outputVariable = context.declareVariable(BlockBuilder.class, "output");
+        Variable positionVariable = context.declareVariable(int.class, "position");
+
+        Block loopBody = new Block(context)
+                .pushThis()
+                .getVariable(sessionVariable)
+                .getVariable(dictionaryVariable)
                 .getVariable(positionVariable)
-                .retInt();
+                .getVariable(outputVariable)
+                .invokeVirtual(classDefinition.getType(),
+                        "project_" + projectionIndex,
+                        type(void.class),
+                        type(ConnectorSession.class),
+                        type(com.facebook.presto.spi.block.Block.class),
+                        type(int.class),
+                        type(BlockBuilder.class));
+
+        method.getBody()
+                .comment("BlockBuilder output = createBlockBuilder(type, dictionary);")
+                .append(loadConstant(context, callSiteBinder.bind(type, Type.class)))
+                .getVariable(dictionaryVariable)
+                .invokeStatic(DictionaryOperations.class, "createBlockBuilder", BlockBuilder.class, Type.class, com.facebook.presto.spi.block.Block.class)
+                .putVariable(outputVariable)
+                .append(evaluateEachDictionaryPosition(context, dictionaryVariable, positionVariable, loopBody))
+                .getVariable(outputVariable)
+                .invokeInterface(BlockBuilder.class, "build", com.facebook.presto.spi.block.Block.class)
+                .retObject();
     }
 
-    private void generateFilterMethod(ClassDefinition classDefinition, CallSiteBinder callSiteBinder, RowExpression filter)
+    /**
+     * Runs the loop body for each position of the dictionary. Entries that no row refers to may
+     * fail to evaluate, so on failure the method returns null and the rows are evaluated one by one.
+     */
+    private static ByteCodeNode evaluateEachDictionaryPosition(CompilerContext context, Variable dictionaryVariable, Variable positionVariable, Block loopBody)
+    {
+        ByteCodeNode loop = ForLoop.forLoopBuilder(context)
+                .initialize(new Block(context)
+                        .putVariable(positionVariable, 0))
+                .condition(new Block(context)
+                        .getVariable(positionVariable)
+                        .getVariable(dictionaryVariable)
+                        .invokeInterface(com.facebook.presto.spi.block.Block.class, "getPositionCount", int.class)
+                        .invokeStatic(CompilerOperations.class, "lessThan", boolean.class, int.class, int.class))
+                .update(new Block(context)
+                        .incrementVariable(positionVariable, (byte) 1))
+                .body(loopBody)
+                .build();
+
+        return new TryCatch(context,
+                "evaluate each dictionary position",
+                loop,
+                new Block(context)
+                        .pop()
+                        .pushNull()
+                        .retObject(),
+                type(RuntimeException.class));
+    }
+
+    private void generateFilterMethod(ClassDefinition classDefinition, CallSiteBinder callSiteBinder, RowExpression filter, CommonSubExpressions commonSubExpressions)
     {
         CompilerContext context = new CompilerContext(BOOTSTRAP_METHOD);
         MethodDefinition method = classDefinition.declareMethod(context,
@@ -207,7 +1071,7 @@ public class PageProcessorCompiler
                 ImmutableList.<NamedParameterDefinition>builder()
                         .add(arg("session", ConnectorSession.class))
                         .addAll(toBlockParameters(getInputChannels(filter)))
-                        .add(arg("position", int.class))
+                        .addAll(toPositionParameters(filter, commonSubExpressions))
                         .build());
 
         method.comment("Filter: %s", filter.toString());
@@ -217,7 +1081,7 @@ public class PageProcessorCompiler
 
         ByteCodeExpressionVisitor visitor = new ByteCodeExpressionVisitor(
                 callSiteBinder,
-                fieldReferenceCompiler(callSiteBinder, positionVariable, wasNullVariable),
+                fieldReferenceCompiler(callSiteBinder, commonSubExpressions, positionVariable, wasNullVariable),
                 metadata.getFunctionRegistry());
         ByteCodeNode body = filter.accept(visitor, context);
 
@@ -235,7 +1099,7 @@ public class PageProcessorCompiler
                 .retBoolean();
     }
 
-    private void generateProjectMethod(ClassDefinition classDefinition, CallSiteBinder callSiteBinder, String methodName, RowExpression projection)
+    private void generateProjectMethod(ClassDefinition classDefinition, CallSiteBinder callSiteBinder, String methodName, RowExpression projection, CommonSubExpressions commonSubExpressions)
     {
         CompilerContext context = new CompilerContext(BOOTSTRAP_METHOD);
         MethodDefinition method = classDefinition.declareMethod(context,
@@ -245,7 +1109,7 @@ public class PageProcessorCompiler
                 ImmutableList.<NamedParameterDefinition>builder()
                         .add(arg("session", ConnectorSession.class))
                         .addAll(toBlockParameters(getInputChannels(projection)))
-                        .add(arg("position", int.class))
+                        .addAll(toPositionParameters(projection, commonSubExpressions))
                         .add(arg("output", BlockBuilder.class))
                         .build());
 
@@ -260,7 +1124,7 @@ public class PageProcessorCompiler
                 .comment("boolean wasNull = false;")
                 .putVariable(wasNullVariable, false);
 
-        ByteCodeExpressionVisitor visitor = new ByteCodeExpressionVisitor(callSiteBinder, fieldReferenceCompiler(callSiteBinder, positionVariable, wasNullVariable), metadata.getFunctionRegistry());
+        ByteCodeExpressionVisitor visitor = new ByteCodeExpressionVisitor(callSiteBinder, fieldReferenceCompiler(callSiteBinder, commonSubExpressions, positionVariable, wasNullVariable), metadata.getFunctionRegistry());
 
         body.getVariable(outputVariable)
                 .comment("evaluate projection: " + projection.toString())
@@ -269,6 +1133,67 @@ public class PageProcessorCompiler
                 .ret();
     }
 
+    /**
+     * Generates a projection over the selected positions of a batch, with the expression inlined in the loop.
+     */
+    private void generateProjectSelectedMethod(ClassDefinition classDefinition, CallSiteBinder callSiteBinder, int projectionIndex, RowExpression projection, CommonSubExpressions commonSubExpressions)
+    {
+        ImmutableList.Builder<NamedParameterDefinition> parameters = ImmutableList.<NamedParameterDefinition>builder()
+                .add(arg("session", ConnectorSession.class))
+                .addAll(toBlockParameters(getInputChannels(projection)));
+        if (commonSubExpressions.hasCommonSubExpressionInputs(projection)) {
+            parameters.add(arg("batchStart", int.class));
+        }
+        parameters.add(arg("selectedPositions", int[].class))
+                .add(arg("selectedCount", int.class))
+                .add(arg("output", BlockBuilder.class));
+
+        CompilerContext context = new CompilerContext(BOOTSTRAP_METHOD);
+        MethodDefinition method = classDefinition.declareMethod(context,
+                a(PUBLIC),
+                "projectSelected_" + projectionIndex,
+                type(void.class),
+                parameters.build());
+
+        method.comment("Projection: %s", projection.toString());
+
+        Variable selectedPositionsVariable = context.getVariable("selectedPositions");
+        Variable outputVariable = context.getVariable("output");
+        Variable indexVariable = context.declareVariable(int.class, "index");
+        Variable positionVariable = context.declareVariable(int.class, "position");
+        Variable wasNullVariable = context.declareVariable(type(boolean.class), "wasNull");
+
+        ByteCodeExpressionVisitor visitor = new ByteCodeExpressionVisitor(callSiteBinder, fieldReferenceCompiler(callSiteBinder, commonSubExpressions, positionVariable, wasNullVariable), metadata.getFunctionRegistry());
+
+        Block loopBody = new Block(context)
+                .comment("int position = selectedPositions[index];")
+                .getVariable(selectedPositionsVariable)
+                .getVariable(indexVariable)
+                .append(IALOAD)
+                .putVariable(positionVariable)
+                .comment("boolean wasNull = false;")
+                .putVariable(wasNullVariable, false)
+                .getVariable(outputVariable)
+                .comment("evaluate projection: " + projection.toString())
+                .append(projection.accept(visitor, context))
+                .append(generateWrite(callSiteBinder, context, wasNullVariable, projection.getType()));
+
+        method.getBody()
+                .append(ForLoop.forLoopBuilder(context)
+                        .initialize(new Block(context)
+                                .putVariable(indexVariable, 0))
+                        .condition(new Block(context)
+                                .comment("index < selectedCount")
+                                .getVariable(indexVariable)
+                                .getVariable("selectedCount")
+                                .invokeStatic(CompilerOperations.class, "lessThan", boolean.class, int.class, int.class))
+                        .update(new Block(context)
+                                .incrementVariable(indexVariable, (byte) 1))
+                        .body(loopBody)
+                        .build())
+                .ret();
+    }
+
     private static List<Integer> getInputChannels(Iterable<RowExpression> expressions)
     {
         TreeSet<Integer> channels = new TreeSet<>();
@@ -294,6 +1219,31 @@ public class PageProcessorCompiler
         return parameters.build();
     }
 
+    /**
+     * Expressions that refer to common subexpressions also take the start of the batch, since the
+     * blocks of the common subexpressions only hold the positions of the current batch.
+     */
+    private static List<NamedParameterDefinition> toPositionParameters(RowExpression expression, CommonSubExpressions commonSubExpressions)
+    {
+        if (commonSubExpressions.hasCommonSubExpressionInputs(expression)) {
+            return ImmutableList.of(arg("position", int.class), arg("batchStart", int.class));
+        }
+        return ImmutableList.of(arg("position", int.class));
+    }
+
+    private static List<ParameterizedType> positionParameterTypes(RowExpression expression, CommonSubExpressions commonSubExpressions)
+    {
+        return nCopies(toPositionParameters(expression, commonSubExpressions).size(), type(int.class));
+    }
+
+    private static ByteCodeNode pushBatchStart(CompilerContext context, RowExpression expression, CommonSubExpressions commonSubExpressions)
+    {
+        if (commonSubExpressions.hasCommonSubExpressionInputs(expression)) {
+            return new Block(context).getVariable("batchStart");
+        }
+        return NOP;
+    }
+
     private static ByteCodeNode pushBlockVariables(CompilerContext context, List<Integer> inputs)
     {
         Block block = new Block(context);
@@ -303,7 +1253,11 @@ public class PageProcessorCompiler
         return block;
     }
 
-    private RowExpressionVisitor<CompilerContext, ByteCodeNode> fieldReferenceCompiler(final CallSiteBinder callSiteBinder, final Variable positionVariable, final Variable wasNullVariable)
+    private RowExpressionVisitor<CompilerContext, ByteCodeNode> fieldReferenceCompiler(
+            final CallSiteBinder callSiteBinder,
+            final CommonSubExpressions commonSubExpressions,
+            final Variable positionVariable,
+            final Variable wasNullVariable)
     {
         return new RowExpressionVisitor<CompilerContext, ByteCodeNode>()
         {
@@ -317,7 +1271,7 @@ public class PageProcessorCompiler
                 Block isNullCheck = new Block(context)
                         .setDescription(format("block_%d.get%s()", field, type))
                         .getVariable("block_" + field)
-                        .getVariable(positionVariable)
+                        .append(pushBlockPosition(context, field))
                         .invokeInterface(com.facebook.presto.spi.block.Block.class, "isNull", boolean.class, int.class);
 
                 Block isNull = new Block(context)
@@ -329,12 +1283,24 @@ public class PageProcessorCompiler
                 Block isNotNull = new Block(context)
                         .append(loadConstant(context, callSiteBinder.bind(type, Type.class)))
                         .getVariable("block_" + field)
-                        .getVariable(positionVariable)
+                        .append(pushBlockPosition(context, field))
                         .invokeInterface(Type.class, methodName, javaType, com.facebook.presto.spi.block.Block.class, int.class);
 
                 return new IfStatement(context, isNullCheck, isNull, isNotNull);
             }
 
+            private ByteCodeNode pushBlockPosition(CompilerContext context, int field)
+            {
+                if (!commonSubExpressions.isCommonSubExpression(field)) {
+                    return new Block(context).getVariable(positionVariable);
+                }
+                // the blocks of common subexpressions start at the beginning of the batch
+                return new Block(context)
+                        .getVariable(positionVariable)
+                        .getVariable("batchStart")
+                        .invokeStatic(SelectionOperations.class, "getBatchOffset", int.class, int.class, int.class);
+            }
+
             @Override
             public ByteCodeNode visitCall(CallExpression call, CompilerContext context)
             {
@@ -0,0 +1,128 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.gen;
+
+import com.facebook.presto.spi.PageBuilder;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.block.BlockBuilderStatus;
+import com.facebook.presto.spi.type.Type;
+
+// This methods are statically bound by the compiler
+@SuppressWarnings("UnusedDeclaration")
+public final class SelectionOperations
+{
+    /**
+     * Number of positions filtered before the projections run over the selected ones.
+     */
+    public static final int BATCH_SIZE = 1024;
+
+    private SelectionOperations()
+    {
+    }
+
+    public static int[] createSelectedPositions(int start, int end)
+    {
+        return new int[Math.max(0, Math.min(end - start, BATCH_SIZE))];
+    }
+
+    public static int getBatchEnd(int position, int end)
+    {
+        return Math.min(end, position + BATCH_SIZE);
+    }
+
+    public static int getBatchOffset(int position, int batchStart)
+    {
+        return position - batchStart;
+    }
+
+    public static BlockBuilder createBlockBuilder(Type type, int batchStart, int batchEnd)
+    {
+        return type.createBlockBuilder(new BlockBuilderStatus(), batchEnd - batchStart);
+    }
+
+    /**
+     * Appends nulls for the positions of the batch that were not selected, so that the values of a
+     * common subexpression are found at the offset of their position in the batch.
+     */
+    public static void appendNulls(BlockBuilder blockBuilder, int batchStart, int position)
+    {
+        while (blockBuilder.getPositionCount() < position - batchStart) {
+            blockBuilder.appendNull();
+        }
+    }
+
+    /**
+     * Loads the selected positions of a block the filter did not read, so lazy blocks only decode those.
+     */
+    public static void loadPositions(Block block, int[] selectedPositions, int selectedCount)
+    {
+        if (selectedCount > 0) {
+            block.assureLoaded(selectedPositions, selectedCount);
+        }
+    }
+
+    public static void declarePositions(PageBuilder pageBuilder, int count)
+    {
+        for (int i = 0; i < count; i++) {
+            pageBuilder.declarePosition();
+        }
+    }
+
+    /**
+     * Copies the selected positions of a block, with separate loops for the common fixed width types.
+     */
+    public static void copyPositions(Type type, Block block, int[] selectedPositions, int selectedCount, BlockBuilder output)
+    {
+        Class<?> javaType = type.getJavaType();
+        if (javaType == long.class) {
+            for (int i = 0; i < selectedCount; i++) {
+                int position = selectedPositions[i];
+                if (block.isNull(position)) {
+                    output.appendNull();
+                }
+                else {
+                    type.writeLong(output, type.getLong(block, position));
+                }
+            }
+        }
+        else if (javaType == double.class) {
+            for (int i = 0; i < selectedCount; i++) {
+                int position = selectedPositions[i];
+                if (block.isNull(position)) {
+                    output.appendNull();
+                }
+                else {
+                    type.writeDouble(output, type.getDouble(block, position));
+                }
+            }
+        }
+        else if (javaType == boolean.class) {
+            for (int i = 0; i < selectedCount; i++) {
+                int position = selectedPositions[i];
+                if (block.isNull(position)) {
+                    output.appendNull();
+                }
+                else {
+                    type.writeBoolean(output, type.getBoolean(block, position));
+                }
+            }
+        }
+        else {
+            for (int i = 0; i < selectedCount; i++) {
+                type.appendTo(block, selectedPositions[i], output);
+            }
+        }
+    }
+}
@@ -18,6 +18,7 @@ import com.facebook.presto.metadata.PartitionResult;
 import com.facebook.presto.split.SampledSplitSource;
 import com.facebook.presto.split.SplitManager;
 import com.facebook.presto.split.SplitSource;
+import com.facebook.presto.sql.planner.PlanFragment.PlanDistribution;
 import com.facebook.presto.sql.planner.plan.AggregationNode;
 import com.facebook.presto.sql.planner.plan.DistinctLimitNode;
 import com.facebook.presto.sql.planner.plan.FilterNode;
@@ -27,6 +28,7 @@ import com.facebook.presto.sql.planner.plan.LimitNode;
 import com.facebook.presto.sql.planner.plan.MarkDistinctNode;
 import com.facebook.presto.sql.planner.plan.OutputNode;
 import com.facebook.presto.sql.planner.plan.PlanNode;
+import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.facebook.presto.sql.planner.plan.PlanVisitor;
 import com.facebook.presto.sql.planner.plan.ProjectNode;
 import com.facebook.presto.sql.planner.plan.RemoteSourceNode;
@@ -44,6 +46,7 @@ import com.facebook.presto.sql.planner.plan.UnnestNode;
 import com.facebook.presto.sql.planner.plan.ValuesNode;
 import com.facebook.presto.sql.planner.plan.WindowNode;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 
 import javax.inject.Inject;
 
@@ -66,16 +69,25 @@ public class DistributedExecutionPlanner
     {
         PlanFragment currentFragment = root.getFragment();
 
-        // get splits for this fragment, this is lazy so split assignments aren't actually calculated here
-        Visitor visitor = new Visitor();
-        Optional<SplitSource> splits = currentFragment.getRoot().accept(visitor, null);
-
         // create child stages
         ImmutableList.Builder<StageExecutionPlan> dependencies = ImmutableList.builder();
         for (SubPlan childPlan : root.getChildren()) {
             dependencies.add(plan(childPlan));
         }
 
+        // get splits for this fragment, this is lazy so split assignments aren't actually calculated here
+        Visitor visitor = new Visitor();
+        if (currentFragment.getDistribution() == PlanDistribution.BUCKETED) {
+            // each table of a bucketed fragment has its own splits
+            ImmutableMap.Builder<PlanNodeId, SplitSource> splits = ImmutableMap.builder();
+            for (PlanNode node : currentFragment.getPartitionedSourceNodes()) {
+                splits.put(node.getId(), node.accept(visitor, null).get());
+            }
+            return new StageExecutionPlan(currentFragment, splits.build(), dependencies.build());
+        }
+
+        Optional<SplitSource> splits = currentFragment.getRoot().accept(visitor, null);
+
         return new StageExecutionPlan(currentFragment,
                 splits,
                 dependencies.build()
@@ -0,0 +1,242 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.planner;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.metadata.ColumnHandle;
+import com.facebook.presto.metadata.Metadata;
+import com.facebook.presto.spi.block.SortOrder;
+import com.facebook.presto.sql.planner.plan.FilterNode;
+import com.facebook.presto.sql.planner.plan.LimitNode;
+import com.facebook.presto.sql.planner.plan.MarkDistinctNode;
+import com.facebook.presto.sql.planner.plan.PlanNode;
+import com.facebook.presto.sql.planner.plan.PlanVisitor;
+import com.facebook.presto.sql.planner.plan.ProjectNode;
+import com.facebook.presto.sql.planner.plan.RemoteSourceNode;
+import com.facebook.presto.sql.planner.plan.SortNode;
+import com.facebook.presto.sql.planner.plan.TableScanNode;
+import com.facebook.presto.sql.planner.plan.WindowNode;
+import com.facebook.presto.sql.tree.Expression;
+import com.facebook.presto.sql.tree.QualifiedNameReference;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Derives the symbols that the rows produced by a plan node are grouped on within each driver of
+ * the fragment. For every leading subset of the symbols, the rows with equal values are adjacent.
+ * The rows are grouped when they are sorted, when they are read from a table whose splits are
+ * grouped, and through the nodes that keep the order of their input.
+ * <p>
+ * The derivations also track the symbols the rows are sorted on in ascending order, which holds
+ * for the output of a sort, since a sort always reads a single stream of rows, and for the rows
+ * a sort sends through an exchange from a fragment that runs in a single task.
+ */
+public final class GroupingPropertyDerivations
+{
+    private GroupingPropertyDerivations() {}
+
+    public static List<Symbol> deriveGroupingSymbols(PlanNode node, Metadata metadata, Session session, int taskConcurrency)
+    {
+        checkNotNull(node, "node is null");
+        return node.accept(new Visitor(metadata, session, taskConcurrency), null);
+    }
+
+    /**
+     * Returns true if the rows produced by the node are grouped on exactly the given symbols.
+     */
+    public static boolean isGroupedOn(PlanNode node, List<Symbol> symbols, Metadata metadata, Session session, int taskConcurrency)
+    {
+        if (symbols.isEmpty()) {
+            return false;
+        }
+        List<Symbol> groupingSymbols = deriveGroupingSymbols(node, metadata, session, taskConcurrency);
+        return groupingSymbols.size() >= symbols.size() && ImmutableSet.copyOf(groupingSymbols.subList(0, symbols.size())).equals(ImmutableSet.copyOf(symbols));
+    }
+
+    /**
+     * Derives the symbols that all rows produced by the node are sorted on in ascending order.
+     * The order of null values is not specified.
+     */
+    public static List<Symbol> deriveSortedSymbols(PlanNode node)
+    {
+        checkNotNull(node, "node is null");
+        return node.accept(new SortedSymbolsVisitor(), null);
+    }
+
+    private static List<Symbol> translate(ProjectNode node, List<Symbol> sourceSymbols)
+    {
+        Map<Symbol, Symbol> outputs = new HashMap<>();
+        for (Map.Entry<Symbol, Expression> entry : node.getAssignments().entrySet()) {
+            if (entry.getValue() instanceof QualifiedNameReference) {
+                outputs.putIfAbsent(Symbol.fromQualifiedName(((QualifiedNameReference) entry.getValue()).getName()), entry.getKey());
+            }
+        }
+
+        ImmutableList.Builder<Symbol> symbols = ImmutableList.builder();
+        for (Symbol symbol : sourceSymbols) {
+            Symbol output = outputs.get(symbol);
+            if (output == null) {
+                break;
+            }
+            symbols.add(output);
+        }
+        return symbols.build();
+    }
+
+    private static class Visitor
+            extends PlanVisitor<Void, List<Symbol>>
+    {
+        private final Metadata metadata;
+        private final Session session;
+        private final int taskConcurrency;
+
+        public Visitor(Metadata metadata, Session session, int taskConcurrency)
+        {
+            this.metadata = checkNotNull(metadata, "metadata is null");
+            this.session = checkNotNull(session, "session is null");
+            this.taskConcurrency = taskConcurrency;
+        }
+
+        @Override
+        protected List<Symbol> visitPlan(PlanNode node, Void context)
+        {
+            return ImmutableList.of();
+        }
+
+        @Override
+        public List<Symbol> visitTableScan(TableScanNode node, Void context)
+        {
+            Map<ColumnHandle, Symbol> symbols = new HashMap<>();
+            for (Map.Entry<Symbol, ColumnHandle> entry : node.getAssignments().entrySet()) {
+                symbols.put(entry.getValue(), entry.getKey());
+            }
+
+            ImmutableList.Builder<Symbol> groupingSymbols = ImmutableList.builder();
+            for (ColumnHandle column : metadata.getGroupingColumns(session, node.getTable())) {
+                Symbol symbol = symbols.get(column);
+                if (symbol == null) {
+                    break;
+                }
+                groupingSymbols.add(symbol);
+            }
+            return groupingSymbols.build();
+        }
+
+        @Override
+        public List<Symbol> visitSort(SortNode node, Void context)
+        {
+            return node.getOrderBy();
+        }
+
+        @Override
+        public List<Symbol> visitWindow(WindowNode node, Void context)
+        {
+            // the output of windows that are partitioned across several drivers is interleaved
+            if (taskConcurrency > 1 && !node.getPartitionBy().isEmpty()) {
+                return ImmutableList.of();
+            }
+
+            Set<Symbol> symbols = new LinkedHashSet<>();
+            symbols.addAll(node.getPartitionBy());
+            symbols.addAll(node.getOrderBy());
+            return ImmutableList.copyOf(symbols);
+        }
+
+        @Override
+        public List<Symbol> visitProject(ProjectNode node, Void context)
+        {
+            return translate(node, node.getSource().accept(this, context));
+        }
+
+        @Override
+        public List<Symbol> visitFilter(FilterNode node, Void context)
+        {
+            return node.getSource().accept(this, context);
+        }
+
+        @Override
+        public List<Symbol> visitLimit(LimitNode node, Void context)
+        {
+            return node.getSource().accept(this, context);
+        }
+
+        @Override
+        public List<Symbol> visitMarkDistinct(MarkDistinctNode node, Void context)
+        {
+            return node.getSource().accept(this, context);
+        }
+    }
+
+    private static class SortedSymbolsVisitor
+            extends PlanVisitor<Void, List<Symbol>>
+    {
+        @Override
+        protected List<Symbol> visitPlan(PlanNode node, Void context)
+        {
+            return ImmutableList.of();
+        }
+
+        @Override
+        public List<Symbol> visitSort(SortNode node, Void context)
+        {
+            ImmutableList.Builder<Symbol> sortedSymbols = ImmutableList.builder();
+            for (Symbol symbol : node.getOrderBy()) {
+                SortOrder sortOrder = node.getOrderings().get(symbol);
+                if (!sortOrder.isAscending()) {
+                    break;
+                }
+                sortedSymbols.add(symbol);
+            }
+            return sortedSymbols.build();
+        }
+
+        @Override
+        public List<Symbol> visitRemoteSource(RemoteSourceNode node, Void context)
+        {
+            return node.getSortedSymbols();
+        }
+
+        @Override
+        public List<Symbol> visitProject(ProjectNode node, Void context)
+        {
+            return translate(node, node.getSource().accept(this, context));
+        }
+
+        @Override
+        public List<Symbol> visitFilter(FilterNode node, Void context)
+        {
+            return node.getSource().accept(this, context);
+        }
+
+        @Override
+        public List<Symbol> visitLimit(LimitNode node, Void context)
+        {
+            return node.getSource().accept(this, context);
+        }
+
+        @Override
+        public List<Symbol> visitMarkDistinct(MarkDistinctNode node, Void context)
+        {
+            return node.getSource().accept(this, context);
+        }
+    }
+}
@@ -20,9 +20,11 @@ import com.facebook.presto.index.IndexManager;
 import com.facebook.presto.metadata.ColumnHandle;
 import com.facebook.presto.metadata.Metadata;
 import com.facebook.presto.metadata.Signature;
+import com.facebook.presto.operator.AdaptivePartialAggregation;
 import com.facebook.presto.operator.AggregationOperator.AggregationOperatorFactory;
 import com.facebook.presto.operator.CursorProcessor;
 import com.facebook.presto.operator.DriverFactory;
+import com.facebook.presto.operator.DynamicFilter;
 import com.facebook.presto.operator.ExchangeClient;
 import com.facebook.presto.operator.ExchangeOperator.ExchangeOperatorFactory;
 import com.facebook.presto.operator.FilterAndProjectOperator;
@@ -39,10 +41,13 @@ import com.facebook.presto.operator.LimitOperator.LimitOperatorFactory;
 import com.facebook.presto.operator.LookupJoinOperators;
 import com.facebook.presto.operator.LookupSourceSupplier;
 import com.facebook.presto.operator.MarkDistinctOperator.MarkDistinctOperatorFactory;
+import com.facebook.presto.operator.MergeJoinOperator.MergeJoinOperatorFactory;
 import com.facebook.presto.operator.OperatorFactory;
 import com.facebook.presto.operator.OrderByOperator.OrderByOperatorFactory;
 import com.facebook.presto.operator.OutputFactory;
 import com.facebook.presto.operator.PageProcessor;
+import com.facebook.presto.operator.PagesIndex;
+import com.facebook.presto.operator.PartitionedHashBuilderOperator.PartitionedHashBuilderOperatorFactory;
 import com.facebook.presto.operator.ProjectionFunction;
 import com.facebook.presto.operator.ProjectionFunctions;
 import com.facebook.presto.operator.RowNumberOperator;
@@ -51,6 +56,7 @@ import com.facebook.presto.operator.ScanFilterAndProjectOperator;
 import com.facebook.presto.operator.SetBuilderOperator.SetBuilderOperatorFactory;
 import com.facebook.presto.operator.SetBuilderOperator.SetSupplier;
 import com.facebook.presto.operator.SourceOperatorFactory;
+import com.facebook.presto.operator.StreamingAggregationOperator.StreamingAggregationOperatorFactory;
 import com.facebook.presto.operator.TableScanOperator.TableScanOperatorFactory;
 import com.facebook.presto.operator.TopNOperator.TopNOperatorFactory;
 import com.facebook.presto.operator.TopNRowNumberOperator;
@@ -71,6 +77,8 @@ import com.facebook.presto.spi.RecordSet;
 import com.facebook.presto.spi.block.SortOrder;
 import com.facebook.presto.spi.type.BigintType;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spiller.SpillerConfig;
+import com.facebook.presto.spiller.SpillerFactory;
 import com.facebook.presto.split.MappedRecordSet;
 import com.facebook.presto.split.PageSinkManager;
 import com.facebook.presto.split.PageSourceProvider;
@@ -78,6 +86,7 @@ import com.facebook.presto.sql.gen.ExpressionCompiler;
 import com.facebook.presto.sql.parser.SqlParser;
 import com.facebook.presto.sql.planner.optimizations.IndexJoinOptimizer;
 import com.facebook.presto.sql.planner.plan.AggregationNode;
+import com.facebook.presto.sql.planner.plan.AggregationNode.Step;
 import com.facebook.presto.sql.planner.plan.DistinctLimitNode;
 import com.facebook.presto.sql.planner.plan.FilterNode;
 import com.facebook.presto.sql.planner.plan.IndexJoinNode;
@@ -87,6 +96,7 @@ import com.facebook.presto.sql.planner.plan.LimitNode;
 import com.facebook.presto.sql.planner.plan.MarkDistinctNode;
 import com.facebook.presto.sql.planner.plan.OutputNode;
 import com.facebook.presto.sql.planner.plan.PlanNode;
+import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.facebook.presto.sql.planner.plan.PlanVisitor;
 import com.facebook.presto.sql.planner.plan.ProjectNode;
 import com.facebook.presto.sql.planner.plan.RemoteSourceNode;
@@ -114,6 +124,7 @@ import com.google.common.base.Functions;
 import com.google.common.base.Predicates;
 import com.google.common.base.Supplier;
 import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -138,20 +149,32 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 
+import static com.facebook.presto.SystemSessionProperties.getJoinBuildConcurrency;
+import static com.facebook.presto.SystemSessionProperties.getTaskConcurrency;
+import static com.facebook.presto.SystemSessionProperties.isAdaptivePartialAggregationEnabled;
+import static com.facebook.presto.SystemSessionProperties.isDynamicFilteringBloomFilterEnabled;
+import static com.facebook.presto.SystemSessionProperties.isDynamicFilteringEnabled;
+import static com.facebook.presto.SystemSessionProperties.isMergeJoinEnabled;
+import static com.facebook.presto.SystemSessionProperties.isSpillEnabled;
 import static com.facebook.presto.operator.DistinctLimitOperator.DistinctLimitOperatorFactory;
 import static com.facebook.presto.operator.TableCommitOperator.TableCommitOperatorFactory;
 import static com.facebook.presto.operator.TableCommitOperator.TableCommitter;
 import static com.facebook.presto.operator.TableWriterOperator.TableWriterOperatorFactory;
 import static com.facebook.presto.operator.UnnestOperator.UnnestOperatorFactory;
 import static com.facebook.presto.spi.StandardErrorCode.COMPILER_ERROR;
+import static com.facebook.presto.sql.ExpressionUtils.extractConjuncts;
 import static com.facebook.presto.sql.analyzer.ExpressionAnalyzer.getExpressionTypes;
 import static com.facebook.presto.sql.analyzer.ExpressionAnalyzer.getExpressionTypesFromInput;
+import static com.facebook.presto.sql.planner.GroupingPropertyDerivations.deriveSortedSymbols;
+import static com.facebook.presto.sql.planner.GroupingPropertyDerivations.isGroupedOn;
 import static com.facebook.presto.sql.planner.plan.TableWriterNode.CreateHandle;
 import static com.facebook.presto.sql.planner.plan.TableWriterNode.InsertHandle;
 import static com.facebook.presto.sql.planner.plan.TableWriterNode.WriterTarget;
@@ -182,6 +205,17 @@ public class LocalExecutionPlanner
     private final IndexJoinLookupStats indexJoinLookupStats;
     private final DataSize maxPartialAggregationMemorySize;
     private final int writerCount;
+    private final SpillerFactory spillerFactory;
+    private final boolean spillEnabled;
+    private final boolean dynamicFilteringEnabled;
+    private final boolean dynamicFilteringBloomFilterEnabled;
+    private final DataSize dynamicFilteringMaxBloomFilterSize;
+    private final int joinBuildConcurrency;
+    private final int taskConcurrency;
+    private final boolean adaptivePartialAggregationEnabled;
+    private final boolean mergeJoinEnabled;
+    private final AdaptivePartialAggregation adaptivePartialAggregation;
+    private final PagesIndex.Factory pagesIndexFactory;
 
     @Inject
     public LocalExecutionPlanner(
@@ -194,7 +228,10 @@ public class LocalExecutionPlanner
             ExpressionCompiler compiler,
             IndexJoinLookupStats indexJoinLookupStats,
             CompilerConfig compilerConfig,
-            TaskManagerConfig taskManagerConfig)
+            TaskManagerConfig taskManagerConfig,
+            SpillerFactory spillerFactory,
+            SpillerConfig spillerConfig,
+            PagesIndex.Factory pagesIndexFactory)
     {
         checkNotNull(compilerConfig, "compilerConfig is null");
         this.pageSourceProvider = checkNotNull(pageSourceProvider, "pageSourceProvider is null");
@@ -208,6 +245,19 @@ public class LocalExecutionPlanner
         this.maxIndexMemorySize = checkNotNull(taskManagerConfig, "taskManagerConfig is null").getMaxTaskIndexMemoryUsage();
         this.maxPartialAggregationMemorySize = taskManagerConfig.getMaxPartialAggregationMemoryUsage();
         this.writerCount = taskManagerConfig.getWriterCount();
+        this.dynamicFilteringEnabled = taskManagerConfig.isDynamicFilteringEnabled();
+        this.dynamicFilteringBloomFilterEnabled = taskManagerConfig.isDynamicFilteringBloomFilterEnabled();
+        this.dynamicFilteringMaxBloomFilterSize = taskManagerConfig.getDynamicFilteringMaxBloomFilterSize();
+        this.joinBuildConcurrency = taskManagerConfig.getJoinBuildConcurrency();
+        this.taskConcurrency = taskManagerConfig.getTaskConcurrency();
+        this.adaptivePartialAggregationEnabled = taskManagerConfig.isAdaptivePartialAggregationEnabled();
+        this.mergeJoinEnabled = taskManagerConfig.isMergeJoinEnabled();
+        this.adaptivePartialAggregation = new AdaptivePartialAggregation(
+                taskManagerConfig.getAdaptivePartialAggregationMinRows(),
+                taskManagerConfig.getAdaptivePartialAggregationUniqueRowsRatio());
+        this.spillerFactory = checkNotNull(spillerFactory, "spillerFactory is null");
+        this.spillEnabled = checkNotNull(spillerConfig, "spillerConfig is null").isSpillEnabled();
+        this.pagesIndexFactory = checkNotNull(pagesIndexFactory, "pagesIndexFactory is null");
 
         interpreterEnabled = compilerConfig.isInterpreterEnabled();
     }
@@ -217,10 +267,24 @@ public class LocalExecutionPlanner
             List<Symbol> outputLayout,
             Map<Symbol, Type> types,
             OutputFactory outputOperatorFactory)
+    {
+        return plan(session, plan, outputLayout, types, ImmutableList.of(), outputOperatorFactory);
+    }
+
+    /**
+     * Plans a fragment whose partitioned sources run a driver for each split. The operators
+     * that need all rows of a group are fed from such drivers through an in-memory exchange.
+     */
+    public LocalExecutionPlan plan(Session session,
+            PlanNode plan,
+            List<Symbol> outputLayout,
+            Map<Symbol, Type> types,
+            List<PlanNodeId> partitionedSources,
+            OutputFactory outputOperatorFactory)
     {
         LocalExecutionPlanContext context = new LocalExecutionPlanContext(session, types);
 
-        PhysicalOperation physicalOperation = enforceLayout(outputLayout, context, plan.accept(new Visitor(session), context));
+        PhysicalOperation physicalOperation = enforceLayout(outputLayout, context, plan.accept(new Visitor(session, partitionedSources), context));
 
         DriverFactory driverFactory = new DriverFactory(
                 context.isInputDriver(),
@@ -265,6 +329,8 @@ public class LocalExecutionPlanner
         private final Map<Symbol, Type> types;
         private final List<DriverFactory> driverFactories;
         private final Optional<IndexSourceContext> indexSourceContext;
+        // dynamic filters of the joins, by the table scan on the probe side they apply to
+        private final Multimap<PlanNodeId, DynamicFilter> dynamicFilters;
 
         private int nextOperatorId;
         private boolean inputDriver = true;
@@ -272,15 +338,21 @@ public class LocalExecutionPlanner
 
         public LocalExecutionPlanContext(Session session, Map<Symbol, Type> types)
         {
-            this(session, types, new ArrayList<>(), Optional.empty());
+            this(session, types, new ArrayList<>(), Optional.empty(), ArrayListMultimap.create());
         }
 
-        private LocalExecutionPlanContext(Session session, Map<Symbol, Type> types, List<DriverFactory> driverFactories, Optional<IndexSourceContext> indexSourceContext)
+        private LocalExecutionPlanContext(
+                Session session,
+                Map<Symbol, Type> types,
+                List<DriverFactory> driverFactories,
+                Optional<IndexSourceContext> indexSourceContext,
+                Multimap<PlanNodeId, DynamicFilter> dynamicFilters)
         {
             this.session = session;
             this.types = types;
             this.driverFactories = driverFactories;
             this.indexSourceContext = indexSourceContext;
+            this.dynamicFilters = dynamicFilters;
         }
 
         public void addDriverFactory(DriverFactory driverFactory)
@@ -308,6 +380,16 @@ public class LocalExecutionPlanner
             return indexSourceContext;
         }
 
+        public void addDynamicFilter(PlanNodeId tableScanId, DynamicFilter dynamicFilter)
+        {
+            dynamicFilters.put(checkNotNull(tableScanId, "tableScanId is null"), checkNotNull(dynamicFilter, "dynamicFilter is null"));
+        }
+
+        public List<DynamicFilter> getDynamicFilters(PlanNodeId tableScanId)
+        {
+            return ImmutableList.copyOf(dynamicFilters.get(tableScanId));
+        }
+
         private int getNextOperatorId()
         {
             return nextOperatorId++;
@@ -326,12 +408,12 @@ public class LocalExecutionPlanner
         public LocalExecutionPlanContext createSubContext()
         {
             checkState(!indexSourceContext.isPresent(), "index build plan can not have sub-contexts");
-            return new LocalExecutionPlanContext(session, types, driverFactories, indexSourceContext);
+            return new LocalExecutionPlanContext(session, types, driverFactories, indexSourceContext, dynamicFilters);
         }
 
         public LocalExecutionPlanContext createIndexSourceSubContext(IndexSourceContext indexSourceContext)
         {
-            return new LocalExecutionPlanContext(session, types, driverFactories, Optional.of(indexSourceContext));
+            return new LocalExecutionPlanContext(session, types, driverFactories, Optional.of(indexSourceContext), dynamicFilters);
         }
 
         public int getDriverInstanceCount()
@@ -380,10 +462,23 @@ public class LocalExecutionPlanner
             extends PlanVisitor<LocalExecutionPlanContext, PhysicalOperation>
     {
         private final Session session;
+        private final Set<PlanNodeId> partitionedSources;
 
-        private Visitor(Session session)
+        private Visitor(Session session, List<PlanNodeId> partitionedSources)
         {
             this.session = session;
+            this.partitionedSources = ImmutableSet.copyOf(partitionedSources);
+        }
+
+        /**
+         * Returns true if the plan reads a partitioned source, whose drivers each process one split.
+         */
+        private boolean readsPartitionedSource(PlanNode node)
+        {
+            if (node instanceof TableScanNode) {
+                return partitionedSources.contains(node.getId());
+            }
+            return node.getSources().stream().anyMatch(this::readsPartitionedSource);
         }
 
         @Override
@@ -490,10 +585,17 @@ public class LocalExecutionPlanner
         }
 
         @Override
-        public PhysicalOperation visitWindow(final WindowNode node, LocalExecutionPlanContext context)
+        public PhysicalOperation visitWindow(WindowNode node, LocalExecutionPlanContext context)
         {
-            final PhysicalOperation source = node.getSource().accept(this, context);
+            int concurrency = getTaskConcurrency(context.getSession(), taskConcurrency);
+            if (concurrency > 1 && !node.getPartitionBy().isEmpty()) {
+                return createLocalPartitionedOperation(node.getSource(), node.getPartitionBy(), node.getHashSymbol(), concurrency, context, (source, partitionContext) -> planWindow(node, source, partitionContext));
+            }
+            return planWindow(node, node.getSource().accept(this, context), context);
+        }
 
+        private PhysicalOperation planWindow(WindowNode node, PhysicalOperation source, LocalExecutionPlanContext context)
+        {
             List<Symbol> partitionBySymbols = node.getPartitionBy();
             List<Symbol> orderBySymbols = node.getOrderBy();
             List<Integer> partitionChannels = ImmutableList.copyOf(getChannelsForSymbols(partitionBySymbols, source.getLayout()));
@@ -558,7 +660,8 @@ public class LocalExecutionPlanner
                     node.getFrame().getType(),
                     node.getFrame().getStartType(), frameStartChannel,
                     node.getFrame().getEndType(), frameEndChannel,
-                    1_000_000);
+                    1_000_000,
+                    pagesIndexFactory);
 
             return new PhysicalOperation(operatorFactory, outputMappings.build(), source);
         }
@@ -613,7 +716,9 @@ public class LocalExecutionPlanner
                     outputChannels.build(),
                     10_000,
                     orderByChannels,
-                    sortOrder.build());
+                    sortOrder.build(),
+                    getSpillerFactory(context.getSession()),
+                    pagesIndexFactory);
 
             return new PhysicalOperation(operator, source.getLayout(), source);
         }
@@ -647,13 +752,73 @@ public class LocalExecutionPlanner
         @Override
         public PhysicalOperation visitAggregation(AggregationNode node, LocalExecutionPlanContext context)
         {
+            int concurrency = getTaskConcurrency(context.getSession(), taskConcurrency);
+
+            // input that is already grouped on the keys is aggregated one group at a time, in the drivers that produce it
+            boolean streaming = isGroupedOn(node.getSource(), node.getGroupBy(), metadata, context.getSession(), concurrency);
+            // the groups of a bucketed table can span the splits of a bucket
+            boolean partitionedInput = readsPartitionedSource(node.getSource());
+            if ((concurrency > 1 || partitionedInput) && !node.getGroupBy().isEmpty() && node.getStep() != Step.PARTIAL && !streaming) {
+                return createLocalPartitionedOperation(node.getSource(), node.getGroupBy(), node.getHashSymbol(), concurrency, context, (source, partitionContext) -> planGroupByAggregation(node, source, false, partitionContext));
+            }
+
             PhysicalOperation source = node.getSource().accept(this, context);
 
             if (node.getGroupBy().isEmpty()) {
                 return planGlobalAggregation(context.getNextOperatorId(), node, source);
             }
 
-            return planGroupByAggregation(node, source, context);
+            return planGroupByAggregation(node, source, streaming, context);
+        }
+
+        /**
+         * Plans an operator that processes the rows with the same keys together in several drivers.
+         * The source is hash partitioned on the keys into the drivers, and their output is gathered
+         * back into a single stream, so the operators above are planned as before.
+         */
+        private PhysicalOperation createLocalPartitionedOperation(
+                PlanNode sourceNode,
+                List<Symbol> partitionSymbols,
+                Optional<Symbol> hashSymbol,
+                int concurrency,
+                LocalExecutionPlanContext context,
+                BiFunction<PhysicalOperation, LocalExecutionPlanContext, PhysicalOperation> planner)
+        {
+            LocalExecutionPlanContext sourceContext = context.createSubContext();
+            PhysicalOperation source = sourceNode.accept(this, sourceContext);
+            List<Integer> partitionChannels = getChannelsForSymbols(partitionSymbols, source.getLayout());
+            Optional<Integer> hashChannel = hashSymbol.map(channelGetter(source));
+
+            InMemoryExchange partitionExchange = new InMemoryExchange(source.getTypes(), concurrency, partitionChannels, hashChannel);
+            context.addDriverFactory(new DriverFactory(
+                    sourceContext.isInputDriver(),
+                    false,
+                    ImmutableList.<OperatorFactory>builder()
+                            .addAll(source.getOperatorFactories())
+                            .add(partitionExchange.createSinkFactory(sourceContext.getNextOperatorId()))
+                            .build()));
+            partitionExchange.noMoreSinkFactories();
+
+            // each driver reads one partition
+            LocalExecutionPlanContext partitionContext = context.createSubContext();
+            OperatorFactory partitionSource = new InMemoryExchangeSourceOperatorFactory(partitionContext.getNextOperatorId(), partitionExchange);
+            PhysicalOperation operation = planner.apply(new PhysicalOperation(partitionSource, source.getLayout()), partitionContext);
+
+            InMemoryExchange gatherExchange = new InMemoryExchange(operation.getTypes());
+            context.addDriverFactory(new DriverFactory(
+                    false,
+                    false,
+                    ImmutableList.<OperatorFactory>builder()
+                            .addAll(operation.getOperatorFactories())
+                            .add(gatherExchange.createSinkFactory(partitionContext.getNextOperatorId()))
+                            .build(),
+                    concurrency));
+            gatherExchange.noMoreSinkFactories();
+
+            // the main driver is not an input: the source is the input for the plan
+            context.setInputDriver(false);
+
+            return new PhysicalOperation(new InMemoryExchangeSourceOperatorFactory(context.getNextOperatorId(), gatherExchange), operation.getLayout());
         }
 
         @Override
@@ -737,6 +902,7 @@ public class LocalExecutionPlanner
             Map<Symbol, Integer> sourceLayout;
             Map<Integer, Type> sourceTypes;
             List<ColumnHandle> columns = null;
+            List<DynamicFilter> dynamicFilters = ImmutableList.of();
             PhysicalOperation source = null;
             if (sourceNode instanceof TableScanNode) {
                 TableScanNode tableScanNode = (TableScanNode) sourceNode;
@@ -757,6 +923,13 @@ public class LocalExecutionPlanner
 
                     channel++;
                 }
+                dynamicFilters = context.getDynamicFilters(tableScanNode.getId());
+            }
+            else if (sourceNode instanceof SemiJoinNode && isFilteredOn(filterExpression, ((SemiJoinNode) sourceNode).getSemiJoinOutput())) {
+                // the filter drops the rows that are not in the set, so the semi join can drop them earlier
+                source = planSemiJoin((SemiJoinNode) sourceNode, true, context);
+                sourceLayout = source.getLayout();
+                sourceTypes = getInputTypes(source.getLayout(), source.getTypes());
             }
             else {
                 // plan source
@@ -794,7 +967,7 @@ public class LocalExecutionPlanner
 
             try {
                 if (columns != null) {
-                    CursorProcessor cursorProcessor = compiler.compileCursorProcessor(traslatedFilter, translatedProjections, sourceNode.getId());
+                    CursorProcessor cursorProcessor = compiler.compileCursorProcessor(traslatedFilter, translatedProjections);
                     PageProcessor pageProcessor = compiler.compilePageProcessor(traslatedFilter, translatedProjections);
 
                     SourceOperatorFactory operatorFactory = new ScanFilterAndProjectOperator.ScanFilterAndProjectOperatorFactory(
@@ -804,7 +977,8 @@ public class LocalExecutionPlanner
                             cursorProcessor,
                             pageProcessor,
                             columns,
-                            Lists.transform(rewrittenProjections, forMap(expressionTypes)));
+                            Lists.transform(rewrittenProjections, forMap(expressionTypes)),
+                            dynamicFilters);
 
                     return new PhysicalOperation(operatorFactory, outputMappings);
                 }
@@ -865,7 +1039,8 @@ public class LocalExecutionPlanner
                         new GenericCursorProcessor(filterFunction, projectionFunctions),
                         new GenericPageProcessor(filterFunction, projectionFunctions),
                         columns,
-                        toTypes(projectionFunctions));
+                        toTypes(projectionFunctions),
+                        dynamicFilters);
 
                 return new PhysicalOperation(operatorFactory, outputMappings);
             }
@@ -878,6 +1053,11 @@ public class LocalExecutionPlanner
             }
         }
 
+        private boolean isFilteredOn(Expression filterExpression, Symbol symbol)
+        {
+            return extractConjuncts(filterExpression).contains(new QualifiedNameReference(symbol.toQualifiedName()));
+        }
+
         private Map<Integer, Type> getInputTypes(Map<Symbol, Integer> layout, List<Type> types)
         {
             Builder<Integer, Type> inputTypes = ImmutableMap.builder();
@@ -891,6 +1071,15 @@ public class LocalExecutionPlanner
         @Override
         public PhysicalOperation visitTableScan(TableScanNode node, LocalExecutionPlanContext context)
         {
+            if (!context.getDynamicFilters(node.getId()).isEmpty()) {
+                // the dynamic filters are applied by the scan, filter and project operator
+                List<Expression> projectionExpressions = new ArrayList<>();
+                for (Symbol symbol : node.getOutputSymbols()) {
+                    projectionExpressions.add(new QualifiedNameReference(symbol.toQualifiedName()));
+                }
+                return visitScanFilterAndProject(context, node, BooleanLiteral.TRUE_LITERAL, projectionExpressions, node.getOutputSymbols());
+            }
+
             List<ColumnHandle> columns = new ArrayList<>();
             for (Symbol symbol : node.getOutputSymbols()) {
                 columns.add(node.getAssignments().get(symbol));
@@ -1136,7 +1325,8 @@ public class LocalExecutionPlanner
                     indexSource.getTypes(),
                     indexBuildDriverFactoryProvider,
                     maxIndexMemorySize,
-                    indexJoinLookupStats);
+                    indexJoinLookupStats,
+                    pagesIndexFactory);
 
             ImmutableMap.Builder<Symbol, Integer> outputMappings = ImmutableMap.builder();
             outputMappings.putAll(probeSource.getLayout());
@@ -1191,6 +1381,29 @@ public class LocalExecutionPlanner
                 Optional<Symbol> buildHashSymbol,
                 LocalExecutionPlanContext context)
         {
+            // the build side of a co-located join is read by a driver for each split of the build table
+            boolean partitionedBuild = readsPartitionedSource(buildNode);
+
+            Optional<List<Integer>> mergeJoinClauses = Optional.empty();
+            if (isMergeJoinEnabled(context.getSession(), mergeJoinEnabled) && !partitionedBuild) {
+                mergeJoinClauses = getMergeJoinClauses(probeNode, probeSymbols, buildNode, buildSymbols);
+            }
+            if (mergeJoinClauses.isPresent()) {
+                return createMergeJoinOperator(
+                        node,
+                        probeNode,
+                        mergeJoinClauses.get().stream().map(probeSymbols::get).collect(toImmutableList()),
+                        buildNode,
+                        mergeJoinClauses.get().stream().map(buildSymbols::get).collect(toImmutableList()),
+                        context);
+            }
+
+            // the dynamic filter must be registered before the probe side table scan is planned
+            Optional<DynamicFilter> dynamicFilter = Optional.empty();
+            if (node.getType() == JoinNode.Type.INNER && isDynamicFilteringEnabled(context.getSession(), dynamicFilteringEnabled)) {
+                dynamicFilter = createDynamicFilter(probeNode, probeSymbols, context);
+            }
+
             // Plan probe and introduce a projection to put all fields from the probe side into a single channel if necessary
             PhysicalOperation probeSource = probeNode.accept(this, context);
             List<Integer> probeChannels = ImmutableList.copyOf(getChannelsForSymbols(probeSymbols, probeSource.getLayout()));
@@ -1202,22 +1415,39 @@ public class LocalExecutionPlanner
             List<Integer> buildChannels = ImmutableList.copyOf(getChannelsForSymbols(buildSymbols, buildSource.getLayout()));
             Optional<Integer> buildHashChannel = buildHashSymbol.map(channelGetter(buildSource));
 
-            HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(
-                    buildContext.getNextOperatorId(),
-                    buildSource.getTypes(),
-                    buildChannels,
-                    buildHashChannel,
-                    100_000);
-            LookupSourceSupplier lookupSourceSupplier = hashBuilderOperatorFactory.getLookupSourceSupplier();
-            DriverFactory buildDriverFactory = new DriverFactory(
-                    buildContext.isInputDriver(),
-                    false,
-                    ImmutableList.<OperatorFactory>builder()
-                            .addAll(buildSource.getOperatorFactories())
-                            .add(hashBuilderOperatorFactory)
-                            .build());
-            context.addDriverFactory(buildDriverFactory);
+            LookupSourceSupplier lookupSourceSupplier;
+            Optional<SpillerFactory> spillerFactory = getSpillerFactory(context.getSession());
+            int buildConcurrency = getJoinBuildConcurrency(context.getSession(), joinBuildConcurrency);
+            if ((buildConcurrency > 1 && !spillerFactory.isPresent()) || partitionedBuild) {
+                lookupSourceSupplier = createPartitionedLookupSource(buildSource, buildChannels, buildHashChannel, buildConcurrency, dynamicFilter, buildContext, context);
+            }
+            else {
+                HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(
+                        buildContext.getNextOperatorId(),
+                        buildSource.getTypes(),
+                        buildChannels,
+                        buildHashChannel,
+                        100_000,
+                        spillerFactory,
+                        dynamicFilter,
+                        pagesIndexFactory);
+                lookupSourceSupplier = hashBuilderOperatorFactory.getLookupSourceSupplier();
+                DriverFactory buildDriverFactory = new DriverFactory(
+                        buildContext.isInputDriver(),
+                        false,
+                        ImmutableList.<OperatorFactory>builder()
+                                .addAll(buildSource.getOperatorFactories())
+                                .add(hashBuilderOperatorFactory)
+                                .build());
+                context.addDriverFactory(buildDriverFactory);
+            }
+
+            OperatorFactory operator = createJoinOperator(node.getType(), lookupSourceSupplier, probeSource.getTypes(), probeChannels, probeHashChannel, context);
+            return new PhysicalOperation(operator, createJoinOutputMappings(probeSource, buildSource), probeSource);
+        }
 
+        private Map<Symbol, Integer> createJoinOutputMappings(PhysicalOperation probeSource, PhysicalOperation buildSource)
+        {
             ImmutableMap.Builder<Symbol, Integer> outputMappings = ImmutableMap.builder();
             outputMappings.putAll(probeSource.getLayout());
 
@@ -1228,9 +1458,163 @@ public class LocalExecutionPlanner
                 Integer input = entry.getValue();
                 outputMappings.put(entry.getKey(), offset + input);
             }
+            return outputMappings.build();
+        }
+
+        /**
+         * Returns the order of the join clauses that both sides of the join are sorted on, if they
+         * are sorted ascending on all join symbols.
+         */
+        private Optional<List<Integer>> getMergeJoinClauses(PlanNode probeNode, List<Symbol> probeSymbols, PlanNode buildNode, List<Symbol> buildSymbols)
+        {
+            List<Symbol> probeSortedSymbols = deriveSortedSymbols(probeNode);
+            List<Symbol> buildSortedSymbols = deriveSortedSymbols(buildNode);
+            if (probeSymbols.isEmpty() || probeSortedSymbols.size() < probeSymbols.size() || buildSortedSymbols.size() < buildSymbols.size()) {
+                return Optional.empty();
+            }
 
-            OperatorFactory operator = createJoinOperator(node.getType(), lookupSourceSupplier, probeSource.getTypes(), probeChannels, probeHashChannel, context);
-            return new PhysicalOperation(operator, outputMappings.build(), probeSource);
+            Set<Integer> clauses = new LinkedHashSet<>();
+            for (int i = 0; i < probeSymbols.size(); i++) {
+                int clause = probeSymbols.indexOf(probeSortedSymbols.get(i));
+                if (clause < 0 || !buildSymbols.get(clause).equals(buildSortedSymbols.get(i))) {
+                    return Optional.empty();
+                }
+                clauses.add(clause);
+            }
+            if (clauses.size() != probeSymbols.size()) {
+                return Optional.empty();
+            }
+            return Optional.of(ImmutableList.copyOf(clauses));
+        }
+
+        /**
+         * Joins two sides that are sorted on the join symbols by merging them. The build side
+         * streams its rows to the join through an in-memory exchange instead of being hashed.
+         */
+        private PhysicalOperation createMergeJoinOperator(
+                JoinNode node,
+                PlanNode probeNode,
+                List<Symbol> probeSymbols,
+                PlanNode buildNode,
+                List<Symbol> buildSymbols,
+                LocalExecutionPlanContext context)
+        {
+            PhysicalOperation probeSource = probeNode.accept(this, context);
+            List<Integer> probeChannels = ImmutableList.copyOf(getChannelsForSymbols(probeSymbols, probeSource.getLayout()));
+
+            LocalExecutionPlanContext buildContext = context.createSubContext();
+            PhysicalOperation buildSource = buildNode.accept(this, buildContext);
+            List<Integer> buildChannels = ImmutableList.copyOf(getChannelsForSymbols(buildSymbols, buildSource.getLayout()));
+
+            InMemoryExchange exchange = new InMemoryExchange(buildSource.getTypes());
+            context.addDriverFactory(new DriverFactory(
+                    buildContext.isInputDriver(),
+                    false,
+                    ImmutableList.<OperatorFactory>builder()
+                            .addAll(buildSource.getOperatorFactories())
+                            .add(exchange.createSinkFactory(buildContext.getNextOperatorId()))
+                            .build()));
+            exchange.noMoreSinkFactories();
+
+            OperatorFactory operator = new MergeJoinOperatorFactory(
+                    context.getNextOperatorId(),
+                    exchange,
+                    probeSource.getTypes(),
+                    probeChannels,
+                    buildChannels,
+                    node.getType() != JoinNode.Type.INNER);
+            return new PhysicalOperation(operator, createJoinOutputMappings(probeSource, buildSource), probeSource);
+        }
+
+        /**
+         * Builds the hash table in several drivers: the build source feeds the builders through
+         * an in-memory exchange, and each builder indexes a share of the hash partitions.
+         */
+        private LookupSourceSupplier createPartitionedLookupSource(
+                PhysicalOperation buildSource,
+                List<Integer> buildChannels,
+                Optional<Integer> buildHashChannel,
+                int buildConcurrency,
+                Optional<DynamicFilter> dynamicFilter,
+                LocalExecutionPlanContext buildContext,
+                LocalExecutionPlanContext context)
+        {
+            InMemoryExchange exchange = new InMemoryExchange(buildSource.getTypes());
+            context.addDriverFactory(new DriverFactory(
+                    buildContext.isInputDriver(),
+                    false,
+                    ImmutableList.<OperatorFactory>builder()
+                            .addAll(buildSource.getOperatorFactories())
+                            .add(exchange.createSinkFactory(buildContext.getNextOperatorId()))
+                            .build()));
+            exchange.noMoreSinkFactories();
+
+            LocalExecutionPlanContext builderContext = context.createSubContext();
+            OperatorFactory exchangeSource = new InMemoryExchangeSourceOperatorFactory(builderContext.getNextOperatorId(), exchange);
+            PartitionedHashBuilderOperatorFactory hashBuilderOperatorFactory = new PartitionedHashBuilderOperatorFactory(
+                    builderContext.getNextOperatorId(),
+                    buildSource.getTypes(),
+                    buildChannels,
+                    buildHashChannel,
+                    100_000,
+                    buildConcurrency,
+                    dynamicFilter,
+                    pagesIndexFactory);
+            context.addDriverFactory(new DriverFactory(false, false, ImmutableList.of(exchangeSource, hashBuilderOperatorFactory), buildConcurrency));
+            return hashBuilderOperatorFactory.getLookupSourceSupplier();
+        }
+
+        /**
+         * Creates a dynamic filter when the probe side is a table scan that is planned as a
+         * single operator, i.e. a scan optionally followed by a filter and a projection, and
+         * the join keys are columns of that scan.
+         */
+        private Optional<DynamicFilter> createDynamicFilter(PlanNode probeNode, List<Symbol> probeSymbols, LocalExecutionPlanContext context)
+        {
+            PlanNode node = probeNode;
+            List<Symbol> symbols = probeSymbols;
+            if (node instanceof ProjectNode) {
+                ProjectNode projectNode = (ProjectNode) node;
+                ImmutableList.Builder<Symbol> sourceSymbols = ImmutableList.builder();
+                for (Symbol symbol : symbols) {
+                    Expression expression = projectNode.getAssignments().get(symbol);
+                    if (!(expression instanceof QualifiedNameReference)) {
+                        return Optional.empty();
+                    }
+                    sourceSymbols.add(Symbol.fromQualifiedName(((QualifiedNameReference) expression).getName()));
+                }
+                symbols = sourceSymbols.build();
+                node = projectNode.getSource();
+            }
+            if (node instanceof FilterNode) {
+                node = ((FilterNode) node).getSource();
+            }
+            if (!(node instanceof TableScanNode)) {
+                return Optional.empty();
+            }
+
+            TableScanNode tableScanNode = (TableScanNode) node;
+            ImmutableList.Builder<Integer> channels = ImmutableList.builder();
+            ImmutableList.Builder<ColumnHandle> columns = ImmutableList.builder();
+            ImmutableList.Builder<Type> types = ImmutableList.builder();
+            for (Symbol symbol : symbols) {
+                Type type = context.getTypes().get(symbol);
+                int channel = tableScanNode.getOutputSymbols().indexOf(symbol);
+                if (channel < 0 || !DynamicFilter.isSupportedType(type)) {
+                    return Optional.empty();
+                }
+                channels.add(channel);
+                columns.add(tableScanNode.getAssignments().get(symbol));
+                types.add(type);
+            }
+
+            long maxBloomFilterSize = 0;
+            if (isDynamicFilteringBloomFilterEnabled(context.getSession(), dynamicFilteringBloomFilterEnabled)) {
+                maxBloomFilterSize = dynamicFilteringMaxBloomFilterSize.toBytes();
+            }
+            DynamicFilter dynamicFilter = new DynamicFilter(channels.build(), columns.build(), types.build(), maxBloomFilterSize);
+            context.addDynamicFilter(tableScanNode.getId(), dynamicFilter);
+            return Optional.of(dynamicFilter);
         }
 
         private OperatorFactory createJoinOperator(
@@ -1255,6 +1639,21 @@ public class LocalExecutionPlanner
         @Override
         public PhysicalOperation visitSemiJoin(SemiJoinNode node, LocalExecutionPlanContext context)
         {
+            return planSemiJoin(node, false, context);
+        }
+
+        /**
+         * @param filtering whether the rows of the source that are not in the filtering source are dropped
+         * right after the semi join, in which case the probe side scan can skip them with a dynamic filter
+         */
+        private PhysicalOperation planSemiJoin(SemiJoinNode node, boolean filtering, LocalExecutionPlanContext context)
+        {
+            // the dynamic filter must be registered before the probe side table scan is planned
+            Optional<DynamicFilter> dynamicFilter = Optional.empty();
+            if (filtering && isDynamicFilteringEnabled(context.getSession(), dynamicFilteringEnabled)) {
+                dynamicFilter = createDynamicFilter(node.getSource(), ImmutableList.of(node.getSourceJoinSymbol()), context);
+            }
+
             // introduce a projection to put all fields from the probe side into a single channel if necessary
             PhysicalOperation probeSource = node.getSource().accept(this, context);
 
@@ -1268,7 +1667,13 @@ public class LocalExecutionPlanner
             Optional<Integer> probeHashChannel = node.getSourceHashSymbol().map(channelGetter(probeSource));
             Optional<Integer> buildHashChannel = node.getFilteringSourceHashSymbol().map(channelGetter(buildSource));
 
-            SetBuilderOperatorFactory setBuilderOperatorFactory = new SetBuilderOperatorFactory(buildContext.getNextOperatorId(), buildSource.getTypes(), buildChannel, buildHashChannel, 100_000);
+            SetBuilderOperatorFactory setBuilderOperatorFactory = new SetBuilderOperatorFactory(
+                    buildContext.getNextOperatorId(),
+                    buildSource.getTypes(),
+                    buildChannel,
+                    buildHashChannel,
+                    100_000,
+                    dynamicFilter);
             SetSupplier setProvider = setBuilderOperatorFactory.getSetProvider();
             DriverFactory buildDriverFactory = new DriverFactory(
                     buildContext.isInputDriver(),
@@ -1450,7 +1855,7 @@ public class LocalExecutionPlanner
             return new PhysicalOperation(operatorFactory, outputMappings.build(), source);
         }
 
-        private PhysicalOperation planGroupByAggregation(AggregationNode node, final PhysicalOperation source, LocalExecutionPlanContext context)
+        private PhysicalOperation planGroupByAggregation(AggregationNode node, final PhysicalOperation source, boolean streaming, LocalExecutionPlanContext context)
         {
             List<Symbol> groupBySymbols = node.getGroupBy();
 
@@ -1489,6 +1894,17 @@ public class LocalExecutionPlanner
 
             Optional<Integer> hashChannel = node.getHashSymbol().map(channelGetter(source));
 
+            if (streaming) {
+                OperatorFactory operatorFactory = new StreamingAggregationOperatorFactory(
+                        context.getNextOperatorId(),
+                        groupByTypes,
+                        groupByChannels,
+                        node.getStep(),
+                        accumulatorFactories,
+                        hashChannel);
+                return new PhysicalOperation(operatorFactory, outputMappings.build(), source);
+            }
+
             OperatorFactory operatorFactory = new HashAggregationOperatorFactory(
                     context.getNextOperatorId(),
                     groupByTypes,
@@ -1497,12 +1913,30 @@ public class LocalExecutionPlanner
                     accumulatorFactories,
                     hashChannel,
                     10_000,
-                    maxPartialAggregationMemorySize);
+                    maxPartialAggregationMemorySize,
+                    node.getStep() == Step.PARTIAL ? Optional.empty() : getSpillerFactory(context.getSession()),
+                    getAdaptivePartialAggregation(context.getSession(), node.getStep()));
 
             return new PhysicalOperation(operatorFactory, outputMappings.build(), source);
         }
     }
 
+    private Optional<AdaptivePartialAggregation> getAdaptivePartialAggregation(Session session, Step step)
+    {
+        if (step == Step.PARTIAL && isAdaptivePartialAggregationEnabled(session, adaptivePartialAggregationEnabled)) {
+            return Optional.of(adaptivePartialAggregation);
+        }
+        return Optional.empty();
+    }
+
+    private Optional<SpillerFactory> getSpillerFactory(Session session)
+    {
+        if (isSpillEnabled(session, spillEnabled)) {
+            return Optional.of(spillerFactory);
+        }
+        return Optional.empty();
+    }
+
     public static List<Type> toTypes(List<ProjectionFunction> projections)
     {
         ImmutableList.Builder<Type> builder = ImmutableList.builder();
@@ -28,6 +28,7 @@ import com.facebook.presto.sql.planner.plan.OutputNode;
 import com.facebook.presto.sql.planner.plan.PlanNode;
 import com.facebook.presto.sql.planner.plan.TableCommitNode;
 import com.facebook.presto.sql.planner.plan.TableWriterNode;
+import com.facebook.presto.sql.tree.Expression;
 import com.google.common.collect.ImmutableList;
 
 import java.util.List;
@@ -35,6 +36,7 @@ import java.util.Optional;
 
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spi.type.VarbinaryType.VARBINARY;
+import static com.facebook.presto.sql.planner.ParameterInliner.inlineParameters;
 import static com.facebook.presto.sql.planner.plan.TableWriterNode.CreateName;
 import static com.facebook.presto.sql.planner.plan.TableWriterNode.InsertReference;
 import static com.facebook.presto.sql.planner.plan.TableWriterNode.WriterTarget;
@@ -68,6 +70,14 @@ public class LogicalPlanner
     }
 
     public Plan plan(Analysis analysis)
+    {
+        return plan(analysis, ImmutableList.of());
+    }
+
+    /**
+     * Plans a prepared statement with its parameters bound to the given values.
+     */
+    public Plan plan(Analysis analysis, List<Expression> parameters)
     {
         RelationPlan plan;
         if (analysis.getCreateTableDestination().isPresent()) {
@@ -81,6 +91,9 @@ public class LogicalPlanner
         }
 
         PlanNode root = createOutputPlan(plan, analysis);
+        if (!parameters.isEmpty()) {
+            root = inlineParameters(root, parameters);
+        }
 
         // make sure we produce a valid plan. This is mainly to catch programming errors
         PlanSanityChecker.validate(root);
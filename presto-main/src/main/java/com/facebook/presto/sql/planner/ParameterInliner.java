@@ -0,0 +1,91 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.planner;
+
+import com.facebook.presto.sql.planner.plan.FilterNode;
+import com.facebook.presto.sql.planner.plan.PlanNode;
+import com.facebook.presto.sql.planner.plan.PlanRewriter;
+import com.facebook.presto.sql.planner.plan.ProjectNode;
+import com.facebook.presto.sql.planner.plan.ValuesNode;
+import com.facebook.presto.sql.tree.Expression;
+import com.facebook.presto.sql.tree.ExpressionRewriter;
+import com.facebook.presto.sql.tree.ExpressionTreeRewriter;
+import com.facebook.presto.sql.tree.Parameter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Replaces the parameters of a prepared statement in a logical plan with the values they are
+ * bound to, so the plan of each execution can be created from one analysis of the statement.
+ * This runs before the optimizers, which only then see the values, so scans have no constraints yet.
+ */
+public final class ParameterInliner
+        extends PlanRewriter<Void>
+{
+    private final List<Expression> values;
+
+    private ParameterInliner(List<Expression> values)
+    {
+        this.values = ImmutableList.copyOf(checkNotNull(values, "values is null"));
+    }
+
+    public static PlanNode inlineParameters(PlanNode plan, List<Expression> values)
+    {
+        return PlanRewriter.rewriteWith(new ParameterInliner(values), plan);
+    }
+
+    @Override
+    public PlanNode visitProject(ProjectNode node, RewriteContext<Void> context)
+    {
+        PlanNode source = context.rewrite(node.getSource());
+        Map<Symbol, Expression> assignments = ImmutableMap.copyOf(Maps.transformValues(node.getAssignments(), this::inline));
+        return new ProjectNode(node.getId(), source, assignments);
+    }
+
+    @Override
+    public PlanNode visitFilter(FilterNode node, RewriteContext<Void> context)
+    {
+        PlanNode source = context.rewrite(node.getSource());
+        return new FilterNode(node.getId(), source, inline(node.getPredicate()));
+    }
+
+    @Override
+    public PlanNode visitValues(ValuesNode node, RewriteContext<Void> context)
+    {
+        ImmutableList.Builder<List<Expression>> rows = ImmutableList.builder();
+        for (List<Expression> row : node.getRows()) {
+            rows.add(ImmutableList.copyOf(Lists.transform(row, this::inline)));
+        }
+        return new ValuesNode(node.getId(), node.getOutputSymbols(), rows.build());
+    }
+
+    private Expression inline(Expression expression)
+    {
+        return ExpressionTreeRewriter.rewriteWith(new ExpressionRewriter<Void>()
+        {
+            @Override
+            public Expression rewriteParameter(Parameter node, Void context, ExpressionTreeRewriter<Void> treeRewriter)
+            {
+                return values.get(node.getPosition());
+            }
+        }, expression);
+    }
+}
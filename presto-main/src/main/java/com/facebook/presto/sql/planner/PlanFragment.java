@@ -18,6 +18,7 @@ import com.facebook.presto.sql.planner.plan.PlanFragmentId;
 import com.facebook.presto.sql.planner.plan.PlanNode;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.facebook.presto.sql.planner.plan.RemoteSourceNode;
+import com.facebook.presto.sql.planner.plan.TableScanNode;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.ImmutableList;
@@ -44,6 +45,8 @@ public class PlanFragment
         SINGLE,
         FIXED,
         SOURCE,
+        // source partitioned on all table scans, with the splits of each bucket of the tables in the same task
+        BUCKETED,
         COORDINATOR_ONLY
     }
 
@@ -61,6 +64,8 @@ public class PlanFragment
     private final PlanNodeId partitionedSource;
     private final List<Type> types;
     private final PlanNode partitionedSourceNode;
+    private final List<PlanNodeId> partitionedSources;
+    private final List<PlanNode> partitionedSourceNodes;
     private final List<RemoteSourceNode> remoteSourceNodes;
     private final OutputPartitioning outputPartitioning;
     private final List<Symbol> partitionBy;
@@ -96,6 +101,18 @@ public class PlanFragment
 
         this.partitionedSourceNode = findSource(root, partitionedSource);
 
+        ImmutableList.Builder<PlanNode> partitionedSourceNodes = ImmutableList.builder();
+        if (distribution == PlanDistribution.BUCKETED) {
+            findTableScanNodes(root, partitionedSourceNodes);
+        }
+        else if (partitionedSourceNode != null) {
+            partitionedSourceNodes.add(partitionedSourceNode);
+        }
+        this.partitionedSourceNodes = partitionedSourceNodes.build();
+        this.partitionedSources = this.partitionedSourceNodes.stream()
+                .map(PlanNode::getId)
+                .collect(toImmutableList());
+
         ImmutableList.Builder<RemoteSourceNode> remoteSourceNodes = ImmutableList.builder();
         findRemoteSourceNodes(root, remoteSourceNodes);
         this.remoteSourceNodes = remoteSourceNodes.build();
@@ -167,6 +184,19 @@ public class PlanFragment
         return partitionedSourceNode;
     }
 
+    /**
+     * Returns the sources whose splits are divided between the tasks of the fragment.
+     */
+    public List<PlanNodeId> getPartitionedSources()
+    {
+        return partitionedSources;
+    }
+
+    public List<PlanNode> getPartitionedSourceNodes()
+    {
+        return partitionedSourceNodes;
+    }
+
     public List<RemoteSourceNode> getRemoteSourceNodes()
     {
         return remoteSourceNodes;
@@ -185,6 +215,17 @@ public class PlanFragment
                 .orElse(null);
     }
 
+    private static void findTableScanNodes(PlanNode node, Builder<PlanNode> builder)
+    {
+        if (node instanceof TableScanNode) {
+            builder.add(node);
+        }
+
+        for (PlanNode source : node.getSources()) {
+            findTableScanNodes(source, builder);
+        }
+    }
+
     private static void findRemoteSourceNodes(PlanNode node, Builder<RemoteSourceNode> builder)
     {
         for (PlanNode source : node.getSources()) {
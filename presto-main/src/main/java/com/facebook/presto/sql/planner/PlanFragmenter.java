@@ -16,7 +16,9 @@ package com.facebook.presto.sql.planner;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.sql.planner.PlanFragment.OutputPartitioning;
 import com.facebook.presto.sql.planner.PlanFragment.PlanDistribution;
+import com.facebook.presto.sql.planner.plan.AggregationNode;
 import com.facebook.presto.sql.planner.plan.ExchangeNode;
+import com.facebook.presto.sql.planner.plan.JoinNode;
 import com.facebook.presto.sql.planner.plan.OutputNode;
 import com.facebook.presto.sql.planner.plan.PlanFragmentId;
 import com.facebook.presto.sql.planner.plan.PlanNode;
@@ -36,6 +38,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
+import static com.facebook.presto.sql.planner.GroupingPropertyDerivations.deriveSortedSymbols;
 import static com.facebook.presto.util.ImmutableCollectors.toImmutableList;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Predicates.in;
@@ -117,6 +120,26 @@ public class PlanFragmenter
             return context.defaultRewrite(node, context.get());
         }
 
+        @Override
+        public PlanNode visitJoin(JoinNode node, RewriteContext<FragmentProperties> context)
+        {
+            // both sides of a co-located join read their tables in this fragment
+            if (containsTableScan(node.getLeft()) && containsTableScan(node.getRight())) {
+                context.get().setBucketedDistribution();
+            }
+            return context.defaultRewrite(node, context.get());
+        }
+
+        @Override
+        public PlanNode visitAggregation(AggregationNode node, RewriteContext<FragmentProperties> context)
+        {
+            // the groups of an aggregation over a bucketed table are read in a single task
+            if (node.getStep() != AggregationNode.Step.PARTIAL && containsTableScan(node.getSource())) {
+                context.get().setBucketedDistribution();
+            }
+            return context.defaultRewrite(node, context.get());
+        }
+
         @Override
         public PlanNode visitValues(ValuesNode node, RewriteContext<FragmentProperties> context)
         {
@@ -164,7 +187,33 @@ public class PlanFragmenter
                     .map(PlanFragment::getId)
                     .collect(toImmutableList());
 
-            return new RemoteSourceNode(exchange.getId(), childrenIds, exchange.getOutputSymbols());
+            return new RemoteSourceNode(exchange.getId(), childrenIds, exchange.getOutputSymbols(), getSortedSymbols(exchange, children));
+        }
+
+        /**
+         * A task reads the rows of a fragment that runs in a single task in the order they are produced,
+         * so the rows of an exchange with only one such source stay sorted.
+         */
+        private static List<Symbol> getSortedSymbols(ExchangeNode exchange, List<SubPlan> children)
+        {
+            if (children.size() != 1) {
+                return ImmutableList.of();
+            }
+            PlanFragment fragment = Iterables.getOnlyElement(children).getFragment();
+            if (fragment.getDistribution() != PlanDistribution.SINGLE && fragment.getDistribution() != PlanDistribution.COORDINATOR_ONLY) {
+                return ImmutableList.of();
+            }
+
+            List<Symbol> inputs = Iterables.getOnlyElement(exchange.getInputs());
+            ImmutableList.Builder<Symbol> sortedSymbols = ImmutableList.builder();
+            for (Symbol symbol : deriveSortedSymbols(fragment.getRoot())) {
+                int channel = inputs.indexOf(symbol);
+                if (channel < 0) {
+                    break;
+                }
+                sortedSymbols.add(exchange.getOutputSymbols().get(channel));
+            }
+            return sortedSymbols.build();
         }
 
         private SubPlan buildSubPlan(PlanNode node, FragmentProperties properties, RewriteContext<FragmentProperties> context)
@@ -172,6 +221,17 @@ public class PlanFragmenter
             PlanNode child = context.rewrite(node, properties);
             return buildFragment(child, properties);
         }
+
+        private static boolean containsTableScan(PlanNode node)
+        {
+            if (node instanceof TableScanNode) {
+                return true;
+            }
+            if (node instanceof ExchangeNode) {
+                return false;
+            }
+            return node.getSources().stream().anyMatch(Fragmenter::containsTableScan);
+        }
     }
 
     private static class FragmentProperties
@@ -186,6 +246,7 @@ public class PlanFragmenter
 
         private Optional<PlanDistribution> distribution = Optional.empty();
         private PlanNodeId distributeBy;
+        private boolean bucketed;
 
         public List<SubPlan> getChildren()
         {
@@ -235,19 +296,39 @@ public class PlanFragmenter
         {
             if (distribution.isPresent()) {
                 // If already SINGLE or COORDINATOR_ONLY, leave it as is (this is for single-node execution)
-                checkState(distribution.get() == PlanDistribution.SINGLE || distribution.get() == PlanDistribution.COORDINATOR_ONLY,
+                // and a bucketed fragment reads all of its tables
+                checkState(distribution.get() == PlanDistribution.SINGLE || distribution.get() == PlanDistribution.COORDINATOR_ONLY || distribution.get() == PlanDistribution.BUCKETED,
                         "Cannot overwrite distribution with %s (currently set to %s)",
                         PlanDistribution.SOURCE,
                         distribution.get());
             }
             else {
-                distribution = Optional.of(PlanDistribution.SOURCE);
+                distribution = Optional.of(bucketed ? PlanDistribution.BUCKETED : PlanDistribution.SOURCE);
                 this.distributeBy = source;
             }
 
             return this;
         }
 
+        public FragmentProperties setBucketedDistribution()
+        {
+            bucketed = true;
+
+            if (distribution.isPresent()) {
+                // If already SINGLE or COORDINATOR_ONLY, leave it as is (this is for single-node execution)
+                PlanDistribution current = distribution.get();
+                checkState(current == PlanDistribution.SINGLE || current == PlanDistribution.COORDINATOR_ONLY || current == PlanDistribution.SOURCE || current == PlanDistribution.BUCKETED,
+                        "Cannot overwrite distribution with %s (currently set to %s)",
+                        PlanDistribution.BUCKETED,
+                        current);
+                if (current == PlanDistribution.SOURCE) {
+                    distribution = Optional.of(PlanDistribution.BUCKETED);
+                }
+            }
+
+            return this;
+        }
+
         public FragmentProperties setUnpartitionedOutput()
         {
             outputPartitioning.ifPresent(current -> {
@@ -33,6 +33,7 @@ import com.facebook.presto.sql.planner.optimizations.PlanOptimizer;
 import com.facebook.presto.sql.planner.optimizations.PredicatePushDown;
 import com.facebook.presto.sql.planner.optimizations.PruneRedundantProjections;
 import com.facebook.presto.sql.planner.optimizations.PruneUnreferencedOutputs;
+import com.facebook.presto.sql.planner.optimizations.ReorderJoins;
 import com.facebook.presto.sql.planner.optimizations.SetFlatteningOptimizer;
 import com.facebook.presto.sql.planner.optimizations.SimplifyExpressions;
 import com.facebook.presto.sql.planner.optimizations.UnaliasSymbolReferences;
@@ -72,6 +73,7 @@ public class PlanOptimizersFactory
                 new SimplifyExpressions(metadata, sqlParser), // Re-run the SimplifyExpressions to simplify any recomposed expressions from other optimizations
                 new UnaliasSymbolReferences(), // Run again because predicate pushdown might add more projections
                 new IndexJoinOptimizer(indexManager), // Run this after projections and filters have been fully simplified and pushed down
+                new ReorderJoins(metadata, featuresConfig.isReorderJoins()), // Run this after predicate push down so that the statistics reflect the filtered relations
                 new CountConstantOptimizer(),
                 new WindowFilterPushDown(), // This must run after PredicatePushDown so that it squashes any successive filter nodes
                 new HashGenerationOptimizer(featuresConfig.isOptimizeHashGeneration()), // This must run after all other optimizers have run to that all the PlanNodes are created
@@ -87,7 +89,13 @@ public class PlanOptimizersFactory
         builder.add(new BeginTableWrite(metadata)); // HACK! see comments in BeginTableWrite
 
         if (!forceSingleNode) {
-            builder.add(new AddExchanges(metadata, featuresConfig.isDistributedIndexJoinsEnabled(), featuresConfig.isDistributedJoinsEnabled()));
+            builder.add(new AddExchanges(
+                    metadata,
+                    featuresConfig.isDistributedIndexJoinsEnabled(),
+                    featuresConfig.isDistributedJoinsEnabled(),
+                    featuresConfig.isAutomaticJoinDistribution(),
+                    featuresConfig.getBroadcastJoinMaxSize(),
+                    featuresConfig.isColocatedJoinsEnabled()));
         }
 
         // TODO: consider adding a formal final plan sanitization optimizer that prepares the plan for transmission/execution/logging
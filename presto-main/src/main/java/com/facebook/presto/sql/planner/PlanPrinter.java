@@ -455,7 +455,12 @@ public class PlanPrinter
         @Override
         public Void visitRemoteSource(RemoteSourceNode node, Integer indent)
         {
-            print(indent, "- RemoteSource[%s] => [%s]", Joiner.on(',').join(node.getSourceFragmentIds()), formatOutputs(node.getOutputSymbols()));
+            if (node.getSortedSymbols().isEmpty()) {
+                print(indent, "- RemoteSource[%s] => [%s]", Joiner.on(',').join(node.getSourceFragmentIds()), formatOutputs(node.getOutputSymbols()));
+            }
+            else {
+                print(indent, "- RemoteSource[%s] sorted on [%s] => [%s]", Joiner.on(',').join(node.getSourceFragmentIds()), Joiner.on(", ").join(node.getSortedSymbols()), formatOutputs(node.getOutputSymbols()));
+            }
 
             return null;
         }
@@ -15,9 +15,12 @@ package com.facebook.presto.sql.planner;
 
 import com.facebook.presto.split.SplitSource;
 import com.facebook.presto.sql.planner.plan.OutputNode;
+import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
@@ -28,13 +31,25 @@ public class StageExecutionPlan
 {
     private final PlanFragment fragment;
     private final Optional<SplitSource> dataSource;
+    private final Map<PlanNodeId, SplitSource> bucketedDataSources;
     private final List<StageExecutionPlan> subStages;
     private final Optional<List<String>> fieldNames;
 
     public StageExecutionPlan(PlanFragment fragment, Optional<SplitSource> dataSource, List<StageExecutionPlan> subStages)
+    {
+        this(fragment, dataSource, ImmutableMap.of(), subStages);
+    }
+
+    public StageExecutionPlan(PlanFragment fragment, Map<PlanNodeId, SplitSource> bucketedDataSources, List<StageExecutionPlan> subStages)
+    {
+        this(fragment, Optional.empty(), bucketedDataSources, subStages);
+    }
+
+    private StageExecutionPlan(PlanFragment fragment, Optional<SplitSource> dataSource, Map<PlanNodeId, SplitSource> bucketedDataSources, List<StageExecutionPlan> subStages)
     {
         this.fragment = checkNotNull(fragment, "fragment is null");
         this.dataSource = checkNotNull(dataSource, "dataSource is null");
+        this.bucketedDataSources = ImmutableMap.copyOf(checkNotNull(bucketedDataSources, "bucketedDataSources is null"));
         this.subStages = ImmutableList.copyOf(checkNotNull(subStages, "dependencies is null"));
 
         fieldNames = (fragment.getRoot() instanceof OutputNode) ?
@@ -58,6 +73,14 @@ public class StageExecutionPlan
         return dataSource;
     }
 
+    /**
+     * Returns the splits of each table scan of a bucketed fragment.
+     */
+    public Map<PlanNodeId, SplitSource> getBucketedDataSources()
+    {
+        return bucketedDataSources;
+    }
+
     public List<StageExecutionPlan> getSubStages()
     {
         return subStages;
@@ -69,6 +92,7 @@ public class StageExecutionPlan
         return toStringHelper(this)
                 .add("fragment", fragment)
                 .add("dataSource", dataSource)
+                .add("bucketedDataSources", bucketedDataSources)
                 .add("subStages", subStages)
                 .toString();
     }
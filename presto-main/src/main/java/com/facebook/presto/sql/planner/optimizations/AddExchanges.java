@@ -15,9 +15,13 @@ package com.facebook.presto.sql.planner.optimizations;
 
 import com.facebook.presto.Session;
 import com.facebook.presto.SystemSessionProperties;
+import com.facebook.presto.cost.PlanNodeStatsEstimate;
+import com.facebook.presto.cost.StatsCalculator;
+import com.facebook.presto.metadata.ColumnHandle;
 import com.facebook.presto.metadata.FunctionInfo;
 import com.facebook.presto.metadata.Metadata;
 import com.facebook.presto.metadata.Signature;
+import com.facebook.presto.metadata.TableBucketing;
 import com.facebook.presto.operator.aggregation.InternalAggregationFunction;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.sql.planner.PlanNodeIdAllocator;
@@ -35,6 +39,7 @@ import com.facebook.presto.sql.planner.plan.OutputNode;
 import com.facebook.presto.sql.planner.plan.PlanNode;
 import com.facebook.presto.sql.planner.plan.PlanVisitor;
 import com.facebook.presto.sql.planner.plan.RowNumberNode;
+import com.facebook.presto.sql.planner.plan.SampleNode;
 import com.facebook.presto.sql.planner.plan.SemiJoinNode;
 import com.facebook.presto.sql.planner.plan.SortNode;
 import com.facebook.presto.sql.planner.plan.TableCommitNode;
@@ -52,6 +57,7 @@ import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import io.airlift.units.DataSize;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -66,6 +72,7 @@ import static com.facebook.presto.sql.planner.plan.AggregationNode.Step.PARTIAL;
 import static com.facebook.presto.sql.planner.plan.ExchangeNode.gatheringExchange;
 import static com.facebook.presto.sql.planner.plan.ExchangeNode.partitionedExchange;
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
 
 public class AddExchanges
         extends PlanOptimizer
@@ -73,19 +80,29 @@ public class AddExchanges
     private final Metadata metadata;
     private final boolean distributedIndexJoins;
     private final boolean distributedJoins;
+    private final boolean automaticJoinDistribution;
+    private final DataSize broadcastJoinMaxSize;
+    private final boolean colocatedJoins;
+    private final StatsCalculator statsCalculator;
 
-    public AddExchanges(Metadata metadata, boolean distributedIndexJoins, boolean distributedJoins)
+    public AddExchanges(Metadata metadata, boolean distributedIndexJoins, boolean distributedJoins, boolean automaticJoinDistribution, DataSize broadcastJoinMaxSize, boolean colocatedJoins)
     {
         this.metadata = metadata;
         this.distributedIndexJoins = distributedIndexJoins;
         this.distributedJoins = distributedJoins;
+        this.automaticJoinDistribution = automaticJoinDistribution;
+        this.broadcastJoinMaxSize = checkNotNull(broadcastJoinMaxSize, "broadcastJoinMaxSize is null");
+        this.colocatedJoins = colocatedJoins;
+        this.statsCalculator = new StatsCalculator(metadata);
     }
 
     @Override
     public PlanNode optimize(PlanNode plan, Session session, Map<Symbol, Type> types, SymbolAllocator symbolAllocator, PlanNodeIdAllocator idAllocator)
     {
         boolean distributedJoinEnabled = SystemSessionProperties.isDistributedJoinEnabled(session, distributedJoins);
-        PlanWithProperties result = plan.accept(new Rewriter(symbolAllocator, idAllocator, session, distributedIndexJoins, distributedJoinEnabled), null);
+        boolean automaticJoinDistributionEnabled = SystemSessionProperties.isAutomaticJoinDistributionEnabled(session, automaticJoinDistribution);
+        boolean colocatedJoinEnabled = SystemSessionProperties.isColocatedJoinEnabled(session, colocatedJoins);
+        PlanWithProperties result = plan.accept(new Rewriter(symbolAllocator, idAllocator, session, types, distributedIndexJoins, distributedJoinEnabled, automaticJoinDistributionEnabled, colocatedJoinEnabled), null);
         return result.getNode();
     }
 
@@ -95,16 +112,24 @@ public class AddExchanges
         private final SymbolAllocator allocator;
         private final PlanNodeIdAllocator idAllocator;
         private final Session session;
+        private final Map<Symbol, Type> types;
         private final boolean distributedIndexJoins;
         private final boolean distributedJoins;
+        private final boolean automaticJoinDistribution;
+        private final boolean colocatedJoins;
+        private final StatsCalculator.Memo stats;
 
-        public Rewriter(SymbolAllocator allocator, PlanNodeIdAllocator idAllocator, Session session, boolean distributedIndexJoins, boolean distributedJoins)
+        public Rewriter(SymbolAllocator allocator, PlanNodeIdAllocator idAllocator, Session session, Map<Symbol, Type> types, boolean distributedIndexJoins, boolean distributedJoins, boolean automaticJoinDistribution, boolean colocatedJoins)
         {
             this.allocator = allocator;
             this.idAllocator = idAllocator;
             this.session = session;
+            this.types = types;
             this.distributedIndexJoins = distributedIndexJoins;
             this.distributedJoins = distributedJoins;
+            this.automaticJoinDistribution = automaticJoinDistribution;
+            this.colocatedJoins = colocatedJoins;
+            this.stats = statsCalculator.createMemo(session, types);
         }
 
         @Override
@@ -142,6 +167,11 @@ public class AddExchanges
                 return propagateChildProperties(node, source);
             }
 
+            // every group of a bucketed table is in a single bucket, and a bucket is read by a single task
+            if (source.getProperties().isBucketedOnSubsetOf(node.getGroupBy())) {
+                return propagateChildProperties(node, source);
+            }
+
             if (!decomposable) {
                 if (node.getGroupBy().isEmpty()) {
                     return pushRequirementsToChild(node, Requirements.of(PartitioningProperties.unpartitioned()));
@@ -286,9 +316,34 @@ public class AddExchanges
                     child -> ChildReplacer.replaceChildren(node, ImmutableList.of(child)));
         }
 
+        @Override
+        public PlanWithProperties visitSample(SampleNode node, Void context)
+        {
+            PlanWithProperties source = node.getSource().accept(this, context);
+            if (node.getSampleType() == SampleNode.Type.SYSTEM && source.getProperties().isBucketed()) {
+                // the splits are sampled independently for each table
+                return withNewChildren(node, ActualProperties.of(PartitioningProperties.arbitrary(), PlacementProperties.source()), ImmutableList.of(source.getNode()));
+            }
+            return propagateChildProperties(node, source);
+        }
+
         @Override
         public PlanWithProperties visitTableScan(TableScanNode node, Void context)
         {
+            Optional<TableBucketing> bucketing = Optional.empty();
+            if (colocatedJoins) {
+                bucketing = metadata.getTableBucketing(session, node.getTable());
+            }
+            if (bucketing.isPresent()) {
+                Map<ColumnHandle, Symbol> symbols = new HashMap<>();
+                for (Map.Entry<Symbol, ColumnHandle> entry : node.getAssignments().entrySet()) {
+                    symbols.putIfAbsent(entry.getValue(), entry.getKey());
+                }
+                if (symbols.keySet().containsAll(bucketing.get().getBucketColumns())) {
+                    List<Symbol> keys = Lists.transform(bucketing.get().getBucketColumns(), symbols::get);
+                    return new PlanWithProperties(node, ActualProperties.of(PartitioningProperties.bucketed(keys, bucketing.get()), PlacementProperties.source()));
+                }
+            }
             return new PlanWithProperties(node, ActualProperties.of(PartitioningProperties.arbitrary(), PlacementProperties.source()));
         }
 
@@ -319,7 +374,11 @@ public class AddExchanges
             List<Symbol> rightSymbols = Lists.transform(node.getCriteria(), JoinNode.EquiJoinClause::getRight);
 
             PlanNode rightNode;
-            if (distributedJoins) {
+            if (isColocated(node, left.getProperties(), right.getProperties())) {
+                // the matching buckets of both tables are read by the same task
+                rightNode = right.getNode();
+            }
+            else if (isDistributed(node)) {
                 left = enforce(left, Requirements.of(PartitioningProperties.partitioned(leftSymbols, leftHashSymbol)));
                 rightNode = enforce(right, Requirements.of(PartitioningProperties.partitioned(rightSymbols, rightHashSymbol))).getNode();
             }
@@ -345,6 +404,44 @@ public class AddExchanges
                     left.getProperties());
         }
 
+        private boolean isColocated(JoinNode node, ActualProperties left, ActualProperties right)
+        {
+            if (node.getType() != JoinNode.Type.INNER && node.getType() != JoinNode.Type.LEFT) {
+                return false;
+            }
+            if (!left.isBucketed() || !right.isBucketed() || !left.getPartitioning().getBucketing().get().isCompatible(right.getPartitioning().getBucketing().get())) {
+                return false;
+            }
+
+            // the join must match each bucket key of the left side with the corresponding bucket key of the right side
+            List<Symbol> leftKeys = left.getPartitioning().getKeys().get();
+            List<Symbol> rightKeys = right.getPartitioning().getKeys().get();
+            for (int i = 0; i < leftKeys.size(); i++) {
+                Symbol leftKey = leftKeys.get(i);
+                Symbol rightKey = rightKeys.get(i);
+                if (node.getCriteria().stream().noneMatch(clause -> clause.getLeft().equals(leftKey) && clause.getRight().equals(rightKey))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean isDistributed(JoinNode node)
+        {
+            if (!automaticJoinDistribution || node.getType() == JoinNode.Type.CROSS || node.getCriteria().isEmpty()) {
+                return distributedJoins;
+            }
+
+            // broadcast the build side if it is small enough to be copied to every node,
+            // otherwise partition both sides so that each node only builds part of the hash table
+            PlanNodeStatsEstimate buildStats = stats.calculateStats(node.getRight());
+            double buildSize = buildStats.getOutputSizeInBytes(node.getRight().getOutputSymbols(), types);
+            if (Double.isNaN(buildSize)) {
+                return distributedJoins;
+            }
+            return buildSize > broadcastJoinMaxSize.toBytes();
+        }
+
         @Override
         public PlanWithProperties visitSemiJoin(SemiJoinNode node, Void context)
         {
@@ -513,8 +610,10 @@ public class AddExchanges
             }
 
             // req: partitioned, actual: partitioned on same keys or arbitrary
+            // (the buckets of a table are not hash partitions)
             if (requirements.isPartitioned() &&
                     properties.isPartitioned() &&
+                    !properties.isBucketed() &&
                     properties.getPartitioning().getKeys().equals(requirements.getPartitioning().get().getKeys())) {
                 return new PlanWithProperties(node, properties);
             }
@@ -528,7 +627,7 @@ public class AddExchanges
 
             // req: partitioned[k], actual: partitioned[?] or unpartitioned
             if (requirements.isPartitionedOnKeys() &&
-                    (properties.isUnpartitioned() || (properties.isPartitioned() && !properties.getPartitioning().getKeys().equals(requirements.getPartitioning().get().getKeys())))) {
+                    (properties.isUnpartitioned() || properties.isBucketed() || (properties.isPartitioned() && !properties.getPartitioning().getKeys().equals(requirements.getPartitioning().get().getKeys())))) {
                 return new PlanWithProperties(
                         partitionedExchange(
                                 idAllocator.getNextId(),
@@ -674,10 +773,21 @@ public class AddExchanges
         public boolean isPartitionedOnKeys(List<Symbol> keys)
         {
             return isPartitioned() &&
+                    !isBucketed() &&
                     partitioning.getKeys().isPresent() &&
                     partitioning.getKeys().get().equals(keys);
         }
 
+        public boolean isBucketed()
+        {
+            return partitioning.getBucketing().isPresent();
+        }
+
+        public boolean isBucketedOnSubsetOf(List<Symbol> symbols)
+        {
+            return isBucketed() && symbols.containsAll(partitioning.getKeys().get());
+        }
+
         public boolean isUnpartitioned()
         {
             return partitioning.getType() == PartitioningProperties.Type.UNPARTITIONED;
@@ -701,6 +811,7 @@ public class AddExchanges
         private final Type type;
         private final Optional<Symbol> hashSymbol;
         private final Optional<List<Symbol>> keys;
+        private final Optional<TableBucketing> bucketing;
 
         public static PartitioningProperties arbitrary()
         {
@@ -717,18 +828,33 @@ public class AddExchanges
             return new PartitioningProperties(Type.PARTITIONED, symbols, hashSymbol);
         }
 
+        /**
+         * Rows of a bucketed table, where all rows of a bucket are read by the same task.
+         */
+        public static PartitioningProperties bucketed(List<Symbol> symbols, TableBucketing bucketing)
+        {
+            return new PartitioningProperties(Type.PARTITIONED, symbols, Optional.empty(), Optional.of(bucketing));
+        }
+
         private PartitioningProperties(Type type)
         {
             this.type = type;
             this.keys = Optional.empty();
             this.hashSymbol = Optional.empty();
+            this.bucketing = Optional.empty();
         }
 
         private PartitioningProperties(Type type, List<Symbol> keys, Optional<Symbol> hashSymbol)
+        {
+            this(type, keys, hashSymbol, Optional.empty());
+        }
+
+        private PartitioningProperties(Type type, List<Symbol> keys, Optional<Symbol> hashSymbol, Optional<TableBucketing> bucketing)
         {
             this.type = type;
             this.keys = Optional.of(keys);
             this.hashSymbol = hashSymbol;
+            this.bucketing = bucketing;
         }
 
         public Type getType()
@@ -746,9 +872,17 @@ public class AddExchanges
             return hashSymbol;
         }
 
+        public Optional<TableBucketing> getBucketing()
+        {
+            return bucketing;
+        }
+
         @Override
         public String toString()
         {
+            if (bucketing.isPresent()) {
+                return "BUCKETED: " + keys.get();
+            }
             if (type == Type.PARTITIONED) {
                 return type.toString() + ": " + (keys.isPresent() ? keys.get() : "*");
             }
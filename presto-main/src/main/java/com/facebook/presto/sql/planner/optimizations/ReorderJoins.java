@@ -0,0 +1,243 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.planner.optimizations;
+
+import com.facebook.presto.Session;
+import com.facebook.presto.SystemSessionProperties;
+import com.facebook.presto.cost.PlanNodeStatsEstimate;
+import com.facebook.presto.cost.StatsCalculator;
+import com.facebook.presto.metadata.Metadata;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.sql.planner.PlanNodeIdAllocator;
+import com.facebook.presto.sql.planner.Symbol;
+import com.facebook.presto.sql.planner.SymbolAllocator;
+import com.facebook.presto.sql.planner.plan.JoinNode;
+import com.facebook.presto.sql.planner.plan.PlanNode;
+import com.facebook.presto.sql.planner.plan.PlanRewriter;
+import com.facebook.presto.sql.planner.plan.ProjectNode;
+import com.facebook.presto.sql.tree.Expression;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Reorders trees of inner joins using the estimated sizes of the joined relations,
+ * so that the intermediate results stay small and the smaller relation of each join
+ * ends up on the build (right) side.
+ */
+public class ReorderJoins
+        extends PlanOptimizer
+{
+    private final StatsCalculator statsCalculator;
+    private final boolean reorderJoins;
+
+    public ReorderJoins(Metadata metadata, boolean reorderJoins)
+    {
+        this.statsCalculator = new StatsCalculator(checkNotNull(metadata, "metadata is null"));
+        this.reorderJoins = reorderJoins;
+    }
+
+    @Override
+    public PlanNode optimize(PlanNode plan, Session session, Map<Symbol, Type> types, SymbolAllocator symbolAllocator, PlanNodeIdAllocator idAllocator)
+    {
+        checkNotNull(plan, "plan is null");
+        checkNotNull(session, "session is null");
+        checkNotNull(types, "types is null");
+        checkNotNull(symbolAllocator, "symbolAllocator is null");
+        checkNotNull(idAllocator, "idAllocator is null");
+
+        if (SystemSessionProperties.isReorderJoinsEnabled(session, reorderJoins)) {
+            return PlanRewriter.rewriteWith(new Rewriter(session, types, idAllocator), plan);
+        }
+        return plan;
+    }
+
+    private class Rewriter
+            extends PlanRewriter<Void>
+    {
+        private final StatsCalculator.Memo stats;
+        private final PlanNodeIdAllocator idAllocator;
+
+        public Rewriter(Session session, Map<Symbol, Type> types, PlanNodeIdAllocator idAllocator)
+        {
+            // the candidate joins share their sources, so their estimates are only computed once
+            this.stats = statsCalculator.createMemo(session, types);
+            this.idAllocator = idAllocator;
+        }
+
+        @Override
+        public PlanNode visitJoin(JoinNode node, RewriteContext<Void> context)
+        {
+            if (!isReorderable(node)) {
+                return context.defaultRewrite(node);
+            }
+
+            List<PlanNode> sources = new ArrayList<>();
+            List<JoinNode.EquiJoinClause> criteria = new ArrayList<>();
+            flatten(node, sources, criteria);
+
+            // a clause between symbols of the same relation can not be placed on any join
+            for (JoinNode.EquiJoinClause clause : criteria) {
+                if (getSourceIndex(sources, clause.getLeft()) == getSourceIndex(sources, clause.getRight())) {
+                    return context.defaultRewrite(node);
+                }
+            }
+
+            List<PlanNode> leaves = new ArrayList<>();
+            List<PlanNodeStatsEstimate> leafStats = new ArrayList<>();
+            for (PlanNode source : sources) {
+                PlanNode leaf = context.rewrite(source);
+                PlanNodeStatsEstimate estimate = stats.calculateStats(leaf);
+                if (estimate.isOutputRowCountUnknown()) {
+                    return context.defaultRewrite(node);
+                }
+                leaves.add(leaf);
+                leafStats.add(estimate);
+            }
+
+            PlanNode result = orderJoins(leaves, leafStats, criteria);
+            if (result == null) {
+                return context.defaultRewrite(node);
+            }
+
+            if (!result.getOutputSymbols().equals(node.getOutputSymbols())) {
+                ImmutableMap.Builder<Symbol, Expression> assignments = ImmutableMap.builder();
+                for (Symbol symbol : node.getOutputSymbols()) {
+                    assignments.put(symbol, symbol.toQualifiedNameReference());
+                }
+                result = new ProjectNode(idAllocator.getNextId(), result, assignments.build());
+            }
+            return result;
+        }
+
+        /**
+         * Greedily builds a left deep join tree, starting from the largest relation and
+         * adding the relation that produces the smallest intermediate result at each step.
+         * Returns null if the relations do not form a connected join graph.
+         */
+        private PlanNode orderJoins(List<PlanNode> leaves, List<PlanNodeStatsEstimate> leafStats, List<JoinNode.EquiJoinClause> criteria)
+        {
+            int largest = 0;
+            for (int i = 1; i < leaves.size(); i++) {
+                if (leafStats.get(i).getOutputRowCount() > leafStats.get(largest).getOutputRowCount()) {
+                    largest = i;
+                }
+            }
+
+            PlanNode current = leaves.get(largest);
+            PlanNodeStatsEstimate currentStats = leafStats.get(largest);
+            Set<Integer> remaining = new HashSet<>();
+            for (int i = 0; i < leaves.size(); i++) {
+                if (i != largest) {
+                    remaining.add(i);
+                }
+            }
+
+            while (!remaining.isEmpty()) {
+                JoinNode best = null;
+                PlanNodeStatsEstimate bestStats = null;
+                int bestLeaf = -1;
+                for (int leaf : remaining) {
+                    List<JoinNode.EquiJoinClause> clauses = getJoinClauses(current, leaves.get(leaf), criteria);
+                    if (clauses.isEmpty()) {
+                        continue;
+                    }
+                    JoinNode candidate = new JoinNode(idAllocator.getNextId(), JoinNode.Type.INNER, current, leaves.get(leaf), clauses, Optional.empty(), Optional.empty());
+                    PlanNodeStatsEstimate candidateStats = stats.calculateStats(candidate);
+                    if (best == null || candidateStats.getOutputRowCount() < bestStats.getOutputRowCount()) {
+                        best = candidate;
+                        bestStats = candidateStats;
+                        bestLeaf = leaf;
+                    }
+                }
+                if (best == null) {
+                    return null;
+                }
+
+                // build the hash table on the smaller side
+                if (currentStats.getOutputRowCount() < leafStats.get(bestLeaf).getOutputRowCount()) {
+                    ImmutableList.Builder<JoinNode.EquiJoinClause> flipped = ImmutableList.builder();
+                    for (JoinNode.EquiJoinClause clause : best.getCriteria()) {
+                        flipped.add(new JoinNode.EquiJoinClause(clause.getRight(), clause.getLeft()));
+                    }
+                    best = new JoinNode(best.getId(), JoinNode.Type.INNER, best.getRight(), best.getLeft(), flipped.build(), Optional.empty(), Optional.empty());
+                }
+
+                current = best;
+                currentStats = bestStats;
+                remaining.remove(bestLeaf);
+            }
+            return current;
+        }
+    }
+
+    private static boolean isReorderable(PlanNode node)
+    {
+        if (!(node instanceof JoinNode)) {
+            return false;
+        }
+        JoinNode join = (JoinNode) node;
+        return join.getType() == JoinNode.Type.INNER &&
+                !join.getCriteria().isEmpty() &&
+                !join.getLeftHashSymbol().isPresent() &&
+                !join.getRightHashSymbol().isPresent();
+    }
+
+    private static void flatten(PlanNode node, List<PlanNode> sources, List<JoinNode.EquiJoinClause> criteria)
+    {
+        if (!isReorderable(node)) {
+            sources.add(node);
+            return;
+        }
+        JoinNode join = (JoinNode) node;
+        flatten(join.getLeft(), sources, criteria);
+        flatten(join.getRight(), sources, criteria);
+        criteria.addAll(join.getCriteria());
+    }
+
+    private static int getSourceIndex(List<PlanNode> sources, Symbol symbol)
+    {
+        for (int i = 0; i < sources.size(); i++) {
+            if (sources.get(i).getOutputSymbols().contains(symbol)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static List<JoinNode.EquiJoinClause> getJoinClauses(PlanNode left, PlanNode right, List<JoinNode.EquiJoinClause> criteria)
+    {
+        List<Symbol> leftSymbols = left.getOutputSymbols();
+        List<Symbol> rightSymbols = right.getOutputSymbols();
+
+        ImmutableList.Builder<JoinNode.EquiJoinClause> clauses = ImmutableList.builder();
+        for (JoinNode.EquiJoinClause clause : criteria) {
+            if (leftSymbols.contains(clause.getLeft()) && rightSymbols.contains(clause.getRight())) {
+                clauses.add(clause);
+            }
+            else if (leftSymbols.contains(clause.getRight()) && rightSymbols.contains(clause.getLeft())) {
+                clauses.add(new JoinNode.EquiJoinClause(clause.getRight(), clause.getLeft()));
+            }
+        }
+        return clauses.build();
+    }
+}
@@ -29,19 +29,29 @@ public class RemoteSourceNode
 {
     private final List<PlanFragmentId> sourceFragmentIds;
     private final List<Symbol> outputs;
+    // the symbols the rows arrive sorted on in ascending order
+    private final List<Symbol> sortedSymbols;
 
     @JsonCreator
     public RemoteSourceNode(
             @JsonProperty("id") PlanNodeId id,
             @JsonProperty("sourceFragmentIds") List<PlanFragmentId> sourceFragmentIds,
-            @JsonProperty("outputs") List<Symbol> outputs)
+            @JsonProperty("outputs") List<Symbol> outputs,
+            @JsonProperty("sortedSymbols") List<Symbol> sortedSymbols)
     {
         super(id);
 
         Preconditions.checkNotNull(outputs, "outputs is null");
+        Preconditions.checkNotNull(sortedSymbols, "sortedSymbols is null");
 
         this.sourceFragmentIds = sourceFragmentIds;
         this.outputs = ImmutableList.copyOf(outputs);
+        this.sortedSymbols = ImmutableList.copyOf(sortedSymbols);
+    }
+
+    public RemoteSourceNode(PlanNodeId id, List<PlanFragmentId> sourceFragmentIds, List<Symbol> outputs)
+    {
+        this(id, sourceFragmentIds, outputs, ImmutableList.of());
     }
 
     public RemoteSourceNode(PlanNodeId id, PlanFragmentId sourceFragmentId, List<Symbol> outputs)
@@ -68,6 +78,12 @@ public class RemoteSourceNode
         return sourceFragmentIds;
     }
 
+    @JsonProperty("sortedSymbols")
+    public List<Symbol> getSortedSymbols()
+    {
+        return sortedSymbols;
+    }
+
     @Override
     public <C, R> R accept(PlanVisitor<C, R> visitor, C context)
     {
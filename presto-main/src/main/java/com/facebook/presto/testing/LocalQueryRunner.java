@@ -46,6 +46,8 @@ import com.facebook.presto.operator.OperatorContext;
 import com.facebook.presto.operator.OperatorFactory;
 import com.facebook.presto.operator.OutputFactory;
 import com.facebook.presto.operator.PageSourceOperator;
+import com.facebook.presto.operator.PagesIndex;
+import com.facebook.presto.operator.PipelineContext;
 import com.facebook.presto.operator.ProjectionFunction;
 import com.facebook.presto.operator.ProjectionFunctions;
 import com.facebook.presto.operator.TaskContext;
@@ -59,6 +61,8 @@ import com.facebook.presto.spi.RecordCursor;
 import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.block.BlockBuilder;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spiller.FileSpillerFactory;
+import com.facebook.presto.spiller.SpillerConfig;
 import com.facebook.presto.split.PageSinkManager;
 import com.facebook.presto.split.PageSourceManager;
 import com.facebook.presto.split.SplitManager;
@@ -102,6 +106,7 @@ import java.util.concurrent.atomic.AtomicReference;
 
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.sql.testing.TreeAssertions.assertFormattedSql;
+import static com.facebook.presto.testing.TestingBlockEncodingManager.createTestingBlockEncodingManager;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
@@ -375,7 +380,10 @@ public class LocalQueryRunner
                 compiler,
                 new IndexJoinLookupStats(),
                 new CompilerConfig().setInterpreterEnabled(false), // make sure tests fail if compiler breaks
-                new TaskManagerConfig()
+                new TaskManagerConfig(),
+                new FileSpillerFactory(createTestingBlockEncodingManager(), new SpillerConfig()),
+                new SpillerConfig(),
+                new PagesIndex.TestingFactory()
         );
 
         // plan query
@@ -411,11 +419,15 @@ public class LocalQueryRunner
         List<Driver> drivers = new ArrayList<>();
         Map<PlanNodeId, Driver> driversBySource = new HashMap<>();
         for (DriverFactory driverFactory : localExecutionPlan.getDriverFactories()) {
-            DriverContext driverContext = taskContext.addPipelineContext(driverFactory.isInputDriver(), driverFactory.isOutputDriver()).addDriverContext();
-            Driver driver = driverFactory.createDriver(driverContext);
-            drivers.add(driver);
-            for (PlanNodeId sourceId : driver.getSourceIds()) {
-                driversBySource.put(sourceId, driver);
+            // splits are all added to a single driver, but pipelines without splits get all their drivers
+            int driverInstances = driverFactory.getSourceIds().isEmpty() ? driverFactory.getDriverInstances() : 1;
+            PipelineContext pipelineContext = taskContext.addPipelineContext(driverFactory.isInputDriver(), driverFactory.isOutputDriver());
+            for (int i = 0; i < driverInstances; i++) {
+                Driver driver = driverFactory.createDriver(pipelineContext.addDriverContext());
+                drivers.add(driver);
+                for (PlanNodeId sourceId : driver.getSourceIds()) {
+                    driversBySource.put(sourceId, driver);
+                }
             }
             driverFactory.close();
         }
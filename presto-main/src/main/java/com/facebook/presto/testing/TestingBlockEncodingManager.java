@@ -15,8 +15,10 @@ package com.facebook.presto.testing;
 
 import com.facebook.presto.block.BlockEncodingManager;
 import com.facebook.presto.spi.block.BlockEncodingSerde;
+import com.facebook.presto.spi.block.DictionaryBlockEncoding;
 import com.facebook.presto.spi.block.FixedWidthBlockEncoding;
 import com.facebook.presto.spi.block.LazySliceArrayBlockEncoding;
+import com.facebook.presto.spi.block.RunLengthBlockEncoding;
 import com.facebook.presto.spi.block.SliceArrayBlockEncoding;
 import com.facebook.presto.spi.block.VariableWidthBlockEncoding;
 import com.facebook.presto.type.TypeRegistry;
@@ -34,6 +36,8 @@ public final class TestingBlockEncodingManager
                 VariableWidthBlockEncoding.FACTORY,
                 FixedWidthBlockEncoding.FACTORY,
                 SliceArrayBlockEncoding.FACTORY,
-                LazySliceArrayBlockEncoding.FACTORY);
+                LazySliceArrayBlockEncoding.FACTORY,
+                DictionaryBlockEncoding.FACTORY,
+                RunLengthBlockEncoding.FACTORY);
     }
 }
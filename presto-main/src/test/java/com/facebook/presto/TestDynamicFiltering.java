@@ -0,0 +1,108 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto;
+
+import com.facebook.presto.testing.LocalQueryRunner;
+import com.facebook.presto.testing.MaterializedResult;
+import com.facebook.presto.tpch.TpchConnectorFactory;
+import com.google.common.collect.ImmutableMap;
+import org.intellij.lang.annotations.Language;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
+import static io.airlift.testing.Assertions.assertEqualsIgnoreOrder;
+
+public class TestDynamicFiltering
+{
+    private static final Session DYNAMIC_FILTERING_SESSION = TEST_SESSION.withSystemProperty("dynamic_filtering_enabled", "true");
+    private static final Session BLOOM_FILTER_SESSION = DYNAMIC_FILTERING_SESSION.withSystemProperty("dynamic_filtering_bloom_filter_enabled", "true");
+
+    private LocalQueryRunner runner;
+
+    public TestDynamicFiltering()
+    {
+        runner = new LocalQueryRunner(TEST_SESSION);
+        runner.createCatalog(TEST_SESSION.getCatalog(), new TpchConnectorFactory(runner.getNodeManager(), 1), ImmutableMap.<String, String>of());
+    }
+
+    @AfterClass
+    public void destroy()
+    {
+        if (runner != null) {
+            runner.close();
+        }
+    }
+
+    @Test
+    public void testInnerJoin()
+            throws Exception
+    {
+        assertQuery("SELECT o.orderkey, l.linenumber FROM lineitem l JOIN orders o ON l.orderkey = o.orderkey WHERE o.orderpriority = '1-URGENT' AND o.totalprice > 400000");
+        assertQuery("SELECT count(*) FROM lineitem l JOIN orders o ON l.orderkey = o.orderkey AND l.partkey + 1 = o.custkey");
+        assertQuery("SELECT count(*) FROM lineitem l JOIN (SELECT orderkey FROM orders WHERE custkey < 0) o ON l.orderkey = o.orderkey");
+    }
+
+    @Test
+    public void testFilteredAndProjectedProbe()
+            throws Exception
+    {
+        assertQuery("SELECT l.quantity * 2, o.orderstatus FROM (SELECT orderkey k, quantity FROM lineitem WHERE shipmode = 'AIR') l JOIN orders o ON l.k = o.orderkey WHERE o.custkey < 10");
+        assertQuery("SELECT n.name, r.name FROM nation n JOIN region r ON n.regionkey = r.regionkey AND n.name = r.name");
+    }
+
+    @Test
+    public void testOuterJoin()
+            throws Exception
+    {
+        assertQuery("SELECT count(*), count(o.orderkey) FROM lineitem l LEFT JOIN (SELECT orderkey FROM orders WHERE custkey < 10) o ON l.orderkey = o.orderkey");
+        assertQuery("SELECT count(*), count(l.orderkey) FROM lineitem l RIGHT JOIN (SELECT orderkey FROM orders WHERE custkey < 10) o ON l.orderkey = o.orderkey");
+    }
+
+    @Test
+    public void testSemiJoin()
+            throws Exception
+    {
+        assertQuery("SELECT orderkey, linenumber FROM lineitem WHERE orderkey IN (SELECT orderkey FROM orders WHERE orderpriority = '1-URGENT' AND totalprice > 400000)");
+        assertQuery("SELECT count(*) FROM lineitem WHERE partkey IN (SELECT partkey FROM part WHERE name LIKE '%green%') AND shipmode = 'AIR'");
+        assertQuery("SELECT count(*) FROM lineitem WHERE orderkey IN (SELECT orderkey FROM orders WHERE custkey < 0)");
+        assertQuery("SELECT count(*) FROM lineitem WHERE suppkey IN (SELECT CASE WHEN suppkey % 2 = 0 THEN suppkey END FROM supplier)");
+        // the semi join result is projected rather than filtered on
+        assertQuery("SELECT orderkey IN (SELECT orderkey FROM orders WHERE custkey < 10), count(*) FROM lineitem GROUP BY 1");
+        assertQuery("SELECT count(*) FROM lineitem WHERE orderkey NOT IN (SELECT orderkey FROM orders WHERE custkey < 10)");
+    }
+
+    @Test
+    public void testBloomFilter()
+            throws Exception
+    {
+        // more distinct keys than are listed in the domains
+        assertQuery("SELECT count(*), sum(l.quantity) FROM lineitem l JOIN orders o ON l.orderkey = o.orderkey WHERE o.orderdate < DATE '1994-01-01'");
+        assertQuery("SELECT count(*) FROM lineitem WHERE orderkey IN (SELECT orderkey FROM orders WHERE orderstatus = 'F')");
+        assertQuery("SELECT count(*) FROM lineitem WHERE comment IN (SELECT comment FROM lineitem WHERE linenumber = 1)");
+    }
+
+    private void assertQuery(@Language("SQL") String sql)
+    {
+        assertQuery(DYNAMIC_FILTERING_SESSION, sql);
+        assertQuery(BLOOM_FILTER_SESSION, sql);
+    }
+
+    private void assertQuery(Session session, @Language("SQL") String sql)
+    {
+        MaterializedResult expected = runner.execute(TEST_SESSION, sql);
+        MaterializedResult actual = runner.execute(session, sql);
+        assertEqualsIgnoreOrder(actual.getMaterializedRows(), expected.getMaterializedRows(), "rows differ for " + sql);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto;
+
+import com.facebook.presto.testing.LocalQueryRunner;
+import com.facebook.presto.testing.MaterializedResult;
+import com.facebook.presto.tpch.TpchConnectorFactory;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultiset;
+import org.intellij.lang.annotations.Language;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestReorderJoins
+{
+    private static final Session REORDER_JOINS_SESSION = TEST_SESSION.withSystemProperty("reorder_joins", "true");
+
+    private LocalQueryRunner runner;
+
+    public TestReorderJoins()
+    {
+        runner = new LocalQueryRunner(TEST_SESSION);
+        runner.createCatalog(TEST_SESSION.getCatalog(), new TpchConnectorFactory(runner.getNodeManager(), 1), ImmutableMap.<String, String>of());
+    }
+
+    @AfterClass
+    public void destroy()
+    {
+        if (runner != null) {
+            runner.close();
+        }
+    }
+
+    @Test
+    public void testLargerRelationOnBuildSide()
+            throws Exception
+    {
+        assertQuery("SELECT o.orderkey, l.linenumber FROM orders o JOIN lineitem l ON o.orderkey = l.orderkey WHERE o.custkey < 100");
+        assertQuery("SELECT n.name, c.name FROM nation n JOIN customer c ON n.nationkey = c.nationkey");
+    }
+
+    @Test
+    public void testMultiWayJoin()
+            throws Exception
+    {
+        assertQuery("" +
+                "SELECT r.name, count(*) " +
+                "FROM region r, nation n, customer c, orders o " +
+                "WHERE r.regionkey = n.regionkey AND n.nationkey = c.nationkey AND c.custkey = o.custkey " +
+                "GROUP BY r.name");
+        assertQuery("" +
+                "SELECT s.name, sum(l.quantity) " +
+                "FROM lineitem l JOIN supplier s ON l.suppkey = s.suppkey JOIN part p ON l.partkey = p.partkey " +
+                "WHERE p.size < 5 " +
+                "GROUP BY s.name");
+    }
+
+    @Test
+    public void testNotReordered()
+            throws Exception
+    {
+        assertQuery("SELECT count(*) FROM orders o LEFT JOIN lineitem l ON o.orderkey = l.orderkey JOIN customer c ON o.custkey = c.custkey");
+        assertQuery("SELECT count(*) FROM nation n1 JOIN nation n2 ON n1.regionkey = n2.regionkey JOIN region r ON n1.regionkey = r.regionkey AND n2.nationkey = r.regionkey");
+    }
+
+    private void assertQuery(@Language("SQL") String sql)
+    {
+        MaterializedResult expected = runner.execute(TEST_SESSION, sql);
+        MaterializedResult actual = runner.execute(REORDER_JOINS_SESSION, sql);
+        assertEquals(actual.getMaterializedRows().size(), expected.getMaterializedRows().size());
+        // the rows may come out in a different order, so compare them as multisets
+        assertTrue(ImmutableMultiset.copyOf(actual.getMaterializedRows()).equals(ImmutableMultiset.copyOf(expected.getMaterializedRows())), "rows differ for " + sql);
+    }
+}
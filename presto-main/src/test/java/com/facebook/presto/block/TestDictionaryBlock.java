@@ -0,0 +1,97 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.block;
+
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.block.BlockBuilderStatus;
+import com.facebook.presto.spi.block.DictionaryBlock;
+import com.facebook.presto.spi.block.LazySliceArrayBlock;
+import com.facebook.presto.spi.block.SelectiveLazyBlockLoader;
+import com.facebook.presto.spi.block.VariableWidthBlockBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Ints;
+import io.airlift.slice.Slice;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+public class TestDictionaryBlock
+        extends AbstractTestBlock
+{
+    @Test
+    public void test()
+    {
+        Slice[] dictionaryValues = new Slice[5];
+        for (int index = 0; index < dictionaryValues.length; index++) {
+            dictionaryValues[index] = createExpectedValue(index + 4);
+        }
+        Block dictionary = createDictionary(dictionaryValues);
+
+        for (int positionCount = 0; positionCount < 20; positionCount++) {
+            int[] ids = new int[positionCount];
+            Slice[] expectedValues = new Slice[positionCount];
+            for (int position = 0; position < positionCount; position++) {
+                ids[position] = (position * 3) % dictionaryValues.length;
+                expectedValues[position] = dictionaryValues[ids[position]];
+            }
+            assertBlock(new DictionaryBlock(positionCount, dictionary, ids), expectedValues);
+        }
+    }
+
+    @Test
+    public void testAssureLoadedPositions()
+    {
+        Slice[] dictionaryValues = new Slice[5];
+        for (int index = 0; index < dictionaryValues.length; index++) {
+            dictionaryValues[index] = createExpectedValue(index);
+        }
+
+        List<List<Integer>> loads = new ArrayList<>();
+        LazySliceArrayBlock dictionary = new LazySliceArrayBlock(dictionaryValues.length, new SelectiveLazyBlockLoader<LazySliceArrayBlock>()
+        {
+            @Override
+            public void load(LazySliceArrayBlock block)
+            {
+                fail("the whole dictionary should not be loaded");
+            }
+
+            @Override
+            public void load(LazySliceArrayBlock block, int[] positions, int positionCount)
+            {
+                loads.add(Ints.asList(positions).subList(0, positionCount));
+                block.setValues(dictionaryValues);
+            }
+        });
+        DictionaryBlock block = new DictionaryBlock(6, dictionary, new int[] {4, 1, 3, 1, 0, 2});
+
+        // the ids of the positions are loaded in order, and only once
+        block.assureLoaded(new int[] {0, 1, 3}, 3);
+        block.assureLoaded(new int[] {2, 5}, 2);
+        assertEquals(loads, ImmutableList.of(ImmutableList.of(1, 4), ImmutableList.of(2, 3)));
+    }
+
+    private static Block createDictionary(Slice[] values)
+    {
+        BlockBuilder blockBuilder = new VariableWidthBlockBuilder(new BlockBuilderStatus());
+        for (Slice value : values) {
+            blockBuilder.writeBytes(value, 0, value.length()).closeEntry();
+        }
+        return blockBuilder.build();
+    }
+}
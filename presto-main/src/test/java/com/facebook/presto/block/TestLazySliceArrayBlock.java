@@ -15,9 +15,17 @@ package com.facebook.presto.block;
 
 import com.facebook.presto.spi.block.LazyBlockLoader;
 import com.facebook.presto.spi.block.LazySliceArrayBlock;
+import com.facebook.presto.spi.block.SelectiveLazyBlockLoader;
+import com.google.common.collect.ImmutableList;
 import io.airlift.slice.Slice;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
@@ -44,6 +52,60 @@ public class TestLazySliceArrayBlock
         assertTrue(loader.loaded);
     }
 
+    @Test
+    public void testSelectiveLoad()
+    {
+        Slice[] expectedValues = createExpectedValues(10);
+        TestSelectiveLazySliceArrayBlockLoader loader = new TestSelectiveLazySliceArrayBlockLoader(expectedValues);
+        LazySliceArrayBlock block = new LazySliceArrayBlock(10, loader);
+
+        block.assureLoaded(new int[] {1, 4, 100}, 2);
+        assertFalse(loader.loaded);
+        assertEquals(loader.loadedPositions, ImmutableList.of(1, 4));
+        assertEquals(block.getSlice(4, 0, block.getLength(4)), expectedValues[4]);
+
+        // later positions are loaded by later calls
+        block.assureLoaded(new int[] {7}, 1);
+        assertEquals(loader.loadedPositions, ImmutableList.of(1, 4, 7));
+        assertEquals(block.getSlice(7, 0, block.getLength(7)), expectedValues[7]);
+
+        // blocks with a loader that cannot load positions are loaded completely
+        TestLazySliceArrayBlockLoader wholeBlockLoader = new TestLazySliceArrayBlockLoader(expectedValues);
+        block = new LazySliceArrayBlock(10, wholeBlockLoader);
+        block.assureLoaded(new int[] {1}, 1);
+        assertTrue(wholeBlockLoader.loaded);
+        assertBlock(block, expectedValues);
+    }
+
+    @Test
+    public void testLoadAfterSelectiveLoad()
+    {
+        Slice[] expectedValues = createExpectedValues(10);
+
+        // reading a position that was not selected loads the whole block
+        TestSelectiveLazySliceArrayBlockLoader loader = new TestSelectiveLazySliceArrayBlockLoader(expectedValues);
+        LazySliceArrayBlock block = new LazySliceArrayBlock(10, loader);
+        block.assureLoaded(new int[] {1, 4}, 2);
+        assertFalse(loader.loaded);
+        assertEquals(block.getSlice(2, 0, block.getLength(2)), expectedValues[2]);
+        assertTrue(loader.loaded);
+
+        // so does assureLoaded()
+        loader = new TestSelectiveLazySliceArrayBlockLoader(expectedValues);
+        block = new LazySliceArrayBlock(10, loader);
+        block.assureLoaded(new int[] {1, 4}, 2);
+        block.assureLoaded();
+        assertTrue(loader.loaded);
+        assertBlock(block, expectedValues);
+
+        // and taking a region
+        loader = new TestSelectiveLazySliceArrayBlockLoader(expectedValues);
+        block = new LazySliceArrayBlock(10, loader);
+        block.assureLoaded(new int[] {1, 4}, 2);
+        assertBlock(block.getRegion(2, 5), Arrays.copyOfRange(expectedValues, 2, 7));
+        assertTrue(loader.loaded);
+    }
+
     private static void assertVariableWithValues(Slice[] expectedValues)
     {
         LazySliceArrayBlock block = new LazySliceArrayBlock(expectedValues.length, new TestLazySliceArrayBlockLoader(expectedValues));
@@ -81,4 +143,37 @@ public class TestLazySliceArrayBlock
             loaded = true;
         }
     }
+
+    private static class TestSelectiveLazySliceArrayBlockLoader
+            implements SelectiveLazyBlockLoader<LazySliceArrayBlock>
+    {
+        private final Slice[] expectedValues;
+        private final Slice[] values;
+        private final List<Integer> loadedPositions = new ArrayList<>();
+        private boolean loaded;
+
+        public TestSelectiveLazySliceArrayBlockLoader(Slice[] expectedValues)
+        {
+            this.expectedValues = expectedValues;
+            this.values = new Slice[expectedValues.length];
+        }
+
+        @Override
+        public void load(LazySliceArrayBlock block)
+        {
+            System.arraycopy(expectedValues, 0, values, 0, values.length);
+            block.setValues(values);
+            loaded = true;
+        }
+
+        @Override
+        public void load(LazySliceArrayBlock block, int[] positions, int positionCount)
+        {
+            for (int i = 0; i < positionCount; i++) {
+                values[positions[i]] = expectedValues[positions[i]];
+                loadedPositions.add(positions[i]);
+            }
+            block.setValues(values);
+        }
+    }
 }
@@ -25,8 +25,11 @@ import org.testng.annotations.Test;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 
+import static com.facebook.presto.block.PagesSerde.readCompressedPages;
 import static com.facebook.presto.block.PagesSerde.readPages;
+import static com.facebook.presto.block.PagesSerde.writeCompressedPages;
 import static com.facebook.presto.block.PagesSerde.writePages;
 import static com.facebook.presto.operator.PageAssertions.assertPageEquals;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
@@ -34,6 +37,7 @@ import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 import static com.facebook.presto.testing.TestingBlockEncodingManager.createTestingBlockEncodingManager;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 public class TestPagesSerde
 {
@@ -60,6 +64,43 @@ public class TestPagesSerde
         assertFalse(pageIterator.hasNext());
     }
 
+    @Test
+    public void testCompressedRoundTrip()
+    {
+        BlockBuilder blockBuilder = BIGINT.createBlockBuilder(new BlockBuilderStatus(), 10_000);
+        for (int i = 0; i < 10_000; i++) {
+            BIGINT.writeLong(blockBuilder, i % 10);
+        }
+        Page compressiblePage = new Page(blockBuilder.build());
+
+        blockBuilder = BIGINT.createBlockBuilder(new BlockBuilderStatus(), 1_000);
+        Random random = new Random(0);
+        for (int i = 0; i < 1_000; i++) {
+            BIGINT.writeLong(blockBuilder, random.nextLong());
+        }
+        Page randomPage = new Page(blockBuilder.build());
+
+        DynamicSliceOutput sliceOutput = new DynamicSliceOutput(1024);
+        PageCompressionStats writeStats = new PageCompressionStats();
+        writeCompressedPages(createTestingBlockEncodingManager(), sliceOutput, ImmutableList.of(compressiblePage, randomPage), writeStats);
+
+        List<Type> types = ImmutableList.<Type>of(BIGINT);
+        PageCompressionStats stats = new PageCompressionStats();
+        Iterator<Page> pageIterator = readCompressedPages(createTestingBlockEncodingManager(), sliceOutput.slice().getInput(), stats);
+        assertPageEquals(types, pageIterator.next(), compressiblePage);
+        long compressedBytes = stats.getCompressedBytes();
+        assertTrue(compressedBytes < stats.getUncompressedBytes() / 10);
+
+        // random values do not compress, so the page is sent as is
+        assertPageEquals(types, pageIterator.next(), randomPage);
+        assertEquals(stats.getCompressedBytes() - compressedBytes, serializedSize(types, randomPage));
+        assertFalse(pageIterator.hasNext());
+
+        // the writer reports the same sizes as the reader
+        assertEquals(writeStats.getCompressedBytes(), stats.getCompressedBytes());
+        assertEquals(writeStats.getUncompressedBytes(), stats.getUncompressedBytes());
+    }
+
     @Test
     public void testBigintSerializedSize()
     {
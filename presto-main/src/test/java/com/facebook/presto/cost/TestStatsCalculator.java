@@ -0,0 +1,147 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.cost;
+
+import com.facebook.presto.metadata.MetadataManager;
+import com.facebook.presto.spi.ColumnStatistics;
+import com.facebook.presto.spi.Domain;
+import com.facebook.presto.spi.Range;
+import com.facebook.presto.spi.SortedRangeSet;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.sql.planner.Symbol;
+import com.facebook.presto.sql.planner.plan.JoinNode;
+import com.facebook.presto.sql.planner.plan.LimitNode;
+import com.facebook.presto.sql.planner.plan.PlanNode;
+import com.facebook.presto.sql.planner.plan.PlanNodeId;
+import com.facebook.presto.sql.planner.plan.ValuesNode;
+import com.facebook.presto.sql.tree.Expression;
+import com.facebook.presto.sql.tree.LongLiteral;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class TestStatsCalculator
+{
+    private static final double EPSILON = 0.000001;
+
+    private static final ColumnStatistics STATISTICS = new ColumnStatistics(100, 0.2, 0L, 1000L);
+
+    private final StatsCalculator statsCalculator = new StatsCalculator(new MetadataManager());
+
+    @Test
+    public void testSingleValueSelectivity()
+    {
+        assertEquals(StatsCalculator.getSelectivity(Domain.singleValue(10L), STATISTICS), 0.8 / 100, EPSILON);
+        assertEquals(StatsCalculator.getSelectivity(Domain.singleValue(10L), ColumnStatistics.unknown()), 0.1, EPSILON);
+
+        Domain twoValues = Domain.create(SortedRangeSet.of(Range.equal(10L), Range.equal(20L)), false);
+        assertEquals(StatsCalculator.getSelectivity(twoValues, STATISTICS), 0.8 * 2 / 100, EPSILON);
+    }
+
+    @Test
+    public void testRangeSelectivity()
+    {
+        Domain lessThan = Domain.create(SortedRangeSet.of(Range.lessThan(250L)), false);
+        assertEquals(StatsCalculator.getSelectivity(lessThan, STATISTICS), 0.8 * 0.25, EPSILON);
+
+        Domain between = Domain.create(SortedRangeSet.of(Range.range(500L, true, 1500L, true)), true);
+        assertEquals(StatsCalculator.getSelectivity(between, STATISTICS), 0.8 * 0.5 + 0.2, EPSILON);
+
+        Domain outside = Domain.create(SortedRangeSet.of(Range.greaterThan(2000L)), false);
+        assertEquals(StatsCalculator.getSelectivity(outside, STATISTICS), 0.0, EPSILON);
+
+        assertEquals(StatsCalculator.getSelectivity(lessThan, ColumnStatistics.unknown()), 0.5, EPSILON);
+    }
+
+    @Test
+    public void testNullSelectivity()
+    {
+        assertEquals(StatsCalculator.getSelectivity(Domain.onlyNull(Long.class), STATISTICS), 0.2, EPSILON);
+        assertEquals(StatsCalculator.getSelectivity(Domain.notNull(Long.class), STATISTICS), 0.8, EPSILON);
+        assertEquals(StatsCalculator.getSelectivity(Domain.none(Long.class), STATISTICS), 0.0, EPSILON);
+        assertEquals(StatsCalculator.getSelectivity(Domain.all(Long.class), STATISTICS), 1.0, EPSILON);
+    }
+
+    @Test
+    public void testPlanEstimates()
+    {
+        Symbol a = new Symbol("a");
+        Symbol b = new Symbol("b");
+        Map<Symbol, Type> types = ImmutableMap.of(a, BIGINT, b, BIGINT);
+
+        PlanNode small = values(a, 10);
+        PlanNode large = values(b, 1000);
+        assertEquals(calculateStats(small, types).getOutputRowCount(), 10.0);
+
+        JoinNode join = new JoinNode(new PlanNodeId("join"), JoinNode.Type.INNER, large, small, ImmutableList.of(new JoinNode.EquiJoinClause(b, a)), Optional.empty(), Optional.empty());
+        assertEquals(calculateStats(join, types).getOutputRowCount(), 1000.0);
+
+        JoinNode crossJoin = new JoinNode(new PlanNodeId("cross"), JoinNode.Type.CROSS, large, small, ImmutableList.of(), Optional.empty(), Optional.empty());
+        assertEquals(calculateStats(crossJoin, types).getOutputRowCount(), 10000.0);
+
+        assertEquals(calculateStats(new LimitNode(new PlanNodeId("limit"), join, 5), types).getOutputRowCount(), 5.0);
+    }
+
+    @Test
+    public void testMemo()
+    {
+        Symbol a = new Symbol("a");
+        Symbol b = new Symbol("b");
+        Map<Symbol, Type> types = ImmutableMap.of(a, BIGINT, b, BIGINT);
+
+        PlanNode small = values(a, 10);
+        PlanNode large = values(b, 1000);
+        JoinNode join = new JoinNode(new PlanNodeId("join"), JoinNode.Type.INNER, large, small, ImmutableList.of(new JoinNode.EquiJoinClause(b, a)), Optional.empty(), Optional.empty());
+
+        // the estimates of a node and its sources are computed once
+        StatsCalculator.Memo memo = statsCalculator.createMemo(TEST_SESSION, types);
+        PlanNodeStatsEstimate smallStats = memo.calculateStats(small);
+        assertSame(memo.calculateStats(small), smallStats);
+        assertEquals(memo.calculateStats(join).getOutputRowCount(), 1000.0);
+        assertSame(memo.calculateStats(join), memo.calculateStats(join));
+    }
+
+    @Test
+    public void testDistinctValuesCappedByRowCount()
+    {
+        Symbol a = new Symbol("a");
+        PlanNodeStatsEstimate estimate = new PlanNodeStatsEstimate(10, ImmutableMap.of(a, 100.0));
+        assertEquals(estimate.getDistinctValuesCount(a), 10.0);
+        assertTrue(Double.isNaN(estimate.getDistinctValuesCount(new Symbol("b"))));
+    }
+
+    private PlanNodeStatsEstimate calculateStats(PlanNode node, Map<Symbol, Type> types)
+    {
+        return statsCalculator.calculateStats(node, TEST_SESSION, types);
+    }
+
+    private static ValuesNode values(Symbol symbol, int rowCount)
+    {
+        ImmutableList.Builder<List<Expression>> rows = ImmutableList.builder();
+        for (int i = 0; i < rowCount; i++) {
+            rows.add(ImmutableList.of(new LongLiteral(String.valueOf(i))));
+        }
+        return new ValuesNode(new PlanNodeId(symbol.getName()), ImmutableList.of(symbol), rows.build());
+    }
+}
@@ -236,6 +236,32 @@ public class TestNodeScheduler
         assertFalse(assignments.keySet().contains(newNode)); // No splits scheduled on the maxed out node
     }
 
+    @Test
+    public void testBucketedAssignment()
+            throws Exception
+    {
+        Node otherNode = Iterables.find(nodeManager.getActiveDatasourceNodes("foo"), node -> node.getNodeIdentifier().equals("other3"));
+        Map<Integer, Node> bucketNodes = new HashMap<>();
+        bucketNodes.put(0, otherNode);
+
+        Set<Split> splits = new HashSet<>();
+        for (int bucket = 0; bucket < 3; bucket++) {
+            splits.add(new Split("foo", new TestSplitBucket(bucket)));
+            splits.add(new Split("foo", new TestSplitBucket(bucket)));
+        }
+        Multimap<Node, Split> assignments = nodeSelector.computeBucketedAssignments(splits, taskMap.values(), bucketNodes);
+        assertEquals(assignments.size(), 6);
+
+        // the splits of a known bucket stay on its node, the others go to the node local to their first split
+        assertEquals(bucketNodes.size(), 3);
+        assertEquals(bucketNodes.get(0), otherNode);
+        assertEquals(bucketNodes.get(1).getHostAndPort(), HostAddress.fromString("127.0.0.1:11"));
+        assertEquals(bucketNodes.get(2).getHostAndPort(), HostAddress.fromString("127.0.0.1:11"));
+        for (Map.Entry<Node, Split> assignment : assignments.entries()) {
+            assertEquals(assignment.getKey(), bucketNodes.get(assignment.getValue().getBucket()));
+        }
+    }
+
     @Test
     public void testTaskCompletion()
             throws Exception
@@ -294,4 +320,21 @@ public class TestNodeScheduler
             return this;
         }
     }
+
+    private class TestSplitBucket
+            extends TestSplitLocal
+    {
+        private final int bucket;
+
+        private TestSplitBucket(int bucket)
+        {
+            this.bucket = bucket;
+        }
+
+        @Override
+        public int getBucket()
+        {
+            return bucket;
+        }
+    }
 }
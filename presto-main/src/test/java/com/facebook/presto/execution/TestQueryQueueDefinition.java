@@ -27,7 +27,7 @@ public class TestQueryQueueDefinition
     @Test
     public void testNameExpansion()
     {
-        Session session = new Session("bob", "the-internet", "", "", TimeZoneKey.UTC_KEY, Locale.ENGLISH, null, null, 0, ImmutableMap.of(), ImmutableMap.of());
+        Session session = new Session("bob", "the-internet", "", "", TimeZoneKey.UTC_KEY, Locale.ENGLISH, null, null, 0, ImmutableMap.of(), ImmutableMap.of(), ImmutableMap.of());
         QueryQueueDefinition definition = new QueryQueueDefinition("user.${USER}", 1, 1);
         assertEquals(definition.getExpandedTemplate(session), "user.bob");
         definition = new QueryQueueDefinition("source.${SOURCE}", 1, 1);
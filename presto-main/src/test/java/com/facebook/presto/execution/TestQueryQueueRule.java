@@ -30,7 +30,7 @@ public class TestQueryQueueRule
     @Test
     public void testBasic()
     {
-        Session session = new Session("bob", "the-internet", "", "", TimeZoneKey.UTC_KEY, Locale.ENGLISH, null, null, 0, ImmutableMap.of(), ImmutableMap.of());
+        Session session = new Session("bob", "the-internet", "", "", TimeZoneKey.UTC_KEY, Locale.ENGLISH, null, null, 0, ImmutableMap.of(), ImmutableMap.of(), ImmutableMap.of());
         QueryQueueDefinition definition = new QueryQueueDefinition("user.${USER}", 1, 1);
         QueryQueueRule rule = new QueryQueueRule(Pattern.compile(".+"), null, ImmutableMap.of(), ImmutableList.of(definition));
         assertEquals(rule.match(session), ImmutableList.of(definition));
@@ -39,7 +39,7 @@ public class TestQueryQueueRule
     @Test
     public void testBigQuery()
     {
-        Session session = new Session("bob", "the-internet", "", "", TimeZoneKey.UTC_KEY, Locale.ENGLISH, null, null, 0, ImmutableMap.of(BIG_QUERY, "true"), ImmutableMap.of());
+        Session session = new Session("bob", "the-internet", "", "", TimeZoneKey.UTC_KEY, Locale.ENGLISH, null, null, 0, ImmutableMap.of(BIG_QUERY, "true"), ImmutableMap.of(), ImmutableMap.of());
         QueryQueueDefinition definition = new QueryQueueDefinition("big", 1, 1);
         QueryQueueRule rule = new QueryQueueRule(null, null, ImmutableMap.of(BIG_QUERY, Pattern.compile("true", Pattern.CASE_INSENSITIVE)), ImmutableList.of(definition));
         assertEquals(rule.match(session), ImmutableList.of(definition));
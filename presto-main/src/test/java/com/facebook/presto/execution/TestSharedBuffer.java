@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.execution;
 
+import com.facebook.presto.HashPagePartitionFunction;
 import com.facebook.presto.OutputBuffers;
 import com.facebook.presto.UnpartitionedPagePartitionFunction;
 import com.facebook.presto.block.BlockAssertions;
@@ -31,6 +32,7 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -44,6 +46,7 @@ import static io.airlift.units.DataSize.Unit.BYTE;
 import static java.util.concurrent.Executors.newScheduledThreadPool;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
@@ -105,7 +108,8 @@ public class TestSharedBuffer
     public void testSimple()
             throws Exception
     {
-        SharedBuffer sharedBuffer = new SharedBuffer(TASK_ID, stateNotificationExecutor, sizeOfPages(10));
+        // each queue may hold the whole buffer, so only the buffer limit applies
+        SharedBuffer sharedBuffer = new SharedBuffer(TASK_ID, stateNotificationExecutor, sizeOfPages(10), Optional.of(sizeOfPages(10)));
 
         // add three items
         for (int i = 0; i < 3; i++) {
@@ -635,6 +639,120 @@ public class TestSharedBuffer
         assertTrue(secondEnqueuePage.isDone());
     }
 
+    @Test
+    public void testHashPartitionedBuffers()
+            throws Exception
+    {
+        SharedBuffer sharedBuffer = new SharedBuffer(TASK_ID, stateNotificationExecutor, sizeOfPages(10));
+        HashPagePartitionFunction firstPartition = new HashPagePartitionFunction(0, 2, ImmutableList.of(0), Optional.empty(), ImmutableList.<Type>of(BIGINT));
+        HashPagePartitionFunction secondPartition = new HashPagePartitionFunction(1, 2, ImmutableList.of(0), Optional.empty(), ImmutableList.<Type>of(BIGINT));
+        sharedBuffer.setOutputBuffers(INITIAL_EMPTY_OUTPUT_BUFFERS
+                .withBuffer(FIRST, firstPartition)
+                .withBuffer(SECOND, secondPartition)
+                .withNoMoreBufferIds());
+
+        Page page = new Page(BlockAssertions.createLongSequenceBlock(0, 100));
+        addPage(sharedBuffer, page);
+
+        // each buffer only holds the rows of its partition
+        List<Page> firstPages = firstPartition.partition(ImmutableList.of(page));
+        List<Page> secondPages = secondPartition.partition(ImmutableList.of(page));
+        assertEquals(firstPages.size(), 1);
+        assertEquals(secondPages.size(), 1);
+        assertEquals(firstPages.get(0).getPositionCount() + secondPages.get(0).getPositionCount(), 100);
+        assertBufferResultEquals(TYPES, getBufferResult(sharedBuffer, FIRST, 0, sizeOfPages(10), NO_WAIT), bufferResult(0, firstPages.get(0)));
+        assertBufferResultEquals(TYPES, getBufferResult(sharedBuffer, SECOND, 0, sizeOfPages(10), NO_WAIT), bufferResult(0, secondPages.get(0)));
+
+        long firstBytes = getBufferInfo(sharedBuffer, FIRST).getBufferedBytes();
+        long secondBytes = getBufferInfo(sharedBuffer, SECOND).getBufferedBytes();
+        assertTrue(firstBytes > 0);
+        assertTrue(secondBytes > 0);
+        assertEquals(sharedBuffer.getInfo().getBufferedBytes(), firstBytes + secondBytes);
+
+        // acknowledging the first partition frees its page, even though the second partition was not consumed
+        sharedBuffer.get(FIRST, 1, sizeOfPages(10)).cancel(true);
+        assertQueueState(sharedBuffer, FIRST, 0, 1);
+        assertEquals(getBufferInfo(sharedBuffer, FIRST).getBufferedBytes(), 0);
+        assertEquals(sharedBuffer.getInfo().getBufferedBytes(), secondBytes);
+
+        sharedBuffer.get(SECOND, 1, sizeOfPages(10)).cancel(true);
+        assertEquals(sharedBuffer.getInfo().getBufferedBytes(), 0);
+
+        sharedBuffer.setNoMorePages();
+        assertBufferResultEquals(TYPES, getBufferResult(sharedBuffer, FIRST, 1, sizeOfPages(10), NO_WAIT), emptyResults(1, true));
+        assertBufferResultEquals(TYPES, getBufferResult(sharedBuffer, SECOND, 1, sizeOfPages(10), NO_WAIT), emptyResults(1, true));
+        assertFinished(sharedBuffer);
+    }
+
+    @Test
+    public void testPartitionLimitQueuesPages()
+            throws Exception
+    {
+        SharedBuffer sharedBuffer = new SharedBuffer(TASK_ID, stateNotificationExecutor, sizeOfPages(10), Optional.of(sizeOfPages(2)));
+        sharedBuffer.setOutputBuffers(INITIAL_EMPTY_OUTPUT_BUFFERS
+                .withBuffer(FIRST, new UnpartitionedPagePartitionFunction())
+                .withBuffer(SECOND, new UnpartitionedPagePartitionFunction())
+                .withNoMoreBufferIds());
+
+        // pages shared by both buffers only count once against the buffer
+        addPage(sharedBuffer, createPage(0));
+        addPage(sharedBuffer, createPage(1));
+        assertEquals(sharedBuffer.getInfo().getBufferedBytes(), sizeOfPages(2).toBytes());
+
+        // the first buffer keeps up, but the second buffer is full, so only its share of the next page is queued
+        assertBufferResultEquals(TYPES, getBufferResult(sharedBuffer, FIRST, 0, sizeOfPages(10), NO_WAIT), bufferResult(0, createPage(0), createPage(1)));
+        sharedBuffer.get(FIRST, 2, sizeOfPages(10)).cancel(true);
+        addPage(sharedBuffer, createPage(2));
+        assertBufferResultEquals(TYPES, getBufferResult(sharedBuffer, FIRST, 2, sizeOfPages(10), NO_WAIT), bufferResult(2, createPage(2)));
+        assertQueueState(sharedBuffer, SECOND, 3, 0);
+        assertEquals(getBufferInfo(sharedBuffer, SECOND).getBufferedBytes(), sizeOfPages(3).toBytes());
+        assertEquals(getBufferInfo(sharedBuffer, SECOND).getMaxBufferedBytes(), sizeOfPages(2).toBytes());
+
+        // the queued page is readable once the second buffer acknowledges a page
+        assertBufferResultEquals(TYPES, getBufferResult(sharedBuffer, SECOND, 0, sizeOfPages(10), NO_WAIT), bufferResult(0, createPage(0), createPage(1)));
+        assertBufferResultEquals(TYPES, getBufferResult(sharedBuffer, SECOND, 1, sizeOfPages(10), NO_WAIT), bufferResult(1, createPage(1), createPage(2)));
+        assertQueueState(sharedBuffer, SECOND, 2, 1);
+
+        // the producer was never blocked
+        assertEquals(sharedBuffer.getInfo().getBlockedTime().toMillis(), 0);
+        assertEquals(getBufferInfo(sharedBuffer, SECOND).getBlockedTime().toMillis(), 0);
+    }
+
+    @Test
+    public void testConsumerThatDoesNotReadDoesNotBlockOthers()
+            throws Exception
+    {
+        // by default, each buffer may hold an even share of the buffer
+        SharedBuffer sharedBuffer = new SharedBuffer(TASK_ID, stateNotificationExecutor, sizeOfPages(10));
+        sharedBuffer.setOutputBuffers(INITIAL_EMPTY_OUTPUT_BUFFERS
+                .withBuffer(FIRST, new UnpartitionedPagePartitionFunction())
+                .withBuffer(SECOND, new UnpartitionedPagePartitionFunction())
+                .withNoMoreBufferIds());
+        assertEquals(getBufferInfo(sharedBuffer, SECOND).getMaxBufferedBytes(), sizeOfPages(5).toBytes());
+
+        // the second consumer never reads, but the first keeps receiving pages after the second buffer is full
+        for (int i = 0; i < 10; i++) {
+            addPage(sharedBuffer, createPage(i));
+            assertBufferResultEquals(TYPES, getBufferResult(sharedBuffer, FIRST, i, sizeOfPages(10), NO_WAIT), bufferResult(i, createPage(i)));
+        }
+        sharedBuffer.get(FIRST, 10, sizeOfPages(10)).cancel(true);
+        assertQueueState(sharedBuffer, FIRST, 0, 10);
+        assertQueueState(sharedBuffer, SECOND, 10, 0);
+
+        // the producer only blocks once the pages held for the second consumer fill the whole buffer
+        ListenableFuture<?> future = enqueuePage(sharedBuffer, createPage(10));
+        assertBufferResultEquals(TYPES, getBufferResult(sharedBuffer, SECOND, 0, sizeOfPages(10), NO_WAIT), bufferResult(0,
+                createPage(0),
+                createPage(1),
+                createPage(2),
+                createPage(3),
+                createPage(4)));
+        sharedBuffer.get(SECOND, 5, sizeOfPages(10)).cancel(true);
+        future.get(1, TimeUnit.SECONDS);
+        assertQueueState(sharedBuffer, SECOND, 6, 5);
+        assertBufferResultEquals(TYPES, getBufferResult(sharedBuffer, FIRST, 10, sizeOfPages(10), NO_WAIT), bufferResult(10, createPage(10)));
+    }
+
     private static ListenableFuture<?> enqueuePage(SharedBuffer sharedBuffer, Page page)
     {
         ListenableFuture<?> future = sharedBuffer.enqueue(page);
@@ -649,12 +767,23 @@ public class TestSharedBuffer
 
     private static void assertQueueState(SharedBuffer sharedBuffer, TaskId queueId, int size, int pagesSent)
     {
-        assertEquals(getBufferInfo(sharedBuffer, queueId), new BufferInfo(queueId, false, size, pagesSent));
+        assertBufferInfo(getBufferInfo(sharedBuffer, queueId), queueId, false, size, pagesSent);
     }
 
     private static void assertQueueClosed(SharedBuffer sharedBuffer, TaskId queueId, int pagesSent)
     {
-        assertEquals(getBufferInfo(sharedBuffer, queueId), new BufferInfo(queueId, true, 0, pagesSent));
+        BufferInfo bufferInfo = getBufferInfo(sharedBuffer, queueId);
+        assertBufferInfo(bufferInfo, queueId, true, 0, pagesSent);
+        assertEquals(bufferInfo.getBufferedBytes(), 0);
+    }
+
+    private static void assertBufferInfo(BufferInfo bufferInfo, TaskId queueId, boolean finished, int size, int pagesSent)
+    {
+        assertNotNull(bufferInfo);
+        assertEquals(bufferInfo.getBufferId(), queueId);
+        assertEquals(bufferInfo.isFinished(), finished);
+        assertEquals(bufferInfo.getBufferedPages(), size);
+        assertEquals(bufferInfo.getPagesSent(), pagesSent);
     }
 
     private static BufferInfo getBufferInfo(SharedBuffer sharedBuffer, TaskId queueId)
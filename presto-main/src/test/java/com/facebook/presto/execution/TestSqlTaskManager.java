@@ -17,6 +17,8 @@ import com.facebook.presto.ScheduledSplit;
 import com.facebook.presto.TaskSource;
 import com.facebook.presto.UnpartitionedPagePartitionFunction;
 import com.facebook.presto.event.query.QueryMonitor;
+import com.facebook.presto.memory.LocalMemoryManager;
+import com.facebook.presto.memory.NodeMemoryConfig;
 import com.facebook.presto.metadata.NodeVersion;
 import com.facebook.presto.operator.ExchangeClient;
 import com.facebook.presto.spi.Node;
@@ -40,6 +42,8 @@ import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
 import static com.facebook.presto.execution.TaskTestUtils.PLAN_FRAGMENT;
 import static com.facebook.presto.execution.TaskTestUtils.SPLIT;
 import static com.facebook.presto.execution.TaskTestUtils.TABLE_SCAN_NODE_ID;
+import static com.facebook.presto.execution.TaskTestUtils.createTestingFragmentFingerprinter;
+import static com.facebook.presto.execution.TaskTestUtils.createTestingFragmentResultCache;
 import static com.facebook.presto.execution.TaskTestUtils.createTestingPlanner;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotEquals;
@@ -246,6 +250,9 @@ public class TestSqlTaskManager
                 taskExecutor,
                 new QueryMonitor(new ObjectMapperProvider().get(), new NullEventClient(), new NodeInfo("test"), new NodeVersion("testVersion")),
                 new NodeInfo("test"),
+                new LocalMemoryManager(new NodeMemoryConfig(), new DataSize(4, Unit.GIGABYTE).toBytes()),
+                createTestingFragmentResultCache(),
+                createTestingFragmentFingerprinter(),
                 config);
     }
 
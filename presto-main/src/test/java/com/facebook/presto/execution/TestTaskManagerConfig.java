@@ -44,8 +44,18 @@ public class TestTaskManagerConfig
                 .setOperatorPreAllocatedMemory(new DataSize(16, Unit.MEGABYTE))
                 .setMaxPartialAggregationMemoryUsage(new DataSize(16, Unit.MEGABYTE))
                 .setSinkMaxBufferSize(new DataSize(32, Unit.MEGABYTE))
+                .setSinkMaxPartitionBufferSize(null)
                 .setWriterCount(1)
-                .setHttpNotificationThreads(25));
+                .setHttpNotificationThreads(25)
+                .setDynamicFilteringEnabled(false)
+                .setDynamicFilteringBloomFilterEnabled(false)
+                .setDynamicFilteringMaxBloomFilterSize(new DataSize(1, Unit.MEGABYTE))
+                .setJoinBuildConcurrency(1)
+                .setTaskConcurrency(1)
+                .setAdaptivePartialAggregationEnabled(true)
+                .setAdaptivePartialAggregationMinRows(100_000)
+                .setAdaptivePartialAggregationUniqueRowsRatio(0.8)
+                .setMergeJoinEnabled(false));
     }
 
     @Test
@@ -64,8 +74,18 @@ public class TestTaskManagerConfig
                 .put("task.info.max-age", "22m")
                 .put("task.client.timeout", "10s")
                 .put("sink.max-buffer-size", "42MB")
+                .put("sink.max-partition-buffer-size", "16MB")
                 .put("task.writer-count", "3")
                 .put("task.http-notification-threads", "4")
+                .put("task.dynamic-filtering-enabled", "true")
+                .put("task.dynamic-filtering-bloom-filter-enabled", "true")
+                .put("task.dynamic-filtering-max-bloom-filter-size", "8MB")
+                .put("task.join-build-concurrency", "4")
+                .put("task.concurrency", "8")
+                .put("task.adaptive-partial-aggregation-enabled", "false")
+                .put("task.adaptive-partial-aggregation-min-rows", "1000")
+                .put("task.adaptive-partial-aggregation-unique-rows-ratio", "0.5")
+                .put("task.merge-join-enabled", "true")
                 .build();
 
         TaskManagerConfig expected = new TaskManagerConfig()
@@ -81,8 +101,18 @@ public class TestTaskManagerConfig
                 .setInfoMaxAge(new Duration(22, TimeUnit.MINUTES))
                 .setClientTimeout(new Duration(10, TimeUnit.SECONDS))
                 .setSinkMaxBufferSize(new DataSize(42, Unit.MEGABYTE))
+                .setSinkMaxPartitionBufferSize(new DataSize(16, Unit.MEGABYTE))
                 .setWriterCount(3)
-                .setHttpNotificationThreads(4);
+                .setHttpNotificationThreads(4)
+                .setDynamicFilteringEnabled(true)
+                .setDynamicFilteringBloomFilterEnabled(true)
+                .setDynamicFilteringMaxBloomFilterSize(new DataSize(8, Unit.MEGABYTE))
+                .setJoinBuildConcurrency(4)
+                .setTaskConcurrency(8)
+                .setAdaptivePartialAggregationEnabled(false)
+                .setAdaptivePartialAggregationMinRows(1000)
+                .setAdaptivePartialAggregationUniqueRowsRatio(0.5)
+                .setMergeJoinEnabled(true);
 
         assertFullMapping(properties, expected);
     }
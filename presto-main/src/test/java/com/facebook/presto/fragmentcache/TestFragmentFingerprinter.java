@@ -0,0 +1,95 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.fragmentcache;
+
+import com.facebook.presto.connector.system.SystemTableHandle;
+import com.facebook.presto.metadata.ColumnHandle;
+import com.facebook.presto.metadata.TableHandle;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.sql.planner.PlanFragment;
+import com.facebook.presto.sql.planner.PlanFragment.OutputPartitioning;
+import com.facebook.presto.sql.planner.PlanFragment.PlanDistribution;
+import com.facebook.presto.sql.planner.Symbol;
+import com.facebook.presto.sql.planner.TestingColumnHandle;
+import com.facebook.presto.sql.planner.plan.FilterNode;
+import com.facebook.presto.sql.planner.plan.PlanFragmentId;
+import com.facebook.presto.sql.planner.plan.PlanNodeId;
+import com.facebook.presto.sql.planner.plan.TableScanNode;
+import com.facebook.presto.sql.tree.ComparisonExpression;
+import com.facebook.presto.sql.tree.StringLiteral;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.Test;
+
+import java.util.Optional;
+
+import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
+import static com.facebook.presto.execution.TaskTestUtils.createTestingFragmentFingerprinter;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static com.facebook.presto.sql.tree.ComparisonExpression.Type.EQUAL;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+
+public class TestFragmentFingerprinter
+{
+    private final FragmentFingerprinter fingerprinter = createTestingFragmentFingerprinter();
+
+    @Test
+    public void testSymbolNamesAndPlanNodeIds()
+    {
+        assertEquals(getFingerprint(createFragment("column", "scan", "x")), getFingerprint(createFragment("other_column", "other_scan", "x")));
+        assertNotEquals(getFingerprint(createFragment("column", "scan", "x")), getFingerprint(createFragment("column", "scan", "y")));
+    }
+
+    @Test
+    public void testLiteralEqualToSymbolName()
+    {
+        // the literals are the quoted name of the symbol and of its canonical name, which must not be renamed
+        assertNotEquals(getFingerprint(createFragment("column", "scan", "\"column\"")), getFingerprint(createFragment("column", "scan", "\"#0\"")));
+        assertNotEquals(getFingerprint(createFragment("column", "scan", "column")), getFingerprint(createFragment("column", "scan", "#0")));
+    }
+
+    private String getFingerprint(PlanFragment fragment)
+    {
+        return fingerprinter.getFingerprint(TEST_SESSION, fragment).get();
+    }
+
+    private static PlanFragment createFragment(String symbolName, String tableScanId, String literal)
+    {
+        Symbol symbol = new Symbol(symbolName);
+        PlanNodeId tableScanNodeId = new PlanNodeId(tableScanId);
+        TableScanNode tableScan = new TableScanNode(
+                tableScanNodeId,
+                new TableHandle("test", new SystemTableHandle("schema", "table")),
+                ImmutableList.of(symbol),
+                ImmutableMap.of(symbol, new ColumnHandle("test", new TestingColumnHandle("column"))),
+                null,
+                Optional.empty());
+        FilterNode filter = new FilterNode(
+                new PlanNodeId(tableScanId + "_filter"),
+                tableScan,
+                new ComparisonExpression(EQUAL, symbol.toQualifiedNameReference(), new StringLiteral(literal)));
+
+        return new PlanFragment(
+                new PlanFragmentId("fragment"),
+                filter,
+                ImmutableMap.<Symbol, Type>of(symbol, VARCHAR),
+                ImmutableList.of(symbol),
+                PlanDistribution.SOURCE,
+                tableScanNodeId,
+                OutputPartitioning.NONE,
+                ImmutableList.<Symbol>of(),
+                Optional.empty());
+    }
+}
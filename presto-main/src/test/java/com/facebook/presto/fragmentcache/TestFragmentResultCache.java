@@ -0,0 +1,181 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.fragmentcache;
+
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import io.airlift.units.DataSize;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.Optional;
+
+import static com.facebook.presto.SequencePageBuilder.createSequencePage;
+import static com.facebook.presto.operator.PageAssertions.assertPageEquals;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static com.facebook.presto.testing.TestingBlockEncodingManager.createTestingBlockEncodingManager;
+import static io.airlift.testing.FileUtils.deleteRecursively;
+import static io.airlift.units.DataSize.Unit.BYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestFragmentResultCache
+{
+    private static final List<Type> TYPES = ImmutableList.<Type>of(BIGINT, VARCHAR);
+
+    private File cachePath;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        cachePath = Files.createTempDir();
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        deleteRecursively(cachePath);
+    }
+
+    @Test
+    public void testMemoryHit()
+    {
+        FragmentResultCache cache = createCache(new DataSize(1, MEGABYTE), new DataSize(1, MEGABYTE));
+
+        assertFalse(cache.get("split").isPresent());
+        assertEquals(cache.getMisses(), 1);
+
+        List<Page> pages = ImmutableList.of(createSequencePage(TYPES, 10, 0, 100), createSequencePage(TYPES, 20, 10, 110));
+        cache.put("split", pages);
+        assertEquals(cache.getEntryCount(), 1);
+        assertTrue(cache.getSizeInBytes() > 0);
+        assertTrue(cache.getInMemorySizeInBytes() > 0);
+
+        assertPagesEqual(cache.get("split"), pages);
+        assertEquals(cache.getMemoryHits(), 1);
+        assertEquals(cache.getDiskHits(), 0);
+        assertEquals(cache.getHitRate(), 0.5);
+    }
+
+    @Test
+    public void testDiskHit()
+    {
+        // the pages do not fit in memory
+        FragmentResultCache cache = createCache(new DataSize(1, MEGABYTE), new DataSize(1, BYTE));
+
+        List<Page> pages = ImmutableList.of(createSequencePage(TYPES, 10, 0, 100));
+        cache.put("split", pages);
+        assertEquals(cache.getInMemorySizeInBytes(), 0);
+
+        assertPagesEqual(cache.get("split"), pages);
+        assertEquals(cache.getMemoryHits(), 0);
+        assertEquals(cache.getDiskHits(), 1);
+    }
+
+    @Test
+    public void testMemoryEviction()
+    {
+        List<Page> first = ImmutableList.of(createSequencePage(TYPES, 100, 0, 100));
+        List<Page> second = ImmutableList.of(createSequencePage(TYPES, 100, 100, 200));
+        long entrySize = first.get(0).getSizeInBytes();
+
+        FragmentResultCache cache = createCache(new DataSize(1, MEGABYTE), new DataSize(entrySize + entrySize / 2, BYTE));
+        cache.put("first", first);
+        cache.put("second", second);
+        assertEquals(cache.getEntryCount(), 2);
+
+        // the least recently used pages were dropped from memory, but are still on disk
+        assertPagesEqual(cache.get("second"), second);
+        assertEquals(cache.getMemoryHits(), 1);
+        assertPagesEqual(cache.get("first"), first);
+        assertEquals(cache.getDiskHits(), 1);
+        assertEquals(cache.getEvictions(), 0);
+    }
+
+    @Test
+    public void testDiskEviction()
+    {
+        FragmentResultCache cache = createCache(new DataSize(1, MEGABYTE), new DataSize(0, BYTE));
+        cache.put("first", ImmutableList.of(createSequencePage(TYPES, 100, 0, 100)));
+        long entrySize = cache.getSizeInBytes();
+
+        cache = createCache(new DataSize(entrySize + entrySize / 2, BYTE), new DataSize(0, BYTE));
+        cache.put("first", ImmutableList.of(createSequencePage(TYPES, 100, 0, 100)));
+        cache.put("second", ImmutableList.of(createSequencePage(TYPES, 100, 100, 200)));
+
+        assertEquals(cache.getEvictions(), 1);
+        assertEquals(cache.getEntryCount(), 1);
+        assertEquals(cache.getSizeInBytes(), entrySize);
+        assertEquals(listCacheFiles().length, 1);
+        assertFalse(cache.get("first").isPresent());
+        assertTrue(cache.get("second").isPresent());
+    }
+
+    @Test
+    public void testLargeEntryIsNotCached()
+    {
+        Page page = createSequencePage(TYPES, 100, 0, 100);
+        FragmentResultCache cache = new FragmentResultCache(
+                createTestingBlockEncodingManager(),
+                true,
+                cachePath.toPath(),
+                new DataSize(1, MEGABYTE),
+                new DataSize(1, MEGABYTE),
+                new DataSize(page.getSizeInBytes() - 1, BYTE));
+
+        cache.put("split", ImmutableList.of(page));
+        assertEquals(cache.getEntryCount(), 0);
+        assertEquals(listCacheFiles().length, 0);
+        assertFalse(cache.get("split").isPresent());
+    }
+
+    @Test
+    public void testStartupDeletesOldFiles()
+    {
+        createCache(new DataSize(1, MEGABYTE), new DataSize(1, MEGABYTE)).put("split", ImmutableList.of(createSequencePage(TYPES, 10, 0, 100)));
+        assertEquals(listCacheFiles().length, 1);
+
+        FragmentResultCache cache = createCache(new DataSize(1, MEGABYTE), new DataSize(1, MEGABYTE));
+        assertEquals(listCacheFiles().length, 0);
+        assertFalse(cache.get("split").isPresent());
+    }
+
+    private FragmentResultCache createCache(DataSize maxSize, DataSize maxInMemorySize)
+    {
+        return new FragmentResultCache(createTestingBlockEncodingManager(), true, cachePath.toPath(), maxSize, maxInMemorySize, maxSize);
+    }
+
+    private File[] listCacheFiles()
+    {
+        return cachePath.listFiles((dir, name) -> name.endsWith(FragmentResultCache.FILE_SUFFIX));
+    }
+
+    private static void assertPagesEqual(Optional<List<Page>> actual, List<Page> expected)
+    {
+        assertTrue(actual.isPresent());
+        assertEquals(actual.get().size(), expected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertPageEquals(TYPES, actual.get().get(i), expected.get(i));
+        }
+    }
+}
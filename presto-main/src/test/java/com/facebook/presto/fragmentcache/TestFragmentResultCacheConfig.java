@@ -0,0 +1,62 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.fragmentcache;
+
+import com.google.common.collect.ImmutableMap;
+import io.airlift.units.DataSize;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.Map;
+
+import static io.airlift.configuration.testing.ConfigAssertions.assertFullMapping;
+import static io.airlift.configuration.testing.ConfigAssertions.assertRecordedDefaults;
+import static io.airlift.configuration.testing.ConfigAssertions.recordDefaults;
+import static io.airlift.units.DataSize.Unit.GIGABYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+
+public class TestFragmentResultCacheConfig
+{
+    @Test
+    public void testDefaults()
+    {
+        assertRecordedDefaults(recordDefaults(FragmentResultCacheConfig.class)
+                .setEnabled(false)
+                .setPath(new File(System.getProperty("java.io.tmpdir"), "presto-fragment-results"))
+                .setMaxSize(new DataSize(10, GIGABYTE))
+                .setMaxInMemorySize(new DataSize(256, MEGABYTE))
+                .setMaxEntrySize(new DataSize(16, MEGABYTE)));
+    }
+
+    @Test
+    public void testExplicitPropertyMappings()
+    {
+        Map<String, String> properties = new ImmutableMap.Builder<String, String>()
+                .put("fragment-result-cache.enabled", "true")
+                .put("fragment-result-cache.path", "/tmp/custom/fragments/path")
+                .put("fragment-result-cache.max-size", "100GB")
+                .put("fragment-result-cache.max-in-memory-size", "1GB")
+                .put("fragment-result-cache.max-entry-size", "64MB")
+                .build();
+
+        FragmentResultCacheConfig expected = new FragmentResultCacheConfig()
+                .setEnabled(true)
+                .setPath(new File("/tmp/custom/fragments/path"))
+                .setMaxSize(new DataSize(100, GIGABYTE))
+                .setMaxInMemorySize(new DataSize(1, GIGABYTE))
+                .setMaxEntrySize(new DataSize(64, MEGABYTE));
+
+        assertFullMapping(properties, expected);
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.fragmentcache;
+
+import com.facebook.presto.client.QueryResults;
+import com.facebook.presto.server.testing.TestingPrestoServer;
+import com.facebook.presto.tpch.TpchPlugin;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+import io.airlift.http.client.HttpClient;
+import io.airlift.http.client.HttpUriBuilder;
+import io.airlift.http.client.Request;
+import io.airlift.http.client.jetty.JettyHttpClient;
+import io.airlift.testing.Closeables;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_CATALOG;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_SCHEMA;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_SESSION;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_SOURCE;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_USER;
+import static io.airlift.http.client.JsonResponseHandler.createJsonResponseHandler;
+import static io.airlift.http.client.Request.Builder.prepareGet;
+import static io.airlift.http.client.Request.Builder.preparePost;
+import static io.airlift.http.client.StaticBodyGenerator.createStaticBodyGenerator;
+import static io.airlift.json.JsonCodec.jsonCodec;
+import static io.airlift.testing.FileUtils.deleteRecursively;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestFragmentResultCaching
+{
+    private File cachePath;
+    private TestingPrestoServer server;
+    private FragmentResultCache cache;
+    private HttpClient client;
+
+    @BeforeClass
+    public void setUp()
+            throws Exception
+    {
+        cachePath = Files.createTempDir();
+        server = new TestingPrestoServer(true, ImmutableMap.<String, String>builder()
+                .put("fragment-result-cache.enabled", "true")
+                .put("fragment-result-cache.path", cachePath.getAbsolutePath())
+                .build(), null, null, ImmutableList.of());
+        server.installPlugin(new TpchPlugin());
+        server.createCatalog("tpch", "tpch");
+        cache = server.getFragmentResultCache();
+        client = new JettyHttpClient();
+
+        // wait for the server to announce the catalog
+        server.refreshNodes();
+        while (server.getActiveNodesWithConnector("tpch").isEmpty()) {
+            MILLISECONDS.sleep(10);
+            server.refreshNodes();
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    @AfterClass
+    public void tearDown()
+    {
+        Closeables.closeQuietly(server);
+        Closeables.closeQuietly(client);
+        deleteRecursively(cachePath);
+    }
+
+    @Test
+    public void testRepeatedPartialAggregationIsServedFromCache()
+    {
+        String sql = "SELECT orderstatus, count(*) FROM orders GROUP BY orderstatus ORDER BY orderstatus";
+
+        long hits = getHits();
+        List<List<Object>> expected = execute(sql);
+        assertEquals(getHits(), hits);
+        assertTrue(cache.getEntryCount() > 0);
+
+        assertEquals(execute(sql), expected);
+        assertTrue(getHits() > hits);
+    }
+
+    @Test
+    public void testQueriesShareLeafFragment()
+    {
+        execute("SELECT linestatus, sum(quantity) FROM lineitem GROUP BY linestatus");
+
+        // only the upper stages differ
+        long hits = getHits();
+        List<List<Object>> rows = execute("SELECT linestatus, sum(quantity) FROM lineitem GROUP BY linestatus HAVING sum(quantity) > 0 ORDER BY linestatus");
+        assertEquals(rows.size(), 2);
+        assertTrue(getHits() > hits);
+    }
+
+    @Test
+    public void testNonDeterministicFragmentIsNotCached()
+    {
+        long lookups = getLookups();
+        execute("SELECT count(*) FROM nation WHERE rand() >= 0");
+        assertEquals(getLookups(), lookups);
+    }
+
+    @Test
+    public void testSessionCanDisableCache()
+    {
+        long lookups = getLookups();
+        execute("SELECT count(*) FROM supplier", "fragment_result_cache_enabled=false");
+        assertEquals(getLookups(), lookups);
+    }
+
+    private long getHits()
+    {
+        return cache.getMemoryHits() + cache.getDiskHits();
+    }
+
+    private long getLookups()
+    {
+        return getHits() + cache.getMisses();
+    }
+
+    private List<List<Object>> execute(String sql, String... sessionProperties)
+    {
+        Request.Builder request = preparePost()
+                .setUri(HttpUriBuilder.uriBuilderFrom(server.getBaseUrl()).replacePath("/v1/statement").build())
+                .setBodyGenerator(createStaticBodyGenerator(sql, UTF_8))
+                .setHeader(PRESTO_USER, "user")
+                .setHeader(PRESTO_SOURCE, "source")
+                .setHeader(PRESTO_CATALOG, "tpch")
+                .setHeader(PRESTO_SCHEMA, "tiny");
+        for (String property : sessionProperties) {
+            request.addHeader(PRESTO_SESSION, property);
+        }
+
+        QueryResults queryResults = client.execute(request.build(), createJsonResponseHandler(jsonCodec(QueryResults.class)));
+        ImmutableList.Builder<List<Object>> rows = ImmutableList.builder();
+        while (true) {
+            if (queryResults.getData() != null) {
+                rows.addAll(queryResults.getData());
+            }
+            if (queryResults.getNextUri() == null) {
+                break;
+            }
+            queryResults = client.execute(prepareGet().setUri(queryResults.getNextUri()).build(), createJsonResponseHandler(jsonCodec(QueryResults.class)));
+        }
+        assertNull(queryResults.getError());
+        return rows.build();
+    }
+}
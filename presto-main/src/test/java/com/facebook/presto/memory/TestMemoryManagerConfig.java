@@ -0,0 +1,57 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.memory;
+
+import com.google.common.collect.ImmutableMap;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+
+import static io.airlift.configuration.testing.ConfigAssertions.assertFullMapping;
+import static io.airlift.configuration.testing.ConfigAssertions.assertRecordedDefaults;
+import static io.airlift.configuration.testing.ConfigAssertions.recordDefaults;
+import static io.airlift.units.DataSize.Unit.GIGABYTE;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+public class TestMemoryManagerConfig
+{
+    @Test
+    public void testDefaults()
+    {
+        assertRecordedDefaults(recordDefaults(MemoryManagerConfig.class)
+                .setMaxQueryMemory(new DataSize(20, GIGABYTE))
+                .setKillOnOutOfMemory(false)
+                .setKillOnOutOfMemoryDelay(new Duration(5, MINUTES)));
+    }
+
+    @Test
+    public void testExplicitPropertyMappings()
+    {
+        Map<String, String> properties = new ImmutableMap.Builder<String, String>()
+                .put("query.max-memory", "2GB")
+                .put("query.low-memory-killer.enabled", "true")
+                .put("query.low-memory-killer.delay", "20s")
+                .build();
+
+        MemoryManagerConfig expected = new MemoryManagerConfig()
+                .setMaxQueryMemory(new DataSize(2, GIGABYTE))
+                .setKillOnOutOfMemory(true)
+                .setKillOnOutOfMemoryDelay(new Duration(20, SECONDS));
+
+        assertFullMapping(properties, expected);
+    }
+}
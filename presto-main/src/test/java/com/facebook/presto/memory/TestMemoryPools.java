@@ -0,0 +1,85 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.memory;
+
+import com.facebook.presto.execution.QueryId;
+import io.airlift.units.DataSize;
+import org.testng.annotations.Test;
+
+import static io.airlift.units.DataSize.Unit.BYTE;
+import static io.airlift.units.DataSize.Unit.GIGABYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestMemoryPools
+{
+    private static final long ONE_MB = new DataSize(1, MEGABYTE).toBytes();
+
+    @Test
+    public void testBlockingOnExhaustedPool()
+    {
+        MemoryPool pool = new MemoryPool(new MemoryPoolId("test"), new DataSize(10, MEGABYTE));
+        QueryContext queryContext = new QueryContext(new QueryId("query"), new DataSize(1, GIGABYTE), pool);
+
+        assertTrue(queryContext.reserveMemory(5 * ONE_MB));
+        assertTrue(queryContext.getMemoryFuture().isDone());
+
+        // the reservation succeeds, but the query is blocked until memory is freed
+        assertTrue(queryContext.reserveMemory(5 * ONE_MB));
+        assertFalse(queryContext.getMemoryFuture().isDone());
+        assertEquals(pool.getFreeBytes(), 0);
+
+        queryContext.freeMemory(ONE_MB);
+        assertTrue(queryContext.getMemoryFuture().isDone());
+        assertEquals(pool.getFreeBytes(), ONE_MB);
+    }
+
+    @Test
+    public void testQueryLimitPerNode()
+    {
+        MemoryPool pool = new MemoryPool(new MemoryPoolId("test"), new DataSize(10, MEGABYTE));
+        QueryContext queryContext = new QueryContext(new QueryId("query"), new DataSize(2, MEGABYTE), pool);
+
+        assertTrue(queryContext.reserveMemory(2 * ONE_MB));
+        assertFalse(queryContext.reserveMemory(1));
+        assertEquals(pool.getFreeBytes(), 8 * ONE_MB);
+    }
+
+    @Test
+    public void testMoveToReservedPool()
+    {
+        LocalMemoryManager memoryManager = new LocalMemoryManager(
+                new NodeMemoryConfig()
+                        .setMaxQueryMemoryPerNode(new DataSize(10, MEGABYTE))
+                        .setReservedSystemMemory(new DataSize(0, BYTE)),
+                new DataSize(15, MEGABYTE).toBytes());
+        MemoryPool generalPool = memoryManager.getPool(LocalMemoryManager.GENERAL_POOL);
+        MemoryPool reservedPool = memoryManager.getPool(LocalMemoryManager.RESERVED_POOL);
+
+        QueryId queryId = new QueryId("query");
+        QueryContext queryContext = new QueryContext(queryId, memoryManager.getMaxQueryMemoryPerNode(), generalPool);
+        assertTrue(queryContext.reserveMemory(6 * ONE_MB));
+        assertFalse(queryContext.getMemoryFuture().isDone());
+
+        queryContext.setMemoryPool(reservedPool);
+        assertTrue(queryContext.getMemoryFuture().isDone());
+        assertEquals(generalPool.getFreeBytes(), 5 * ONE_MB);
+        assertEquals(reservedPool.getInfo().getQueryMemoryReservations().get(queryId).longValue(), 6 * ONE_MB);
+
+        queryContext.freeMemory(6 * ONE_MB);
+        assertEquals(reservedPool.getFreeBytes(), 10 * ONE_MB);
+    }
+}
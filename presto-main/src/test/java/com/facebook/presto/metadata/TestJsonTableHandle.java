@@ -62,6 +62,7 @@ public class TestJsonTableHandle
                     .put("startTime", TEST_SESSION.getStartTime())
                     .put("systemProperties", ImmutableMap.of())
                     .put("catalogProperties", ImmutableMap.of())
+                    .put("preparedStatements", ImmutableMap.of())
                     .build(),
             "catalogName", "information_schema_catalog",
             "schemaName", "information_schema_schema",
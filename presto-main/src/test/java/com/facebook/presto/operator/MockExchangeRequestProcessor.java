@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.operator;
 
+import com.facebook.presto.block.PageCompressionStats;
 import com.facebook.presto.block.PagesSerde;
 import com.facebook.presto.client.PrestoHeaders;
 import com.facebook.presto.execution.BufferResult;
@@ -39,8 +40,10 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static com.facebook.presto.PrestoMediaTypes.PRESTO_PAGES;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_PAGE_COMPRESSION;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_PAGE_NEXT_TOKEN;
 import static com.facebook.presto.client.PrestoHeaders.PRESTO_PAGE_TOKEN;
+import static com.facebook.presto.operator.HttpPageBufferClient.PAGE_COMPRESSION_SNAPPY;
 import static com.facebook.presto.testing.TestingBlockEncodingManager.createTestingBlockEncodingManager;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
@@ -60,10 +63,17 @@ public class MockExchangeRequestProcessor
     });
 
     private final DataSize expectedMaxSize;
+    private final boolean compressionEnabled;
 
     public MockExchangeRequestProcessor(DataSize expectedMaxSize)
+    {
+        this(expectedMaxSize, false);
+    }
+
+    public MockExchangeRequestProcessor(DataSize expectedMaxSize, boolean compressionEnabled)
     {
         this.expectedMaxSize = expectedMaxSize;
+        this.compressionEnabled = compressionEnabled;
     }
 
     public void addPage(URI location, Page page)
@@ -98,7 +108,12 @@ public class MockExchangeRequestProcessor
         HttpStatus status;
         if (!pages.isEmpty()) {
             DynamicSliceOutput sliceOutput = new DynamicSliceOutput(64);
-            PagesSerde.writePages(createTestingBlockEncodingManager(), sliceOutput, pages);
+            if (compressionEnabled) {
+                PagesSerde.writeCompressedPages(createTestingBlockEncodingManager(), sliceOutput, pages, new PageCompressionStats());
+            }
+            else {
+                PagesSerde.writePages(createTestingBlockEncodingManager(), sliceOutput, pages);
+            }
             bytes = sliceOutput.slice().getBytes();
             status = HttpStatus.OK;
         }
@@ -109,14 +124,14 @@ public class MockExchangeRequestProcessor
             status = HttpStatus.NO_CONTENT;
         }
 
-        return new TestingResponse(
-                status,
-                ImmutableListMultimap.of(
-                        CONTENT_TYPE, PRESTO_PAGES,
-                        PRESTO_PAGE_TOKEN, String.valueOf(result.getToken()),
-                        PRESTO_PAGE_NEXT_TOKEN, String.valueOf(result.getNextToken())
-                ),
-                bytes);
+        ImmutableListMultimap.Builder<String, String> headers = ImmutableListMultimap.<String, String>builder()
+                .put(CONTENT_TYPE, PRESTO_PAGES)
+                .put(PRESTO_PAGE_TOKEN, String.valueOf(result.getToken()))
+                .put(PRESTO_PAGE_NEXT_TOKEN, String.valueOf(result.getNextToken()));
+        if (compressionEnabled) {
+            headers.put(PRESTO_PAGE_COMPRESSION, PAGE_COMPRESSION_SNAPPY);
+        }
+        return new TestingResponse(status, headers.build(), bytes);
     }
 
     private class RequestLocation
@@ -202,13 +202,18 @@ public final class OperatorAssertion
     }
 
     public static void assertOperatorEqualsIgnoreOrder(Operator operator, List<Page> input, MaterializedResult expected, boolean hashEnabled, Optional<Integer> hashChannel)
+    {
+        assertOperatorEqualsIgnoreOrder(operator, input, expected, hashEnabled, hashChannel.map(ImmutableList::of).orElse(ImmutableList.of()));
+    }
+
+    public static void assertOperatorEqualsIgnoreOrder(Operator operator, List<Page> input, MaterializedResult expected, boolean hashEnabled, List<Integer> hashChannels)
     {
         List<Page> pages = toPages(operator, input);
         MaterializedResult actual;
-        if (hashEnabled && hashChannel.isPresent()) {
+        if (hashEnabled && !hashChannels.isEmpty()) {
             // Drop the hashChannel for all pages
-            List<Page> actualPages = dropChannel(pages, ImmutableList.of(hashChannel.get()));
-            List<Type> expectedTypes = without(operator.getTypes(), ImmutableList.of(hashChannel.get()));
+            List<Page> actualPages = dropChannel(pages, hashChannels);
+            List<Type> expectedTypes = without(operator.getTypes(), hashChannels);
             actual = toMaterializedResult(operator.getOperatorContext().getSession(), expectedTypes, actualPages);
         }
         else {
@@ -0,0 +1,111 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.spi.block.Block;
+import org.testng.annotations.Test;
+
+import static com.facebook.presto.block.BlockAssertions.createLongsBlock;
+import static com.facebook.presto.block.BlockAssertions.createStringsBlock;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.BooleanType.BOOLEAN;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static io.airlift.slice.Slices.utf8Slice;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class TestBloomFilter
+{
+    @Test
+    public void testNoFalseNegatives()
+    {
+        BloomFilter bloomFilter = new BloomFilter(1024 * 1024);
+        for (long value = 0; value < 100_000; value += 2) {
+            bloomFilter.add(BloomFilter.hash(BIGINT, value));
+        }
+        bloomFilter = bloomFilter.compact();
+
+        int falsePositives = 0;
+        for (long value = 0; value < 100_000; value++) {
+            boolean mightContain = bloomFilter.mightContain(BloomFilter.hash(BIGINT, value));
+            if (value % 2 == 0) {
+                assertTrue(mightContain, "missing " + value);
+            }
+            else if (mightContain) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 50_000 * 0.02, "too many false positives: " + falsePositives);
+    }
+
+    @Test
+    public void testCompact()
+    {
+        BloomFilter bloomFilter = new BloomFilter(1024 * 1024);
+        assertEquals(bloomFilter.getBitCount(), 8 * 1024 * 1024);
+        for (long value = 0; value < 1000; value++) {
+            bloomFilter.add(BloomFilter.hash(BIGINT, value));
+        }
+
+        // folded to the smallest power of two with at least ten bits per value
+        BloomFilter compacted = bloomFilter.compact();
+        assertEquals(compacted.getBitCount(), 16384);
+        assertEquals(compacted.getSizeInBytes() < bloomFilter.getSizeInBytes() / 100, true);
+        for (long value = 0; value < 1000; value++) {
+            assertTrue(compacted.mightContain(BloomFilter.hash(BIGINT, value)));
+        }
+
+        // a filter that is full is not folded
+        BloomFilter small = new BloomFilter(128);
+        for (long value = 0; value < 1000; value++) {
+            small.add(BloomFilter.hash(BIGINT, value));
+        }
+        assertSame(small.compact(), small);
+    }
+
+    @Test
+    public void testMerge()
+    {
+        BloomFilter left = new BloomFilter(4096);
+        BloomFilter right = new BloomFilter(4096);
+        left.add(BloomFilter.hash(VARCHAR, utf8Slice("apple")));
+        right.add(BloomFilter.hash(VARCHAR, utf8Slice("banana")));
+        right.add(BloomFilter.hash(BOOLEAN, true));
+
+        left.merge(right);
+        assertTrue(left.mightContain(BloomFilter.hash(VARCHAR, utf8Slice("apple"))));
+        assertTrue(left.mightContain(BloomFilter.hash(VARCHAR, utf8Slice("banana"))));
+        assertTrue(left.mightContain(BloomFilter.hash(BOOLEAN, true)));
+        assertFalse(right.mightContain(BloomFilter.hash(VARCHAR, utf8Slice("apple"))));
+    }
+
+    @Test
+    public void testHashOfBlockAndValue()
+    {
+        Block longs = createLongsBlock(7L, -1L);
+        assertEquals(BloomFilter.hash(BIGINT, longs, 0), BloomFilter.hash(BIGINT, 7L));
+        assertEquals(BloomFilter.hash(BIGINT, longs, 1), BloomFilter.hash(BIGINT, -1L));
+
+        Block strings = createStringsBlock("apple", "banana");
+        assertEquals(BloomFilter.hash(VARCHAR, strings, 1), BloomFilter.hash(VARCHAR, utf8Slice("banana")));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testMergeDifferentSizes()
+    {
+        new BloomFilter(4096).merge(new BloomFilter(8192));
+    }
+}
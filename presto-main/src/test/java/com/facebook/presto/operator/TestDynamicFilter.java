@@ -0,0 +1,206 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.metadata.ColumnHandle;
+import com.facebook.presto.spi.Domain;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.Range;
+import com.facebook.presto.spi.SortedRangeSet;
+import com.facebook.presto.spi.block.LazyFixedWidthBlock;
+import com.facebook.presto.sql.planner.TestingColumnHandle;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.facebook.presto.block.BlockAssertions.assertBlockEquals;
+import static com.facebook.presto.block.BlockAssertions.createLongsBlock;
+import static com.facebook.presto.block.BlockAssertions.createStringsBlock;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static io.airlift.slice.SizeOf.SIZE_OF_LONG;
+import static io.airlift.slice.Slices.utf8Slice;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class TestDynamicFilter
+{
+    private static final ColumnHandle COLUMN_A = new ColumnHandle("test", new TestingColumnHandle("a"));
+    private static final ColumnHandle COLUMN_B = new ColumnHandle("test", new TestingColumnHandle("b"));
+
+    @Test
+    public void testDistinctValues()
+    {
+        DynamicFilter dynamicFilter = new DynamicFilter(ImmutableList.of(0, 1), ImmutableList.of(COLUMN_A, COLUMN_B), ImmutableList.of(BIGINT, VARCHAR));
+        assertFalse(dynamicFilter.isComplete());
+
+        // the build side keys are in channels 1 and 0
+        DynamicFilterCollector collector = new DynamicFilterCollector(dynamicFilter, ImmutableList.of(1, 0));
+        collector.addPage(new Page(createStringsBlock("x", "y", null), createLongsBlock(3L, 1L, 3L)));
+        collector.finish();
+        assertTrue(dynamicFilter.isComplete());
+
+        Domain expectedA = Domain.create(SortedRangeSet.of(Range.equal(1L), Range.equal(3L)), false);
+        Domain expectedB = Domain.create(SortedRangeSet.of(Range.equal(utf8Slice("x")), Range.equal(utf8Slice("y"))), false);
+        assertEquals(dynamicFilter.getTupleDomain().getDomains().get(COLUMN_A), expectedA);
+        assertEquals(dynamicFilter.getTupleDomain().getDomains().get(COLUMN_B), expectedB);
+
+        Page probe = new Page(createLongsBlock(1L, 2L, 3L, null, 3L), createStringsBlock("x", "x", "y", "y", null));
+        Page filtered = dynamicFilter.filter(probe);
+        assertEquals(filtered.getPositionCount(), 2);
+        assertBlockEquals(BIGINT, filtered.getBlock(0), createLongsBlock(1L, 3L));
+        assertBlockEquals(VARCHAR, filtered.getBlock(1), createStringsBlock("x", "y"));
+    }
+
+    @Test
+    public void testRange()
+    {
+        DynamicFilter dynamicFilter = new DynamicFilter(ImmutableList.of(0), ImmutableList.of(COLUMN_A), ImmutableList.of(BIGINT));
+
+        List<Long> values = new ArrayList<>();
+        for (long value = 0; value < 10_000; value += 2) {
+            values.add(value);
+        }
+        DynamicFilterCollector collector = new DynamicFilterCollector(dynamicFilter, ImmutableList.of(0));
+        collector.addPage(new Page(createLongsBlock(values)));
+        collector.finish();
+
+        // too many distinct values are described by their range
+        Domain expected = Domain.create(SortedRangeSet.of(Range.range(0L, true, 9_998L, true)), false);
+        assertEquals(dynamicFilter.getTupleDomain().getDomains().get(COLUMN_A), expected);
+
+        Page filtered = dynamicFilter.filter(new Page(createLongsBlock(-1L, 0L, 1L, 9_998L, 9_999L)));
+        assertBlockEquals(BIGINT, filtered.getBlock(0), createLongsBlock(0L, 1L, 9_998L));
+    }
+
+    @Test
+    public void testBloomFilter()
+    {
+        DynamicFilter dynamicFilter = new DynamicFilter(ImmutableList.of(0), ImmutableList.of(COLUMN_A), ImmutableList.of(BIGINT), 1024 * 1024);
+
+        // the keys are collected by two drivers
+        DynamicFilterCollector collector = new DynamicFilterCollector(dynamicFilter, ImmutableList.of(0));
+        DynamicFilterCollector other = new DynamicFilterCollector(dynamicFilter, ImmutableList.of(0));
+        List<Long> values = new ArrayList<>();
+        List<Long> otherValues = new ArrayList<>();
+        for (long value = 0; value < 10_000; value += 2) {
+            (value < 5_000 ? values : otherValues).add(value);
+        }
+        collector.addPage(new Page(createLongsBlock(values)));
+        other.addPage(new Page(createLongsBlock(otherValues)));
+        collector.merge(other);
+        collector.finish();
+
+        // the domain is still the range, so connectors see the same constraint
+        Domain expected = Domain.create(SortedRangeSet.of(Range.range(0L, true, 9_998L, true)), false);
+        assertEquals(dynamicFilter.getTupleDomain().getDomains().get(COLUMN_A), expected);
+
+        List<Long> probe = new ArrayList<>();
+        for (long value = -10; value < 10_010; value++) {
+            probe.add(value);
+        }
+        Page filtered = dynamicFilter.filter(new Page(createLongsBlock(probe)));
+
+        // every key of the build side is kept, and most other keys of the range are dropped
+        int matches = 0;
+        for (int position = 0; position < filtered.getPositionCount(); position++) {
+            if (BIGINT.getLong(filtered.getBlock(0), position) % 2 == 0) {
+                matches++;
+            }
+        }
+        assertEquals(matches, 5_000);
+        assertTrue(filtered.getPositionCount() - matches < 250, "too many false positives: " + (filtered.getPositionCount() - matches));
+    }
+
+    @Test
+    public void testMergeDistinctValuesIntoBloomFilter()
+    {
+        DynamicFilter dynamicFilter = new DynamicFilter(ImmutableList.of(0), ImmutableList.of(COLUMN_A), ImmutableList.of(BIGINT), 1024 * 1024);
+
+        // one driver still lists its distinct values, the other one only has a Bloom filter
+        DynamicFilterCollector collector = new DynamicFilterCollector(dynamicFilter, ImmutableList.of(0));
+        DynamicFilterCollector other = new DynamicFilterCollector(dynamicFilter, ImmutableList.of(0));
+        collector.addPage(new Page(createLongsBlock(-5L, 20_001L)));
+        assertEquals(collector.getEstimatedSize(), 0);
+        List<Long> otherValues = new ArrayList<>();
+        for (long value = 0; value < 10_000; value += 2) {
+            otherValues.add(value);
+        }
+        other.addPage(new Page(createLongsBlock(otherValues)));
+        assertTrue(other.getEstimatedSize() > 0);
+        collector.merge(other);
+        collector.finish();
+
+        Domain expected = Domain.create(SortedRangeSet.of(Range.range(-5L, true, 20_001L, true)), false);
+        assertEquals(dynamicFilter.getTupleDomain().getDomains().get(COLUMN_A), expected);
+
+        // the distinct values of the first driver are in the Bloom filter
+        Page filtered = dynamicFilter.filter(new Page(createLongsBlock(-5L, 20_001L, 0L, 9_998L, -6L, 20_002L)));
+        assertBlockEquals(BIGINT, filtered.getBlock(0), createLongsBlock(-5L, 20_001L, 0L, 9_998L));
+    }
+
+    @Test
+    public void testEmptyBuildSide()
+    {
+        DynamicFilter dynamicFilter = new DynamicFilter(ImmutableList.of(0), ImmutableList.of(COLUMN_A), ImmutableList.of(BIGINT));
+
+        DynamicFilterCollector collector = new DynamicFilterCollector(dynamicFilter, ImmutableList.of(0));
+        collector.addPage(new Page(createLongsBlock((Long) null)));
+        collector.finish();
+
+        assertTrue(dynamicFilter.getTupleDomain().isNone());
+        assertEquals(dynamicFilter.filter(new Page(createLongsBlock(1L, 2L))).getPositionCount(), 0);
+    }
+
+    @Test
+    public void testFilterKeepsBlocksLazy()
+    {
+        DynamicFilter dynamicFilter = new DynamicFilter(ImmutableList.of(0), ImmutableList.of(COLUMN_A), ImmutableList.of(BIGINT));
+        dynamicFilter.setDomains(ImmutableList.of(Domain.singleValue(2L)));
+
+        AtomicBoolean loaded = new AtomicBoolean();
+        LazyFixedWidthBlock lazyBlock = new LazyFixedWidthBlock(SIZE_OF_LONG, 3, block -> {
+            loaded.set(true);
+            Slice slice = Slices.allocate(3 * SIZE_OF_LONG);
+            for (int position = 0; position < 3; position++) {
+                slice.setLong(position * SIZE_OF_LONG, (position + 1) * 10L);
+            }
+            block.setRawSlice(slice);
+            block.setNullVector(new boolean[3]);
+        });
+
+        Page filtered = dynamicFilter.filter(new Page(createLongsBlock(1L, 2L, 3L), lazyBlock));
+        assertFalse(loaded.get());
+        assertBlockEquals(BIGINT, filtered.getBlock(1), createLongsBlock(20L));
+        assertTrue(loaded.get());
+
+        // pages without filtered rows are returned as is
+        Page page = new Page(createLongsBlock(2L, 2L));
+        assertSame(dynamicFilter.filter(page), page);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testUnsupportedType()
+    {
+        new DynamicFilter(ImmutableList.of(0), ImmutableList.of(COLUMN_A), ImmutableList.of(DOUBLE));
+    }
+}
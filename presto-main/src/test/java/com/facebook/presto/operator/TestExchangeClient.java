@@ -102,6 +102,41 @@ public class TestExchangeClient
         assertStatus(exchangeClient.getStatus().getPageBufferClientStatuses().get(0), location, "closed", 3, 2, 2, "not scheduled");
     }
 
+    @Test
+    public void testCompressedPages()
+            throws Exception
+    {
+        DataSize maxResponseSize = new DataSize(10, Unit.MEGABYTE);
+        MockExchangeRequestProcessor processor = new MockExchangeRequestProcessor(maxResponseSize, true);
+
+        URI location = URI.create("http://localhost:8080");
+        processor.addPage(location, createPage(1));
+        processor.addPage(location, createPage(1000));
+        processor.setComplete(location);
+
+        @SuppressWarnings("resource")
+        ExchangeClient exchangeClient = new ExchangeClient(createTestingBlockEncodingManager(),
+                new DataSize(32, Unit.MEGABYTE),
+                maxResponseSize,
+                1,
+                new Duration(1, TimeUnit.MINUTES),
+                new TestingHttpClient(processor, executor),
+                executor);
+
+        exchangeClient.addLocation(location);
+        exchangeClient.noMoreLocations();
+
+        assertPageEquals(exchangeClient.getNextPage(new Duration(1, TimeUnit.SECONDS)), createPage(1));
+        assertPageEquals(exchangeClient.getNextPage(new Duration(1, TimeUnit.SECONDS)), createPage(1000));
+        assertNull(exchangeClient.getNextPage(new Duration(1, TimeUnit.SECONDS)));
+        assertEquals(exchangeClient.isClosed(), true);
+
+        // the small page is sent as is, while the sequence compresses well
+        ExchangeClientStatus status = exchangeClient.getStatus();
+        assertTrue(status.getUncompressedBytesReceived() > 8000);
+        assertLessThan(status.getCompressedBytesReceived(), status.getUncompressedBytesReceived());
+    }
+
     @Test(timeOut = 10000)
     public void testAddLocation()
             throws Exception
@@ -25,10 +25,12 @@ import com.facebook.presto.spi.block.BlockBuilder;
 import com.facebook.presto.spi.block.BlockBuilderStatus;
 import com.facebook.presto.spi.type.StandardTypes;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spiller.FileSpillerFactory;
 import com.facebook.presto.sql.planner.plan.AggregationNode.Step;
 import com.facebook.presto.sql.tree.QualifiedName;
 import com.facebook.presto.testing.MaterializedResult;
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
 import com.google.common.primitives.Ints;
 import io.airlift.slice.Slices;
 import io.airlift.units.DataSize;
@@ -38,6 +40,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -61,13 +64,16 @@ import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
 import static com.facebook.presto.spi.type.TypeSignature.parseTypeSignature;
 import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 import static com.facebook.presto.testing.MaterializedResult.resultBuilder;
+import static com.facebook.presto.testing.TestingBlockEncodingManager.createTestingBlockEncodingManager;
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
 import static io.airlift.slice.SizeOf.SIZE_OF_DOUBLE;
 import static io.airlift.slice.SizeOf.SIZE_OF_LONG;
+import static io.airlift.testing.FileUtils.deleteRecursively;
 import static io.airlift.testing.Assertions.assertEqualsIgnoreOrder;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
 @Test(singleThreaded = true)
@@ -183,6 +189,102 @@ public class TestHashAggregationOperator
         toPages(operator, input);
     }
 
+    @Test(dataProvider = "hashEnabledValues")
+    public void testSpillToDisk(boolean hashEnabled)
+            throws Exception
+    {
+        List<Integer> hashChannels = Ints.asList(0);
+        RowPagesBuilder rowPagesBuilder = rowPagesBuilder(hashEnabled, hashChannels, BIGINT);
+        List<Page> input = rowPagesBuilder
+                .addSequencePage(50_000, 0)
+                .addSequencePage(50_000, 50_000)
+                .addSequencePage(50_000, 0)
+                .addSequencePage(50_000, 50_000)
+                .build();
+
+        // the groups do not fit in the task memory, so they must be spilled and merged
+        DriverContext driverContext = new TaskContext(new TaskId("query", "stage", "task"), executor, TEST_SESSION, new DataSize(2, MEGABYTE))
+                .addPipelineContext(true, true)
+                .addDriverContext();
+
+        File spillPath = Files.createTempDir();
+        try {
+            HashAggregationOperatorFactory operatorFactory = new HashAggregationOperatorFactory(
+                    0,
+                    ImmutableList.of(BIGINT),
+                    hashChannels,
+                    Step.SINGLE,
+                    ImmutableList.of(COUNT.bind(ImmutableList.of(0), Optional.empty(), Optional.empty(), 1.0),
+                            LONG_SUM.bind(ImmutableList.of(0), Optional.empty(), Optional.empty(), 1.0)),
+                    rowPagesBuilder.getHashChannel(),
+                    10_000,
+                    new DataSize(16, MEGABYTE),
+                    Optional.of(new FileSpillerFactory(createTestingBlockEncodingManager(), spillPath.toPath())));
+
+            MaterializedResult.Builder expected = resultBuilder(driverContext.getSession(), BIGINT, BIGINT, BIGINT);
+            for (long i = 0; i < 100_000; i++) {
+                expected.row(i, 2L, 2 * i);
+            }
+
+            try (Operator operator = operatorFactory.createOperator(driverContext)) {
+                assertOperatorEqualsIgnoreOrder(operator, input, expected.build(), hashEnabled, Optional.of(hashChannels.size()));
+            }
+        }
+        finally {
+            deleteRecursively(spillPath);
+        }
+    }
+
+    @Test(dataProvider = "hashEnabledValues")
+    public void testSpilledPartitionLargerThanMemory(boolean hashEnabled)
+            throws Exception
+    {
+        List<Integer> hashChannels = Ints.asList(0);
+        RowPagesBuilder rowPagesBuilder = rowPagesBuilder(hashEnabled, hashChannels, BIGINT);
+        for (int i = 0; i < 2; i++) {
+            rowPagesBuilder
+                    .addSequencePage(100_000, 0)
+                    .addSequencePage(100_000, 100_000)
+                    .addSequencePage(100_000, 200_000)
+                    .addSequencePage(100_000, 300_000);
+        }
+        List<Page> input = rowPagesBuilder.build();
+
+        // even a single spilled partition holds more groups than fit in the task memory, so it must be split again
+        DriverContext driverContext = new TaskContext(new TaskId("query", "stage", "task"), executor, TEST_SESSION, new DataSize(1, MEGABYTE))
+                .addPipelineContext(true, true)
+                .addDriverContext();
+
+        File spillPath = Files.createTempDir();
+        try {
+            HashAggregationOperatorFactory operatorFactory = new HashAggregationOperatorFactory(
+                    0,
+                    ImmutableList.of(BIGINT),
+                    hashChannels,
+                    Step.SINGLE,
+                    ImmutableList.of(COUNT.bind(ImmutableList.of(0), Optional.empty(), Optional.empty(), 1.0),
+                            LONG_SUM.bind(ImmutableList.of(0), Optional.empty(), Optional.empty(), 1.0)),
+                    rowPagesBuilder.getHashChannel(),
+                    1_000,
+                    new DataSize(16, MEGABYTE),
+                    Optional.of(new FileSpillerFactory(createTestingBlockEncodingManager(), spillPath.toPath())));
+
+            MaterializedResult.Builder expected = resultBuilder(driverContext.getSession(), BIGINT, BIGINT, BIGINT);
+            for (long i = 0; i < 400_000; i++) {
+                expected.row(i, 2L, 2 * i);
+            }
+
+            try (Operator operator = operatorFactory.createOperator(driverContext)) {
+                assertOperatorEqualsIgnoreOrder(operator, input, expected.build(), hashEnabled, Optional.of(hashChannels.size()));
+            }
+            // the spill files of the split partitions are deleted as well
+            assertEquals(spillPath.list().length, 0);
+        }
+        finally {
+            deleteRecursively(spillPath);
+        }
+    }
+
     @Test(dataProvider = "hashEnabledValues")
     public void testHashBuilderResize(boolean hashEnabled)
     {
@@ -356,4 +458,102 @@ public class TestHashAggregationOperator
         assertEquals(actual.getTypes(), expected.getTypes());
         assertEqualsIgnoreOrder(actual.getMaterializedRows(), expected.getMaterializedRows());
     }
+
+    @Test(dataProvider = "hashEnabledValues")
+    public void testAdaptivePartialAggregation(boolean hashEnabled)
+            throws Exception
+    {
+        List<Integer> hashChannels = Ints.asList(0);
+        RowPagesBuilder rowPagesBuilder = rowPagesBuilder(hashEnabled, hashChannels, BIGINT);
+        List<Page> input = rowPagesBuilder
+                .addSequencePage(500, 0)
+                .addSequencePage(500, 500)
+                .addSequencePage(500, 1000)
+                .addSequencePage(500, 1500)
+                .build();
+
+        HashAggregationOperatorFactory operatorFactory = new HashAggregationOperatorFactory(
+                0,
+                ImmutableList.of(BIGINT),
+                hashChannels,
+                Step.PARTIAL,
+                ImmutableList.of(LONG_SUM.bind(ImmutableList.of(0), Optional.empty(), Optional.empty(), 1.0)),
+                rowPagesBuilder.getHashChannel(),
+                100_000,
+                new DataSize(16, MEGABYTE),
+                Optional.empty(),
+                Optional.of(new AdaptivePartialAggregation(1000, 0.5)));
+        Operator operator = operatorFactory.createOperator(driverContext);
+
+        // every row is a group of its own, so the groups of the first 1000 rows are flushed
+        Iterator<Page> inputIterator = input.iterator();
+        operator.addInput(inputIterator.next());
+        assertTrue(operator.needsInput());
+        operator.addInput(inputIterator.next());
+        assertFalse(operator.needsInput());
+
+        List<Page> outputPages = new ArrayList<>();
+        Page output = operator.getOutput();
+        while (output != null) {
+            outputPages.add(output);
+            output = operator.getOutput();
+        }
+        assertEquals(outputPages.stream().mapToInt(Page::getPositionCount).sum(), 1000);
+
+        // the remaining rows are passed through without grouping
+        assertTrue(operator.needsInput());
+        operator.addInput(inputIterator.next());
+        output = operator.getOutput();
+        assertEquals(output.getPositionCount(), 500);
+        outputPages.add(output);
+        outputPages.addAll(toPages(operator, inputIterator));
+
+        List<Page> expectedPages = rowPagesBuilder(BIGINT, BIGINT)
+                .addSequencePage(2000, 0, 0)
+                .build();
+        MaterializedResult expected = resultBuilder(driverContext.getSession(), BIGINT, BIGINT)
+                .pages(expectedPages)
+                .build();
+
+        MaterializedResult actual;
+        if (hashEnabled) {
+            List<Page> actualPages = dropChannel(outputPages, hashChannels);
+            actual = toMaterializedResult(operator.getOperatorContext().getSession(), without(operator.getTypes(), hashChannels), actualPages);
+        }
+        else {
+            actual = toMaterializedResult(operator.getOperatorContext().getSession(), operator.getTypes(), outputPages);
+        }
+        assertEqualsIgnoreOrder(actual.getMaterializedRows(), expected.getMaterializedRows());
+    }
+
+    @Test(dataProvider = "hashEnabledValues")
+    public void testAdaptivePartialAggregationReducingRows(boolean hashEnabled)
+            throws Exception
+    {
+        List<Integer> hashChannels = Ints.asList(0);
+        RowPagesBuilder rowPagesBuilder = rowPagesBuilder(hashEnabled, hashChannels, BIGINT);
+        List<Page> input = rowPagesBuilder
+                .addSequencePage(500, 0)
+                .addSequencePage(500, 0)
+                .addSequencePage(500, 0)
+                .addSequencePage(500, 0)
+                .build();
+
+        HashAggregationOperatorFactory operatorFactory = new HashAggregationOperatorFactory(
+                0,
+                ImmutableList.of(BIGINT),
+                hashChannels,
+                Step.PARTIAL,
+                ImmutableList.of(LONG_SUM.bind(ImmutableList.of(0), Optional.empty(), Optional.empty(), 1.0)),
+                rowPagesBuilder.getHashChannel(),
+                100_000,
+                new DataSize(16, MEGABYTE),
+                Optional.empty(),
+                Optional.of(new AdaptivePartialAggregation(1000, 0.5)));
+        Operator operator = operatorFactory.createOperator(driverContext);
+
+        // the groups are a quarter of the rows, so all rows are grouped
+        List<Page> outputPages = toPages(operator, input);
+        assertEquals(outputPages.stream().mapToInt(Page::getPositionCount).sum(), 500);
+    }
 }
@@ -15,12 +15,16 @@ package com.facebook.presto.operator;
 
 import com.facebook.presto.ExceededMemoryLimitException;
 import com.facebook.presto.RowPagesBuilder;
+import com.facebook.presto.SequencePageBuilder;
 import com.facebook.presto.execution.TaskId;
 import com.facebook.presto.operator.HashBuilderOperator.HashBuilderOperatorFactory;
+import com.facebook.presto.operator.PartitionedHashBuilderOperator.PartitionedHashBuilderOperatorFactory;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.spiller.FileSpillerFactory;
 import com.facebook.presto.testing.MaterializedResult;
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
 import com.google.common.primitives.Ints;
 import io.airlift.units.DataSize;
 import org.testng.annotations.AfterMethod;
@@ -28,18 +32,27 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 
 import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
 import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
 import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEquals;
+import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEqualsIgnoreOrder;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static com.facebook.presto.testing.TestingBlockEncodingManager.createTestingBlockEncodingManager;
 import static com.google.common.collect.Iterables.concat;
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.airlift.testing.FileUtils.deleteRecursively;
 import static io.airlift.units.DataSize.Unit.BYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
 import static java.util.concurrent.Executors.newCachedThreadPool;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 @Test(singleThreaded = true)
 public class TestHashJoinOperator
@@ -79,7 +92,7 @@ public class TestHashJoinOperator
         Operator buildOperator = new ValuesOperator(operatorContext, buildTypes, rowPagesBuilder
                 .addSequencePage(10, 20, 30, 40)
                 .build());
-        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, rowPagesBuilder.getTypes(), Ints.asList(0), rowPagesBuilder.getHashChannel(), 100);
+        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, rowPagesBuilder.getTypes(), Ints.asList(0), rowPagesBuilder.getHashChannel(), 100, new PagesIndex.TestingFactory());
         Operator sourceHashProvider = hashBuilderOperatorFactory.createOperator(driverContext);
 
         Driver driver = new Driver(driverContext, buildOperator, sourceHashProvider);
@@ -119,6 +132,67 @@ public class TestHashJoinOperator
         assertOperatorEquals(joinOperator, probeInput, expected, hashEnabled, ImmutableList.of(buildTypes.size(), buildTypes.size() + probeTypes.size() + 1));
     }
 
+    @Test(dataProvider = "hashEnabledValues")
+    public void testInnerJoinWithPartitionedBuild(boolean hashEnabled)
+            throws Exception
+    {
+        // build in three drivers, each receiving a different page
+        List<Type> buildTypes = ImmutableList.<Type>of(VARCHAR, BIGINT, BIGINT);
+        RowPagesBuilder rowPagesBuilder = rowPagesBuilder(hashEnabled, Ints.asList(0), buildTypes);
+        List<Page> buildPages = rowPagesBuilder
+                .addSequencePage(10, 20, 30, 40)
+                .addSequencePage(10, 30, 40, 50)
+                .addSequencePage(10, 40, 50, 60)
+                .build();
+        PartitionedHashBuilderOperatorFactory hashBuilderOperatorFactory = new PartitionedHashBuilderOperatorFactory(1, rowPagesBuilder.getTypes(), Ints.asList(0), rowPagesBuilder.getHashChannel(), 100, 4, Optional.empty(), new PagesIndex.TestingFactory());
+
+        ImmutableList.Builder<Driver> builders = ImmutableList.builder();
+        for (Page buildPage : buildPages) {
+            DriverContext driverContext = taskContext.addPipelineContext(true, true).addDriverContext();
+            OperatorContext operatorContext = driverContext.addOperatorContext(0, ValuesOperator.class.getSimpleName());
+            Operator buildOperator = new ValuesOperator(operatorContext, rowPagesBuilder.getTypes(), ImmutableList.of(buildPage));
+            builders.add(new Driver(driverContext, buildOperator, hashBuilderOperatorFactory.createOperator(driverContext)));
+        }
+        hashBuilderOperatorFactory.close();
+
+        // the builders wait for each other before indexing their partitions
+        List<Driver> drivers = builders.build();
+        boolean done = false;
+        while (!done) {
+            done = true;
+            for (Driver driver : drivers) {
+                if (!driver.isFinished()) {
+                    driver.process();
+                    done = false;
+                }
+            }
+        }
+        assertTrue(hashBuilderOperatorFactory.getLookupSourceSupplier().getLookupSource(null).isDone());
+
+        // probe
+        List<Type> probeTypes = ImmutableList.<Type>of(VARCHAR, BIGINT, BIGINT);
+        RowPagesBuilder rowPagesBuilderProbe = rowPagesBuilder(hashEnabled, Ints.asList(0), probeTypes);
+        List<Page> probeInput = rowPagesBuilderProbe
+                .addSequencePage(1000, 0, 1000, 2000)
+                .build();
+        OperatorFactory joinOperatorFactory = LookupJoinOperators.innerJoin(
+                0,
+                hashBuilderOperatorFactory.getLookupSourceSupplier(),
+                rowPagesBuilderProbe.getTypes(),
+                Ints.asList(0),
+                rowPagesBuilderProbe.getHashChannel());
+
+        Operator joinOperator = joinOperatorFactory.createOperator(taskContext.addPipelineContext(true, true).addDriverContext());
+
+        // expected
+        MaterializedResult.Builder expected = MaterializedResult.resultBuilder(taskContext.getSession(), concat(probeTypes, buildTypes));
+        for (int value = 20; value < 50; value++) {
+            expected.row(String.valueOf(value), 1000 + value, 2000 + value, String.valueOf(value), 10 + value, 20 + value);
+        }
+
+        assertOperatorEquals(joinOperator, probeInput, expected.build(), hashEnabled, ImmutableList.of(buildTypes.size(), buildTypes.size() + probeTypes.size() + 1));
+    }
+
     @Test(dataProvider = "hashEnabledValues")
     public void testInnerJoinWithNullProbe(boolean hashEnabled)
             throws Exception
@@ -134,7 +208,7 @@ public class TestHashJoinOperator
                 .row("b")
                 .row("c")
                 .build());
-        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, rowPagesBuilder.getTypes(), Ints.asList(0), rowPagesBuilder.getHashChannel(), 100);
+        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, rowPagesBuilder.getTypes(), Ints.asList(0), rowPagesBuilder.getHashChannel(), 100, new PagesIndex.TestingFactory());
         Operator sourceHashProvider = hashBuilderOperatorFactory.createOperator(driverContext);
 
         Driver driver = new Driver(driverContext, buildOperator, sourceHashProvider);
@@ -187,7 +261,7 @@ public class TestHashJoinOperator
                 .row("a")
                 .row("b")
                 .build());
-        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, rowPagesBuilder.getTypes(), Ints.asList(0), rowPagesBuilder.getHashChannel(), 100);
+        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, rowPagesBuilder.getTypes(), Ints.asList(0), rowPagesBuilder.getHashChannel(), 100, new PagesIndex.TestingFactory());
         Operator sourceHashProvider = hashBuilderOperatorFactory.createOperator(driverContext);
 
         Driver driver = new Driver(driverContext, buildOperator, sourceHashProvider);
@@ -238,7 +312,7 @@ public class TestHashJoinOperator
                 .row("a")
                 .row("b")
                 .build());
-        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, rowPagesBuilder.getTypes(), Ints.asList(0), rowPagesBuilder.getHashChannel(), 100);
+        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, rowPagesBuilder.getTypes(), Ints.asList(0), rowPagesBuilder.getHashChannel(), 100, new PagesIndex.TestingFactory());
         Operator sourceHashProvider = hashBuilderOperatorFactory.createOperator(driverContext);
 
         Driver driver = new Driver(driverContext, buildOperator, sourceHashProvider);
@@ -287,7 +361,7 @@ public class TestHashJoinOperator
                 .addSequencePage(10, 20, 30, 40)
                 .build());
 
-        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, rowPagesBuilder.getTypes(), Ints.asList(0), rowPagesBuilder.getHashChannel(), 100);
+        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, rowPagesBuilder.getTypes(), Ints.asList(0), rowPagesBuilder.getHashChannel(), 100, new PagesIndex.TestingFactory());
         Operator hashBuilderOperator = hashBuilderOperatorFactory.createOperator(driverContext);
 
         Driver driver = new Driver(driverContext, buildOperator, hashBuilderOperator);
@@ -347,7 +421,7 @@ public class TestHashJoinOperator
                 .row("b")
                 .row("c")
                 .build());
-        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, rowPagesBuilder.getTypes(), Ints.asList(0), rowPagesBuilder.getHashChannel(), 100);
+        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, rowPagesBuilder.getTypes(), Ints.asList(0), rowPagesBuilder.getHashChannel(), 100, new PagesIndex.TestingFactory());
         Operator sourceHashProvider = hashBuilderOperatorFactory.createOperator(driverContext);
 
         Driver driver = new Driver(driverContext, buildOperator, sourceHashProvider);
@@ -402,7 +476,7 @@ public class TestHashJoinOperator
                 .row("a")
                 .row("b")
                 .build());
-        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, rowPagesBuilder.getTypes(), Ints.asList(0), rowPagesBuilder.getHashChannel(), 100);
+        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, rowPagesBuilder.getTypes(), Ints.asList(0), rowPagesBuilder.getHashChannel(), 100, new PagesIndex.TestingFactory());
         Operator sourceHashProvider = hashBuilderOperatorFactory.createOperator(driverContext);
 
         Driver driver = new Driver(driverContext, buildOperator, sourceHashProvider);
@@ -454,7 +528,7 @@ public class TestHashJoinOperator
                 .row("a")
                 .row("b")
                 .build());
-        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, rowPagesBuilder.getTypes(), Ints.asList(0), rowPagesBuilder.getHashChannel(), 100);
+        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, rowPagesBuilder.getTypes(), Ints.asList(0), rowPagesBuilder.getHashChannel(), 100, new PagesIndex.TestingFactory());
         Operator sourceHashProvider = hashBuilderOperatorFactory.createOperator(driverContext);
 
         Driver driver = new Driver(driverContext, buildOperator, sourceHashProvider);
@@ -491,6 +565,168 @@ public class TestHashJoinOperator
         assertOperatorEquals(joinOperator, probeInput, expected, hashEnabled, ImmutableList.of(buildTypes.size() + probeTypes.size()));
     }
 
+    @Test(dataProvider = "hashEnabledValues")
+    public void testOuterJoinWithSpill(boolean hashEnabled)
+            throws Exception
+    {
+        // the build side does not fit in the task memory, so some of its partitions must be spilled
+        TaskContext spillingTaskContext = new TaskContext(new TaskId("query", "stage", "task"), executor, TEST_SESSION, new DataSize(2, MEGABYTE));
+        DriverContext driverContext = spillingTaskContext.addPipelineContext(true, true).addDriverContext();
+
+        File spillPath = Files.createTempDir();
+        try {
+            // build
+            OperatorContext operatorContext = driverContext.addOperatorContext(0, ValuesOperator.class.getSimpleName());
+            List<Type> buildTypes = ImmutableList.<Type>of(BIGINT, BIGINT);
+            RowPagesBuilder rowPagesBuilder = rowPagesBuilder(hashEnabled, Ints.asList(0), buildTypes);
+            Operator buildOperator = new ValuesOperator(operatorContext, buildTypes, rowPagesBuilder
+                    .addSequencePage(50_000, 0, 1_000_000)
+                    .addSequencePage(50_000, 50_000, 1_050_000)
+                    .build());
+            HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(
+                    1,
+                    rowPagesBuilder.getTypes(),
+                    Ints.asList(0),
+                    rowPagesBuilder.getHashChannel(),
+                    100,
+                    Optional.of(new FileSpillerFactory(createTestingBlockEncodingManager(), spillPath.toPath())),
+                    new PagesIndex.TestingFactory());
+            Operator hashBuilderOperator = hashBuilderOperatorFactory.createOperator(driverContext);
+
+            Driver driver = new Driver(driverContext, buildOperator, hashBuilderOperator);
+            while (!driver.isFinished()) {
+                driver.process();
+            }
+            assertTrue(hashBuilderOperatorFactory.getLookupSourceSupplier().getSpilledPartitions().isPresent());
+
+            // probe
+            List<Type> probeTypes = ImmutableList.<Type>of(BIGINT);
+            RowPagesBuilder rowPagesBuilderProbe = rowPagesBuilder(hashEnabled, Ints.asList(0), probeTypes);
+            List<Page> probeInput = rowPagesBuilderProbe
+                    .addSequencePage(60_000, 0)
+                    .addSequencePage(60_000, 60_000)
+                    .build();
+            OperatorFactory joinOperatorFactory = LookupJoinOperators.outerJoin(
+                    0,
+                    hashBuilderOperatorFactory.getLookupSourceSupplier(),
+                    rowPagesBuilderProbe.getTypes(),
+                    Ints.asList(0),
+                    rowPagesBuilderProbe.getHashChannel());
+            Operator joinOperator = joinOperatorFactory.createOperator(spillingTaskContext.addPipelineContext(true, true).addDriverContext());
+            // a second probe operator reads the same spilled build partitions
+            Operator secondJoinOperator = joinOperatorFactory.createOperator(spillingTaskContext.addPipelineContext(true, true).addDriverContext());
+
+            // expected
+            MaterializedResult.Builder expected = MaterializedResult.resultBuilder(spillingTaskContext.getSession(), concat(probeTypes, buildTypes));
+            for (long i = 0; i < 100_000; i++) {
+                expected.row(i, i, 1_000_000 + i);
+            }
+            for (long i = 100_000; i < 120_000; i++) {
+                expected.row(i, null, null);
+            }
+
+            MaterializedResult expectedResult = expected.build();
+            assertOperatorEqualsIgnoreOrder(joinOperator, probeInput, expectedResult, hashEnabled, ImmutableList.of(probeTypes.size(), buildTypes.size() + probeTypes.size() + 1));
+            joinOperator.close();
+            assertTrue(spillPath.list().length > 0);
+
+            assertOperatorEqualsIgnoreOrder(secondJoinOperator, probeInput, expectedResult, hashEnabled, ImmutableList.of(probeTypes.size(), buildTypes.size() + probeTypes.size() + 1));
+
+            // the spilled partitions are deleted once the join no longer needs them
+            secondJoinOperator.close();
+            joinOperatorFactory.close();
+            assertEquals(spillPath.list().length, 0);
+        }
+        finally {
+            deleteRecursively(spillPath);
+        }
+    }
+
+    @Test(dataProvider = "hashEnabledValues")
+    public void testOuterJoinWithSpilledPartitionLargerThanMemory(boolean hashEnabled)
+            throws Exception
+    {
+        // all build rows fall into the same of the 16 spill partitions, which then does not fit in the task memory
+        Page candidates = SequencePageBuilder.createSequencePage(ImmutableList.of(BIGINT), 2_000_000, 0);
+        int[] partitions = SpilledJoinPartitions.getPartitions(candidates, SpilledJoinPartitions.createPartitionHashGenerator(ImmutableList.of(BIGINT), Ints.asList(0)), 16);
+        List<Long> buildKeys = new ArrayList<>();
+        List<Long> otherKeys = new ArrayList<>();
+        for (int position = 0; position < partitions.length && buildKeys.size() < 100_000; position++) {
+            long key = BIGINT.getLong(candidates.getBlock(0), position);
+            if (partitions[position] == 0) {
+                buildKeys.add(key);
+            }
+            else if (otherKeys.size() < 10_000) {
+                otherKeys.add(key);
+            }
+        }
+        assertEquals(buildKeys.size(), 100_000);
+
+        TaskContext spillingTaskContext = new TaskContext(new TaskId("query", "stage", "task"), executor, TEST_SESSION, new DataSize(2, MEGABYTE));
+        DriverContext driverContext = spillingTaskContext.addPipelineContext(true, true).addDriverContext();
+
+        File spillPath = Files.createTempDir();
+        try {
+            // build
+            OperatorContext operatorContext = driverContext.addOperatorContext(0, ValuesOperator.class.getSimpleName());
+            List<Type> buildTypes = ImmutableList.<Type>of(BIGINT, BIGINT);
+            RowPagesBuilder rowPagesBuilder = rowPagesBuilder(hashEnabled, Ints.asList(0), buildTypes);
+            for (long key : buildKeys) {
+                rowPagesBuilder.row(key, 1_000_000_000 + key);
+            }
+            Operator buildOperator = new ValuesOperator(operatorContext, buildTypes, rowPagesBuilder.build());
+            HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(
+                    1,
+                    rowPagesBuilder.getTypes(),
+                    Ints.asList(0),
+                    rowPagesBuilder.getHashChannel(),
+                    100,
+                    Optional.of(new FileSpillerFactory(createTestingBlockEncodingManager(), spillPath.toPath())),
+                    new PagesIndex.TestingFactory());
+            Operator hashBuilderOperator = hashBuilderOperatorFactory.createOperator(driverContext);
+
+            Driver driver = new Driver(driverContext, buildOperator, hashBuilderOperator);
+            while (!driver.isFinished()) {
+                driver.process();
+            }
+            assertTrue(hashBuilderOperatorFactory.getLookupSourceSupplier().getSpilledPartitions().isPresent());
+
+            // probe
+            List<Type> probeTypes = ImmutableList.<Type>of(BIGINT);
+            RowPagesBuilder rowPagesBuilderProbe = rowPagesBuilder(hashEnabled, Ints.asList(0), probeTypes);
+            for (long key : concat(buildKeys, otherKeys)) {
+                rowPagesBuilderProbe.row(key);
+            }
+            List<Page> probeInput = rowPagesBuilderProbe.build();
+            OperatorFactory joinOperatorFactory = LookupJoinOperators.outerJoin(
+                    0,
+                    hashBuilderOperatorFactory.getLookupSourceSupplier(),
+                    rowPagesBuilderProbe.getTypes(),
+                    Ints.asList(0),
+                    rowPagesBuilderProbe.getHashChannel());
+            Operator joinOperator = joinOperatorFactory.createOperator(spillingTaskContext.addPipelineContext(true, true).addDriverContext());
+
+            // expected
+            MaterializedResult.Builder expected = MaterializedResult.resultBuilder(spillingTaskContext.getSession(), concat(probeTypes, buildTypes));
+            for (long key : buildKeys) {
+                expected.row(key, key, 1_000_000_000 + key);
+            }
+            for (long key : otherKeys) {
+                expected.row(key, null, null);
+            }
+
+            assertOperatorEqualsIgnoreOrder(joinOperator, probeInput, expected.build(), hashEnabled, ImmutableList.of(probeTypes.size(), buildTypes.size() + probeTypes.size() + 1));
+
+            // the spill files of the split partitions are deleted as well
+            joinOperator.close();
+            joinOperatorFactory.close();
+            assertEquals(spillPath.list().length, 0);
+        }
+        finally {
+            deleteRecursively(spillPath);
+        }
+    }
+
     @Test(expectedExceptions = ExceededMemoryLimitException.class, expectedExceptionsMessageRegExp = "Task exceeded max memory size.*", dataProvider = "hashEnabledValues")
     public void testMemoryLimit(boolean hashEnabled)
             throws Exception
@@ -506,7 +742,7 @@ public class TestHashJoinOperator
                 .addSequencePage(10, 20, 30, 40)
                 .build());
 
-        Operator hashBuilderOperator = new HashBuilderOperatorFactory(1, rowPagesBuilder.getTypes(), Ints.asList(0), rowPagesBuilder.getHashChannel(), 1_500_000).createOperator(driverContext);
+        Operator hashBuilderOperator = new HashBuilderOperatorFactory(1, rowPagesBuilder.getTypes(), Ints.asList(0), rowPagesBuilder.getHashChannel(), 1_500_000, new PagesIndex.TestingFactory()).createOperator(driverContext);
 
         Driver driver = new Driver(driverContext, buildOperator, hashBuilderOperator);
         while (!driver.isFinished()) {
@@ -0,0 +1,94 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Ints;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TestInMemoryExchange
+{
+    @Test
+    public void testPartitioned()
+    {
+        List<Type> types = ImmutableList.<Type>of(BIGINT, BIGINT);
+        InMemoryExchange exchange = new InMemoryExchange(types, 3, Ints.asList(0), Optional.empty());
+        assertEquals(exchange.getBufferCount(), 3);
+        assertEquals(exchange.addSource(), 0);
+        assertEquals(exchange.addSource(), 1);
+        assertEquals(exchange.addSource(), 2);
+
+        List<Page> pages = rowPagesBuilder(types)
+                .addSequencePage(100, 0, 0)
+                .addSequencePage(100, 0, 100)
+                .build();
+        for (Page page : pages) {
+            exchange.addPage(page);
+        }
+        exchange.finish();
+
+        // every key is in exactly one buffer
+        Map<Long, Integer> keyBuffers = new HashMap<>();
+        int rows = 0;
+        for (int buffer = 0; buffer < 3; buffer++) {
+            assertFalse(exchange.isFinished(buffer));
+            for (Page page = exchange.removePage(buffer); page != null; page = exchange.removePage(buffer)) {
+                Block keys = page.getBlock(0);
+                for (int position = 0; position < page.getPositionCount(); position++) {
+                    Integer previous = keyBuffers.put(BIGINT.getLong(keys, position), buffer);
+                    assertTrue(previous == null || previous == buffer);
+                    rows++;
+                }
+            }
+            assertTrue(exchange.isFinished(buffer));
+        }
+        assertEquals(rows, 200);
+        assertEquals(keyBuffers.size(), 100);
+        assertTrue(exchange.isFinished());
+    }
+
+    @Test
+    public void testFinishBuffer()
+    {
+        List<Type> types = ImmutableList.<Type>of(BIGINT);
+        InMemoryExchange exchange = new InMemoryExchange(types, 2, Ints.asList(0), Optional.empty());
+
+        // a finished buffer drops its pages, but the other buffer still receives its rows
+        exchange.finish(0);
+        assertTrue(exchange.isFinished(0));
+        assertFalse(exchange.isFinishing());
+        exchange.addPage(rowPagesBuilder(types).addSequencePage(100, 0).build().get(0));
+        assertNull(exchange.removePage(0));
+        assertTrue(exchange.removePage(1).getPositionCount() > 0);
+
+        exchange.finish(1);
+        assertTrue(exchange.isFinishing());
+        assertTrue(exchange.isFinished());
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.RowPagesBuilder;
+import com.facebook.presto.execution.TaskId;
+import com.facebook.presto.operator.MergeJoinOperator.MergeJoinOperatorFactory;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.testing.MaterializedResult;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
+import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
+import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEquals;
+import static com.facebook.presto.operator.OperatorAssertion.toMaterializedResult;
+import static com.facebook.presto.operator.OperatorAssertion.toPages;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static com.facebook.presto.testing.MaterializedResult.resultBuilder;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestMergeJoinOperator
+{
+    private ExecutorService executor;
+    private DriverContext driverContext;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        executor = newCachedThreadPool(daemonThreadsNamed("test-%s"));
+
+        driverContext = new TaskContext(new TaskId("query", "stage", "task"), executor, TEST_SESSION)
+                .addPipelineContext(true, true)
+                .addDriverContext();
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testInnerJoin()
+            throws Exception
+    {
+        List<Page> probeInput = rowPagesBuilder(BIGINT, VARCHAR)
+                .row(1, "a")
+                .row(2, "b")
+                .row(2, "c")
+                .pageBreak()
+                .row(4, "d")
+                .row(5, "e")
+                .row(7, "f")
+                .row(null, "g")
+                .build();
+        InMemoryExchange buildExchange = createBuildExchange(ImmutableList.of(BIGINT, BIGINT), rowPagesBuilder(BIGINT, BIGINT)
+                .row(null, 0)
+                .row(2, 20)
+                .row(2, 21)
+                .pageBreak()
+                .row(2, 22)
+                .row(3, 30)
+                .pageBreak()
+                .row(5, 50)
+                .row(6, 60)
+                .row(null, 70)
+                .build());
+
+        Operator operator = createOperator(buildExchange, ImmutableList.of(BIGINT, VARCHAR), ImmutableList.of(0), ImmutableList.of(0), false);
+
+        MaterializedResult expected = resultBuilder(driverContext.getSession(), BIGINT, VARCHAR, BIGINT, BIGINT)
+                .row(2, "b", 2, 20)
+                .row(2, "b", 2, 21)
+                .row(2, "b", 2, 22)
+                .row(2, "c", 2, 20)
+                .row(2, "c", 2, 21)
+                .row(2, "c", 2, 22)
+                .row(5, "e", 5, 50)
+                .build();
+
+        assertOperatorEquals(operator, probeInput, expected);
+        assertTrue(buildExchange.isFinished(0));
+    }
+
+    @Test
+    public void testOuterJoin()
+            throws Exception
+    {
+        List<Page> probeInput = rowPagesBuilder(BIGINT, VARCHAR)
+                .row(null, "a")
+                .row(1, "b")
+                .row(2, "c")
+                .pageBreak()
+                .row(2, "d")
+                .row(4, "e")
+                .row(6, "f")
+                .build();
+        InMemoryExchange buildExchange = createBuildExchange(ImmutableList.of(BIGINT, BIGINT), rowPagesBuilder(BIGINT, BIGINT)
+                .row(2, 20)
+                .pageBreak()
+                .row(2, 21)
+                .row(3, 30)
+                .row(4, 40)
+                .build());
+
+        Operator operator = createOperator(buildExchange, ImmutableList.of(BIGINT, VARCHAR), ImmutableList.of(0), ImmutableList.of(0), true);
+
+        MaterializedResult expected = resultBuilder(driverContext.getSession(), BIGINT, VARCHAR, BIGINT, BIGINT)
+                .row(null, "a", null, null)
+                .row(1, "b", null, null)
+                .row(2, "c", 2, 20)
+                .row(2, "c", 2, 21)
+                .row(2, "d", 2, 20)
+                .row(2, "d", 2, 21)
+                .row(4, "e", 4, 40)
+                .row(6, "f", null, null)
+                .build();
+
+        assertOperatorEquals(operator, probeInput, expected);
+    }
+
+    @Test
+    public void testMultipleKeys()
+            throws Exception
+    {
+        List<Page> probeInput = rowPagesBuilder(VARCHAR, BIGINT)
+                .row("a", 1)
+                .row("a", 2)
+                .row("b", 1)
+                .row("c", 3)
+                .build();
+        InMemoryExchange buildExchange = createBuildExchange(ImmutableList.of(BIGINT, VARCHAR), rowPagesBuilder(BIGINT, VARCHAR)
+                .row(2, "a")
+                .row(1, "b")
+                .row(2, "b")
+                .row(3, "c")
+                .row(3, "c")
+                .build());
+
+        Operator operator = createOperator(buildExchange, ImmutableList.of(VARCHAR, BIGINT), ImmutableList.of(0, 1), ImmutableList.of(1, 0), false);
+
+        MaterializedResult expected = resultBuilder(driverContext.getSession(), VARCHAR, BIGINT, BIGINT, VARCHAR)
+                .row("a", 2, 2, "a")
+                .row("b", 1, 1, "b")
+                .row("c", 3, 3, "c")
+                .row("c", 3, 3, "c")
+                .build();
+
+        assertOperatorEquals(operator, probeInput, expected);
+    }
+
+    @Test
+    public void testLargeRun()
+            throws Exception
+    {
+        List<Page> probeInput = rowPagesBuilder(BIGINT)
+                .row(1)
+                .row(1)
+                .row(1)
+                .row(2)
+                .build();
+
+        RowPagesBuilder buildPages = rowPagesBuilder(BIGINT);
+        for (int i = 0; i < 10_000; i++) {
+            buildPages.row(1);
+        }
+        buildPages.row(2);
+        InMemoryExchange buildExchange = createBuildExchange(ImmutableList.of(BIGINT), buildPages.build());
+
+        Operator operator = createOperator(buildExchange, ImmutableList.of(BIGINT), ImmutableList.of(0), ImmutableList.of(0), false);
+
+        List<Page> pages = toPages(operator, probeInput);
+        assertTrue(pages.size() > 1);
+        MaterializedResult actual = toMaterializedResult(driverContext.getSession(), operator.getTypes(), pages);
+        assertEquals(actual.getRowCount(), 30_001);
+        assertEquals(actual.getMaterializedRows().get(30_000).getField(0), 2L);
+    }
+
+    @Test
+    public void testWaitsForBuildRows()
+            throws Exception
+    {
+        InMemoryExchange buildExchange = new InMemoryExchange(ImmutableList.of(BIGINT, BIGINT));
+        Operator operator = createOperator(buildExchange, ImmutableList.of(BIGINT), ImmutableList.of(0), ImmutableList.of(0), false);
+
+        operator.addInput(rowPagesBuilder(BIGINT).row(1).row(2).build().get(0));
+        assertNull(operator.getOutput());
+        assertFalse(operator.isBlocked().isDone());
+        assertFalse(operator.needsInput());
+
+        // the run of key 1 is not complete until a row with another key arrives
+        buildExchange.addPage(rowPagesBuilder(BIGINT, BIGINT).row(1, 10).build().get(0));
+        assertTrue(operator.isBlocked().isDone());
+        assertNull(operator.getOutput());
+        assertFalse(operator.isBlocked().isDone());
+
+        buildExchange.addPage(rowPagesBuilder(BIGINT, BIGINT).row(1, 11).row(2, 20).build().get(0));
+        buildExchange.finish();
+        assertTrue(operator.isBlocked().isDone());
+        Page output = operator.getOutput();
+        MaterializedResult expected = resultBuilder(driverContext.getSession(), BIGINT, BIGINT, BIGINT)
+                .row(1, 1, 10)
+                .row(1, 1, 11)
+                .row(2, 2, 20)
+                .build();
+        assertEquals(toMaterializedResult(driverContext.getSession(), operator.getTypes(), ImmutableList.of(output)), expected);
+
+        assertTrue(operator.needsInput());
+        operator.finish();
+        assertTrue(operator.isFinished());
+    }
+
+    private static InMemoryExchange createBuildExchange(List<Type> types, List<Page> pages)
+    {
+        InMemoryExchange exchange = new InMemoryExchange(types);
+        for (Page page : pages) {
+            exchange.addPage(page);
+        }
+        exchange.finish();
+        return exchange;
+    }
+
+    private Operator createOperator(InMemoryExchange buildExchange, List<Type> probeTypes, List<Integer> probeJoinChannels, List<Integer> buildJoinChannels, boolean enableOuterJoin)
+    {
+        OperatorFactory operatorFactory = new MergeJoinOperatorFactory(0, buildExchange, probeTypes, probeJoinChannels, buildJoinChannels, enableOuterJoin);
+        return operatorFactory.createOperator(driverContext);
+    }
+}
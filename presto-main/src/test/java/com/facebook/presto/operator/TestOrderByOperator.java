@@ -17,15 +17,19 @@ import com.facebook.presto.ExceededMemoryLimitException;
 import com.facebook.presto.execution.TaskId;
 import com.facebook.presto.operator.OrderByOperator.OrderByOperatorFactory;
 import com.facebook.presto.spi.Page;
+import com.facebook.presto.spiller.FileSpillerFactory;
 import com.facebook.presto.testing.MaterializedResult;
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
 import io.airlift.units.DataSize;
 import io.airlift.units.DataSize.Unit;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.io.File;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 
 import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
@@ -38,7 +42,9 @@ import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
 import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 import static com.facebook.presto.testing.MaterializedResult.resultBuilder;
+import static com.facebook.presto.testing.TestingBlockEncodingManager.createTestingBlockEncodingManager;
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.airlift.testing.FileUtils.deleteRecursively;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 
 @Test(singleThreaded = true)
@@ -80,7 +86,8 @@ public class TestOrderByOperator
                 ImmutableList.of(1),
                 10,
                 ImmutableList.of(0),
-                ImmutableList.of(ASC_NULLS_LAST));
+                ImmutableList.of(ASC_NULLS_LAST),
+                new PagesIndex.TestingFactory());
 
         Operator operator = operatorFactory.createOperator(driverContext);
 
@@ -112,7 +119,8 @@ public class TestOrderByOperator
                 ImmutableList.of(0, 1),
                 10,
                 ImmutableList.of(0, 1),
-                ImmutableList.of(ASC_NULLS_LAST, DESC_NULLS_LAST));
+                ImmutableList.of(ASC_NULLS_LAST, DESC_NULLS_LAST),
+                new PagesIndex.TestingFactory());
 
         Operator operator = operatorFactory.createOperator(driverContext);
 
@@ -144,7 +152,8 @@ public class TestOrderByOperator
                 ImmutableList.of(0),
                 10,
                 ImmutableList.of(0),
-                ImmutableList.of(DESC_NULLS_LAST));
+                ImmutableList.of(DESC_NULLS_LAST),
+                new PagesIndex.TestingFactory());
 
         Operator operator = operatorFactory.createOperator(driverContext);
 
@@ -158,6 +167,48 @@ public class TestOrderByOperator
         assertOperatorEquals(operator, input, expected);
     }
 
+    @Test
+    public void testSpillToDisk()
+            throws Exception
+    {
+        List<Page> input = rowPagesBuilder(BIGINT, VARCHAR)
+                .addSequencePage(50_000, 100_000, 0)
+                .addSequencePage(50_000, 0, 0)
+                .addSequencePage(50_000, 50_000, 0)
+                .addSequencePage(50_000, 150_000, 0)
+                .build();
+
+        // the input does not fit in the task memory, so it must be sorted in multiple runs
+        DriverContext driverContext = new TaskContext(new TaskId("query", "stage", "task"), executor, TEST_SESSION, new DataSize(2, Unit.MEGABYTE))
+                .addPipelineContext(true, true)
+                .addDriverContext();
+
+        File spillPath = Files.createTempDir();
+        try {
+            OrderByOperatorFactory operatorFactory = new OrderByOperatorFactory(
+                    0,
+                    ImmutableList.of(BIGINT, VARCHAR),
+                    ImmutableList.of(0),
+                    10,
+                    ImmutableList.of(0),
+                    ImmutableList.of(DESC_NULLS_LAST),
+                    Optional.of(new FileSpillerFactory(createTestingBlockEncodingManager(), spillPath.toPath())),
+                    new PagesIndex.TestingFactory());
+
+            MaterializedResult.Builder expected = resultBuilder(driverContext.getSession(), BIGINT);
+            for (long i = 199_999; i >= 0; i--) {
+                expected.row(i);
+            }
+
+            try (Operator operator = operatorFactory.createOperator(driverContext)) {
+                assertOperatorEquals(operator, input, expected.build());
+            }
+        }
+        finally {
+            deleteRecursively(spillPath);
+        }
+    }
+
     @Test(expectedExceptions = ExceededMemoryLimitException.class, expectedExceptionsMessageRegExp = "Task exceeded max memory size of 10B")
     public void testMemoryLimit()
             throws Exception
@@ -180,7 +231,8 @@ public class TestOrderByOperator
                 ImmutableList.of(1),
                 10,
                 ImmutableList.of(0),
-                ImmutableList.of(ASC_NULLS_LAST));
+                ImmutableList.of(ASC_NULLS_LAST),
+                new PagesIndex.TestingFactory());
 
         Operator operator = operatorFactory.createOperator(driverContext);
 
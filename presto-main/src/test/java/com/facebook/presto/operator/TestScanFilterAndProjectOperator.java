@@ -23,8 +23,10 @@ import com.facebook.presto.spi.ConnectorPageSource;
 import com.facebook.presto.spi.FixedPageSource;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.spi.RecordPageSource;
+import com.facebook.presto.spi.TupleDomain;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.split.PageSourceProvider;
+import com.facebook.presto.sql.planner.TestingColumnHandle;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.facebook.presto.testing.MaterializedResult;
 import com.google.common.collect.ImmutableList;
@@ -32,14 +34,19 @@ import org.testng.annotations.Test;
 
 import java.util.List;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
+import static com.facebook.presto.block.BlockAssertions.createLongsBlock;
 import static com.facebook.presto.operator.OperatorAssertion.toMaterializedResult;
 import static com.facebook.presto.operator.ProjectionFunctions.singleColumn;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
 public class TestScanFilterAndProjectOperator
@@ -117,6 +124,89 @@ public class TestScanFilterAndProjectOperator
         assertEquals(actual, expected);
     }
 
+    @Test
+    public void testDynamicFilter()
+            throws Exception
+    {
+        Page input = SequencePageBuilder.createSequencePage(ImmutableList.of(BIGINT), 10_000, 0);
+        DriverContext driverContext = newDriverContext();
+
+        ColumnHandle column = new ColumnHandle("test", new TestingColumnHandle("value"));
+        DynamicFilter dynamicFilter = new DynamicFilter(ImmutableList.of(0), ImmutableList.of(column), ImmutableList.of(BIGINT));
+
+        AtomicReference<TupleDomain<ColumnHandle>> pageSourceFilter = new AtomicReference<>();
+        SourceOperator operator = createDynamicFilterOperator(driverContext, input, column, dynamicFilter, pageSourceFilter);
+        operator.addSplit(new Split("test", TestingSplit.createLocalSplit()));
+        operator.noMoreSplits();
+
+        // the page source is not created before the first page is requested
+        assertNull(pageSourceFilter.get());
+
+        DynamicFilterCollector collector = new DynamicFilterCollector(dynamicFilter, ImmutableList.of(0));
+        collector.addPage(new Page(createLongsBlock(5L, 20L, 20L, null, 12_345L)));
+        collector.finish();
+
+        MaterializedResult actual = toMaterializedResult(driverContext.getSession(), ImmutableList.<Type>of(BIGINT), toPages(operator));
+        assertEquals(actual, MaterializedResult.resultBuilder(driverContext.getSession(), BIGINT).row(5L).row(20L).build());
+        assertEquals(pageSourceFilter.get(), dynamicFilter.getTupleDomain());
+    }
+
+    @Test
+    public void testDynamicFilterSkipsSplit()
+            throws Exception
+    {
+        Page input = SequencePageBuilder.createSequencePage(ImmutableList.of(BIGINT), 10_000, 0);
+        DriverContext driverContext = newDriverContext();
+
+        ColumnHandle column = new ColumnHandle("test", new TestingColumnHandle("value"));
+        DynamicFilter dynamicFilter = new DynamicFilter(ImmutableList.of(0), ImmutableList.of(column), ImmutableList.of(BIGINT));
+
+        // an empty build side
+        new DynamicFilterCollector(dynamicFilter, ImmutableList.of(0)).finish();
+
+        AtomicReference<TupleDomain<ColumnHandle>> pageSourceFilter = new AtomicReference<>();
+        SourceOperator operator = createDynamicFilterOperator(driverContext, input, column, dynamicFilter, pageSourceFilter);
+        operator.addSplit(new Split("test", TestingSplit.createLocalSplit()));
+        operator.noMoreSplits();
+        assertFalse(operator.isFinished());
+
+        assertEquals(toPages(operator), ImmutableList.of());
+        assertNull(pageSourceFilter.get());
+    }
+
+    private static SourceOperator createDynamicFilterOperator(
+            DriverContext driverContext,
+            Page input,
+            ColumnHandle column,
+            DynamicFilter dynamicFilter,
+            AtomicReference<TupleDomain<ColumnHandle>> pageSourceFilter)
+    {
+        ScanFilterAndProjectOperator.ScanFilterAndProjectOperatorFactory factory = new ScanFilterAndProjectOperator.ScanFilterAndProjectOperatorFactory(
+                0,
+                new PlanNodeId("0"),
+                new PageSourceProvider() {
+                    @Override
+                    public ConnectorPageSource createPageSource(Split split, List<ColumnHandle> columns)
+                    {
+                        throw new UnsupportedOperationException();
+                    }
+
+                    @Override
+                    public ConnectorPageSource createPageSource(Split split, List<ColumnHandle> columns, TupleDomain<ColumnHandle> dynamicFilter)
+                    {
+                        pageSourceFilter.set(dynamicFilter);
+                        return new FixedPageSource(ImmutableList.of(input));
+                    }
+                },
+                new GenericCursorProcessor(FilterFunctions.TRUE_FUNCTION, ImmutableList.of(singleColumn(BIGINT, 0))),
+                new GenericPageProcessor(FilterFunctions.TRUE_FUNCTION, ImmutableList.of(singleColumn(BIGINT, 0))),
+                ImmutableList.of(column),
+                ImmutableList.<Type>of(BIGINT),
+                ImmutableList.of(dynamicFilter));
+
+        return factory.createOperator(driverContext);
+    }
+
     public static List<Page> toPages(Operator operator)
     {
         ImmutableList.Builder<Page> outputPages = ImmutableList.builder();
@@ -0,0 +1,177 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.RowPagesBuilder;
+import com.facebook.presto.execution.TaskId;
+import com.facebook.presto.operator.StreamingAggregationOperator.StreamingAggregationOperatorFactory;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.sql.planner.plan.AggregationNode.Step;
+import com.facebook.presto.testing.MaterializedResult;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+import static com.facebook.presto.RowPagesBuilder.rowPagesBuilder;
+import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
+import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEquals;
+import static com.facebook.presto.operator.aggregation.CountAggregation.COUNT;
+import static com.facebook.presto.operator.aggregation.LongSumAggregation.LONG_SUM;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static com.facebook.presto.testing.MaterializedResult.resultBuilder;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestStreamingAggregationOperator
+{
+    private ExecutorService executor;
+    private DriverContext driverContext;
+
+    @DataProvider(name = "hashEnabledValues")
+    public static Object[][] hashEnabledValuesProvider()
+    {
+        return new Object[][] { { true }, { false } };
+    }
+
+    @BeforeMethod
+    public void setUp()
+    {
+        executor = newCachedThreadPool(daemonThreadsNamed("test-%s"));
+
+        driverContext = new TaskContext(new TaskId("query", "stage", "task"), executor, TEST_SESSION)
+                .addPipelineContext(true, true)
+                .addDriverContext();
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test(dataProvider = "hashEnabledValues")
+    public void testGroupsAcrossPages(boolean hashEnabled)
+            throws Exception
+    {
+        RowPagesBuilder rowPagesBuilder = rowPagesBuilder(hashEnabled, ImmutableList.of(0), VARCHAR, BIGINT);
+        List<Page> input = rowPagesBuilder
+                .row("a", 1)
+                .row("a", 2)
+                .pageBreak()
+                .row("a", 3)
+                .row("b", 4)
+                .row(null, 5)
+                .row(null, 6)
+                .pageBreak()
+                .row("c", 7)
+                .row("a", 8)
+                .build();
+
+        OperatorFactory operatorFactory = new StreamingAggregationOperatorFactory(
+                0,
+                ImmutableList.of(VARCHAR),
+                ImmutableList.of(0),
+                Step.SINGLE,
+                ImmutableList.of(COUNT.bind(ImmutableList.of(0), Optional.empty(), Optional.empty(), 1.0),
+                        LONG_SUM.bind(ImmutableList.of(1), Optional.empty(), Optional.empty(), 1.0)),
+                rowPagesBuilder.getHashChannel());
+        Operator operator = operatorFactory.createOperator(driverContext);
+
+        // groups are output in the order of the input, and a key that is seen again starts a new group
+        MaterializedResult expected = resultBuilder(driverContext.getSession(), VARCHAR, BIGINT, BIGINT)
+                .row("a", 3, 6)
+                .row("b", 1, 4)
+                .row(null, 2, 11)
+                .row("c", 1, 7)
+                .row("a", 1, 8)
+                .build();
+
+        assertOperatorEquals(operator, input, expected, hashEnabled, ImmutableList.of(1));
+    }
+
+    @Test
+    public void testMultipleKeys()
+            throws Exception
+    {
+        List<Page> input = rowPagesBuilder(BIGINT, BIGINT, BIGINT)
+                .row(1, 1, 10)
+                .row(1, 2, 20)
+                .row(1, 2, 30)
+                .pageBreak()
+                .row(2, 2, 40)
+                .build();
+
+        OperatorFactory operatorFactory = new StreamingAggregationOperatorFactory(
+                0,
+                ImmutableList.of(BIGINT, BIGINT),
+                ImmutableList.of(0, 1),
+                Step.SINGLE,
+                ImmutableList.of(LONG_SUM.bind(ImmutableList.of(2), Optional.empty(), Optional.empty(), 1.0)),
+                Optional.empty());
+        Operator operator = operatorFactory.createOperator(driverContext);
+
+        MaterializedResult expected = resultBuilder(driverContext.getSession(), BIGINT, BIGINT, BIGINT)
+                .row(1, 1, 10)
+                .row(1, 2, 50)
+                .row(2, 2, 40)
+                .build();
+
+        assertOperatorEquals(operator, input, expected);
+    }
+
+    @Test
+    public void testOutputBeforeFinish()
+            throws Exception
+    {
+        OperatorFactory operatorFactory = new StreamingAggregationOperatorFactory(
+                0,
+                ImmutableList.of(BIGINT),
+                ImmutableList.of(0),
+                Step.SINGLE,
+                ImmutableList.of(COUNT.bind(ImmutableList.of(0), Optional.empty(), Optional.empty(), 1.0)),
+                Optional.empty());
+        Operator operator = operatorFactory.createOperator(driverContext);
+
+        // every row is a group, so the output fills up before all input is added
+        List<Page> input = rowPagesBuilder(BIGINT)
+                .addSequencePage(10_000, 0)
+                .addSequencePage(10_000, 10_000)
+                .addSequencePage(10_000, 20_000)
+                .build();
+        int inputPages = 0;
+        while (operator.needsInput()) {
+            operator.addInput(input.get(inputPages));
+            inputPages++;
+        }
+        assertTrue(inputPages < input.size());
+
+        Page output = operator.getOutput();
+        assertTrue(output.getPositionCount() > 0);
+        assertNull(operator.getOutput());
+        assertFalse(operator.isFinished());
+        assertEquals(output.getBlock(0).getLong(0, 0), 0);
+    }
+}
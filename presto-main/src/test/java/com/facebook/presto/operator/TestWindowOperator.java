@@ -435,6 +435,7 @@ public class TestWindowOperator
                 WindowFrame.Type.RANGE,
                 FrameBound.Type.UNBOUNDED_PRECEDING, Optional.empty(),
                 FrameBound.Type.UNBOUNDED_FOLLOWING, Optional.empty(),
-                10);
+                10,
+                new PagesIndex.TestingFactory());
     }
 }
@@ -573,8 +573,7 @@ public final class FunctionAssertions
         try {
             CursorProcessor cursorProcessor = compiler.compileCursorProcessor(
                     SqlToRowExpressionTranslator.translate(filter, expressionTypes, metadata, session, false),
-                    ImmutableList.of(SqlToRowExpressionTranslator.translate(projection, expressionTypes, metadata, session, false)),
-                    SOURCE_ID);
+                    ImmutableList.of(SqlToRowExpressionTranslator.translate(projection, expressionTypes, metadata, session, false)));
 
             PageProcessor pageProcessor = compiler.compilePageProcessor(
                     SqlToRowExpressionTranslator.translate(filter, expressionTypes, metadata, session, false),
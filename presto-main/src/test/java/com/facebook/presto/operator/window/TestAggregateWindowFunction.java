@@ -19,8 +19,10 @@ import org.testng.annotations.Test;
 
 import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
 import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 import static com.facebook.presto.testing.MaterializedResult.resultBuilder;
+import static org.testng.Assert.assertEquals;
 
 public class TestAggregateWindowFunction
         extends AbstractTestWindowFunction
@@ -301,6 +303,107 @@ public class TestAggregateWindowFunction
                         .build());
     }
 
+    @Test
+    public void testMovingFrame()
+    {
+        assertWindowQuery("count(*) OVER (PARTITION BY orderstatus ORDER BY orderkey " +
+                        "ROWS 2 PRECEDING)",
+                resultBuilder(TEST_SESSION, BIGINT, VARCHAR, BIGINT)
+                        .row(3, "F", 1)
+                        .row(5, "F", 2)
+                        .row(6, "F", 3)
+                        .row(33, "F", 3)
+                        .row(1, "O", 1)
+                        .row(2, "O", 2)
+                        .row(4, "O", 3)
+                        .row(7, "O", 3)
+                        .row(32, "O", 3)
+                        .row(34, "O", 3)
+                        .build());
+
+        assertWindowQuery("count(orderkey) OVER (PARTITION BY orderstatus ORDER BY orderkey " +
+                        "ROWS BETWEEN 1 PRECEDING AND 1 FOLLOWING)",
+                resultBuilder(TEST_SESSION, BIGINT, VARCHAR, BIGINT)
+                        .row(3, "F", 2)
+                        .row(5, "F", 3)
+                        .row(6, "F", 3)
+                        .row(33, "F", 2)
+                        .row(1, "O", 2)
+                        .row(2, "O", 3)
+                        .row(4, "O", 3)
+                        .row(7, "O", 3)
+                        .row(32, "O", 3)
+                        .row(34, "O", 2)
+                        .build());
+
+        assertWindowQuery("avg(orderkey) OVER (PARTITION BY orderstatus ORDER BY orderkey " +
+                        "ROWS BETWEEN 1 PRECEDING AND 1 FOLLOWING)",
+                resultBuilder(TEST_SESSION, BIGINT, VARCHAR, DOUBLE)
+                        .row(3, "F", 4.0)
+                        .row(5, "F", 14.0 / 3)
+                        .row(6, "F", 44.0 / 3)
+                        .row(33, "F", 19.5)
+                        .row(1, "O", 1.5)
+                        .row(2, "O", 7.0 / 3)
+                        .row(4, "O", 13.0 / 3)
+                        .row(7, "O", 43.0 / 3)
+                        .row(32, "O", 73.0 / 3)
+                        .row(34, "O", 33.0)
+                        .build());
+    }
+
+    @Test
+    public void testMovingAverageOfLargeValues()
+    {
+        // the sum of avg is a double, so removing 1e18 from it would lose the values added after it
+        String values = "VALUES (1, 1000000000000000000), (2, 1), (3, 1), (4, -1000000000000000000), (5, 3), (6, 5)";
+        MaterializedResult actual = queryRunner.execute("SELECT i, avg(x) OVER (ORDER BY i ROWS 1 PRECEDING) FROM (" + values + ") t (i, x) ORDER BY i");
+
+        // aggregate each frame again
+        MaterializedResult expected = queryRunner.execute("SELECT a.i, avg(b.x) " +
+                "FROM (" + values + ") a (i, x) " +
+                "CROSS JOIN (" + values + ") b (i, x) " +
+                "WHERE b.i BETWEEN a.i - 1 AND a.i " +
+                "GROUP BY a.i " +
+                "ORDER BY a.i");
+        assertEquals(actual.getMaterializedRows(), expected.getMaterializedRows());
+        assertEquals(actual.getMaterializedRows().get(2).getField(1), 1.0);
+    }
+
+    @Test
+    public void testLargeMovingFrame()
+    {
+        assertWindowQuery("sum(orderkey) OVER (ORDER BY orderkey " +
+                        "ROWS BETWEEN 1 PRECEDING AND 8 FOLLOWING)",
+                resultBuilder(TEST_SESSION, BIGINT, VARCHAR, BIGINT)
+                        .row(1, "O", 93)
+                        .row(2, "O", 127)
+                        .row(3, "F", 126)
+                        .row(4, "O", 124)
+                        .row(5, "F", 121)
+                        .row(6, "F", 117)
+                        .row(7, "O", 112)
+                        .row(32, "O", 106)
+                        .row(33, "F", 99)
+                        .row(34, "O", 67)
+                        .build());
+
+        assertWindowQuery("max(orderkey) OVER (ORDER BY orderkey " +
+                        "ROWS BETWEEN 1 PRECEDING AND 8 FOLLOWING)",
+                resultBuilder(TEST_SESSION, BIGINT, VARCHAR, BIGINT)
+                        .row(1, "O", 33)
+                        .row(2, "O", 34)
+                        .row(3, "F", 34)
+                        .row(4, "O", 34)
+                        .row(5, "F", 34)
+                        .row(6, "F", 34)
+                        .row(7, "O", 34)
+                        .row(32, "O", 34)
+                        .row(33, "F", 34)
+                        .row(34, "O", 34)
+                        .build());
+    }
+
     @Test
     public void testSumCurrentRow()
             throws Exception
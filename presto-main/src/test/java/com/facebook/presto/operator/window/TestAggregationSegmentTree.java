@@ -0,0 +1,137 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.window;
+
+import com.facebook.presto.metadata.FunctionInfo;
+import com.facebook.presto.metadata.MetadataManager;
+import com.facebook.presto.operator.PagesIndex;
+import com.facebook.presto.operator.aggregation.Accumulator;
+import com.facebook.presto.operator.aggregation.AccumulatorFactory;
+import com.facebook.presto.operator.aggregation.InternalAggregationFunction;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.block.BlockBuilderStatus;
+import com.facebook.presto.spi.type.StandardTypes;
+import com.facebook.presto.sql.tree.QualifiedName;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static com.facebook.presto.block.BlockAssertions.createLongsBlock;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.TypeSignature.parseTypeSignature;
+import static java.lang.String.format;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestAggregationSegmentTree
+{
+    private final MetadataManager metadata = new MetadataManager();
+
+    @Test
+    public void testAllFrames()
+    {
+        for (int size : new int[] {1, 2, 3, 7, 8, 9, 37}) {
+            WindowIndex windowIndex = createWindowIndex(size);
+            for (String name : ImmutableList.of("sum", "min", "max", "count")) {
+                assertAllFrames(getFunction(name), windowIndex);
+            }
+        }
+    }
+
+    private static void assertAllFrames(InternalAggregationFunction function, WindowIndex windowIndex)
+    {
+        AccumulatorFactory factory = function.bind(ImmutableList.of(0), Optional.empty(), Optional.empty(), 1.0);
+        AggregationSegmentTree tree = new AggregationSegmentTree(factory, function.getIntermediateType(), function.getParameterTypes(), new int[] {0}, windowIndex);
+
+        for (int start = 0; start < windowIndex.size(); start++) {
+            for (int end = start; end < windowIndex.size(); end++) {
+                Accumulator accumulator = factory.createAccumulator();
+                tree.addIntermediate(start, end, accumulator);
+                BlockBuilder actual = function.getFinalType().createBlockBuilder(new BlockBuilderStatus(), 1);
+                accumulator.evaluateFinal(actual);
+
+                assertEquals(
+                        function.getFinalType().getObjectValue(null, actual.build(), 0),
+                        aggregateRows(function, windowIndex, start, end),
+                        format("%s of rows %s to %s of %s", function.name(), start, end, windowIndex.size()));
+            }
+        }
+        assertTrue(tree.getEstimatedSize() > 0);
+    }
+
+    @Test
+    public void testWindowFunctionFrames()
+    {
+        WindowIndex windowIndex = createWindowIndex(37);
+        for (String name : ImmutableList.of("sum", "min", "count")) {
+            FunctionInfo functionInfo = resolveFunction(name);
+            InternalAggregationFunction function = functionInfo.getAggregationFunction();
+            WindowFunction windowFunction = functionInfo.bindWindowFunction(ImmutableList.of(0)).createWindowFunction();
+            windowFunction.reset(windowIndex);
+
+            // large frames are aggregated from the segment tree and then grow or move row by row
+            int[][] frames = {{0, 20}, {0, 25}, {0, 36}, {3, 30}, {4, 31}, {10, 31}, {0, 2}, {1, 35}, {1, 36}};
+            for (int[] frame : frames) {
+                BlockBuilder actual = function.getFinalType().createBlockBuilder(new BlockBuilderStatus(), 1);
+                windowFunction.processRow(actual, 0, 0, frame[0], frame[1]);
+                assertEquals(
+                        function.getFinalType().getObjectValue(null, actual.build(), 0),
+                        aggregateRows(function, windowIndex, frame[0], frame[1]),
+                        format("%s of rows %s to %s", function.name(), frame[0], frame[1]));
+            }
+            assertTrue(windowFunction.getEstimatedSize() > 0);
+        }
+    }
+
+    private static Object aggregateRows(InternalAggregationFunction function, WindowIndex windowIndex, int start, int end)
+    {
+        BlockBuilder rows = BIGINT.createBlockBuilder(new BlockBuilderStatus(), end - start + 1);
+        for (int position = start; position <= end; position++) {
+            windowIndex.appendTo(0, position, rows);
+        }
+        Accumulator accumulator = function.bind(ImmutableList.of(0), Optional.empty(), Optional.empty(), 1.0).createAccumulator();
+        accumulator.addInput(new Page(rows.build()));
+        BlockBuilder expected = function.getFinalType().createBlockBuilder(new BlockBuilderStatus(), 1);
+        accumulator.evaluateFinal(expected);
+        return function.getFinalType().getObjectValue(null, expected.build(), 0);
+    }
+
+    private InternalAggregationFunction getFunction(String name)
+    {
+        return resolveFunction(name).getAggregationFunction();
+    }
+
+    private FunctionInfo resolveFunction(String name)
+    {
+        return metadata.resolveFunction(QualifiedName.of(name), ImmutableList.of(parseTypeSignature(StandardTypes.BIGINT)), false);
+    }
+
+    private static WindowIndex createWindowIndex(int size)
+    {
+        // every fifth value is null, and the values are not in order
+        List<Long> values = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            values.add(i % 5 == 4 ? null : (long) ((i * 7919) % 101) - 50);
+        }
+        Block block = createLongsBlock(values);
+        PagesIndex pagesIndex = new PagesIndex.TestingFactory().newPagesIndex(ImmutableList.of(BIGINT), size);
+        pagesIndex.addPage(new Page(block));
+        return new WindowIndex(pagesIndex, 0, size);
+    }
+}
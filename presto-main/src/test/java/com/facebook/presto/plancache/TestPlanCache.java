@@ -0,0 +1,252 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.plancache;
+
+import com.facebook.presto.metadata.MetadataManager;
+import com.facebook.presto.metadata.TableHandle;
+import com.facebook.presto.metadata.TestingMetadata;
+import com.facebook.presto.metadata.TestingMetadata.InMemoryTableHandle;
+import com.facebook.presto.spi.ColumnMetadata;
+import com.facebook.presto.spi.ConnectorPartition;
+import com.facebook.presto.spi.ConnectorSession;
+import com.facebook.presto.spi.ConnectorTableHandle;
+import com.facebook.presto.spi.ConnectorTableMetadata;
+import com.facebook.presto.spi.SchemaTableName;
+import com.facebook.presto.sql.analyzer.Analysis;
+import com.facebook.presto.sql.planner.Plan;
+import com.facebook.presto.sql.planner.SymbolAllocator;
+import com.facebook.presto.sql.planner.plan.PlanNodeId;
+import com.facebook.presto.sql.planner.plan.ValuesNode;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import io.airlift.testing.TestingTicker;
+import io.airlift.units.Duration;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestPlanCache
+{
+    private final SchemaTableName tableName = new SchemaTableName("default", "test");
+    private final TableHandle table = new TableHandle("test", new InMemoryTableHandle(tableName));
+    private String dataVersion;
+    private TestingMetadata connectorMetadata;
+    private MetadataManager metadata;
+    private TestingTicker ticker;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        dataVersion = "1";
+        ticker = new TestingTicker();
+        metadata = new MetadataManager();
+        connectorMetadata = new TestingMetadata()
+        {
+            @Override
+            public String getTableDataVersion(ConnectorSession session, ConnectorTableHandle tableHandle, List<ConnectorPartition> partitions)
+            {
+                return dataVersion;
+            }
+        };
+        connectorMetadata.createTable(TEST_SESSION.toConnectorSession(), new ConnectorTableMetadata(tableName, ImmutableList.of(new ColumnMetadata("a", BIGINT, 0, false))));
+        metadata.addConnectorMetadata("test", "test", connectorMetadata);
+    }
+
+    @Test
+    public void testRoundTrip()
+    {
+        PlanCache cache = createCache(10);
+
+        assertFalse(get(cache, "query").isPresent());
+        assertEquals(cache.getMisses(), 1);
+
+        CachedPlan plan = plan(ImmutableMap.of(table, "1"));
+        cache.put("query", plan, cache.getGeneration());
+        assertEquals(cache.getEntryCount(), 1);
+
+        Optional<CachedPlan> cached = get(cache, "query");
+        assertTrue(cached.isPresent());
+        assertSame(cached.get(), plan);
+        assertEquals(cache.getHits(), 1);
+        assertEquals(cache.getHitRate(), 0.5);
+    }
+
+    @Test
+    public void testDataVersionInvalidation()
+    {
+        PlanCache cache = createCache(10);
+        cache.put("query", plan(ImmutableMap.of(table, "1")), cache.getGeneration());
+
+        // the data of the table changed
+        dataVersion = "2";
+        assertFalse(get(cache, "query").isPresent());
+        assertEquals(cache.getInvalidations(), 1);
+        assertEquals(cache.getEntryCount(), 0);
+
+        // the connector no longer reports a version
+        dataVersion = null;
+        cache.put("query", plan(ImmutableMap.of(table, "2")), cache.getGeneration());
+        assertFalse(get(cache, "query").isPresent());
+        assertEquals(cache.getInvalidations(), 2);
+        assertEquals(cache.getHits(), 0);
+    }
+
+    @Test
+    public void testAddedPartitionInvalidatesPlan()
+    {
+        // like in Hive, the version of a partitioned table covers the names of all its partitions
+        List<String> partitionNames = new ArrayList<>(ImmutableList.of("ds=2015-01-01"));
+        metadata.addConnectorMetadata("partitioned", "partitioned", new TestingMetadata()
+        {
+            @Override
+            public String getTableDataVersion(ConnectorSession session, ConnectorTableHandle tableHandle, List<ConnectorPartition> partitions)
+            {
+                return String.join(",", partitionNames);
+            }
+        });
+        TableHandle partitionedTable = new TableHandle("partitioned", new InMemoryTableHandle(new SchemaTableName("default", "partitioned")));
+
+        // the default configuration reads the versions whenever a plan is reused
+        PlanCache cache = new PlanCache(new PlanCacheConfig().setEnabled(true));
+        cache.put("query", plan(ImmutableMap.of(partitionedTable, "ds=2015-01-01")), cache.getGeneration());
+        assertTrue(get(cache, "query").isPresent());
+
+        // the next execution must plan the query again, so it reads the new partition
+        partitionNames.add("ds=2015-01-02");
+        assertFalse(get(cache, "query").isPresent());
+        assertEquals(cache.getInvalidations(), 1);
+    }
+
+    @Test
+    public void testAnalysisKeyedOnSchemaVersion()
+    {
+        PlanCache cache = createCache(10);
+        cache.put("query", analysis(ImmutableMap.of(table, PlanCache.getSchemaVersion(metadata, table))), cache.getGeneration());
+
+        // rows written to the table do not change the analysis
+        dataVersion = "2";
+        assertTrue(get(cache, "query").isPresent());
+
+        // a column added to the table does
+        connectorMetadata.dropTable(new InMemoryTableHandle(tableName));
+        connectorMetadata.createTable(TEST_SESSION.toConnectorSession(), new ConnectorTableMetadata(tableName, ImmutableList.of(
+                new ColumnMetadata("a", BIGINT, 0, false),
+                new ColumnMetadata("b", BIGINT, 1, false))));
+        assertFalse(get(cache, "query").isPresent());
+        assertEquals(cache.getInvalidations(), 1);
+    }
+
+    @Test
+    public void testValidationInterval()
+    {
+        PlanCache cache = new PlanCache(true, 10, new Duration(1, MINUTES), ticker);
+        cache.put("query", plan(ImmutableMap.of(table, "1")), cache.getGeneration());
+
+        // the versions are not read again until the interval elapsed
+        dataVersion = "2";
+        assertTrue(get(cache, "query").isPresent());
+        ticker.increment(59, SECONDS);
+        assertTrue(get(cache, "query").isPresent());
+        assertEquals(cache.getInvalidations(), 0);
+
+        ticker.increment(1, SECONDS);
+        assertFalse(get(cache, "query").isPresent());
+        assertEquals(cache.getInvalidations(), 1);
+
+        // a successful validation restarts the interval
+        cache.put("query", plan(ImmutableMap.of(table, "2")), cache.getGeneration());
+        ticker.increment(1, MINUTES);
+        assertTrue(get(cache, "query").isPresent());
+        dataVersion = "3";
+        ticker.increment(30, SECONDS);
+        assertTrue(get(cache, "query").isPresent());
+        ticker.increment(30, SECONDS);
+        assertFalse(get(cache, "query").isPresent());
+    }
+
+    @Test
+    public void testEviction()
+    {
+        PlanCache cache = createCache(2);
+        cache.put("a", plan(ImmutableMap.of()), cache.getGeneration());
+        cache.put("b", plan(ImmutableMap.of()), cache.getGeneration());
+
+        // make b the least recently used
+        assertTrue(get(cache, "a").isPresent());
+
+        cache.put("c", plan(ImmutableMap.of()), cache.getGeneration());
+        assertEquals(cache.getEntryCount(), 2);
+        assertEquals(cache.getEvictions(), 1);
+        assertTrue(get(cache, "a").isPresent());
+        assertFalse(get(cache, "b").isPresent());
+        assertTrue(get(cache, "c").isPresent());
+    }
+
+    @Test
+    public void testInvalidateAll()
+    {
+        PlanCache cache = createCache(10);
+        long generation = cache.getGeneration();
+        cache.put("a", plan(ImmutableMap.of()), generation);
+        cache.put("b", plan(ImmutableMap.of()), generation);
+
+        cache.invalidateAll();
+        assertEquals(cache.getEntryCount(), 0);
+        assertEquals(cache.getInvalidations(), 2);
+
+        // a plan created before the invalidation is not added after it
+        cache.put("a", plan(ImmutableMap.of()), generation);
+        assertEquals(cache.getEntryCount(), 0);
+
+        cache.put("a", plan(ImmutableMap.of()), cache.getGeneration());
+        assertEquals(cache.getEntryCount(), 1);
+    }
+
+    private PlanCache createCache(int maxEntries)
+    {
+        // validate the plans on every lookup
+        return new PlanCache(true, maxEntries, new Duration(0, SECONDS), ticker);
+    }
+
+    private Optional<CachedPlan> get(PlanCache cache, String key)
+    {
+        return cache.get(key, TEST_SESSION, metadata);
+    }
+
+    private static CachedPlan plan(Map<TableHandle, String> dataVersions)
+    {
+        ValuesNode root = new ValuesNode(new PlanNodeId("0"), ImmutableList.of(), ImmutableList.of());
+        return new CachedPlan(new Analysis(), Optional.of(new Plan(root, new SymbolAllocator())), Maps.transformValues(dataVersions, version -> ImmutableList.of()), dataVersions);
+    }
+
+    private static CachedPlan analysis(Map<TableHandle, String> schemaVersions)
+    {
+        return new CachedPlan(new Analysis(), Optional.empty(), Maps.transformValues(schemaVersions, version -> ImmutableList.of()), schemaVersions);
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.plancache;
+
+import com.facebook.presto.client.ClientSession;
+import com.facebook.presto.client.QueryError;
+import com.facebook.presto.client.QueryResults;
+import com.facebook.presto.client.StatementClient;
+import com.facebook.presto.server.testing.TestingPrestoServer;
+import com.facebook.presto.tpch.TpchPlugin;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.airlift.http.client.HttpClient;
+import io.airlift.http.client.jetty.JettyHttpClient;
+import io.airlift.testing.Closeables;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static com.facebook.presto.client.ClientSession.withPreparedStatements;
+import static io.airlift.json.JsonCodec.jsonCodec;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestPlanCaching
+{
+    private TestingPrestoServer server;
+    private HttpClient client;
+
+    @BeforeClass
+    public void setUp()
+            throws Exception
+    {
+        server = new TestingPrestoServer(true, ImmutableMap.of("plan-cache.enabled", "true"), null, null, ImmutableList.of());
+        server.installPlugin(new TpchPlugin());
+        server.createCatalog("tpch", "tpch");
+        client = new JettyHttpClient();
+
+        // wait for the server to announce the catalog
+        server.refreshNodes();
+        while (server.getActiveNodesWithConnector("tpch").isEmpty()) {
+            MILLISECONDS.sleep(10);
+            server.refreshNodes();
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    @AfterClass
+    public void tearDown()
+    {
+        Closeables.closeQuietly(server);
+        Closeables.closeQuietly(client);
+    }
+
+    @BeforeMethod
+    public void invalidatePlans()
+    {
+        server.getPlanCache().invalidateAll();
+    }
+
+    @Test
+    public void testRepeatedQueryReusesPlan()
+    {
+        PlanCache planCache = server.getPlanCache();
+        String sql = "SELECT count(*) FROM orders WHERE orderstatus = 'F'";
+
+        List<List<Object>> first = execute(session(), sql).getRows();
+        long hits = planCache.getHits();
+
+        List<List<Object>> second = execute(session(), sql).getRows();
+        assertEquals(planCache.getHits(), hits + 1);
+        assertEquals(second, first);
+    }
+
+    @Test
+    public void testQueryReadingStartTimeIsNotCached()
+    {
+        PlanCache planCache = server.getPlanCache();
+        for (String sql : ImmutableList.of("SELECT now() FROM region", "SELECT current_date FROM region")) {
+            execute(session(), sql);
+            execute(session(), sql);
+        }
+        assertEquals(planCache.getEntryCount(), 0);
+    }
+
+    @Test
+    public void testSessionCanDisableCache()
+    {
+        PlanCache planCache = server.getPlanCache();
+        ClientSession session = session(ImmutableMap.of("plan_cache_enabled", "false"));
+        long hits = planCache.getHits();
+
+        execute(session, "SELECT count(*) FROM region");
+        execute(session, "SELECT count(*) FROM region");
+        assertEquals(planCache.getEntryCount(), 0);
+        assertEquals(planCache.getHits(), hits);
+    }
+
+    @Test
+    public void testPrepareAndExecute()
+    {
+        PlanCache planCache = server.getPlanCache();
+
+        Result prepare = execute(session(), "PREPARE orders_by_status FROM SELECT count(*) FROM orders WHERE orderstatus = ?");
+        assertEquals(prepare.getAddedPreparedStatements().keySet(), ImmutableSet.of("orders_by_status"));
+        ClientSession session = withPreparedStatements(session(), prepare.getAddedPreparedStatements());
+
+        assertEquals(execute(session, "EXECUTE orders_by_status USING 'F'").getRows(), execute(session(), "SELECT count(*) FROM orders WHERE orderstatus = 'F'").getRows());
+        long hits = planCache.getHits();
+
+        // executions with other values reuse the analysis
+        assertEquals(execute(session, "EXECUTE orders_by_status USING 'O'").getRows(), execute(session(), "SELECT count(*) FROM orders WHERE orderstatus = 'O'").getRows());
+        assertEquals(planCache.getHits(), hits + 1);
+
+        // the values are evaluated before they are bound
+        assertEquals(execute(session, "EXECUTE orders_by_status USING lower('F')").getRows(), execute(session, "EXECUTE orders_by_status USING 'f'").getRows());
+
+        ClientSession subquerySession = withPreparedStatements(session(), ImmutableMap.of("big_orders", "SELECT count(*), ? + 1 FROM orders WHERE orderkey IN (SELECT orderkey FROM lineitem WHERE quantity > ?)"));
+        assertEquals(execute(subquerySession, "EXECUTE big_orders USING 1, 45").getRows(), execute(session(), "SELECT count(*), 2 FROM orders WHERE orderkey IN (SELECT orderkey FROM lineitem WHERE quantity > 45)").getRows());
+
+        // parameters the analyzer evaluates are bound before the analysis
+        ClientSession valuesSession = withPreparedStatements(session(), ImmutableMap.of("single_value", "SELECT x FROM (VALUES ?) t (x)"));
+        assertEquals(execute(valuesSession, "EXECUTE single_value USING 5").getRows(), execute(session(), "SELECT x FROM (VALUES 5) t (x)").getRows());
+
+        Result deallocate = execute(session, "DEALLOCATE PREPARE orders_by_status");
+        assertEquals(deallocate.getDeallocatedPreparedStatements(), ImmutableList.of("orders_by_status"));
+    }
+
+    @Test
+    public void testExecuteErrors()
+    {
+        ClientSession session = withPreparedStatements(session(), ImmutableMap.of("by_key", "SELECT * FROM orders WHERE orderkey = ?"));
+
+        assertError(session, "EXECUTE missing", "Prepared statement not found: missing");
+        assertError(session, "EXECUTE by_key", "Prepared statement by_key takes 1 parameters, but 0 were provided");
+        assertError(session, "EXECUTE by_key USING 1, 2", "Prepared statement by_key takes 1 parameters, but 2 were provided");
+        assertError(session, "DEALLOCATE PREPARE missing", "Prepared statement not found: missing");
+        assertError(session, "SELECT * FROM orders WHERE orderkey = ?", "Parameters are only allowed in prepared statements");
+    }
+
+    @Test
+    public void testCreateTableInvalidatesPlans()
+            throws Exception
+    {
+        PlanCache planCache = server.getPlanCache();
+        execute(session(), "SELECT count(*) FROM nation");
+        assertEquals(planCache.getEntryCount(), 1);
+
+        // tpch does not support creating tables, but even a failed statement may have changed metadata
+        QueryError error = executeWithError(session(), "CREATE TABLE test_table AS SELECT 1 x");
+        assertNotNull(error);
+
+        // the plans are invalidated by a listener that runs after the query finishes
+        long start = System.nanoTime();
+        while (planCache.getEntryCount() > 0) {
+            assertTrue(System.nanoTime() - start < SECONDS.toNanos(10), "plans were not invalidated");
+            MILLISECONDS.sleep(10);
+        }
+    }
+
+    private void assertError(ClientSession session, String sql, String message)
+    {
+        QueryError error = executeWithError(session, sql);
+        assertNotNull(error, sql);
+        assertTrue(error.getMessage().contains(message), error.getMessage());
+    }
+
+    private ClientSession session()
+    {
+        return session(ImmutableMap.of());
+    }
+
+    private ClientSession session(Map<String, String> properties)
+    {
+        return new ClientSession(server.getBaseUrl(), "user", "source", "tpch", "tiny", "UTC", Locale.ENGLISH, properties, false);
+    }
+
+    private Result execute(ClientSession session, String sql)
+    {
+        try (StatementClient statement = new StatementClient(client, jsonCodec(QueryResults.class), session, sql)) {
+            ImmutableList.Builder<List<Object>> rows = ImmutableList.builder();
+            while (statement.isValid()) {
+                if (statement.current().getData() != null) {
+                    rows.addAll(statement.current().getData());
+                }
+                statement.advance();
+            }
+            assertNull(statement.finalResults().getError(), sql);
+            return new Result(rows.build(), statement.getAddedPreparedStatements(), ImmutableList.copyOf(statement.getDeallocatedPreparedStatements()));
+        }
+    }
+
+    private QueryError executeWithError(ClientSession session, String sql)
+    {
+        try (StatementClient statement = new StatementClient(client, jsonCodec(QueryResults.class), session, sql)) {
+            while (statement.isValid()) {
+                statement.advance();
+            }
+            return statement.finalResults().getError();
+        }
+    }
+
+    private static class Result
+    {
+        private final List<List<Object>> rows;
+        private final Map<String, String> addedPreparedStatements;
+        private final List<String> deallocatedPreparedStatements;
+
+        public Result(List<List<Object>> rows, Map<String, String> addedPreparedStatements, List<String> deallocatedPreparedStatements)
+        {
+            this.rows = rows;
+            this.addedPreparedStatements = addedPreparedStatements;
+            this.deallocatedPreparedStatements = deallocatedPreparedStatements;
+        }
+
+        public List<List<Object>> getRows()
+        {
+            return rows;
+        }
+
+        public Map<String, String> getAddedPreparedStatements()
+        {
+            return addedPreparedStatements;
+        }
+
+        public List<String> getDeallocatedPreparedStatements()
+        {
+            return deallocatedPreparedStatements;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.resultcache;
+
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+import io.airlift.units.DataSize;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.Optional;
+
+import static com.facebook.presto.SequencePageBuilder.createSequencePage;
+import static com.facebook.presto.operator.PageAssertions.assertPageEquals;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static com.facebook.presto.testing.TestingBlockEncodingManager.createTestingBlockEncodingManager;
+import static io.airlift.testing.FileUtils.deleteRecursively;
+import static io.airlift.units.DataSize.Unit.BYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestQueryResultCache
+{
+    private static final List<String> FIELD_NAMES = ImmutableList.of("id", "name");
+    private static final List<Type> TYPES = ImmutableList.<Type>of(BIGINT, VARCHAR);
+
+    private File cachePath;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        cachePath = Files.createTempDir();
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        deleteRecursively(cachePath);
+    }
+
+    @Test
+    public void testRoundTrip()
+    {
+        QueryResultCache cache = createCache(new DataSize(1, MEGABYTE), new DataSize(1, MEGABYTE));
+        QueryResultCacheKey key = key("query", "1");
+
+        assertFalse(cache.get(key).isPresent());
+        assertEquals(cache.getMisses(), 1);
+
+        Page first = createSequencePage(TYPES, 10, 0, 100);
+        Page second = createSequencePage(TYPES, 20, 10, 110);
+        put(cache, key, first, second);
+        assertEquals(cache.getEntryCount(), 1);
+
+        Optional<CachedQueryResult> result = cache.get(key);
+        assertTrue(result.isPresent());
+        assertEquals(result.get().getFieldNames(), FIELD_NAMES);
+        assertEquals(result.get().getTypes(), TYPES);
+        assertPageEquals(TYPES, result.get().getPages().next(), first);
+        assertPageEquals(TYPES, result.get().getPages().next(), second);
+        assertFalse(result.get().getPages().hasNext());
+        result.get().close();
+
+        assertEquals(cache.getHits(), 1);
+        assertEquals(cache.getHitRate(), 0.5);
+        assertEquals(cache.getBytesServed(), cache.getSizeInBytes());
+        assertTrue(cache.getSizeInBytes() > 0);
+    }
+
+    @Test
+    public void testEmptyResult()
+    {
+        QueryResultCache cache = createCache(new DataSize(1, MEGABYTE), new DataSize(1, MEGABYTE));
+        QueryResultCacheKey key = key("query", "1");
+        put(cache, key);
+
+        Optional<CachedQueryResult> result = cache.get(key);
+        assertTrue(result.isPresent());
+        assertEquals(result.get().getFieldNames(), FIELD_NAMES);
+        assertFalse(result.get().getPages().hasNext());
+        result.get().close();
+    }
+
+    @Test
+    public void testInvalidation()
+    {
+        QueryResultCache cache = createCache(new DataSize(1, MEGABYTE), new DataSize(1, MEGABYTE));
+        put(cache, key("query", "1"), createSequencePage(TYPES, 10, 0, 100));
+
+        // the data of the table changed
+        assertFalse(cache.get(key("query", "2")).isPresent());
+        assertEquals(cache.getInvalidations(), 1);
+        assertEquals(cache.getEntryCount(), 0);
+        assertEquals(cache.getSizeInBytes(), 0);
+        assertEquals(listCacheFiles().length, 0);
+
+        // the stale results are gone
+        assertFalse(cache.get(key("query", "1")).isPresent());
+        assertEquals(cache.getInvalidations(), 1);
+        assertEquals(cache.getHits(), 0);
+    }
+
+    @Test
+    public void testEviction()
+    {
+        Page page = createSequencePage(TYPES, 10, 0, 100);
+
+        // measure the size of an entry, then make room for two of them
+        QueryResultCache probe = createCache(new DataSize(1, MEGABYTE), new DataSize(1, MEGABYTE));
+        put(probe, key("probe", "1"), page);
+        long entrySize = probe.getSizeInBytes();
+
+        QueryResultCache cache = createCache(new DataSize(entrySize * 5 / 2, BYTE), new DataSize(entrySize, BYTE));
+        put(cache, key("a", "1"), page);
+        put(cache, key("b", "1"), page);
+
+        // reading a makes b the least recently used
+        cache.get(key("a", "1")).get().close();
+        put(cache, key("c", "1"), page);
+
+        assertEquals(cache.getEvictions(), 1);
+        assertEquals(cache.getEntryCount(), 2);
+        assertEquals(cache.getSizeInBytes(), entrySize * 2);
+        assertFalse(cache.get(key("b", "1")).isPresent());
+        assertTrue(cache.get(key("a", "1")).isPresent());
+        assertTrue(cache.get(key("c", "1")).isPresent());
+    }
+
+    @Test
+    public void testEntryTooLarge()
+    {
+        QueryResultCache cache = createCache(new DataSize(1, MEGABYTE), new DataSize(100, BYTE));
+        QueryResultCacheWriter writer = cache.createWriter(key("query", "1"), FIELD_NAMES, TYPES);
+        writer.append(createSequencePage(TYPES, 100, 0, 100));
+        assertTrue(writer.isDone());
+        writer.commit();
+
+        assertFalse(cache.get(key("query", "1")).isPresent());
+        assertEquals(cache.getEntryCount(), 0);
+        assertEquals(listCacheFiles().length, 0);
+    }
+
+    @Test
+    public void testAbort()
+    {
+        QueryResultCache cache = createCache(new DataSize(1, MEGABYTE), new DataSize(1, MEGABYTE));
+        QueryResultCacheWriter writer = cache.createWriter(key("query", "1"), FIELD_NAMES, TYPES);
+        writer.append(createSequencePage(TYPES, 10, 0, 100));
+        writer.abort();
+        writer.commit();
+
+        assertFalse(cache.get(key("query", "1")).isPresent());
+        assertEquals(listCacheFiles().length, 0);
+    }
+
+    @Test
+    public void testFilesRemovedOnStartup()
+    {
+        QueryResultCache cache = createCache(new DataSize(1, MEGABYTE), new DataSize(1, MEGABYTE));
+        put(cache, key("query", "1"), createSequencePage(TYPES, 10, 0, 100));
+        assertEquals(listCacheFiles().length, 1);
+
+        createCache(new DataSize(1, MEGABYTE), new DataSize(1, MEGABYTE));
+        assertEquals(listCacheFiles().length, 0);
+    }
+
+    private QueryResultCache createCache(DataSize maxSize, DataSize maxEntrySize)
+    {
+        return new QueryResultCache(createTestingBlockEncodingManager(), true, cachePath.toPath(), maxSize, maxEntrySize);
+    }
+
+    private File[] listCacheFiles()
+    {
+        return cachePath.listFiles((dir, name) -> name.endsWith(QueryResultCache.FILE_SUFFIX));
+    }
+
+    private static void put(QueryResultCache cache, QueryResultCacheKey key, Page... pages)
+    {
+        QueryResultCacheWriter writer = cache.createWriter(key, FIELD_NAMES, TYPES);
+        for (Page page : pages) {
+            writer.append(page);
+        }
+        writer.commit();
+    }
+
+    private static QueryResultCacheKey key(String fingerprint, String version)
+    {
+        return new QueryResultCacheKey(fingerprint, ImmutableMap.of("table", version));
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.resultcache;
+
+import com.facebook.presto.client.QueryResults;
+import com.facebook.presto.execution.QueryId;
+import com.facebook.presto.execution.QueryInfo;
+import com.facebook.presto.server.testing.TestingPrestoServer;
+import com.facebook.presto.tpch.TpchPlugin;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+import io.airlift.http.client.HttpClient;
+import io.airlift.http.client.HttpUriBuilder;
+import io.airlift.http.client.Request;
+import io.airlift.http.client.jetty.JettyHttpClient;
+import io.airlift.testing.Closeables;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_CATALOG;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_SCHEMA;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_SESSION;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_SOURCE;
+import static com.facebook.presto.client.PrestoHeaders.PRESTO_USER;
+import static io.airlift.http.client.JsonResponseHandler.createJsonResponseHandler;
+import static io.airlift.http.client.Request.Builder.prepareGet;
+import static io.airlift.http.client.Request.Builder.preparePost;
+import static io.airlift.http.client.StaticBodyGenerator.createStaticBodyGenerator;
+import static io.airlift.json.JsonCodec.jsonCodec;
+import static io.airlift.testing.FileUtils.deleteRecursively;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+@Test(singleThreaded = true)
+public class TestQueryResultCaching
+{
+    private File cachePath;
+    private TestingPrestoServer server;
+    private HttpClient client;
+
+    @BeforeClass
+    public void setUp()
+            throws Exception
+    {
+        cachePath = Files.createTempDir();
+        server = new TestingPrestoServer(true, ImmutableMap.<String, String>builder()
+                .put("query-result-cache.enabled", "true")
+                .put("query-result-cache.path", cachePath.getAbsolutePath())
+                .build(), null, null, ImmutableList.of());
+        server.installPlugin(new TpchPlugin());
+        server.createCatalog("tpch", "tpch");
+        client = new JettyHttpClient();
+
+        // wait for the server to announce the catalog
+        server.refreshNodes();
+        while (server.getActiveNodesWithConnector("tpch").isEmpty()) {
+            MILLISECONDS.sleep(10);
+            server.refreshNodes();
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    @AfterClass
+    public void tearDown()
+    {
+        Closeables.closeQuietly(server);
+        Closeables.closeQuietly(client);
+        deleteRecursively(cachePath);
+    }
+
+    @Test
+    public void testRepeatedQueryIsServedFromCache()
+    {
+        String sql = "SELECT orderstatus, count(*) FROM orders GROUP BY orderstatus ORDER BY orderstatus";
+
+        QueryResult first = execute(sql);
+        assertNotNull(first.getQueryInfo().getOutputStage());
+
+        QueryResult second = execute(sql);
+        assertNull(second.getQueryInfo().getOutputStage());
+        assertEquals(second.getColumns(), first.getColumns());
+        assertEquals(second.getRows(), first.getRows());
+        assertEquals(second.getQueryInfo().getFieldNames(), ImmutableList.of("orderstatus", "_col1"));
+    }
+
+    @Test
+    public void testEmptyResultIsServedFromCache()
+    {
+        String sql = "SELECT orderkey FROM orders WHERE orderkey < 0";
+
+        QueryResult first = execute(sql);
+        assertNotNull(first.getQueryInfo().getOutputStage());
+
+        QueryResult second = execute(sql);
+        assertNull(second.getQueryInfo().getOutputStage());
+        assertEquals(second.getColumns(), ImmutableList.of("orderkey"));
+        assertEquals(second.getRows(), ImmutableList.of());
+    }
+
+    @Test
+    public void testNonDeterministicQueryIsNotCached()
+    {
+        String sql = "SELECT count(*) FROM nation WHERE rand() >= 0";
+
+        execute(sql);
+        QueryResult second = execute(sql);
+        assertNotNull(second.getQueryInfo().getOutputStage());
+    }
+
+    @Test
+    public void testQueryReadingStartTimeIsNotCached()
+    {
+        for (String sql : ImmutableList.of("SELECT now() FROM region", "SELECT current_date FROM region")) {
+            execute(sql);
+            QueryResult second = execute(sql);
+            assertNotNull(second.getQueryInfo().getOutputStage(), sql);
+        }
+    }
+
+    @Test
+    public void testSessionCanDisableCache()
+    {
+        String sql = "SELECT count(*) FROM region";
+
+        execute(sql, "query_result_cache_enabled=false");
+        QueryResult second = execute(sql, "query_result_cache_enabled=false");
+        assertNotNull(second.getQueryInfo().getOutputStage());
+    }
+
+    private QueryResult execute(String sql, String... sessionProperties)
+    {
+        Request.Builder request = preparePost()
+                .setUri(HttpUriBuilder.uriBuilderFrom(server.getBaseUrl()).replacePath("/v1/statement").build())
+                .setBodyGenerator(createStaticBodyGenerator(sql, UTF_8))
+                .setHeader(PRESTO_USER, "user")
+                .setHeader(PRESTO_SOURCE, "source")
+                .setHeader(PRESTO_CATALOG, "tpch")
+                .setHeader(PRESTO_SCHEMA, "tiny");
+        for (String property : sessionProperties) {
+            request.addHeader(PRESTO_SESSION, property);
+        }
+
+        QueryResults queryResults = client.execute(request.build(), createJsonResponseHandler(jsonCodec(QueryResults.class)));
+        ImmutableList.Builder<List<Object>> rows = ImmutableList.builder();
+        while (true) {
+            if (queryResults.getData() != null) {
+                rows.addAll(queryResults.getData());
+            }
+            if (queryResults.getNextUri() == null) {
+                break;
+            }
+            queryResults = client.execute(prepareGet().setUri(queryResults.getNextUri()).build(), createJsonResponseHandler(jsonCodec(QueryResults.class)));
+        }
+        assertNull(queryResults.getError());
+
+        ImmutableList.Builder<String> columns = ImmutableList.builder();
+        queryResults.getColumns().forEach(column -> columns.add(column.getName()));
+
+        QueryInfo queryInfo = server.getQueryManager().getQueryInfo(new QueryId(queryResults.getId()));
+        return new QueryResult(queryInfo, columns.build(), rows.build());
+    }
+
+    private static class QueryResult
+    {
+        private final QueryInfo queryInfo;
+        private final List<String> columns;
+        private final List<List<Object>> rows;
+
+        public QueryResult(QueryInfo queryInfo, List<String> columns, List<List<Object>> rows)
+        {
+            this.queryInfo = queryInfo;
+            this.columns = columns;
+            this.rows = rows;
+        }
+
+        public QueryInfo getQueryInfo()
+        {
+            return queryInfo;
+        }
+
+        public List<String> getColumns()
+        {
+            return columns;
+        }
+
+        public List<List<Object>> getRows()
+        {
+            return rows;
+        }
+    }
+}
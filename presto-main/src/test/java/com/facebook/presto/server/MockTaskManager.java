@@ -24,6 +24,7 @@ import com.facebook.presto.execution.TaskInfo;
 import com.facebook.presto.execution.TaskManager;
 import com.facebook.presto.execution.TaskState;
 import com.facebook.presto.execution.TaskStateMachine;
+import com.facebook.presto.memory.MemoryPoolAssignmentsRequest;
 import com.facebook.presto.operator.TaskContext;
 import com.facebook.presto.spi.Page;
 import com.facebook.presto.sql.planner.PlanFragment;
@@ -175,6 +176,12 @@ public class MockTaskManager
         return task.getTaskInfo();
     }
 
+    @Override
+    public void updateMemoryPoolAssignments(MemoryPoolAssignmentsRequest assignments)
+    {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public synchronized TaskInfo cancelTask(TaskId taskId)
     {
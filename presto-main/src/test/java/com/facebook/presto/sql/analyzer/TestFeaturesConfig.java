@@ -15,6 +15,7 @@ package com.facebook.presto.sql.analyzer;
 
 import com.google.common.collect.ImmutableMap;
 import io.airlift.configuration.testing.ConfigAssertions;
+import io.airlift.units.DataSize;
 import org.testng.annotations.Test;
 
 import java.util.Map;
@@ -22,6 +23,8 @@ import java.util.Map;
 import static io.airlift.configuration.testing.ConfigAssertions.assertDeprecatedEquivalence;
 import static io.airlift.configuration.testing.ConfigAssertions.assertFullMapping;
 import static io.airlift.configuration.testing.ConfigAssertions.assertRecordedDefaults;
+import static io.airlift.units.DataSize.Unit.GIGABYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
 
 public class TestFeaturesConfig
 {
@@ -33,7 +36,11 @@ public class TestFeaturesConfig
                 .setDistributedIndexJoinsEnabled(false)
                 .setDistributedJoinsEnabled(false)
                 .setOptimizeMetadataQueries(false)
-                .setOptimizeHashGeneration(false));
+                .setOptimizeHashGeneration(false)
+                .setReorderJoins(false)
+                .setAutomaticJoinDistribution(true)
+                .setBroadcastJoinMaxSize(new DataSize(100, MEGABYTE))
+                .setColocatedJoinsEnabled(false));
     }
 
     @Test
@@ -45,6 +52,10 @@ public class TestFeaturesConfig
                 .put("distributed-joins-enabled", "true")
                 .put("optimizer.optimize-metadata-queries", "true")
                 .put("optimizer.optimize-hash-generation", "true")
+                .put("optimizer.reorder-joins", "true")
+                .put("optimizer.automatic-join-distribution", "false")
+                .put("optimizer.broadcast-join-max-size", "1GB")
+                .put("optimizer.colocated-joins-enabled", "true")
                 .build();
         Map<String, String> properties = new ImmutableMap.Builder<String, String>()
                 .put("experimental-syntax-enabled", "true")
@@ -52,6 +63,10 @@ public class TestFeaturesConfig
                 .put("distributed-joins-enabled", "true")
                 .put("optimizer.optimize-metadata-queries", "true")
                 .put("optimizer.optimize-hash-generation", "true")
+                .put("optimizer.reorder-joins", "true")
+                .put("optimizer.automatic-join-distribution", "false")
+                .put("optimizer.broadcast-join-max-size", "1GB")
+                .put("optimizer.colocated-joins-enabled", "true")
                 .build();
 
         FeaturesConfig expected = new FeaturesConfig()
@@ -59,7 +74,11 @@ public class TestFeaturesConfig
                 .setDistributedIndexJoinsEnabled(true)
                 .setDistributedJoinsEnabled(true)
                 .setOptimizeMetadataQueries(true)
-                .setOptimizeHashGeneration(true);
+                .setOptimizeHashGeneration(true)
+                .setReorderJoins(true)
+                .setAutomaticJoinDistribution(false)
+                .setBroadcastJoinMaxSize(new DataSize(1, GIGABYTE))
+                .setColocatedJoinsEnabled(true);
 
         assertFullMapping(properties, expected);
         assertDeprecatedEquivalence(FeaturesConfig.class, properties, propertiesLegacy);
@@ -243,4 +243,21 @@ public class TestJoinCompiler
             }
         }
     }
+
+    @Test
+    public void testCacheStats()
+            throws Exception
+    {
+        List<Type> types = ImmutableList.<Type>of(BIGINT, DOUBLE, BOOLEAN, VARCHAR);
+        List<Integer> joinChannels = Ints.asList(2, 0);
+
+        JoinCompiler compiler = new JoinCompiler();
+        compiler.compilePagesHashStrategyFactory(types, joinChannels);
+        assertEquals(compiler.getHashStrategyCache().getMissCount(), 1);
+
+        // compiling the same strategy again reuses the generated class
+        compiler.compilePagesHashStrategyFactory(types, joinChannels);
+        assertEquals(compiler.getHashStrategyCache().getHitCount(), 1);
+        assertEquals(compiler.getHashStrategyCache().getSize(), 1);
+    }
 }
@@ -0,0 +1,363 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.gen;
+
+import com.facebook.presto.metadata.MetadataManager;
+import com.facebook.presto.operator.DictionaryCache;
+import com.facebook.presto.operator.PageProcessor;
+import com.facebook.presto.spi.Page;
+import com.facebook.presto.spi.PageBuilder;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.block.BlockBuilderStatus;
+import com.facebook.presto.spi.block.DictionaryBlock;
+import com.facebook.presto.spi.block.LazyFixedWidthBlock;
+import com.facebook.presto.spi.block.RunLengthEncodedBlock;
+import com.facebook.presto.spi.block.SelectiveLazyBlockLoader;
+import com.facebook.presto.sql.relational.RowExpression;
+import com.facebook.presto.sql.tree.LogicalBinaryExpression;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.facebook.presto.block.BlockAssertions.createLongsBlock;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.BooleanType.BOOLEAN;
+import static com.facebook.presto.sql.relational.Expressions.call;
+import static com.facebook.presto.sql.relational.Expressions.constant;
+import static com.facebook.presto.sql.relational.Expressions.field;
+import static com.facebook.presto.sql.relational.Signatures.arithmeticExpressionSignature;
+import static com.facebook.presto.sql.relational.Signatures.comparisonExpressionSignature;
+import static com.facebook.presto.sql.relational.Signatures.logicalExpressionSignature;
+import static com.facebook.presto.sql.tree.ArithmeticBinaryExpression.Type.ADD;
+import static com.facebook.presto.sql.tree.ArithmeticBinaryExpression.Type.DIVIDE;
+import static com.facebook.presto.sql.tree.ArithmeticBinaryExpression.Type.MULTIPLY;
+import static com.facebook.presto.sql.tree.ComparisonExpression.Type.GREATER_THAN;
+import static io.airlift.slice.SizeOf.SIZE_OF_LONG;
+import static java.util.Collections.nCopies;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class TestPageProcessorCompiler
+{
+    private static final ExpressionCompiler COMPILER = new ExpressionCompiler(new MetadataManager());
+
+    // field_0 > 15
+    private static final RowExpression FILTER = call(comparisonExpressionSignature(GREATER_THAN, BIGINT, BIGINT),
+            BOOLEAN,
+            field(0, BIGINT),
+            constant(15L, BIGINT));
+
+    // field_0 + 1
+    private static final RowExpression ADD_ONE = call(arithmeticExpressionSignature(ADD, BIGINT, BIGINT, BIGINT),
+            BIGINT,
+            field(0, BIGINT),
+            constant(1L, BIGINT));
+
+    // 100 / field_0
+    private static final RowExpression DIVIDE_BY_FIELD = call(arithmeticExpressionSignature(DIVIDE, BIGINT, BIGINT, BIGINT),
+            BIGINT,
+            constant(100L, BIGINT),
+            field(0, BIGINT));
+
+    @Test
+    public void testDictionaryBlock()
+    {
+        Block dictionary = createLongsBlock(10L, 20L, null, 30L);
+        Block block = new DictionaryBlock(6, dictionary, new int[] {0, 1, 2, 3, 1, 0});
+
+        Page output = process(FILTER, ADD_ONE, new Page(block));
+        assertValues(output.getBlock(0), 21L, 31L, 21L);
+    }
+
+    @Test
+    public void testRunLengthEncodedBlock()
+    {
+        Block block = new RunLengthEncodedBlock(createLongsBlock(20L), 5);
+
+        Page output = process(FILTER, ADD_ONE, new Page(block));
+        assertValues(output.getBlock(0), 21L, 21L, 21L, 21L, 21L);
+
+        output = process(FILTER, ADD_ONE, new Page(new RunLengthEncodedBlock(createLongsBlock(10L), 5)));
+        assertEquals(output.getPositionCount(), 0);
+    }
+
+    @Test
+    public void testDictionaryEntryNotReferenced()
+    {
+        // the zero in the dictionary is not referenced, so the division must not fail
+        Block dictionary = createLongsBlock(0L, 20L, 50L);
+        Block block = new DictionaryBlock(4, dictionary, new int[] {1, 2, 2, 1});
+
+        Page output = process(constant(true, BOOLEAN), DIVIDE_BY_FIELD, new Page(block));
+        assertValues(output.getBlock(0), 5L, 2L, 2L, 5L);
+    }
+
+    @Test
+    public void testDictionaryPage()
+    {
+        Block dictionary = createLongsBlock(10L, 20L, null, 30L);
+        Page input = new Page(new DictionaryBlock(6, dictionary, new int[] {0, 1, 2, 3, 1, 0}));
+
+        PageProcessor processor = COMPILER.compilePageProcessor(FILTER, ImmutableList.of(ADD_ONE, field(0, BIGINT)));
+        Page output = processor.processDictionaryPage(null, input, new DictionaryCache());
+
+        // the output refers to the projected dictionary instead of copying the values
+        assertEquals(output.getPositionCount(), 3);
+        DictionaryBlock projected = (DictionaryBlock) output.getBlock(0);
+        assertEquals(projected.getDictionary().getPositionCount(), dictionary.getPositionCount());
+        assertValues(projected, 21L, 31L, 21L);
+        DictionaryBlock passedThrough = (DictionaryBlock) output.getBlock(1);
+        assertSame(passedThrough.getDictionary(), dictionary);
+        assertValues(passedThrough, 20L, 30L, 20L);
+
+        // a page that is not dictionary encoded is processed row by row
+        assertNull(processor.processDictionaryPage(null, new Page(createLongsBlock(10L, 20L)), new DictionaryCache()));
+    }
+
+    @Test
+    public void testDictionaryEvaluatedOnce()
+    {
+        Block dictionary = createLongsBlock(10L, 20L, 30L);
+        PageProcessor processor = COMPILER.compilePageProcessor(constant(true, BOOLEAN), ImmutableList.of(ADD_ONE));
+        DictionaryCache dictionaryCache = new DictionaryCache();
+
+        Page first = processor.processDictionaryPage(null, new Page(new DictionaryBlock(4, dictionary, new int[] {0, 1, 2, 1})), dictionaryCache);
+        Page second = processor.processDictionaryPage(null, new Page(new DictionaryBlock(3, dictionary, new int[] {2, 2, 0})), dictionaryCache);
+
+        assertValues(first.getBlock(0), 11L, 21L, 31L, 21L);
+        assertValues(second.getBlock(0), 31L, 31L, 11L);
+        assertSame(((DictionaryBlock) second.getBlock(0)).getDictionary(), ((DictionaryBlock) first.getBlock(0)).getDictionary());
+    }
+
+    @Test
+    public void testCommonSubExpressions()
+    {
+        // field_0 + 1 > 15
+        RowExpression filter = call(comparisonExpressionSignature(GREATER_THAN, BIGINT, BIGINT), BOOLEAN, ADD_ONE, constant(15L, BIGINT));
+        // (field_0 + 1) * 2
+        RowExpression doubled = call(arithmeticExpressionSignature(MULTIPLY, BIGINT, BIGINT, BIGINT), BIGINT, ADD_ONE, constant(2L, BIGINT));
+
+        CommonSubExpressions commonSubExpressions = CommonSubExpressions.extract(filter, ImmutableList.of(ADD_ONE, doubled), new MetadataManager().getFunctionRegistry());
+        assertEquals(commonSubExpressions.getChannels(), ImmutableList.of(1));
+        assertEquals(commonSubExpressions.getExpression(1), ADD_ONE);
+        assertTrue(commonSubExpressions.isEvaluatedBeforeFilter(1));
+        assertEquals(commonSubExpressions.getProjections().get(0), field(1, BIGINT));
+
+        int positionCount = SelectionOperations.BATCH_SIZE + 100;
+        BlockBuilder blockBuilder = BIGINT.createBlockBuilder(new BlockBuilderStatus(), positionCount);
+        for (int i = 0; i < positionCount; i++) {
+            if (i % 7 == 0) {
+                blockBuilder.appendNull();
+            }
+            else {
+                BIGINT.writeLong(blockBuilder, i % 30);
+            }
+        }
+
+        Page output = process(filter, ImmutableList.of(ADD_ONE, doubled), new Page(blockBuilder.build()));
+
+        int outputPosition = 0;
+        for (int i = 0; i < positionCount; i++) {
+            if (i % 7 == 0 || i % 30 + 1 <= 15) {
+                continue;
+            }
+            assertEquals(BIGINT.getLong(output.getBlock(0), outputPosition), i % 30 + 1);
+            assertEquals(BIGINT.getLong(output.getBlock(1), outputPosition), (i % 30 + 1) * 2);
+            outputPosition++;
+        }
+        assertEquals(output.getPositionCount(), outputPosition);
+    }
+
+    @Test
+    public void testCommonSubExpressionOfFilteredRows()
+    {
+        // field_0 > 0
+        RowExpression filter = call(comparisonExpressionSignature(GREATER_THAN, BIGINT, BIGINT), BOOLEAN, field(0, BIGINT), constant(0L, BIGINT));
+        // the division is shared by the projections, and must not be computed for the rows removed by the filter
+        RowExpression plusOne = call(arithmeticExpressionSignature(ADD, BIGINT, BIGINT, BIGINT), BIGINT, DIVIDE_BY_FIELD, constant(1L, BIGINT));
+
+        Page output = process(filter, ImmutableList.of(DIVIDE_BY_FIELD, plusOne), new Page(createLongsBlock(0L, 10L, 0L, 50L, 0L)));
+        assertValues(output.getBlock(0), 10L, 2L);
+        assertValues(output.getBlock(1), 11L, 3L);
+    }
+
+    @Test
+    public void testLazyArgumentsNotShared()
+    {
+        // field_0 > 0 AND 100 / field_0 > 15
+        RowExpression filter = call(logicalExpressionSignature(LogicalBinaryExpression.Type.AND),
+                BOOLEAN,
+                call(comparisonExpressionSignature(GREATER_THAN, BIGINT, BIGINT), BOOLEAN, field(0, BIGINT), constant(0L, BIGINT)),
+                call(comparisonExpressionSignature(GREATER_THAN, BIGINT, BIGINT), BOOLEAN, DIVIDE_BY_FIELD, constant(15L, BIGINT)));
+
+        CommonSubExpressions commonSubExpressions = CommonSubExpressions.extract(filter, ImmutableList.of(DIVIDE_BY_FIELD), new MetadataManager().getFunctionRegistry());
+        assertTrue(commonSubExpressions.isEmpty());
+
+        Page output = process(filter, ImmutableList.of(DIVIDE_BY_FIELD), new Page(createLongsBlock(0L, 5L, 50L)));
+        assertValues(output.getBlock(0), 20L);
+    }
+
+    @Test
+    public void testArgumentAfterNullNotShared()
+    {
+        // field_1 / field_2 is not evaluated when the field it is added to is null
+        RowExpression divide = call(arithmeticExpressionSignature(DIVIDE, BIGINT, BIGINT, BIGINT), BIGINT, field(1, BIGINT), field(2, BIGINT));
+        RowExpression first = call(arithmeticExpressionSignature(ADD, BIGINT, BIGINT, BIGINT), BIGINT, field(0, BIGINT), divide);
+        RowExpression second = call(arithmeticExpressionSignature(ADD, BIGINT, BIGINT, BIGINT), BIGINT, field(3, BIGINT), divide);
+
+        CommonSubExpressions commonSubExpressions = CommonSubExpressions.extract(constant(true, BOOLEAN), ImmutableList.of(first, second), new MetadataManager().getFunctionRegistry());
+        assertTrue(commonSubExpressions.isEmpty());
+
+        Block nulls = createLongsBlock((Long) null);
+        Page output = process(constant(true, BOOLEAN), ImmutableList.of(first, second), new Page(nulls, createLongsBlock(1L), createLongsBlock(0L), nulls));
+        assertEquals(output.getPositionCount(), 1);
+        assertTrue(output.getBlock(0).isNull(0));
+        assertTrue(output.getBlock(1).isNull(0));
+    }
+
+    @Test
+    public void testSelectedPositionsAcrossBatches()
+    {
+        int positionCount = SelectionOperations.BATCH_SIZE * 2 + 100;
+        BlockBuilder blockBuilder = BIGINT.createBlockBuilder(new BlockBuilderStatus(), positionCount);
+        for (int i = 0; i < positionCount; i++) {
+            if (i % 7 == 0) {
+                blockBuilder.appendNull();
+            }
+            else {
+                BIGINT.writeLong(blockBuilder, i % 30);
+            }
+        }
+
+        Page output = process(FILTER, ImmutableList.of(field(0, BIGINT), ADD_ONE), new Page(blockBuilder.build()));
+
+        int outputPosition = 0;
+        for (int i = 0; i < positionCount; i++) {
+            if (i % 7 == 0 || i % 30 <= 15) {
+                continue;
+            }
+            assertEquals(BIGINT.getLong(output.getBlock(0), outputPosition), i % 30);
+            assertEquals(BIGINT.getLong(output.getBlock(1), outputPosition), i % 30 + 1);
+            outputPosition++;
+        }
+        assertEquals(output.getPositionCount(), outputPosition);
+    }
+
+    @Test
+    public void testLazyBlockLoadedAtSelectedPositions()
+    {
+        int positionCount = SelectionOperations.BATCH_SIZE + 20;
+        int[] values = new int[positionCount];
+        for (int i = 0; i < positionCount; i++) {
+            values[i] = i % 20;
+        }
+        Block filterBlock = createLongsBlock(values);
+
+        // only the rows that pass the filter on field_0 are loaded for field_1, once per batch
+        TestingSelectiveLoader loader = new TestingSelectiveLoader(positionCount);
+        Page output = process(FILTER, ImmutableList.of(field(1, BIGINT)), new Page(filterBlock, new LazyFixedWidthBlock(SIZE_OF_LONG, positionCount, loader)));
+
+        ImmutableList.Builder<Integer> expectedPositions = ImmutableList.builder();
+        for (int i = 0; i < positionCount; i++) {
+            if (values[i] > 15) {
+                expectedPositions.add(i);
+            }
+        }
+        assertEquals(loader.getLoadedPositions(), expectedPositions.build());
+        assertEquals(loader.getLoadCount(), 2);
+        assertEquals(output.getPositionCount(), expectedPositions.build().size());
+        for (int position = 0; position < output.getPositionCount(); position++) {
+            assertEquals(BIGINT.getLong(output.getBlock(0), position), expectedPositions.build().get(position) * 100L);
+        }
+
+        // the block is not loaded when no row passes the filter
+        loader = new TestingSelectiveLoader(3);
+        output = process(FILTER, ImmutableList.of(ADD_ONE, field(1, BIGINT)), new Page(createLongsBlock(1L, 2L, 3L), new LazyFixedWidthBlock(SIZE_OF_LONG, 3, loader)));
+        assertEquals(output.getPositionCount(), 0);
+        assertEquals(loader.getLoadCount(), 0);
+    }
+
+    private static Page process(RowExpression filter, RowExpression projection, Page input)
+    {
+        return process(filter, ImmutableList.of(projection), input);
+    }
+
+    private static Page process(RowExpression filter, List<RowExpression> projections, Page input)
+    {
+        PageProcessor processor = COMPILER.compilePageProcessor(filter, projections);
+        PageBuilder pageBuilder = new PageBuilder(nCopies(projections.size(), BIGINT));
+        int end = processor.process(null, input, 0, input.getPositionCount(), pageBuilder);
+        assertEquals(end, input.getPositionCount());
+        return pageBuilder.build();
+    }
+
+    private static void assertValues(Block block, Long... expectedValues)
+    {
+        assertEquals(block.getPositionCount(), expectedValues.length);
+        for (int position = 0; position < expectedValues.length; position++) {
+            assertTrue(!block.isNull(position));
+            assertEquals(BIGINT.getLong(block, position), (long) expectedValues[position]);
+        }
+    }
+
+    private static class TestingSelectiveLoader
+            implements SelectiveLazyBlockLoader<LazyFixedWidthBlock>
+    {
+        private final Slice slice;
+        private final boolean[] isNull;
+        private final List<Integer> loadedPositions = new ArrayList<>();
+        private int loadCount;
+
+        public TestingSelectiveLoader(int positionCount)
+        {
+            slice = Slices.allocate(positionCount * SIZE_OF_LONG);
+            isNull = new boolean[positionCount];
+        }
+
+        @Override
+        public void load(LazyFixedWidthBlock block)
+        {
+            throw new AssertionError("the whole block should not be loaded");
+        }
+
+        @Override
+        public void load(LazyFixedWidthBlock block, int[] positions, int positionCount)
+        {
+            loadCount++;
+            for (int i = 0; i < positionCount; i++) {
+                slice.setLong(positions[i] * SIZE_OF_LONG, positions[i] * 100L);
+                loadedPositions.add(positions[i]);
+            }
+            block.setRawSlice(slice);
+            block.setNullVector(isNull);
+        }
+
+        public List<Integer> getLoadedPositions()
+        {
+            return loadedPositions;
+        }
+
+        public int getLoadCount()
+        {
+            return loadCount;
+        }
+    }
+}
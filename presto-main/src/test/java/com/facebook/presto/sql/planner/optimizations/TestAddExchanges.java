@@ -0,0 +1,239 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.planner.optimizations;
+
+import com.facebook.presto.metadata.ColumnHandle;
+import com.facebook.presto.metadata.MetadataManager;
+import com.facebook.presto.metadata.TableHandle;
+import com.facebook.presto.spi.ConnectorTableHandle;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.sql.planner.PlanNodeIdAllocator;
+import com.facebook.presto.sql.planner.Symbol;
+import com.facebook.presto.sql.planner.SymbolAllocator;
+import com.facebook.presto.sql.planner.plan.AggregationNode;
+import com.facebook.presto.sql.planner.plan.ExchangeNode;
+import com.facebook.presto.sql.planner.plan.JoinNode;
+import com.facebook.presto.sql.planner.plan.PlanNode;
+import com.facebook.presto.sql.planner.plan.PlanNodeId;
+import com.facebook.presto.sql.planner.plan.TableScanNode;
+import com.facebook.presto.sql.planner.plan.ValuesNode;
+import com.facebook.presto.sql.tree.Expression;
+import com.facebook.presto.sql.tree.LongLiteral;
+import com.facebook.presto.tpch.TpchMetadata;
+import com.facebook.presto.tpch.TpchTableHandle;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.airlift.units.DataSize;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.facebook.presto.SessionTestUtils.TEST_SESSION;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static io.airlift.units.DataSize.Unit.KILOBYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestAddExchanges
+{
+    private static final Symbol PROBE_SYMBOL = new Symbol("probe");
+    private static final Symbol BUILD_SYMBOL = new Symbol("build");
+    private static final Map<Symbol, Type> TYPES = ImmutableMap.of(PROBE_SYMBOL, BIGINT, BUILD_SYMBOL, BIGINT);
+
+    @Test
+    public void testSmallBuildSideIsReplicated()
+    {
+        // 1000 rows of 8 bytes
+        AddExchanges addExchanges = new AddExchanges(new MetadataManager(), false, true, true, new DataSize(1, MEGABYTE), false);
+        assertEquals(getBuildExchangeType(addExchanges, JoinNode.Type.INNER), ExchangeNode.Type.REPLICATE);
+        assertEquals(getBuildExchangeType(addExchanges, JoinNode.Type.LEFT), ExchangeNode.Type.REPLICATE);
+    }
+
+    @Test
+    public void testLargeBuildSideIsPartitioned()
+    {
+        AddExchanges addExchanges = new AddExchanges(new MetadataManager(), false, false, true, new DataSize(1, KILOBYTE), false);
+        assertEquals(getBuildExchangeType(addExchanges, JoinNode.Type.INNER), ExchangeNode.Type.REPARTITION);
+    }
+
+    @Test
+    public void testAutomaticJoinDistributionDisabled()
+    {
+        AddExchanges replicated = new AddExchanges(new MetadataManager(), false, false, false, new DataSize(1, KILOBYTE), false);
+        assertEquals(getBuildExchangeType(replicated, JoinNode.Type.INNER), ExchangeNode.Type.REPLICATE);
+
+        AddExchanges partitioned = new AddExchanges(new MetadataManager(), false, true, false, new DataSize(1, MEGABYTE), false);
+        assertEquals(getBuildExchangeType(partitioned, JoinNode.Type.INNER), ExchangeNode.Type.REPARTITION);
+
+        AddExchanges sessionOverride = new AddExchanges(new MetadataManager(), false, false, true, new DataSize(1, KILOBYTE), false);
+        PlanNode plan = sessionOverride.optimize(
+                join(JoinNode.Type.INNER),
+                TEST_SESSION.withSystemProperty("automatic_join_distribution", "false"),
+                TYPES,
+                new SymbolAllocator(),
+                new PlanNodeIdAllocator());
+        assertEquals(getBuildExchangeType(plan), ExchangeNode.Type.REPLICATE);
+    }
+
+    @Test
+    public void testDistributedJoinSessionProperty()
+    {
+        // the build side is small enough to be broadcast, but the session asks for a distributed join
+        AddExchanges addExchanges = new AddExchanges(new MetadataManager(), false, false, true, new DataSize(1, MEGABYTE), false);
+        PlanNode plan = addExchanges.optimize(
+                join(JoinNode.Type.INNER),
+                TEST_SESSION.withSystemProperty("distributed_join", "true"),
+                TYPES,
+                new SymbolAllocator(),
+                new PlanNodeIdAllocator());
+        assertEquals(getBuildExchangeType(plan), ExchangeNode.Type.REPARTITION);
+
+        // automatic distribution enabled for the session uses the estimate
+        plan = addExchanges.optimize(
+                join(JoinNode.Type.INNER),
+                TEST_SESSION.withSystemProperty("distributed_join", "true").withSystemProperty("automatic_join_distribution", "true"),
+                TYPES,
+                new SymbolAllocator(),
+                new PlanNodeIdAllocator());
+        assertEquals(getBuildExchangeType(plan), ExchangeNode.Type.REPLICATE);
+    }
+
+    @Test
+    public void testColocatedJoin()
+    {
+        AddExchanges colocated = new AddExchanges(createTpchMetadata(), false, true, false, new DataSize(1, KILOBYTE), true);
+        PlanNode plan = optimize(colocated, colocatedJoin(JoinNode.Type.INNER));
+        assertTrue(plan instanceof JoinNode, "expected a join: " + plan);
+        assertTrue(((JoinNode) plan).getLeft() instanceof TableScanNode, "expected no probe exchange: " + plan);
+        assertTrue(((JoinNode) plan).getRight() instanceof TableScanNode, "expected no build exchange: " + plan);
+
+        plan = optimize(colocated, colocatedJoin(JoinNode.Type.LEFT));
+        assertTrue(((JoinNode) plan).getRight() instanceof TableScanNode, "expected no build exchange: " + plan);
+
+        AddExchanges disabled = new AddExchanges(createTpchMetadata(), false, true, false, new DataSize(1, KILOBYTE), false);
+        assertEquals(getBuildExchangeType(optimize(disabled, colocatedJoin(JoinNode.Type.INNER))), ExchangeNode.Type.REPARTITION);
+
+        PlanNode sessionDisabled = colocated.optimize(
+                colocatedJoin(JoinNode.Type.INNER),
+                TEST_SESSION.withSystemProperty("colocated_join", "false"),
+                TYPES,
+                new SymbolAllocator(),
+                new PlanNodeIdAllocator());
+        assertEquals(getBuildExchangeType(sessionDisabled), ExchangeNode.Type.REPARTITION);
+    }
+
+    @Test
+    public void testColocatedAggregation()
+    {
+        AddExchanges colocated = new AddExchanges(createTpchMetadata(), false, true, false, new DataSize(1, KILOBYTE), true);
+        PlanNode plan = optimize(colocated, aggregation(tpchScan("lineitem", PROBE_SYMBOL)));
+        assertTrue(plan instanceof AggregationNode, "expected an aggregation: " + plan);
+        assertEquals(((AggregationNode) plan).getStep(), AggregationNode.Step.SINGLE);
+        assertTrue(((AggregationNode) plan).getSource() instanceof TableScanNode, "expected no exchange: " + plan);
+
+        AddExchanges disabled = new AddExchanges(createTpchMetadata(), false, true, false, new DataSize(1, KILOBYTE), false);
+        plan = optimize(disabled, aggregation(tpchScan("lineitem", PROBE_SYMBOL)));
+        assertTrue(plan instanceof AggregationNode, "expected an aggregation: " + plan);
+        assertTrue(((AggregationNode) plan).getSource() instanceof ExchangeNode, "expected an exchange: " + plan);
+    }
+
+    private static PlanNode optimize(AddExchanges addExchanges, PlanNode plan)
+    {
+        return addExchanges.optimize(plan, TEST_SESSION, TYPES, new SymbolAllocator(), new PlanNodeIdAllocator());
+    }
+
+    private static ExchangeNode.Type getBuildExchangeType(AddExchanges addExchanges, JoinNode.Type joinType)
+    {
+        PlanNode plan = addExchanges.optimize(join(joinType), TEST_SESSION, TYPES, new SymbolAllocator(), new PlanNodeIdAllocator());
+        return getBuildExchangeType(plan);
+    }
+
+    private static ExchangeNode.Type getBuildExchangeType(PlanNode plan)
+    {
+        assertTrue(plan instanceof JoinNode, "expected a join: " + plan);
+        PlanNode build = ((JoinNode) plan).getRight();
+        assertTrue(build instanceof ExchangeNode, "expected an exchange: " + build);
+        return ((ExchangeNode) build).getType();
+    }
+
+    private static JoinNode join(JoinNode.Type joinType)
+    {
+        return new JoinNode(
+                new PlanNodeId("join"),
+                joinType,
+                values(PROBE_SYMBOL, 10_000),
+                values(BUILD_SYMBOL, 1000),
+                ImmutableList.of(new JoinNode.EquiJoinClause(PROBE_SYMBOL, BUILD_SYMBOL)),
+                Optional.empty(),
+                Optional.empty());
+    }
+
+    private static JoinNode colocatedJoin(JoinNode.Type joinType)
+    {
+        return new JoinNode(
+                new PlanNodeId("join"),
+                joinType,
+                tpchScan("lineitem", PROBE_SYMBOL),
+                tpchScan("orders", BUILD_SYMBOL),
+                ImmutableList.of(new JoinNode.EquiJoinClause(PROBE_SYMBOL, BUILD_SYMBOL)),
+                Optional.empty(),
+                Optional.empty());
+    }
+
+    private static AggregationNode aggregation(PlanNode source)
+    {
+        return new AggregationNode(
+                new PlanNodeId("aggregation"),
+                source,
+                ImmutableList.of(PROBE_SYMBOL),
+                ImmutableMap.of(),
+                ImmutableMap.of(),
+                ImmutableMap.of(),
+                Optional.empty(),
+                1.0,
+                Optional.empty());
+    }
+
+    private static TableScanNode tpchScan(String tableName, Symbol orderKey)
+    {
+        ConnectorTableHandle table = new TpchTableHandle("tpch", tableName, 0.01);
+        ColumnHandle column = new ColumnHandle("tpch", new TpchMetadata("tpch").getColumnHandles(table).get("orderkey"));
+        return new TableScanNode(
+                new PlanNodeId(tableName),
+                new TableHandle("tpch", table),
+                ImmutableList.of(orderKey),
+                ImmutableMap.of(orderKey, column),
+                null,
+                Optional.empty());
+    }
+
+    private static MetadataManager createTpchMetadata()
+    {
+        MetadataManager metadata = new MetadataManager();
+        metadata.addConnectorMetadata("tpch", "tpch", new TpchMetadata("tpch"));
+        return metadata;
+    }
+
+    private static ValuesNode values(Symbol symbol, int rowCount)
+    {
+        ImmutableList.Builder<List<Expression>> rows = ImmutableList.builder();
+        for (int i = 0; i < rowCount; i++) {
+            rows.add(ImmutableList.of(new LongLiteral(String.valueOf(i))));
+        }
+        return new ValuesNode(new PlanNodeId(symbol.getName()), ImmutableList.of(symbol), rows.build());
+    }
+}
@@ -51,6 +51,9 @@ statement
         (WHERE booleanExpression)?
         (ORDER BY sortItem (',' sortItem)*)?
         (LIMIT limit=INTEGER_VALUE)?                                   #showPartitions
+    | PREPARE identifier FROM statement                                #prepare
+    | DEALLOCATE PREPARE identifier                                    #deallocate
+    | EXECUTE identifier (USING expression (',' expression)*)?         #execute
     ;
 
 query
@@ -224,6 +227,7 @@ primaryExpression
     | SUBSTRING '(' valueExpression FROM valueExpression (FOR valueExpression)? ')'  #substring
     | EXTRACT '(' identifier FROM valueExpression ')'                                #extract
     | '(' expression ')'                                                             #parenthesizedExpression
+    | '?'                                                                            #parameter
     ;
 
 timeZoneSpecifier
@@ -324,6 +328,7 @@ nonReserved
     | SET | RESET
     | VIEW | REPLACE
     | IF | NULLIF | COALESCE
+    | PREPARE | DEALLOCATE | EXECUTE
     ;
 
 SELECT: 'SELECT';
@@ -451,6 +456,9 @@ MAP: 'MAP';
 SET: 'SET';
 RESET: 'RESET';
 SESSION: 'SESSION';
+PREPARE: 'PREPARE';
+DEALLOCATE: 'DEALLOCATE';
+EXECUTE: 'EXECUTE';
 
 IF: 'IF';
 NULLIF: 'NULLIF';
@@ -45,6 +45,7 @@ import com.facebook.presto.sql.tree.Node;
 import com.facebook.presto.sql.tree.NotExpression;
 import com.facebook.presto.sql.tree.NullIfExpression;
 import com.facebook.presto.sql.tree.NullLiteral;
+import com.facebook.presto.sql.tree.Parameter;
 import com.facebook.presto.sql.tree.QualifiedName;
 import com.facebook.presto.sql.tree.QualifiedNameReference;
 import com.facebook.presto.sql.tree.Row;
@@ -193,6 +194,12 @@ public final class ExpressionFormatter
             return "null";
         }
 
+        @Override
+        protected String visitParameter(Parameter node, Boolean unmangleNames)
+        {
+            return "?";
+        }
+
         @Override
         protected String visitIntervalLiteral(IntervalLiteral node, Boolean unmangleNames)
         {
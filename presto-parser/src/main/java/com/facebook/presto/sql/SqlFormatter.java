@@ -18,9 +18,11 @@ import com.facebook.presto.sql.tree.AllColumns;
 import com.facebook.presto.sql.tree.AstVisitor;
 import com.facebook.presto.sql.tree.CreateTable;
 import com.facebook.presto.sql.tree.CreateView;
+import com.facebook.presto.sql.tree.Deallocate;
 import com.facebook.presto.sql.tree.DropTable;
 import com.facebook.presto.sql.tree.DropView;
 import com.facebook.presto.sql.tree.Except;
+import com.facebook.presto.sql.tree.Execute;
 import com.facebook.presto.sql.tree.Explain;
 import com.facebook.presto.sql.tree.ExplainFormat;
 import com.facebook.presto.sql.tree.ExplainOption;
@@ -34,6 +36,7 @@ import com.facebook.presto.sql.tree.JoinOn;
 import com.facebook.presto.sql.tree.JoinUsing;
 import com.facebook.presto.sql.tree.NaturalJoin;
 import com.facebook.presto.sql.tree.Node;
+import com.facebook.presto.sql.tree.Prepare;
 import com.facebook.presto.sql.tree.Query;
 import com.facebook.presto.sql.tree.QuerySpecification;
 import com.facebook.presto.sql.tree.Relation;
@@ -634,6 +637,41 @@ public final class SqlFormatter
             return null;
         }
 
+        @Override
+        protected Void visitPrepare(Prepare node, Integer indent)
+        {
+            builder.append("PREPARE ")
+                    .append(node.getName())
+                    .append(" FROM ");
+
+            process(node.getStatement(), indent);
+
+            return null;
+        }
+
+        @Override
+        protected Void visitExecute(Execute node, Integer context)
+        {
+            builder.append("EXECUTE ")
+                    .append(node.getName());
+
+            if (!node.getParameters().isEmpty()) {
+                builder.append(" USING ")
+                        .append(Joiner.on(", ").join(transform(node.getParameters(), ExpressionFormatter::formatExpression)));
+            }
+
+            return null;
+        }
+
+        @Override
+        protected Void visitDeallocate(Deallocate node, Integer context)
+        {
+            builder.append("DEALLOCATE PREPARE ")
+                    .append(node.getName());
+
+            return null;
+        }
+
         private void processRelation(Relation relation, Integer indent)
         {
             // TODO: handle this properly
@@ -27,10 +27,12 @@ import com.facebook.presto.sql.tree.ComparisonExpression;
 import com.facebook.presto.sql.tree.CreateTable;
 import com.facebook.presto.sql.tree.CreateView;
 import com.facebook.presto.sql.tree.CurrentTime;
+import com.facebook.presto.sql.tree.Deallocate;
 import com.facebook.presto.sql.tree.DoubleLiteral;
 import com.facebook.presto.sql.tree.DropTable;
 import com.facebook.presto.sql.tree.DropView;
 import com.facebook.presto.sql.tree.Except;
+import com.facebook.presto.sql.tree.Execute;
 import com.facebook.presto.sql.tree.ExistsPredicate;
 import com.facebook.presto.sql.tree.Explain;
 import com.facebook.presto.sql.tree.ExplainFormat;
@@ -61,6 +63,8 @@ import com.facebook.presto.sql.tree.Node;
 import com.facebook.presto.sql.tree.NotExpression;
 import com.facebook.presto.sql.tree.NullIfExpression;
 import com.facebook.presto.sql.tree.NullLiteral;
+import com.facebook.presto.sql.tree.Parameter;
+import com.facebook.presto.sql.tree.Prepare;
 import com.facebook.presto.sql.tree.QualifiedName;
 import com.facebook.presto.sql.tree.QualifiedNameReference;
 import com.facebook.presto.sql.tree.Query;
@@ -119,6 +123,17 @@ import static com.facebook.presto.sql.QueryUtil.mangleFieldReference;
 class AstBuilder
         extends SqlBaseBaseVisitor<Node>
 {
+    // indexes of the parameter tokens, in the order they appear in the statement
+    private final List<Integer> parameterTokens;
+
+    AstBuilder(List<Token> tokens)
+    {
+        this.parameterTokens = tokens.stream()
+                .filter(ParameterBinder::isParameter)
+                .map(Token::getTokenIndex)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public Node visitSingleStatement(@NotNull SqlBaseParser.SingleStatementContext context)
     {
@@ -422,6 +437,24 @@ class AstBuilder
         return new ResetSession(getQualifiedName(context.qualifiedName()));
     }
 
+    @Override
+    public Node visitPrepare(@NotNull SqlBaseParser.PrepareContext context)
+    {
+        return new Prepare(context.identifier().getText(), (Statement) visit(context.statement()));
+    }
+
+    @Override
+    public Node visitExecute(@NotNull SqlBaseParser.ExecuteContext context)
+    {
+        return new Execute(context.identifier().getText(), visit(context.expression(), Expression.class));
+    }
+
+    @Override
+    public Node visitDeallocate(@NotNull SqlBaseParser.DeallocateContext context)
+    {
+        return new Deallocate(context.identifier().getText());
+    }
+
     // ***************** boolean expressions ******************
 
     @Override
@@ -916,6 +949,14 @@ class AstBuilder
         return new NullLiteral();
     }
 
+    @Override
+    public Node visitParameter(@NotNull SqlBaseParser.ParameterContext context)
+    {
+        int position = parameterTokens.indexOf(context.getStart().getTokenIndex());
+        check(position >= 0, "parameter token not found", context);
+        return new Parameter(position);
+    }
+
     @Override
     public Node visitStringLiteral(@NotNull SqlBaseParser.StringLiteralContext context)
     {
@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.parser;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+
+import java.util.Iterator;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Binds the {@code ?} parameters of a prepared statement by substituting them in the
+ * statement text.  Parameters are found with the lexer, so question marks inside string
+ * literals, quoted identifiers and comments are left alone.
+ */
+public final class ParameterBinder
+{
+    private static final String PARAMETER = "?";
+
+    private ParameterBinder() {}
+
+    public static int countParameters(String sql)
+    {
+        TokenSource tokens = getLexer(sql);
+        int parameters = 0;
+        while (true) {
+            Token token = tokens.nextToken();
+            if (token.getType() == Token.EOF) {
+                return parameters;
+            }
+            if (isParameter(token)) {
+                parameters++;
+            }
+        }
+    }
+
+    /**
+     * Replaces the parameters of the statement, in order, with the given SQL expressions.
+     * Each value is parenthesized so it binds as a single expression.
+     */
+    public static String bindParameters(String sql, List<String> values)
+    {
+        checkNotNull(values, "values is null");
+        int parameters = countParameters(sql);
+        checkArgument(parameters == values.size(), "Statement has %s parameters, but %s values were provided", parameters, values.size());
+
+        TokenSource tokens = getLexer(sql);
+        Iterator<String> iterator = values.iterator();
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            Token token = tokens.nextToken();
+            if (token.getType() == Token.EOF) {
+                return sb.toString();
+            }
+            if (isParameter(token)) {
+                sb.append('(').append(iterator.next()).append(')');
+            }
+            else {
+                sb.append(token.getText());
+            }
+        }
+    }
+
+    static boolean isParameter(Token token)
+    {
+        return token.getChannel() != Token.HIDDEN_CHANNEL && token.getText().equals(PARAMETER);
+    }
+
+    private static TokenSource getLexer(String sql)
+    {
+        checkNotNull(sql, "sql is null");
+        return new SqlBaseLexer(new CaseInsensitiveStream(new ANTLRInputStream(sql)));
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.sql.parser;
+
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import static com.facebook.presto.sql.parser.ParameterBinder.bindParameters;
+import static com.facebook.presto.sql.parser.ParameterBinder.countParameters;
+import static org.testng.Assert.assertEquals;
+
+public class TestParameterBinder
+{
+    @Test
+    public void testCountParameters()
+    {
+        assertEquals(countParameters("SELECT * FROM t"), 0);
+        assertEquals(countParameters("SELECT * FROM t WHERE x = ? AND y IN (?, ?)"), 3);
+    }
+
+    @Test
+    public void testIgnoresQuestionMarksOutsideParameters()
+    {
+        assertEquals(countParameters("SELECT 'a?', \"b?\" FROM t -- c?\n WHERE x = ? /* d? */"), 1);
+    }
+
+    @Test
+    public void testBindParameters()
+    {
+        assertEquals(
+                bindParameters("SELECT * FROM t WHERE x = ? AND y = '?' AND z IN (?)", ImmutableList.of("1 + 2", "'abc'")),
+                "SELECT * FROM t WHERE x = (1 + 2) AND y = '?' AND z IN (('abc'))");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "Statement has 2 parameters, but 1 values were provided")
+    public void testBindWrongNumberOfParameters()
+    {
+        bindParameters("SELECT ?, ?", ImmutableList.of("1"));
+    }
+}
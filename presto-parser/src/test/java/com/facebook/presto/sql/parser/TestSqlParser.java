@@ -23,9 +23,11 @@ import com.facebook.presto.sql.tree.ComparisonExpression;
 import com.facebook.presto.sql.tree.CreateTable;
 import com.facebook.presto.sql.tree.CreateView;
 import com.facebook.presto.sql.tree.CurrentTime;
+import com.facebook.presto.sql.tree.Deallocate;
 import com.facebook.presto.sql.tree.DoubleLiteral;
 import com.facebook.presto.sql.tree.DropTable;
 import com.facebook.presto.sql.tree.DropView;
+import com.facebook.presto.sql.tree.Execute;
 import com.facebook.presto.sql.tree.Explain;
 import com.facebook.presto.sql.tree.ExplainFormat;
 import com.facebook.presto.sql.tree.ExplainType;
@@ -43,6 +45,8 @@ import com.facebook.presto.sql.tree.LongLiteral;
 import com.facebook.presto.sql.tree.Node;
 import com.facebook.presto.sql.tree.NotExpression;
 import com.facebook.presto.sql.tree.NullLiteral;
+import com.facebook.presto.sql.tree.Parameter;
+import com.facebook.presto.sql.tree.Prepare;
 import com.facebook.presto.sql.tree.QualifiedName;
 import com.facebook.presto.sql.tree.QualifiedNameReference;
 import com.facebook.presto.sql.tree.Query;
@@ -592,6 +596,39 @@ public class TestSqlParser
         assertStatement("RESET SESSION foo", new ResetSession(QualifiedName.of("foo")));
     }
 
+    @Test
+    public void testPrepare()
+            throws Exception
+    {
+        assertStatement("PREPARE myquery FROM SELECT * FROM t WHERE x = ?",
+                new Prepare("myquery",
+                        simpleQuery(selectList(new AllColumns()),
+                                table(QualifiedName.of("t")),
+                                new ComparisonExpression(ComparisonExpression.Type.EQUAL, new QualifiedNameReference(QualifiedName.of("x")), new Parameter(0)))));
+
+        // parameters are numbered in the order they appear in the text
+        assertStatement("PREPARE myquery FROM SELECT ? FROM t WHERE x = ?",
+                new Prepare("myquery",
+                        simpleQuery(selectList(new Parameter(0)),
+                                table(QualifiedName.of("t")),
+                                new ComparisonExpression(ComparisonExpression.Type.EQUAL, new QualifiedNameReference(QualifiedName.of("x")), new Parameter(1)))));
+    }
+
+    @Test
+    public void testExecute()
+            throws Exception
+    {
+        assertStatement("EXECUTE myquery", new Execute("myquery", ImmutableList.of()));
+        assertStatement("EXECUTE myquery USING 1, 'abc'", new Execute("myquery", ImmutableList.of(new LongLiteral("1"), new StringLiteral("abc"))));
+    }
+
+    @Test
+    public void testDeallocatePrepare()
+            throws Exception
+    {
+        assertStatement("DEALLOCATE PREPARE myquery", new Deallocate("myquery"));
+    }
+
     @Test
     public void testShowSession()
             throws Exception
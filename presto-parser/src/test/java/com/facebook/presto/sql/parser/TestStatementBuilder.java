@@ -157,6 +157,11 @@ public class TestStatementBuilder
         printStatement("create or replace view foo as select 123 from t");
 
         printStatement("drop view foo");
+
+        printStatement("prepare q from select * from foo where x = ? and y in (?, 'a?')");
+        printStatement("execute q");
+        printStatement("execute q using 1, 'abc', date '2015-01-01'");
+        printStatement("deallocate prepare q");
     }
 
     @Test
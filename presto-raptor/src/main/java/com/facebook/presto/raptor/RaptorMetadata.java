@@ -14,6 +14,7 @@
 package com.facebook.presto.raptor;
 
 import com.facebook.presto.raptor.metadata.ColumnInfo;
+import com.facebook.presto.raptor.metadata.ColumnStats;
 import com.facebook.presto.raptor.metadata.ForMetadata;
 import com.facebook.presto.raptor.metadata.MetadataDao;
 import com.facebook.presto.raptor.metadata.MetadataDaoUtils;
@@ -23,16 +24,19 @@ import com.facebook.presto.raptor.metadata.Table;
 import com.facebook.presto.raptor.metadata.TableColumn;
 import com.facebook.presto.raptor.metadata.ViewResult;
 import com.facebook.presto.spi.ColumnMetadata;
+import com.facebook.presto.spi.ColumnStatistics;
 import com.facebook.presto.spi.ConnectorColumnHandle;
 import com.facebook.presto.spi.ConnectorInsertTableHandle;
 import com.facebook.presto.spi.ConnectorMetadata;
 import com.facebook.presto.spi.ConnectorOutputTableHandle;
+import com.facebook.presto.spi.ConnectorPartition;
 import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.ConnectorTableHandle;
 import com.facebook.presto.spi.ConnectorTableMetadata;
 import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.SchemaTableName;
 import com.facebook.presto.spi.SchemaTablePrefix;
+import com.facebook.presto.spi.TableStatistics;
 import com.facebook.presto.spi.ViewNotFoundException;
 import com.facebook.presto.spi.type.StandardTypes;
 import com.facebook.presto.spi.type.Type;
@@ -40,6 +44,9 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Multimaps;
+import com.google.common.collect.Ordering;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import io.airlift.json.JsonCodec;
 import io.airlift.slice.Slice;
 import org.skife.jdbi.v2.IDBI;
@@ -52,6 +59,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 import java.util.function.Predicate;
 
 import static com.facebook.presto.raptor.RaptorColumnHandle.SAMPLE_WEIGHT_COLUMN_NAME;
@@ -68,6 +76,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static java.lang.String.format;
 import static java.util.Collections.nCopies;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
 
 public class RaptorMetadata
         implements ConnectorMetadata
@@ -171,6 +180,41 @@ public class RaptorMetadata
         return builder.build();
     }
 
+    @Override
+    public TableStatistics getTableStatistics(ConnectorSession session, ConnectorTableHandle tableHandle, List<ConnectorPartition> partitions)
+    {
+        long tableId = checkType(tableHandle, RaptorTableHandle.class, "tableHandle").getTableId();
+
+        Map<Long, RaptorColumnHandle> columnHandles = dao.listTableColumns(tableId).stream()
+                .map(this::getRaptorColumnHandle)
+                .collect(toMap(RaptorColumnHandle::getColumnId, handle -> handle));
+        List<ColumnInfo> columns = columnHandles.values().stream()
+                .map(ColumnInfo::fromHandle)
+                .collect(toList());
+
+        // the shard index only tracks the range of each column
+        ImmutableMap.Builder<ConnectorColumnHandle, ColumnStatistics> columnStatistics = ImmutableMap.builder();
+        for (ColumnStats stats : shardManager.getColumnRanges(tableId, columns)) {
+            Comparable<?> min = (Comparable<?>) stats.getMin();
+            Comparable<?> max = (Comparable<?>) stats.getMax();
+            columnStatistics.put(columnHandles.get(stats.getColumnId()), new ColumnStatistics(Double.NaN, Double.NaN, min, max));
+        }
+        return new TableStatistics(shardManager.getTableRowCount(tableId), columnStatistics.build());
+    }
+
+    @Override
+    public String getTableDataVersion(ConnectorSession session, ConnectorTableHandle tableHandle, List<ConnectorPartition> partitions)
+    {
+        long tableId = checkType(tableHandle, RaptorTableHandle.class, "tableHandle").getTableId();
+
+        // shards are never modified, so the data only changes when the set of shards does
+        Hasher version = Hashing.sha256().newHasher().putLong(tableId);
+        for (UUID shardUuid : Ordering.natural().sortedCopy(shardManager.getTableShards(tableId))) {
+            version.putLong(shardUuid.getMostSignificantBits()).putLong(shardUuid.getLeastSignificantBits());
+        }
+        return version.hash().toString();
+    }
+
     @Override
     public ConnectorColumnHandle getSampleWeightColumnHandle(ConnectorTableHandle tableHandle)
     {
@@ -70,6 +70,13 @@ public class RaptorSplit
         return effectivePredicate;
     }
 
+    @Override
+    public String getDataIdentifier()
+    {
+        // shards are immutable: changes to a table replace them with new shards
+        return shardUuid.toString();
+    }
+
     @Override
     public Object getInfo()
     {
@@ -22,6 +22,7 @@ import com.google.common.base.Throwables;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.ExecutionError;
@@ -35,6 +36,8 @@ import org.skife.jdbi.v2.util.ByteArrayMapper;
 import javax.inject.Inject;
 
 import java.sql.JDBCType;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -54,6 +57,7 @@ import static com.facebook.presto.raptor.util.UuidUtil.uuidToBytes;
 import static com.facebook.presto.spi.StandardErrorCode.INTERNAL_ERROR;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.lang.String.format;
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 
 public class DatabaseShardManager
@@ -157,6 +161,12 @@ public class DatabaseShardManager
         return new ShardIterator(tableId, effectivePredicate, dbi);
     }
 
+    @Override
+    public List<UUID> getTableShards(long tableId)
+    {
+        return dao.getShards(tableId);
+    }
+
     @Override
     public Set<UUID> getNodeShards(String nodeIdentifier)
     {
@@ -201,6 +211,67 @@ public class DatabaseShardManager
         }));
     }
 
+    @Override
+    public long getTableRowCount(long tableId)
+    {
+        return dao.getTableRowCount(tableId);
+    }
+
+    @Override
+    public List<ColumnStats> getColumnRanges(long tableId, List<ColumnInfo> columns)
+    {
+        // varchar values are truncated in the index, so their ranges are not usable
+        List<ColumnInfo> indexedColumns = columns.stream()
+                .filter(column -> jdbcType(column.getType()) != null && jdbcType(column.getType()) != JDBCType.VARBINARY)
+                .collect(toList());
+        if (indexedColumns.isEmpty()) {
+            return ImmutableList.of();
+        }
+
+        StringJoiner ranges = new StringJoiner(", ");
+        for (ColumnInfo column : indexedColumns) {
+            ranges.add(format("MIN(%s), MAX(%s)", minColumn(column.getColumnId()), maxColumn(column.getColumnId())));
+        }
+        String sql = "SELECT " + ranges + " FROM " + shardIndexTable(tableId);
+
+        try (Handle handle = dbi.open()) {
+            return handle.createQuery(sql)
+                    .map((index, resultSet, context) -> {
+                        ImmutableList.Builder<ColumnStats> stats = ImmutableList.builder();
+                        for (int i = 0; i < indexedColumns.size(); i++) {
+                            ColumnInfo column = indexedColumns.get(i);
+                            Object min = getIndexValue(resultSet, (i * 2) + 1, column);
+                            Object max = getIndexValue(resultSet, (i * 2) + 2, column);
+                            stats.add(new ColumnStats(column.getColumnId(), min, max));
+                        }
+                        return stats.build();
+                    })
+                    .first();
+        }
+    }
+
+    private static Object getIndexValue(ResultSet resultSet, int index, ColumnInfo column)
+            throws SQLException
+    {
+        Object value;
+        switch (jdbcType(column.getType())) {
+            case BOOLEAN:
+                value = resultSet.getBoolean(index);
+                break;
+            case BIGINT:
+            case INTEGER:
+                // dates are stored as integers, but use a long as their native value
+                value = resultSet.getLong(index);
+                break;
+            case DOUBLE:
+                value = resultSet.getDouble(index);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported index type: " + column.getType());
+        }
+        return resultSet.wasNull() ? null : value;
+    }
+
     private int getOrCreateNodeId(String nodeIdentifier)
     {
         try {
@@ -40,6 +40,11 @@ public interface ShardManager
      */
     CloseableIterator<ShardNodes> getShardNodes(long tableId, TupleDomain<RaptorColumnHandle> effectivePredicate);
 
+    /**
+     * Return the shards of a given table.
+     */
+    List<UUID> getTableShards(long tableId);
+
     /**
      * Return the shards for a given node
      */
@@ -54,4 +59,14 @@ public interface ShardManager
      * Assign a shard to a node.
      */
     void assignShard(long tableId, UUID shardUuid, String nodeIdentifier);
+
+    /**
+     * Return the number of rows in a table.
+     */
+    long getTableRowCount(long tableId);
+
+    /**
+     * Return the minimum and maximum values of the indexed columns of a table.
+     */
+    List<ColumnStats> getColumnRanges(long tableId, List<ColumnInfo> columns);
 }
@@ -124,6 +124,9 @@ public interface ShardManagerDao
             "  WHERE table_id = :tableId)")
     void dropShardNodes(@Bind("tableId") long tableId);
 
+    @SqlQuery("SELECT COALESCE(SUM(row_count), 0) FROM shards WHERE table_id = :tableId")
+    long getTableRowCount(@Bind("tableId") long tableId);
+
     @SqlUpdate("DELETE FROM shards WHERE table_id = :tableId")
     void dropShards(@Bind("tableId") long tableId);
 
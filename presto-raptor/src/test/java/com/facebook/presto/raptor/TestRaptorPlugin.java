@@ -15,6 +15,7 @@ package com.facebook.presto.raptor;
 
 import com.facebook.presto.PagesIndexPageSorter;
 import com.facebook.presto.metadata.InMemoryNodeManager;
+import com.facebook.presto.operator.PagesIndex;
 import com.facebook.presto.spi.ConnectorFactory;
 import com.facebook.presto.spi.Plugin;
 import com.facebook.presto.type.TypeRegistry;
@@ -43,7 +44,7 @@ public class TestRaptorPlugin
         plugin.setNodeManager(new InMemoryNodeManager());
         plugin.setBlockEncodingSerde(createTestingBlockEncodingManager());
         plugin.setTypeManager(new TypeRegistry());
-        plugin.setPageSorter(new PagesIndexPageSorter());
+        plugin.setPageSorter(new PagesIndexPageSorter(new PagesIndex.TestingFactory()));
 
         List<ConnectorFactory> factories = plugin.getServices(ConnectorFactory.class);
         ConnectorFactory factory = getOnlyElement(factories);
@@ -0,0 +1,109 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.spi;
+
+import java.util.Objects;
+
+/**
+ * Statistics of a column. Estimates that are not known are NaN, and the minimum and
+ * maximum values, which are native values of the column type, are null when not known.
+ */
+public final class ColumnStatistics
+{
+    private static final ColumnStatistics UNKNOWN = new ColumnStatistics(Double.NaN, Double.NaN, null, null);
+
+    private final double distinctValuesCount;
+    private final double nullsFraction;
+    private final Comparable<?> min;
+    private final Comparable<?> max;
+
+    public ColumnStatistics(double distinctValuesCount, double nullsFraction, Comparable<?> min, Comparable<?> max)
+    {
+        if (distinctValuesCount < 0) {
+            throw new IllegalArgumentException("distinctValuesCount is negative");
+        }
+        if (nullsFraction < 0 || nullsFraction > 1) {
+            throw new IllegalArgumentException("nullsFraction must be between 0 and 1");
+        }
+        this.distinctValuesCount = distinctValuesCount;
+        this.nullsFraction = nullsFraction;
+        this.min = min;
+        this.max = max;
+    }
+
+    public static ColumnStatistics unknown()
+    {
+        return UNKNOWN;
+    }
+
+    /**
+     * Number of distinct non-null values, or NaN when not known.
+     */
+    public double getDistinctValuesCount()
+    {
+        return distinctValuesCount;
+    }
+
+    /**
+     * Fraction of the rows that are null, or NaN when not known.
+     */
+    public double getNullsFraction()
+    {
+        return nullsFraction;
+    }
+
+    public Comparable<?> getMin()
+    {
+        return min;
+    }
+
+    public Comparable<?> getMax()
+    {
+        return max;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(distinctValuesCount, nullsFraction, min, max);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        ColumnStatistics other = (ColumnStatistics) obj;
+        return Objects.equals(this.distinctValuesCount, other.distinctValuesCount) &&
+                Objects.equals(this.nullsFraction, other.nullsFraction) &&
+                Objects.equals(this.min, other.min) &&
+                Objects.equals(this.max, other.max);
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder("ColumnStatistics{");
+        sb.append("distinctValuesCount=").append(distinctValuesCount);
+        sb.append(", nullsFraction=").append(nullsFraction);
+        sb.append(", min=").append(min);
+        sb.append(", max=").append(max);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -16,6 +16,7 @@ package com.facebook.presto.spi;
 import io.airlift.slice.Slice;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -130,4 +131,42 @@ public interface ConnectorMetadata
      * Gets the view data for views that match the specified table prefix.
      */
     Map<SchemaTableName, String> getViews(ConnectorSession session, SchemaTablePrefix prefix);
+
+    /**
+     * Gets the statistics of the rows of the specified partitions of a table, which are used
+     * to estimate the cost of a query plan. The statistics are unknown by default.
+     */
+    default TableStatistics getTableStatistics(ConnectorSession session, ConnectorTableHandle tableHandle, List<ConnectorPartition> partitions)
+    {
+        return TableStatistics.unknown();
+    }
+
+    /**
+     * Gets the columns that the rows of each split of a table are grouped on. For every leading
+     * subset of these columns, the rows with equal values are adjacent and in the same split, as
+     * they are when the splits are sorted on the columns and do not divide the groups. The rows
+     * are not known to be grouped by default.
+     */
+    default List<ConnectorColumnHandle> getGroupingColumns(ConnectorSession session, ConnectorTableHandle tableHandle)
+    {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Gets the layout of the rows of a table in buckets, or null if the table is not bucketed.
+     */
+    default ConnectorTableBucketing getTableBucketing(ConnectorSession session, ConnectorTableHandle tableHandle)
+    {
+        return null;
+    }
+
+    /**
+     * Gets an opaque version of the data of the specified partitions of a table, which changes whenever
+     * the data of these partitions or the set of partitions of the table changes, or null if the connector
+     * cannot tell. Query results are only cached for tables with a version.
+     */
+    default String getTableDataVersion(ConnectorSession session, ConnectorTableHandle tableHandle, List<ConnectorPartition> partitions)
+    {
+        return null;
+    }
 }
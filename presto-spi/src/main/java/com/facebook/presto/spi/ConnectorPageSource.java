@@ -45,6 +45,14 @@ public interface ConnectorPageSource
 
     /**
      * Gets the next page of data.  This method is allowed to return null.
+     *
+     * The blocks of the page may be lazy, so that columns are only decoded
+     * when they are read.  Presto evaluates filters before it reads the other
+     * columns, and loads those through {@link com.facebook.presto.spi.block.Block#assureLoaded(int[], int)}
+     * with the positions that pass the filter.  Lazy blocks with a
+     * {@link com.facebook.presto.spi.block.SelectiveLazyBlockLoader} then only
+     * decode the rows that are used.  The blocks of a page must stay loadable
+     * until the next call to this method.
      */
     Page getNextPage();
 
@@ -18,4 +18,14 @@ import java.util.List;
 public interface ConnectorPageSourceProvider
 {
     ConnectorPageSource createPageSource(ConnectorSplit split, List<ConnectorColumnHandle> columns);
+
+    /**
+     * Creates a page source that only needs to return rows matching the dynamic filter.
+     * The filter is derived at runtime, for example from the build side of a join, so rows
+     * outside of it may still be returned and are removed by the engine.
+     */
+    default ConnectorPageSource createPageSource(ConnectorSplit split, List<ConnectorColumnHandle> columns, TupleDomain<ConnectorColumnHandle> dynamicFilter)
+    {
+        return createPageSource(split, columns);
+    }
 }
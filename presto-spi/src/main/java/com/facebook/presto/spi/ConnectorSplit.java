@@ -22,4 +22,23 @@ public interface ConnectorSplit
     List<HostAddress> getAddresses();
 
     Object getInfo();
+
+    /**
+     * Gets the number of the bucket of a bucketed table that the split reads (see
+     * {@link ConnectorMetadata#getTableBucketing}), or -1 if the bucket is not known.
+     */
+    default int getBucket()
+    {
+        return -1;
+    }
+
+    /**
+     * Gets an identifier of the data the split reads, which changes whenever that data
+     * changes, or null if there is none. Results computed from splits with the same
+     * identifier may be reused.
+     */
+    default String getDataIdentifier()
+    {
+        return null;
+    }
 }
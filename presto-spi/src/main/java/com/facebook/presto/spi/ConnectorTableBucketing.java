@@ -0,0 +1,83 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.spi;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Layout of the rows of a table in buckets. The rows are assigned to buckets by hashing the
+ * values of the bucket columns with the bucket function, and every split of the table reads
+ * the rows of a single bucket (see {@link ConnectorSplit#getBucket}). Tables of a connector
+ * with equal bucket functions place rows with equal bucket column values in buckets with
+ * equal numbers.
+ */
+public final class ConnectorTableBucketing
+{
+    private final String bucketFunction;
+    private final List<ConnectorColumnHandle> bucketColumns;
+
+    public ConnectorTableBucketing(String bucketFunction, List<ConnectorColumnHandle> bucketColumns)
+    {
+        this.bucketFunction = requireNonNull(bucketFunction, "bucketFunction is null");
+        this.bucketColumns = Collections.unmodifiableList(new ArrayList<>(requireNonNull(bucketColumns, "bucketColumns is null")));
+        if (bucketColumns.isEmpty()) {
+            throw new IllegalArgumentException("bucketColumns is empty");
+        }
+    }
+
+    public String getBucketFunction()
+    {
+        return bucketFunction;
+    }
+
+    public List<ConnectorColumnHandle> getBucketColumns()
+    {
+        return bucketColumns;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(bucketFunction, bucketColumns);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        ConnectorTableBucketing other = (ConnectorTableBucketing) obj;
+        return Objects.equals(this.bucketFunction, other.bucketFunction) &&
+                Objects.equals(this.bucketColumns, other.bucketColumns);
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder("ConnectorTableBucketing{");
+        sb.append("bucketFunction=").append(bucketFunction);
+        sb.append(", bucketColumns=").append(bucketColumns);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.spi;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Statistics of the rows of a table in a set of partitions. The row count is NaN when
+ * not known, and columns without statistics are not included.
+ */
+public final class TableStatistics
+{
+    private static final TableStatistics UNKNOWN = new TableStatistics(Double.NaN, Collections.<ConnectorColumnHandle, ColumnStatistics>emptyMap());
+
+    private final double rowCount;
+    private final Map<ConnectorColumnHandle, ColumnStatistics> columnStatistics;
+
+    public TableStatistics(double rowCount, Map<ConnectorColumnHandle, ColumnStatistics> columnStatistics)
+    {
+        if (rowCount < 0) {
+            throw new IllegalArgumentException("rowCount is negative");
+        }
+        this.rowCount = rowCount;
+        this.columnStatistics = Collections.unmodifiableMap(new HashMap<>(requireNonNull(columnStatistics, "columnStatistics is null")));
+    }
+
+    public static TableStatistics unknown()
+    {
+        return UNKNOWN;
+    }
+
+    public double getRowCount()
+    {
+        return rowCount;
+    }
+
+    public Map<ConnectorColumnHandle, ColumnStatistics> getColumnStatistics()
+    {
+        return columnStatistics;
+    }
+
+    public ColumnStatistics getColumnStatistics(ConnectorColumnHandle columnHandle)
+    {
+        ColumnStatistics statistics = columnStatistics.get(columnHandle);
+        if (statistics == null) {
+            return ColumnStatistics.unknown();
+        }
+        return statistics;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(rowCount, columnStatistics);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        TableStatistics other = (TableStatistics) obj;
+        return Objects.equals(this.rowCount, other.rowCount) &&
+                Objects.equals(this.columnStatistics, other.columnStatistics);
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder("TableStatistics{");
+        sb.append("rowCount=").append(rowCount);
+        sb.append(", columnStatistics=").append(columnStatistics);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -146,4 +146,20 @@ public interface Block
      * accessed in a query.
      */
     void assureLoaded();
+
+    /**
+     * Assures that the data for the specified positions of the block is in
+     * memory.  The positions are the first positionCount entries of the array,
+     * in increasing order.  This may be called several times for a block, for
+     * example once for every batch of rows that pass a filter.
+     *
+     * This allows lazy blocks to only decode the positions that are read in a
+     * query.  Reading a position that was not loaded, calling assureLoaded(),
+     * or taking a region loads the whole block.  The default implementation
+     * loads the whole block.
+     */
+    default void assureLoaded(int[] positions, int positionCount)
+    {
+        assureLoaded();
+    }
 }
@@ -0,0 +1,253 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.spi.block;
+
+import io.airlift.slice.SizeOf;
+import io.airlift.slice.Slice;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A block that stores each distinct value once in a dictionary block and
+ * refers to the values by their position in the dictionary.
+ */
+public class DictionaryBlock
+        implements Block
+{
+    private final int positionCount;
+    private final Block dictionary;
+    private final int[] ids;
+    private int sizeInBytes = -1;
+
+    public DictionaryBlock(int positionCount, Block dictionary, int[] ids)
+    {
+        if (positionCount < 0) {
+            throw new IllegalArgumentException("positionCount is negative");
+        }
+        this.positionCount = positionCount;
+        this.dictionary = Objects.requireNonNull(dictionary, "dictionary is null");
+        this.ids = Objects.requireNonNull(ids, "ids is null");
+        if (ids.length < positionCount) {
+            throw new IllegalArgumentException("ids length is less than positionCount");
+        }
+    }
+
+    public Block getDictionary()
+    {
+        return dictionary;
+    }
+
+    /**
+     * Gets the position in the dictionary of the value at {@code position}.
+     */
+    public int getId(int position)
+    {
+        checkReadablePosition(position);
+        return ids[position];
+    }
+
+    int[] getIds()
+    {
+        return ids;
+    }
+
+    /**
+     * Returns a block with the same ids that refers to another dictionary, such as the values
+     * of an expression evaluated over each entry of this dictionary. The ids are shared, not copied.
+     */
+    public DictionaryBlock withDictionary(Block dictionary)
+    {
+        if (dictionary.getPositionCount() != this.dictionary.getPositionCount()) {
+            throw new IllegalArgumentException("dictionary does not have the same number of positions");
+        }
+        return new DictionaryBlock(positionCount, dictionary, ids);
+    }
+
+    @Override
+    public int getLength(int position)
+    {
+        return dictionary.getLength(getId(position));
+    }
+
+    @Override
+    public byte getByte(int position, int offset)
+    {
+        return dictionary.getByte(getId(position), offset);
+    }
+
+    @Override
+    public short getShort(int position, int offset)
+    {
+        return dictionary.getShort(getId(position), offset);
+    }
+
+    @Override
+    public int getInt(int position, int offset)
+    {
+        return dictionary.getInt(getId(position), offset);
+    }
+
+    @Override
+    public long getLong(int position, int offset)
+    {
+        return dictionary.getLong(getId(position), offset);
+    }
+
+    @Override
+    public float getFloat(int position, int offset)
+    {
+        return dictionary.getFloat(getId(position), offset);
+    }
+
+    @Override
+    public double getDouble(int position, int offset)
+    {
+        return dictionary.getDouble(getId(position), offset);
+    }
+
+    @Override
+    public Slice getSlice(int position, int offset, int length)
+    {
+        return dictionary.getSlice(getId(position), offset, length);
+    }
+
+    @Override
+    public boolean bytesEqual(int position, int offset, Slice otherSlice, int otherOffset, int length)
+    {
+        return dictionary.bytesEqual(getId(position), offset, otherSlice, otherOffset, length);
+    }
+
+    @Override
+    public int bytesCompare(int position, int offset, int length, Slice otherSlice, int otherOffset, int otherLength)
+    {
+        return dictionary.bytesCompare(getId(position), offset, length, otherSlice, otherOffset, otherLength);
+    }
+
+    @Override
+    public void writeBytesTo(int position, int offset, int length, BlockBuilder blockBuilder)
+    {
+        dictionary.writeBytesTo(getId(position), offset, length, blockBuilder);
+    }
+
+    @Override
+    public boolean equals(int position, int offset, Block otherBlock, int otherPosition, int otherOffset, int length)
+    {
+        return dictionary.equals(getId(position), offset, otherBlock, otherPosition, otherOffset, length);
+    }
+
+    @Override
+    public int hash(int position, int offset, int length)
+    {
+        return dictionary.hash(getId(position), offset, length);
+    }
+
+    @Override
+    public int compareTo(int leftPosition, int leftOffset, int leftLength, Block rightBlock, int rightPosition, int rightOffset, int rightLength)
+    {
+        return dictionary.compareTo(getId(leftPosition), leftOffset, leftLength, rightBlock, rightPosition, rightOffset, rightLength);
+    }
+
+    @Override
+    public Block getSingleValueBlock(int position)
+    {
+        return dictionary.getSingleValueBlock(getId(position));
+    }
+
+    @Override
+    public int getPositionCount()
+    {
+        return positionCount;
+    }
+
+    @Override
+    public int getSizeInBytes()
+    {
+        // computed on first use, so wrapping a lazy block does not load it
+        if (sizeInBytes < 0) {
+            long size = dictionary.getSizeInBytes() + SizeOf.sizeOf(ids);
+            sizeInBytes = (int) Math.min(size, Integer.MAX_VALUE);
+        }
+        return sizeInBytes;
+    }
+
+    @Override
+    public DictionaryBlockEncoding getEncoding()
+    {
+        return new DictionaryBlockEncoding(dictionary.getEncoding());
+    }
+
+    @Override
+    public Block getRegion(int positionOffset, int length)
+    {
+        if (positionOffset < 0 || length < 0 || positionOffset + length > positionCount) {
+            throw new IndexOutOfBoundsException("Invalid position " + positionOffset + " in block with " + positionCount + " positions");
+        }
+        return new DictionaryBlock(length, dictionary, Arrays.copyOfRange(ids, positionOffset, positionOffset + length));
+    }
+
+    @Override
+    public boolean isNull(int position)
+    {
+        return dictionary.isNull(getId(position));
+    }
+
+    @Override
+    public void assureLoaded()
+    {
+        dictionary.assureLoaded();
+    }
+
+    @Override
+    public void assureLoaded(int[] positions, int positionCount)
+    {
+        int[] dictionaryPositions = new int[positionCount];
+        boolean increasing = true;
+        for (int i = 0; i < positionCount; i++) {
+            dictionaryPositions[i] = ids[positions[i]];
+            increasing &= i == 0 || dictionaryPositions[i] > dictionaryPositions[i - 1];
+        }
+
+        int dictionaryPositionCount = positionCount;
+        if (!increasing) {
+            // sort the ids, and remove the duplicates of values that are read more than once
+            Arrays.sort(dictionaryPositions);
+            dictionaryPositionCount = 0;
+            for (int i = 0; i < positionCount; i++) {
+                if (i == 0 || dictionaryPositions[i] != dictionaryPositions[i - 1]) {
+                    dictionaryPositions[dictionaryPositionCount] = dictionaryPositions[i];
+                    dictionaryPositionCount++;
+                }
+            }
+        }
+        dictionary.assureLoaded(dictionaryPositions, dictionaryPositionCount);
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder("DictionaryBlock{");
+        sb.append("positionCount=").append(positionCount);
+        sb.append(", dictionaryPositionCount=").append(dictionary.getPositionCount());
+        sb.append('}');
+        return sb.toString();
+    }
+
+    private void checkReadablePosition(int position)
+    {
+        if (position < 0 || position >= positionCount) {
+            throw new IllegalArgumentException("position is not valid");
+        }
+    }
+}
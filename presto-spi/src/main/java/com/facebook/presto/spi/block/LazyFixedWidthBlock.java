@@ -27,6 +27,8 @@ public class LazyFixedWidthBlock
     private LazyBlockLoader<LazyFixedWidthBlock> loader;
     private Slice slice;
     private boolean[] valueIsNull;
+    // the positions loaded by assureLoaded(int[], int), until the whole block is loaded
+    private boolean[] loadedPositions;
 
     public LazyFixedWidthBlock(int fixedSize, int positionCount, LazyBlockLoader<LazyFixedWidthBlock> loader)
     {
@@ -52,17 +54,27 @@ public class LazyFixedWidthBlock
     @Override
     protected Slice getRawSlice()
     {
-        assureLoaded();
+        // the accessors check that the position they read is loaded first
+        if (slice == null) {
+            assureLoaded();
+        }
         return slice;
     }
 
     @Override
     protected boolean isEntryNull(int position)
     {
-        assureLoaded();
+        assureLoaded(position);
         return valueIsNull[position];
     }
 
+    @Override
+    protected void checkReadablePosition(int position)
+    {
+        super.checkReadablePosition(position);
+        assureLoaded(position);
+    }
+
     @Override
     public int getPositionCount()
     {
@@ -88,13 +100,13 @@ public class LazyFixedWidthBlock
 
         assureLoaded();
         Slice newSlice = slice.slice(positionOffset * fixedSize, length * fixedSize);
-        return new LazyFixedWidthBlock(fixedSize, length, loader, newSlice, Arrays.copyOfRange(valueIsNull, positionOffset, positionOffset + length));
+        return new LazyFixedWidthBlock(fixedSize, length, null, newSlice, Arrays.copyOfRange(valueIsNull, positionOffset, positionOffset + length));
     }
 
     @Override
     public void assureLoaded()
     {
-        if (slice != null) {
+        if (loader == null) {
             return;
         }
         loader.load(this);
@@ -105,6 +117,38 @@ public class LazyFixedWidthBlock
 
         // clear reference to loader to free resources, since load was successful
         loader = null;
+        loadedPositions = null;
+    }
+
+    @Override
+    public void assureLoaded(int[] positions, int positionCount)
+    {
+        if (!(loader instanceof SelectiveLazyBlockLoader)) {
+            assureLoaded();
+            return;
+        }
+        ((SelectiveLazyBlockLoader<LazyFixedWidthBlock>) loader).load(this, positions, positionCount);
+
+        if (slice == null) {
+            throw new IllegalArgumentException("Lazy block loader did not load this block");
+        }
+
+        if (loadedPositions == null) {
+            loadedPositions = new boolean[this.positionCount];
+        }
+        for (int i = 0; i < positionCount; i++) {
+            loadedPositions[positions[i]] = true;
+        }
+
+        // the loader is kept, since other positions may be loaded later
+    }
+
+    private void assureLoaded(int position)
+    {
+        // reading a position that was not loaded with the selected ones loads the whole block
+        if (slice == null || (loadedPositions != null && !loadedPositions[position])) {
+            assureLoaded();
+        }
     }
 
     public void setRawSlice(Slice slice)
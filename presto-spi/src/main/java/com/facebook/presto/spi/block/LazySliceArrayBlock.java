@@ -27,6 +27,8 @@ public class LazySliceArrayBlock
     private final int positionCount;
     private LazyBlockLoader<LazySliceArrayBlock> loader;
     private Slice[] values;
+    // the positions loaded by assureLoaded(int[], int), until the whole block is loaded
+    private boolean[] loadedPositions;
     private final AtomicInteger sizeInBytes = new AtomicInteger(-1);
 
     public LazySliceArrayBlock(int positionCount, LazyBlockLoader<LazySliceArrayBlock> loader)
@@ -58,7 +60,7 @@ public class LazySliceArrayBlock
     @Override
     protected Slice getRawSlice(int position)
     {
-        assureLoaded();
+        assureLoaded(position);
         return values[position];
     }
 
@@ -71,7 +73,7 @@ public class LazySliceArrayBlock
     @Override
     protected boolean isEntryNull(int position)
     {
-        assureLoaded();
+        assureLoaded(position);
         return values[position] == null;
     }
 
@@ -84,7 +86,7 @@ public class LazySliceArrayBlock
     @Override
     public int getLength(int position)
     {
-        assureLoaded();
+        assureLoaded(position);
         return values[position].length();
     }
 
@@ -93,7 +95,10 @@ public class LazySliceArrayBlock
     {
         int sizeInBytes = this.sizeInBytes.get();
         if (sizeInBytes < 0) {
-            assureLoaded();
+            // only the loaded positions take memory
+            if (values == null) {
+                assureLoaded();
+            }
             sizeInBytes = getSliceArraySizeInBytes(values);
             this.sizeInBytes.set(sizeInBytes);
         }
@@ -116,7 +121,7 @@ public class LazySliceArrayBlock
     @Override
     public void assureLoaded()
     {
-        if (values != null) {
+        if (loader == null) {
             return;
         }
         loader.load(this);
@@ -127,6 +132,40 @@ public class LazySliceArrayBlock
 
         // clear reference to loader to free resources, since load was successful
         loader = null;
+        loadedPositions = null;
+        sizeInBytes.set(-1);
+    }
+
+    @Override
+    public void assureLoaded(int[] positions, int positionCount)
+    {
+        if (!(loader instanceof SelectiveLazyBlockLoader)) {
+            assureLoaded();
+            return;
+        }
+        ((SelectiveLazyBlockLoader<LazySliceArrayBlock>) loader).load(this, positions, positionCount);
+
+        if (values == null) {
+            throw new IllegalArgumentException("Lazy block loader did not load this block");
+        }
+
+        if (loadedPositions == null) {
+            loadedPositions = new boolean[this.positionCount];
+        }
+        for (int i = 0; i < positionCount; i++) {
+            loadedPositions[positions[i]] = true;
+        }
+
+        // the size changes as more positions are loaded, and the loader is kept for them
+        sizeInBytes.set(-1);
+    }
+
+    private void assureLoaded(int position)
+    {
+        // reading a position that was not loaded with the selected ones loads the whole block
+        if (values == null || (loadedPositions != null && !loadedPositions[position])) {
+            assureLoaded();
+        }
     }
 
     @Override
@@ -0,0 +1,30 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.spi.block;
+
+/**
+ * A loader that can decode only some positions of a block, such as the rows
+ * that pass a filter on the other columns of the page.
+ */
+public interface SelectiveLazyBlockLoader<T extends Block>
+        extends LazyBlockLoader<T>
+{
+    /**
+     * Loads the values at the first positionCount entries of positions, which
+     * are in increasing order.  This may be called several times for the same
+     * block, and may be followed by a load of the whole block, which must then
+     * load all positions.
+     */
+    void load(T block, int[] positions, int positionCount);
+}
@@ -18,11 +18,14 @@ import com.facebook.presto.spi.ConnectorColumnHandle;
 import com.facebook.presto.spi.ConnectorInsertTableHandle;
 import com.facebook.presto.spi.ConnectorMetadata;
 import com.facebook.presto.spi.ConnectorOutputTableHandle;
+import com.facebook.presto.spi.ConnectorPartition;
 import com.facebook.presto.spi.ConnectorSession;
+import com.facebook.presto.spi.ConnectorTableBucketing;
 import com.facebook.presto.spi.ConnectorTableHandle;
 import com.facebook.presto.spi.ConnectorTableMetadata;
 import com.facebook.presto.spi.SchemaTableName;
 import com.facebook.presto.spi.SchemaTablePrefix;
+import com.facebook.presto.spi.TableStatistics;
 import io.airlift.slice.Slice;
 
 import java.util.Collection;
@@ -203,6 +206,38 @@ public class ClassLoaderSafeConnectorMetadata
         }
     }
 
+    @Override
+    public TableStatistics getTableStatistics(ConnectorSession session, ConnectorTableHandle tableHandle, List<ConnectorPartition> partitions)
+    {
+        try (ThreadContextClassLoader ignored = new ThreadContextClassLoader(classLoader)) {
+            return delegate.getTableStatistics(session, tableHandle, partitions);
+        }
+    }
+
+    @Override
+    public List<ConnectorColumnHandle> getGroupingColumns(ConnectorSession session, ConnectorTableHandle tableHandle)
+    {
+        try (ThreadContextClassLoader ignored = new ThreadContextClassLoader(classLoader)) {
+            return delegate.getGroupingColumns(session, tableHandle);
+        }
+    }
+
+    @Override
+    public ConnectorTableBucketing getTableBucketing(ConnectorSession session, ConnectorTableHandle tableHandle)
+    {
+        try (ThreadContextClassLoader ignored = new ThreadContextClassLoader(classLoader)) {
+            return delegate.getTableBucketing(session, tableHandle);
+        }
+    }
+
+    @Override
+    public String getTableDataVersion(ConnectorSession session, ConnectorTableHandle tableHandle, List<ConnectorPartition> partitions)
+    {
+        try (ThreadContextClassLoader ignored = new ThreadContextClassLoader(classLoader)) {
+            return delegate.getTableDataVersion(session, tableHandle, partitions);
+        }
+    }
+
     @Override
     public String toString()
     {
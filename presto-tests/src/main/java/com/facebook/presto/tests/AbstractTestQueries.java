@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.tests;
 
+import com.facebook.presto.Session;
 import com.facebook.presto.metadata.FunctionListBuilder;
 import com.facebook.presto.metadata.ParametricFunction;
 import com.facebook.presto.operator.scalar.TestingRowConstructor;
@@ -26,6 +27,7 @@ import com.facebook.presto.util.DateTimeZoneIndex;
 import com.google.common.base.Function;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
@@ -601,6 +603,17 @@ public abstract class AbstractTestQueries
         assertQueryOrdered("SELECT custkey, SUM(totalprice) FROM ORDERS GROUP BY custkey ORDER BY SUM(totalprice) DESC LIMIT 10");
     }
 
+    @Test
+    public void testGroupByGroupedInput()
+            throws Exception
+    {
+        // the rows of each lineitem split are grouped on orderkey and linenumber
+        assertQuery("SELECT orderkey, count(*), sum(quantity) FROM lineitem GROUP BY orderkey");
+        assertQuery("SELECT linenumber, orderkey, max(quantity) FROM lineitem WHERE quantity > 10 GROUP BY linenumber, orderkey");
+        assertQuery("SELECT orderstatus, count(*) FROM (SELECT * FROM orders ORDER BY orderstatus) GROUP BY orderstatus");
+        assertQuery("SELECT orderpriority, orderstatus, count(*) FROM (SELECT * FROM orders ORDER BY orderstatus, orderpriority) GROUP BY orderpriority, orderstatus");
+    }
+
     @Test
     public void testLimitZero()
             throws Exception
@@ -1049,6 +1062,105 @@ public abstract class AbstractTestQueries
         assertQuery("SELECT COUNT(*) FROM lineitem JOIN orders ON lineitem.orderkey = orders.orderkey");
     }
 
+    @Test
+    public void testJoinAndAggregateOnBucketKey()
+            throws Exception
+    {
+        assertQuery("" +
+                "SELECT o.orderkey, o.orderstatus, count(*), sum(l.quantity) " +
+                "FROM orders o JOIN lineitem l ON o.orderkey = l.orderkey " +
+                "GROUP BY o.orderkey, o.orderstatus");
+        assertQuery("" +
+                "SELECT o.orderkey, count(l.linenumber) " +
+                "FROM orders o LEFT JOIN (SELECT * FROM lineitem WHERE linenumber = 7) l ON o.orderkey = l.orderkey " +
+                "GROUP BY o.orderkey");
+        assertQuery("" +
+                "SELECT count(*), sum(x.c) " +
+                "FROM orders o JOIN (SELECT orderkey, count(*) c FROM lineitem GROUP BY orderkey) x ON o.orderkey = x.orderkey");
+    }
+
+    @Test
+    public void testJoinSortedInputs()
+            throws Exception
+    {
+        Session session = createSystemPropertySession("merge_join_enabled", "true");
+
+        @Language("SQL") String query = "" +
+                "SELECT o.orderkey, o.orderstatus, l.linenumber " +
+                "FROM (SELECT * FROM orders ORDER BY orderkey) o " +
+                "JOIN (SELECT * FROM lineitem ORDER BY orderkey) l ON o.orderkey = l.orderkey";
+        // when the sides are sorted in other fragments, the rows reach the join through exchanges that keep them sorted
+        MaterializedResult result = computeActual(session, "EXPLAIN (TYPE DISTRIBUTED) " + query);
+        String plan = Iterables.getOnlyElement(transform(result.getMaterializedRows(), onlyColumnGetter()));
+        if (plan.contains("Fragment 1")) {
+            assertTrue(plan.matches("(?s).*RemoteSource\\[\\d+\\] sorted on \\[orderkey_\\d+\\].*"), plan);
+        }
+        assertQuery(session, query);
+
+        assertQuery(session, "" +
+                "SELECT o.orderkey, l.linenumber " +
+                "FROM (SELECT * FROM orders WHERE orderkey % 3 = 0 ORDER BY orderkey) o " +
+                "LEFT JOIN (SELECT * FROM lineitem WHERE orderkey % 2 = 0 ORDER BY orderkey) l ON o.orderkey = l.orderkey");
+        assertQuery(session, "" +
+                "SELECT l.orderkey, l.linenumber, r.partkey " +
+                "FROM (SELECT * FROM lineitem ORDER BY orderkey, linenumber) l " +
+                "JOIN (SELECT * FROM lineitem ORDER BY orderkey, linenumber) r ON l.linenumber = r.linenumber AND l.orderkey = r.orderkey");
+    }
+
+    @Test
+    public void testColocatedJoin()
+            throws Exception
+    {
+        Session session = createSystemPropertySession("colocated_join", "true");
+
+        assertQuery(session, "SELECT o.orderkey, o.orderstatus, l.linenumber FROM orders o JOIN lineitem l ON o.orderkey = l.orderkey");
+        assertQuery(session, "SELECT o.orderkey, l.linenumber FROM orders o LEFT JOIN (SELECT * FROM lineitem WHERE orderkey % 2 = 0) l ON o.orderkey = l.orderkey");
+        assertQuery(session, "SELECT orderkey, count(*) FROM lineitem GROUP BY orderkey");
+    }
+
+    @Test
+    public void testAggregationsWithTaskConcurrency()
+            throws Exception
+    {
+        Session session = createTaskConcurrencySession(4);
+        assertQuery(session, "SELECT custkey, count(*), sum(totalprice), max(orderdate) FROM orders GROUP BY custkey");
+        assertQuery(session, "SELECT orderstatus, orderpriority, count(*), avg(totalprice) FROM orders GROUP BY orderstatus, orderpriority");
+        assertQuery(session, "SELECT count(DISTINCT custkey), count(DISTINCT orderstatus) FROM orders");
+        assertQuery(session, "SELECT custkey, count(DISTINCT orderpriority) FROM orders GROUP BY custkey");
+        assertQuery(session, "SELECT custkey, count(*) FROM orders GROUP BY custkey HAVING count(*) > 10");
+    }
+
+    @Test
+    public void testJoinsWithTaskConcurrency()
+            throws Exception
+    {
+        Session session = createTaskConcurrencySession(4);
+        assertQuery(session, "SELECT o.orderkey, o.orderstatus, l.linenumber FROM orders o JOIN lineitem l ON o.orderkey = l.orderkey");
+        assertQuery(session, "" +
+                "SELECT o.custkey, count(*), sum(l.quantity) " +
+                "FROM orders o JOIN lineitem l ON o.orderkey = l.orderkey " +
+                "GROUP BY o.custkey");
+        assertQuery(session, "" +
+                "SELECT o.orderkey, count(l.linenumber) " +
+                "FROM orders o LEFT JOIN (SELECT * FROM lineitem WHERE linenumber = 7) l ON o.orderkey = l.orderkey " +
+                "GROUP BY o.orderkey");
+        assertQuery(session, "SELECT count(*) FROM orders WHERE orderkey IN (SELECT orderkey FROM lineitem WHERE quantity > 45)");
+    }
+
+    @Test
+    public void testWindowsWithTaskConcurrency()
+            throws Exception
+    {
+        @Language("SQL") String sql = "" +
+                "SELECT orderkey, custkey, " +
+                "row_number() OVER (PARTITION BY custkey ORDER BY orderkey), " +
+                "sum(totalprice) OVER (PARTITION BY custkey ORDER BY orderkey) " +
+                "FROM orders";
+        MaterializedResult expected = computeActual(sql);
+        MaterializedResult actual = computeActual(createTaskConcurrencySession(4), sql);
+        assertEqualsIgnoreOrder(actual.getMaterializedRows(), expected.getMaterializedRows());
+    }
+
     @Test
     public void testJoinWithRightConstantEquality()
             throws Exception
@@ -3857,4 +3969,26 @@ public abstract class AbstractTestQueries
         MaterializedRow row = rows.get(0);
         assertEquals(row.getField(0), row.getField(1));
     }
+
+    private Session createTaskConcurrencySession(int taskConcurrency)
+    {
+        return createSystemPropertySession("task_concurrency", String.valueOf(taskConcurrency));
+    }
+
+    protected Session createSystemPropertySession(String name, String value)
+    {
+        Session session = getSession();
+        return Session.builder()
+                .setUser(session.getUser())
+                .setSource(session.getSource())
+                .setCatalog(session.getCatalog())
+                .setSchema(session.getSchema())
+                .setTimeZoneKey(session.getTimeZoneKey())
+                .setLocale(session.getLocale())
+                .setSystemProperties(ImmutableMap.<String, String>builder()
+                        .putAll(session.getSystemProperties())
+                        .put(name, value)
+                        .build())
+                .build();
+    }
 }
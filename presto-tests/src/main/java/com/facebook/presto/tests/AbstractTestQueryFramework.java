@@ -88,6 +88,12 @@ public abstract class AbstractTestQueryFramework
         QueryAssertions.assertQuery(queryRunner, getSession(), sql, h2QueryRunner, sql, false);
     }
 
+    protected void assertQuery(Session session, @Language("SQL") String sql)
+            throws Exception
+    {
+        QueryAssertions.assertQuery(queryRunner, session, sql, h2QueryRunner, sql, false);
+    }
+
     public void assertQueryOrdered(@Language("SQL") String sql)
             throws Exception
     {
@@ -100,6 +106,12 @@ public abstract class AbstractTestQueryFramework
         QueryAssertions.assertQuery(queryRunner, getSession(), actual, h2QueryRunner, expected, false);
     }
 
+    protected void assertQuery(Session session, @Language("SQL") String actual, @Language("SQL") String expected)
+            throws Exception
+    {
+        QueryAssertions.assertQuery(queryRunner, session, actual, h2QueryRunner, expected, false);
+    }
+
     protected void assertQueryOrdered(@Language("SQL") String actual, @Language("SQL") String expected)
             throws Exception
     {
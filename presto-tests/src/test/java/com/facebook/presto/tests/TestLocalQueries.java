@@ -14,14 +14,28 @@
 package com.facebook.presto.tests;
 
 import com.facebook.presto.Session;
+import com.facebook.presto.execution.TaskId;
+import com.facebook.presto.operator.Driver;
+import com.facebook.presto.operator.MergeJoinOperator;
+import com.facebook.presto.operator.OperatorContext;
+import com.facebook.presto.operator.TaskContext;
 import com.facebook.presto.testing.LocalQueryRunner;
+import com.facebook.presto.testing.NullOutputOperator.NullOutputFactory;
 import com.facebook.presto.tpch.TpchConnectorFactory;
 import com.facebook.presto.tpch.testing.SampledTpchConnectorFactory;
 import com.google.common.collect.ImmutableMap;
+import org.intellij.lang.annotations.Language;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Set;
 
 import static com.facebook.presto.spi.type.TimeZoneKey.UTC_KEY;
 import static com.facebook.presto.tpch.TpchMetadata.TINY_SCHEMA_NAME;
+import static com.facebook.presto.util.ImmutableCollectors.toImmutableSet;
 import static java.util.Locale.ENGLISH;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 public class TestLocalQueries
         extends AbstractTestApproximateQueries
@@ -33,6 +47,34 @@ public class TestLocalQueries
         super(createLocalQueryRunner(), createDefaultSampledSession());
     }
 
+    @Test
+    public void testJoinSortedInputsUsesMergeJoin()
+    {
+        @Language("SQL") String query = "" +
+                "SELECT o.orderkey, l.linenumber " +
+                "FROM (SELECT * FROM orders ORDER BY orderkey) o " +
+                "JOIN (SELECT * FROM lineitem ORDER BY orderkey) l ON o.orderkey = l.orderkey";
+
+        assertFalse(getOperatorTypes(getSession(), query).contains(MergeJoinOperator.class.getSimpleName()));
+        assertTrue(getOperatorTypes(createSystemPropertySession("merge_join_enabled", "true"), query).contains(MergeJoinOperator.class.getSimpleName()));
+    }
+
+    private Set<String> getOperatorTypes(Session session, @Language("SQL") String sql)
+    {
+        LocalQueryRunner localQueryRunner = (LocalQueryRunner) queryRunner;
+        TaskContext taskContext = new TaskContext(new TaskId("query", "stage", "task"), localQueryRunner.getExecutor(), session);
+        List<Driver> drivers = localQueryRunner.createDrivers(session, sql, new NullOutputFactory(), taskContext);
+        try {
+            return drivers.stream()
+                    .flatMap(driver -> driver.getDriverContext().getOperatorContexts().stream())
+                    .map(OperatorContext::getOperatorType)
+                    .collect(toImmutableSet());
+        }
+        finally {
+            drivers.forEach(Driver::close);
+        }
+    }
+
     private static LocalQueryRunner createLocalQueryRunner()
     {
         Session defaultSession = Session.builder()
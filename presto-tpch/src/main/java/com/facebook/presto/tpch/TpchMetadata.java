@@ -15,12 +15,15 @@ package com.facebook.presto.tpch;
 
 import com.facebook.presto.spi.ColumnMetadata;
 import com.facebook.presto.spi.ConnectorColumnHandle;
+import com.facebook.presto.spi.ConnectorPartition;
 import com.facebook.presto.spi.ConnectorSession;
+import com.facebook.presto.spi.ConnectorTableBucketing;
 import com.facebook.presto.spi.ConnectorTableHandle;
 import com.facebook.presto.spi.ConnectorTableMetadata;
 import com.facebook.presto.spi.ReadOnlyConnectorMetadata;
 import com.facebook.presto.spi.SchemaTableName;
 import com.facebook.presto.spi.SchemaTablePrefix;
+import com.facebook.presto.spi.TableStatistics;
 import com.facebook.presto.spi.type.Type;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -50,6 +53,37 @@ public class TpchMetadata
     public static final String ROW_NUMBER_COLUMN_NAME = "row_number";
     private static final TpchColumnHandle ROW_NUMBER_COLUMN_HANDLE = new TpchColumnHandle(ROW_NUMBER_COLUMN_NAME, -1, BIGINT);
 
+    // number of rows of each table at scale factor 1 (lineitem is approximate)
+    private static final Map<String, Long> BASE_ROW_COUNTS = ImmutableMap.<String, Long>builder()
+            .put("customer", 150_000L)
+            .put("orders", 1_500_000L)
+            .put("lineitem", 6_000_000L)
+            .put("part", 200_000L)
+            .put("partsupp", 800_000L)
+            .put("supplier", 10_000L)
+            .build();
+
+    private static final Map<String, Long> FIXED_ROW_COUNTS = ImmutableMap.of(
+            "nation", 25L,
+            "region", 5L);
+
+    // the generated rows of each part are in the order of these columns, and an order is never divided between parts
+    private static final Map<String, List<String>> GROUPING_COLUMNS = ImmutableMap.<String, List<String>>builder()
+            .put("orders", ImmutableList.of("orderkey"))
+            .put("lineitem", ImmutableList.of("orderkey", "linenumber"))
+            .put("customer", ImmutableList.of("custkey"))
+            .put("part", ImmutableList.of("partkey"))
+            .put("partsupp", ImmutableList.of("partkey"))
+            .put("supplier", ImmutableList.of("suppkey"))
+            .put("nation", ImmutableList.of("nationkey"))
+            .put("region", ImmutableList.of("regionkey"))
+            .build();
+
+    // each part of these tables holds the rows of the same range of orders
+    private static final Map<String, String> ORDER_BUCKET_COLUMNS = ImmutableMap.of(
+            "orders", "orderkey",
+            "lineitem", "orderkey");
+
     private final String connectorId;
     private final Set<String> tableNames;
 
@@ -111,6 +145,57 @@ public class TpchMetadata
         return new ConnectorTableMetadata(tableName, columns.build());
     }
 
+    @Override
+    public TableStatistics getTableStatistics(ConnectorSession session, ConnectorTableHandle tableHandle, List<ConnectorPartition> partitions)
+    {
+        TpchTableHandle tpchTableHandle = checkType(tableHandle, TpchTableHandle.class, "tableHandle");
+        String tableName = tpchTableHandle.getTableName();
+
+        double rowCount = Double.NaN;
+        if (FIXED_ROW_COUNTS.containsKey(tableName)) {
+            rowCount = FIXED_ROW_COUNTS.get(tableName);
+        }
+        else if (BASE_ROW_COUNTS.containsKey(tableName)) {
+            rowCount = BASE_ROW_COUNTS.get(tableName) * tpchTableHandle.getScaleFactor();
+        }
+        return new TableStatistics(rowCount, ImmutableMap.of());
+    }
+
+    @Override
+    public List<ConnectorColumnHandle> getGroupingColumns(ConnectorSession session, ConnectorTableHandle tableHandle)
+    {
+        TpchTableHandle tpchTableHandle = checkType(tableHandle, TpchTableHandle.class, "tableHandle");
+        List<String> columnNames = GROUPING_COLUMNS.getOrDefault(tpchTableHandle.getTableName(), ImmutableList.of());
+
+        Map<String, ConnectorColumnHandle> columnHandles = getColumnHandles(tableHandle);
+        ImmutableList.Builder<ConnectorColumnHandle> columns = ImmutableList.builder();
+        for (String columnName : columnNames) {
+            columns.add(columnHandles.get(columnName));
+        }
+        return columns.build();
+    }
+
+    @Override
+    public ConnectorTableBucketing getTableBucketing(ConnectorSession session, ConnectorTableHandle tableHandle)
+    {
+        TpchTableHandle tpchTableHandle = checkType(tableHandle, TpchTableHandle.class, "tableHandle");
+        String columnName = ORDER_BUCKET_COLUMNS.get(tpchTableHandle.getTableName());
+        if (columnName == null) {
+            return null;
+        }
+        // the splits of a part number only match for the same scale factor
+        String bucketFunction = "orders:" + tpchTableHandle.getScaleFactor();
+        return new ConnectorTableBucketing(bucketFunction, ImmutableList.of(getColumnHandles(tableHandle).get(columnName)));
+    }
+
+    @Override
+    public String getTableDataVersion(ConnectorSession session, ConnectorTableHandle tableHandle, List<ConnectorPartition> partitions)
+    {
+        checkType(tableHandle, TpchTableHandle.class, "tableHandle");
+        // the generated data only depends on the table and scale factor, which are part of the handle
+        return "generated";
+    }
+
     @Override
     public Map<String, ConnectorColumnHandle> getColumnHandles(ConnectorTableHandle tableHandle)
     {
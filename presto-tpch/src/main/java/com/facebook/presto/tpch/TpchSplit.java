@@ -69,6 +69,19 @@ public class TpchSplit
         return partNumber;
     }
 
+    @Override
+    public int getBucket()
+    {
+        return partNumber;
+    }
+
+    @Override
+    public String getDataIdentifier()
+    {
+        // the generated data only depends on the table and the part
+        return tableHandle.getTableName() + ":" + tableHandle.getScaleFactor() + ":" + partNumber + ":" + totalParts;
+    }
+
     @Override
     public Object getInfo()
     {